@@ -30,6 +30,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryFilter;
@@ -39,6 +44,9 @@ import org.adempiere.ad.dao.IQueryUpdater;
 import org.adempiere.ad.dao.ISqlQueryUpdater;
 import org.adempiere.ad.persistence.TableModelLoader;
 import org.adempiere.ad.security.IUserRolePermissions;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.exceptions.DBException;
 import org.adempiere.exceptions.DBMoreThenOneRecordsFoundException;
@@ -767,6 +775,154 @@ public class TypedSqlQuery<T> extends AbstractTypedQuery<T>
 		return result;
 	}
 
+	/** How many rows shall be fetched at once by {@link #streamColumnValues(List)} */
+	private static final int STREAM_COLUMN_VALUES_FetchSize = 1000;
+
+	/**
+	 * Streams the values of given columns, fetching {@value #STREAM_COLUMN_VALUES_FetchSize} rows at once.
+	 * <p>
+	 * NOTE: the PostgreSQL JDBC driver ignores the fetch size in auto-commit mode and loads the whole result set.
+	 * So if this query has no transaction, it's executed in a transaction of its own, which is rolled back when the stream is consumed or closed.
+	 * <p>
+	 * SQL <code>NULL</code>s are returned as <code>null</code> (and not as <code>0</code> or <code>false</code>), same as the column getters of the models do.
+	 */
+	@Override
+	final Stream<Object[]> streamColumnValues(final List<String> columnNames)
+	{
+		Check.assumeNotEmpty(columnNames, "columnNames not empty");
+
+		if (postQueryFilter != null)
+		{
+			throw new DBException("Selecting columns when 'postQueryFilter' is not null is not supported");
+		}
+
+		final String tableName = getTableName();
+
+		//
+		// Build columns SQL
+		final POInfo poInfo = getPOInfo();
+		final String[] columnNamesArr = columnNames.toArray(new String[columnNames.size()]);
+		final Class<?>[] columnClasses = new Class<?>[columnNames.size()];
+		final StringBuilder sqlColumnNames = new StringBuilder();
+		for (int i = 0; i < columnNames.size(); i++)
+		{
+			final String columnName = columnNames.get(i);
+			final int columnIndex = poInfo.getColumnIndex(columnName);
+			if (columnIndex < 0)
+			{
+				throw new DBException("Column '" + columnName + "' not found for table " + tableName);
+			}
+
+			if (sqlColumnNames.length() > 0)
+			{
+				sqlColumnNames.append(", ");
+			}
+			sqlColumnNames.append(poInfo.getColumnSqlForSelect(columnIndex));
+
+			columnClasses[i] = poInfo.getColumnClass(columnIndex);
+		}
+
+		//
+		// Build SQL query
+		final StringBuilder sqlSelect = new StringBuilder("SELECT ")
+				.append(sqlColumnNames)
+				.append(" FROM ").append(getSqlFrom());
+		final boolean useOrderByClause = true;
+		final String sql = buildSQL(sqlSelect, useOrderByClause);
+
+		//
+		// Make sure we are running in a transaction, else the fetch size is ignored
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx ownTrx;
+		final String trxNameToUse;
+		if (trxManager.isNull(trxManager.get(this.trxName, OnTrxMissingPolicy.ReturnTrxNone)))
+		{
+			trxNameToUse = trxManager.createTrxName("streamColumnValues", true);
+			ownTrx = trxManager.get(trxNameToUse, false);
+		}
+		else
+		{
+			trxNameToUse = this.trxName;
+			ownTrx = null;
+		}
+
+		//
+		// Execute it.
+		// NOTE: the result set (and our own transaction) is closed when the stream is consumed or closed.
+		PreparedStatement pstmtToUse = null;
+		ResultSet rsToUse = null;
+		try
+		{
+			pstmtToUse = DB.prepareStatement(sql, trxNameToUse);
+			pstmtToUse.setFetchSize(STREAM_COLUMN_VALUES_FetchSize);
+			rsToUse = createResultSet(pstmtToUse);
+		}
+		catch (final SQLException e)
+		{
+			DB.close(pstmtToUse);
+			closeOwnTrx(ownTrx);
+			throw new DBException(e, sql, getParametersEffective());
+		}
+		catch (final RuntimeException e)
+		{
+			DB.close(pstmtToUse);
+			closeOwnTrx(ownTrx);
+			throw e;
+		}
+		final PreparedStatement pstmt = pstmtToUse;
+		final ResultSet rs = rsToUse;
+		final Runnable closeAll = () -> {
+			DB.close(rs, pstmt);
+			closeOwnTrx(ownTrx);
+		};
+
+		final Spliterator<Object[]> spliterator = new Spliterators.AbstractSpliterator<Object[]>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL)
+		{
+			@Override
+			public boolean tryAdvance(final Consumer<? super Object[]> action)
+			{
+				try
+				{
+					if (!rs.next())
+					{
+						closeAll.run();
+						return false;
+					}
+
+					final Object[] values = new Object[columnClasses.length];
+					for (int i = 0; i < columnClasses.length; i++)
+					{
+						final Object value = DB.retrieveValue(rs, columnNamesArr[i], columnClasses[i]);
+						values[i] = rs.wasNull() ? null : value;
+					}
+					action.accept(values);
+					return true;
+				}
+				catch (final SQLException e)
+				{
+					closeAll.run();
+					throw new DBException(e, sql, getParametersEffective());
+				}
+			}
+		};
+
+		final boolean parallel = false;
+		return StreamSupport.stream(spliterator, parallel)
+				.onClose(closeAll);
+	}
+
+	private static final void closeOwnTrx(final ITrx ownTrx)
+	{
+		if (ownTrx == null)
+		{
+			return;
+		}
+
+		// nothing was written in it
+		ownTrx.rollback();
+		ownTrx.close();
+	}
+
 	@Override
 	public int count() throws DBException
 	{
@@ -33,7 +33,10 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -48,6 +51,7 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
@@ -61,6 +65,8 @@ import org.xml.sax.SAXException;
 
 /**
  * Utility class which helps with XML processing.
+ * <p>
+ * The XPath methods are thread-safe and are compiling each expression only once per thread.
  *
  * @author Trifon Trifonov
  * @version $Id$
@@ -68,48 +74,82 @@ import org.xml.sax.SAXException;
 public class XMLHelper
 {
 
-	private static XPath xPath = XPathFactory.newInstance().newXPath();
+	/**
+	 * Neither {@link XPath} nor {@link XPathExpression} are thread-safe, so each thread compiles and caches its own expressions.
+	 */
+	private static final ThreadLocal<CompiledXPaths> compiledXPaths = ThreadLocal.withInitial(CompiledXPaths::new);
 
 	public static Element getElement(final String xPathExpression, final Node node)
 			throws XPathExpressionException
 	{
-		return (Element)xPath.evaluate(xPathExpression, node,
-				XPathConstants.NODE);
+		return (Element)evaluate(xPathExpression, node, XPathConstants.NODE);
 	}
 
 	public static Node getNode(final String xPathExpression, final Node node)
 			throws XPathExpressionException
 	{
-		return (Node)xPath
-				.evaluate(xPathExpression, node, XPathConstants.NODE);
+		return (Node)evaluate(xPathExpression, node, XPathConstants.NODE);
 	}
 
 	public static NodeList getNodeList(final String xPathExpression, final Node node)
 			throws XPathExpressionException
 	{
-		return (NodeList)xPath.evaluate(xPathExpression, node,
-				XPathConstants.NODESET);
+		return (NodeList)evaluate(xPathExpression, node, XPathConstants.NODESET);
 	}
 
 	public static Double getNumber(final String xPathExpression, final Node node)
 			throws XPathExpressionException
 	{
-		return (Double)xPath.evaluate(xPathExpression, node,
-				XPathConstants.NUMBER);
+		return (Double)evaluate(xPathExpression, node, XPathConstants.NUMBER);
 	}
 
 	public static String getString(final String xPathExpression, final Node node)
 			throws XPathExpressionException
 	{
-		return (String)xPath.evaluate(xPathExpression, node,
-				XPathConstants.STRING);
+		return (String)evaluate(xPathExpression, node, XPathConstants.STRING);
 	}
 
 	public static Boolean getBoolean(final String xPathExpression, final Node node)
 			throws XPathExpressionException
 	{
-		return (Boolean)xPath.evaluate(xPathExpression, node,
-				XPathConstants.BOOLEAN);
+		return (Boolean)evaluate(xPathExpression, node, XPathConstants.BOOLEAN);
+	}
+
+	private static Object evaluate(final String xPathExpression, final Node node, final QName returnType)
+			throws XPathExpressionException
+	{
+		return compiledXPaths.get().compile(xPathExpression).evaluate(node, returnType);
+	}
+
+	/**
+	 * The compiled XPath expressions of one thread. The import formats are using a limited set of expressions, so the least recently used ones are evicted only as a safety net.
+	 */
+	private static final class CompiledXPaths
+	{
+		private static final int MAX_SIZE = 1000;
+
+		private final XPath xPath = XPathFactory.newInstance().newXPath();
+		private final Map<String, XPathExpression> expressions = new LinkedHashMap<String, XPathExpression>(64, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, XPathExpression> eldest)
+			{
+				return size() > MAX_SIZE;
+			}
+		};
+
+		public XPathExpression compile(final String xPathExpression) throws XPathExpressionException
+		{
+			XPathExpression compiled = expressions.get(xPathExpression);
+			if (compiled == null)
+			{
+				compiled = xPath.compile(xPathExpression);
+				expressions.put(xPathExpression, compiled);
+			}
+			return compiled;
+		}
 	}
 
 	public static Document createDocumentFromFile(final String pathToXmlFile)
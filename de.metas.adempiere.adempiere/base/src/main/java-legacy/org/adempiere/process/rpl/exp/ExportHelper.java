@@ -29,10 +29,14 @@
  *********************************************************************/
 package org.adempiere.process.rpl.exp;
 
+import java.io.OutputStream;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -79,6 +83,7 @@ import org.compiere.model.X_EXP_FormatLine;
 import org.compiere.util.DB;
 import org.compiere.util.DisplayType;
 import org.compiere.util.Util;
+import org.compiere.util.Util.ArrayKey;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Text;
@@ -123,6 +128,16 @@ public class ExportHelper
 	/** Replication Strategy */
 	private I_AD_ReplicationStrategy m_rplStrategy = null;
 
+	/** How many master records are loaded at a time by {@link #exportRecords(MEXPFormat, String, Integer, String, Integer, IReplicationAccessContext, OutputStream)} */
+	private static final int STREAMING_ChunkSize = 500;
+
+	/**
+	 * Embedded records of the current chunk of master records, by EXP_FormatLine_ID and link ID; not set if not streaming.
+	 * <p>
+	 * Thread local, because the same helper instance might be used by other threads (see ExportModelValidator).
+	 */
+	private final ThreadLocal<Map<ArrayKey, List<PO>>> prefetchedEmbeddedRecords = new ThreadLocal<>();
+
 	public ExportHelper(final MClient client, final MReplicationStrategy rplStrategy)
 	{
 		m_AD_Client_ID = client.getAD_Client_ID();
@@ -278,19 +293,9 @@ public class ExportHelper
 		final MTable table = MTable.get(exportFormat.getCtx(), exportFormat.getAD_Table_ID());
 		log.info("Table = " + table);
 
-		// metas: begin: build where clause
-		final StringBuffer whereClause = new StringBuffer("1=1");
-		if (!Check.isEmpty(exportFormat.getWhereClause(), true))
-		{
-			whereClause.append(" AND (").append(exportFormat.getWhereClause()).append(")");
-		}
-		if (!Check.isEmpty(where))
-		{
-			whereClause.append(" AND (").append(where).append(")");
-		}
-		// metas: end
+		final String whereClause = buildWhereClause(exportFormat, where);
 
-		final Collection<PO> records = new Query(exportFormat.getCtx(), table.getTableName(), whereClause.toString(), exportFormat.get_TrxName())
+		final Collection<PO> records = new Query(exportFormat.getCtx(), table.getTableName(), whereClause, exportFormat.get_TrxName())
 				.setOnlyActiveRecords(true)
 				.setApplyAccessFilter(racCtx.isApplyAccessFilter())
 				.setLimit(racCtx.getLimit())
@@ -321,6 +326,181 @@ public class ExportHelper
 		return outDocument;
 	}
 
+	/**
+	 * Exports <b>all</b> records for the given format and where clause to the given stream. The records are written one by one below one {@link RPL_Constants#XML_ELEMENT_ExportedRecords} element,
+	 * each of them in the same format as if it was exported alone.
+	 * <p>
+	 * Unlike {@link #exportRecord(MEXPFormat, String, Integer, String, Integer, IReplicationAccessContext)}, this method doesn't load all records and doesn't build one DOM for all of them:
+	 * <ul>
+	 * <li>the master records are iterated in chunks of {@value #STREAMING_ChunkSize}
+	 * <li>the embedded records of a whole chunk are loaded with one query per embedded format
+	 * <li>only the DOM of the current record is kept in memory
+	 * </ul>
+	 *
+	 * @param out stream to write to; it is not closed by this method
+	 * @return number of exported records
+	 */
+	public int exportRecords(final MEXPFormat exportFormat, final String where, final Integer ReplicationMode, final String ReplicationType, final Integer ReplicationEvent,
+			final IReplicationAccessContext racCtx,
+			final OutputStream out)
+	{
+		final I_AD_Client client = Services.get(IClientDAO.class).retriveClient(exportFormat.getCtx(), m_AD_Client_ID);
+		final MTable table = MTable.get(exportFormat.getCtx(), exportFormat.getAD_Table_ID());
+		log.info("Table = " + table);
+
+		final String[] keyColumns = table.getKeyColumns();
+		if (keyColumns == null || keyColumns.length != 1)
+		{
+			throw new ReplicationException(ImportHelper.MSG_EDIMultiColumnNotSupported)
+					.setParameter(I_AD_Table.COLUMNNAME_TableName, table.getTableName());
+		}
+
+		final Iterator<PO> records = new Query(exportFormat.getCtx(), table.getTableName(), buildWhereClause(exportFormat, where), exportFormat.get_TrxName())
+				.setOnlyActiveRecords(true)
+				.setApplyAccessFilter(racCtx.isApplyAccessFilter())
+				.setLimit(racCtx.getLimit())
+				.setOrderBy(keyColumns[0])
+				.setOption(IQuery.OPTION_IteratorBufferSize, STREAMING_ChunkSize)
+				.iterate();
+
+		final ExportXMLStreamWriter xmlWriter = new ExportXMLStreamWriter(out)
+				.writeStartDocument(RPL_Constants.XML_ELEMENT_ExportedRecords);
+		final DocumentBuilder documentBuilder = newDocumentBuilder(); // looking up the factory implementation for each record would be expensive
+
+		final List<PO> chunk = new ArrayList<>(STREAMING_ChunkSize);
+		try
+		{
+			while (records.hasNext())
+			{
+				chunk.add(records.next());
+				if (chunk.size() >= STREAMING_ChunkSize || !records.hasNext())
+				{
+					prefetchedEmbeddedRecords.set(new HashMap<ArrayKey, List<PO>>());
+					prefetchEmbeddedRecords(exportFormat, chunk, racCtx);
+
+					for (final PO po : chunk)
+					{
+						final Document recordDocument = documentBuilder.newDocument();
+						final HashMap<String, Integer> variableMap = new HashMap<String, Integer>();
+						final Element rootElement = generateRootElement(exportFormat, recordDocument, ReplicationMode, ReplicationType, ReplicationEvent, client);
+						generateExportFormat(recordDocument, rootElement, exportFormat, po, variableMap, racCtx);
+
+						xmlWriter.writeRecord(rootElement);
+					}
+					chunk.clear();
+				}
+			}
+		}
+		finally
+		{
+			prefetchedEmbeddedRecords.remove();
+		}
+
+		xmlWriter.writeEndDocument();
+		return xmlWriter.getRecordsCount();
+	}
+
+	private static String buildWhereClause(final MEXPFormat exportFormat, final String where)
+	{
+		// metas: begin: build where clause
+		final StringBuilder whereClause = new StringBuilder("1=1");
+		if (!Check.isEmpty(exportFormat.getWhereClause(), true))
+		{
+			whereClause.append(" AND (").append(exportFormat.getWhereClause()).append(")");
+		}
+		if (!Check.isEmpty(where))
+		{
+			whereClause.append(" AND (").append(where).append(")");
+		}
+		// metas: end
+		return whereClause.toString();
+	}
+
+	/**
+	 * Loads the records of the given format's embedded formats for all given master records at once (recursively, i.e. also the embedded records' embedded records),
+	 * and stores them in {@link #prefetchedEmbeddedRecords}.
+	 */
+	private void prefetchEmbeddedRecords(final MEXPFormat exportFormat, final List<PO> masterPOs, final IReplicationAccessContext racCtx)
+	{
+		final Map<ArrayKey, List<PO>> prefetchedRecords = prefetchedEmbeddedRecords.get();
+		if (masterPOs.isEmpty())
+		{
+			return;
+		}
+
+		final PO firstMasterPO = masterPOs.get(0);
+		final Properties ctx = firstMasterPO.getCtx();
+		final String trxName = firstMasterPO.get_TrxName();
+
+		for (final I_EXP_FormatLine formatLine : exportFormat.getFormatLines())
+		{
+			if (!X_EXP_FormatLine.TYPE_EmbeddedEXPFormat.equals(formatLine.getType()))
+			{
+				continue;
+			}
+
+			final MEXPFormat embeddedFormat = MEXPFormat.get(ctx, formatLine.getEXP_EmbeddedFormat_ID(), trxName);
+			final MTable tableEmbedded = MTable.get(ctx, embeddedFormat.getAD_Table_ID());
+			final String linkColumnName = getLinkColumnName(firstMasterPO, tableEmbedded);
+
+			final LinkedHashSet<Object> linkIds = new LinkedHashSet<>();
+			for (final PO masterPO : masterPOs)
+			{
+				final Object linkId = masterPO.get_Value(linkColumnName);
+				if (linkId != null)
+				{
+					linkIds.add(linkId);
+				}
+			}
+			if (linkIds.isEmpty())
+			{
+				continue;
+			}
+
+			final List<Object> params = new ArrayList<>();
+			final StringBuilder whereClause = new StringBuilder(linkColumnName).append(" IN ").append(DB.buildSqlList(linkIds, params));
+			if (!Check.isEmpty(embeddedFormat.getWhereClause()))
+			{
+				whereClause.append(" AND ").append(embeddedFormat.getWhereClause());
+			}
+
+			final Query query = new Query(ctx, tableEmbedded.getTableName(), whereClause.toString(), trxName);
+			final boolean hasIsActiveColumn = Services.get(IADTableDAO.class).hasColumnName(tableEmbedded.getTableName(), "IsActive");
+			if (hasIsActiveColumn)
+			{
+				// same as when loading the embedded records of one master, see generateExportFormatLine()
+				query.setOnlyActiveRecords(true);
+			}
+			final String[] embeddedKeyColumns = tableEmbedded.getKeyColumns();
+			if (embeddedKeyColumns != null && embeddedKeyColumns.length > 0)
+			{
+				query.setOrderBy(linkColumnName + "," + String.join(",", embeddedKeyColumns));
+			}
+			final List<PO> embeddedPOs = query
+					.setApplyAccessFilter(racCtx.isApplyAccessFilter())
+					.setParameters(params)
+					.list();
+
+			//
+			// Group them by master; masters without embedded records get an empty list, so that we know that we don't have to query them
+			for (final Object linkId : linkIds)
+			{
+				prefetchedRecords.put(Util.mkKey(formatLine.getEXP_FormatLine_ID(), linkId), new ArrayList<PO>());
+			}
+			final int limit = racCtx.getLimit();
+			for (final PO embeddedPO : embeddedPOs)
+			{
+				final List<PO> masterEmbeddedPOs = prefetchedRecords.get(Util.mkKey(formatLine.getEXP_FormatLine_ID(), embeddedPO.get_Value(linkColumnName)));
+				if (masterEmbeddedPOs != null && (limit <= 0 || masterEmbeddedPOs.size() < limit))
+				{
+					masterEmbeddedPOs.add(embeddedPO);
+				}
+			}
+
+			prefetchEmbeddedRecords(embeddedFormat, embeddedPOs, racCtx);
+		}
+	}
+
 	private Element generateRootElement(final org.compiere.model.I_EXP_Format exportFormat, final Document outDocument, final Integer ReplicationMode, final String ReplicationType,
 			final Integer ReplicationEvent, final I_AD_Client client)
 	{
@@ -476,21 +656,31 @@ public class ExportHelper
 				whereClause.append(" AND ").append(embeddedFormat.getWhereClause());
 			}
 
-			final Query query = new Query(masterPO.getCtx(), tableEmbedded.getTableName(), whereClause.toString(), masterPO.get_TrxName());
-		
-			final boolean hasIsActiveColumn = Services.get(IADTableDAO.class).hasColumnName(tableEmbedded.getTableName(), "IsActive");
-			if (hasIsActiveColumn)
+			final Map<ArrayKey, List<PO>> prefetchedRecords = prefetchedEmbeddedRecords.get();
+			final List<PO> prefetchedInstances = prefetchedRecords == null ? null : prefetchedRecords.get(Util.mkKey(formatLine.getEXP_FormatLine_ID(), linkId));
+			final List<PO> instances;
+			if (prefetchedInstances != null)
 			{
-				// not exporting inactive records, if the current format's table allow us to check (sometimes not the case for simple views);
-				// hypothetically we might want to export them too, but that case didn't yet occur and i don't really see it. However, the other way round (i.e. *not* exporting inactive records) is
-				// all over.
-				query.setOnlyActiveRecords(true);
+				instances = prefetchedInstances;
+			}
+			else
+			{
+				final Query query = new Query(masterPO.getCtx(), tableEmbedded.getTableName(), whereClause.toString(), masterPO.get_TrxName());
+
+				final boolean hasIsActiveColumn = Services.get(IADTableDAO.class).hasColumnName(tableEmbedded.getTableName(), "IsActive");
+				if (hasIsActiveColumn)
+				{
+					// not exporting inactive records, if the current format's table allow us to check (sometimes not the case for simple views);
+					// hypothetically we might want to export them too, but that case didn't yet occur and i don't really see it. However, the other way round (i.e. *not* exporting inactive records) is
+					// all over.
+					query.setOnlyActiveRecords(true);
+				}
+				instances = query
+						.setApplyAccessFilter(racCtx.isApplyAccessFilter())
+						.setParameters(linkId)
+						.setLimit(racCtx.getLimit())
+						.list();
 			}
-			final List<PO> instances = query
-					.setApplyAccessFilter(racCtx.isApplyAccessFilter())
-					.setParameters(linkId)
-					.setLimit(racCtx.getLimit())
-					.list();
 
 			for (final PO instance : instances)
 			{
@@ -629,21 +819,21 @@ public class ExportHelper
 	 */
 	Document createNewDocument()
 	{
-		Document result = null;
+		return newDocumentBuilder().newDocument();
+	}
+
+	private static DocumentBuilder newDocumentBuilder()
+	{
 		final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder documentBuilder;
 		try
 		{
-			documentBuilder = documentBuilderFactory.newDocumentBuilder();
+			return documentBuilderFactory.newDocumentBuilder();
 		}
 		catch (final ParserConfigurationException e)
 		{
 			// internal error, shall not happen
 			throw new AdempiereException(e);
 		}
-
-		result = documentBuilder.newDocument();
-		return result;
 	}
 
 	// metas: begin
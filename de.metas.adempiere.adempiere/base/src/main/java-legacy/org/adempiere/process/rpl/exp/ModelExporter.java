@@ -15,17 +15,10 @@
   *****************************************************************************/
 package org.adempiere.process.rpl.exp;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.StringWriter;
-import java.io.Writer;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 
 import org.adempiere.process.rpl.api.IReplicationAccessContext;
 import org.compiere.model.MEXPFormat;
@@ -33,7 +26,6 @@ import org.compiere.model.MReplicationStrategy;
 import org.compiere.model.ModelValidator;
 import org.compiere.model.X_AD_ReplicationTable;
 import org.compiere.util.Env;
-import org.w3c.dom.Document;
 
 import de.metas.process.ProcessInfoParameter;
 import de.metas.process.JavaProcess;
@@ -124,32 +116,14 @@ public class ModelExporter extends JavaProcess {
 		File file = new File(p_FileName);
 
 		final IReplicationAccessContext racCtx = expHelper.getDefaultIReplicationAccessContext(); // TODO hardcoded default
-		Document doc = expHelper.exportRecord(exportFormat,p_WhereClause, MReplicationStrategy.REPLICATION_TABLE, X_AD_ReplicationTable.REPLICATIONTYPE_Merge,ModelValidator.TYPE_AFTER_CHANGE, racCtx);
-		// Save the document to the disk file
-        TransformerFactory tranFactory = TransformerFactory.newInstance();
-        
-        //tranFactory.setAttribute("indent-number", 4);
-        
-        Transformer aTransformer = tranFactory.newTransformer();
-        aTransformer.setOutputProperty(OutputKeys.METHOD, "xml");
-        aTransformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        Source src = new DOMSource(doc);
-		
-        // =================================== Write to String
-        Writer writer = new StringWriter();
-        Result dest2 = new StreamResult(writer);
-        aTransformer.transform(src, dest2);
-        // =================================== Write to Disk
-        try {
-        	Result dest = new StreamResult(file);
-            aTransformer.transform(src, dest);
-            writer.flush();
-            writer.close();
-            
-        } catch (TransformerException ex) {
-        	ex.printStackTrace();
-        	throw ex;
-        }
+
+		// Stream the records to the disk file, instead of building one DOM for all of them
+		final int exportedCount;
+		try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+		{
+			exportedCount = expHelper.exportRecords(exportFormat, p_WhereClause, MReplicationStrategy.REPLICATION_TABLE, X_AD_ReplicationTable.REPLICATIONTYPE_Merge, ModelValidator.TYPE_AFTER_CHANGE, racCtx, out);
+		}
+		addLog("Exported " + exportedCount + " records to " + file);
 		return "Exported";
 	}
 }
@@ -28,12 +28,18 @@
  **********************************************************************/
 package org.adempiere.process.rpl.imp;
 
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.adempiere.process.rpl.RPL_Constants;
 import org.adempiere.process.rpl.XMLHelper;
 import org.adempiere.server.rpl.api.IIMPProcessorBL;
 import org.adempiere.server.rpl.api.IImportHelper;
 import org.adempiere.util.Services;
 import org.compiere.util.Env;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import de.metas.process.ProcessInfoParameter;
 import de.metas.process.JavaProcess;
@@ -129,7 +135,26 @@ public class ModelImporter extends JavaProcess {
 		Document documentToBeImported = XMLHelper.createDocumentFromFile(p_FileName);
 		
 		final IImportHelper impHelper = Services.get(IIMPProcessorBL.class).createImportHelper(getCtx());
-		impHelper.importXMLDocument(result, documentToBeImported, get_TrxName());
+		final Element rootElement = documentToBeImported.getDocumentElement();
+		if (RPL_Constants.XML_ELEMENT_ExportedRecords.equals(rootElement.getNodeName()))
+		{
+			// many records, as exported by ModelExporter; import them one by one
+			final DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			for (Node recordNode = rootElement.getFirstChild(); recordNode != null; recordNode = recordNode.getNextSibling())
+			{
+				if (recordNode.getNodeType() != Node.ELEMENT_NODE)
+				{
+					continue;
+				}
+				final Document recordDocument = documentBuilder.newDocument();
+				recordDocument.appendChild(recordDocument.importNode(recordNode, true));
+				impHelper.importXMLDocument(result, recordDocument, get_TrxName());
+			}
+		}
+		else
+		{
+			impHelper.importXMLDocument(result, documentToBeImported, get_TrxName());
+		}
 
 		addLog("@ImportModelProcessResult@" + "\n" + result.toString());
 		return result.toString();
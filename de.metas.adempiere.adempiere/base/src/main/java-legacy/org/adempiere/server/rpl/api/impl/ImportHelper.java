@@ -36,9 +36,10 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.regex.Pattern;
@@ -102,6 +103,7 @@ import org.compiere.util.Env;
 import org.compiere.util.TimeUtil;
 import org.compiere.util.TrxRunnable;
 import org.compiere.util.Util;
+import org.compiere.util.Util.ArrayKey;
 import org.slf4j.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -178,6 +180,9 @@ public class ImportHelper implements IImportHelper
 
 	private final IIMPProcessorBL importProcessorBL;
 
+	/** Records looked up by formats with {@link I_EXP_Format#RplImportMode_RecordExists} during the current import */
+	private final Map<ArrayKey, PO> lookedUpPOs = new HashMap<>();
+
 	public ImportHelper()
 	{
 		super();
@@ -225,6 +230,7 @@ public class ImportHelper implements IImportHelper
 		final Element rootElement = documentToBeImported.getDocumentElement();
 
 		ctx = createContext(rootElement);
+		lookedUpPOs.clear();
 
 		// Find which Export format to Load...
 		final String version = rootElement.getAttribute(RPL_Constants.XML_ATTR_Version);
@@ -490,6 +496,8 @@ public class ImportHelper implements IImportHelper
 			final String ReplicationTrxName,
 			final String trxName)
 	{
+		final ImportFormatPlan plan = ImportFormatPlan.get(expFormat);
+
 		boolean isLookupTableReplicationTrxSupported;
 		PO po = null;
 		I_EXP_ReplicationTrxLine replicationTrxLine = null;
@@ -498,7 +506,7 @@ public class ImportHelper implements IImportHelper
 			//
 			// Getting the Object for the replicate
 			final POReplicationTrxLineDraft draft = getObjectFromFormat(result,
-					expFormat,
+					plan,
 					rootElement, rootElement.getNodeName(),
 					ReplicationType,
 					parentXPath,
@@ -556,17 +564,9 @@ public class ImportHelper implements IImportHelper
 					.setParameter(I_AD_Table.COLUMNNAME_TableName, po.get_TableName());
 		}
 
-		// Specify the line order
-		// *embedded sub formats last; note that the postgres ordering for boolean values is false, true, null
-		// *mandatory line before non-mandatory lines
-		// *whatever is specified in the 'Position' column
-		final String orderBy =
-				I_EXP_FormatLine.COLUMNNAME_Type + "='" + X_EXP_FormatLine.TYPE_EmbeddedEXPFormat + "'," +
-						I_EXP_FormatLine.COLUMNNAME_IsMandatory + " DESC , " + // mandatory fields first
-						I_EXP_FormatLine.COLUMNNAME_Position;
-
-		final Collection<I_EXP_FormatLine> formatLines = expFormat.getFormatLinesOrderedBy(orderBy);
-		if (formatLines == null || formatLines.size() < 1)
+		// Note: the plan specifies the line order
+		final List<I_EXP_FormatLine> formatLines = plan.getFormatLines();
+		if (formatLines.isEmpty())
 		{
 			throw new ReplicationException(MSG_EXPFormatNoLines);
 		}
@@ -582,7 +582,7 @@ public class ImportHelper implements IImportHelper
 
 				//
 				// Get the value from xml
-				final Object value = getValueFromFormat(formatLine, po, rootElement, result, parentXPath, ReplicationType, ReplicationTrxName);
+				final Object value = getValueFromFormat(plan, formatLine, po, rootElement, result, parentXPath, ReplicationType, ReplicationTrxName);
 
 				//
 				// Set the value on the PO
@@ -642,6 +642,7 @@ public class ImportHelper implements IImportHelper
 	/**
 	 * Get the value from format
 	 *
+	 * @param plan plan of the format the given line belongs to
 	 * @param line
 	 * @param po
 	 * @param rootElement
@@ -652,6 +653,7 @@ public class ImportHelper implements IImportHelper
 	 * @return Object with the Value
 	 */
 	private Object getValueFromFormat(
+			final ImportFormatPlan plan,
 			final I_EXP_FormatLine line,
 			final PO po,
 			final Element rootElement,
@@ -718,7 +720,7 @@ public class ImportHelper implements IImportHelper
 					// 03469: we don't just try to look up the ID, but also create the PO on demand, if required
 					final PO referencedPO = importElement(result, rootElement, referencedExpFormat, ReplicationType, valueXPath,
 							null, // masterPO
-							InterfaceWrapperHelper.create(line.getEXP_Format(), I_EXP_Format.class), // masterExpFormat
+							plan.getFormat(), // masterExpFormat
 							line, // masterFormatLine
 							ReplicationTrxName, po.get_TrxName());
 
@@ -780,7 +782,7 @@ public class ImportHelper implements IImportHelper
 					// note that we call the method with parentXPath="", because we also call it with 'referencedElement', i.e. the current child node
 					embeddedPo = importElement(result, referencedElement, referencedExpFormat, ReplicationType, "",
 							po, // masterPO
-							InterfaceWrapperHelper.create(line.getEXP_Format(), I_EXP_Format.class), // masterExpFormat
+							plan.getFormat(), // masterExpFormat
 							line, // masterExpFormatLine
 							ReplicationTrxName, po.get_TrxName());
 				}
@@ -1016,7 +1018,7 @@ public class ImportHelper implements IImportHelper
 	 * This Method gets the PO record associated with the created ReplicationTrxLine from the exportFormat
 	 *
 	 * @param result
-	 * @param expFormat
+	 * @param plan
 	 * @param rootElement
 	 * @param rootNodeName
 	 * @param ReplicationType
@@ -1029,7 +1031,7 @@ public class ImportHelper implements IImportHelper
 	 */
 	private POReplicationTrxLineDraft getObjectFromFormat(
 			final StringBuilder result,
-			final MEXPFormat expFormat,
+			final ImportFormatPlan plan,
 			final Element rootElement,
 			final String rootNodeName,
 			final String ReplicationType,
@@ -1040,10 +1042,11 @@ public class ImportHelper implements IImportHelper
 			final String ReplicationTrxName,
 			final String trxName) throws ReplicationException
 	{
-		if (expFormat == null || rootElement == null || rootNodeName == null)
+		if (plan == null || rootElement == null || rootNodeName == null)
 		{
-			throw new IllegalArgumentException("expFormat, rootNode and RootnodeName can't be null!");
+			throw new IllegalArgumentException("plan, rootNode and RootnodeName can't be null!");
 		}
+		final MEXPFormat expFormat = plan.getEXP_Format();
 
 		final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
 
@@ -1057,16 +1060,16 @@ public class ImportHelper implements IImportHelper
 		}
 
 		// get the import mode to see if the format specifies any assumptions
-		final I_EXP_Format expFormatExt = InterfaceWrapperHelper.create(expFormat, I_EXP_Format.class);
-		final String importMode = expFormatExt.getRplImportMode();
+		final I_EXP_Format expFormatExt = plan.getFormat();
+		final String importMode = plan.getImportMode();
 
-		final boolean doLookup = Check.isEmpty(importMode) || I_EXP_Format.RplImportMode_RecordExists.equals(importMode);
+		final boolean doLookup = plan.isDoLookup();
 
 		// Get list with all Unique columns!
 		final List<I_EXP_FormatLine> uniqueFormatLines = new ArrayList<I_EXP_FormatLine>();
 		if (doLookup)
 		{
-			uniqueFormatLines.addAll(expFormat.getUniqueColumns());
+			uniqueFormatLines.addAll(plan.getUniqueFormatLines());
 			if (uniqueFormatLines.isEmpty()
 					&& masterPO == null) // note that with a masterPO, a lookup can be done, even without unique lines
 			{
@@ -1149,7 +1152,7 @@ public class ImportHelper implements IImportHelper
 						// 03469: we don't just try to look up the ID, but also create the PO on demand, if required
 						final PO referencedPO = importElement(result, rootElement, referencedExpFormat, ReplicationType, xPath,
 								null, // masterPO
-								InterfaceWrapperHelper.create(expFormat, I_EXP_Format.class), // masterExportFormant
+								expFormatExt, // masterExportFormant
 								uniqueFormatLine, // masterExpFormatLine
 								ReplicationTrxName, trxName);
 						record_ID = referencedPO.get_ID();
@@ -1279,17 +1282,33 @@ public class ImportHelper implements IImportHelper
 			linkId = -1;
 		}
 
-		final I_AD_Table lookupTable = expFormat.getAD_Table();
-		final String lookupTableName = lookupTable.getTableName();
+		final String lookupTableName = plan.getTableName();
 
 		final List<PO> lookupValues = new ArrayList<PO>();
 		if (doLookup)
 		{
-			final List<PO> list = new Query(ctx, lookupTableName, whereClause.toString(), trxName)
-					.setOnlyActiveRecords(true)
-					.setParameters(params)
-					.list();
-			lookupValues.addAll(list);
+			//
+			// Records which can't be created by this import are cached for the rest of the import,
+			// because a message usually references the same products, partners etc many times.
+			final ArrayKey lookupKey = plan.isLookupOnly() && masterPO == null ? Util.mkKey(lookupTableName, whereClause.toString(), params, trxName) : null;
+			final PO lookedUpPO = lookupKey == null ? null : lookedUpPOs.get(lookupKey);
+			if (lookedUpPO != null)
+			{
+				lookupValues.add(lookedUpPO);
+			}
+			else
+			{
+				final List<PO> list = new Query(ctx, lookupTableName, whereClause.toString(), trxName)
+						.setOnlyActiveRecords(true)
+						.setParameters(params)
+						.list();
+				lookupValues.addAll(list);
+
+				if (lookupKey != null && list.size() == 1)
+				{
+					lookedUpPOs.put(lookupKey, list.get(0));
+				}
+			}
 		}
 
 		//
@@ -1359,8 +1378,7 @@ public class ImportHelper implements IImportHelper
 			{
 				// there is no existing record for the given XML data, but the format definition didn't assume
 				// otherwise, so it's OK
-				final String tableName = Services.get(IADTableDAO.class).retrieveTableName(expFormat.getAD_Table_ID());
-				po = TableModelLoader.instance.newPO(ctx, tableName, trxName);
+				po = TableModelLoader.instance.newPO(ctx, plan.getTableName(), trxName);
 				po.set_ValueNoCheck("AD_Client_ID", Env.getAD_Client_ID(ctx)); // metas
 				// NOTE: using context's AD_Org_ID, else IReplRequestHandler could fail to run because the object won't have write permissions
 				po.set_ValueNoCheck("AD_Org_ID", Env.getAD_Org_ID(ctx)); // metas
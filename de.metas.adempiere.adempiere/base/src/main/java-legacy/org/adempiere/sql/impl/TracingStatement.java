@@ -82,7 +82,7 @@ class TracingStatement<StatementType extends AbstractCStatementProxy<? extends S
 
 		final Stopwatch duration = Stopwatch.createStarted();
 		final T retValue = sqlCall.call();
-		collector.collect(sql, duration.stop());
+		collector.collect(sql, delegate.getVO(), duration.stop(), extractUpdateCount(retValue));
 
 		return retValue;
 	}
@@ -97,11 +97,38 @@ class TracingStatement<StatementType extends AbstractCStatementProxy<? extends S
 
 		final Stopwatch duration = Stopwatch.createStarted();
 		final T retValue = sqlCall.call();
-		collector.collect(delegate.getVO(), duration.stop());
+		collector.collect(null, delegate.getVO(), duration.stop(), extractUpdateCount(retValue));
 
 		return retValue;
 	}
 
+	/**
+	 * @return update count if the SQL call was an update (i.e. returned an int or an int[] for batches) or <code>-1</code>
+	 */
+	private static final int extractUpdateCount(final Object sqlCallResult)
+	{
+		if (sqlCallResult instanceof Integer)
+		{
+			return (Integer)sqlCallResult;
+		}
+		else if (sqlCallResult instanceof int[])
+		{
+			int updateCount = 0;
+			for (final int count : (int[])sqlCallResult)
+			{
+				if (count > 0)
+				{
+					updateCount += count;
+				}
+			}
+			return updateCount;
+		}
+		else
+		{
+			return -1;
+		}
+	}
+
 	@Override
 	public final String getSql()
 	{
@@ -33,12 +33,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
+import javax.swing.SwingUtilities;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.AbstractTableModel;
 
@@ -52,11 +52,13 @@ import org.adempiere.model.virtualColumn.IVirtualColumn;
 import org.adempiere.model.virtualColumn.IVirtualColumnEvent;
 import org.adempiere.model.virtualColumn.IVirtualColumnListener;
 import org.adempiere.model.virtualColumn.IVirtualColumnProvider;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
 import org.adempiere.util.GridRowCtx;
 import org.adempiere.util.Services;
 import org.adempiere.util.api.IMsgBL;
 import org.compiere.model.GridTab.DataNewCopyMode;
+import org.compiere.model.MLookupFactory.LanguageInfo;
 import org.compiere.util.CacheMgt;
 import org.compiere.util.DB;
 import org.compiere.util.DisplayType;
@@ -64,7 +66,6 @@ import org.compiere.util.Env;
 import org.compiere.util.Ini;
 import org.compiere.util.MSort;
 import org.compiere.util.SecureEngine;
-import org.compiere.util.Trx;
 import org.compiere.util.Util;
 import org.compiere.util.ValueNamePair;
 import org.slf4j.Logger;
@@ -138,9 +139,12 @@ public class GridTable extends AbstractTableModel
 		m_WindowNo = WindowNo;
 		m_TabNo = TabNo;
 		m_withAccessControl = withAccessControl;
-		m_virtual = virtual && MTable.get(ctx, AD_Table_ID).isHighVolume(); // metas: is this metas change?
+		m_virtual = virtual && (MTable.get(ctx, AD_Table_ID).isHighVolume() || Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_PagedModeForAllTables, false)); // metas: is this metas change?
 	}	//	MTable
 
+	/** If true, all tables (not only the high volume ones) are loaded in paged mode, if the caller allows it */
+	private static final String SYSCONFIG_PagedModeForAllTables = "org.compiere.model.GridTable.PagedModeForAllTables";
+
 	private static final Logger log = LogManager.getLogger(GridTable.class);
 	private final Properties          m_ctx;
 	private final int					m_AD_Table_ID;
@@ -152,9 +156,20 @@ public class GridTable extends AbstractTableModel
 	private boolean			    m_readOnly = true;
 	private boolean			    m_deleteable = true;
 	//virtual table state variables
+	/** Paged mode: only the keys are loaded by {@link Loader}, the row data is loaded page by page, on demand */
 	private boolean				m_virtual;
-	private int m_cacheStart;
-	private int m_cacheEnd;
+	/** Paged mode: rows per page */
+	private static final int PAGE_SIZE = 200;
+	/** Paged mode: pages which are further than this from the currently accessed page are evicted */
+	private static final int PAGE_MAX_DISTANCE = 5;
+	/** Paged mode: how many keys are loaded synchronously when opening */
+	private static final int KEYS_FIRST_PAGE_SIZE = 1000;
+	/** Paged mode: how many keys are loaded at once by the {@link Loader} thread */
+	private static final int KEYS_PAGE_SIZE = 10000;
+	/** Paged mode: row data, by Record_ID */
+	private final GridTablePageCache m_pageCache = new GridTablePageCache(PAGE_SIZE, PAGE_MAX_DISTANCE);
+	/** Paged mode: ORDER BY clause set by {@link #sort(int, boolean)} (i.e. the rows are sorted by database) */
+	private String m_sortOrderClauseOverride = null;
 	public static final String CTX_KeyColumnName = "KeyColumnName";
 	//
 
@@ -422,6 +437,37 @@ public class GridTable extends AbstractTableModel
 		Env.setContext(m_ctx, m_WindowNo, m_TabNo, GridTab.CTX_SQL, m_SQL);
 		return m_SQL;
 	}	//	createSelectSql
+
+	/**
+	 * Creates a SELECT which is using the same FROM and WHERE clauses (including the access SQL) as the count SQL.
+	 *
+	 * @param selectColumnsSql columns to select
+	 * @param additionalWhereClause additional where clause or null
+	 * @return SQL (without ORDER BY)
+	 */
+	private String createSelectSqlFromCountSql(final String selectColumnsSql, final String additionalWhereClause)
+	{
+		final String sqlCountPrefix = "SELECT COUNT(*) FROM " + m_tableName;
+		Check.assume(m_SQL_Count.startsWith(sqlCountPrefix), "Count SQL starts with {}: {}", sqlCountPrefix, m_SQL_Count);
+
+		String whereClause = m_SQL_Count.substring(sqlCountPrefix.length()).trim();
+		if (whereClause.startsWith("WHERE "))
+		{
+			whereClause = whereClause.substring("WHERE ".length());
+		}
+
+		final StringBuilder sql = new StringBuilder("SELECT ").append(selectColumnsSql)
+				.append(" FROM ").append(m_tableName);
+		if (!whereClause.trim().isEmpty())
+		{
+			sql.append(" WHERE (").append(whereClause).append(")");
+		}
+		if (!Check.isEmpty(additionalWhereClause, true))
+		{
+			sql.append(whereClause.trim().isEmpty() ? " WHERE " : " AND ").append("(").append(additionalWhereClause).append(")");
+		}
+		return sql.toString();
+	}
 	
 	private String createSelectWhereClauseSql()
 	{
@@ -689,21 +735,23 @@ public class GridTable extends AbstractTableModel
 		}
 
 		//	Start Loading
+		m_pageCache.clear();
+		m_sortOrderClauseOverride = null;
+		m_sort = new ArrayList<MSort>(100); // in paged mode, the loader is adding the first keys directly on open
 		m_loader = new Loader();
 		m_rowCount = m_loader.open(maxRows, query);
 		if (m_virtual)
 		{
-			m_buffer = new ArrayList<Object[]>(210);
+			m_buffer = new ArrayList<Object[]>(0);
 		}
 		else
 		{
 			m_buffer = new ArrayList<Object[]>(m_rowCount+10);
+			m_sort.ensureCapacity(m_rowCount+10);
 		}
-		m_sort = new ArrayList<MSort>(m_rowCount+10);
-		m_cacheStart = m_cacheEnd = -1;
-		if (m_rowCount > 0)
+		if (m_loader.hasRowsToLoad())
 		{
-			if (m_rowCount < 1000)
+			if (!m_virtual && m_rowCount < 1000)
 				m_loader.run();
 			else
 			{
@@ -784,17 +832,7 @@ public class GridTable extends AbstractTableModel
 		}
 
 		//	Stop loader
-		while (m_loader != null && m_loader.isAlive())
-		{
-			log.debug("Interrupting Loader ...");
-			m_loader.interrupt();
-			try
-			{
-				Thread.sleep(200);		//	.2 second
-			}
-			catch (InterruptedException ie)
-			{}
-		}
+		stopLoader();
 
 		if (!m_inserting)
 			dataSave(false);	//	not manual
@@ -810,7 +848,7 @@ public class GridTable extends AbstractTableModel
 			m_sort = null;
 		}
 
-		m_cacheStart = m_cacheEnd = -1;
+		m_pageCache.clear();
 
 		if (finalCall)
 			dispose();
@@ -820,6 +858,24 @@ public class GridTable extends AbstractTableModel
 		m_open = false;
 	}	//	close
 
+	/**
+	 * Interrupts the {@link Loader} and waits until it's stopped.
+	 */
+	private void stopLoader()
+	{
+		while (m_loader != null && m_loader.isAlive())
+		{
+			log.debug("Interrupting Loader ...");
+			m_loader.interrupt();
+			try
+			{
+				Thread.sleep(200);		//	.2 second
+			}
+			catch (InterruptedException ie)
+			{}
+		}
+	}
+
 	/**
 	 *  Dispose MTable.
 	 *  Called by close-final
@@ -878,7 +934,8 @@ public class GridTable extends AbstractTableModel
 	/**
 	 *	Sort Entries by Column.
 	 *  actually the rows are not sorted, just the access pointer ArrayList
-	 *  with the same size as m_buffer with MSort entities
+	 *  with the same size as m_buffer with MSort entities.
+	 *  In paged mode, the rows are sorted by database and loaded again.
 	 *  @param col col
 	 *  @param ascending ascending
 	 */
@@ -895,6 +952,11 @@ public class GridTable extends AbstractTableModel
 		//	RowIDs are not sorted
 		if (field.getDisplayType() == DisplayType.RowID)
 			return;
+		if (m_virtual)
+		{
+			sortInDatabase(field, ascending);
+			return;
+		}
 		final boolean isLookup = DisplayType.isLookup(field.getDisplayType());
 		final boolean isASI = DisplayType.PAttribute == field.getDisplayType();
 
@@ -916,23 +978,70 @@ public class GridTable extends AbstractTableModel
 		MSort sort = new MSort(0, null);
 		sort.setSortAsc(ascending);
 		Collections.sort(m_sort, sort);
-		if (m_virtual)
+		//	update UI
+		fireTableDataChanged();
+		//  Info detected by MTab.dataStatusChanged and current row set to 0
+		fireDataStatusIEvent("Sorted", "#" + m_sort.size());
+	}	//	sort
+
+	/**
+	 * Paged mode: reloads the keys, sorted by database by given field.
+	 *
+	 * @param field field
+	 * @param ascending ascending
+	 */
+	private void sortInDatabase(final GridField field, final boolean ascending)
+	{
+		if (m_inserting)
 		{
-			m_buffer.clear();
-			m_cacheStart = m_cacheEnd = -1;
+			log.warn("Cannot sort while inserting a new row: " + field);
+			return;
+		}
+		dataSave(false);	//	not manual
 
+		m_sortOrderClauseOverride = getSortOrderByExpression(field) + (ascending ? " ASC" : " DESC");
+		log.info(field.toString() + " - ORDER BY " + m_sortOrderClauseOverride);
+
+		stopLoader();
+		m_pageCache.clear();
+		m_sort = new ArrayList<MSort>(m_rowCount+10);
+		m_loader = new Loader();
+		m_rowCount = m_loader.open(m_maxRows, query);
+		if (m_loader.hasRowsToLoad())
+			m_loader.start();
+		else
+			m_loader.close();
 
-			//release sort memory
-			for (int i = 0; i < m_sort.size(); i++)
-			{
-				m_sort.get(i).data = null;
-			}
-		}
 		//	update UI
 		fireTableDataChanged();
 		//  Info detected by MTab.dataStatusChanged and current row set to 0
-		fireDataStatusIEvent("Sorted", "#" + m_sort.size());
-	}	//	sort
+		fireDataStatusIEvent("Sorted", "#" + m_rowCount);
+	}	//	sortInDatabase
+
+	/**
+	 * @return SQL expression to sort by given field; for lookups, the display value is used
+	 */
+	private String getSortOrderByExpression(final GridField field)
+	{
+		final String columnSQL = field.getColumnSQL(false);
+		final int displayType = field.getDisplayType();
+		if (DisplayType.isLookup(displayType))
+		{
+			try
+			{
+				final String lookupSQL = MLookupFactory.getLookupEmbed(LanguageInfo.ofSpecificLanguage(m_ctx), columnSQL, m_tableName, displayType, field.getAD_Reference_Value_ID());
+				if (!Check.isEmpty(lookupSQL, true))
+				{
+					return "(" + lookupSQL + ")";
+				}
+			}
+			catch (final Exception e)
+			{
+				log.warn("Cannot get the lookup SQL of " + field + ". Sorting by value.", e);
+			}
+		}
+		return columnSQL;
+	}
 
 	/**
 	 *	Get Key ID or -1 of none
@@ -1025,13 +1134,20 @@ public class GridTable extends AbstractTableModel
 		Object[] rowData = null;
 		if (m_virtual)
 		{
-			int bufferrow = -1;
-			if (sort.index != -1 && (row < m_cacheStart || row > m_cacheEnd))
+			rowData = m_pageCache.getRow(sort.index);
+			if (rowData == null)
 			{
-				fillBuffer(row);
+				loadPage(m_pageCache.getPageNo(row));
+				rowData = m_pageCache.getRow(sort.index);
+			}
+			if (rowData == null)
+			{
+				// the record was deleted meanwhile; keep an empty row, so the row indexes are not changed
+				log.warn("Record not found: " + m_tableName + ", " + getKeyColumnName() + "=" + sort.index);
+				rowData = new Object[m_fields.size()];
+				rowData[m_indexKeyColumn] = sort.index;
+				m_pageCache.putRow(sort.index, rowData, row);
 			}
-			bufferrow = row - m_cacheStart;
-			rowData = m_buffer.get(bufferrow);
 		}
 		else
 		{
@@ -1044,13 +1160,7 @@ public class GridTable extends AbstractTableModel
 		MSort sort = m_sort.get(row);
 		if (m_virtual)
 		{
-			int bufferrow = -1;
-			if (sort.index != -1 && (row < m_cacheStart || row > m_cacheEnd))
-			{
-				fillBuffer(row);
-			}
-			bufferrow = row - m_cacheStart;
-			m_buffer.set(bufferrow, rowData);
+			m_pageCache.putRow(sort.index, rowData, row);
 		}
 		else
 		{
@@ -1059,63 +1169,44 @@ public class GridTable extends AbstractTableModel
 
 	}
 
-	private void fillBuffer(int start)
+	/**
+	 * Paged mode: loads the row data of given page.
+	 *
+	 * @param pageNo page number
+	 */
+	private void loadPage(final int pageNo)
 	{
-		//adjust start if needed
-		if (start > 0)
+		final int firstRow = pageNo * m_pageCache.getPageSize();
+		final int lastRow = Math.min(firstRow + m_pageCache.getPageSize(), m_sort.size()); // exclusive
+		final StringBuilder sqlRecordIds = new StringBuilder();
+		for (int row = firstRow; row < lastRow; row++)
 		{
-			if (start + 200 >= m_sort.size())
+			final int recordId = m_sort.get(row).index;
+			if (recordId == GridTablePageCache.NEW_ROW_RECORD_ID)
 			{
-				start = start - (200 - (m_sort.size() - start));
-				if (start < 0)
-					start = 0;
+				continue;
 			}
+			if (sqlRecordIds.length() > 0)
+				sqlRecordIds.append(",");
+			sqlRecordIds.append(recordId);
 		}
-		StringBuilder sql = new StringBuilder();
-		sql.append(m_SQL_Select)
-			.append(" WHERE ")
-			.append(getKeyColumnName())
-			.append(" IN (");
-		m_cacheStart = start;
-		m_cacheEnd = m_cacheStart - 1;
-		Map<Integer, Integer> rowmap = new LinkedHashMap<Integer, Integer>(200);
-		for (int i = start; i < start + 200 && i < m_sort.size(); i++)
-		{
-			if(i > start)
-				sql.append(",");
-			sql.append(m_sort.get(i).index);
-			rowmap.put(m_sort.get(i).index, i);
-		}
-		sql.append(")");
-		m_buffer = new ArrayList<Object[]>(210);
-		for (int i = 0; i < 200; i++)
-			m_buffer.add(null);
+		if (sqlRecordIds.length() <= 0)
+		{
+			return;
+		}
+
+		final String sql = m_SQL_Select + " WHERE " + getKeyColumnName() + " IN (" + sqlRecordIds + ")";
+		final Map<Integer, Object[]> rowsByRecordId = new HashMap<Integer, Object[]>(m_pageCache.getPageSize());
 		PreparedStatement stmt = null;
 		ResultSet rs = null;
 		try
 		{
-			stmt = DB.prepareStatement(sql.toString(), null);
+			stmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
 			rs = stmt.executeQuery();
 			while(rs.next())
 			{
-				Object[] data = readData(rs);
-				int row = rowmap.remove(data[m_indexKeyColumn]);
-				m_buffer.set(row - m_cacheStart, data);
-				m_cacheEnd++;
-			}
-			if (!rowmap.isEmpty())
-			{
-				List<Integer> toremove = new ArrayList<Integer>();
-				for(Map.Entry<Integer, Integer> entry : rowmap.entrySet())
-				{
-					toremove.add(entry.getValue());
-				}
-				Collections.reverse(toremove);
-				for(Integer row : toremove)
-				{
-					m_sort.remove(row);
-					m_buffer.remove(row - m_cacheStart);
-				}
+				final Object[] data = readData(rs);
+				rowsByRecordId.put((Integer)data[m_indexKeyColumn], data);
 			}
 		}
 		catch (SQLException e)
@@ -1126,6 +1217,17 @@ public class GridTable extends AbstractTableModel
 		{
 			DB.close(rs, stmt);
 		}
+
+		// keep the changed row which was not saved yet (it might be in this page or in a page which is evicted now)
+		final int recordIdChanged = m_rowChanged >= 0 && m_rowChanged < m_sort.size() ? m_sort.get(m_rowChanged).index : GridTablePageCache.NEW_ROW_RECORD_ID;
+		final Object[] rowDataChanged = m_changed ? m_pageCache.getRow(recordIdChanged) : null;
+
+		m_pageCache.putPage(pageNo, rowsByRecordId);
+
+		if (rowDataChanged != null)
+		{
+			m_pageCache.putRow(recordIdChanged, rowDataChanged, m_rowChanged);
+		}
 	}
 	
 	/**
@@ -1967,12 +2069,14 @@ public class GridTable extends AbstractTableModel
 			{
 				rowDataDB = readData(rs);
 				//	update buffer
-				setDataAtRow(m_rowChanged, rowDataDB);
 				if (m_virtual)
 				{
+					// the row is cached by Record_ID, so the (new) key is set first
 					MSort sort = m_sort.get(m_rowChanged);
-					sort.index = getKeyID(m_rowChanged);
+					m_pageCache.removeRow(sort.index);
+					sort.index = (Integer)rowDataDB[m_indexKeyColumn];
 				}
+				setDataAtRow(m_rowChanged, rowDataDB);
 				fireTableRowsUpdated(m_rowChanged, m_rowChanged);
 			}
 			else
@@ -2153,11 +2257,12 @@ public class GridTable extends AbstractTableModel
 			{
 				Object[] rowDataDB = readData(rs);
 				//	update buffer
-				setDataAtRow(m_rowChanged, rowDataDB);
 				if (m_virtual)
 				{
+					// the row is cached by Record_ID, so the (new) key is set first
 					MSort sort = m_sort.get(m_rowChanged);
-					sort.index = getKeyID(m_rowChanged);
+					m_pageCache.removeRow(sort.index);
+					sort.index = (Integer)rowDataDB[m_indexKeyColumn];
 					// metas: also include virtual values
 //					if (Services.get(IVirtualColumnProvider.class) != null) {
 //
@@ -2166,6 +2271,7 @@ public class GridTable extends AbstractTableModel
 //					}
 				}
 				// metas end
+				setDataAtRow(m_rowChanged, rowDataDB);
 				fireTableRowsUpdated(m_rowChanged, m_rowChanged);
 			}
 		}
@@ -2507,16 +2613,11 @@ public class GridTable extends AbstractTableModel
 
 		//	add Data at end of buffer
 		MSort newSort = m_virtual
-				? new MSort(-1, null)
+				? new MSort(GridTablePageCache.NEW_ROW_RECORD_ID, null)
 				: new MSort(m_sort.size(), null);	//	index
 		if (m_virtual)
 		{
-			m_buffer.add(m_newRow, rowData);
-			if (m_cacheStart == -1) {
-				m_cacheStart = m_cacheEnd = m_newRow;
-			} else if (m_cacheEnd < m_newRow) {
-				m_cacheEnd = m_newRow;
-			}
+			m_pageCache.putRow(GridTablePageCache.NEW_ROW_RECORD_ID, rowData, m_newRow);
 		}
 		else
 		{
@@ -2757,9 +2858,12 @@ public class GridTable extends AbstractTableModel
 		}
 
 		//	Get Sort
-		int bufferRow = m_virtual ? row - m_cacheStart : sort.index;
+		int bufferRow = sort.index;
 		//	Delete row in Buffer and shifts all below up
-		m_buffer.remove(bufferRow);
+		if (m_virtual)
+			m_pageCache.removeRow(bufferRow);
+		else
+			m_buffer.remove(bufferRow);
 		m_rowCount--;
 
 		//	Delete row in Sort
@@ -2774,19 +2878,6 @@ public class GridTable extends AbstractTableModel
 					ptr.index--;	//	move up
 			}
 		}
-		else
-		{
-			if (m_cacheStart == row) {
-				if (m_cacheStart < m_cacheEnd)
-				m_cacheStart++;
-			else
-					m_cacheStart = m_cacheEnd = -1;
-			} else {
-				m_cacheEnd--;
-				if (m_cacheStart > m_cacheEnd)
-					m_cacheStart = m_cacheEnd;
-			}
-		}
 
 		//	inform
 		m_changed = false;
@@ -2815,19 +2906,15 @@ public class GridTable extends AbstractTableModel
 		{
 			//	Get Sort
 			MSort sort = m_sort.get(m_newRow);
-			int bufferRow = m_virtual ? m_buffer.size() - 1 : sort.index;
+			int bufferRow = sort.index;
 			// Delete row in Buffer and shifts all below up
-			m_buffer.remove(bufferRow);
+			if (m_virtual)
+				m_pageCache.removeRow(bufferRow);
+			else
+				m_buffer.remove(bufferRow);
 			m_rowCount--;
 			// Delete row in Sort
 			m_sort.remove(m_newRow); // pintint to the last column, so no adjustment
-			if (m_virtual) {
-				if (m_cacheEnd == m_newRow) {
-					m_cacheEnd--;
-					if (m_cacheStart > m_cacheEnd)
-						m_cacheStart = m_cacheEnd;
-				}
-			}
 			//
 			m_changed = false;
 			m_rowData = null;
@@ -3422,7 +3509,12 @@ public class GridTable extends AbstractTableModel
 
 		private PreparedStatement   m_pstmt = null;
 		private ResultSet 		    m_rs = null;
-		private Trx trx = null;
+		private int m_rowsToLoad = 0;
+
+		//
+		// Paged mode
+		private int m_pagedMaxRows = 0;
+		private GridTableKeysPager m_keysPager = null;
 
 		/**
 		 *	Open ResultSet
@@ -3433,53 +3525,33 @@ public class GridTable extends AbstractTableModel
 		{
 			// query = myQuery; // metas
 		//	log.info( "MTable Loader.open");
-			//	Get Number of Rows
-			int rows = 0;
-			PreparedStatement pstmt = null;
-			ResultSet rs = null;			
-			try
+			if (m_virtual)
 			{
-				pstmt = DB.prepareStatement(m_SQL_Count, null);
-				setParameter (pstmt, true);
-				rs = pstmt.executeQuery();
-				if (rs.next())
-					rows = rs.getInt(1);
+				return openPaged(maxRows);
 			}
-			catch (SQLException e0)
+
+			//	Get Number of Rows
+			int rows = queryRowsCount();
+			if (rows < 0)
 			{
-				//	Zoom Query may have invalid where clause
-				if (DBException.isInvalidIdentifierError(e0))
-					log.warn("Count - " + e0.getLocalizedMessage() + "\nSQL=" + m_SQL_Count);
-				else
-					log.error("Count SQL=" + m_SQL_Count, e0);
 				return 0;
 			}
-			finally
-			{
-				DB.close(rs, pstmt);				
-			}
 			StringBuilder info = new StringBuilder("Rows=");
 			info.append(rows);
 			if (rows == 0)
 			{
 				info.append(" - ").append(m_SQL_Count);
 			}					
-			//postgresql need trx to use cursor based resultset
-			String trxName = m_virtual ? Trx.createTrxName("Loader") : null;
-			trx  = trxName != null ? Trx.get(trxName, true) : null;
 			//	open Statement (closed by Loader.close)
 			try
 			{
-				m_pstmt = DB.prepareStatement(m_SQL, trxName);
+				m_pstmt = DB.prepareStatement(m_SQL, null);
 				if (maxRows > 0 && rows > maxRows)
 				{
 					m_pstmt.setMaxRows(maxRows);
 					info.append(" - MaxRows=").append(maxRows);
 					rows = maxRows;
 				}
-				//ensure not all row is fectch into memory for virtual table
-				if (m_virtual)
-					m_pstmt.setFetchSize(100);
 				setParameter (m_pstmt, false);
 				m_rs = m_pstmt.executeQuery();
 			}
@@ -3490,9 +3562,140 @@ public class GridTable extends AbstractTableModel
 				return 0;
 			}
 			log.debug(info.toString());
+			m_rowsToLoad = rows;
 			return rows;
 		}	//	open
 
+		/**
+		 * Paged mode: loads the first keys page directly into <code>m_sort</code>.
+		 * The row count and the other keys are loaded by {@link #run()}.
+		 *
+		 * @param maxRows maximum number of rows or 0 for all
+		 * @return number of keys loaded so far
+		 */
+		private int openPaged(final int maxRows)
+		{
+			m_pagedMaxRows = maxRows;
+			final String keyColumnNameFQ = m_tableName + "." + getKeyColumnName();
+			final String orderByClause = m_sortOrderClauseOverride != null ? m_sortOrderClauseOverride : m_orderClause;
+			m_keysPager = new GridTableKeysPager(GridTableKeysetPaging.of(keyColumnNameFQ, orderByClause), maxRows)
+			{
+				@Override
+				protected String createSelectSql(final String selectColumnsSql, final String whereClauseAfter)
+				{
+					return createSelectSqlFromCountSql(selectColumnsSql, whereClauseAfter);
+				}
+
+				@Override
+				protected List<Object[]> retrieveRows(final String sql, final List<Object> sqlParams, final int columnsCount) throws SQLException
+				{
+					return retrieveKeysPageRows(sql, sqlParams, columnsCount);
+				}
+			};
+
+			try
+			{
+				loadKeysPage(KEYS_FIRST_PAGE_SIZE);
+			}
+			catch (SQLException e)
+			{
+				log.error("Failed loading the keys: " + m_keysPager, e);
+				return 0;
+			}
+
+			log.debug("Keys loaded: " + m_keysPager);
+			return m_keysPager.getKeysLoaded();
+		}
+
+		/**
+		 * Paged mode: loads the next keys page and adds it to <code>m_sort</code>.
+		 * If keyset paging fails, the page is loaded again using OFFSET paging (see {@link GridTableKeysPager#loadNextPage(int)}).
+		 *
+		 * @param pageSize how many keys to load
+		 */
+		private void loadKeysPage(final int pageSize) throws SQLException
+		{
+			for (final int recordId : m_keysPager.loadNextPage(pageSize))
+			{
+				m_sort.add(new MSort(recordId, null));
+			}
+		}
+
+		private List<Object[]> retrieveKeysPageRows(final String sql, final List<Object> sqlParams, final int columnsCount) throws SQLException
+		{
+			final List<Object[]> rows = new ArrayList<>();
+			PreparedStatement pstmt = null;
+			ResultSet rs = null;
+			try
+			{
+				pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+				for (int i = 0; i < sqlParams.size(); i++)
+				{
+					pstmt.setObject(i + 1, sqlParams.get(i));
+				}
+				rs = pstmt.executeQuery();
+				while (rs.next())
+				{
+					final Object[] row = new Object[columnsCount];
+					row[0] = rs.getInt(1);
+					for (int i = 1; i < columnsCount; i++)
+					{
+						row[i] = rs.getObject(i + 1);
+					}
+					rows.add(row);
+				}
+			}
+			finally
+			{
+				DB.close(rs, pstmt);
+			}
+			return rows;
+		}
+
+		/**
+		 * @return true if {@link #run()} has to be called (i.e. there are rows which were not loaded by {@link #open(int, MQuery)})
+		 */
+		public boolean hasRowsToLoad()
+		{
+			if (m_virtual)
+			{
+				return m_keysPager != null && m_keysPager.hasMoreKeys();
+			}
+			return m_rs != null && m_rowsToLoad > 0;
+		}
+
+		/**
+		 * @return rows count or -1 in case of failure
+		 */
+		private int queryRowsCount()
+		{
+			int rows = 0;
+			PreparedStatement pstmt = null;
+			ResultSet rs = null;			
+			try
+			{
+				pstmt = DB.prepareStatement(m_SQL_Count, null);
+				setParameter (pstmt, true);
+				rs = pstmt.executeQuery();
+				if (rs.next())
+					rows = rs.getInt(1);
+			}
+			catch (SQLException e0)
+			{
+				//	Zoom Query may have invalid where clause
+				if (DBException.isInvalidIdentifierError(e0))
+					log.warn("Count - " + e0.getLocalizedMessage() + "\nSQL=" + m_SQL_Count);
+				else
+					log.error("Count SQL=" + m_SQL_Count, e0);
+				return -1;
+			}
+			finally
+			{
+				DB.close(rs, pstmt);				
+			}
+			return rows;
+		}
+
 		/**
 		 *	Close RS and Statement
 		 */
@@ -3502,11 +3705,6 @@ public class GridTable extends AbstractTableModel
 			DB.close(m_rs, m_pstmt);
 			m_rs = null;
 			m_pstmt = null;
-			if (trx != null)
-			{
-				trx.close();
-				trx = null;
-			}
 		}	//	close
 
 		/**
@@ -3516,6 +3714,11 @@ public class GridTable extends AbstractTableModel
 		public void run()
 		{
 			log.info("");
+			if (m_virtual)
+			{
+				runPaged();
+				return;
+			}
 			if (m_rs == null)
 				return;
 
@@ -3530,20 +3733,10 @@ public class GridTable extends AbstractTableModel
 						return;
 					}
 					//  Get Data
-					int recordId = 0;
-					Object[] rowData = null;
-					if (m_virtual)
-						recordId = m_rs.getInt(getKeyColumnName());
-					else
-						rowData = readData(m_rs);
+					final Object[] rowData = readData(m_rs);
 					//	add Data
-					MSort sort = m_virtual
-						? new MSort(recordId, null)
-						: new MSort(m_buffer.size(), null);	//	index
-					if (!m_virtual)
-					{
-						m_buffer.add(rowData);
-					}
+					final MSort sort = new MSort(m_buffer.size(), null);	//	index
+					m_buffer.add(rowData);
 					m_sort.add(sort);
 
 					//	Statement all 1000 rows & sleep
@@ -3599,6 +3792,83 @@ public class GridTable extends AbstractTableModel
 			fireDataStatusIEvent("", "");
 		}	//	run
 
+		/**
+		 * Paged mode: counts the rows and loads the remaining keys.
+		 */
+		private void runPaged()
+		{
+			//	Get Number of Rows (so the user sees the right count before all keys are loaded)
+			final int rows = queryRowsCount();
+			if (this.isInterrupted())
+			{
+				log.debug("Interrupted");
+				return;
+			}
+			if (rows >= 0)
+			{
+				publishRowCount(m_pagedMaxRows > 0 ? Math.min(rows, m_pagedMaxRows) : rows);
+			}
+
+			try
+			{
+				while (m_keysPager.hasMoreKeys())
+				{
+					if (this.isInterrupted())
+					{
+						log.debug("Interrupted");
+						return;
+					}
+
+					loadKeysPage(KEYS_PAGE_SIZE);
+
+					DataStatusEvent evt = createDSE();
+					evt.setLoading(m_sort.size());
+					fireDataStatusChanged(evt);
+				}
+			}
+			catch (SQLException e)
+			{
+				log.error("Failed loading the keys: " + m_keysPager, e);
+			}
+
+			// The row count might be different because records were created/deleted meanwhile
+			publishRowCount(-1);
+
+			fireDataStatusIEvent("", "");
+		}
+
+		/**
+		 * Paged mode: sets the row count in the event dispatch thread and informs the table model listeners.
+		 *
+		 * @param rowsLoaded row count or -1 to use the number of the loaded keys
+		 */
+		private void publishRowCount(final int rowsLoaded)
+		{
+			SwingUtilities.invokeLater(() -> {
+				if (m_loader != this || !m_open)
+				{
+					return; // table was closed, sorted or refreshed meanwhile
+				}
+
+				final int rowCountOld = m_rowCount;
+				final int rowCountNew = rowsLoaded < 0 ? m_sort.size() : rowsLoaded + (m_inserting ? 1 : 0);
+				if (rowCountNew == rowCountOld)
+				{
+					return;
+				}
+
+				m_rowCount = rowCountNew;
+				if (rowCountNew > rowCountOld)
+				{
+					fireTableRowsInserted(rowCountOld, rowCountNew - 1);
+				}
+				else
+				{
+					fireTableRowsDeleted(rowCountNew, rowCountOld - 1);
+				}
+			});
+		}
+
 		/**
 		 *	Set Parameter for Query.
 		 *		elements must be Integer, BigDecimal, String (default)
@@ -4129,6 +4399,10 @@ public class GridTable extends AbstractTableModel
 			return true;
 		}
 
+		if (m_virtual) {
+			verifyVirtual();
+		}
+
 		// create m_SQL and m_countSQL
 		createSelectSql(oneRow);
 		if (m_SQL == null || m_SQL.equals("")) {
@@ -4137,11 +4411,14 @@ public class GridTable extends AbstractTableModel
 		}
 
 		// Start Loading
+		m_pageCache.clear();
+		m_sortOrderClauseOverride = null;
+		m_sort = new ArrayList<MSort>(100); // in paged mode, the loader is adding the first keys directly on open
 		m_loader = new Loader();
 		m_rowCount = m_loader.open(maxRows, query);
-		m_buffer = new ArrayList<Object[]>(m_rowCount + 10);
-		m_sort = new ArrayList<MSort>(m_rowCount + 10);
-		if (m_rowCount > 0)
+		m_buffer = new ArrayList<Object[]>(m_virtual ? 0 : m_rowCount + 10);
+		m_sort.ensureCapacity(m_rowCount + 10);
+		if (m_loader.hasRowsToLoad())
 			m_loader.start();
 		else
 			m_loader.close();
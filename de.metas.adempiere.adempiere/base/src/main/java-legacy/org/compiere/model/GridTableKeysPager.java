@@ -0,0 +1,184 @@
+package org.compiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.util.Check;
+import org.slf4j.Logger;
+
+import de.metas.logging.LogManager;
+
+/**
+ * Loads the keys of a {@link GridTable} in paged mode, page by page, using {@link GridTableKeysetPaging}.
+ * <p>
+ * If a page cannot be loaded using keyset pagination (e.g. the ORDER BY values cannot be compared in the WHERE clause),
+ * it switches to OFFSET pagination and loads the page again, continuing after the keys which were already loaded.
+ * <p>
+ * The actual SQL is created and executed by the extending class.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */abstract class GridTableKeysPager
+{
+	private static final Logger logger = LogManager.getLogger(GridTableKeysPager.class);
+
+	private final int maxRows;
+	private GridTableKeysetPaging paging;
+
+	/** how many keys were loaded from database */
+	private int keysLoaded = 0;
+	private boolean hasMoreKeys = true;
+	/** ORDER BY values of the last loaded key */
+	private Object[] lastOrderByValues = null;
+	private int lastKey = -1;
+
+	/**
+	 * @param paging initial paging (usually keyset pagination)
+	 * @param maxRows maximum number of keys or 0 for all
+	 */
+	public GridTableKeysPager(final GridTableKeysetPaging paging, final int maxRows)
+	{
+		super();
+
+		Check.assumeNotNull(paging, "paging not null");
+		this.paging = paging;
+		this.maxRows = maxRows;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "GridTableKeysPager[keysLoaded=" + keysLoaded
+				+ ", hasMoreKeys=" + hasMoreKeys
+				+ ", maxRows=" + maxRows
+				+ ", " + paging
+				+ "]";
+	}
+
+	/**
+	 * @param selectColumnsSql columns to be selected
+	 * @param whereClauseAfter additional WHERE clause or null
+	 * @return SELECT ... FROM ... WHERE ... SQL, without ORDER BY
+	 */
+	protected abstract String createSelectSql(String selectColumnsSql, String whereClauseAfter);
+
+	/**
+	 * Executes given SQL.
+	 *
+	 * @param columnsCount how many columns to be fetched for each row
+	 * @return rows; the key (as {@link Number}) is the first value of each row
+	 */
+	protected abstract List<Object[]> retrieveRows(String sql, List<Object> sqlParams, int columnsCount) throws SQLException;
+
+	public GridTableKeysetPaging getPaging()
+	{
+		return paging;
+	}
+
+	public int getKeysLoaded()
+	{
+		return keysLoaded;
+	}
+
+	public boolean hasMoreKeys()
+	{
+		return hasMoreKeys;
+	}
+
+	/**
+	 * Loads the next keys page. If it fails while using keyset pagination, switches to OFFSET pagination and tries again.
+	 *
+	 * @param pageSize how many keys to load
+	 * @return keys of the loaded page
+	 */
+	public List<Integer> loadNextPage(final int pageSize) throws SQLException
+	{
+		try
+		{
+			return loadNextPage0(pageSize);
+		}
+		catch (final SQLException e)
+		{
+			if (!paging.isKeyset())
+			{
+				throw e;
+			}
+
+			logger.warn("Failed loading the keys using keyset paging. Retrying with OFFSET paging: " + this, e);
+			paging = paging.toOffsetPaging();
+			return loadNextPage0(pageSize);
+		}
+	}
+
+	private List<Integer> loadNextPage0(final int pageSize) throws SQLException
+	{
+		final int limit = maxRows > 0 ? Math.min(pageSize, maxRows - keysLoaded) : pageSize;
+		if (limit <= 0)
+		{
+			hasMoreKeys = false;
+			return new ArrayList<>();
+		}
+
+		final List<Object> sqlParams = new ArrayList<>();
+		final String whereClauseAfter;
+		if (keysLoaded > 0 && paging.isKeyset())
+		{
+			whereClauseAfter = paging.getWhereClauseAfter(lastOrderByValues, lastKey, sqlParams);
+		}
+		else
+		{
+			whereClauseAfter = null;
+		}
+
+		final StringBuilder sql = new StringBuilder(createSelectSql(paging.getSelectColumnsSql(), whereClauseAfter))
+				.append(" ORDER BY ").append(paging.getOrderBySql())
+				.append(" LIMIT ").append(limit);
+		if (keysLoaded > 0 && !paging.isKeyset())
+		{
+			sql.append(" OFFSET ").append(keysLoaded);
+		}
+
+		final int orderByValuesCount = paging.getOrderByValuesCount();
+		final List<Object[]> rows = retrieveRows(sql.toString(), sqlParams, 1 + orderByValuesCount);
+
+		final List<Integer> keys = new ArrayList<>(rows.size());
+		for (final Object[] row : rows)
+		{
+			final int key = ((Number)row[0]).intValue();
+			final Object[] orderByValues = new Object[orderByValuesCount];
+			System.arraycopy(row, 1, orderByValues, 0, orderByValuesCount);
+
+			keys.add(key);
+			lastKey = key;
+			lastOrderByValues = orderByValues;
+		}
+
+		keysLoaded += keys.size();
+		hasMoreKeys = keys.size() >= limit && (maxRows <= 0 || keysLoaded < maxRows);
+		return keys;
+	}
+}
@@ -0,0 +1,364 @@
+package org.compiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.adempiere.util.Check;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Builds the SQL parts which are needed to load the keys of a {@link GridTable} page by page, in the order of a given ORDER BY clause.
+ * <p>
+ * If the ORDER BY clause can be parsed, keyset pagination is used: the next page starts after the ORDER BY values and key of the last loaded row
+ * (see {@link #getWhereClauseAfter(Object[], int, List)}), so the database does not have to skip the previous rows.
+ * Else, OFFSET pagination is used.
+ * <p>
+ * The key column is always added as last ORDER BY item, so the order is deterministic.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class GridTableKeysetPaging
+{
+	/**
+	 * @param keyColumnNameFQ fully qualified key column name
+	 * @param orderByClause ORDER BY clause (without "ORDER BY"); might be empty
+	 */
+	public static final GridTableKeysetPaging of(final String keyColumnNameFQ, final String orderByClause)
+	{
+		final List<OrderByItem> orderByItems = parseOrderByClause(orderByClause);
+		return new GridTableKeysetPaging(keyColumnNameFQ, orderByClause, orderByItems);
+	}
+
+	/**
+	 * Same as {@link #of(String, String)} but always using OFFSET pagination (e.g. if the ORDER BY expressions cannot be used in the WHERE clause).
+	 */
+	public static final GridTableKeysetPaging ofOffsetPaging(final String keyColumnNameFQ, final String orderByClause)
+	{
+		return new GridTableKeysetPaging(keyColumnNameFQ, orderByClause, null);
+	}
+
+	private static final Pattern PATTERN_OrderByDirection = Pattern.compile("^(.+?)\\s+(ASC|DESC)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	private static final Pattern PATTERN_Unsupported = Pattern.compile("(^\\d+$)|(\\sNULLS\\s+(FIRST|LAST)$)", Pattern.CASE_INSENSITIVE);
+
+	private final String keyColumnNameFQ;
+	private final String orderByClause;
+	/** ORDER BY items or null if keyset pagination is not possible */
+	private final List<OrderByItem> orderByItems;
+
+	private GridTableKeysetPaging(final String keyColumnNameFQ, final String orderByClause, final List<OrderByItem> orderByItems)
+	{
+		super();
+
+		Check.assumeNotEmpty(keyColumnNameFQ, "keyColumnNameFQ not empty");
+		this.keyColumnNameFQ = keyColumnNameFQ;
+		this.orderByClause = orderByClause == null ? "" : orderByClause.trim();
+		this.orderByItems = orderByItems;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "GridTableKeysetPaging[" + keyColumnNameFQ
+				+ ", orderBy=" + orderByClause
+				+ ", keyset=" + isKeyset()
+				+ "]";
+	}
+
+	/**
+	 * @return true if keyset pagination is used, false if OFFSET pagination is used
+	 */
+	public boolean isKeyset()
+	{
+		return orderByItems != null;
+	}
+
+	/**
+	 * @return same paging, but using OFFSET pagination
+	 */
+	public GridTableKeysetPaging toOffsetPaging()
+	{
+		if (!isKeyset())
+		{
+			return this;
+		}
+		return ofOffsetPaging(keyColumnNameFQ, orderByClause);
+	}
+
+	/**
+	 * @return columns to be selected: the key column first, followed by the ORDER BY expressions (keyset pagination only)
+	 */
+	public String getSelectColumnsSql()
+	{
+		final StringBuilder sql = new StringBuilder(keyColumnNameFQ);
+		for (final OrderByItem orderByItem : getOrderByItems())
+		{
+			sql.append(", ").append(orderByItem.getExpression());
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * @return how many ORDER BY values are selected after the key column (see {@link #getSelectColumnsSql()})
+	 */
+	public int getOrderByValuesCount()
+	{
+		return getOrderByItems().size();
+	}
+
+	private List<OrderByItem> getOrderByItems()
+	{
+		return orderByItems == null ? ImmutableList.<OrderByItem> of() : orderByItems;
+	}
+
+	/**
+	 * @return ORDER BY clause (without "ORDER BY") which includes the key column
+	 */
+	public String getOrderBySql()
+	{
+		if (orderByItems == null)
+		{
+			return orderByClause.isEmpty() ? keyColumnNameFQ : orderByClause + ", " + keyColumnNameFQ;
+		}
+
+		final StringBuilder sql = new StringBuilder();
+		for (final OrderByItem orderByItem : orderByItems)
+		{
+			sql.append(orderByItem.getExpression()).append(orderByItem.isAscending() ? " ASC" : " DESC").append(", ");
+		}
+		sql.append(keyColumnNameFQ);
+		return sql.toString();
+	}
+
+	/**
+	 * Creates the WHERE clause which selects the rows after the given one, in the order of {@link #getOrderBySql()}.
+	 * <p>
+	 * NULLs are considered as PostgreSQL sorts them by default: last for ascending and first for descending order.
+	 *
+	 * @param lastOrderByValues ORDER BY values of the last loaded row
+	 * @param lastKey key of the last loaded row
+	 * @param sqlParams SQL parameters will be added here
+	 * @return where clause
+	 */
+	public String getWhereClauseAfter(final Object[] lastOrderByValues, final int lastKey, final List<Object> sqlParams)
+	{
+		Check.assume(isKeyset(), "keyset pagination: {}", this);
+		Check.assume(lastOrderByValues != null && lastOrderByValues.length == orderByItems.size(), "valid lastOrderByValues: {}", lastOrderByValues);
+
+		final StringBuilder whereClause = new StringBuilder();
+		final StringBuilder equalsPrefix = new StringBuilder(); // previous ORDER BY items are equal
+		final List<Object> equalsPrefixParams = new ArrayList<>();
+		for (int i = 0; i <= orderByItems.size(); i++)
+		{
+			//
+			// Build the "after" condition for current item
+			final List<Object> afterParams = new ArrayList<>();
+			final String after;
+			if (i == orderByItems.size())
+			{
+				after = keyColumnNameFQ + ">?";
+				afterParams.add(lastKey);
+			}
+			else
+			{
+				after = orderByItems.get(i).getWhereClauseAfter(lastOrderByValues[i], afterParams);
+			}
+
+			// Append: (previous items are equal AND current item is after)
+			if (after != null)
+			{
+				if (whereClause.length() > 0)
+				{
+					whereClause.append(" OR ");
+				}
+				whereClause.append("(").append(equalsPrefix).append(after).append(")");
+				sqlParams.addAll(equalsPrefixParams);
+				sqlParams.addAll(afterParams);
+			}
+
+			// Add current item to the "previous items are equal" prefix
+			if (i < orderByItems.size())
+			{
+				equalsPrefix.append(orderByItems.get(i).getWhereClauseEquals(lastOrderByValues[i], equalsPrefixParams)).append(" AND ");
+			}
+		}
+
+		return whereClause.toString();
+	}
+
+	/**
+	 * @return ORDER BY items or null if given ORDER BY clause is not supported by keyset pagination
+	 */
+	/* package */static List<OrderByItem> parseOrderByClause(final String orderByClause)
+	{
+		if (orderByClause == null || orderByClause.trim().isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final ImmutableList.Builder<OrderByItem> orderByItems = ImmutableList.builder();
+		for (final String orderByItemStr : splitTopLevel(orderByClause))
+		{
+			final String orderByItemStrNorm = orderByItemStr.trim();
+
+			final String expression;
+			final boolean ascending;
+			final Matcher matcher = PATTERN_OrderByDirection.matcher(orderByItemStrNorm);
+			if (matcher.matches())
+			{
+				expression = matcher.group(1).trim();
+				ascending = "ASC".equalsIgnoreCase(matcher.group(2));
+			}
+			else
+			{
+				expression = orderByItemStrNorm;
+				ascending = true;
+			}
+
+			if (expression.isEmpty() || PATTERN_Unsupported.matcher(expression).find())
+			{
+				return null;
+			}
+			orderByItems.add(new OrderByItem(expression, ascending));
+		}
+		return orderByItems.build();
+	}
+
+	/**
+	 * Splits given SQL by commas which are not inside parenthesis or quotes.
+	 *
+	 * @return parts or null if the parenthesis or quotes are not balanced
+	 */
+	private static List<String> splitTopLevel(final String sql)
+	{
+		final List<String> parts = new ArrayList<>();
+		int depth = 0;
+		boolean inQuotes = false;
+		int partStart = 0;
+		for (int i = 0; i < sql.length(); i++)
+		{
+			final char ch = sql.charAt(i);
+			if (ch == '\'')
+			{
+				inQuotes = !inQuotes;
+			}
+			else if (inQuotes)
+			{
+				continue;
+			}
+			else if (ch == '(')
+			{
+				depth++;
+			}
+			else if (ch == ')')
+			{
+				depth--;
+			}
+			else if (ch == ',' && depth == 0)
+			{
+				parts.add(sql.substring(partStart, i));
+				partStart = i + 1;
+			}
+		}
+
+		if (depth != 0 || inQuotes)
+		{
+			return ImmutableList.of(""); // not supported
+		}
+
+		parts.add(sql.substring(partStart));
+		return parts;
+	}
+
+	/* package */static final class OrderByItem
+	{
+		private final String expression;
+		private final boolean ascending;
+
+		private OrderByItem(final String expression, final boolean ascending)
+		{
+			super();
+			this.expression = expression;
+			this.ascending = ascending;
+		}
+
+		@Override
+		public String toString()
+		{
+			return expression + (ascending ? " ASC" : " DESC");
+		}
+
+		public String getExpression()
+		{
+			return expression;
+		}
+
+		public boolean isAscending()
+		{
+			return ascending;
+		}
+
+		private String getWhereClauseEquals(final Object value, final List<Object> sqlParams)
+		{
+			if (value == null)
+			{
+				return "(" + expression + ") IS NULL";
+			}
+
+			sqlParams.add(value);
+			return "(" + expression + ")=?";
+		}
+
+		/**
+		 * @return where clause for values which are sorted after given value or null if there are no such values
+		 */
+		private String getWhereClauseAfter(final Object value, final List<Object> sqlParams)
+		{
+			if (ascending)
+			{
+				// NULLS LAST
+				if (value == null)
+				{
+					return null;
+				}
+				sqlParams.add(value);
+				return "((" + expression + ")>? OR (" + expression + ") IS NULL)";
+			}
+			else
+			{
+				// NULLS FIRST
+				if (value == null)
+				{
+					return "(" + expression + ") IS NOT NULL";
+				}
+				sqlParams.add(value);
+				return "(" + expression + ")<?";
+			}
+		}
+	}
+}
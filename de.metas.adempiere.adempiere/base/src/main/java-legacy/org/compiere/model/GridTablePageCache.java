@@ -0,0 +1,226 @@
+package org.compiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.adempiere.util.Check;
+
+/**
+ * Row data of a {@link GridTable} in paged mode, indexed by Record_ID.
+ * <p>
+ * The rows are loaded page by page. When a page is loaded, the pages which are too far from it (i.e. from the viewport) are evicted.
+ * <p>
+ * NOTE: not thread safe, shall be accessed only from the thread which is accessing the table model.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class GridTablePageCache
+{
+	/** Record_ID of the new row which was not saved yet */
+	public static final int NEW_ROW_RECORD_ID = -1;
+
+	private final int pageSize;
+	private final int maxPageDistance;
+
+	private final Map<Integer, Object[]> rowsByRecordId = new HashMap<>();
+	private final Map<Integer, Integer> pageNoByRecordId = new HashMap<>();
+	private final Map<Integer, Set<Integer>> recordIdsByPageNo = new HashMap<>();
+	private Object[] newRow = null;
+
+	/**
+	 * @param pageSize how many rows are in one page
+	 * @param maxPageDistance pages which are further than this from the last loaded page are evicted
+	 */
+	public GridTablePageCache(final int pageSize, final int maxPageDistance)
+	{
+		super();
+
+		Check.assume(pageSize > 0, "pageSize > 0");
+		Check.assume(maxPageDistance >= 0, "maxPageDistance >= 0");
+		this.pageSize = pageSize;
+		this.maxPageDistance = maxPageDistance;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "GridTablePageCache[pageSize=" + pageSize
+				+ ", maxPageDistance=" + maxPageDistance
+				+ ", pages=" + recordIdsByPageNo.size()
+				+ ", rows=" + rowsByRecordId.size()
+				+ "]";
+	}
+
+	public int getPageSize()
+	{
+		return pageSize;
+	}
+
+	/**
+	 * @param row row index
+	 * @return page number of given row index
+	 */
+	public int getPageNo(final int row)
+	{
+		return row / pageSize;
+	}
+
+	/**
+	 * @return cached row data or null
+	 */
+	public Object[] getRow(final int recordId)
+	{
+		if (recordId == NEW_ROW_RECORD_ID)
+		{
+			return newRow;
+		}
+		return rowsByRecordId.get(recordId);
+	}
+
+	/**
+	 * Sets the data of given record, in the page of given row index.
+	 */
+	public void putRow(final int recordId, final Object[] rowData, final int row)
+	{
+		if (recordId == NEW_ROW_RECORD_ID)
+		{
+			newRow = rowData;
+			return;
+		}
+
+		rowsByRecordId.put(recordId, rowData);
+		assignToPage(recordId, getPageNo(row));
+	}
+
+	/**
+	 * Adds the rows of a freshly loaded page and evicts the pages which are too far from it.
+	 */
+	public void putPage(final int pageNo, final Map<Integer, Object[]> rowsByRecordIdToAdd)
+	{
+		for (final Map.Entry<Integer, Object[]> e : rowsByRecordIdToAdd.entrySet())
+		{
+			final int recordId = e.getKey();
+			rowsByRecordId.put(recordId, e.getValue());
+			assignToPage(recordId, pageNo);
+		}
+
+		evictPagesFarFrom(pageNo);
+	}
+
+	private void assignToPage(final int recordId, final int pageNo)
+	{
+		final Integer pageNoOld = pageNoByRecordId.put(recordId, pageNo);
+		if (pageNoOld != null && pageNoOld != pageNo)
+		{
+			removeFromPage(recordId, pageNoOld);
+		}
+
+		Set<Integer> recordIds = recordIdsByPageNo.get(pageNo);
+		if (recordIds == null)
+		{
+			recordIds = new HashSet<>();
+			recordIdsByPageNo.put(pageNo, recordIds);
+		}
+		recordIds.add(recordId);
+	}
+
+	private void removeFromPage(final int recordId, final int pageNo)
+	{
+		final Set<Integer> recordIds = recordIdsByPageNo.get(pageNo);
+		if (recordIds == null)
+		{
+			return;
+		}
+
+		recordIds.remove(recordId);
+		if (recordIds.isEmpty())
+		{
+			recordIdsByPageNo.remove(pageNo);
+		}
+	}
+
+	private void evictPagesFarFrom(final int pageNo)
+	{
+		for (final Iterator<Map.Entry<Integer, Set<Integer>>> it = recordIdsByPageNo.entrySet().iterator(); it.hasNext();)
+		{
+			final Map.Entry<Integer, Set<Integer>> e = it.next();
+			if (Math.abs(e.getKey() - pageNo) <= maxPageDistance)
+			{
+				continue;
+			}
+
+			for (final Integer recordId : e.getValue())
+			{
+				rowsByRecordId.remove(recordId);
+				pageNoByRecordId.remove(recordId);
+			}
+			it.remove();
+		}
+	}
+
+	public void removeRow(final int recordId)
+	{
+		if (recordId == NEW_ROW_RECORD_ID)
+		{
+			newRow = null;
+			return;
+		}
+
+		rowsByRecordId.remove(recordId);
+		final Integer pageNo = pageNoByRecordId.remove(recordId);
+		if (pageNo != null)
+		{
+			removeFromPage(recordId, pageNo);
+		}
+	}
+
+	public void clear()
+	{
+		rowsByRecordId.clear();
+		pageNoByRecordId.clear();
+		recordIdsByPageNo.clear();
+		newRow = null;
+	}
+
+	/**
+	 * @return how many saved rows are cached
+	 */
+	public int getRowsCount()
+	{
+		return rowsByRecordId.size();
+	}
+
+	/**
+	 * @return how many pages are cached
+	 */
+	public int getPagesCount()
+	{
+		return recordIdsByPageNo.size();
+	}
+}
@@ -18,7 +18,10 @@ package org.compiere.model;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.swing.AbstractListModel;
@@ -539,6 +542,27 @@ public abstract class Lookup extends AbstractListModel
 		return get(evalCtx, key);
 	}	// getDirect
 
+	/**
+	 * Get Data Direct from Table for all given keys. Default implementation - calls {@link #getDirect(IValidationContext, Object, boolean, boolean)} for each key.
+	 *
+	 * @param evalCtx evaluation context to be used
+	 * @param keys keys
+	 * @return values indexed by key; keys which were not found are not included
+	 */
+	public Map<Object, NamePair> getDirectAll(final IValidationContext evalCtx, final Collection<?> keys)
+	{
+		final Map<Object, NamePair> values = new LinkedHashMap<>();
+		for (final Object key : keys)
+		{
+			final NamePair value = key == null ? null : getDirect(evalCtx, key, false, false);
+			if (value != null)
+			{
+				values.put(key, value);
+			}
+		}
+		return values;
+	}	// getDirectAll
+
 	/**
 	 *  Dispose - clear items w/o firing events
 	 */
@@ -20,13 +20,13 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -253,7 +253,6 @@ public final class MLookup extends Lookup implements Serializable
 		//
 		clear();
 		// m_lookup = null;
-		m_lookupDirect = null;
 		//
 		m_info = null;
 		//
@@ -782,21 +781,47 @@ public final class MLookup extends Lookup implements Serializable
 		return list;
 	}	// getData
 
-	/** Save getDirect last return value */
-	private Map<Object, NamePair> m_lookupDirect = null;
-	private Map<Object, NamePair> m_lookupDirectContextCache = null;
+	/**
+	 * Context cache keys (see {@link #createValidationKey(IValidationContext, MLookupInfo, Object)}) which were not found by getDirect.
+	 * The found values are not cached here but in the server-wide lookup display cache, which is shared by all lookups and invalidated when the records are changed.
+	 */
+	private final Set<Object> m_lookupDirectNotFound = ConcurrentHashMap.newKeySet();
 
 	/**
 	 * Get Data Direct from Table.
 	 *
 	 * @param evalCtx if {@code null} or {@link IValidationContext#NULL}, then this lookup's own {@code m_evalCtx} is used.
 	 * @param key key
-	 * @param saveInCache save in cache for r/w
-	 * @param cacheLocal cache locally for r/o
+	 * @param saveInCache not used
+	 * @param cacheLocal not used; the found values are always cached in the server-wide lookup display cache
 	 * @return value
 	 */
 	@Override
 	public NamePair getDirect(final IValidationContext evalCtx, final Object key, final boolean saveInCache, final boolean cacheLocal)
+	{
+		// Nothing to query
+		if (key == null)
+		{
+			return null;
+		}
+
+		final Map<Object, NamePair> directValues = getDirectAll(evalCtx, Collections.singleton(key));
+		final NamePair directValue = directValues.get(key);
+
+		log.debug("{} - Direct value: {}", new Object[] { m_info, directValue });
+
+		return directValue;
+	}	// getDirect
+
+	/**
+	 * Get Data Direct from Table for all given keys, using one query for all keys which are not already cached.
+	 *
+	 * @param evalCtx if {@code null} or {@link IValidationContext#NULL}, then this lookup's own {@code m_evalCtx} is used.
+	 * @param keys keys
+	 * @return values indexed by key; keys which were not found are not included
+	 */
+	@Override
+	public Map<Object, NamePair> getDirectAll(final IValidationContext evalCtx, final Collection<?> keys)
 	{
 		final IValidationContext evalCtxToUse;
 		if (evalCtx == null || IValidationContext.NULL == evalCtx)
@@ -809,83 +834,54 @@ public final class MLookup extends Lookup implements Serializable
 		}
 
 		// Nothing to query
-		if (key == null)
+		if (keys == null || keys.isEmpty())
 		{
-			return null;
+			return Collections.emptyMap();
 		}
 
 		//
-		// Check lookup direct cache
-		if (m_lookupDirect != null)		// Lookup cache
+		// Skip the keys which were already not found in this context
+		final Map<Object, Object> contextCacheKeys = new LinkedHashMap<>(keys.size());
+		for (final Object key : keys)
 		{
-			final NamePair directValue = m_lookupDirect.get(key);
-			if (directValue != null)
+			if (key == null || contextCacheKeys.containsKey(key))
 			{
-				return directValue;
+				continue;
 			}
-		}
 
-		final boolean useContextCache = true;
-		final Object contextCacheKey;
-		if (useContextCache)
-		{
-			contextCacheKey = createValidationKey(evalCtxToUse, getLookupInfo(), key);
-			if (m_lookupDirectContextCache != null)
+			final Object contextCacheKey = createValidationKey(evalCtxToUse, getLookupInfo(), key);
+			if (m_lookupDirectNotFound.contains(contextCacheKey))
 			{
-				if (m_lookupDirectContextCache.containsKey(contextCacheKey))
-				{
-					return m_lookupDirectContextCache.get(contextCacheKey);
-				}
-
-				// FIXME: here maybe we can implement some algo to expurge old values
+				continue;
 			}
+			contextCacheKeys.put(key, contextCacheKey);
 		}
-		else
+		if (contextCacheKeys.isEmpty())
 		{
-			contextCacheKey = null;
+			return Collections.emptyMap();
 		}
 
-		NamePair directValue = null;
+		final Map<Object, NamePair> directValues;
 		try
 		{
-			directValue = Services.get(ILookupDAO.class).retrieveLookupValue(evalCtxToUse, m_info, key);
+			directValues = Services.get(ILookupDAO.class).retrieveLookupValuesByKeys(evalCtxToUse, m_info, contextCacheKeys.keySet());
 		}
 		catch (Exception e)
 		{
-			log.error("Error getting direct value for key=" + key + " on " + m_info, e);
-			directValue = null;
-		}
-
-		log.debug("{} - Direct value: {}", new Object[] { m_info, directValue });
-
-		// Cache to R/W cache (m_lookup)
-		if (saveInCache && IValidationContext.DISABLED != evalCtx && directValue != null)
-		{
-			// FIXME: shall we add direct values to lookup data?
-			// m_lookup.put(directValue.getID(), directValue);
-			// m_hasInactive = true;
-		}
-
-		// Cache Local
-		if (cacheLocal && directValue != null)
-		{
-			if (m_lookupDirect == null)
-				m_lookupDirect = new HashMap<Object, NamePair>();
-			m_lookupDirect.put(key, directValue);
+			log.error("Error getting direct values for keys=" + contextCacheKeys.keySet() + " on " + m_info, e);
+			return Collections.emptyMap();
 		}
 
-		if (contextCacheKey != null)
+		for (final Map.Entry<Object, Object> keyAndContextCacheKey : contextCacheKeys.entrySet())
 		{
-			if (m_lookupDirectContextCache == null)
+			if (!directValues.containsKey(keyAndContextCacheKey.getKey()))
 			{
-				// FIXME: please note this is a HUGE memory consumer because nobody is reseting this cache
-				m_lookupDirectContextCache = new LinkedHashMap<Object, NamePair>();
+				m_lookupDirectNotFound.add(keyAndContextCacheKey.getValue());
 			}
-			m_lookupDirectContextCache.put(contextCacheKey, directValue);
 		}
 
-		return directValue;
-	}	// getDirect
+		return directValues;
+	}	// getDirectAll
 
 	/**
 	 * Get Zoom
@@ -1031,10 +1027,7 @@ public final class MLookup extends Lookup implements Serializable
 		// {
 		// m_lookup.clear();
 		// }
-		if (m_lookupDirect != null)
-		{
-			m_lookupDirect.clear();
-		}
+		m_lookupDirectNotFound.clear();
 	}
 
 	@Override
@@ -0,0 +1,226 @@
+package org.compiere.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.adempiere.util.Check;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Splitter;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Deduplicated set of TableName/Record_ID cache invalidation requests, which are applied (and broadcasted) together.
+ * <p>
+ * A table which shall be reset completely is kept as {@link CacheMgt#RECORD_ID_ALL} only.
+ * <p>
+ * The batch can be converted to/from a compact string like <code>C_BPartner=1,2,3;M_Product=-1</code>, to be sent as one event property.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class CacheInvalidationBatch
+{
+	private static final char SEPARATOR_Tables = ';';
+	private static final char SEPARATOR_TableName = '=';
+	private static final char SEPARATOR_RecordIds = ',';
+
+	/**
+	 * @param string string created by {@link #toEventString()}
+	 * @return batch; never <code>null</code>
+	 * @throws IllegalArgumentException if the string is not valid
+	 */
+	public static CacheInvalidationBatch fromEventString(final String string)
+	{
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		if (Check.isEmpty(string, true))
+		{
+			return batch;
+		}
+
+		for (final String tableString : Splitter.on(SEPARATOR_Tables).omitEmptyStrings().split(string))
+		{
+			final int idx = tableString.indexOf(SEPARATOR_TableName);
+			if (idx <= 0)
+			{
+				throw new IllegalArgumentException("Invalid cache invalidation batch: " + string);
+			}
+
+			final String tableName = tableString.substring(0, idx);
+			for (final String recordIdString : Splitter.on(SEPARATOR_RecordIds).omitEmptyStrings().trimResults().split(tableString.substring(idx + 1)))
+			{
+				batch.add(tableName, Integer.parseInt(recordIdString));
+			}
+		}
+		return batch;
+	}
+
+	/** TableName to Record_IDs (sorted, to have a predictable event string) */
+	private final Map<String, Set<Integer>> recordIdsByTableName = new LinkedHashMap<>();
+
+	public CacheInvalidationBatch()
+	{
+		super();
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("tables", recordIdsByTableName.size())
+				.add("records", size())
+				.toString();
+	}
+
+	/**
+	 * Adds a TableName/Record_ID invalidation request.
+	 *
+	 * @param recordId record or {@link CacheMgt#RECORD_ID_ALL} to reset the whole table
+	 */
+	public synchronized void add(final String tableName, final int recordId)
+	{
+		Check.assumeNotEmpty(tableName, "tableName not empty");
+
+		final Set<Integer> recordIds = recordIdsByTableName.computeIfAbsent(tableName, k -> new TreeSet<>());
+		if (isAllRecords(recordIds))
+		{
+			return;
+		}
+		if (recordId < 0)
+		{
+			recordIds.clear();
+			recordIds.add(CacheMgt.RECORD_ID_ALL);
+			return;
+		}
+		recordIds.add(recordId);
+	}
+
+	/**
+	 * Moves all requests to a new batch, so this batch is empty afterwards.
+	 *
+	 * @return new batch with the requests of this batch
+	 */
+	public synchronized CacheInvalidationBatch drain()
+	{
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		batch.recordIdsByTableName.putAll(recordIdsByTableName);
+		recordIdsByTableName.clear();
+		return batch;
+	}
+
+	/**
+	 * Converts the requests of tables with more than the given number of records to one table-wide reset.
+	 *
+	 * @param maxRecordsPerTable threshold; if less or equal zero, nothing is collapsed
+	 */
+	public synchronized void collapseToTableResetAbove(final int maxRecordsPerTable)
+	{
+		if (maxRecordsPerTable <= 0)
+		{
+			return;
+		}
+
+		for (final Set<Integer> recordIds : recordIdsByTableName.values())
+		{
+			if (recordIds.size() > maxRecordsPerTable)
+			{
+				recordIds.clear();
+				recordIds.add(CacheMgt.RECORD_ID_ALL);
+			}
+		}
+	}
+
+	/**
+	 * @return a new batch which contains only the given tables
+	 */
+	public synchronized CacheInvalidationBatch retainTableNames(final Set<String> tableNames)
+	{
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		recordIdsByTableName.forEach((tableName, recordIds) -> {
+			if (tableNames.contains(tableName))
+			{
+				batch.recordIdsByTableName.put(tableName, new TreeSet<>(recordIds));
+			}
+		});
+		return batch;
+	}
+
+	public synchronized boolean isEmpty()
+	{
+		return recordIdsByTableName.isEmpty();
+	}
+
+	/**
+	 * @return number of TableName/Record_ID requests; a table-wide reset counts as one
+	 */
+	public synchronized int size()
+	{
+		return recordIdsByTableName.values().stream().mapToInt(Set::size).sum();
+	}
+
+	/**
+	 * @return TableName to Record_IDs; a table-wide reset is a set which contains only {@link CacheMgt#RECORD_ID_ALL}
+	 */
+	public synchronized Map<String, Set<Integer>> getRecordIdsByTableName()
+	{
+		final Map<String, Set<Integer>> copy = new LinkedHashMap<>();
+		recordIdsByTableName.forEach((tableName, recordIds) -> copy.put(tableName, Collections.unmodifiableSet(new TreeSet<>(recordIds))));
+		return Collections.unmodifiableMap(copy);
+	}
+
+	/**
+	 * @return compact string which can be parsed by {@link #fromEventString(String)}
+	 */
+	public synchronized String toEventString()
+	{
+		final StringBuilder sb = new StringBuilder();
+		recordIdsByTableName.forEach((tableName, recordIds) -> {
+			if (sb.length() > 0)
+			{
+				sb.append(SEPARATOR_Tables);
+			}
+			sb.append(tableName).append(SEPARATOR_TableName);
+
+			boolean first = true;
+			for (final Integer recordId : recordIds)
+			{
+				if (!first)
+				{
+					sb.append(SEPARATOR_RecordIds);
+				}
+				sb.append(recordId);
+				first = false;
+			}
+		});
+		return sb.toString();
+	}
+
+	private static boolean isAllRecords(final Set<Integer> recordIds)
+	{
+		return recordIds.size() == 1 && recordIds.contains(CacheMgt.RECORD_ID_ALL);
+	}
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.adempiere.ad.trx.api.ITrx;
@@ -28,6 +29,7 @@ import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
 import org.adempiere.ad.trx.spi.ITrxListener;
 import org.adempiere.ad.trx.spi.TrxListenerAdapter;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
 import org.adempiere.util.WeakList;
@@ -35,8 +37,6 @@ import org.adempiere.util.jmx.JMXRegistry;
 import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
 import org.adempiere.util.lang.EqualsBuilder;
 import org.adempiere.util.lang.HashcodeBuilder;
-import org.adempiere.util.lang.ITableRecordReference;
-import org.adempiere.util.lang.impl.TableRecordReference;
 import org.slf4j.Logger;
 
 import com.google.common.base.MoreObjects;
@@ -273,6 +273,30 @@ public final class CacheMgt
 		return RemoteCacheInvalidationHandler.instance.getTableNamesToBroadcast();
 	}
 
+	/** @return how many cache invalidation messages were broadcasted by this node */
+	public long getRemoteCacheInvalidationMessagesSentCount()
+	{
+		return RemoteCacheInvalidationHandler.instance.getMessagesSentCount();
+	}
+
+	/** @return how many TableName/Record_ID invalidation requests were broadcasted by this node */
+	public long getRemoteCacheInvalidationRecordsSentCount()
+	{
+		return RemoteCacheInvalidationHandler.instance.getRecordsSentCount();
+	}
+
+	/** @return how many cache invalidation messages were received from other nodes */
+	public long getRemoteCacheInvalidationMessagesReceivedCount()
+	{
+		return RemoteCacheInvalidationHandler.instance.getMessagesReceivedCount();
+	}
+
+	/** @return how many local cache entries were invalidated because of messages from other nodes */
+	public long getRemoteCacheInvalidationRecordsInvalidatedCount()
+	{
+		return RemoteCacheInvalidationHandler.instance.getRecordsInvalidatedCount();
+	}
+
 	/**
 	 * Invalidate ALL cached entries of all registered {@link CacheInterface}s.
 	 * 
@@ -376,6 +400,27 @@ public final class CacheMgt
 			return reset();
 		}
 
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		batch.add(tableName, recordId < 0 ? RECORD_ID_ALL : recordId);
+		return reset(batch, broadcast);
+	}
+
+	/**
+	 * Invalidate all cached entries for given TableName/Record_ID requests, checking each registered cache instance only once.
+	 * 
+	 * @param batch
+	 * @param broadcast true if we shall also broadcast this remotely (one event per table).
+	 * @return how many cache entries were invalidated
+	 */
+	private final int reset(final CacheInvalidationBatch batch, final boolean broadcast)
+	{
+		if (batch.isEmpty())
+		{
+			return 0;
+		}
+
+		final Map<String, Set<Integer>> recordIdsByTableName = batch.getRecordIdsByTableName();
+
 		cacheInstancesLock.lock();
 		try
 		{
@@ -383,8 +428,9 @@ public final class CacheMgt
 			int total = 0;
 
 			//
-			// Invalidate local caches if we have at least one cache interface about our table
-			if (tableNames.containsKey(tableName))
+			// Invalidate local caches if we have at least one cache interface about our tables
+			final boolean haveLocalCaches = recordIdsByTableName.keySet().stream().anyMatch(tableNames::containsKey);
+			if (haveLocalCaches)
 			{
 				for (final CacheInterface cacheInstance : cacheInstances)
 				{
@@ -398,24 +444,29 @@ public final class CacheMgt
 						// inside checks if table matches OR if it's cache name starts with given table name.
 						// A total fucked up, not performant.
 						// FIXME at least we shall use ConcurrentSkipListMap and prepare the steps to switch to some well known cache frameworks.
-						final ITableAwareCacheInterface recordsCache = (ITableAwareCacheInterface)cacheInstance;
-						final int itemsRemoved = recordsCache.resetForRecordId(tableName, recordId);
+						final int itemsRemoved = resetForRecordIds((ITableAwareCacheInterface)cacheInstance, recordIdsByTableName);
 						if (itemsRemoved > 0)
 						{
-							log.debug("Rest cache instance for {}/{}: {}", tableName, recordId, cacheInstance);
+							log.debug("Rest cache instance for {}: {}", batch, cacheInstance);
 							total += itemsRemoved;
 							counter++;
 						}
 					}
 					else if (cacheInstance instanceof ITableAwareCacheInterface)
 					{
-						if (tableName.equals(((ITableAwareCacheInterface)cacheInstance).getTableName()))
+						final ITableAwareCacheInterface recordsCache = (ITableAwareCacheInterface)cacheInstance;
+						final String cacheTableName = recordsCache.getTableName();
+						final Set<Integer> recordIds = cacheTableName == null ? null : recordIdsByTableName.get(cacheTableName);
+						if (recordIds != null)
 						{
-							final ITableAwareCacheInterface recordsCache = (ITableAwareCacheInterface)cacheInstance;
-							final int itemsRemoved = recordsCache.resetForRecordId(tableName, recordId);
+							int itemsRemoved = 0;
+							for (final Integer recordId : recordIds)
+							{
+								itemsRemoved += recordsCache.resetForRecordId(cacheTableName, recordId);
+							}
 							if (itemsRemoved > 0)
 							{
-								log.debug("Rest cache instance for {}/{}: {}", tableName, recordId, cacheInstance);
+								log.debug("Rest cache instance for {}: {}", batch, cacheInstance);
 								total += itemsRemoved;
 								counter++;
 							}
@@ -430,14 +481,14 @@ public final class CacheMgt
 				}
 			}
 			//
-			log.debug("Reset {}: {} cache interfaces checked ({} records invalidated)", tableName, counter, total);
+			log.debug("Reset {}: {} cache interfaces checked ({} records invalidated)", batch, counter, total);
 
 			//
 			// Broadcast cache invalidation.
 			// We do this, even if we don't have any cache interface registered locally, because there might be remotely.
 			if (broadcast)
 			{
-				RemoteCacheInvalidationHandler.instance.postEvent(tableName, recordId);
+				RemoteCacheInvalidationHandler.instance.postEvent(batch);
 			}
 
 			return total;
@@ -446,6 +497,20 @@ public final class CacheMgt
 		{
 			cacheInstancesLock.unlock();
 		}
+	}
+
+	private static int resetForRecordIds(final ITableAwareCacheInterface cache, final Map<String, Set<Integer>> recordIdsByTableName)
+	{
+		int itemsRemoved = 0;
+		for (final Map.Entry<String, Set<Integer>> tableNameAndRecordIds : recordIdsByTableName.entrySet())
+		{
+			final String tableName = tableNameAndRecordIds.getKey();
+			for (final Integer recordId : tableNameAndRecordIds.getValue())
+			{
+				itemsRemoved += cache.resetForRecordId(tableName, recordId);
+			}
+		}
+		return itemsRemoved;
 	}	// reset
 
 	/**
@@ -662,10 +727,17 @@ public final class CacheMgt
 				.build();
 		private static final String EVENT_PROPERTY_TableName = "TableName";
 		private static final String EVENT_PROPERTY_Record_ID = "Record_ID";
+		/** TableName/Record_IDs of a whole batch, see {@link CacheInvalidationBatch#toEventString()} */
+		private static final String EVENT_PROPERTY_Records = "Records";
 
 		private boolean _initalized = false;
 		private final Set<String> tableNamesToBroadcast = Sets.newConcurrentHashSet();
 
+		private final AtomicLong countMessagesSent = new AtomicLong(0);
+		private final AtomicLong countMessagesReceived = new AtomicLong(0);
+		private final AtomicLong countRecordsSent = new AtomicLong(0);
+		private final AtomicLong countRecordsInvalidated = new AtomicLong(0);
+
 		private RemoteCacheInvalidationHandler()
 		{
 			super();
@@ -712,12 +784,15 @@ public final class CacheMgt
 		}
 
 		/**
-		 * Broadcast a cache invalidation request.
+		 * Broadcast the cache invalidation requests of given batch (only those of the tables to broadcast), as one event per table.
+		 * <p>
+		 * Besides the {@value #EVENT_PROPERTY_Records} property, each event also carries the {@value #EVENT_PROPERTY_TableName}/{@value #EVENT_PROPERTY_Record_ID} properties,
+		 * so nodes which were not updated yet (and which only know those) still invalidate their caches.
+		 * If more than one record of a table was changed, such nodes get {@link CacheMgt#RECORD_ID_ALL} and reset the whole table.
 		 * 
-		 * @param tableName
-		 * @param recordId
+		 * @param batch
 		 */
-		public void postEvent(final String tableName, final int recordId)
+		public void postEvent(final CacheInvalidationBatch batch)
 		{
 			// Do nothing if cache invalidation broadcasting is not enabled
 			if (!isEnabled())
@@ -725,21 +800,32 @@ public final class CacheMgt
 				return;
 			}
 
-			// Do nothing if given table name is not in our table names to broadcast list
-			if (!tableNamesToBroadcast.contains(tableName))
+			// Do nothing if none of given table names is in our table names to broadcast list
+			final CacheInvalidationBatch batchToBroadcast = batch.retainTableNames(tableNamesToBroadcast);
+			if (batchToBroadcast.isEmpty())
 			{
 				return;
 			}
 
-			// Broadcast the event.
-			final Event event = Event.builder()
-					.putProperty(EVENT_PROPERTY_TableName, tableName)
-					.putProperty(EVENT_PROPERTY_Record_ID, recordId < 0 ? RECORD_ID_ALL : recordId)
-					.build();
-			Services.get(IEventBusFactory.class)
-					.getEventBus(TOPIC_CacheInvalidation)
-					.postEvent(event);
-			log.debug("Broadcasting cache invalidation of {}/{}, event={}", tableName, recordId, event);
+			// Broadcast one event per table.
+			final IEventBus eventBus = Services.get(IEventBusFactory.class).getEventBus(TOPIC_CacheInvalidation);
+			for (final Map.Entry<String, Set<Integer>> tableNameAndRecordIds : batchToBroadcast.getRecordIdsByTableName().entrySet())
+			{
+				final String tableName = tableNameAndRecordIds.getKey();
+				final Set<Integer> recordIds = tableNameAndRecordIds.getValue();
+				final int legacyRecordId = recordIds.size() == 1 ? recordIds.iterator().next() : RECORD_ID_ALL;
+
+				final Event event = Event.builder()
+						.putProperty(EVENT_PROPERTY_Records, batchToBroadcast.retainTableNames(ImmutableSet.of(tableName)).toEventString())
+						.putProperty(EVENT_PROPERTY_TableName, tableName)
+						.putProperty(EVENT_PROPERTY_Record_ID, legacyRecordId)
+						.build();
+				eventBus.postEvent(event);
+
+				countMessagesSent.incrementAndGet();
+				log.debug("Broadcasting cache invalidation of {}, event={}", tableName, event);
+			}
+			countRecordsSent.addAndGet(batchToBroadcast.size());
 		}
 
 		/**
@@ -755,29 +841,79 @@ public final class CacheMgt
 				return;
 			}
 
+			countMessagesReceived.incrementAndGet();
+
+			final CacheInvalidationBatch batch = extractBatch(event);
+			if (batch == null)
+			{
+				return;
+			}
+			// NOTE: we try to invalidate the local cache even if the tableName is not in our tableNames to broadcast list.
+
+			//
+			// Reset cache for all TableName/Record_IDs in one go
+			log.debug("Reseting cache for {} because we got remote event: {}", batch, event);
+			final boolean broadcast = false; // don't broadcast it anymore because else we would introduce recursion
+			final int itemsRemoved = CacheMgt.get().reset(batch, broadcast);
+			countRecordsInvalidated.addAndGet(itemsRemoved);
+		}
+
+		private static CacheInvalidationBatch extractBatch(final Event event)
+		{
 			//
-			// TableName
+			// Batch event (the TableName/Record_ID properties of such events are only for nodes which were not updated yet)
+			final String records = event.getProperty(EVENT_PROPERTY_Records);
+			if (records != null)
+			{
+				try
+				{
+					return CacheInvalidationBatch.fromEventString(records);
+				}
+				catch (final Exception e)
+				{
+					log.warn("Ignored event with invalid records: {}", event, e);
+					return null;
+				}
+			}
+
+			//
+			// Single TableName/Record_ID event (e.g. sent by nodes which were not updated yet)
 			final String tableName = event.getProperty(EVENT_PROPERTY_TableName);
 			if (Check.isEmpty(tableName, true))
 			{
 				log.debug("Ignored event without tableName set: {}", event);
-				return;
+				return null;
 			}
-			// NOTE: we try to invalidate the local cache even if the tableName is not in our tableNames to broadcast list.
 
-			//
-			// Record_ID
 			Integer recordId = event.getProperty(EVENT_PROPERTY_Record_ID);
 			if (recordId == null || recordId < 0)
 			{
 				recordId = RECORD_ID_ALL;
 			}
 
-			//
-			// Reset cache for TableName/Record_ID
-			log.debug("Reseting cache for {}/{} because we got remote event: {}", tableName, recordId, event);
-			final boolean broadcast = false; // don't broadcast it anymore because else we would introduce recursion
-			CacheMgt.get().reset(tableName, recordId, broadcast);
+			final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+			batch.add(tableName, recordId);
+			return batch;
+		}
+
+		public long getMessagesSentCount()
+		{
+			return countMessagesSent.get();
+		}
+
+		public long getMessagesReceivedCount()
+		{
+			return countMessagesReceived.get();
+		}
+
+		public long getRecordsSentCount()
+		{
+			return countRecordsSent.get();
+		}
+
+		public long getRecordsInvalidatedCount()
+		{
+			return countRecordsInvalidated.get();
 		}
 	}
 
@@ -803,6 +939,10 @@ public final class CacheMgt
 
 		private static final String TRX_PROPERTY = RecordsToResetOnTrxCommitCollector.class.getName();
 
+		/** If a transaction changed more records of one table than this, the whole table is reset instead (locally and remotely) */
+		private static final String SYSCONFIG_MaxRecordsToResetPerTable = "org.compiere.util.CacheMgt.ResetOnTrxCommit.MaxRecordsPerTable";
+		private static final int DEFAULT_MaxRecordsToResetPerTable = 1000;
+
 		/** Listens {@link ITrx}'s after-commit and fires enqueued cache invalidation requests */
 		private static final ITrxListener ResetCacheOnCommitTrxListener = new TrxListenerAdapter()
 		{
@@ -819,7 +959,7 @@ public final class CacheMgt
 			}
 		};
 
-		private final Set<ITableRecordReference> records = Sets.newConcurrentHashSet();
+		private final CacheInvalidationBatch records = new CacheInvalidationBatch();
 
 		/** Enqueues a record */
 		public final void addRecord(final String tableName, final int recordId)
@@ -832,13 +972,12 @@ public final class CacheMgt
 			{
 				return;
 			}
-			final TableRecordReference record = new TableRecordReference(tableName, recordId);
-			records.add(record);
+			records.add(tableName, recordId);
 
-			log.debug("Scheduled cache invalidation on transaction commit: {}", record);
+			log.debug("Scheduled cache invalidation on transaction commit: {}/{}", tableName, recordId);
 		}
 
-		/** Reset the cache for all enqueued records */
+		/** Reset the cache for all enqueued records, broadcasting them as one batch */
 		private void run()
 		{
 			if (records.isEmpty())
@@ -846,13 +985,14 @@ public final class CacheMgt
 				return;
 			}
 
-			final CacheMgt cacheMgt = CacheMgt.get();
-			for (final ITableRecordReference record : records)
-			{
-				cacheMgt.reset(record.getTableName(), record.getRecord_ID());
-			}
+			final CacheInvalidationBatch batch = records.drain();
+
+			// Mass updates: rather reset the whole table than checking each cache for each record
+			final int maxRecordsPerTable = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_MaxRecordsToResetPerTable, DEFAULT_MaxRecordsToResetPerTable);
+			batch.collapseToTableResetAbove(maxRecordsPerTable);
 
-			records.clear();
+			final boolean broadcast = true;
+			CacheMgt.get().reset(batch, broadcast);
 		}
 	}
 }
@@ -1,11 +1,13 @@
 package org.compiere.util;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import org.adempiere.util.jmx.IJMXNameAware;
 import org.slf4j.Logger;
 
+import de.metas.adempiere.util.cache.CacheInterceptor;
 import de.metas.logging.LogManager;
 
 /**
@@ -100,4 +102,40 @@ public class JMXCacheMgt implements JMXCacheMgtMBean, IJMXNameAware
 		return getCacheMgt().reset(tableName, recordId);
 	}
 
+	@Override
+	public long getRemoteCacheInvalidationMessagesSentCount()
+	{
+		return getCacheMgt().getRemoteCacheInvalidationMessagesSentCount();
+	}
+
+	@Override
+	public long getRemoteCacheInvalidationRecordsSentCount()
+	{
+		return getCacheMgt().getRemoteCacheInvalidationRecordsSentCount();
+	}
+
+	@Override
+	public long getRemoteCacheInvalidationMessagesReceivedCount()
+	{
+		return getCacheMgt().getRemoteCacheInvalidationMessagesReceivedCount();
+	}
+
+	@Override
+	public long getRemoteCacheInvalidationRecordsInvalidatedCount()
+	{
+		return getCacheMgt().getRemoteCacheInvalidationRecordsInvalidatedCount();
+	}
+
+	@Override
+	public String[] getCachedMethodsStatistics()
+	{
+		final List<String> statistics = CacheInterceptor.getCachedMethodsStatistics();
+		return statistics.toArray(new String[statistics.size()]);
+	}
+
+	@Override
+	public void resetCachedMethodsStatistics()
+	{
+		CacheInterceptor.resetCachedMethodsStatistics();
+	}
 }
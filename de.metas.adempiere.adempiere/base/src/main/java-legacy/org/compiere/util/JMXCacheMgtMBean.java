@@ -25,4 +25,19 @@ public interface JMXCacheMgtMBean
 	int resetForTable(String tableName);
 
 	int resetForRecordId(String tableName, int recordId);
+
+	long getRemoteCacheInvalidationMessagesSentCount();
+
+	long getRemoteCacheInvalidationRecordsSentCount();
+
+	long getRemoteCacheInvalidationMessagesReceivedCount();
+
+	long getRemoteCacheInvalidationRecordsInvalidatedCount();
+
+	/**
+	 * @return hits, misses and load time of each <code>@Cached</code> method
+	 */
+	String[] getCachedMethodsStatistics();
+
+	void resetCachedMethodsStatistics();
 }
@@ -51,12 +51,7 @@ public final class MSort implements Comparator, Serializable
 	{
 		index = new_index;
 		data = new_data;
-		// Create string collator for login language - teo_sarca, [ 1672820 ]
-		final Language language = Env.getLanguage(Env.getCtx());
-		if (language != null) // guarding against NPE (quick unit test fix)
-		{
-			m_collator = Collator.getInstance(language.getLocale());
-		}
+		// NOTE: the collator is created lazily (see getCollator()) because MSort instances are also used as plain row pointers
 	}	//	MSort
 
 	/** Direct access index */
@@ -70,6 +65,26 @@ public final class MSort implements Comparator, Serializable
 	/** String Collator */
 	private Collator m_collator = null;
 
+	/**
+	 * @return string collator for login language - teo_sarca, [ 1672820 ]
+	 */
+	private Collator getCollator()
+	{
+		if (m_collator == null)
+		{
+			final Language language = Env.getLanguage(Env.getCtx());
+			if (language != null) // guarding against NPE (quick unit test fix)
+			{
+				m_collator = Collator.getInstance(language.getLocale());
+			}
+			else
+			{
+				m_collator = Collator.getInstance();
+			}
+		}
+		return m_collator;
+	}
+
 	/**
 	 *	Sort Ascending
 	 *  @param ascending if true sort ascending
@@ -122,7 +137,7 @@ public final class MSort implements Comparator, Serializable
 		//	String
 		if (cmp1 instanceof String && cmp2 instanceof String)
 		{
-			return m_collator.compare(cmp1, cmp2) * m_multiplier; // teo_sarca [ 1672820 ]
+			return getCollator().compare(cmp1, cmp2) * m_multiplier; // teo_sarca [ 1672820 ]
 		}
 		//	Date
 		else if (cmp1 instanceof Timestamp && cmp2 instanceof Timestamp)
@@ -151,7 +166,7 @@ public final class MSort implements Comparator, Serializable
 
 		//  Convert to string value
 		String s = cmp1.toString();
-		return m_collator.compare(s, cmp2.toString()) * m_multiplier;  // teo_sarca [ 1672820 ]
+		return getCollator().compare(s, cmp2.toString()) * m_multiplier;  // teo_sarca [ 1672820 ]
 	}	//	compare
 
 	/**
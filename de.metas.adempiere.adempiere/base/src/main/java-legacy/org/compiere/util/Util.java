@@ -1071,7 +1071,7 @@ public class Util
 			}
 			if (other instanceof ArrayKey)
 			{
-				return Arrays.equals(this.array, ((ArrayKey)other).getArray());
+				return Arrays.equals(this.array, ((ArrayKey)other).array); // NOTE: don't use getArray() because it's copying the array
 			}
 			return false;
 		}
@@ -121,8 +121,11 @@ public class CacheCtxParamDescriptor implements ICachedMethodPartDescriptor
 			return;
 		}
 
-		final ArrayKey key = buildCacheKey(ctx);
-		keyBuilder.add(key);
+		// NOTE: same parts as buildCacheKey, but added directly to avoid creating a nested key on each call
+		keyBuilder.add(Env.getAD_Client_ID(ctx));
+		keyBuilder.add(Env.getAD_Role_ID(ctx));
+		keyBuilder.add(Env.getAD_User_ID(ctx));
+		keyBuilder.add(Env.getAD_Language(ctx));
 	}
 
 	private static final ArrayKey buildCacheKey(final Properties ctx)
@@ -26,10 +26,15 @@ package de.metas.adempiere.util.cache;
 import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.util.GuavaCollectors;
 import org.adempiere.util.Services;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.NullAutoCloseable;
@@ -133,8 +138,33 @@ class CacheInterceptor implements Serializable
 				}
 			});
 
+	/**
+	 * @return statistics (hits, misses, load time etc) of each cached method which was called so far
+	 */
+	public static final List<String> getCachedMethodsStatistics()
+	{
+		return cachedMethodsDescriptor.asMap()
+				.values()
+				.stream()
+				.sorted(Comparator.comparing(methodDescriptor -> methodDescriptor.getMethod().toString()))
+				.map(CachedMethodDescriptor::getStatisticsSummary)
+				.collect(GuavaCollectors.toImmutableList());
+	}
+
+	public static final void resetCachedMethodsStatistics()
+	{
+		cachedMethodsDescriptor.asMap()
+				.values()
+				.forEach(CachedMethodDescriptor::resetStatistics);
+	}
+
 	private static final CacheBuilder<Object, Object> _cacheStorageBuilder = CacheBuilder.newBuilder();
 	private final Cache<String, CCache<ArrayKey, Object>> _cacheStorage = _cacheStorageBuilder.build();
+	/**
+	 * Direct references to the {@link #_cacheStorage}'s method level caches, indexed by {@link CachedMethodDescriptor#getIndex()},
+	 * so that we don't have to look them up by cache name on each call.
+	 */
+	private volatile AtomicReferenceArray<CCache<ArrayKey, Object>> _cacheStorageByMethodIndex = new AtomicReferenceArray<>(256);
 
 	private static final String TRX_PROPERTY_CacheStorage = CacheInterceptor.class.getName() + ".CacheStorage";
 	private static final Supplier<Cache<String, CCache<ArrayKey, Object>>> TRX_PROPERTY_CacheStorageInitializer = new Supplier<Cache<String, CCache<ArrayKey, Object>>>()
@@ -201,16 +231,18 @@ class CacheInterceptor implements Serializable
 		final CacheKeyBuilder cacheKeyBuilder = methodDescriptor.createKeyBuilder(invCtx.getTarget(), invCtx.getParameters());
 		if (cacheKeyBuilder.isSkipCaching())
 		{
+			methodDescriptor.recordSkipped();
+
 			// Invoke the cached method directly
 			final Object result = invCtx.proceed();
 			return result;
 		}
 		
 		//
-		// Get the Cache Storage.
+		// Get the method level cache container (Method's parameters key -> cached value).
 		// In case the cache storage could not be retrieved, we are invoking the cached method directly (by-pass the cache).
-		final Cache<String, CCache<ArrayKey, Object>> cacheStorage = getCacheStorage(cacheKeyBuilder.getTrxName());
-		if (cacheStorage == null)
+		final CCache<ArrayKey, Object> methodCache = getMethodCache(methodDescriptor, cacheKeyBuilder.getTrxName());
+		if (methodCache == null)
 		{
 			final CacheGetException ex = new CacheGetException("Could not get the cache storage, maybe because transaction was not found"
 					+ "\n TrxName: " + cacheKeyBuilder.getTrxName()
@@ -225,28 +257,99 @@ class CacheInterceptor implements Serializable
 			return result;
 		}
 
-		//
-		// Get the method level cache container (Method's parameters key -> cached value) 
-		final ArrayKey cacheKey = cacheKeyBuilder.buildKey();
-		final CCache<ArrayKey, Object> methodCache = cacheStorage.get(methodDescriptor.getCacheName(), methodDescriptor.createCCacheCallable());
-
 		//
 		// Get method's cached value / update method's cached value
+		final ArrayKey cacheKey = cacheKeyBuilder.buildKey();
 		final Object cacheResult;
 		if (cacheKeyBuilder.isCacheReload())
 		{
-			cacheResult = invCtx.call();
+			methodDescriptor.recordReload();
+			cacheResult = callAndRecordLoadTime(invCtx, methodDescriptor);
 			methodCache.put(cacheKey, cacheResult);
 		}
 		else
 		{
-			cacheResult = methodCache.get(cacheKey, invCtx);
+			final Object cachedValue = methodCache.get(cacheKey);
+			if (cachedValue != null)
+			{
+				methodDescriptor.recordHit();
+				cacheResult = cachedValue;
+			}
+			else
+			{
+				methodDescriptor.recordMiss();
+				cacheResult = methodCache.getOrLoad(cacheKey, () -> callAndRecordLoadTime(invCtx, methodDescriptor));
+			}
 		}
 
 		// Unbox the NullResult and return the cached value
 		return cacheResult == IInvocationContext.NullResult ? null : cacheResult;
 	}
 
+	private static final Object callAndRecordLoadTime(final IInvocationContext invCtx, final CachedMethodDescriptor methodDescriptor) throws Exception
+	{
+		final long startNanos = System.nanoTime();
+		try
+		{
+			return invCtx.call();
+		}
+		finally
+		{
+			methodDescriptor.recordLoadTime(System.nanoTime() - startNanos);
+		}
+	}
+
+	/**
+	 * @return method level cache container or null if the cache storage was not found
+	 */
+	private final CCache<ArrayKey, Object> getMethodCache(final CachedMethodDescriptor methodDescriptor, final String trxName) throws ExecutionException
+	{
+		final Cache<String, CCache<ArrayKey, Object>> cacheStorage = getCacheStorage(trxName);
+		if (cacheStorage == null)
+		{
+			return null;
+		}
+		else if (cacheStorage == _cacheStorage)
+		{
+			final AtomicReferenceArray<CCache<ArrayKey, Object>> cacheStorageByMethodIndex = _cacheStorageByMethodIndex;
+			final int methodIndex = methodDescriptor.getIndex();
+			if (methodIndex < cacheStorageByMethodIndex.length())
+			{
+				final CCache<ArrayKey, Object> methodCache = cacheStorageByMethodIndex.get(methodIndex);
+				if (methodCache != null)
+				{
+					return methodCache;
+				}
+			}
+			return getMethodCacheFromLocalCacheStorage(methodDescriptor);
+		}
+		else
+		{
+			return cacheStorage.get(methodDescriptor.getCacheName(), methodDescriptor.createCCacheCallable());
+		}
+	}
+
+	private synchronized final CCache<ArrayKey, Object> getMethodCacheFromLocalCacheStorage(final CachedMethodDescriptor methodDescriptor) throws ExecutionException
+	{
+		final int methodIndex = methodDescriptor.getIndex();
+
+		AtomicReferenceArray<CCache<ArrayKey, Object>> cacheStorageByMethodIndex = _cacheStorageByMethodIndex;
+		if (methodIndex >= cacheStorageByMethodIndex.length())
+		{
+			final AtomicReferenceArray<CCache<ArrayKey, Object>> cacheStorageByMethodIndexNew = new AtomicReferenceArray<>(Math.max(cacheStorageByMethodIndex.length() * 2, methodIndex + 1));
+			for (int i = 0; i < cacheStorageByMethodIndex.length(); i++)
+			{
+				cacheStorageByMethodIndexNew.set(i, cacheStorageByMethodIndex.get(i));
+			}
+			cacheStorageByMethodIndex = cacheStorageByMethodIndexNew;
+			_cacheStorageByMethodIndex = cacheStorageByMethodIndexNew;
+		}
+
+		final CCache<ArrayKey, Object> methodCache = _cacheStorage.get(methodDescriptor.getCacheName(), methodDescriptor.createCCacheCallable());
+		cacheStorageByMethodIndex.set(methodIndex, methodCache);
+		return methodCache;
+	}
+
 	/**
 	 * @param trxName
 	 * @return cache storage or null if not found
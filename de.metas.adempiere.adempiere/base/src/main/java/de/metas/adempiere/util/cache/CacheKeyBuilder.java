@@ -23,8 +23,7 @@ package de.metas.adempiere.util.cache;
  */
 
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.adempiere.util.lang.ObjectUtils;
 import org.compiere.util.Util;
@@ -39,25 +38,49 @@ import org.compiere.util.Util.ArrayKey;
  */
 final class CacheKeyBuilder
 {
-	private final List<Object> keyParts = new ArrayList<>();
+	private Object[] keyParts;
+	private int keyPartsCount = 0;
 	private String trxName;
 	private boolean skipCaching;
 	private boolean cacheReload = false;
 
+	/**
+	 * @param keyPartsCapacity expected number of key parts; if it's exact, {@link #buildKey()} does not have to copy the key parts
+	 */
+	CacheKeyBuilder(final int keyPartsCapacity)
+	{
+		super();
+		keyParts = new Object[keyPartsCapacity > 0 ? keyPartsCapacity : 1];
+	}
+
 	@Override
 	public String toString()
 	{
 		return ObjectUtils.toString(this);
 	}
 
+	/**
+	 * Builds the key. After calling this method, no more key parts shall be added.
+	 */
 	public final ArrayKey buildKey()
 	{
-		return Util.mkKey(keyParts.toArray());
+		final Object[] keyPartsToUse = keyPartsCount == keyParts.length ? keyParts : Arrays.copyOf(keyParts, keyPartsCount);
+		return Util.mkKey(keyPartsToUse);
 	}
 
 	public void add(final Object keyPart)
 	{
-		keyParts.add(keyPart);
+		if (keyPartsCount >= keyParts.length)
+		{
+			keyParts = Arrays.copyOf(keyParts, keyParts.length * 2);
+		}
+		keyParts[keyPartsCount++] = keyPart;
+	}
+
+	/** @return number of key parts added so far */
+	public int size()
+	{
+		return keyPartsCount;
 	}
 
 	public void setTrxName(String trxName)
@@ -29,6 +29,9 @@ import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.adempiere.util.Check;
 import org.adempiere.util.lang.EqualsBuilder;
@@ -54,11 +57,33 @@ import de.metas.adempiere.util.CacheTrx;
 	private static final int DEFAULT_CacheInitialCapacity = 20;
 	private static final int DEFAULT_CacheExpireMinutes = 10;
 
+	private static final AtomicInteger NEXT_INDEX = new AtomicInteger(0);
+
+	private final int index;
 	private final Method method;
 	private final Cached cachedAnnotation;
 	private final boolean staticMethod;
 	private final String cacheName;
 	private final List<ICachedMethodPartDescriptor> descriptors;
+
+	/**
+	 * Method signature key part.
+	 * NOTE: avoid adding Class/Field/Method etc to key => would lead to ClassLoader(s) memory leaks/fucked-up
+	 */
+	private final String methodKeyPart;
+	/**
+	 * Number of key parts of the last built key, used to size the next key.
+	 * NOTE: not volatile on purpose: it's only a hint and we don't want to write a volatile field on each call
+	 */
+	private int keyPartsCountHint;
+
+	//
+	// Statistics
+	private final LongAdder hitsCount = new LongAdder();
+	private final LongAdder missesCount = new LongAdder();
+	private final LongAdder reloadsCount = new LongAdder();
+	private final LongAdder skippedCount = new LongAdder();
+	private final LongAdder loadTimeNanos = new LongAdder();
 	
 	private final Callable<CCache<ArrayKey, Object>> createCCacheCallable = new Callable<CCache<ArrayKey,Object>>()
 	{
@@ -80,6 +105,8 @@ import de.metas.adempiere.util.CacheTrx;
 		Check.assumeNotNull(cachedAnnotation, "cachedAnnotation not null"); // shall not happen if we reach this point
 
 		staticMethod = Modifier.isStatic(method.getModifiers());
+		index = NEXT_INDEX.getAndIncrement();
+		methodKeyPart = method.getDeclaringClass().getName() + "#" + method.getName() + "#" + method.getReturnType().getName();
 
 		cacheName = mkCacheName(cachedAnnotation);
 
@@ -167,6 +194,7 @@ import de.metas.adempiere.util.CacheTrx;
 		}
 
 		descriptors = descriptorsBuilder.build();
+		keyPartsCountHint = 1 + descriptors.size();
 	}
 
 	private static final String mkCacheName(final Cached annotation)
@@ -252,19 +280,23 @@ import de.metas.adempiere.util.CacheTrx;
 		return method;
 	}
 
+	/**
+	 * @return unique index of this descriptor (starting from zero), to be used for array based lookups
+	 */
+	public int getIndex()
+	{
+		return index;
+	}
+
 	public CacheKeyBuilder createKeyBuilder(final Object targetObject, final Object[] methodArgs)
 	{
-		final Class<?> methodDeclaringClass = method.getDeclaringClass();
-		final Object targetObjToUse = staticMethod ? methodDeclaringClass : targetObject;
+		final Object targetObjToUse = staticMethod ? method.getDeclaringClass() : targetObject;
 
-		final CacheKeyBuilder keyBuilder = new CacheKeyBuilder();
+		final CacheKeyBuilder keyBuilder = new CacheKeyBuilder(keyPartsCountHint);
 
 		//
 		// Key: Method signature
-		// NOTE: avoid adding Class/Field/Method etc to key => would lead to ClassLoader(s) memory leaks/fucked-up
-		keyBuilder.add(methodDeclaringClass.getName());
-		keyBuilder.add(method.getName());
-		keyBuilder.add(method.getReturnType().getName());
+		keyBuilder.add(methodKeyPart);
 
 		for (final ICachedMethodPartDescriptor descriptor : descriptors)
 		{
@@ -275,9 +307,74 @@ import de.metas.adempiere.util.CacheTrx;
 			}
 		}
 
+		final int keyPartsCount = keyBuilder.size();
+		if (keyPartsCountHint != keyPartsCount)
+		{
+			keyPartsCountHint = keyPartsCount;
+		}
+
 		return keyBuilder;
 	}
-	
+
+	public void recordHit()
+	{
+		hitsCount.increment();
+	}
+
+	public void recordMiss()
+	{
+		missesCount.increment();
+	}
+
+	public void recordReload()
+	{
+		reloadsCount.increment();
+	}
+
+	public void recordSkipped()
+	{
+		skippedCount.increment();
+	}
+
+	/**
+	 * @param nanos how long the cached method took to load the value
+	 */
+	public void recordLoadTime(final long nanos)
+	{
+		loadTimeNanos.add(nanos);
+	}
+
+	public void resetStatistics()
+	{
+		hitsCount.reset();
+		missesCount.reset();
+		reloadsCount.reset();
+		skippedCount.reset();
+		loadTimeNanos.reset();
+	}
+
+	/**
+	 * @return statistics summary: hits, misses, reloads, skipped calls and load time
+	 */
+	public String getStatisticsSummary()
+	{
+		final long hits = hitsCount.sum();
+		final long misses = missesCount.sum();
+		final long reloads = reloadsCount.sum();
+		final long loads = misses + reloads;
+		final long loadTimeMillis = TimeUnit.NANOSECONDS.toMillis(loadTimeNanos.sum());
+
+		return method.getDeclaringClass().getSimpleName() + "." + method.getName()
+				+ ": hits=" + hits
+				+ ", misses=" + misses
+				+ ", hitRatio=" + (hits + misses > 0 ? hits * 100 / (hits + misses) : 0) + "%"
+				+ ", reloads=" + reloads
+				+ ", skipped=" + skippedCount.sum()
+				+ ", loadTime=" + loadTimeMillis + "ms"
+				+ " (avg " + (loads > 0 ? loadTimeMillis / loads : 0) + "ms)"
+				+ ", cacheName=" + cacheName;
+	}
+
 	/**
 	 * Creates a new {@link CCache} based on given {@link CachedMethodDescriptor}.
 	 * 
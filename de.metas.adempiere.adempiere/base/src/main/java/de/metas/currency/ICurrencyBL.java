@@ -26,6 +26,7 @@ package de.metas.currency;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 
 import org.adempiere.util.ISingletonService;
@@ -107,6 +108,17 @@ public interface ICurrencyBL extends ISingletonService
 
 	ICurrencyConversionResult convert(ICurrencyConversionContext conversionCtx, BigDecimal Amt, int CurFrom_ID, int CurTo_ID);
 
+	/**
+	 * Convert many amounts which share the same conversion context and currencies. The conversion rate is looked up only once.
+	 *
+	 * @param conversionCtx
+	 * @param amounts amounts to be converted; <code>null</code> elements are not allowed
+	 * @param CurFrom_ID The C_Currency_ID FROM
+	 * @param CurTo_ID The C_Currency_ID TO
+	 * @return converted amounts, in the same order as the given amounts, or <code>null</code> if a rate was needed but there is none
+	 */
+	List<BigDecimal> convert(ICurrencyConversionContext conversionCtx, List<BigDecimal> amounts, int CurFrom_ID, int CurTo_ID);
+
 	/**
 	 * Get Currency Conversion Rate
 	 * 
@@ -0,0 +1,266 @@
+package de.metas.currency.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.util.Services;
+import org.compiere.model.I_C_Conversion_Rate;
+import org.compiere.util.CCache;
+import org.compiere.util.Env;
+import org.compiere.util.Util;
+import org.compiere.util.Util.ArrayKey;
+
+import de.metas.currency.ICurrencyConversionContext;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * In-memory index of {@link I_C_Conversion_Rate}s.
+ * <p>
+ * The rates of one AD_Client_ID, currency pair and conversion type are loaded on first use (one query) and kept in a {@link CCache},
+ * so they are invalidated whenever a C_Conversion_Rate is changed.
+ * A lookup picks the same rate as {@link CurrencyDAO#retrieveRateQuery(ICurrencyConversionContext, int, int)}:
+ * most specific AD_Client_ID, then most specific AD_Org_ID, then latest ValidFrom.
+ * Like in that query's <code>ValidTo &gt;= date</code> condition, rates without ValidTo are never matched.
+ * <p>
+ * The lookup statistics are published via JMX, see {@link JMXConversionRatesIndex}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class ConversionRatesIndex
+{
+	private final CCache<ArrayKey, ConversionRates> ratesByKey = new CCache<>(I_C_Conversion_Rate.Table_Name + "#by#AD_Client_ID#C_Currency_ID#C_Currency_ID_To#C_ConversionType_ID", 50, 0);
+
+	private final AtomicLong countLookups = new AtomicLong(0);
+	private final AtomicLong countLoads = new AtomicLong(0);
+	private final AtomicLong countNotFound = new AtomicLong(0);
+
+	/**
+	 * @return multiply rate or <code>null</code> if there is no valid rate
+	 */
+	public BigDecimal getRateOrNull(final ICurrencyConversionContext conversionCtx, final int currencyFromId, final int currencyToId)
+	{
+		countLookups.incrementAndGet();
+
+		final int adClientId = conversionCtx.getAD_Client_ID();
+		final int conversionTypeId = conversionCtx.getC_ConversionType_ID();
+		final ArrayKey key = Util.mkKey(adClientId, currencyFromId, currencyToId, conversionTypeId);
+		final ConversionRates rates = ratesByKey.get(key, () -> loadRates(adClientId, currencyFromId, currencyToId, conversionTypeId));
+
+		final BigDecimal rate = rates.getRateOrNull(adClientId, conversionCtx.getAD_Org_ID(), conversionCtx.getConversionDate());
+		if (rate == null)
+		{
+			countNotFound.incrementAndGet();
+		}
+		return rate;
+	}
+
+	private ConversionRates loadRates(final int adClientId, final int currencyFromId, final int currencyToId, final int conversionTypeId)
+	{
+		countLoads.incrementAndGet();
+
+		final List<Map<String, Object>> rows = Services.get(IQueryBL.class)
+				.createQueryBuilder(I_C_Conversion_Rate.class, Env.getCtx(), ITrx.TRXNAME_None)
+				.addEqualsFilter(I_C_Conversion_Rate.COLUMN_C_Currency_ID, currencyFromId)
+				.addEqualsFilter(I_C_Conversion_Rate.COLUMN_C_Currency_ID_To, currencyToId)
+				.addEqualsFilter(I_C_Conversion_Rate.COLUMN_C_ConversionType_ID, conversionTypeId)
+				.addInArrayOrAllFilter(I_C_Conversion_Rate.COLUMN_AD_Client_ID, 0, adClientId)
+				.create()
+				.listColumns(I_C_Conversion_Rate.COLUMNNAME_AD_Client_ID,
+						I_C_Conversion_Rate.COLUMNNAME_AD_Org_ID,
+						I_C_Conversion_Rate.COLUMNNAME_ValidFrom,
+						I_C_Conversion_Rate.COLUMNNAME_ValidTo,
+						I_C_Conversion_Rate.COLUMNNAME_MultiplyRate);
+
+		final ConversionRates rates = new ConversionRates();
+		for (final Map<String, Object> row : rows)
+		{
+			final Date validFrom = (Date)row.get(I_C_Conversion_Rate.COLUMNNAME_ValidFrom);
+			final Date validTo = (Date)row.get(I_C_Conversion_Rate.COLUMNNAME_ValidTo);
+			final BigDecimal multiplyRate = (BigDecimal)row.get(I_C_Conversion_Rate.COLUMNNAME_MultiplyRate);
+			if (validFrom == null || validTo == null || multiplyRate == null)
+			{
+				continue; // the SQL query would not match it either
+			}
+
+			rates.add(
+					((Number)row.get(I_C_Conversion_Rate.COLUMNNAME_AD_Client_ID)).intValue(),
+					((Number)row.get(I_C_Conversion_Rate.COLUMNNAME_AD_Org_ID)).intValue(),
+					new ConversionRateInterval(validFrom, validTo, multiplyRate));
+		}
+		return rates;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ConversionRatesIndex[lookups=" + getLookupsCount()
+				+ ", loads=" + getLoadsCount()
+				+ ", hitRate=" + getHitRatePercent() + "%"
+				+ ", notFound=" + getNotFoundCount()
+				+ ", cachedKeys=" + getCachedKeysCount()
+				+ "]";
+	}
+
+	/**
+	 * @return how many rates were requested
+	 */
+	public long getLookupsCount()
+	{
+		return countLookups.get();
+	}
+
+	/**
+	 * @return how many times the rates of a client, currency pair and conversion type were loaded from database
+	 */
+	public long getLoadsCount()
+	{
+		return countLoads.get();
+	}
+
+	/**
+	 * @return how many lookups were served without loading from database, in percent
+	 */
+	public long getHitRatePercent()
+	{
+		final long lookups = getLookupsCount();
+		return lookups > 0 ? (lookups - getLoadsCount()) * 100 / lookups : 0;
+	}
+
+	/**
+	 * @return how many lookups found no valid rate
+	 */
+	public long getNotFoundCount()
+	{
+		return countNotFound.get();
+	}
+
+	/**
+	 * @return how many client, currency pair and conversion type combinations are currently loaded
+	 */
+	public int getCachedKeysCount()
+	{
+		return ratesByKey.size();
+	}
+
+	/**
+	 * Invalidates the loaded rates and resets the statistics.
+	 */
+	public void reset()
+	{
+		ratesByKey.reset();
+		countLookups.set(0);
+		countLoads.set(0);
+		countNotFound.set(0);
+	}
+
+	/**
+	 * All rates of one AD_Client_ID (and System), currency pair and conversion type, indexed by AD_Client_ID/AD_Org_ID and ValidFrom.
+	 */
+	private static final class ConversionRates
+	{
+		/** ordered like the rate query: AD_Client_ID descending, AD_Org_ID descending */
+		private final NavigableMap<ClientAndOrg, NavigableMap<Date, List<ConversionRateInterval>>> intervalsByClientAndOrg = new TreeMap<>(ClientAndOrg.ORDER_MostSpecificFirst);
+
+		private void add(final int adClientId, final int adOrgId, final ConversionRateInterval interval)
+		{
+			intervalsByClientAndOrg.computeIfAbsent(new ClientAndOrg(adClientId, adOrgId), k -> new TreeMap<>())
+					.computeIfAbsent(interval.validFrom, k -> new ArrayList<>())
+					.add(interval);
+		}
+
+		public BigDecimal getRateOrNull(final int adClientId, final int adOrgId, final Date date)
+		{
+			final Date day = new Date(date.getTime()); // make sure we don't compare Timestamps with Dates
+			for (final Map.Entry<ClientAndOrg, NavigableMap<Date, List<ConversionRateInterval>>> entry : intervalsByClientAndOrg.entrySet())
+			{
+				final ClientAndOrg clientAndOrg = entry.getKey();
+				if (clientAndOrg.adClientId != 0 && clientAndOrg.adClientId != adClientId
+						|| clientAndOrg.adOrgId != 0 && clientAndOrg.adOrgId != adOrgId)
+				{
+					continue;
+				}
+
+				// latest ValidFrom first; usually the first interval is already the right one
+				for (final List<ConversionRateInterval> intervals : entry.getValue().headMap(day, true).descendingMap().values())
+				{
+					for (final ConversionRateInterval interval : intervals)
+					{
+						if (interval.isValidOn(day))
+						{
+							return interval.multiplyRate;
+						}
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	private static final class ClientAndOrg
+	{
+		private static final Comparator<ClientAndOrg> ORDER_MostSpecificFirst = Comparator.<ClientAndOrg> comparingInt(clientAndOrg -> clientAndOrg.adClientId)
+				.thenComparingInt(clientAndOrg -> clientAndOrg.adOrgId)
+				.reversed();
+
+		private final int adClientId;
+		private final int adOrgId;
+
+		private ClientAndOrg(final int adClientId, final int adOrgId)
+		{
+			super();
+			this.adClientId = adClientId;
+			this.adOrgId = adOrgId;
+		}
+	}
+
+	private static final class ConversionRateInterval
+	{
+		private final Date validFrom;
+		private final Date validTo;
+		private final BigDecimal multiplyRate;
+
+		private ConversionRateInterval(final Date validFrom, final Date validTo, final BigDecimal multiplyRate)
+		{
+			super();
+			this.validFrom = new Date(validFrom.getTime());
+			this.validTo = new Date(validTo.getTime());
+			this.multiplyRate = multiplyRate;
+		}
+
+		private boolean isValidOn(final Date date)
+		{
+			return validTo.getTime() >= date.getTime();
+		}
+	}
+}
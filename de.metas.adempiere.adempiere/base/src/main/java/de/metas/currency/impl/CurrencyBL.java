@@ -25,7 +25,9 @@ package de.metas.currency.impl;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 
 import org.adempiere.acct.api.IAcctSchemaDAO;
@@ -144,6 +146,41 @@ public class CurrencyBL implements ICurrencyBL
 		return result;
 	}	// convert
 
+	@Override
+	public final List<BigDecimal> convert(final ICurrencyConversionContext conversionCtx,
+			final List<BigDecimal> amounts,
+			final int CurFrom_ID,
+			final int CurTo_ID)
+	{
+		Check.assumeNotNull(amounts, "amounts not null");
+
+		final List<BigDecimal> amountsConv = new ArrayList<>(amounts.size());
+		ICurrencyRate currencyRate = null;
+		for (final BigDecimal amt : amounts)
+		{
+			Check.assumeNotNull(amt, "Amt not null");
+
+			// Zero amount or same currency: no rate needed (same as in the single amount convert)
+			if (amt.signum() == 0 || CurFrom_ID == CurTo_ID)
+			{
+				amountsConv.add(amt);
+				continue;
+			}
+
+			// Get Rate (once)
+			if (currencyRate == null)
+			{
+				currencyRate = getCurrencyRateOrNull(conversionCtx, CurFrom_ID, CurTo_ID);
+				if (currencyRate == null)
+				{
+					return null;
+				}
+			}
+			amountsConv.add(currencyRate.convertAmount(amt));
+		}
+		return amountsConv;
+	}
+
 	protected int getCurrencyPrecision(final int currencyId)
 	{
 		return Services.get(ICurrencyDAO.class).getStdPrecision(Env.getCtx(), currencyId);
@@ -5,8 +5,6 @@ package de.metas.currency.impl;
 
 import java.math.BigDecimal;
 import java.util.Date;
-import java.util.List;
-import java.util.Map;
 import java.util.Properties;
 
 import org.adempiere.ad.dao.IQueryBL;
@@ -18,6 +16,8 @@ import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
 import org.adempiere.util.proxy.Cached;
 import org.compiere.model.IQuery;
 import org.compiere.model.I_C_ConversionType;
@@ -60,6 +60,16 @@ import de.metas.currency.ICurrencyDAO;
  */
 public class CurrencyDAO implements ICurrencyDAO
 {
+	private final ConversionRatesIndex conversionRatesIndex = new ConversionRatesIndex();
+
+	public CurrencyDAO()
+	{
+		super();
+
+		final JMXConversionRatesIndex jmxBean = new JMXConversionRatesIndex(conversionRatesIndex);
+		JMXRegistry.get().registerJMX(jmxBean, OnJMXAlreadyExistsPolicy.Replace);
+	}
+
 	@Override
 	@Cached(cacheName = I_C_Currency.Table_Name)
 	public I_C_Currency retrieveCurrency(@CacheCtx final Properties ctx, final int currencyId)
@@ -188,17 +198,7 @@ public class CurrencyDAO implements ICurrencyDAO
 	@Override
 	public BigDecimal retrieveRateOrNull(final ICurrencyConversionContext conversionCtx, final int CurFrom_ID, final int CurTo_ID)
 	{
-		final List<Map<String, Object>> result = retrieveRateQuery(conversionCtx, CurFrom_ID, CurTo_ID)
-				.setLimit(1)
-				.create()
-				.listColumns(I_C_Conversion_Rate.COLUMNNAME_MultiplyRate);
-
-		if (result.isEmpty())
-		{
-			return null;
-		}
-
-		final BigDecimal rate = (BigDecimal)result.get(0).get(I_C_Conversion_Rate.COLUMNNAME_MultiplyRate);
-		return rate;
+		// NOTE: the index picks the same rate as retrieveRateQuery(), but loads the rates of a currency pair only once
+		return conversionRatesIndex.getRateOrNull(conversionCtx, CurFrom_ID, CurTo_ID);
 	}
 }
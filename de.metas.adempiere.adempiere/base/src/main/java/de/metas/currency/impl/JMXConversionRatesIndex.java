@@ -0,0 +1,103 @@
+package de.metas.currency.impl;
+
+import java.lang.ref.WeakReference;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Check;
+import org.adempiere.util.jmx.IJMXNameAware;
+
+import de.metas.currency.ICurrencyDAO;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class JMXConversionRatesIndex implements JMXConversionRatesIndexMBean, IJMXNameAware
+{
+	private final WeakReference<ConversionRatesIndex> conversionRatesIndexRef;
+	private final String jmxName;
+
+	/* package */ JMXConversionRatesIndex(final ConversionRatesIndex conversionRatesIndex)
+	{
+		super();
+		Check.assumeNotNull(conversionRatesIndex, "conversionRatesIndex not null");
+		conversionRatesIndexRef = new WeakReference<>(conversionRatesIndex);
+
+		jmxName = ICurrencyDAO.class.getName()
+				+ ":type=" + ConversionRatesIndex.class.getSimpleName();
+	}
+
+	private final ConversionRatesIndex getConversionRatesIndex()
+	{
+		final ConversionRatesIndex conversionRatesIndex = conversionRatesIndexRef.get();
+		if (conversionRatesIndex == null)
+		{
+			throw new AdempiereException("Conversion rates index expired");
+		}
+		return conversionRatesIndex;
+	}
+
+	@Override
+	public final String getJMXName()
+	{
+		return jmxName;
+	}
+
+	@Override
+	public long getLookupsCount()
+	{
+		return getConversionRatesIndex().getLookupsCount();
+	}
+
+	@Override
+	public long getLoadsCount()
+	{
+		return getConversionRatesIndex().getLoadsCount();
+	}
+
+	@Override
+	public long getHitRatePercent()
+	{
+		return getConversionRatesIndex().getHitRatePercent();
+	}
+
+	@Override
+	public long getNotFoundCount()
+	{
+		return getConversionRatesIndex().getNotFoundCount();
+	}
+
+	@Override
+	public int getCachedKeysCount()
+	{
+		return getConversionRatesIndex().getCachedKeysCount();
+	}
+
+	@Override
+	public void reset()
+	{
+		getConversionRatesIndex().reset();
+	}
+}
@@ -8,6 +8,7 @@ import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import org.adempiere.ad.dao.SqlProfilerContext;
 import org.adempiere.ad.security.IUserRolePermissions;
 import org.adempiere.ad.security.IUserRolePermissionsDAO;
 import org.adempiere.ad.trx.api.ITrx;
@@ -27,6 +28,7 @@ import org.compiere.util.DB;
 import org.compiere.util.Env;
 import org.compiere.util.Ini;
 import org.compiere.util.TrxRunnableAdapter;
+import org.compiere.util.Util;
 import org.compiere.wf.MWFProcess;
 import org.compiere.wf.MWorkflow;
 import org.slf4j.Logger;
@@ -254,7 +256,8 @@ public final class ProcessExecutor
 		final Integer previousProcessId = s_currentProcess_ID.get();
 		final Integer previousOrgId = s_currentOrg_ID.get();
 		Stopwatch duration = null;
-		try (final IAutoCloseable contextRestorer = switchContextIfNeeded())
+		try (final IAutoCloseable contextRestorer = switchContextIfNeeded();
+				final IAutoCloseable profilerContextRestorer = SqlProfilerContext.temporarySet(SqlProfilerContext.TYPE_Process, Util.coalesce(pi.getClassName(), pi.getTitle())))
 		{
 			s_currentProcess_ID.set(pi.getAD_Process_ID());
 			s_currentOrg_ID.set(pi.getAD_Org_ID());
@@ -0,0 +1,81 @@
+package org.adempiere.ad.dao;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.adempiere.model.ModelColumn;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Selects only some columns of the records which are matched by a query, without loading the models.
+ * <p>
+ * Use it when you need only a few fields of a wide table, because no model (i.e. PO with all its columns) is created.
+ *
+ * <pre>
+ * query.selectColumns()
+ * 		.addColumn(I_C_Invoice_Candidate.COLUMN_C_Invoice_Candidate_ID)
+ * 		.addColumn(I_C_Invoice_Candidate.COLUMN_NetAmtToInvoice)
+ * 		.list()
+ * </pre>
+ *
+ * <code>NULL</code> values are returned as <code>null</code>, same as the column getters of the models do (i.e. an integer column is not returned as <code>0</code>).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ * @param <T> model type
+ */
+public interface IQuerySelectColumnsExecutor<T>
+{
+	/**
+	 * Adds a column to be selected. The columns are selected in the order they were added.
+	 */
+	IQuerySelectColumnsExecutor<T> addColumn(ModelColumn<T, ?> column);
+
+	/**
+	 * Adds a column to be selected. The columns are selected in the order they were added.
+	 */
+	IQuerySelectColumnsExecutor<T> addColumn(String columnName);
+
+	/**
+	 * @return selected values, one {@link QueryColumnsRecord} for each row
+	 */
+	List<QueryColumnsRecord> list();
+
+	/**
+	 * Streams the selected values, one {@link QueryColumnsRecord} for each row.
+	 * <p>
+	 * The rows are fetched while the stream is consumed, so please close the stream if it's not fully consumed (i.e. use try-with-resources).
+	 */
+	Stream<QueryColumnsRecord> stream();
+
+	/**
+	 * @return selected values, one array for each row; the values are in the same order as the columns were added
+	 */
+	List<Object[]> listArrays();
+
+	/**
+	 * Same as {@link #stream()} but the values of each row are provided as an array, in the same order as the columns were added.
+	 */
+	Stream<Object[]> streamArrays();
+}
@@ -49,4 +49,26 @@ public interface IQueryStatisticsCollector
 	 * @param duration
 	 */
 	void collect(CStatementVO vo, Stopwatch duration);
+
+	/**
+	 * Collect an executed SQL.
+	 *
+	 * By default it's calling {@link #collect(String, Stopwatch)} or {@link #collect(CStatementVO, Stopwatch)}. Implementations can override it if they also need the transaction or the rows count.
+	 *
+	 * @param sql executed SQL or <code>null</code> if the statement's SQL was executed
+	 * @param vo statement value object; might be <code>null</code>
+	 * @param duration
+	 * @param updateCount how many rows were inserted/updated/deleted or <code>-1</code> if not known (e.g. for SELECTs)
+	 */
+	default void collect(final String sql, final CStatementVO vo, final Stopwatch duration, final int updateCount)
+	{
+		if (sql != null)
+		{
+			collect(sql, duration);
+		}
+		else
+		{
+			collect(vo, duration);
+		}
+	}
 }
@@ -0,0 +1,209 @@
+package org.adempiere.ad.dao;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.adempiere.model.ModelColumn;
+import org.adempiere.util.Check;
+import org.compiere.util.DisplayType;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Read-only values of some columns of a record, as selected by {@link IQuerySelectColumnsExecutor}.
+ * <p>
+ * The column names are shared by all the records of a result (see {@link Header}), so each record holds only its values.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@Immutable
+public final class QueryColumnsRecord
+{
+	/**
+	 * @param header column names
+	 * @param values values, in the same order as the header's column names; the array is not copied, so it shall not be changed afterwards
+	 */
+	public static final QueryColumnsRecord of(final Header header, final Object[] values)
+	{
+		return new QueryColumnsRecord(header, values);
+	}
+
+	private final Header header;
+	private final Object[] values;
+
+	private QueryColumnsRecord(final Header header, final Object[] values)
+	{
+		super();
+
+		Check.assumeNotNull(header, "header not null");
+		Check.assumeNotNull(values, "values not null");
+		Check.assume(header.getColumnNames().size() == values.length, "values count shall match {}", header);
+		this.header = header;
+		this.values = values;
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder("QueryColumnsRecord[");
+		final List<String> columnNames = header.getColumnNames();
+		for (int i = 0; i < values.length; i++)
+		{
+			if (i > 0)
+			{
+				sb.append(", ");
+			}
+			sb.append(columnNames.get(i)).append("=").append(values[i]);
+		}
+		return sb.append("]").toString();
+	}
+
+	public List<String> getColumnNames()
+	{
+		return header.getColumnNames();
+	}
+
+	public Object getValue(final String columnName)
+	{
+		return values[header.getColumnIndex(columnName)];
+	}
+
+	public Object getValue(final ModelColumn<?, ?> column)
+	{
+		return getValue(column.getColumnName());
+	}
+
+	/**
+	 * @return value as int or <code>0</code> if the value is null
+	 */
+	public int getValueAsInt(final ModelColumn<?, ?> column)
+	{
+		final Object value = getValue(column);
+		if (value == null)
+		{
+			return 0;
+		}
+		else if (value instanceof Number)
+		{
+			return ((Number)value).intValue();
+		}
+		else
+		{
+			return Integer.parseInt(value.toString());
+		}
+	}
+
+	/**
+	 * @return value as {@link BigDecimal} or <code>null</code>
+	 */
+	public BigDecimal getValueAsBigDecimal(final ModelColumn<?, ?> column)
+	{
+		final Object value = getValue(column);
+		if (value == null)
+		{
+			return null;
+		}
+		else if (value instanceof BigDecimal)
+		{
+			return (BigDecimal)value;
+		}
+		else
+		{
+			return new BigDecimal(value.toString());
+		}
+	}
+
+	public String getValueAsString(final ModelColumn<?, ?> column)
+	{
+		final Object value = getValue(column);
+		return value == null ? null : value.toString();
+	}
+
+	public boolean getValueAsBoolean(final ModelColumn<?, ?> column)
+	{
+		return DisplayType.toBoolean(getValue(column));
+	}
+
+	public Timestamp getValueAsTimestamp(final ModelColumn<?, ?> column)
+	{
+		return (Timestamp)getValue(column);
+	}
+
+	/**
+	 * Column names of a {@link QueryColumnsRecord}s result, shared by all records.
+	 */
+	@Immutable
+	public static final class Header
+	{
+		public static final Header of(final List<String> columnNames)
+		{
+			return new Header(columnNames);
+		}
+
+		private final ImmutableList<String> columnNames;
+		private final ImmutableMap<String, Integer> columnIndexByName;
+
+		private Header(final List<String> columnNames)
+		{
+			super();
+
+			Check.assumeNotEmpty(columnNames, "columnNames not empty");
+			this.columnNames = ImmutableList.copyOf(columnNames);
+
+			final ImmutableMap.Builder<String, Integer> columnIndexByName = ImmutableMap.builder();
+			for (int i = 0; i < this.columnNames.size(); i++)
+			{
+				columnIndexByName.put(this.columnNames.get(i), i);
+			}
+			this.columnIndexByName = columnIndexByName.build();
+		}
+
+		@Override
+		public String toString()
+		{
+			return "QueryColumnsRecord.Header" + columnNames;
+		}
+
+		public List<String> getColumnNames()
+		{
+			return columnNames;
+		}
+
+		private int getColumnIndex(final String columnName)
+		{
+			final Integer columnIndex = columnIndexByName.get(columnName);
+			if (columnIndex == null)
+			{
+				throw new IllegalArgumentException("Column " + columnName + " was not selected. Available columns are: " + columnNames);
+			}
+			return columnIndex;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.adempiere.ad.dao;
+
+import org.adempiere.util.lang.IAutoCloseable;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Business context (e.g. the process, work package or model interceptor) which is currently running in this thread.
+ * <p>
+ * The SQL profiler groups the executed SQLs by this context. Usage:
+ *
+ * <pre>
+ * try (final IAutoCloseable profilerContext = SqlProfilerContext.temporarySet(SqlProfilerContext.TYPE_Process, processClassname))
+ * {
+ * 	// run the process
+ * }
+ * </pre>
+ *
+ * If contexts are nested, the innermost one is the current one.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class SqlProfilerContext
+{
+	public static final String TYPE_Process = "Process";
+	public static final String TYPE_WorkPackage = "WorkPackage";
+	public static final String TYPE_ModelInterceptor = "ModelInterceptor";
+
+	private static final ThreadLocal<String> currentContextName = new ThreadLocal<>();
+
+	private SqlProfilerContext()
+	{
+		super();
+	}
+
+	/**
+	 * @return context name, to be used with {@link #temporarySet(String)}
+	 */
+	public static String buildContextName(final String type, final String name)
+	{
+		return type + ":" + name;
+	}
+
+	/**
+	 * Sets the current context until the returned closeable is closed. Then the previous context is restored.
+	 */
+	public static IAutoCloseable temporarySet(final String type, final String name)
+	{
+		return temporarySet(buildContextName(type, name));
+	}
+
+	/**
+	 * Same as {@link #temporarySet(String, String)} but the context name was already built using {@link #buildContextName(String, String)}.
+	 * Use it in code which is called very often and which can build the context name only once.
+	 */
+	public static IAutoCloseable temporarySet(final String contextName)
+	{
+		final String previousContextName = currentContextName.get();
+		currentContextName.set(contextName);
+		return new IAutoCloseable()
+		{
+			@Override
+			public void close()
+			{
+				if (previousContextName == null)
+				{
+					currentContextName.remove();
+				}
+				else
+				{
+					currentContextName.set(previousContextName);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return current context name or <code>null</code>
+	 */
+	public static String getCurrentContextName()
+	{
+		return currentContextName.get();
+	}
+}
@@ -27,10 +27,12 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.adempiere.ad.dao.ICompositeQueryUpdaterExecutor;
 import org.adempiere.ad.dao.IQueryInsertExecutor;
 import org.adempiere.ad.dao.IQueryInsertExecutor.QueryInsertExecutorResult;
+import org.adempiere.ad.dao.IQuerySelectColumnsExecutor;
 import org.adempiere.ad.model.util.Model2IdFunction;
 import org.adempiere.exceptions.DBException;
 import org.adempiere.model.InterfaceWrapperHelper;
@@ -185,4 +187,18 @@ public abstract class AbstractTypedQuery<T> implements IQuery<T>
 	}
 
 	abstract <ToModelType> QueryInsertExecutorResult executeInsert(final QueryInsertExecutor<ToModelType, T> queryInserter);
+
+	@Override
+	public IQuerySelectColumnsExecutor<T> selectColumns()
+	{
+		return new QuerySelectColumnsExecutor<>(this);
+	}
+
+	/**
+	 * Streams the values of given columns, without loading the models.
+	 *
+	 * @param columnNames
+	 * @return stream of value arrays (one for each row), having the values in the same order as <code>columnNames</code>
+	 */
+	abstract Stream<Object[]> streamColumnValues(final List<String> columnNames);
 }
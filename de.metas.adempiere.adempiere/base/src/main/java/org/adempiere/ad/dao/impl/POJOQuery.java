@@ -35,6 +35,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import org.adempiere.ad.dao.ICompositeQueryFilter;
 import org.adempiere.ad.dao.IQueryBL;
@@ -798,6 +799,22 @@ public class POJOQuery<T> extends AbstractTypedQuery<T>
 		return new ArrayList<>(result);
 	}
 
+	@Override
+	final Stream<Object[]> streamColumnValues(final List<String> columnNames)
+	{
+		Check.assumeNotEmpty(columnNames, "columnNames not empty");
+
+		return list().stream()
+				.map(record -> {
+					final Object[] values = new Object[columnNames.size()];
+					for (int i = 0; i < values.length; i++)
+					{
+						values[i] = InterfaceWrapperHelper.getValue(record, columnNames.get(i)).orNull();
+					}
+					return values;
+				});
+	}
+
 	@Override
 	public final <AT> List<AT> listDistinct(final String columnName, final Class<AT> valueType)
 	{
@@ -0,0 +1,111 @@
+package org.adempiere.ad.dao.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.adempiere.ad.dao.IQuerySelectColumnsExecutor;
+import org.adempiere.ad.dao.QueryColumnsRecord;
+import org.adempiere.model.ModelColumn;
+import org.adempiere.util.Check;
+
+import com.google.common.collect.ImmutableList;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+class QuerySelectColumnsExecutor<T> implements IQuerySelectColumnsExecutor<T>
+{
+	private final AbstractTypedQuery<T> query;
+	private final Set<String> columnNames = new LinkedHashSet<>();
+
+	QuerySelectColumnsExecutor(final AbstractTypedQuery<T> query)
+	{
+		super();
+
+		Check.assumeNotNull(query, "query not null");
+		this.query = query;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "QuerySelectColumnsExecutor [columnNames=" + columnNames + ", query=" + query + "]";
+	}
+
+	@Override
+	public IQuerySelectColumnsExecutor<T> addColumn(final ModelColumn<T, ?> column)
+	{
+		Check.assumeNotNull(column, "column not null");
+		return addColumn(column.getColumnName());
+	}
+
+	@Override
+	public IQuerySelectColumnsExecutor<T> addColumn(final String columnName)
+	{
+		Check.assumeNotEmpty(columnName, "columnName not empty");
+		columnNames.add(columnName);
+		return this;
+	}
+
+	private List<String> getColumnNames()
+	{
+		Check.assumeNotEmpty(columnNames, "At least one column shall be added: {}", this);
+		return ImmutableList.copyOf(columnNames);
+	}
+
+	@Override
+	public List<QueryColumnsRecord> list()
+	{
+		try (final Stream<QueryColumnsRecord> stream = stream())
+		{
+			return stream.collect(Collectors.toCollection(ArrayList::new));
+		}
+	}
+
+	@Override
+	public Stream<QueryColumnsRecord> stream()
+	{
+		final List<String> columnNames = getColumnNames();
+		final QueryColumnsRecord.Header header = QueryColumnsRecord.Header.of(columnNames);
+		return query.streamColumnValues(columnNames)
+				.map(values -> QueryColumnsRecord.of(header, values));
+	}
+
+	@Override
+	public List<Object[]> listArrays()
+	{
+		try (final Stream<Object[]> stream = streamArrays())
+		{
+			return stream.collect(Collectors.toCollection(ArrayList::new));
+		}
+	}
+
+	@Override
+	public Stream<Object[]> streamArrays()
+	{
+		return query.streamColumnValues(getColumnNames());
+	}
+}
@@ -134,7 +134,7 @@ public class QueryStatisticsLogger implements IQueryStatisticsLogger, IQueryStat
 		enabled = false;
 
 		traceSqlQueries = false;
-		StatementsFactory.instance.disableSqlQueriesTracing();
+		StatementsFactory.instance.disableSqlQueriesTracing(this);
 	}
 
 	@Override
@@ -253,7 +253,7 @@ public class QueryStatisticsLogger implements IQueryStatisticsLogger, IQueryStat
 		System.err.println("");
 	}
 
-	private static final String toOnLineString(final StackTraceElement[] stacktrace)
+	/* package */static final String toOnLineString(final StackTraceElement[] stacktrace)
 	{
 		final StringBuilder stackTraceStr = new StringBuilder();
 		int ste_Considered = 0;
@@ -0,0 +1,159 @@
+package org.adempiere.ad.dao.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Lock-free latency histogram with a fixed memory footprint, used by {@link SqlProfiler}.
+ * <p>
+ * Like HdrHistogram, the values are counted in log-linear buckets: each power of two is split in {@value #SUB_BUCKETS} sub-buckets,
+ * so a percentile is reported with a relative error of at most 1/{@value #SUB_BUCKETS}. Values below {@value #LINEAR_LIMIT} are counted exactly.
+ * <p>
+ * The unit of the values is up to the caller (the profiler is using microseconds).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class SqlLatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+	/** Biggest power of two which is counted; bigger values are counted in the last bucket */
+	private static final int MAX_EXPONENT = 40;
+	private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+	/* package */static final int BUCKETS_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS_COUNT);
+	private final AtomicLong count = new AtomicLong(0);
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong max = new AtomicLong(0);
+
+	public SqlLatencyHistogram()
+	{
+		super();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SqlLatencyHistogram[count=" + getCount()
+				+ ", p50=" + getValueAtPercentile(50)
+				+ ", p90=" + getValueAtPercentile(90)
+				+ ", p99=" + getValueAtPercentile(99)
+				+ ", max=" + getMax()
+				+ "]";
+	}
+
+	public void record(final long value)
+	{
+		final long valueToUse = value < 0 ? 0 : value;
+		counts.incrementAndGet(getBucketIndex(valueToUse));
+		count.incrementAndGet();
+		total.add(valueToUse);
+		max.accumulateAndGet(valueToUse, Math::max);
+	}
+
+	/* package */static int getBucketIndex(final long value)
+	{
+		if (value < LINEAR_LIMIT)
+		{
+			return (int)value;
+		}
+
+		final long valueToUse = value > MAX_VALUE ? MAX_VALUE : value;
+		final int exponent = 63 - Long.numberOfLeadingZeros(valueToUse);
+		final int subBucket = (int)((valueToUse >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return biggest value which is counted in given bucket
+	 */
+	/* package */static long getHighestValueInBucket(final int bucketIndex)
+	{
+		if (bucketIndex < LINEAR_LIMIT)
+		{
+			return bucketIndex;
+		}
+
+		final int exponent = SUB_BUCKET_BITS + 1 + (bucketIndex - LINEAR_LIMIT) / SUB_BUCKETS;
+		final int subBucket = (bucketIndex - LINEAR_LIMIT) % SUB_BUCKETS;
+		final int shift = exponent - SUB_BUCKET_BITS;
+		final long lowestValue = ((long)(SUB_BUCKETS + subBucket)) << shift;
+		return lowestValue + (1L << shift) - 1;
+	}
+
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	public long getTotal()
+	{
+		return total.sum();
+	}
+
+	public long getMax()
+	{
+		return max.get();
+	}
+
+	public double getAverage()
+	{
+		final long count = getCount();
+		return count == 0 ? 0 : (double)getTotal() / count;
+	}
+
+	/**
+	 * @param percentile percentile, between 0 and 100
+	 * @return the value below which given percentile of the recorded values are (with the precision of this histogram); <code>0</code> if nothing was recorded
+	 */
+	public long getValueAtPercentile(final double percentile)
+	{
+		final long count = getCount();
+		if (count <= 0)
+		{
+			return 0;
+		}
+
+		final double percentileToUse = Math.min(Math.max(percentile, 0), 100);
+		final long countAtPercentile = Math.max(1, (long)Math.ceil(percentileToUse / 100 * count));
+
+		long countSoFar = 0;
+		for (int bucketIndex = 0; bucketIndex < BUCKETS_COUNT; bucketIndex++)
+		{
+			countSoFar += counts.get(bucketIndex);
+			if (countSoFar >= countAtPercentile)
+			{
+				return Math.min(getHighestValueInBucket(bucketIndex), getMax());
+			}
+		}
+
+		// shall not happen, unless values were recorded meanwhile
+		return getMax();
+	}
+}
@@ -0,0 +1,159 @@
+package org.adempiere.ad.dao.impl;
+
+import java.util.regex.Pattern;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Normalizes SQLs, so that the same statement executed with different literals (e.g. <code>WHERE C_Order_ID=1000001</code>) is grouped together by the {@link SqlProfiler}.
+ * <p>
+ * String and number literals are replaced with <code>?</code>, <code>IN</code> lists are collapsed to <code>IN (?)</code> and whitespaces are collapsed to one space.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class SqlNormalizer
+{
+	private static final Pattern PATTERN_InList = Pattern.compile("(?i)\\bIN ?\\(\\?(, ?\\?)*\\)");
+
+	private SqlNormalizer()
+	{
+		super();
+	}
+
+	public static String normalize(final String sql)
+	{
+		if (sql == null)
+		{
+			return null;
+		}
+
+		final int length = sql.length();
+		final StringBuilder sqlNorm = new StringBuilder(length);
+		boolean hasInList = false;
+
+		int i = 0;
+		while (i < length)
+		{
+			final char ch = sql.charAt(i);
+
+			//
+			// String literal => ?
+			if (ch == '\'')
+			{
+				i++;
+				while (i < length)
+				{
+					if (sql.charAt(i) == '\'')
+					{
+						if (i + 1 < length && sql.charAt(i + 1) == '\'')
+						{
+							i += 2; // escaped quote
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				i++; // closing quote
+				sqlNorm.append('?');
+			}
+			//
+			// Quoted identifier => keep as is
+			else if (ch == '"')
+			{
+				final int end = sql.indexOf('"', i + 1);
+				final int endToUse = end < 0 ? length : end + 1;
+				sqlNorm.append(sql, i, endToUse);
+				i = endToUse;
+			}
+			//
+			// Number literal (but not digits which are part of an identifier, like "T1") => ?
+			else if (Character.isDigit(ch) && !isPartOfIdentifier(sqlNorm))
+			{
+				while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.'))
+				{
+					i++;
+				}
+				sqlNorm.append('?');
+			}
+			//
+			// Whitespaces => one space
+			else if (Character.isWhitespace(ch))
+			{
+				while (i < length && Character.isWhitespace(sql.charAt(i)))
+				{
+					i++;
+				}
+				if (sqlNorm.length() > 0 && i < length)
+				{
+					sqlNorm.append(' ');
+				}
+			}
+			else
+			{
+				if (ch == '(' && (endsWithIgnoreCase(sqlNorm, "IN ") || endsWithIgnoreCase(sqlNorm, "IN")))
+				{
+					hasInList = true;
+				}
+				sqlNorm.append(ch);
+				i++;
+			}
+		}
+
+		if (hasInList)
+		{
+			return PATTERN_InList.matcher(sqlNorm).replaceAll("IN (?)");
+		}
+		return sqlNorm.toString();
+	}
+
+	private static boolean isPartOfIdentifier(final StringBuilder sqlNorm)
+	{
+		if (sqlNorm.length() == 0)
+		{
+			return false;
+		}
+
+		final char lastChar = sqlNorm.charAt(sqlNorm.length() - 1);
+		return Character.isLetterOrDigit(lastChar) || lastChar == '_' || lastChar == '$';
+	}
+
+	private static boolean endsWithIgnoreCase(final StringBuilder sb, final String suffix)
+	{
+		final int offset = sb.length() - suffix.length();
+		if (offset < 0)
+		{
+			return false;
+		}
+
+		for (int i = 0; i < suffix.length(); i++)
+		{
+			if (Character.toUpperCase(sb.charAt(offset + i)) != suffix.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
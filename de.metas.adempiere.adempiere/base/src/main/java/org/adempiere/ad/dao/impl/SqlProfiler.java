@@ -0,0 +1,566 @@
+package org.adempiere.ad.dao.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.adempiere.ad.dao.IQueryStatisticsCollector;
+import org.adempiere.ad.dao.SqlProfilerContext;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.sql.impl.StatementsFactory;
+import org.adempiere.util.Check;
+import org.adempiere.util.time.SystemTime;
+import org.compiere.util.CStatementVO;
+import org.slf4j.Logger;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import com.google.common.base.Stopwatch;
+
+import de.metas.logging.LogManager;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Always-on SQL profiler.
+ * <p>
+ * Unlike {@link QueryStatisticsLogger}, which is enabled on demand and keeps only counts and durations, the profiler is meant to run all the time with a low overhead:
+ * <ul>
+ * <li>latency percentiles (see {@link SqlLatencyHistogram}) per normalized SQL (see {@link SqlNormalizer}), per transaction name prefix and per business context (see {@link SqlProfilerContext})
+ * <li>the slowest statements, with their SQL parameters, transaction, business context and calling code location. The stacktrace is taken only for statements which are slower than
+ * {@link #getSlowThresholdMillis()}.
+ * </ul>
+ * The profiler is enabled when the bean is created, unless the system property {@value #SYSTEM_PROPERTY_Enabled} is set to <code>false</code>.
+ * It can be queried over JMX and a snapshot can be exported to a file (see {@link #exportSnapshot(String)}).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@Service
+@ManagedResource(objectName = "org.adempiere.ad.dao.impl.SqlProfiler:type=Profiler", description = "Always-on SQL profiler")
+public class SqlProfiler implements IQueryStatisticsCollector
+{
+	public static final String SYSTEM_PROPERTY_Enabled = SqlProfiler.class.getName() + ".enabled";
+
+	private static final transient Logger logger = LogManager.getLogger(SqlProfiler.class);
+
+	private static final TimeUnit TIMEUNIT_Internal = TimeUnit.MICROSECONDS;
+
+	/** Group of SQLs which were not executed in a transaction */
+	private static final String GROUP_NoTrx = "<no trx>";
+	/** Group of SQLs which were not executed in a business context */
+	private static final String GROUP_NoContext = "<no context>";
+	/** Group of all SQLs which were collected after the maximum number of groups was reached */
+	private static final String GROUP_Other = "<other>";
+
+	/** Maximum number of groups (e.g. distinct normalized SQLs) per statistics map, to keep the memory bounded */
+	private static final int MAX_GROUPS = 5000;
+	/** Maximum number of cached normalized SQLs */
+	private static final int MAX_NORMALIZED_SQLS = 10000;
+	private static final int MAX_SQL_PARAMS_LENGTH = 2000;
+	private static final int DEFAULT_SlowThresholdMillis = 200;
+	private static final int DEFAULT_SlowStatementsLimit = 50;
+
+	private volatile boolean enabled = false;
+	private volatile Date validFrom = null;
+	private volatile long slowThresholdMicros = TimeUnit.MILLISECONDS.toMicros(DEFAULT_SlowThresholdMillis);
+
+	private final ConcurrentHashMap<String, String> sql2normalizedSql = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Statistics> statisticsBySql = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Statistics> statisticsByTrx = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Statistics> statisticsByContext = new ConcurrentHashMap<>();
+	private final SlowStatements slowStatements = new SlowStatements(DEFAULT_SlowStatementsLimit);
+
+	public SqlProfiler()
+	{
+		super();
+
+		final boolean enabledBySystemProperty = !"false".equalsIgnoreCase(System.getProperty(SYSTEM_PROPERTY_Enabled, "true"));
+		if (enabledBySystemProperty)
+		{
+			enable();
+		}
+	}
+
+	@Override
+	public void collect(final String sql, final Stopwatch duration)
+	{
+		collect(sql, null, duration, -1);
+	}
+
+	@Override
+	public void collect(final CStatementVO vo, final Stopwatch duration)
+	{
+		collect(null, vo, duration, -1);
+	}
+
+	@Override
+	public void collect(final String sql, final CStatementVO vo, final Stopwatch duration, final int updateCount)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+
+		// Snapshot the duration as soon as possible
+		final long durationMicros = duration.elapsed(TIMEUNIT_Internal);
+
+		final String sqlToUse = sql != null ? sql : (vo == null ? null : vo.getSql());
+		if (sqlToUse == null)
+		{
+			return;
+		}
+
+		final String trxName = vo == null ? null : vo.getTrxName();
+		final Map<Integer, Object> sqlParams = vo == null ? null : vo.getDebugSqlParams();
+		record(sqlToUse, trxName, SqlProfilerContext.getCurrentContextName(), sqlParams, durationMicros, updateCount);
+	}
+
+	/* package */void record(final String sql, final String trxName, final String contextName, final Map<Integer, Object> sqlParams, final long durationMicros, final int updateCount)
+	{
+		final String sqlNorm = normalize(sql);
+		getStatistics(statisticsBySql, sqlNorm).record(durationMicros, updateCount);
+		getStatistics(statisticsByTrx, toTrxGroup(trxName)).record(durationMicros, updateCount);
+		getStatistics(statisticsByContext, contextName == null ? GROUP_NoContext : contextName).record(durationMicros, updateCount);
+
+		//
+		// Slow statement: take the stacktrace only if it gets into the top
+		if (durationMicros >= slowThresholdMicros && slowStatements.isCandidate(durationMicros))
+		{
+			final SlowStatement slowStatement = new SlowStatement(
+					sql,
+					toSqlParamsString(sqlParams),
+					durationMicros,
+					updateCount,
+					trxName,
+					contextName,
+					Thread.currentThread().getName(),
+					QueryStatisticsLogger.toOnLineString(Thread.currentThread().getStackTrace()),
+					SystemTime.asDate());
+			slowStatements.add(slowStatement);
+		}
+	}
+
+	private String normalize(final String sql)
+	{
+		final String sqlNorm = sql2normalizedSql.get(sql);
+		if (sqlNorm != null)
+		{
+			return sqlNorm;
+		}
+
+		// NOTE: SQLs with inlined literals could fill up the cache, so we just start over when it's full
+		if (sql2normalizedSql.size() >= MAX_NORMALIZED_SQLS)
+		{
+			sql2normalizedSql.clear();
+		}
+		return sql2normalizedSql.computeIfAbsent(sql, SqlNormalizer::normalize);
+	}
+
+	private static Statistics getStatistics(final ConcurrentHashMap<String, Statistics> statisticsByKey, final String key)
+	{
+		final Statistics statistics = statisticsByKey.get(key);
+		if (statistics != null)
+		{
+			return statistics;
+		}
+
+		final String keyToUse = statisticsByKey.size() >= MAX_GROUPS ? GROUP_Other : key;
+		return statisticsByKey.computeIfAbsent(keyToUse, Statistics::new);
+	}
+
+	/**
+	 * @return transaction name without the UUID suffix which is added by the transaction name generator, so that all transactions with the same prefix are grouped together
+	 */
+	/* package */static String toTrxGroup(final String trxName)
+	{
+		if (trxName == null || trxName.isEmpty())
+		{
+			return GROUP_NoTrx;
+		}
+
+		final int uuidLength = 36;
+		final int separatorIndex = trxName.length() - uuidLength - 1;
+		if (separatorIndex > 0 && trxName.charAt(separatorIndex) == '_' && trxName.charAt(separatorIndex + 9) == '-')
+		{
+			return trxName.substring(0, separatorIndex);
+		}
+		return trxName;
+	}
+
+	private static String toSqlParamsString(final Map<Integer, Object> sqlParams)
+	{
+		if (sqlParams == null || sqlParams.isEmpty())
+		{
+			return null;
+		}
+
+		final String sqlParamsStr = sqlParams.toString();
+		if (sqlParamsStr.length() > MAX_SQL_PARAMS_LENGTH)
+		{
+			return sqlParamsStr.substring(0, MAX_SQL_PARAMS_LENGTH) + "...";
+		}
+		return sqlParamsStr;
+	}
+
+	@ManagedOperation(description = "Enables the profiler")
+	public void enable()
+	{
+		if (enabled)
+		{
+			return;
+		}
+
+		reset();
+		enabled = true;
+		StatementsFactory.instance.enableSqlQueriesTracing(this);
+		logger.info("SQL profiler enabled");
+	}
+
+	@ManagedOperation(description = "Disables the profiler. The collected statistics are kept until the profiler is enabled again.")
+	public void disable()
+	{
+		enabled = false;
+		StatementsFactory.instance.disableSqlQueriesTracing(this);
+		logger.info("SQL profiler disabled");
+	}
+
+	@ManagedOperation(description = "Tells if the profiler is enabled")
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	@ManagedOperation(description = "Resets the collected statistics and slowest statements")
+	public void reset()
+	{
+		sql2normalizedSql.clear();
+		statisticsBySql.clear();
+		statisticsByTrx.clear();
+		statisticsByContext.clear();
+		slowStatements.clear();
+		validFrom = SystemTime.asDate();
+	}
+
+	@ManagedOperation(description = "Gets the timestamp from when we started to collect the statistics")
+	public Date getValidFrom()
+	{
+		return validFrom;
+	}
+
+	@ManagedOperation(description = "Gets the duration (millis) from which a statement is considered slow and its SQL parameters and stacktrace are recorded")
+	public long getSlowThresholdMillis()
+	{
+		return TimeUnit.MICROSECONDS.toMillis(slowThresholdMicros);
+	}
+
+	@ManagedOperation(description = "Sets the duration (millis) from which a statement is considered slow and its SQL parameters and stacktrace are recorded")
+	public void setSlowThresholdMillis(final long slowThresholdMillis)
+	{
+		Check.assume(slowThresholdMillis >= 0, "slowThresholdMillis >= 0");
+		this.slowThresholdMicros = TimeUnit.MILLISECONDS.toMicros(slowThresholdMillis);
+	}
+
+	@ManagedOperation(description = "Sets how many of the slowest statements are kept. The currently kept ones are discarded.")
+	public void setSlowStatementsLimit(final int limit)
+	{
+		slowStatements.setLimit(limit);
+	}
+
+	@ManagedOperation(description = "Gets top normalized SQLs ordered by their total execution time (descending)")
+	public String[] getTopSqlsByTotalDuration(final int limit)
+	{
+		return toStringArray(statisticsBySql, Comparator.comparing(Statistics::getTotalDuration), limit);
+	}
+
+	@ManagedOperation(description = "Gets top normalized SQLs ordered by their 99th percentile execution time (descending)")
+	public String[] getTopSqlsByPercentile99(final int limit)
+	{
+		return toStringArray(statisticsBySql, Comparator.comparing(Statistics::getPercentile99), limit);
+	}
+
+	@ManagedOperation(description = "Gets top normalized SQLs ordered by their execution count (descending)")
+	public String[] getTopSqlsByCount(final int limit)
+	{
+		return toStringArray(statisticsBySql, Comparator.comparing(Statistics::getCount), limit);
+	}
+
+	@ManagedOperation(description = "Gets SQL statistics per transaction name prefix, ordered by total execution time (descending)")
+	public String[] getStatisticsByTrx()
+	{
+		return toStringArray(statisticsByTrx, Comparator.comparing(Statistics::getTotalDuration), Integer.MAX_VALUE);
+	}
+
+	@ManagedOperation(description = "Gets SQL statistics per business context (process, work package, model interceptor), ordered by total execution time (descending)")
+	public String[] getStatisticsByBusinessContext()
+	{
+		return toStringArray(statisticsByContext, Comparator.comparing(Statistics::getTotalDuration), Integer.MAX_VALUE);
+	}
+
+	@ManagedOperation(description = "Gets the slowest statements, with their SQL parameters and calling code location")
+	public String[] getSlowestStatements()
+	{
+		return slowStatements.getSlowestFirst()
+				.stream()
+				.map(SlowStatement::toString)
+				.toArray(size -> new String[size]);
+	}
+
+	private static String[] toStringArray(final ConcurrentHashMap<String, Statistics> statisticsByKey, final Comparator<Statistics> comparing, final int limit)
+	{
+		return statisticsByKey.values()
+				.stream()
+				.sorted(comparing.reversed())
+				.limit(limit > 0 ? limit : Integer.MAX_VALUE)
+				.map(Statistics::toString)
+				.toArray(size -> new String[size]);
+	}
+
+	@ManagedOperation(description = "Exports a snapshot of the collected statistics to given file (or to a new file in the temporary directory if empty). Returns the file's path.")
+	public String exportSnapshot(final String fileName)
+	{
+		final File file;
+		if (Check.isEmpty(fileName, true))
+		{
+			final String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(SystemTime.asDate());
+			file = new File(System.getProperty("java.io.tmpdir"), "sql-profiler-" + timestamp + ".txt");
+		}
+		else
+		{
+			file = new File(fileName.trim());
+		}
+
+		final List<String> lines = new ArrayList<>();
+		lines.add("SQL profiler snapshot taken at " + SystemTime.asDate() + ", collected since " + getValidFrom());
+		lines.add("Durations are in millis");
+		addSection(lines, "SQLs by total duration", getTopSqlsByTotalDuration(Integer.MAX_VALUE));
+		addSection(lines, "Statistics by transaction", getStatisticsByTrx());
+		addSection(lines, "Statistics by business context", getStatisticsByBusinessContext());
+		addSection(lines, "Slowest statements", getSlowestStatements());
+
+		try
+		{
+			Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed exporting the SQL profiler snapshot to " + file, e);
+		}
+
+		logger.info("Exported SQL profiler snapshot to {}", file);
+		return file.getAbsolutePath();
+	}
+
+	private static void addSection(final List<String> lines, final String title, final String[] items)
+	{
+		lines.add("");
+		lines.add("=== " + title + " (" + items.length + ") ===");
+		lines.addAll(Arrays.asList(items));
+	}
+
+	private static final String formatMillis(final double durationMicros)
+	{
+		return String.format("%.3f", durationMicros / 1000);
+	}
+
+	/**
+	 * Latency histogram and counters of a group of SQLs (e.g. same normalized SQL, same transaction name prefix)
+	 */
+	private static final class Statistics
+	{
+		private final String key;
+		private final SqlLatencyHistogram histogram = new SqlLatencyHistogram();
+		private final LongAdder updateCount = new LongAdder();
+
+		public Statistics(final String key)
+		{
+			super();
+			this.key = key;
+		}
+
+		@Override
+		public String toString()
+		{
+			return key
+					+ "\n-- count=" + histogram.getCount()
+					+ ", total=" + formatMillis(histogram.getTotal())
+					+ ", avg=" + formatMillis(histogram.getAverage())
+					+ ", p50=" + formatMillis(histogram.getValueAtPercentile(50))
+					+ ", p90=" + formatMillis(histogram.getValueAtPercentile(90))
+					+ ", p99=" + formatMillis(histogram.getValueAtPercentile(99))
+					+ ", max=" + formatMillis(histogram.getMax())
+					+ ", updated rows=" + updateCount.sum();
+		}
+
+		public void record(final long durationMicros, final int updateCount)
+		{
+			histogram.record(durationMicros);
+			if (updateCount > 0)
+			{
+				this.updateCount.add(updateCount);
+			}
+		}
+
+		public long getCount()
+		{
+			return histogram.getCount();
+		}
+
+		public long getTotalDuration()
+		{
+			return histogram.getTotal();
+		}
+
+		public long getPercentile99()
+		{
+			return histogram.getValueAtPercentile(99);
+		}
+	}
+
+	private static final class SlowStatement
+	{
+		private final String sql;
+		private final String sqlParams;
+		private final long durationMicros;
+		private final int updateCount;
+		private final String trxName;
+		private final String contextName;
+		private final String threadName;
+		private final String stacktrace;
+		private final Date timestamp;
+
+		public SlowStatement(final String sql,
+				final String sqlParams,
+				final long durationMicros,
+				final int updateCount,
+				final String trxName,
+				final String contextName,
+				final String threadName,
+				final String stacktrace,
+				final Date timestamp)
+		{
+			super();
+			this.sql = sql;
+			this.sqlParams = sqlParams;
+			this.durationMicros = durationMicros;
+			this.updateCount = updateCount;
+			this.trxName = trxName;
+			this.contextName = contextName;
+			this.threadName = threadName;
+			this.stacktrace = stacktrace;
+			this.timestamp = timestamp;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "-- Duration: " + formatMillis(durationMicros) + ", at " + timestamp
+					+ (updateCount >= 0 ? ", updated rows: " + updateCount : "")
+					+ "\n-- Trx: " + trxName + ", Context: " + contextName + ", Thread: " + threadName
+					+ "\n-- Stacktrace: " + stacktrace
+					+ "\n" + sql
+					+ (sqlParams == null ? "" : "\n-- Parameters: " + sqlParams);
+		}
+
+		public long getDurationMicros()
+		{
+			return durationMicros;
+		}
+	}
+
+	/**
+	 * Keeps the top N slowest statements.
+	 */
+	private static final class SlowStatements
+	{
+		private static final Comparator<SlowStatement> ORDER_FastestFirst = Comparator.comparing(SlowStatement::getDurationMicros);
+
+		private int limit;
+		private final PriorityQueue<SlowStatement> statements = new PriorityQueue<>(ORDER_FastestFirst);
+		/** Duration of the fastest statement we keep, or <code>-1</code> if we don't have all statements yet */
+		private volatile long minDurationMicros = -1;
+
+		public SlowStatements(final int limit)
+		{
+			super();
+			this.limit = limit;
+		}
+
+		/**
+		 * @return true if a statement with given duration would be kept; does not need to lock, so it's cheap
+		 */
+		public boolean isCandidate(final long durationMicros)
+		{
+			return durationMicros > minDurationMicros;
+		}
+
+		public synchronized void add(final SlowStatement statement)
+		{
+			if (!isCandidate(statement.getDurationMicros()))
+			{
+				return;
+			}
+
+			statements.add(statement);
+			while (statements.size() > limit)
+			{
+				statements.poll();
+			}
+
+			minDurationMicros = statements.size() >= limit ? statements.peek().getDurationMicros() : -1;
+		}
+
+		public synchronized List<SlowStatement> getSlowestFirst()
+		{
+			final List<SlowStatement> result = new ArrayList<>(statements);
+			result.sort(ORDER_FastestFirst.reversed());
+			return result;
+		}
+
+		public synchronized void setLimit(final int limit)
+		{
+			Check.assume(limit > 0, "limit > 0");
+			this.limit = limit;
+			clear();
+		}
+
+		public synchronized void clear()
+		{
+			statements.clear();
+			minDurationMicros = -1;
+		}
+	}
+}
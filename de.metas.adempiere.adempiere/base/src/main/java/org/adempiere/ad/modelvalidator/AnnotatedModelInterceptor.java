@@ -84,6 +84,14 @@ import de.metas.logging.LogManager;
 		loadPointcuts();
 	}
 
+	/**
+	 * @return class of the annotated object which is wrapped by this interceptor
+	 */
+	public Class<?> getAnnotatedClass()
+	{
+		return annotatedClass;
+	}
+
 	/**
 	 *
 	 * @return true if annotated class has any pointcuts (ModelChange, DocValidate etc)
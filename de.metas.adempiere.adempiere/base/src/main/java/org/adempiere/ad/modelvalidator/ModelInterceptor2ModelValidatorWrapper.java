@@ -23,9 +23,11 @@ package org.adempiere.ad.modelvalidator;
  */
 
 
+import org.adempiere.ad.dao.SqlProfilerContext;
 import org.adempiere.ad.security.IUserLoginListener;
 import org.adempiere.ad.session.MFSession;
 import org.adempiere.util.Check;
+import org.adempiere.util.lang.IAutoCloseable;
 import org.compiere.model.MClient;
 import org.compiere.model.ModelValidationEngine;
 import org.compiere.model.ModelValidator;
@@ -54,12 +56,17 @@ public final class ModelInterceptor2ModelValidatorWrapper implements ModelValida
 	private final IModelInterceptor interceptor;
 	/** {@link #interceptor} casted as {@link IUserLoginListener} or null */
 	private final IUserLoginListener userLoginListener;
+	/** {@link SqlProfilerContext} name, built only once because the interceptor is called very often */
+	private final String profilerContextName;
 
 	private ModelInterceptor2ModelValidatorWrapper(final IModelInterceptor interceptor)
 	{
 		super();
 		Check.assumeNotNull(interceptor, "interceptor not null");
 		this.interceptor = interceptor;
+
+		final Class<?> interceptorClass = interceptor instanceof AnnotatedModelInterceptor ? ((AnnotatedModelInterceptor)interceptor).getAnnotatedClass() : interceptor.getClass();
+		this.profilerContextName = SqlProfilerContext.buildContextName(SqlProfilerContext.TYPE_ModelInterceptor, interceptorClass.getName());
 		
 		if (interceptor instanceof IUserLoginListener)
 		{
@@ -121,7 +128,10 @@ public final class ModelInterceptor2ModelValidatorWrapper implements ModelValida
 	public final String modelChange(final PO po, final int changeTypeCode) throws Exception
 	{
 		final ModelChangeType changeType = ModelChangeType.valueOf(changeTypeCode);
-		interceptor.onModelChange(po, changeType);
+		try (final IAutoCloseable profilerContextRestorer = SqlProfilerContext.temporarySet(profilerContextName))
+		{
+			interceptor.onModelChange(po, changeType);
+		}
 		return null;
 	}
 
@@ -129,7 +139,10 @@ public final class ModelInterceptor2ModelValidatorWrapper implements ModelValida
 	public final String docValidate(final PO po, final int timingCode) throws Exception
 	{
 		final DocTimingType timing = DocTimingType.valueOf(timingCode);
-		interceptor.onDocValidate(po, timing);
+		try (final IAutoCloseable profilerContextRestorer = SqlProfilerContext.temporarySet(profilerContextName))
+		{
+			interceptor.onDocValidate(po, timing);
+		}
 		return null;
 	}
 
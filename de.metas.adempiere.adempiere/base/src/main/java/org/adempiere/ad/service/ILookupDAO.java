@@ -22,7 +22,9 @@ package org.adempiere.ad.service;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.adempiere.ad.validationRule.IValidationContext;
 import org.adempiere.ad.validationRule.IValidationRule;
@@ -202,6 +204,18 @@ public interface ILookupDAO extends ISingletonService
 	 */
 	NamePair retrieveLookupValue(IValidationContext validationCtx, MLookupInfo lookupInfo, Object key);
 
+	/**
+	 * Directly retrieves the data elements identified by given <code>keys</code>.
+	 * 
+	 * The data elements are fetched from a server-wide cache (invalidated when the records are changed) and the missing ones are retrieved with one <code>IN (...)</code> query.
+	 * 
+	 * @param validationCtx
+	 * @param lookupInfo
+	 * @param keys
+	 * @return data elements indexed by key ({@link Integer} for numeric keys, {@link String} otherwise); keys which were not found or which are not valid are not included
+	 */
+	Map<Object, NamePair> retrieveLookupValuesByKeys(IValidationContext validationCtx, MLookupInfo lookupInfo, Collection<?> keys);
+
 	/**
 	 * Creates a validation key to be used when checking if data is valid in a given context
 	 * 
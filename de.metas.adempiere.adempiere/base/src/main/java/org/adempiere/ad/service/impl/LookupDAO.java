@@ -27,8 +27,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.concurrent.Immutable;
 
@@ -70,14 +76,18 @@ import org.slf4j.Logger;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 
-import de.metas.adempiere.util.cache.annotations.CacheAllowMutable;
 import de.metas.logging.LogManager;
 
 public class LookupDAO implements ILookupDAO
 {
 	private static final transient Logger logger = LogManager.getLogger(LookupDAO.class);
 
+	/** Max number of keys to be queried in one <code>IN (...)</code> query */
+	private static final int IN_QUERY_MaxKeys = 500;
+
 	private final static String COLUMNNAME_Value = "Value";
 
 	private static final ITableRefInfo tableRefInfo_Account = TableRefInfo.builder()
@@ -1145,27 +1155,41 @@ public class LookupDAO implements ILookupDAO
 	}
 
 	@Override
-	@Cached(
-	// NOTE: short term caching because we are caching mutable values
-	expireMinutes = 1)
-	public NamePair retrieveLookupValue(
-			@CacheAllowMutable final IValidationContext validationCtx,
-			@CacheAllowMutable final MLookupInfo lookupInfo,
-			@CacheAllowMutable final Object key)
+	public NamePair retrieveLookupValue(final IValidationContext validationCtx, final MLookupInfo lookupInfo, final Object key)
+	{
+		if (key == null)
+		{
+			return null;
+		}
+
+		final Map<Object, NamePair> directValues = retrieveLookupValuesByKeys(validationCtx, lookupInfo, Collections.singleton(key));
+		return directValues.isEmpty() ? null : directValues.values().iterator().next();
+	}	// getDirect
+
+	@Override
+	public Map<Object, NamePair> retrieveLookupValuesByKeys(final IValidationContext validationCtx, final MLookupInfo lookupInfo, final Collection<?> keys)
 	{
 		// Nothing to query
 		final String sqlQueryDirect = lookupInfo.getSqlQueryDirect();
-		if (key == null || Check.isEmpty(sqlQueryDirect, true))
+		if (keys == null || keys.isEmpty() || Check.isEmpty(sqlQueryDirect, true))
 		{
-			return null;
+			return ImmutableMap.of();
 		}
 
+		// Normalize the keys, because they are used to match the query results and the invalidated record IDs
 		final boolean isNumber = lookupInfo.isNumericKey();
-
-		// Case: key it's for a numeric ID but it's an empty string
-		if (isNumber && Check.isEmpty(key.toString(), true))
+		final Map<Object, Object> keysNormalized = new LinkedHashMap<>(keys.size());
+		for (final Object key : keys)
 		{
-			return null;
+			final Object keyNormalized = normalizeKey(key, isNumber);
+			if (keyNormalized != null)
+			{
+				keysNormalized.put(key, keyNormalized);
+			}
+		}
+		if (keysNormalized.isEmpty())
+		{
+			return ImmutableMap.of();
 		}
 
 		// 04617: applying the validation rule's prefilter where clause, to make sure that what we return is valid
@@ -1196,57 +1220,163 @@ public class LookupDAO implements ILookupDAO
 		}
 		// 04617 end
 
+		//
+		// Get the display values from the shared cache and query the missing ones all together.
+		// NOTE: the effective SQL is part of the cache key, so the values are never shared between different languages or validation rules.
+		final String tableName = lookupInfo.getTableName();
+		final Collection<Object> keysToQuery = new LinkedHashSet<>(keysNormalized.values());
+		final Map<Object, NamePair> directValuesByNormalizedKey;
+		if (Check.isEmpty(tableName, true))
+		{
+			directValuesByNormalizedKey = queryLookupValuesByKeys(lookupInfo, sql, keysToQuery);
+		}
+		else
+		{
+			directValuesByNormalizedKey = LookupDisplayCache.get().getAll(tableName, sql, keysToQuery, missingKeys -> queryLookupValuesByKeys(lookupInfo, sql, missingKeys));
+		}
+
+		// 04617: apply java validation rules
+		// NOTE: we are applying them here and not before caching, because they depend on validation context
+		final INamePairPredicate postQueryFilter = lookupInfo.getValidationRule().getPostQueryFilter();
+
+		final Map<Object, NamePair> directValues = new LinkedHashMap<>(keysNormalized.size());
+		for (final Map.Entry<Object, Object> keyAndKeyNormalized : keysNormalized.entrySet())
+		{
+			final NamePair directValue = directValuesByNormalizedKey.get(keyAndKeyNormalized.getValue());
+			if (directValue == null)
+			{
+				continue;
+			}
+			if (postQueryFilter != null && !postQueryFilter.accept(validationCtx, directValue))
+			{
+				continue;
+			}
+
+			directValues.put(keyAndKeyNormalized.getKey(), directValue);
+		}
+		return directValues;
+	}
+
+	/**
+	 * @return key as {@link Integer} if the lookup has a numeric key, as {@link String} otherwise; <code>null</code> if there is nothing to query
+	 */
+	private static Object normalizeKey(final Object key, final boolean isNumber)
+	{
+		if (key == null)
+		{
+			return null;
+		}
+
+		if (isNumber)
+		{
+			if (key instanceof Number)
+			{
+				return ((Number)key).intValue();
+			}
+
+			// Case: key it's for a numeric ID but it's an empty string
+			if (Check.isEmpty(key.toString(), true))
+			{
+				return null;
+			}
+			try
+			{
+				return Integer.parseInt(key.toString().trim());
+			}
+			catch (final NumberFormatException e)
+			{
+				logger.warn("Skip invalid numeric key: {}", key, e);
+				return null;
+			}
+		}
+		else
+		{
+			return key.toString();
+		}
+	}
+
+	/**
+	 * Queries the display values for given keys, using <code>KeyColumn IN (...)</code> instead of the direct SQL's <code>KeyColumn=?</code>, for up to {@value #IN_QUERY_MaxKeys} keys per query.
+	 *
+	 * @param sql effective direct SQL
+	 * @param keys normalized keys
+	 * @return display values indexed by key; not found keys are not included
+	 */
+	private static Map<Object, NamePair> queryLookupValuesByKeys(final MLookupInfo lookupInfo, final String sql, final Collection<Object> keys)
+	{
+		final Map<Object, NamePair> directValues = new HashMap<>(keys.size());
+
+		final String keyColumnFQ = lookupInfo.getKeyColumnFQ();
+		final String keyWhereClause = "(" + keyColumnFQ + "=?)";
+		final int keyWhereClausePos = sql.lastIndexOf(keyWhereClause);
+		if (keyWhereClausePos < 0 || keys.size() == 1)
+		{
+			// Shall not happen, unless the direct SQL is not built by MLookupFactory: query the keys one by one
+			if (keyWhereClausePos < 0 && keys.size() > 1)
+			{
+				logger.warn("Cannot find {} in direct SQL. Querying the keys one by one. \n SQL: {}", keyWhereClause, sql);
+			}
+			for (final Object key : keys)
+			{
+				queryLookupValues(lookupInfo, sql, Collections.singletonList(key), directValues);
+			}
+			return directValues;
+		}
+
+		final String sqlBeforeKey = sql.substring(0, keyWhereClausePos);
+		final String sqlAfterKey = sql.substring(keyWhereClausePos + keyWhereClause.length());
+		for (final List<Object> keysChunk : Iterables.partition(keys, IN_QUERY_MaxKeys))
+		{
+			final List<Object> sqlParams = new ArrayList<>(keysChunk.size());
+			final String sqlChunk = sqlBeforeKey + "(" + keyColumnFQ + " IN " + DB.buildSqlList(keysChunk, sqlParams) + ")" + sqlAfterKey;
+			queryLookupValues(lookupInfo, sqlChunk, sqlParams, directValues);
+		}
+		return directValues;
+	}
+
+	private static void queryLookupValues(final MLookupInfo lookupInfo, final String sql, final List<Object> sqlParams, final Map<Object, NamePair> directValues)
+	{
+		final boolean isNumber = lookupInfo.isNumericKey();
+
 		PreparedStatement pstmt = null;
 		ResultSet rs = null;
-		NamePair directValue = null;
 		try
 		{
 			// SELECT Key, Value, Name FROM ...
 			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
-			if (isNumber)
-			{
-				pstmt.setInt(1, Integer.parseInt(key.toString()));
-			}
-			else
-			{
-				pstmt.setString(1, key.toString());
-			}
+			DB.setParameters(pstmt, sqlParams);
 
 			rs = pstmt.executeQuery();
 			while (rs.next())
 			{
-				if (directValue != null)
-				{
-					logger.error(lookupInfo.getKeyColumnFQ() + ": Not unique (first returned) for " + key + " SQL=" + sql);
-					break;
-				}
-
 				final String name = rs.getString(MLookupFactory.COLUMNINDEX_DisplayName);
+				final Object key;
 				final NamePair item;
 				if (isNumber)
 				{
 					final int itemId = rs.getInt(MLookupFactory.COLUMNINDEX_Key);
+					key = itemId;
 					item = new KeyNamePair(itemId, name);
 				}
 				else
 				{
 					final String itemValue = rs.getString(MLookupFactory.COLUMNINDEX_Value);
+					key = itemValue;
 					item = new ValueNamePair(itemValue, name);
 				}
 
-				// 04617: apply java validation rules
-				final INamePairPredicate postQueryFilter = lookupInfo.getValidationRule().getPostQueryFilter();
-				if (!postQueryFilter.accept(validationCtx, item))
+				if (directValues.containsKey(key))
 				{
+					logger.error(lookupInfo.getKeyColumnFQ() + ": Not unique (first returned) for " + key + " SQL=" + sql);
 					continue;
 				}
 
-				directValue = item;
+				directValues.put(key, item);
 			}
 		}
 		catch (final SQLException e)
 		{
-			throw new DBException(e, sql, Arrays.asList(key));
+			throw new DBException(e, sql, sqlParams);
 		}
 		finally
 		{
@@ -1254,7 +1384,5 @@ public class LookupDAO implements ILookupDAO
 			rs = null;
 			pstmt = null;
 		}
-
-		return directValue;
-	}	// getDirect
+	}
 }
@@ -0,0 +1,364 @@
+package org.adempiere.ad.service.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.adempiere.util.Check;
+import org.compiere.util.CacheMgt;
+import org.compiere.util.ITableAwareCacheInterface;
+import org.compiere.util.NamePair;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Server-wide cache of lookup display values, shared by all {@link org.compiere.model.MLookup} instances of all sessions.
+ * <p>
+ * Values are cached per lookup TableName, record key and effective direct SQL (i.e. the lookup's direct SQL, in the session language and with the validation rule's prefilter where clause
+ * injected). Only found records are cached; the post query filters of validation rules are not applied here, because they depend on the validation context.
+ * <p>
+ * Each TableName has its own bounded segment which is registered to {@link CacheMgt}, so when a record is changed or deleted, only that record's entry is invalidated.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class LookupDisplayCache
+{
+	public static final LookupDisplayCache get()
+	{
+		return instance;
+	}
+
+	private static final LookupDisplayCache instance = new LookupDisplayCache();
+
+	/** Max number of record keys cached per TableName */
+	private static final int DEFAULT_MaxKeysPerTable = 10000;
+	/** Safety net for display values which depend on other tables (e.g. translations or referenced records) and which are not invalidated when those are changed */
+	private static final int DEFAULT_ExpireMinutes = 10;
+
+	private final ConcurrentHashMap<String, TableSegment> segments = new ConcurrentHashMap<>();
+	private final int maxKeysPerTable;
+	private final int expireMinutes;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder queries = new LongAdder();
+
+	/* package */ LookupDisplayCache(final int maxKeysPerTable, final int expireMinutes)
+	{
+		super();
+		this.maxKeysPerTable = maxKeysPerTable;
+		this.expireMinutes = expireMinutes;
+	}
+
+	private LookupDisplayCache()
+	{
+		this(DEFAULT_MaxKeysPerTable, DEFAULT_ExpireMinutes);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "LookupDisplayCache[tables=" + segments.size()
+				+ ", size=" + size()
+				+ ", hits=" + getHitCount()
+				+ ", misses=" + getMissCount()
+				+ ", hitRatio=" + getHitRatio()
+				+ ", queries=" + getQueryCount()
+				+ "]";
+	}
+
+	/**
+	 * Gets the cached display values for given keys and loads the missing ones, all together.
+	 *
+	 * @param tableName lookup's TableName, used to invalidate the entries when a record is changed
+	 * @param sql effective direct SQL
+	 * @param keys record keys; they shall be normalized (i.e. {@link Integer}s for numeric keys), because they are also used to match the invalidated record IDs
+	 * @param loader loads the display values for the given (missing) keys; not found keys shall be not included in the returned map
+	 * @return display values indexed by key, in <code>keys</code> order; not found keys are not included
+	 */
+	public Map<Object, NamePair> getAll(final String tableName, final String sql, final Collection<Object> keys, final Function<Collection<Object>, Map<Object, NamePair>> loader)
+	{
+		Check.assumeNotEmpty(tableName, "tableName not empty");
+		Check.assumeNotEmpty(sql, "sql not empty");
+
+		final TableSegment segment = getSegment(tableName);
+
+		final Map<Object, NamePair> result = new LinkedHashMap<>(keys.size());
+		final Set<Object> missingKeys = new LinkedHashSet<>();
+		for (final Object key : keys)
+		{
+			if (key == null || result.containsKey(key) || missingKeys.contains(key))
+			{
+				continue;
+			}
+
+			final NamePair value = segment.get(key, sql);
+			if (value != null)
+			{
+				result.put(key, value);
+			}
+			else
+			{
+				missingKeys.add(key);
+			}
+		}
+
+		hits.add(result.size());
+		if (missingKeys.isEmpty())
+		{
+			return result;
+		}
+		misses.add(missingKeys.size());
+
+		//
+		// Load all missing keys at once.
+		// If the segment was invalidated in meantime, the loaded values might be already stale, so we return them but we don't cache them.
+		final long version = segment.getVersion();
+		final Map<Object, NamePair> loadedValues = loader.apply(missingKeys);
+		queries.increment();
+		if (loadedValues == null || loadedValues.isEmpty())
+		{
+			return result;
+		}
+
+		segment.putAll(sql, loadedValues, version);
+
+		for (final Object key : keys)
+		{
+			final NamePair value = loadedValues.get(key);
+			if (value != null)
+			{
+				result.put(key, value);
+			}
+		}
+		return result;
+	}
+
+	private TableSegment getSegment(final String tableName)
+	{
+		return segments.computeIfAbsent(tableName, this::createSegment);
+	}
+
+	private TableSegment createSegment(final String tableName)
+	{
+		final TableSegment segment = new TableSegment(tableName, maxKeysPerTable, expireMinutes);
+		CacheMgt.get().register(segment);
+		return segment;
+	}
+
+	/**
+	 * Invalidates all cached entries.
+	 *
+	 * @return how many record keys were invalidated
+	 */
+	public int reset()
+	{
+		int count = 0;
+		for (final TableSegment segment : segments.values())
+		{
+			count += segment.reset();
+		}
+		return count;
+	}
+
+	/**
+	 * @return how many record keys are cached
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (final TableSegment segment : segments.values())
+		{
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return how many keys were found in cache
+	 */
+	public long getHitCount()
+	{
+		return hits.sum();
+	}
+
+	/**
+	 * @return how many keys were not found in cache and had to be queried
+	 */
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	/**
+	 * @return how many times the missing keys were loaded (i.e. batch queries)
+	 */
+	public long getQueryCount()
+	{
+		return queries.sum();
+	}
+
+	/**
+	 * @return hits / (hits + misses), or <code>1</code> if nothing was requested yet
+	 */
+	public double getHitRatio()
+	{
+		final long hitCount = getHitCount();
+		final long requestCount = hitCount + getMissCount();
+		return requestCount == 0 ? 1.0 : (double)hitCount / requestCount;
+	}
+
+	/**
+	 * Display values of one lookup TableName, indexed by record key and then by effective SQL.
+	 */
+	private static final class TableSegment implements ITableAwareCacheInterface
+	{
+		private final String tableName;
+		private final Cache<Object, Map<String, NamePair>> valuesByKey;
+		/** Incremented on each invalidation */
+		private final AtomicLong version = new AtomicLong(0);
+		/** true if we cached values for non numeric keys (e.g. AD_Ref_List.Value), which cannot be matched against invalidated record IDs */
+		private volatile boolean hasNonNumericKeys = false;
+
+		public TableSegment(final String tableName, final int maxKeys, final int expireMinutes)
+		{
+			super();
+			this.tableName = tableName;
+			valuesByKey = CacheBuilder.newBuilder()
+					.maximumSize(maxKeys)
+					.expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+					.build();
+		}
+
+		@Override
+		public String toString()
+		{
+			return "LookupDisplayCache.TableSegment[" + tableName + ", size=" + size() + "]";
+		}
+
+		@Override
+		public String getName()
+		{
+			return LookupDisplayCache.class.getSimpleName() + "#" + tableName;
+		}
+
+		@Override
+		public String getTableName()
+		{
+			return tableName;
+		}
+
+		public long getVersion()
+		{
+			return version.get();
+		}
+
+		public NamePair get(final Object key, final String sql)
+		{
+			final Map<String, NamePair> valuesBySql = valuesByKey.getIfPresent(key);
+			return valuesBySql == null ? null : valuesBySql.get(sql);
+		}
+
+		public void putAll(final String sql, final Map<Object, NamePair> values, final long expectedVersion)
+		{
+			for (final Map.Entry<Object, NamePair> keyAndValue : values.entrySet())
+			{
+				if (version.get() != expectedVersion)
+				{
+					return;
+				}
+
+				final Map<String, NamePair> valuesBySql;
+				try
+				{
+					valuesBySql = valuesByKey.get(keyAndValue.getKey(), ConcurrentHashMap::new);
+				}
+				catch (final Exception e)
+				{
+					// shall not happen
+					throw new RuntimeException(e);
+				}
+				valuesBySql.put(sql, keyAndValue.getValue());
+
+				if (!(keyAndValue.getKey() instanceof Integer))
+				{
+					hasNonNumericKeys = true;
+				}
+			}
+		}
+
+		@Override
+		public int reset()
+		{
+			version.incrementAndGet();
+			final int count = size();
+			valuesByKey.invalidateAll();
+			hasNonNumericKeys = false;
+			return count;
+		}
+
+		@Override
+		public int size()
+		{
+			return (int)valuesByKey.size();
+		}
+
+		@Override
+		public int resetForRecordId(final String tableName, final Object key)
+		{
+			if (!this.tableName.equals(tableName))
+			{
+				return 0;
+			}
+
+			if (key == null || CacheMgt.RECORD_ID_ALL == toIntOrZero(key) || hasNonNumericKeys)
+			{
+				return reset();
+			}
+
+			version.incrementAndGet();
+			if (valuesByKey.getIfPresent(key) == null)
+			{
+				return 0;
+			}
+			valuesByKey.invalidate(key);
+			return 1;
+		}
+
+		private static int toIntOrZero(final Object key)
+		{
+			return key instanceof Number ? ((Number)key).intValue() : 0;
+		}
+	}
+}
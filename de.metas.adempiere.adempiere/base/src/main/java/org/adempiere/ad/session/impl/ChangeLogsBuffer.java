@@ -0,0 +1,163 @@
+package org.adempiere.ad.session.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.spi.TrxListenerAdapter;
+import org.slf4j.Logger;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.logging.LogManager;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects the AD_ChangeLog rows of one transaction and inserts them with one JDBC batch:
+ * <ul>
+ * <li>before the transaction is committed
+ * <li>before a savepoint is created, so that a rollback to that savepoint does not lose older change logs
+ * <li>when the buffer is full
+ * </ul>
+ * Once the transaction is committing, the change logs are inserted right away, because the before commit listeners which are called after this one
+ * (e.g. the ones which are saving on commit) might still save records.
+ * On rollback (also to a savepoint) the buffered rows are discarded, same as the rows which were already inserted in the transaction.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class ChangeLogsBuffer extends TrxListenerAdapter
+{
+	/** Gets/creates the change logs buffer of given transaction */
+	public static final ChangeLogsBuffer getCreate(final ITrx trx, final int maxSize)
+	{
+		return trx.getProperty(TRX_PROPERTY, () -> {
+			final ChangeLogsBuffer buffer = new ChangeLogsBuffer(trx.getTrxName(), maxSize);
+			trx.getTrxListenerManager().registerListener(buffer);
+			return buffer;
+		});
+	}
+
+	private static final String TRX_PROPERTY = ChangeLogsBuffer.class.getName();
+
+	private static final Logger logger = LogManager.getLogger(ChangeLogsBuffer.class);
+
+	private final String trxName;
+	private final int maxSize;
+	private final List<Object[]> rows = new ArrayList<>();
+	/** true from before commit until the transaction was committed or rolled back */
+	private boolean committing = false;
+
+	private ChangeLogsBuffer(final String trxName, final int maxSize)
+	{
+		super();
+		this.trxName = trxName;
+		this.maxSize = maxSize > 0 ? maxSize : 1;
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("trxName", trxName)
+				.add("rows", rows.size())
+				.add("maxSize", maxSize)
+				.add("committing", committing)
+				.toString();
+	}
+
+	/**
+	 * Adds the {@link SessionDAO#SQL_INSERT_CHANGELOG} parameters of one change log. If the buffer is full or the transaction is committing, it's flushed.
+	 */
+	public synchronized void add(final Object[] row)
+	{
+		rows.add(row);
+		if (committing || rows.size() >= maxSize)
+		{
+			flush();
+		}
+	}
+
+	@Override
+	public synchronized void beforeCommit(final ITrx trx)
+	{
+		committing = true;
+		flush();
+	}
+
+	@Override
+	public synchronized void afterCommit(final ITrx trx)
+	{
+		committing = false;
+	}
+
+	@Override
+	public void beforeSavepoint(final ITrx trx)
+	{
+		flush();
+	}
+
+	@Override
+	public synchronized void afterRollback(final ITrx trx)
+	{
+		committing = false;
+		discard();
+	}
+
+	@Override
+	public void afterRollbackToSavepoint(final ITrx trx)
+	{
+		discard();
+	}
+
+	@Override
+	public synchronized void afterClose(final ITrx trx)
+	{
+		committing = false;
+	}
+
+	private synchronized void discard()
+	{
+		if (rows.isEmpty())
+		{
+			return;
+		}
+
+		logger.trace("Discarded {} change logs because transaction was rolled back: {}", rows.size(), this);
+		rows.clear();
+	}
+
+	private synchronized void flush()
+	{
+		if (rows.isEmpty())
+		{
+			return;
+		}
+
+		final List<Object[]> rowsToInsert = ImmutableList.copyOf(rows);
+		rows.clear();
+		SessionDAO.insertChangeLogs(rowsToInsert, trxName);
+	}
+}
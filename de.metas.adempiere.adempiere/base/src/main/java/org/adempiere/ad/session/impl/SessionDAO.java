@@ -2,6 +2,7 @@ package org.adempiere.ad.session.impl;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -9,6 +10,10 @@ import java.util.List;
 import org.adempiere.ad.session.ChangeLogRecord;
 import org.adempiere.ad.session.ISessionDAO;
 import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Services;
 import org.adempiere.util.proxy.Cached;
 import org.compiere.model.I_AD_ChangeLog;
 import org.compiere.model.I_AD_Table;
@@ -86,6 +91,18 @@ public class SessionDAO implements ISessionDAO
 			+ ", ?" // UpdatedBy
 			+ ")";
 
+	/**
+	 * Max. change logs to be buffered per transaction before they are inserted. A value less or equal one disables the buffering.
+	 */
+	private static final String SYSCONFIG_ChangeLogsBufferSize = "org.adempiere.ad.session.impl.SessionDAO.ChangeLogsBufferSize";
+	private static final int DEFAULT_ChangeLogsBufferSize = 1000;
+
+	/**
+	 * Saves the given change logs.
+	 * <p>
+	 * If the change logs belong to a transaction, they are buffered and inserted together before the transaction is committed, see {@link ChangeLogsBuffer}.
+	 * Else they are inserted right away.
+	 */
 	@Override
 	public void saveChangeLogs(final Collection<ChangeLogRecord> records)
 	{
@@ -94,68 +111,97 @@ public class SessionDAO implements ISessionDAO
 			return;
 		}
 
-		PreparedStatement pstmt = null;
-		try
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final int bufferSize = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_ChangeLogsBufferSize, DEFAULT_ChangeLogsBufferSize);
+
+		List<Object[]> rowsToInsertNow = null;
+		for (final ChangeLogRecord record : records)
 		{
-			int countCreated = 0;
-			for (final ChangeLogRecord record : records)
+			if (record == null)
 			{
-				if (record == null)
-				{
-					continue;
-				}
+				continue;
+			}
 
-				// Null handling
-				final Object oldValue = record.getOldValue();
-				final Object newValue = record.getNewValue();
-				if (oldValue == null && newValue == null)
-				{
-					continue;
-				}
-				// Equal Value
-				if (oldValue != null && newValue != null && oldValue.equals(newValue))
-				{
-					continue;
-				}
+			// Null handling
+			final Object oldValue = record.getOldValue();
+			final Object newValue = record.getNewValue();
+			if (oldValue == null && newValue == null)
+			{
+				continue;
+			}
+			// Equal Value
+			if (oldValue != null && newValue != null && oldValue.equals(newValue))
+			{
+				continue;
+			}
 
-				//
-				final int AD_Table_ID = record.getAD_Table_ID();
-				if (!isLogged(AD_Table_ID))
-				{
-					continue;
-				}
+			//
+			final int AD_Table_ID = record.getAD_Table_ID();
+			if (!isLogged(AD_Table_ID))
+			{
+				continue;
+			}
+
+			final Object[] row = new Object[] {
+					AD_Table_ID //
+					, record.getAD_Column_ID() //
+					, record.getRecord_ID() //
+					//
+					, record.getAD_Session_ID() <= 0 ? null : record.getAD_Session_ID() // FRESH-314
+					, record.getAD_PInstance_ID() <= 0 ? null : record.getAD_PInstance_ID() // FRESH-314
+					, record.getEventType() // EventChangeLog (type)
+					, oldValue == null ? CHANGELOG_NullValue : oldValue.toString() //
+					, newValue == null ? CHANGELOG_NullValue : newValue.toString() //
+					, record.getTrxName() //
+					//
+					, record.getAD_Client_ID() //
+					, record.getAD_Org_ID() //
+					, record.getAD_User_ID() // CreatedBy
+					, record.getAD_User_ID() // UpdatedBy
+			};
 
-				if (pstmt == null)
+			final ITrx trx = bufferSize > 1 ? trxManager.get(record.getTrxName(), OnTrxMissingPolicy.ReturnTrxNone) : null;
+			if (trx != null && !trxManager.isNull(trx))
+			{
+				ChangeLogsBuffer.getCreate(trx, bufferSize).add(row);
+			}
+			else
+			{
+				if (rowsToInsertNow == null)
 				{
-					pstmt = DB.prepareStatement(SQL_INSERT_CHANGELOG, ITrx.TRXNAME_ThreadInherited);
+					rowsToInsertNow = new ArrayList<>();
 				}
-
-				DB.setParameters(pstmt, new Object[] {
-						AD_Table_ID //
-						, record.getAD_Column_ID() //
-						, record.getRecord_ID() //
-						//
-						, record.getAD_Session_ID() <= 0 ? null : record.getAD_Session_ID() // FRESH-314
-						, record.getAD_PInstance_ID() <= 0 ? null : record.getAD_PInstance_ID() // FRESH-314
-						, record.getEventType() // EventChangeLog (type)
-						, oldValue == null ? CHANGELOG_NullValue : oldValue.toString() //
-						, newValue == null ? CHANGELOG_NullValue : newValue.toString() //
-						, record.getTrxName() //
-						//
-						, record.getAD_Client_ID() //
-						, record.getAD_Org_ID() //
-						, record.getAD_User_ID() // CreatedBy
-						, record.getAD_User_ID() // UpdatedBy
-				});
-				pstmt.addBatch();
-				countCreated++;
+				rowsToInsertNow.add(row);
 			}
+		}
 
-			if (pstmt != null)
+		if (rowsToInsertNow != null)
+		{
+			insertChangeLogs(rowsToInsertNow, ITrx.TRXNAME_ThreadInherited);
+		}
+	}
+
+	/**
+	 * Inserts the given change log rows using one JDBC batch.
+	 * <p>
+	 * NOTE: change logs are not business critical, so errors are only logged.
+	 *
+	 * @param rows {@link #SQL_INSERT_CHANGELOG} parameters
+	 * @param trxName
+	 */
+	/* package */static void insertChangeLogs(final List<Object[]> rows, final String trxName)
+	{
+		PreparedStatement pstmt = null;
+		try
+		{
+			pstmt = DB.prepareStatement(SQL_INSERT_CHANGELOG, trxName);
+			for (final Object[] row : rows)
 			{
-				pstmt.executeBatch();
-				logger.trace("Created {} records", countCreated);
+				DB.setParameters(pstmt, row);
+				pstmt.addBatch();
 			}
+			pstmt.executeBatch();
+			logger.trace("Created {} records", rows.size());
 		}
 		catch (final Exception e)
 		{
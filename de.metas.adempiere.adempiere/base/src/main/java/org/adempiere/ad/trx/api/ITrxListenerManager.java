@@ -82,6 +82,10 @@ public interface ITrxListenerManager
 
 	void fireAfterRollback(ITrx trx);
 
+	void fireBeforeSavepoint(ITrx trx);
+
+	void fireAfterRollbackToSavepoint(ITrx trx);
+
 	void fireAfterClose(ITrx trx);
 
 }
@@ -215,7 +215,12 @@ public abstract class AbstractTrx implements ITrx
 		validateTrxSavepoint(savepoint);
 		try
 		{
-			return rollbackNative(savepoint);
+			final boolean success = rollbackNative(savepoint);
+			if (success)
+			{
+				getTrxListenerManager(false).fireAfterRollbackToSavepoint(this);
+			}
+			return success;
 		}
 		catch (Exception e)
 		{
@@ -278,6 +283,9 @@ public abstract class AbstractTrx implements ITrx
 	@Override
 	public ITrxSavepoint createTrxSavepoint(String name)
 	{
+		// Let the listeners write what they buffered so far, so that a rollback to this savepoint does not affect it
+		getTrxListenerManager(false).fireBeforeSavepoint(this);
+
 		final ITrxSavepoint savepoint;
 		try
 		{
@@ -91,6 +91,18 @@ import org.adempiere.ad.trx.spi.ITrxListener;
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public void fireBeforeSavepoint(final ITrx trx)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void fireAfterRollbackToSavepoint(final ITrx trx)
+	{
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public void fireAfterClose(ITrx trx)
 	{
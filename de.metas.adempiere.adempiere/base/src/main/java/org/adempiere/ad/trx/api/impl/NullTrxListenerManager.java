@@ -96,6 +96,24 @@ public final class NullTrxListenerManager implements ITrxListenerManager
 		// nothing
 	}
 
+	/**
+	 * Does nothing
+	 */
+	@Override
+	public void fireBeforeSavepoint(final ITrx trx)
+	{
+		// nothing
+	}
+
+	/**
+	 * Does nothing
+	 */
+	@Override
+	public void fireAfterRollbackToSavepoint(final ITrx trx)
+	{
+		// nothing
+	}
+
 	/**
 	 * Does nothing
 	 */
@@ -165,6 +165,61 @@ public class TrxListenerManager implements ITrxListenerManager
 		}
 	}
 
+	@Override
+	public void fireBeforeSavepoint(final ITrx trx)
+	{
+		if (listeners == null)
+		{
+			return;
+		}
+
+		for (final ITrxListener listener : listeners.hardList())
+		{
+			if (listener == null || !listener.isActive())
+			{
+				continue;
+			}
+
+			//
+			// Execute the "beforeSavepoint", but don't fail because we are not allowed to fail by method's contract
+			try
+			{
+				listener.beforeSavepoint(trx);
+			}
+			catch (Exception e)
+			{
+				logger.error("Error while invoking beforeSavepoint on transaction " + trx + " using " + listener + ". Error was discarded.", e);
+			}
+		}
+	}
+
+	@Override
+	public void fireAfterRollbackToSavepoint(final ITrx trx)
+	{
+		if (listeners == null)
+		{
+			return;
+		}
+
+		for (final ITrxListener listener : listeners.hardList())
+		{
+			if (listener == null || !listener.isActive())
+			{
+				continue;
+			}
+
+			//
+			// Execute the "afterRollbackToSavepoint", but don't fail because we are not allowed to fail by method's contract
+			try
+			{
+				listener.afterRollbackToSavepoint(trx);
+			}
+			catch (Exception e)
+			{
+				logger.error("Error while invoking afterRollbackToSavepoint on transaction " + trx + " using " + listener + ". Error was discarded.", e);
+			}
+		}
+	}
 
 	@Override
 	public void fireAfterClose(final ITrx trx)
@@ -60,6 +60,24 @@ public interface ITrxListener
 	 */
 	void afterRollback(ITrx trx);
 
+	/**
+	 * Method called before a savepoint is created in given transaction.
+	 *
+	 * If an exception is thrown from this method, the exception will be JUST logged but it will not fail or stop the execution.
+	 *
+	 * @param trx
+	 */
+	void beforeSavepoint(ITrx trx);
+
+	/**
+	 * Method called after a transaction was <b>successfully</b> rolled back to a savepoint.
+	 *
+	 * If an exception is thrown from this method, the exception will be JUST logged but it will not fail or stop the execution.
+	 *
+	 * @param trx
+	 */
+	void afterRollbackToSavepoint(ITrx trx);
+
 	/**
 	 * Method called after a transaction was closed (sucessfully or not).
 	 *
@@ -54,6 +54,18 @@ public abstract class TrxListenerAdapter implements ITrxListener
 		// nothing
 	}
 
+	@Override
+	public void beforeSavepoint(final ITrx trx)
+	{
+		// nothing
+	}
+
+	@Override
+	public void afterRollbackToSavepoint(final ITrx trx)
+	{
+		// nothing
+	}
+
 	@Override
 	public void afterClose(final ITrx trx)
 	{
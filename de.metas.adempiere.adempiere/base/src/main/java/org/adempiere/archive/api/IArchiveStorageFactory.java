@@ -39,6 +39,8 @@ public interface IArchiveStorageFactory extends ISingletonService
 {
 	String STORAGETYPE_Database = "DB";
 	String STORAGETYPE_Filesystem = "FS";
+	/** File system storage where the archive data is stored (and deduplicated) by its content hash */
+	String STORAGETYPE_ContentAddressed = "CAS";
 
 	/**
 	 * AccessMode - from where the archive is accessed (client side, server side)
@@ -29,11 +29,13 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.adempiere.archive.api.IArchiveStorageFactory;
 import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
 import org.adempiere.archive.spi.impl.DBArchiveStorage;
 import org.adempiere.archive.spi.impl.FilesystemArchiveStorage;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.IClientDAO;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
 import org.adempiere.util.proxy.Cached;
@@ -47,6 +49,11 @@ import de.metas.adempiere.util.CacheCtx;
 
 public class ArchiveStorageFactory implements IArchiveStorageFactory
 {
+	/**
+	 * If <code>true</code> and the client is storing its archives on file system, the new archives are stored in {@link ContentAddressedArchiveStorage}.
+	 */
+	private static final String SYSCONFIG_UseContentAddressedStorage = "org.adempiere.archive.api.impl.ArchiveStorageFactory.UseContentAddressedStorage";
+
 	private final Map<ArrayKey, Class<? extends IArchiveStorage>> storageClasses = new ConcurrentHashMap<ArrayKey, Class<? extends IArchiveStorage>>();
 
 	public ArchiveStorageFactory()
@@ -54,6 +61,7 @@ public class ArchiveStorageFactory implements IArchiveStorageFactory
 		// Register defaults
 		registerArchiveStorage(STORAGETYPE_Database, AccessMode.ALL, DBArchiveStorage.class);
 		registerArchiveStorage(STORAGETYPE_Filesystem, AccessMode.SERVER, FilesystemArchiveStorage.class);
+		registerArchiveStorage(STORAGETYPE_ContentAddressed, AccessMode.SERVER, ContentAddressedArchiveStorage.class);
 	}
 
 	private static final ArrayKey createStorageClassesKey(final String storageType, final AccessMode accessMode)
@@ -100,7 +108,8 @@ public class ArchiveStorageFactory implements IArchiveStorageFactory
 		final I_AD_Client client = Services.get(IClientDAO.class).retriveClient(ctx, adClientId);
 		if (client.isStoreArchiveOnFileSystem())
 		{
-			return STORAGETYPE_Filesystem;
+			final boolean useContentAddressedStorage = Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_UseContentAddressedStorage, false, adClientId);
+			return useContentAddressedStorage ? STORAGETYPE_ContentAddressed : STORAGETYPE_Filesystem;
 		}
 		else
 		{
@@ -112,6 +121,10 @@ public class ArchiveStorageFactory implements IArchiveStorageFactory
 	{
 		if (archive.isFileSystem())
 		{
+			if (ContentAddressedArchiveStorage.isContentAddressedReference(archive.getBinaryData()))
+			{
+				return STORAGETYPE_ContentAddressed;
+			}
 			return STORAGETYPE_Filesystem;
 		}
 		else
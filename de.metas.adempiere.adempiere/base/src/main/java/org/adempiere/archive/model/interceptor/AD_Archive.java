@@ -0,0 +1,53 @@
+package org.adempiere.archive.model.interceptor;
+
+import org.adempiere.ad.modelvalidator.annotations.Interceptor;
+import org.adempiere.ad.modelvalidator.annotations.ModelChange;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.model.ModelValidator;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Releases the blobs of {@link ContentAddressedArchiveStorage} which are no longer referenced by an archive, once the archive's transaction is committed.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@Interceptor(I_AD_Archive.class)
+public class AD_Archive
+{
+	@ModelChange(timings = ModelValidator.TYPE_AFTER_CHANGE, ifColumnsChanged = I_AD_Archive.COLUMNNAME_BinaryData)
+	public void releasePreviousBlob(final I_AD_Archive archive)
+	{
+		final I_AD_Archive archiveOld = InterfaceWrapperHelper.createOld(archive, I_AD_Archive.class);
+		ContentAddressedArchiveStorage.releaseBlobOnCommit(archive, archiveOld.getBinaryData());
+	}
+
+	@ModelChange(timings = ModelValidator.TYPE_AFTER_DELETE)
+	public void releaseBlob(final I_AD_Archive archive)
+	{
+		ContentAddressedArchiveStorage.releaseBlobOnCommit(archive, archive.getBinaryData());
+	}
+}
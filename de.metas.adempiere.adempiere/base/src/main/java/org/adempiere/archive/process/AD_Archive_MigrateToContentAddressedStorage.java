@@ -0,0 +1,124 @@
+package org.adempiere.archive.process;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.processor.api.ITrxItemProcessorExecutorService;
+import org.adempiere.ad.trx.processor.api.LoggableTrxItemExceptionHandler;
+import org.adempiere.ad.trx.processor.spi.TrxItemProcessorAdapter;
+import org.adempiere.archive.api.IArchiveBL;
+import org.adempiere.archive.api.IArchiveStorageFactory;
+import org.adempiere.archive.api.IArchiveStorageFactory.AccessMode;
+import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_AD_Archive;
+
+import de.metas.process.JavaProcess;
+
+/**
+ * Moves the current client's archives from database or plain file system storage to {@link ContentAddressedArchiveStorage}.
+ * <p>
+ * The archives are migrated in batches, each batch in its own transaction. Failed archives are logged and skipped, so the process can be run again.
+ * The old files of a file system storage are not deleted.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class AD_Archive_MigrateToContentAddressedStorage extends JavaProcess
+{
+	private static final int ItemsPerBatch = 100;
+
+	private final transient IArchiveBL archiveBL = Services.get(IArchiveBL.class);
+
+	@Override
+	protected String doIt() throws Exception
+	{
+		final IArchiveStorage contentAddressedStorage = Services.get(IArchiveStorageFactory.class)
+				.getArchiveStorage(getCtx(), IArchiveStorageFactory.STORAGETYPE_ContentAddressed, AccessMode.SERVER);
+
+		final Iterator<I_AD_Archive> archives = Services.get(IQueryBL.class)
+				.createQueryBuilder(I_AD_Archive.class, getCtx(), ITrx.TRXNAME_None)
+				.addOnlyContextClient()
+				.orderBy()
+				.addColumn(I_AD_Archive.COLUMNNAME_AD_Archive_ID)
+				.endOrderBy()
+				.create()
+				.iterate(I_AD_Archive.class);
+
+		final AtomicInteger countMigrated = new AtomicInteger();
+		final AtomicInteger countSkipped = new AtomicInteger();
+
+		Services.get(ITrxItemProcessorExecutorService.class)
+				.<I_AD_Archive, Void> createExecutor()
+				.setContext(getCtx(), ITrx.TRXNAME_None)
+				.setExceptionHandler(LoggableTrxItemExceptionHandler.instance)
+				.setItemsPerBatch(ItemsPerBatch)
+				.setProcessor(new TrxItemProcessorAdapter<I_AD_Archive, Void>()
+				{
+					@Override
+					public void process(final I_AD_Archive archive) throws Exception
+					{
+						if (migrateArchive(archive, contentAddressedStorage))
+						{
+							countMigrated.incrementAndGet();
+						}
+						else
+						{
+							countSkipped.incrementAndGet();
+						}
+					}
+				})
+				.process(archives);
+
+		return "@Updated@ #" + countMigrated.get() + ", @Skipped@ #" + countSkipped.get();
+	}
+
+	/**
+	 * @return true if the archive was migrated
+	 */
+	private boolean migrateArchive(final I_AD_Archive archive, final IArchiveStorage contentAddressedStorage)
+	{
+		if (ContentAddressedArchiveStorage.isContentAddressedReference(archive.getBinaryData()))
+		{
+			return false; // already migrated
+		}
+
+		// NOTE: fetching the data using the archive's current storage
+		final byte[] data = archiveBL.getBinaryData(archive);
+		if (data == null || data.length == 0)
+		{
+			log.debug("Skip {} because it has no data", archive);
+			return false;
+		}
+
+		contentAddressedStorage.setBinaryData(archive, data);
+		InterfaceWrapperHelper.save(archive);
+		return true;
+	}
+}
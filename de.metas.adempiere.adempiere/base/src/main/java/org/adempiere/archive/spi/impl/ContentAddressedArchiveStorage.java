@@ -0,0 +1,582 @@
+package org.adempiere.archive.spi.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.adempiere.ad.service.IDeveloperModeBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.ad.trx.spi.TrxListenerAdapter;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.IClientDAO;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Check;
+import org.adempiere.util.Services;
+import org.adempiere.util.StreamUtils;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.model.I_AD_Client;
+import org.compiere.util.Ini;
+import org.slf4j.Logger;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.Striped;
+
+import de.metas.logging.LogManager;
+
+/**
+ * File system archive storage which stores the archive data by its content hash (SHA-256).
+ * <p>
+ * Identical documents are stored only once. The blobs are kept in a sharded directory layout below the client's archive path, e.g.
+ *
+ * <pre>
+ * &lt;ArchivePath&gt;/cas/3f/a1/3fa1...e9.gz
+ * &lt;ArchivePath&gt;/cas/3f/a1/3fa1...e9.gz.refs
+ * </pre>
+ *
+ * The <code>.refs</code> file holds the number of archives which are referencing the blob.
+ * When an archive's data is replaced or the archive is deleted, the previous blob's reference count is decreased after the transaction is committed (see {@link #releaseBlobOnCommit(I_AD_Archive, byte[])})
+ * and the blob is deleted when it's not referenced anymore. When the transaction is rolled back, the reference which was added by {@link #setBinaryData(I_AD_Archive, byte[])} is released again.
+ * <p>
+ * All the changes of a blob and of its reference count are done while holding a file lock on the shard folder's <code>.lock</code> file,
+ * so the servers which are sharing the same archive path are not interfering with each other.
+ * <p>
+ * NOTE: if there is no transaction, a failed archive save leaves a blob with a too high reference count.
+ * That's on the safe side, because we never delete a blob which might still be referenced.
+ * <p>
+ * The archive's BinaryData contains only a reference to the blob (see {@link #isContentAddressedReference(byte[])}).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ContentAddressedArchiveStorage extends AbstractArchiveStorage
+{
+	private static final Logger logger = LogManager.getLogger(ContentAddressedArchiveStorage.class);
+
+	/** If <code>true</code> (default), the new blobs are stored gzip compressed */
+	private static final String SYSCONFIG_Compress = "org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage.Compress";
+
+	private static final String REFERENCE_PREFIX = "%CAS%";
+	private static final String FORMAT_Compressed = "gz";
+	private static final String FORMAT_Raw = "bin";
+	private static final String REFCOUNT_FileExtension = ".refs";
+	private static final String LOCK_FileName = ".lock";
+	private static final String STORAGE_Folder = "cas";
+
+	/**
+	 * JVM level locks, per shard folder. Between JVMs we rely on file locks on the shard folder's <code>.lock</code> file.
+	 * We need both because a JVM can hold only one lock on the same file, so two threads locking the same shard folder would get an {@link java.nio.channels.OverlappingFileLockException}.
+	 */
+	private static final Striped<Lock> shardFolderLocks = Striped.lock(64);
+
+	private String storageRoot;
+	private boolean compress;
+
+	public ContentAddressedArchiveStorage()
+	{
+		super();
+	}
+
+	@Override
+	public void init(final Properties ctx, final int adClientId)
+	{
+		final I_AD_Client client = Services.get(IClientDAO.class).retriveClient(ctx, adClientId);
+		this.storageRoot = FilesystemArchiveStorage.getArchivePath(client) + STORAGE_Folder + File.separator;
+		this.compress = Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_Compress, true, adClientId);
+		logger.debug("Storage Path: {}, Compress={}, Config={}", storageRoot, compress, client);
+	}
+
+	private final void checkContext()
+	{
+		Check.assume(!Ini.isClient() || Services.get(IDeveloperModeBL.class).isEnabled(), "Server mode required");
+
+		if (Check.isEmpty(storageRoot, true))
+		{
+			throw new IllegalArgumentException("ContentAddressedArchiveStorage is not configured. No root path defined.");
+		}
+	}
+
+	/**
+	 * @param archiveBinaryData an archive's BinaryData
+	 * @return true if the given BinaryData is a reference to a blob of this storage
+	 */
+	public static boolean isContentAddressedReference(final byte[] archiveBinaryData)
+	{
+		if (archiveBinaryData == null || archiveBinaryData.length <= REFERENCE_PREFIX.length())
+		{
+			return false;
+		}
+
+		final String prefix = new String(archiveBinaryData, 0, REFERENCE_PREFIX.length(), StandardCharsets.UTF_8);
+		return REFERENCE_PREFIX.equals(prefix);
+	}
+
+	@Override
+	public I_AD_Archive newArchive(final Properties ctx, final String trxName)
+	{
+		checkContext();
+
+		final I_AD_Archive archive = super.newArchive(ctx, trxName);
+		archive.setIsFileSystem(true);
+		return archive;
+	}
+
+	@Override
+	public byte[] getBinaryData(final I_AD_Archive archive)
+	{
+		final InputStream in = getBinaryDataAsStream(archive);
+		if (in == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return ByteStreams.toByteArray(in);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed reading the data of " + archive, e);
+		}
+		finally
+		{
+			Closeables.closeQuietly(in);
+		}
+	}
+
+	/**
+	 * @return a stream which is reading the blob directly from file system
+	 */
+	@Override
+	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+	{
+		checkContext();
+
+		final BlobRef blobRef = BlobRef.ofArchiveOrNull(archive);
+		if (blobRef == null)
+		{
+			return null;
+		}
+
+		final File blobFile = getBlobFile(blobRef);
+		if (!blobFile.exists())
+		{
+			throw new AdempiereException("File not found: " + blobFile.getAbsolutePath());
+		}
+
+		InputStream in = null;
+		try
+		{
+			in = new BufferedInputStream(new FileInputStream(blobFile));
+			if (blobRef.isCompressed())
+			{
+				in = new GZIPInputStream(in);
+			}
+			return in;
+		}
+		catch (final IOException e)
+		{
+			Closeables.closeQuietly(in);
+			throw new AdempiereException("Failed reading " + blobFile.getAbsolutePath(), e);
+		}
+	}
+
+	@Override
+	public void setBinaryData(final I_AD_Archive archive, final byte[] inflatedData)
+	{
+		checkContext();
+
+		if (inflatedData == null || inflatedData.length == 0)
+		{
+			throw new IllegalArgumentException("InflatedData is NULL");
+		}
+
+		final String hash = computeHash(inflatedData);
+		final BlobRef blobRef = storeBlob(hash, inflatedData);
+		releaseBlobOnRollback(archive, blobRef);
+
+		// NOTE: the previous blob (if any) is released by the AD_Archive model interceptor, after the archive was saved and the transaction committed
+		archive.setBinaryData(blobRef.toReferenceString().getBytes(StandardCharsets.UTF_8));
+		archive.setIsFileSystem(true);
+	}
+
+	/**
+	 * If the archive is saved in a transaction, releases the given (just stored) blob when the transaction is rolled back.
+	 */
+	private void releaseBlobOnRollback(final I_AD_Archive archive, final BlobRef blobRef)
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx archiveTrx = trxManager.get(InterfaceWrapperHelper.getTrxName(archive), OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isNull(archiveTrx) || !archiveTrx.isActive())
+		{
+			return;
+		}
+
+		archiveTrx.getTrxListenerManager().registerListener(new TrxListenerAdapter()
+		{
+			@Override
+			public void afterRollback(final ITrx trx)
+			{
+				releaseBlobQuietly(blobRef);
+			}
+		});
+	}
+
+	/**
+	 * Releases the blob which is referenced by given archive BinaryData, after the archive's transaction was committed (or right away if there is no transaction).
+	 * <p>
+	 * To be called after the archive was saved with a different BinaryData (using the old BinaryData) or after the archive was deleted.
+	 *
+	 * @param archive archive, used to get the transaction and the AD_Client_ID
+	 * @param binaryData BinaryData which was referencing the blob; if it's not a content addressed reference, nothing happens
+	 */
+	public static void releaseBlobOnCommit(final I_AD_Archive archive, final byte[] binaryData)
+	{
+		final BlobRef blobRef = BlobRef.ofBinaryDataOrNull(binaryData, archive);
+		if (blobRef == null)
+		{
+			return;
+		}
+
+		if (Ini.isClient() && !Services.get(IDeveloperModeBL.class).isEnabled())
+		{
+			logger.warn("Cannot release {} on client side. The blob won't be deleted.", blobRef);
+			return;
+		}
+
+		final Properties ctx = InterfaceWrapperHelper.getCtx(archive);
+		final int adClientId = archive.getAD_Client_ID();
+		Services.get(ITrxManager.class)
+				.getTrxListenerManagerOrAutoCommit(InterfaceWrapperHelper.getTrxName(archive))
+				.onAfterCommit(() -> {
+					final ContentAddressedArchiveStorage storage = new ContentAddressedArchiveStorage();
+					storage.init(ctx, adClientId);
+					storage.releaseBlobQuietly(blobRef);
+				});
+	}
+
+	private static String computeHash(final byte[] data)
+	{
+		try
+		{
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return BaseEncoding.base16().lowerCase().encode(digest.digest(data));
+		}
+		catch (final NoSuchAlgorithmException e)
+		{
+			throw new AdempiereException("SHA-256 is not supported", e);
+		}
+	}
+
+	private File getBlobFolder(final String hash)
+	{
+		return new File(storageRoot
+				+ hash.substring(0, 2) + File.separator
+				+ hash.substring(2, 4) + File.separator);
+	}
+
+	private File getBlobFile(final BlobRef blobRef)
+	{
+		return new File(getBlobFolder(blobRef.getHash()), blobRef.getFileName());
+	}
+
+	private File getRefCountFile(final BlobRef blobRef)
+	{
+		return new File(getBlobFolder(blobRef.getHash()), blobRef.getFileName() + REFCOUNT_FileExtension);
+	}
+
+	/**
+	 * Stores the given data, unless a blob with the same hash already exists, and increments the blob's reference count.
+	 */
+	private BlobRef storeBlob(final String hash, final byte[] data)
+	{
+		return executeWithBlobLock(hash, () -> {
+			//
+			// Check if we already have the blob, in any format
+			final BlobRef blobRefCompressed = BlobRef.of(hash, FORMAT_Compressed);
+			final BlobRef blobRefRaw = BlobRef.of(hash, FORMAT_Raw);
+			BlobRef blobRef;
+			if (getBlobFile(blobRefCompressed).exists())
+			{
+				blobRef = blobRefCompressed;
+			}
+			else if (getBlobFile(blobRefRaw).exists())
+			{
+				blobRef = blobRefRaw;
+			}
+			else
+			{
+				blobRef = compress ? blobRefCompressed : blobRefRaw;
+				writeBlobFile(blobRef, data);
+			}
+
+			final int refCount = updateRefCount(blobRef, +1);
+			logger.debug("Stored {} (refCount={})", blobRef, refCount);
+			return blobRef;
+		});
+	}
+
+	/**
+	 * Executes the given callable while holding the JVM lock and the file lock of the blob's shard folder.
+	 */
+	private <T> T executeWithBlobLock(final String hash, final Supplier<T> callable)
+	{
+		final File folder = getBlobFolder(hash);
+		if (!folder.exists() && !folder.mkdirs() && !folder.exists())
+		{
+			throw new AdempiereException("Unable to create folder: " + folder.getPath());
+		}
+
+		// NOTE: the JVM lock shall be per shard folder and not per hash, because the file lock is per shard folder too
+		final Lock lock = shardFolderLocks.get(folder.getAbsoluteFile().toPath().normalize().toString());
+		lock.lock();
+		try (final RandomAccessFile raf = new RandomAccessFile(new File(folder, LOCK_FileName), "rw");
+				final FileChannel channel = raf.getChannel())
+		{
+			channel.lock(); // released when the channel is closed
+			return callable.get();
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed locking the blob " + hash + " in " + folder, e);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the blob to a temporary file and moves it to its final location. So a blob file is either missing or complete.
+	 */
+	private void writeBlobFile(final BlobRef blobRef, final byte[] data)
+	{
+		final File blobFile = getBlobFile(blobRef);
+		final File folder = blobFile.getParentFile();
+
+		File tempFile = null;
+		OutputStream out = null;
+		try
+		{
+			tempFile = File.createTempFile(blobRef.getHash(), ".tmp", folder);
+			out = new BufferedOutputStream(new FileOutputStream(tempFile));
+			if (blobRef.isCompressed())
+			{
+				out = new GZIPOutputStream(out);
+			}
+			out.write(data);
+			out.close();
+			out = null;
+
+			Files.move(tempFile.toPath(), blobFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			tempFile = null;
+		}
+		catch (final FileAlreadyExistsException e)
+		{
+			// shall not happen because we are holding the blob lock, but it's fine anyways because it has the same content
+			logger.debug("Blob {} was already stored in meantime", blobRef);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Error saving data to filesystem (blob=" + blobRef + ")", e);
+		}
+		finally
+		{
+			StreamUtils.close(out);
+			if (tempFile != null && tempFile.exists() && !tempFile.delete())
+			{
+				logger.warn("Unable to delete temporary file: {}", tempFile);
+			}
+		}
+	}
+
+	/**
+	 * Decrements the blob's reference count and deletes the blob if it's not referenced anymore.
+	 */
+	private void releaseBlob(final BlobRef blobRef)
+	{
+		executeWithBlobLock(blobRef.getHash(), () -> {
+			final int refCount = updateRefCount(blobRef, -1);
+			if (refCount > 0)
+			{
+				return null;
+			}
+
+			final File blobFile = getBlobFile(blobRef);
+			final File refCountFile = getRefCountFile(blobRef);
+			if (!blobFile.delete() || !refCountFile.delete())
+			{
+				logger.warn("Unable to delete unreferenced blob {}", blobRef);
+			}
+			else
+			{
+				logger.debug("Deleted unreferenced blob {}", blobRef);
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Same as {@link #releaseBlob(BlobRef)} but it only logs the errors, because it's called after the transaction was committed or rolled back.
+	 */
+	private void releaseBlobQuietly(final BlobRef blobRef)
+	{
+		try
+		{
+			releaseBlob(blobRef);
+		}
+		catch (final Exception e)
+		{
+			logger.warn("Failed releasing {}. The blob won't be deleted.", blobRef, e);
+		}
+	}
+
+	/**
+	 * Adds <code>delta</code> to blob's reference count. To be called while holding the blob lock.
+	 *
+	 * @return new reference count
+	 */
+	private int updateRefCount(final BlobRef blobRef, final int delta)
+	{
+		final File refCountFile = getRefCountFile(blobRef);
+		try (final RandomAccessFile raf = new RandomAccessFile(refCountFile, "rw");
+				final FileChannel channel = raf.getChannel())
+		{
+			final int refCountOld = channel.size() >= 4 ? raf.readInt() : 0;
+			final int refCountNew = Math.max(refCountOld + delta, 0);
+
+			final ByteBuffer buffer = ByteBuffer.allocate(4);
+			buffer.putInt(refCountNew);
+			buffer.flip();
+			channel.write(buffer, 0);
+			channel.force(false);
+
+			return refCountNew;
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed updating the reference count of " + blobRef, e);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ContentAddressedArchiveStorage [RootPath=" + storageRoot + ", Compress=" + compress + "]";
+	}
+
+	/**
+	 * Reference to a stored blob; it's persisted in archive's BinaryData as <code>%CAS%format:hash</code>.
+	 */
+	private static final class BlobRef
+	{
+		public static BlobRef of(final String hash, final String format)
+		{
+			return new BlobRef(hash, format);
+		}
+
+		public static BlobRef ofArchiveOrNull(final I_AD_Archive archive)
+		{
+			return ofBinaryDataOrNull(archive.getBinaryData(), archive);
+		}
+
+		public static BlobRef ofBinaryDataOrNull(final byte[] binaryData, final I_AD_Archive archive)
+		{
+			if (!isContentAddressedReference(binaryData))
+			{
+				return null;
+			}
+
+			final String reference = new String(binaryData, StandardCharsets.UTF_8).substring(REFERENCE_PREFIX.length());
+			final int idx = reference.indexOf(':');
+			if (idx <= 0)
+			{
+				throw new AdempiereException("Invalid blob reference '" + reference + "' for " + archive);
+			}
+
+			return new BlobRef(reference.substring(idx + 1), reference.substring(0, idx));
+		}
+
+		private final String hash;
+		private final String format;
+
+		private BlobRef(final String hash, final String format)
+		{
+			super();
+			Check.assume(hash != null && hash.length() > 4, "valid hash: {}", hash);
+			this.hash = hash;
+			this.format = format;
+		}
+
+		@Override
+		public String toString()
+		{
+			return toReferenceString();
+		}
+
+		public String toReferenceString()
+		{
+			return REFERENCE_PREFIX + format + ":" + hash;
+		}
+
+		public String getHash()
+		{
+			return hash;
+		}
+
+		public boolean isCompressed()
+		{
+			return FORMAT_Compressed.equals(format);
+		}
+
+		public String getFileName()
+		{
+			return hash + "." + format;
+		}
+	}
+}
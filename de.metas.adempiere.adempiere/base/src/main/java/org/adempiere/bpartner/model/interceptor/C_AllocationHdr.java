@@ -0,0 +1,66 @@
+package org.adempiere.bpartner.model.interceptor;
+
+import org.adempiere.ad.modelvalidator.annotations.Interceptor;
+import org.adempiere.ad.modelvalidator.annotations.ModelChange;
+import org.adempiere.bpartner.service.IBPartnerStatsDAO;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_C_AllocationHdr;
+import org.compiere.model.I_C_AllocationLine;
+import org.compiere.model.I_C_Invoice;
+import org.compiere.model.I_C_Payment;
+import org.compiere.model.ModelValidator;
+
+import de.metas.allocation.api.IAllocationDAO;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Updates the open items of the allocated invoices and payments, because a (partial) allocation changes their open amounts
+ * even if their <code>IsPaid</code> or <code>IsAllocated</code> flags don't change.
+ * 
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@Interceptor(I_C_AllocationHdr.class)
+public class C_AllocationHdr
+{
+	@ModelChange(timings = ModelValidator.TYPE_AFTER_CHANGE, ifColumnsChanged = { I_C_AllocationHdr.COLUMNNAME_DocStatus, I_C_AllocationHdr.COLUMNNAME_IsActive })
+	public void updateOpenItems(final I_C_AllocationHdr allocationHdr)
+	{
+		final IBPartnerStatsDAO bpStatsDAO = Services.get(IBPartnerStatsDAO.class);
+		final String trxName = InterfaceWrapperHelper.getTrxName(allocationHdr);
+
+		for (final I_C_AllocationLine line : Services.get(IAllocationDAO.class).retrieveAllLines(allocationHdr))
+		{
+			if (line.getC_Invoice_ID() > 0)
+			{
+				bpStatsDAO.updateOpenItem(I_C_Invoice.Table_Name, line.getC_Invoice_ID(), trxName);
+			}
+			if (line.getC_Payment_ID() > 0)
+			{
+				bpStatsDAO.updateOpenItem(I_C_Payment.Table_Name, line.getC_Payment_ID(), trxName);
+			}
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package org.adempiere.bpartner.model.interceptor;
+
+import org.adempiere.ad.modelvalidator.annotations.Interceptor;
+import org.adempiere.ad.modelvalidator.annotations.ModelChange;
+import org.adempiere.bpartner.service.IBPartnerStatsDAO;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_C_Invoice;
+import org.compiere.model.ModelValidator;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Keeps the invoice's open item (and so the partner's TotalOpenBalance and SOCreditUsed) up to date.
+ * 
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+@Interceptor(I_C_Invoice.class)
+public class C_Invoice
+{
+	@ModelChange(timings = { ModelValidator.TYPE_AFTER_NEW, ModelValidator.TYPE_AFTER_CHANGE }, ifColumnsChanged = { I_C_Invoice.COLUMNNAME_DocStatus, I_C_Invoice.COLUMNNAME_IsPaid })
+	public void updateOpenItem(final I_C_Invoice invoice)
+	{
+		Services.get(IBPartnerStatsDAO.class).updateOpenItem(I_C_Invoice.Table_Name, invoice.getC_Invoice_ID(), InterfaceWrapperHelper.getTrxName(invoice));
+	}
+}
@@ -0,0 +1,51 @@
+package org.adempiere.bpartner.process;
+
+import org.adempiere.bpartner.service.IBPartnerStatsDAO;
+import org.adempiere.util.Services;
+import org.compiere.model.I_C_BPartner;
+
+import de.metas.process.JavaProcess;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Rebuilds the open items and corrects the TotalOpenBalance and SOCreditUsed of the current partner, or of all partners if not started from a partner.
+ * <p>
+ * The open items are maintained incrementally; run this process if you suspect that they drifted, e.g. after manual DB updates.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class C_BPartner_OpenItem_Reconcile extends JavaProcess
+{
+	@Override
+	protected String doIt() throws Exception
+	{
+		final int bpartnerId = I_C_BPartner.Table_Name.equals(getTableName()) ? getRecord_ID() : -1;
+
+		final int countCorrected = Services.get(IBPartnerStatsDAO.class).reconcileOpenItems(bpartnerId);
+		addLog("Corrected {} C_BPartner_Stats", countCorrected);
+
+		return MSG_OK;
+	}
+}
@@ -42,8 +42,7 @@ public interface IBPartnerStatsDAO extends ISingletonService
 	IBPartnerStats retrieveBPartnerStats(I_C_BPartner partner);
 
 	/**
-	 * Retrieve the total open balance value for the given stats using the old legacy sql
-	 * Note: This will have to be re-implemented in order to not search in the db each time a new document is created.
+	 * Retrieve the total open balance value for the given stats, i.e. the sum of the partner's open items (see {@link #updateOpenItem(String, int, String)}).
 	 * 
 	 * @param stats
 	 * @return
@@ -51,8 +50,7 @@ public interface IBPartnerStatsDAO extends ISingletonService
 	BigDecimal retrieveTotalOpenBalance(IBPartnerStats stats);
 
 	/**
-	 * Retrieve the SOCreditUsed value for the given stats using the old legacy sql
-	 * Note: This will have to be re-implemented in order to not search in the db each time a new document is created.
+	 * Update the SOCreditUsed value for the given stats, using the sum of the partner's open items (see {@link #updateOpenItem(String, int, String)}).
 	 * 
 	 * @param stats
 	 * @return
@@ -91,9 +89,27 @@ public interface IBPartnerStatsDAO extends ISingletonService
 	void updateSOCreditStatus(IBPartnerStats bpStats);
 
 	/**
-	 * Update the TotalOpenBalance based on the legacy sql
+	 * Update the TotalOpenBalance, using the sum of the partner's open items (see {@link #updateOpenItem(String, int, String)}).
 	 * 
 	 * @param bpStats
 	 */
 	void updateTotalOpenBalance(IBPartnerStats bpStats);
+
+	/**
+	 * Recomputes the open item of the given invoice or payment and applies the difference to the TotalOpenBalance and SOCreditUsed of its partner's stats.
+	 * That's how the stats are kept up to date without summing up all the partner's invoices and payments on each credit check.
+	 * 
+	 * @param tableName {@link org.compiere.model.I_C_Invoice#Table_Name} or {@link org.compiere.model.I_C_Payment#Table_Name}
+	 * @param recordId
+	 * @param trxName
+	 */
+	void updateOpenItem(String tableName, int recordId, String trxName);
+
+	/**
+	 * Rebuilds the open items of the given partner and corrects its TotalOpenBalance and SOCreditUsed if they drifted.
+	 * 
+	 * @param bpartnerId partner or <code>-1</code> for all partners
+	 * @return how many stats were corrected
+	 */
+	int reconcileOpenItems(int bpartnerId);
 }
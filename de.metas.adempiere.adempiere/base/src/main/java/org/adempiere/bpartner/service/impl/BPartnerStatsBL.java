@@ -62,8 +62,9 @@ public class BPartnerStatsBL implements IBPartnerStatsBL
 		}
 
 		// Above (reduced) Credit Limit
+		// Note: the total open balance is maintained incrementally (see IBPartnerStatsDAO.updateOpenItem), so no need to compute it here
 		creditLimit = creditLimit.subtract(additionalAmt);
-		if (creditLimit.compareTo(bpStatsDAO.retrieveTotalOpenBalance(bpStats)) < 0)
+		if (creditLimit.compareTo(bpStats.getTotalOpenBalance()) < 0)
 		{
 			return X_C_BPartner_Stats.SOCREDITSTATUS_CreditHold;
 		}
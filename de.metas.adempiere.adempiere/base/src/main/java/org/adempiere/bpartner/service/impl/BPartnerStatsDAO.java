@@ -7,6 +7,7 @@ import java.sql.SQLException;
 import java.util.Properties;
 
 import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.table.api.IADTableDAO;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.bpartner.service.IBPartnerStats;
 import org.adempiere.bpartner.service.IBPartnerStatsBL;
@@ -44,6 +45,9 @@ import org.compiere.util.Env;
 
 public class BPartnerStatsDAO implements IBPartnerStatsDAO
 {
+	/** Open item ledger; technical table, without application dictionary */
+	private static final String TABLENAME_C_BPartner_OpenItem = "C_BPartner_OpenItem";
+
 	@Override
 	public IBPartnerStats retrieveBPartnerStats(final I_C_BPartner partner)
 	{
@@ -78,8 +82,9 @@ public class BPartnerStatsDAO implements IBPartnerStatsDAO
 		stat.setC_BPartner(partner);
 		stat.setSOCreditStatus(X_C_BPartner_Stats.SOCREDITSTATUS_NoCreditCheck);
 		stat.setActualLifeTimeValue(Env.ZERO);
-		stat.setSO_CreditUsed(Env.ZERO);
-		stat.setTotalOpenBalance(Env.ZERO);
+		// the partner might already have open items, e.g. when the stats were deleted
+		stat.setSO_CreditUsed(retrieveOpenItemsSum(partner.getC_BPartner_ID(), "SO_CreditUsed"));
+		stat.setTotalOpenBalance(retrieveOpenItemsSum(partner.getC_BPartner_ID(), "OpenBalance"));
 
 		InterfaceWrapperHelper.save(stat);
 
@@ -89,51 +94,7 @@ public class BPartnerStatsDAO implements IBPartnerStatsDAO
 	@Override
 	public BigDecimal retrieveTotalOpenBalance(final IBPartnerStats bpStats)
 	{
-		final I_C_BPartner_Stats stats = getC_BPartner_Stats(bpStats);
-
-		final String trxName = ITrx.TRXNAME_ThreadInherited;
-
-		BigDecimal totalOpenBalance = null;
-
-		// Legacy sql
-
-		// AZ Goodwill -> BF2041226 : only count completed/closed docs.
-		final Object[] sqlParams = new Object[] { stats.getC_BPartner_ID() };
-		final String sql = "SELECT "
-				// SO Credit Used
-				+ "COALESCE((SELECT SUM(currencyBase(invoiceOpen(i.C_Invoice_ID,i.C_InvoicePaySchedule_ID),i.C_Currency_ID,i.DateInvoiced, i.AD_Client_ID,i.AD_Org_ID)) FROM C_Invoice_v i "
-				+ "WHERE i.C_BPartner_ID=bp.C_BPartner_ID AND i.IsSOTrx='Y' AND i.IsPaid='N' AND i.DocStatus IN ('CO','CL')),0), "
-				// Balance (incl. unallocated payments)
-				+ "COALESCE((SELECT SUM(currencyBase(invoiceOpen(i.C_Invoice_ID,i.C_InvoicePaySchedule_ID),i.C_Currency_ID,i.DateInvoiced, i.AD_Client_ID,i.AD_Org_ID)*i.MultiplierAP) FROM C_Invoice_v i "
-				+ "WHERE i.C_BPartner_ID=bp.C_BPartner_ID AND i.IsPaid='N' AND i.DocStatus IN ('CO','CL')),0) - "
-				+ "COALESCE((SELECT SUM(currencyBase(Paymentavailable(p.C_Payment_ID),p.C_Currency_ID,p.DateTrx,p.AD_Client_ID,p.AD_Org_ID)) FROM C_Payment_v p "
-				+ "WHERE p.C_BPartner_ID=bp.C_BPartner_ID AND p.IsAllocated='N'"
-				+ " AND p.C_Charge_ID IS NULL AND p.DocStatus IN ('CO','CL')),0) "
-				+ "FROM C_BPartner bp " + "WHERE C_BPartner_ID=?";
-		PreparedStatement pstmt = null;
-		ResultSet rs = null;
-
-		try
-		{
-			pstmt = DB.prepareStatement(sql, trxName);
-			DB.setParameters(pstmt, sqlParams);
-			rs = pstmt.executeQuery();
-			if (rs.next())
-			{
-
-				totalOpenBalance = rs.getBigDecimal(2);
-			}
-		}
-		catch (SQLException e)
-		{
-			throw new DBException(e, sql, sqlParams);
-		}
-		finally
-		{
-			DB.close(rs, pstmt);
-		}
-
-		return totalOpenBalance;
+		return retrieveOpenItemsSum(bpStats.getC_BPartner_ID(), "OpenBalance");
 	}
 
 	@Override
@@ -141,50 +102,37 @@ public class BPartnerStatsDAO implements IBPartnerStatsDAO
 	{
 		final I_C_BPartner_Stats stats = getC_BPartner_Stats(bpStats);
 
-		final String trxName = ITrx.TRXNAME_ThreadInherited;
+		final BigDecimal SO_CreditUsed = retrieveOpenItemsSum(stats.getC_BPartner_ID(), "SO_CreditUsed");
+		stats.setSO_CreditUsed(SO_CreditUsed);
 
-		BigDecimal SO_CreditUsed = null;
+		InterfaceWrapperHelper.save(stats);
+	}
 
-		// Legacy sql
+	/**
+	 * Sums up the given column of the partner's open items.
+	 * Note: the C_BPartner_OpenItem rows are maintained by {@link #updateOpenItem(String, int, String)}; their amounts are already in base currency.
+	 */
+	private BigDecimal retrieveOpenItemsSum(final int bpartnerId, final String columnName)
+	{
+		final String sql = "SELECT COALESCE(SUM(" + columnName + "),0) FROM " + TABLENAME_C_BPartner_OpenItem + " WHERE C_BPartner_ID=?";
+		return DB.getSQLValueBDEx(ITrx.TRXNAME_ThreadInherited, sql, bpartnerId);
+	}
 
-		final Object[] sqlParams = new Object[] { stats.getC_BPartner_ID() };
-		// AZ Goodwill -> BF2041226 : only count completed/closed docs.
-		final String sql = "SELECT "
-				// SO Credit Used
-				+ "COALESCE((SELECT SUM(currencyBase(invoiceOpen(i.C_Invoice_ID,i.C_InvoicePaySchedule_ID),i.C_Currency_ID,i.DateInvoiced, i.AD_Client_ID,i.AD_Org_ID)) FROM C_Invoice_v i "
-				+ "WHERE i.C_BPartner_ID=bp.C_BPartner_ID AND i.IsSOTrx='Y' AND i.IsPaid='N' AND i.DocStatus IN ('CO','CL')),0), "
-				// Balance (incl. unallocated payments)
-				+ "COALESCE((SELECT SUM(currencyBase(invoiceOpen(i.C_Invoice_ID,i.C_InvoicePaySchedule_ID),i.C_Currency_ID,i.DateInvoiced, i.AD_Client_ID,i.AD_Org_ID)*i.MultiplierAP) FROM C_Invoice_v i "
-				+ "WHERE i.C_BPartner_ID=bp.C_BPartner_ID AND i.IsPaid='N' AND i.DocStatus IN ('CO','CL')),0) - "
-				+ "COALESCE((SELECT SUM(currencyBase(Paymentavailable(p.C_Payment_ID),p.C_Currency_ID,p.DateTrx,p.AD_Client_ID,p.AD_Org_ID)) FROM C_Payment_v p "
-				+ "WHERE p.C_BPartner_ID=bp.C_BPartner_ID AND p.IsAllocated='N'"
-				+ " AND p.C_Charge_ID IS NULL AND p.DocStatus IN ('CO','CL')),0) "
-				+ "FROM C_BPartner bp " + "WHERE C_BPartner_ID=?";
-		PreparedStatement pstmt = null;
-		ResultSet rs = null;
-		try
-		{
-			pstmt = DB.prepareStatement(sql, trxName);
-			DB.setParameters(pstmt, sqlParams);
-			rs = pstmt.executeQuery();
-			if (rs.next())
-			{
-				SO_CreditUsed = rs.getBigDecimal(1);
-			}
+	@Override
+	public void updateOpenItem(final String tableName, final int recordId, final String trxName)
+	{
+		final int adTableId = Services.get(IADTableDAO.class).retrieveTableId(tableName);
+		DB.executeFunctionCallEx(trxName, "SELECT C_BPartner_OpenItem_Update(?,?)", new Object[] { adTableId, recordId });
+	}
 
-		}
-		catch (SQLException e)
-		{
-			throw new DBException(e, sql, sqlParams);
-		}
-		finally
+	@Override
+	public int reconcileOpenItems(final int bpartnerId)
+	{
+		if (bpartnerId <= 0)
 		{
-			DB.close(rs, pstmt);
+			return DB.getSQLValueEx(ITrx.TRXNAME_ThreadInherited, "SELECT C_BPartner_OpenItem_Reconcile(NULL)");
 		}
-
-		stats.setSO_CreditUsed(SO_CreditUsed);
-
-		InterfaceWrapperHelper.save(stats);
+		return DB.getSQLValueEx(ITrx.TRXNAME_ThreadInherited, "SELECT C_BPartner_OpenItem_Reconcile(?)", bpartnerId);
 	}
 
 	@Override
@@ -250,8 +198,11 @@ public class BPartnerStatsDAO implements IBPartnerStatsDAO
 				|| Env.ZERO.compareTo(creditLimit) == 0)
 			return;
 
+		// the total open balance is maintained incrementally, so we don't have to compute it here
+		final BigDecimal totalOpenBalance = getC_BPartner_Stats(bpStats).getTotalOpenBalance();
+
 		// Above Credit Limit
-		if (creditLimit.compareTo(retrieveTotalOpenBalance(bpStats)) < 0)
+		if (creditLimit.compareTo(totalOpenBalance) < 0)
 		{
 			creditStatusToSet = X_C_BPartner_Stats.SOCREDITSTATUS_CreditHold;
 		}
@@ -260,7 +211,7 @@ public class BPartnerStatsDAO implements IBPartnerStatsDAO
 			// Above Watch Limit
 			BigDecimal watchAmt = creditLimit.multiply(bpartnerStatsBL.getCreditWatchRatio(bpStats));
 
-			if (watchAmt.compareTo(bpStats.getTotalOpenBalance()) < 0)
+			if (watchAmt.compareTo(totalOpenBalance) < 0)
 			{
 				creditStatusToSet = X_C_BPartner_Stats.SOCREDITSTATUS_CreditWatch;
 			}
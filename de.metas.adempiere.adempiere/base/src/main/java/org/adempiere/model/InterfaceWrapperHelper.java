@@ -57,6 +57,7 @@ import org.adempiere.util.Services;
 import org.adempiere.util.lang.ITableRecordReference;
 import org.compiere.Adempiere;
 import org.compiere.model.GridField;
+import org.compiere.model.I_AD_Column;
 import org.compiere.model.GridTab;
 import org.compiere.model.PO;
 import org.compiere.model.POInfo;
@@ -1053,11 +1054,12 @@ public class InterfaceWrapperHelper
 			final T value = (T)po.get_ValueOfColumn(adColumnId);
 			return value;
 		}
-		// else if (POJOWrapper.isHandled(model))
-		// {
-		// final POJOWrapper wrapper = POJOWrapper.getWrapper(model);
-		// // MColumn.getColumnName(ctx, AD_Column_ID)
-		// }
+		else if (POJOWrapper.isHandled(model))
+		{
+			final I_AD_Column column = create(getCtx(model), adColumnId, I_AD_Column.class, getTrxName(model));
+			Check.assumeNotNull(column, "AD_Column with AD_Column_ID={} exists", adColumnId);
+			return getValueOrNull(model, column.getColumnName());
+		}
 		else
 		{
 			throw new AdempiereException("Model wrapping is not supported for " + model + " (class:" + model.getClass() + ")");
@@ -47,4 +47,9 @@ public final class RPL_Constants
 	public static final String XML_ATTR_REPLICATION_TrxName = "TrxName"; // 06231
 
 	public static final String XML_ATTR_DateFormat = "DateFormat"; // 03749
+
+	/**
+	 * Root element of a document which contains many exported records, each of them with its own root element (as if it was exported alone).
+	 */
+	public static final String XML_ELEMENT_ExportedRecords = "ExportedRecords";
 }
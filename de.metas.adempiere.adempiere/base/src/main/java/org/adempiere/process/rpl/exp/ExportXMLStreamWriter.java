@@ -0,0 +1,179 @@
+package org.adempiere.process.rpl.exp;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Check;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Writes many exported records into one XML document, record by record, so that {@link ExportHelper} never needs to keep more than one record's DOM in memory.
+ * <p>
+ * The document's root element (see {@link #writeStartDocument(String)}) contains the records' root elements, as they would be created by
+ * {@link ExportHelper#createExportDOM(org.compiere.model.PO, org.compiere.model.MEXPFormat, Integer, String, Integer)} for each record.
+ * <p>
+ * Instances are not thread-safe; use one instance per document.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class ExportXMLStreamWriter
+{
+	private static final String ENCODING = "UTF-8";
+
+	private final XMLStreamWriter xmlWriter;
+	private boolean rootElementOpen = false;
+	private int recordsCount = 0;
+
+	public ExportXMLStreamWriter(final OutputStream out)
+	{
+		Check.assumeNotNull(out, "out not null");
+		try
+		{
+			xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+		}
+		catch (final XMLStreamException e)
+		{
+			throw new AdempiereException("Could not create the XML writer", e);
+		}
+	}
+
+	/**
+	 * Writes the XML declaration and the start tag of the element which will contain the records.
+	 */
+	public ExportXMLStreamWriter writeStartDocument(final String rootElementName)
+	{
+		Check.assumeNotEmpty(rootElementName, "rootElementName not empty");
+		Check.assume(!rootElementOpen, "document not started yet");
+		try
+		{
+			xmlWriter.writeStartDocument(ENCODING, "1.0");
+			writeNewLine();
+			xmlWriter.writeStartElement(rootElementName);
+			rootElementOpen = true;
+		}
+		catch (final XMLStreamException e)
+		{
+			throw new AdempiereException("Could not write the document start", e);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the given record element, including all its attributes, comments, texts and child elements.
+	 */
+	public ExportXMLStreamWriter writeRecord(final Element recordElement)
+	{
+		Check.assumeNotNull(recordElement, "recordElement not null");
+		Check.assume(rootElementOpen, "document started");
+		try
+		{
+			writeNewLine();
+			writeElement(recordElement);
+			recordsCount++;
+		}
+		catch (final XMLStreamException e)
+		{
+			throw new AdempiereException("Could not write " + recordElement.getNodeName(), e);
+		}
+		return this;
+	}
+
+	private void writeElement(final Element element) throws XMLStreamException
+	{
+		xmlWriter.writeStartElement(element.getNodeName());
+
+		// Note: StAX needs the attributes before the element's content
+		final NamedNodeMap attributes = element.getAttributes();
+		for (int i = 0; i < attributes.getLength(); i++)
+		{
+			final Attr attribute = (Attr)attributes.item(i);
+			xmlWriter.writeAttribute(attribute.getName(), attribute.getValue());
+		}
+
+		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+		{
+			switch (child.getNodeType())
+			{
+				case Node.ELEMENT_NODE:
+					writeElement((Element)child);
+					break;
+				case Node.TEXT_NODE:
+					xmlWriter.writeCharacters(child.getNodeValue());
+					break;
+				case Node.CDATA_SECTION_NODE:
+					xmlWriter.writeCData(child.getNodeValue());
+					break;
+				case Node.COMMENT_NODE:
+					xmlWriter.writeComment(child.getNodeValue());
+					break;
+				default:
+					throw new AdempiereException("Node type " + child.getNodeType() + " not supported: " + child);
+			}
+		}
+
+		xmlWriter.writeEndElement();
+	}
+
+	/**
+	 * Closes the root element and flushes the output. Note that the underlying stream is not closed.
+	 */
+	public void writeEndDocument()
+	{
+		try
+		{
+			if (rootElementOpen)
+			{
+				writeNewLine();
+				xmlWriter.writeEndElement();
+				rootElementOpen = false;
+			}
+			xmlWriter.writeEndDocument();
+			xmlWriter.flush();
+		}
+		catch (final XMLStreamException e)
+		{
+			throw new AdempiereException("Could not write the document end", e);
+		}
+	}
+
+	public int getRecordsCount()
+	{
+		return recordsCount;
+	}
+
+	private void writeNewLine() throws XMLStreamException
+	{
+		xmlWriter.writeCharacters("\n");
+	}
+}
@@ -0,0 +1,194 @@
+package org.adempiere.server.rpl.api.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.adempiere.ad.table.api.IADTableDAO;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.server.rpl.interfaces.I_EXP_Format;
+import org.adempiere.util.Check;
+import org.adempiere.util.Services;
+import org.compiere.model.I_EXP_FormatLine;
+import org.compiere.model.MEXPFormat;
+import org.compiere.model.Query;
+import org.compiere.model.X_EXP_FormatLine;
+import org.compiere.util.CCache;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Everything {@link ImportHelper} needs to know about an {@link MEXPFormat}, loaded once and then shared by all (possibly concurrent) imports.
+ * <p>
+ * Unlike {@link MEXPFormat#getFormatLinesOrderedBy(String)} and {@link MEXPFormat#getUniqueColumns()}, which lazily load the lines into the cached and shared format instance,
+ * a plan is immutable. The format lines in it are only read and must not be changed.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class ImportFormatPlan
+{
+	/** Reset when format lines are changed; changes of the format itself are detected by comparing {@link #updated} */
+	private static final CCache<Integer, ImportFormatPlan> plansByFormatId = new CCache<>(I_EXP_FormatLine.Table_Name + "#ImportFormatPlan", 50);
+
+	/**
+	 * Line order used when importing:
+	 * <ul>
+	 * <li>embedded sub formats last; note that the postgres ordering for boolean values is false, true, null
+	 * <li>mandatory line before non-mandatory lines
+	 * <li>whatever is specified in the 'Position' column
+	 * </ul>
+	 */
+	private static final String ORDERBY_ImportFormatLines = I_EXP_FormatLine.COLUMNNAME_Type + "='" + X_EXP_FormatLine.TYPE_EmbeddedEXPFormat + "',"
+			+ I_EXP_FormatLine.COLUMNNAME_IsMandatory + " DESC , " // mandatory fields first
+			+ I_EXP_FormatLine.COLUMNNAME_Position;
+
+	public static ImportFormatPlan get(final MEXPFormat expFormat)
+	{
+		Check.assumeNotNull(expFormat, "expFormat not null");
+
+		final int expFormatId = expFormat.getEXP_Format_ID();
+		final ImportFormatPlan plan = plansByFormatId.get(expFormatId);
+		if (plan != null && plan.isUpToDate(expFormat))
+		{
+			return plan;
+		}
+
+		final ImportFormatPlan planNew = new ImportFormatPlan(expFormat);
+		plansByFormatId.put(expFormatId, planNew);
+		return planNew;
+	}
+
+	private final MEXPFormat expFormat;
+	private final I_EXP_Format format;
+	private final Timestamp updated;
+	private final String tableName;
+	private final String importMode;
+	private final boolean doLookup;
+	private final List<I_EXP_FormatLine> formatLines;
+	private final List<I_EXP_FormatLine> uniqueFormatLines;
+
+	private ImportFormatPlan(final MEXPFormat expFormat)
+	{
+		super();
+
+		this.expFormat = expFormat;
+		format = InterfaceWrapperHelper.create(expFormat, I_EXP_Format.class);
+		updated = expFormat.getUpdated();
+		tableName = Services.get(IADTableDAO.class).retrieveTableName(expFormat.getAD_Table_ID());
+
+		importMode = format.getRplImportMode();
+		doLookup = Check.isEmpty(importMode) || I_EXP_Format.RplImportMode_RecordExists.equals(importMode);
+
+		final List<I_EXP_FormatLine> formatLines = new Query(expFormat.getCtx(), I_EXP_FormatLine.Table_Name, I_EXP_FormatLine.COLUMNNAME_EXP_Format_ID + "=?", ITrx.TRXNAME_None)
+				.setOnlyActiveRecords(true)
+				.setParameters(expFormat.getEXP_Format_ID())
+				.setOrderBy(ORDERBY_ImportFormatLines)
+				.list(I_EXP_FormatLine.class);
+		this.formatLines = ImmutableList.copyOf(formatLines);
+
+		final List<I_EXP_FormatLine> uniqueFormatLines = new Query(expFormat.getCtx(), I_EXP_FormatLine.Table_Name,
+				I_EXP_FormatLine.COLUMNNAME_EXP_Format_ID + "=? AND " + I_EXP_FormatLine.COLUMNNAME_IsPartUniqueIndex + "=?", ITrx.TRXNAME_None)
+				.setOnlyActiveRecords(true)
+				.setParameters(expFormat.getEXP_Format_ID(), true)
+				.setOrderBy(I_EXP_FormatLine.COLUMNNAME_Position)
+				.list(I_EXP_FormatLine.class);
+		this.uniqueFormatLines = ImmutableList.copyOf(uniqueFormatLines);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ImportFormatPlan[" + expFormat.getValue() + "/" + expFormat.getVersion()
+				+ ", EXP_Format_ID=" + expFormat.getEXP_Format_ID()
+				+ ", lines=" + formatLines.size()
+				+ ", uniqueLines=" + uniqueFormatLines.size()
+				+ "]";
+	}
+
+	private boolean isUpToDate(final MEXPFormat expFormat)
+	{
+		return updated != null && updated.equals(expFormat.getUpdated());
+	}
+
+	public MEXPFormat getEXP_Format()
+	{
+		return expFormat;
+	}
+
+	/**
+	 * @return the format, wrapped to our extended {@link I_EXP_Format} interface
+	 */
+	public I_EXP_Format getFormat()
+	{
+		return format;
+	}
+
+	public String getTableName()
+	{
+		return tableName;
+	}
+
+	/**
+	 * @return {@link I_EXP_Format#getRplImportMode()}
+	 */
+	public String getImportMode()
+	{
+		return importMode;
+	}
+
+	/**
+	 * @return <code>true</code> if the records to import shall be looked up by the {@link #getUniqueFormatLines()}
+	 */
+	public boolean isDoLookup()
+	{
+		return doLookup;
+	}
+
+	/**
+	 * @return true if the records can only be looked up and never created (i.e. {@link I_EXP_Format#RplImportMode_RecordExists})
+	 */
+	public boolean isLookupOnly()
+	{
+		return I_EXP_Format.RplImportMode_RecordExists.equals(importMode);
+	}
+
+	/**
+	 * @return active format lines, in the order in which they shall be imported; embedded formats are last
+	 */
+	public List<I_EXP_FormatLine> getFormatLines()
+	{
+		return formatLines;
+	}
+
+	/**
+	 * @return active format lines which are part of the unique index, ordered by position
+	 */
+	public List<I_EXP_FormatLine> getUniqueFormatLines()
+	{
+		return uniqueFormatLines;
+	}
+}
@@ -24,12 +24,18 @@ import org.adempiere.ad.dao.IQueryStatisticsCollector;
  * #L%
  */
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.adempiere.sql.IStatementsFactory;
 import org.compiere.util.CCallableStatement;
 import org.compiere.util.CPreparedStatement;
 import org.compiere.util.CStatement;
 import org.compiere.util.CStatementVO;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
 /**
  * Factory helper class used to create {@link CStatement}, {@link CPreparedStatement} and {@link CCallableStatement} instances.
  *
@@ -39,22 +45,52 @@ import org.compiere.util.CStatementVO;
 public final class StatementsFactory implements IStatementsFactory
 {
 	public static final transient StatementsFactory instance = new StatementsFactory();
-	private boolean sqlQueriesTracingEnabled = false;
+	private volatile boolean sqlQueriesTracingEnabled = false;
+	private final List<IQueryStatisticsCollector> sqlQueriesCollectors = new ArrayList<>();
 
 	private StatementsFactory()
 	{
 		super();
 	}
-	
-	public void enableSqlQueriesTracing(final IQueryStatisticsCollector sqlQueriesCollector)
+
+	/**
+	 * Enables SQL queries tracing and adds given collector. More collectors can be enabled at the same time (e.g. the query statistics and the SQL profiler).
+	 */
+	public synchronized void enableSqlQueriesTracing(final IQueryStatisticsCollector sqlQueriesCollector)
 	{
-		this.sqlQueriesTracingEnabled = true;
-		TracingStatement.SQL_QUERIES_COLLECTOR = sqlQueriesCollector;
+		if (!sqlQueriesCollectors.contains(sqlQueriesCollector))
+		{
+			sqlQueriesCollectors.add(sqlQueriesCollector);
+		}
+		updateSqlQueriesTracing();
 	}
-	
-	public void disableSqlQueriesTracing()
+
+	/**
+	 * Removes given collector. SQL queries tracing is disabled when there are no collectors left.
+	 */
+	public synchronized void disableSqlQueriesTracing(final IQueryStatisticsCollector sqlQueriesCollector)
 	{
-		this.sqlQueriesTracingEnabled = false;
+		sqlQueriesCollectors.remove(sqlQueriesCollector);
+		updateSqlQueriesTracing();
+	}
+
+	private void updateSqlQueriesTracing()
+	{
+		if (sqlQueriesCollectors.isEmpty())
+		{
+			this.sqlQueriesTracingEnabled = false;
+			TracingStatement.SQL_QUERIES_COLLECTOR = null;
+		}
+		else if (sqlQueriesCollectors.size() == 1)
+		{
+			TracingStatement.SQL_QUERIES_COLLECTOR = sqlQueriesCollectors.get(0);
+			this.sqlQueriesTracingEnabled = true;
+		}
+		else
+		{
+			TracingStatement.SQL_QUERIES_COLLECTOR = new CompositeQueryStatisticsCollector(sqlQueriesCollectors);
+			this.sqlQueriesTracingEnabled = true;
+		}
 	}
 
 	@Override
@@ -112,4 +148,42 @@ public final class StatementsFactory implements IStatementsFactory
 	{
 		return new CCallableStatementProxy(info);
 	}
+
+	private static final class CompositeQueryStatisticsCollector implements IQueryStatisticsCollector
+	{
+		private final ImmutableList<IQueryStatisticsCollector> collectors;
+
+		private CompositeQueryStatisticsCollector(final List<IQueryStatisticsCollector> collectors)
+		{
+			super();
+			this.collectors = ImmutableList.copyOf(collectors);
+		}
+
+		@Override
+		public void collect(final String sql, final Stopwatch duration)
+		{
+			for (final IQueryStatisticsCollector collector : collectors)
+			{
+				collector.collect(sql, duration);
+			}
+		}
+
+		@Override
+		public void collect(final CStatementVO vo, final Stopwatch duration)
+		{
+			for (final IQueryStatisticsCollector collector : collectors)
+			{
+				collector.collect(vo, duration);
+			}
+		}
+
+		@Override
+		public void collect(final String sql, final CStatementVO vo, final Stopwatch duration, final int updateCount)
+		{
+			for (final IQueryStatisticsCollector collector : collectors)
+			{
+				collector.collect(sql, vo, duration, updateCount);
+			}
+		}
+	}
 }
@@ -36,6 +36,7 @@ import org.adempiere.ad.dao.ICompositeQueryUpdaterExecutor;
 import org.adempiere.ad.dao.IQueryFilter;
 import org.adempiere.ad.dao.IQueryInsertExecutor;
 import org.adempiere.ad.dao.IQueryOrderBy;
+import org.adempiere.ad.dao.IQuerySelectColumnsExecutor;
 import org.adempiere.ad.dao.IQueryUpdater;
 import org.adempiere.ad.dao.ISqlQueryUpdater;
 import org.adempiere.ad.model.util.Model2IdFunction;
@@ -395,6 +396,15 @@ public interface IQuery<T>
 	 */
 	<AT> List<AT> listDistinct(String columnName, Class<AT> valueType);
 
+	/**
+	 * Selects only some columns, without loading the models.
+	 * <p>
+	 * Prefer this over {@link #list(Class)} when you need only a few fields of a wide table.
+	 *
+	 * @return executor which will assist you to choose the columns and to fetch their values
+	 */
+	IQuerySelectColumnsExecutor<T> selectColumns();
+
 	/**
 	 * Gets an immutable {@link Map} of records.
 	 * 
@@ -0,0 +1,233 @@
+package org.compiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link GridTableKeysPager}, mainly the fallback to OFFSET paging when keyset paging fails.
+ * The database is simulated by {@link FakeKeysPager}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class GridTableKeysPagerTest
+{
+	@Test
+	public void test_KeysetPaging()
+	{
+		final FakeKeysPager pager = new FakeKeysPager(GridTableKeysetPaging.of("T.T_ID", "Name"), 0, 25);
+
+		loadAllKeys(pager, 10);
+
+		Assert.assertEquals(expectedKeys(25), pager.getAllKeys());
+		Assert.assertTrue(pager.getPaging().isKeyset());
+		Assert.assertEquals(Arrays.asList(
+				"SELECT T.T_ID, Name FROM T ORDER BY Name ASC, T.T_ID LIMIT 10",
+				"SELECT T.T_ID, Name FROM T WHERE (((Name)>? OR (Name) IS NULL)) OR ((Name)=? AND T.T_ID>?) ORDER BY Name ASC, T.T_ID LIMIT 10",
+				"SELECT T.T_ID, Name FROM T WHERE (((Name)>? OR (Name) IS NULL)) OR ((Name)=? AND T.T_ID>?) ORDER BY Name ASC, T.T_ID LIMIT 10"),
+				pager.executedSqls);
+	}
+
+	/**
+	 * The first page was loaded using keyset paging, but the next page's keyset WHERE clause fails.
+	 * The page shall be loaded again using OFFSET paging, continuing after the keys which were already loaded.
+	 */
+	@Test
+	public void test_KeysetWhereClauseFails_FallsBackToOffsetPaging()
+	{
+		final FakeKeysPager pager = new FakeKeysPager(GridTableKeysetPaging.of("T.T_ID", "Name"), 0, 25);
+		pager.failOnWhereClause = true;
+
+		loadAllKeys(pager, 10);
+
+		Assert.assertEquals(expectedKeys(25), pager.getAllKeys());
+		Assert.assertFalse(pager.getPaging().isKeyset());
+		Assert.assertFalse(pager.hasMoreKeys());
+		Assert.assertEquals(Arrays.asList(
+				"SELECT T.T_ID, Name FROM T ORDER BY Name ASC, T.T_ID LIMIT 10",
+				"FAILED: SELECT T.T_ID, Name FROM T WHERE (((Name)>? OR (Name) IS NULL)) OR ((Name)=? AND T.T_ID>?) ORDER BY Name ASC, T.T_ID LIMIT 10",
+				"SELECT T.T_ID FROM T ORDER BY Name, T.T_ID LIMIT 10 OFFSET 10",
+				"SELECT T.T_ID FROM T ORDER BY Name, T.T_ID LIMIT 10 OFFSET 20"),
+				pager.executedSqls);
+	}
+
+	@Test
+	public void test_KeysetFirstPageFails_FallsBackToOffsetPaging()
+	{
+		final FakeKeysPager pager = new FakeKeysPager(GridTableKeysetPaging.of("T.T_ID", "Name"), 15, 25);
+		pager.failOnOrderByColumns = true;
+
+		loadAllKeys(pager, 10);
+
+		Assert.assertEquals(expectedKeys(25).subList(0, 15), pager.getAllKeys());
+		Assert.assertEquals(15, pager.getKeysLoaded());
+		Assert.assertFalse(pager.getPaging().isKeyset());
+		Assert.assertEquals(Arrays.asList(
+				"FAILED: SELECT T.T_ID, Name FROM T ORDER BY Name ASC, T.T_ID LIMIT 10",
+				"SELECT T.T_ID FROM T ORDER BY Name, T.T_ID LIMIT 10",
+				"SELECT T.T_ID FROM T ORDER BY Name, T.T_ID LIMIT 5 OFFSET 10"),
+				pager.executedSqls);
+	}
+
+	@Test
+	public void test_OffsetPagingFails() throws Exception
+	{
+		final FakeKeysPager pager = new FakeKeysPager(GridTableKeysetPaging.of("T.T_ID", "Name"), 0, 25);
+		pager.failOnWhereClause = true;
+		pager.loadNextPageAndCollect(10);
+
+		pager.failOnOffset = true;
+		try
+		{
+			pager.loadNextPageAndCollect(10);
+			Assert.fail("SQLException expected");
+		}
+		catch (final SQLException e)
+		{
+			// expected
+		}
+
+		Assert.assertEquals(expectedKeys(25).subList(0, 10), pager.getAllKeys());
+		Assert.assertEquals(10, pager.getKeysLoaded());
+	}
+
+	private static void loadAllKeys(final FakeKeysPager pager, final int pageSize)
+	{
+		try
+		{
+			do
+			{
+				pager.loadNextPageAndCollect(pageSize);
+			}
+			while (pager.hasMoreKeys());
+		}
+		catch (final SQLException e)
+		{
+			throw new AssertionError("No SQLException expected", e);
+		}
+	}
+
+	/**
+	 * @return keys in the order of their names (see {@link FakeKeysPager})
+	 */
+	private static List<Integer> expectedKeys(final int rowsCount)
+	{
+		final List<Integer> keys = new ArrayList<>();
+		for (int key = rowsCount; key >= 1; key--)
+		{
+			keys.add(key);
+		}
+		return keys;
+	}
+
+	/**
+	 * Simulates a table <code>T</code> with the given number of rows. The names are in reverse order of the keys.
+	 * The keyset WHERE clause is not evaluated; instead, the rows after the last loaded key are returned.
+	 */
+	private static final class FakeKeysPager extends GridTableKeysPager
+	{
+		private static final Pattern PATTERN_LimitOffset = Pattern.compile(" LIMIT (\\d+)(?: OFFSET (\\d+))?$");
+
+		/** rows (key, name), ordered by name */
+		private final List<Object[]> rowsOrderedByName = new ArrayList<>();
+		private final List<Integer> allKeys = new ArrayList<>();
+		private final List<String> executedSqls = new ArrayList<>();
+
+		private boolean failOnWhereClause = false;
+		private boolean failOnOrderByColumns = false;
+		private boolean failOnOffset = false;
+
+		public FakeKeysPager(final GridTableKeysetPaging paging, final int maxRows, final int rowsCount)
+		{
+			super(paging, maxRows);
+
+			for (int key = rowsCount; key >= 1; key--)
+			{
+				rowsOrderedByName.add(new Object[] { key, String.format("Name%03d", rowsCount - key) });
+			}
+		}
+
+		public void loadNextPageAndCollect(final int pageSize) throws SQLException
+		{
+			allKeys.addAll(loadNextPage(pageSize));
+		}
+
+		public List<Integer> getAllKeys()
+		{
+			return allKeys;
+		}
+
+		@Override
+		protected String createSelectSql(final String selectColumnsSql, final String whereClauseAfter)
+		{
+			return "SELECT " + selectColumnsSql + " FROM T" + (whereClauseAfter == null ? "" : " WHERE " + whereClauseAfter);
+		}
+
+		@Override
+		protected List<Object[]> retrieveRows(final String sql, final List<Object> sqlParams, final int columnsCount) throws SQLException
+		{
+			final boolean hasWhereClause = sql.contains(" WHERE ");
+			final Matcher matcher = PATTERN_LimitOffset.matcher(sql);
+			Assert.assertTrue("LIMIT expected: " + sql, matcher.find());
+			final boolean hasOffset = matcher.group(2) != null;
+
+			if (failOnWhereClause && hasWhereClause
+					|| failOnOrderByColumns && columnsCount > 1
+					|| failOnOffset && hasOffset)
+			{
+				executedSqls.add("FAILED: " + sql);
+				throw new SQLException("simulated failure: " + sql);
+			}
+			executedSqls.add(sql);
+
+			final int limit = Integer.parseInt(matcher.group(1));
+			final int offset;
+			if (hasWhereClause)
+			{
+				Assert.assertFalse("WHERE and OFFSET", hasOffset);
+				final Object lastKey = sqlParams.get(sqlParams.size() - 1);
+				offset = allKeys.indexOf(lastKey) + 1;
+			}
+			else
+			{
+				offset = hasOffset ? Integer.parseInt(matcher.group(2)) : 0;
+			}
+
+			final List<Object[]> rows = new ArrayList<>();
+			for (int i = offset; i < rowsOrderedByName.size() && rows.size() < limit; i++)
+			{
+				rows.add(Arrays.copyOf(rowsOrderedByName.get(i), columnsCount));
+			}
+			return rows;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package org.compiere.model;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link GridTableKeysetPaging} and {@link GridTablePageCache}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class GridTableKeysetPagingTest
+{
+	@Test
+	public void test_parseOrderByClause()
+	{
+		Assert.assertEquals("[Name ASC, (SELECT x FROM y WHERE a IN (1,2)) DESC, Created ASC]",
+				String.valueOf(GridTableKeysetPaging.parseOrderByClause("Name, (SELECT x FROM y WHERE a IN (1,2)) desc, Created ASC")));
+		Assert.assertEquals("[]", String.valueOf(GridTableKeysetPaging.parseOrderByClause("")));
+
+		Assert.assertNull(GridTableKeysetPaging.parseOrderByClause("2 DESC, Name"));
+		Assert.assertNull(GridTableKeysetPaging.parseOrderByClause("Name NULLS FIRST"));
+		Assert.assertNull(GridTableKeysetPaging.parseOrderByClause("COALESCE(Name, 'a,b'"));
+	}
+
+	@Test
+	public void test_OrderBySql()
+	{
+		Assert.assertEquals("Name ASC, DateDoc DESC, T.T_ID", GridTableKeysetPaging.of("T.T_ID", "Name, DateDoc DESC").getOrderBySql());
+		Assert.assertEquals("T.T_ID", GridTableKeysetPaging.of("T.T_ID", null).getOrderBySql());
+		Assert.assertEquals("2 DESC, T.T_ID", GridTableKeysetPaging.of("T.T_ID", "2 DESC").getOrderBySql());
+		Assert.assertFalse(GridTableKeysetPaging.of("T.T_ID", "2 DESC").isKeyset());
+	}
+
+	@Test
+	public void test_getWhereClauseAfter()
+	{
+		final GridTableKeysetPaging paging = GridTableKeysetPaging.of("T.T_ID", "Name, DateDoc DESC");
+		Assert.assertEquals("T.T_ID, Name, DateDoc", paging.getSelectColumnsSql());
+
+		final List<Object> sqlParams = new ArrayList<>();
+		final String whereClause = paging.getWhereClauseAfter(new Object[] { "N1", "D1" }, 100, sqlParams);
+		Assert.assertEquals("(((Name)>? OR (Name) IS NULL))"
+				+ " OR ((Name)=? AND (DateDoc)<?)"
+				+ " OR ((Name)=? AND (DateDoc)=? AND T.T_ID>?)", whereClause);
+		Assert.assertEquals(Arrays.<Object> asList("N1", "N1", "D1", "N1", "D1", 100), sqlParams);
+	}
+
+	@Test
+	public void test_getWhereClauseAfter_NullValues()
+	{
+		final GridTableKeysetPaging paging = GridTableKeysetPaging.of("T.T_ID", "Name, DateDoc DESC");
+
+		final List<Object> sqlParams = new ArrayList<>();
+		final String whereClause = paging.getWhereClauseAfter(new Object[] { null, null }, 100, sqlParams);
+		Assert.assertEquals("((Name) IS NULL AND (DateDoc) IS NOT NULL)"
+				+ " OR ((Name) IS NULL AND (DateDoc) IS NULL AND T.T_ID>?)", whereClause);
+		Assert.assertEquals(Arrays.<Object> asList(100), sqlParams);
+	}
+
+	@Test
+	public void test_PageCache_EvictsFarPages()
+	{
+		final GridTablePageCache cache = new GridTablePageCache(2, 1);
+		cache.putPage(0, ImmutableMap.of(10, new Object[] { 10 }, 11, new Object[] { 11 }));
+		cache.putPage(1, ImmutableMap.of(12, new Object[] { 12 }, 13, new Object[] { 13 }));
+		Assert.assertEquals(2, cache.getPagesCount());
+
+		cache.putPage(2, ImmutableMap.of(14, new Object[] { 14 }));
+		Assert.assertEquals(2, cache.getPagesCount());
+		Assert.assertNull(cache.getRow(10));
+		Assert.assertNotNull(cache.getRow(12));
+		Assert.assertNotNull(cache.getRow(14));
+	}
+
+	@Test
+	public void test_PageCache_NewRowIsNotEvicted()
+	{
+		final GridTablePageCache cache = new GridTablePageCache(2, 0);
+		final Object[] newRow = new Object[] {};
+		cache.putRow(GridTablePageCache.NEW_ROW_RECORD_ID, newRow, 0);
+		cache.putPage(5, ImmutableMap.of(10, new Object[] { 10 }));
+
+		Assert.assertSame(newRow, cache.getRow(GridTablePageCache.NEW_ROW_RECORD_ID));
+		Assert.assertEquals(1, cache.getRowsCount());
+	}
+}
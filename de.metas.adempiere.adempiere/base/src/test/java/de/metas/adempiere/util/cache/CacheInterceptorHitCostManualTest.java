@@ -0,0 +1,109 @@
+package de.metas.adempiere.util.cache;
+
+import java.util.Properties;
+
+import org.adempiere.util.ISingletonService;
+import org.adempiere.util.Services;
+import org.adempiere.util.proxy.Cached;
+import org.compiere.Adempiere;
+import org.compiere.util.Env;
+
+import de.metas.adempiere.util.CacheCtx;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Manual micro benchmark: measures the cost of a cache hit of a <code>@Cached</code> service method, compared to calling the method directly.
+ * <p>
+ * Run it on two builds (e.g. before and after a change of {@link CacheInterceptor}) to compare the hit cost. No database is needed.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class CacheInterceptorHitCostManualTest
+{
+	public static void main(final String[] args) throws Exception
+	{
+		final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+
+		Adempiere.enableUnitTestMode();
+		Services.clear();
+		Services.getInterceptor().registerInterceptor(Cached.class, new CacheInterceptor());
+
+		final Properties ctx = new Properties();
+		Env.setContext(ctx, Env.CTXNAME_AD_Client_ID, 1000000);
+		Env.setContext(ctx, Env.CTXNAME_AD_Role_ID, 1000000);
+		Env.setContext(ctx, Env.CTXNAME_AD_User_ID, 100);
+		Env.setContext(ctx, Env.CTXNAME_AD_Language, "de_DE");
+
+		final IHitCostService service = Services.getInterceptor().createInterceptedClass(HitCostService.class).newInstance();
+		final IHitCostService serviceNotCached = new HitCostService();
+
+		for (int round = 1; round <= 5; round++)
+		{
+			final long nanosCached = run(service, ctx, iterations);
+			final long nanosDirect = run(serviceNotCached, ctx, iterations);
+			System.out.println("Round " + round + ": cache hit " + nanosCached / iterations + "ns/op, direct call " + nanosDirect / iterations + "ns/op");
+		}
+
+		System.out.println(CacheInterceptor.getCachedMethodsStatistics());
+	}
+
+	/** Blackhole, to make sure that the JIT does not remove the calls */
+	private static volatile Object sink;
+
+	private static final String[] NAMES = new String[16];
+	static
+	{
+		for (int i = 0; i < NAMES.length; i++)
+		{
+			NAMES[i] = "Name" + i;
+		}
+	}
+
+	private static long run(final IHitCostService service, final Properties ctx, final int iterations)
+	{
+		final long startNanos = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+		{
+			final int id = i & 15;
+			sink = service.getValue(ctx, NAMES[id], id);
+		}
+		return System.nanoTime() - startNanos;
+	}
+
+	public static interface IHitCostService extends ISingletonService
+	{
+		String getValue(Properties ctx, String name, int id);
+	}
+
+	public static class HitCostService implements IHitCostService
+	{
+		@Override
+		@Cached(cacheName = "AD_SysConfig")
+		public String getValue(@CacheCtx final Properties ctx, final String name, final int id)
+		{
+			return name + "=" + id;
+		}
+	}
+}
@@ -109,6 +109,26 @@ public class CacheInterceptorTests
 		Assert.assertSame(value2, obj.getCachedValue(2));
 	}
 
+	@Test
+	public void testCachedMethodsStatistics()
+	{
+		final TestServiceWithCachedMethod obj = (TestServiceWithCachedMethod)Services.get(ITestServiceWithCachedMethod.class);
+		obj.cachedValueToReturn = "CachedValue";
+
+		CacheInterceptor.resetCachedMethodsStatistics();
+		obj.getCachedValue(1); // miss
+		obj.getCachedValue(1); // hit
+		obj.getCachedValue(1); // hit
+
+		final String statistics = CacheInterceptor.getCachedMethodsStatistics()
+				.stream()
+				.filter(line -> line.contains(".getCachedValue:"))
+				.findFirst()
+				.orElse(null);
+		Assert.assertNotNull("statistics for getCachedValue", statistics);
+		Assert.assertTrue("Invalid statistics: " + statistics, statistics.contains("hits=2, misses=1, hitRatio=66%"));
+	}
+
 	@Test
 	public void testCachedMethodWhichReturnsNull()
 	{
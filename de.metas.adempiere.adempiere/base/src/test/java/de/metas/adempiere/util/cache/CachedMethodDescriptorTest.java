@@ -28,6 +28,7 @@ import java.util.Properties;
 
 import org.adempiere.util.proxy.Cached;
 import org.compiere.util.Env;
+import org.compiere.util.Util;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -132,4 +133,28 @@ public class CachedMethodDescriptorTest
 				"Keys shall be equal because trxName shall not be included (we are using different cache storages)",
 				keyBuilder1.buildKey(), keyBuilder2.buildKey());
 	}
+
+	@Test
+	public void test_KeyBuilder_GrowsBeyondCapacity() throws Exception
+	{
+		final TestClass testObj = new TestClass();
+		final Method method = testObj.getClass().getMethod("get", Properties.class, int.class);
+		final CachedMethodDescriptor methodDescriptor = new CachedMethodDescriptor(method);
+
+		final Properties ctx = new Properties();
+		Env.setContext(ctx, "#AD_Client_ID", 100);
+		final Object[] params = new Object[] { ctx, 100 };
+
+		// first key is built with the initial capacity hint, second one with the number of parts of the first one
+		final CacheKeyBuilder keyBuilder1 = methodDescriptor.createKeyBuilder(testObj, params);
+		final CacheKeyBuilder keyBuilder2 = methodDescriptor.createKeyBuilder(testObj, params);
+		Assert.assertEquals(keyBuilder1.size(), keyBuilder2.size());
+		Assert.assertEquals(keyBuilder1.buildKey(), keyBuilder2.buildKey());
+
+		final CacheKeyBuilder keyBuilder3 = new CacheKeyBuilder(1);
+		keyBuilder3.add("part1");
+		keyBuilder3.add("part2");
+		keyBuilder3.add("part3");
+		Assert.assertEquals(Util.mkKey("part1", "part2", "part3"), keyBuilder3.buildKey());
+	}
 }
@@ -1,5 +1,6 @@
 package de.metas.currency.impl;
 
+import java.math.BigDecimal;
 import java.util.Date;
 import java.util.Properties;
 
@@ -12,6 +13,8 @@ import org.adempiere.test.AdempiereTestWatcher;
 import org.adempiere.util.Services;
 import org.compiere.model.I_C_ConversionType;
 import org.compiere.model.I_C_ConversionType_Default;
+import org.compiere.model.I_C_Conversion_Rate;
+import org.compiere.model.I_C_Currency;
 import org.compiere.util.Env;
 import org.compiere.util.TimeUtil;
 import org.junit.Assert;
@@ -20,6 +23,7 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import de.metas.currency.ConversionType;
+import de.metas.currency.ICurrencyConversionContext;
 import de.metas.currency.ICurrencyDAO;
 
 /*
@@ -94,6 +98,67 @@ public class CurrencyDAOTest
 		assertDefaultConversionType(conversionType_PeriodEnd, TimeUtil.getDay(2020, 1, 1));
 	}
 
+	@Test
+	public void test_retrieveRateOrNull()
+	{
+		final I_C_Currency currencyFrom = currencyDAO.retrieveCurrencyByISOCode(ctx, "EUR");
+		final I_C_Currency currencyTo = currencyDAO.retrieveCurrencyByISOCode(ctx, "CHF");
+		final int adClientId = Env.getAD_Client_ID(ctx);
+
+		final I_C_Conversion_Rate rateSystem = createConversionRate(Env.CTXVALUE_AD_Client_ID_System, currencyFrom, currencyTo, TimeUtil.getDay(2016, 1, 1), TimeUtil.getDay(2016, 12, 31), "1.10");
+		createConversionRate(Env.CTXVALUE_AD_Client_ID_System, currencyFrom, currencyTo, TimeUtil.getDay(2016, 3, 1), TimeUtil.getDay(2016, 3, 31), "1.30");
+		createConversionRate(adClientId, currencyFrom, currencyTo, TimeUtil.getDay(2016, 6, 1), TimeUtil.getDay(2016, 6, 30), "1.20");
+
+		assertRate(null, currencyFrom, currencyTo, TimeUtil.getDay(2015, 12, 31));
+		assertRate("1.10", currencyFrom, currencyTo, TimeUtil.getDay(2016, 2, 1));
+		assertRate("1.30", currencyFrom, currencyTo, TimeUtil.getDay(2016, 3, 15)); // latest ValidFrom wins
+		assertRate("1.10", currencyFrom, currencyTo, TimeUtil.getDay(2016, 4, 1)); // latest ValidFrom is no longer valid
+		assertRate("1.20", currencyFrom, currencyTo, TimeUtil.getDay(2016, 6, 30)); // client specific rate wins
+		assertRate(null, currencyFrom, currencyTo, TimeUtil.getDay(2017, 1, 1));
+		assertRate(null, currencyTo, currencyFrom, TimeUtil.getDay(2016, 2, 1)); // no rate for the inverse pair
+
+		// like the SQL query (ValidTo >= date), a rate without ValidTo is not matched
+		createConversionRate(adClientId, currencyFrom, currencyTo, TimeUtil.getDay(2017, 1, 1), null, "1.40");
+		assertRate(null, currencyFrom, currencyTo, TimeUtil.getDay(2017, 6, 1));
+
+		// changing a rate shall invalidate the cached rates
+		rateSystem.setMultiplyRate(new BigDecimal("1.15"));
+		InterfaceWrapperHelper.save(rateSystem);
+		assertRate("1.15", currencyFrom, currencyTo, TimeUtil.getDay(2016, 2, 1));
+	}
+
+	private final I_C_Conversion_Rate createConversionRate(final int adClientId,
+			final I_C_Currency currencyFrom, final I_C_Currency currencyTo,
+			final Date validFrom, final Date validTo,
+			final String multiplyRate)
+	{
+		final I_C_Conversion_Rate conversionRate = InterfaceWrapperHelper.create(ctx, I_C_Conversion_Rate.class, ITrx.TRXNAME_None);
+		InterfaceWrapperHelper.setValue(conversionRate, I_C_Conversion_Rate.COLUMNNAME_AD_Client_ID, adClientId);
+		conversionRate.setAD_Org_ID(Env.CTXVALUE_AD_Org_ID_System);
+		conversionRate.setC_ConversionType(conversionType_Spot);
+		conversionRate.setC_Currency(currencyFrom);
+		conversionRate.setC_Currency_ID_To(currencyTo.getC_Currency_ID());
+		conversionRate.setValidFrom(TimeUtil.asTimestamp(validFrom));
+		conversionRate.setValidTo(TimeUtil.asTimestamp(validTo));
+		conversionRate.setMultiplyRate(new BigDecimal(multiplyRate));
+		InterfaceWrapperHelper.save(conversionRate);
+		return conversionRate;
+	}
+
+	private final void assertRate(final String expectedRate, final I_C_Currency currencyFrom, final I_C_Currency currencyTo, final Date date)
+	{
+		final ICurrencyConversionContext conversionCtx = CurrencyConversionContext.builder()
+				.setAD_Client_ID(Env.getAD_Client_ID(ctx))
+				.setAD_Org_ID(Env.getAD_Org_ID(ctx))
+				.setC_ConversionType_ID(conversionType_Spot.getC_ConversionType_ID())
+				.setConversionDate(date)
+				.build();
+
+		final BigDecimal actualRate = currencyDAO.retrieveRateOrNull(conversionCtx, currencyFrom.getC_Currency_ID(), currencyTo.getC_Currency_ID());
+		final BigDecimal expectedRateBD = expectedRate == null ? null : new BigDecimal(expectedRate);
+		Assert.assertEquals("Invalid rate for " + date, expectedRateBD, actualRate);
+	}
+
 	private final void clearConversionTypeDefaults()
 	{
 		Services.get(IQueryBL.class)
@@ -0,0 +1,141 @@
+package org.adempiere.ad.dao.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.dao.QueryColumnsRecord;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.model.PlainContextAware;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.IQuery;
+import org.compiere.model.I_M_Product;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QuerySelectColumnsExecutorTest
+{
+	private PlainContextAware contextProvider;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		contextProvider = PlainContextAware.createUsingOutOfTransaction();
+	}
+
+	private I_M_Product createProduct(final String value, final String name)
+	{
+		final I_M_Product product = InterfaceWrapperHelper.newInstance(I_M_Product.class, contextProvider);
+		product.setValue(value);
+		product.setName(name);
+		InterfaceWrapperHelper.save(product);
+		return product;
+	}
+
+	private IQuery<I_M_Product> createQuery()
+	{
+		return Services.get(IQueryBL.class)
+				.createQueryBuilder(I_M_Product.class, contextProvider)
+				.orderBy()
+				.addColumn(I_M_Product.COLUMN_Value)
+				.endOrderBy()
+				.create();
+	}
+
+	@Test
+	public void test_list()
+	{
+		final I_M_Product product1 = createProduct("P1", "Product 1");
+		final I_M_Product product2 = createProduct("P2", "Product 2");
+
+		final List<QueryColumnsRecord> records = createQuery()
+				.selectColumns()
+				.addColumn(I_M_Product.COLUMN_M_Product_ID)
+				.addColumn(I_M_Product.COLUMN_Name)
+				.list();
+
+		Assert.assertEquals(2, records.size());
+		Assert.assertEquals(Arrays.asList("M_Product_ID", "Name"), records.get(0).getColumnNames());
+		Assert.assertEquals(product1.getM_Product_ID(), records.get(0).getValueAsInt(I_M_Product.COLUMN_M_Product_ID));
+		Assert.assertEquals("Product 1", records.get(0).getValueAsString(I_M_Product.COLUMN_Name));
+		Assert.assertEquals(product2.getM_Product_ID(), records.get(1).getValueAsInt(I_M_Product.COLUMN_M_Product_ID));
+		Assert.assertEquals("Product 2", records.get(1).getValueAsString(I_M_Product.COLUMN_Name));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void test_ColumnNotSelected()
+	{
+		createProduct("P1", "Product 1");
+
+		final QueryColumnsRecord record = createQuery()
+				.selectColumns()
+				.addColumn(I_M_Product.COLUMN_Name)
+				.list()
+				.get(0);
+
+		record.getValue(I_M_Product.COLUMN_Value);
+	}
+
+	@Test
+	public void test_streamArrays()
+	{
+		createProduct("P1", "Product 1");
+		createProduct("P2", "Product 2");
+
+		try (final Stream<Object[]> stream = createQuery()
+				.selectColumns()
+				.addColumn(I_M_Product.COLUMN_Value)
+				.addColumn(I_M_Product.COLUMN_Name)
+				.streamArrays())
+		{
+			final List<String> values = stream
+					.map(row -> row[0] + "/" + row[1])
+					.collect(Collectors.toList());
+			Assert.assertEquals(Arrays.asList("P1/Product 1", "P2/Product 2"), values);
+		}
+	}
+
+	@Test
+	public void test_NullValues()
+	{
+		createProduct("P1", "Product 1");
+
+		final QueryColumnsRecord record = createQuery()
+				.selectColumns()
+				.addColumn(I_M_Product.COLUMN_Value)
+				.addColumn(I_M_Product.COLUMN_Description)
+				.list()
+				.get(0);
+
+		Assert.assertEquals("P1", record.getValue(I_M_Product.COLUMN_Value));
+		Assert.assertNull(record.getValue(I_M_Product.COLUMN_Description));
+		Assert.assertNull(record.getValueAsString(I_M_Product.COLUMN_Description));
+	}
+}
@@ -0,0 +1,116 @@
+package org.adempiere.ad.dao.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.model.IQuery;
+import org.compiere.model.I_C_Order;
+import org.compiere.util.Env;
+
+/**
+ * Manual test: compares loading all models of a wide table (C_Order) with selecting only three columns, by duration and retained memory.
+ * <p>
+ * Needs a database (configured like for the swing client).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class QuerySelectColumnsManualTest
+{
+	public static void main(final String[] args)
+	{
+		final int limit = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+		Adempiere.startupEnvironment(false);
+
+		final QuerySelectColumnsManualTest test = new QuerySelectColumnsManualTest(limit);
+		for (int round = 1; round <= 3; round++) // first round(s) are warming up
+		{
+			test.run("models", () -> test.createQuery().list(I_C_Order.class));
+			test.run("selectColumns", () -> test.createQuery()
+					.selectColumns()
+					.addColumn(I_C_Order.COLUMNNAME_C_Order_ID)
+					.addColumn(I_C_Order.COLUMNNAME_C_BPartner_ID)
+					.addColumn(I_C_Order.COLUMNNAME_GrandTotal)
+					.list());
+			test.run("selectColumns (arrays)", () -> test.createQuery()
+					.selectColumns()
+					.addColumn(I_C_Order.COLUMNNAME_C_Order_ID)
+					.addColumn(I_C_Order.COLUMNNAME_C_BPartner_ID)
+					.addColumn(I_C_Order.COLUMNNAME_GrandTotal)
+					.listArrays());
+		}
+	}
+
+	private final int limit;
+
+	private QuerySelectColumnsManualTest(final int limit)
+	{
+		super();
+		this.limit = limit;
+	}
+
+	private IQuery<I_C_Order> createQuery()
+	{
+		return Services.get(IQueryBL.class)
+				.createQueryBuilder(I_C_Order.class, Env.getCtx(), ITrx.TRXNAME_None)
+				.orderBy()
+				.addColumn(I_C_Order.COLUMNNAME_C_Order_ID)
+				.endOrderBy()
+				.setLimit(limit)
+				.create();
+	}
+
+	private void run(final String name, final ListLoader loader)
+	{
+		final long memoryBefore = usedMemory();
+		final long startNanos = System.nanoTime();
+
+		final List<?> result = loader.load();
+
+		final long durationMillis = (System.nanoTime() - startNanos) / 1000000;
+		final long memoryRetainedKB = (usedMemory() - memoryBefore) / 1024;
+		System.out.println(name + ": " + result.size() + " rows in " + durationMillis + "ms, retained ~" + memoryRetainedKB + "KB");
+	}
+
+	private static long usedMemory()
+	{
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+		{
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	@FunctionalInterface
+	private static interface ListLoader
+	{
+		List<?> load();
+	}
+}
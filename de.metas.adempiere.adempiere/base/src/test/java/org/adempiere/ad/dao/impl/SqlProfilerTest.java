@@ -0,0 +1,160 @@
+package org.adempiere.ad.dao.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import org.adempiere.ad.dao.SqlProfilerContext;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests {@link SqlProfiler}, {@link SqlLatencyHistogram} and {@link SqlNormalizer}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class SqlProfilerTest
+{
+	private SqlProfiler profiler;
+
+	@Before
+	public void init()
+	{
+		profiler = new SqlProfiler();
+	}
+
+	@After
+	public void disableProfiler()
+	{
+		profiler.disable();
+	}
+
+	@Test
+	public void test_normalize()
+	{
+		Assert.assertEquals("SELECT * FROM C_Order WHERE C_Order_ID=? AND DocStatus=? AND Description=?",
+				SqlNormalizer.normalize("SELECT *\n  FROM C_Order\tWHERE C_Order_ID=1000001 AND DocStatus='CO' AND Description='it''s'"));
+		Assert.assertEquals("SELECT T1.\"Value\" FROM M_Product T1 WHERE T1.M_Product_ID IN (?) AND T1.Weight>?",
+				SqlNormalizer.normalize("SELECT T1.\"Value\" FROM M_Product T1 WHERE T1.M_Product_ID IN (1, 2,3) AND T1.Weight>1.5"));
+		Assert.assertEquals("SELECT * FROM M_Product WHERE M_Product_ID IN (?)", SqlNormalizer.normalize("SELECT * FROM M_Product WHERE M_Product_ID IN(?,?)"));
+	}
+
+	@Test
+	public void test_histogram_Buckets()
+	{
+		for (long value = 0; value < 100000; value += 7)
+		{
+			final int bucketIndex = SqlLatencyHistogram.getBucketIndex(value);
+			final long highestValueInBucket = SqlLatencyHistogram.getHighestValueInBucket(bucketIndex);
+			Assert.assertTrue("value=" + value, highestValueInBucket >= value);
+			Assert.assertTrue("value=" + value + " precision", highestValueInBucket - value <= value / 8);
+		}
+
+		Assert.assertEquals(SqlLatencyHistogram.BUCKETS_COUNT - 1, SqlLatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void test_histogram_Percentiles()
+	{
+		final SqlLatencyHistogram histogram = new SqlLatencyHistogram();
+		Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+
+		for (int value = 1; value <= 1000; value++)
+		{
+			histogram.record(value);
+		}
+
+		Assert.assertEquals(1000, histogram.getCount());
+		Assert.assertEquals(1000, histogram.getMax());
+		Assert.assertEquals(500.5, histogram.getAverage(), 0.001);
+		assertWithinPrecision(500, histogram.getValueAtPercentile(50));
+		assertWithinPrecision(990, histogram.getValueAtPercentile(99));
+		Assert.assertEquals(1000, histogram.getValueAtPercentile(100));
+	}
+
+	private static void assertWithinPrecision(final long expected, final long actual)
+	{
+		Assert.assertTrue("expected " + expected + " but was " + actual, actual >= expected && actual <= expected + expected / 8);
+	}
+
+	@Test
+	public void test_toTrxGroup()
+	{
+		Assert.assertEquals("POSave", SqlProfiler.toTrxGroup("POSave_0c5d7f5e-7b43-4a0f-a4b4-2f3c4e1d3f00"));
+		Assert.assertEquals("MyTrx", SqlProfiler.toTrxGroup("MyTrx"));
+		Assert.assertEquals("<no trx>", SqlProfiler.toTrxGroup(null));
+	}
+
+	@Test
+	public void test_record()
+	{
+		profiler.setSlowThresholdMillis(100);
+
+		try (final IAutoCloseable profilerContext = SqlProfilerContext.temporarySet(SqlProfilerContext.TYPE_Process, "MyProcess"))
+		{
+			profiler.record("SELECT * FROM C_Order WHERE C_Order_ID=1", "POSave_0c5d7f5e-7b43-4a0f-a4b4-2f3c4e1d3f00", SqlProfilerContext.getCurrentContextName(), null, 50000, -1);
+			profiler.record("SELECT * FROM C_Order WHERE C_Order_ID=2", "POSave_1c5d7f5e-7b43-4a0f-a4b4-2f3c4e1d3f00", SqlProfilerContext.getCurrentContextName(), null, 150000, -1);
+		}
+		Assert.assertNull(SqlProfilerContext.getCurrentContextName());
+		profiler.record("UPDATE C_Order SET Processed=? WHERE C_Order_ID=?", null, null, ImmutableMap.of(1, true, 2, 1000001), 300000, 1);
+
+		final String[] topSqls = profiler.getTopSqlsByTotalDuration(10);
+		Assert.assertEquals(2, topSqls.length);
+		Assert.assertTrue(topSqls[0], topSqls[0].startsWith("UPDATE C_Order SET Processed=? WHERE C_Order_ID=?\n-- count=1"));
+		Assert.assertTrue(topSqls[1], topSqls[1].startsWith("SELECT * FROM C_Order WHERE C_Order_ID=?\n-- count=2"));
+
+		final String[] statisticsByTrx = profiler.getStatisticsByTrx();
+		Assert.assertEquals(2, statisticsByTrx.length);
+		Assert.assertTrue(statisticsByTrx[1], statisticsByTrx[1].startsWith("POSave\n-- count=2"));
+
+		final String[] statisticsByContext = profiler.getStatisticsByBusinessContext();
+		Assert.assertEquals(2, statisticsByContext.length);
+		Assert.assertTrue(statisticsByContext[1], statisticsByContext[1].startsWith("Process:MyProcess\n-- count=2"));
+
+		final String[] slowestStatements = profiler.getSlowestStatements();
+		Assert.assertEquals(2, slowestStatements.length);
+		Assert.assertTrue(slowestStatements[0], slowestStatements[0].contains("-- Parameters: {1=true, 2=1000001}"));
+		Assert.assertTrue(slowestStatements[1], slowestStatements[1].contains("C_Order_ID=2"));
+	}
+
+	@Test
+	public void test_SlowestStatementsLimit()
+	{
+		profiler.setSlowThresholdMillis(0);
+		profiler.setSlowStatementsLimit(3);
+
+		for (int i = 1; i <= 10; i++)
+		{
+			profiler.record("SELECT " + i, null, null, null, i * 1000, -1);
+		}
+
+		final String[] slowestStatements = profiler.getSlowestStatements();
+		Assert.assertEquals(3, slowestStatements.length);
+		Assert.assertTrue(slowestStatements[0], slowestStatements[0].endsWith("\nSELECT 10"));
+		Assert.assertTrue(slowestStatements[2], slowestStatements[2].endsWith("\nSELECT 8"));
+	}
+}
@@ -0,0 +1,179 @@
+package org.adempiere.ad.service.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.CacheMgt;
+import org.compiere.util.KeyNamePair;
+import org.compiere.util.NamePair;
+import org.compiere.util.ValueNamePair;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link LookupDisplayCache}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class LookupDisplayCacheTest
+{
+	private static final String TABLENAME = "C_BPartner";
+	private static final String SQL = "SELECT C_BPartner_ID, NULL, Name, IsActive FROM C_BPartner WHERE (C_BPartner.C_BPartner_ID=?)";
+
+	private LookupDisplayCache cache;
+	private MockedLoader loader;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		cache = new LookupDisplayCache(100, 10);
+		loader = new MockedLoader();
+	}
+
+	@After
+	public void clearCache()
+	{
+		CacheMgt.get().clear();
+	}
+
+	@Test
+	public void test_getAll_QueriesOnlyMissingKeysAtOnce()
+	{
+		Assert.assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(cache.getAll(TABLENAME, SQL, Arrays.asList(1, 2, 3), loader).keySet()));
+		loader.assertLoaded(Arrays.asList(1, 2, 3));
+
+		final Map<Object, NamePair> values = cache.getAll(TABLENAME, SQL, Arrays.asList(3, 4, 1, 4), loader);
+		Assert.assertEquals(Arrays.asList(3, 4, 1), new ArrayList<>(values.keySet()));
+		Assert.assertEquals("Name4", values.get(4).getName());
+		loader.assertLoaded(Arrays.asList(4));
+
+		Assert.assertEquals(4, cache.size());
+		Assert.assertEquals(2, cache.getHitCount());
+		Assert.assertEquals(4, cache.getMissCount());
+		Assert.assertEquals(2, cache.getQueryCount());
+		Assert.assertEquals(2.0 / 6.0, cache.getHitRatio(), 0.0001);
+	}
+
+	@Test
+	public void test_getAll_NotFoundKeysAreNotCached()
+	{
+		loader.notFoundKeys.add(2);
+
+		Assert.assertEquals(Arrays.asList(1), new ArrayList<>(cache.getAll(TABLENAME, SQL, Arrays.asList(1, 2), loader).keySet()));
+		Assert.assertEquals(Arrays.asList(1), new ArrayList<>(cache.getAll(TABLENAME, SQL, Arrays.asList(1, 2), loader).keySet()));
+		loader.assertLoaded(Arrays.asList(1, 2), Arrays.asList(2));
+	}
+
+	@Test
+	public void test_getAll_DifferentSqlsAreCachedSeparately()
+	{
+		cache.getAll(TABLENAME, SQL, Arrays.asList(1), loader);
+		cache.getAll(TABLENAME, SQL + " AND ( IsCustomer='Y' ) ", Arrays.asList(1), loader);
+		cache.getAll(TABLENAME, SQL, Arrays.asList(1), loader);
+
+		loader.assertLoaded(Arrays.asList(1), Arrays.asList(1));
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void test_resetForRecordId()
+	{
+		cache.getAll(TABLENAME, SQL, Arrays.asList(1, 2), loader);
+		cache.getAll("M_Product", SQL, Arrays.asList(1), loader);
+		loader.loaded.clear();
+
+		CacheMgt.get().reset(TABLENAME, 2);
+		Assert.assertEquals(2, cache.size());
+
+		cache.getAll(TABLENAME, SQL, Arrays.asList(1, 2), loader);
+		loader.assertLoaded(Arrays.asList(2));
+
+		CacheMgt.get().reset(TABLENAME);
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void test_resetForRecordId_NonNumericKeys()
+	{
+		cache.getAll("AD_Ref_List", SQL, Arrays.asList("CO", "DR"), loader);
+		Assert.assertEquals(2, cache.size());
+
+		// NOTE: the record ID cannot be matched against the key (AD_Ref_List.Value), so we expect all keys to be invalidated
+		CacheMgt.get().reset("AD_Ref_List", 540000);
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void test_reset()
+	{
+		cache.getAll(TABLENAME, SQL, Arrays.asList(1, 2), loader);
+		cache.getAll("M_Product", SQL, Arrays.asList(1), loader);
+
+		Assert.assertEquals(3, cache.reset());
+		Assert.assertEquals(0, cache.size());
+	}
+
+	private static final class MockedLoader implements java.util.function.Function<Collection<Object>, Map<Object, NamePair>>
+	{
+		private final List<List<Object>> loaded = new ArrayList<>();
+		private final List<Object> notFoundKeys = new ArrayList<>();
+
+		@Override
+		public Map<Object, NamePair> apply(final Collection<Object> keys)
+		{
+			loaded.add(new ArrayList<>(keys));
+
+			final Map<Object, NamePair> values = new LinkedHashMap<>();
+			for (final Object key : keys)
+			{
+				if (notFoundKeys.contains(key))
+				{
+					continue;
+				}
+
+				final NamePair value = key instanceof Integer ? new KeyNamePair((Integer)key, "Name" + key) : new ValueNamePair(key.toString(), "Name" + key);
+				values.put(key, value);
+			}
+			return values;
+		}
+
+		@SafeVarargs
+		public final void assertLoaded(final List<Object>... expectedLoads)
+		{
+			Assert.assertEquals(Arrays.asList(expectedLoads), loaded);
+			loaded.clear();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package org.adempiere.ad.session.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.ITrxSavepoint;
+import org.adempiere.ad.trx.spi.TrxListenerAdapter;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import mockit.Mocked;
+import mockit.Verifications;
+
+/**
+ * Tests when {@link ChangeLogsBuffer} inserts the buffered change logs and when it discards them.
+ * The actual insert ({@link SessionDAO#insertChangeLogs(List, String)}) is mocked.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ChangeLogsBufferTest
+{
+	@Mocked
+	SessionDAO sessionDAO;
+
+	private ITrx trx;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName("ChangeLogsBufferTest", true);
+		trx = trxManager.get(trxName, false);
+	}
+
+	@Test
+	public void test_Commit() throws Exception
+	{
+		final ChangeLogsBuffer buffer = ChangeLogsBuffer.getCreate(trx, 100);
+		buffer.add(row("1"));
+		buffer.add(row("2"));
+		assertInserted();
+
+		trx.commit(true);
+		assertInserted(Arrays.asList("1", "2"));
+	}
+
+	@Test
+	public void test_BufferFull() throws Exception
+	{
+		final ChangeLogsBuffer buffer = ChangeLogsBuffer.getCreate(trx, 2);
+		buffer.add(row("1"));
+		buffer.add(row("2"));
+		buffer.add(row("3"));
+
+		trx.commit(true);
+		assertInserted(Arrays.asList("1", "2"), Arrays.asList("3"));
+	}
+
+	/**
+	 * Records can still be saved by before commit listeners which are called after the buffer's one (e.g. the ones which are saving on commit).
+	 * Their change logs shall be inserted too.
+	 */
+	@Test
+	public void test_Commit_ChangeLogsAddedByLaterBeforeCommitListener() throws Exception
+	{
+		final ChangeLogsBuffer buffer = ChangeLogsBuffer.getCreate(trx, 100);
+		buffer.add(row("1"));
+
+		trx.getTrxListenerManager().registerListener(new TrxListenerAdapter()
+		{
+			@Override
+			public void beforeCommit(final ITrx committingTrx)
+			{
+				ChangeLogsBuffer.getCreate(committingTrx, 100).add(row("saved on commit"));
+			}
+		});
+
+		trx.commit(true);
+		assertInserted(Arrays.asList("1"), Arrays.asList("saved on commit"));
+
+		// after commit, the change logs are buffered again
+		trx.start();
+		buffer.add(row("2"));
+		assertInserted(Arrays.asList("1"), Arrays.asList("saved on commit"));
+	}
+
+	@Test
+	public void test_Rollback_DiscardsChangeLogs() throws Exception
+	{
+		final ChangeLogsBuffer buffer = ChangeLogsBuffer.getCreate(trx, 100);
+		buffer.add(row("1"));
+		buffer.add(row("2"));
+
+		trx.rollback();
+		assertInserted();
+
+		trx.start();
+		buffer.add(row("3"));
+		trx.commit(true);
+		assertInserted(Arrays.asList("3"));
+	}
+
+	@Test
+	public void test_Savepoint() throws Exception
+	{
+		final ChangeLogsBuffer buffer = ChangeLogsBuffer.getCreate(trx, 100);
+		buffer.add(row("1"));
+
+		// the change logs before the savepoint are inserted, so they are not affected by a rollback to the savepoint
+		final ITrxSavepoint savepoint = trx.createTrxSavepoint(null);
+		assertInserted(Arrays.asList("1"));
+
+		buffer.add(row("2"));
+		trx.rollback(savepoint);
+
+		buffer.add(row("3"));
+		trx.commit(true);
+		assertInserted(Arrays.asList("1"), Arrays.asList("3"));
+	}
+
+	private static Object[] row(final String id)
+	{
+		return new Object[] { id };
+	}
+
+	/**
+	 * Asserts the rows of each {@link SessionDAO#insertChangeLogs(List, String)} call so far.
+	 *
+	 * @param expectedInserts for each insert the IDs of its rows
+	 */
+	@SafeVarargs
+	private final void assertInserted(final List<String>... expectedInserts)
+	{
+		final List<List<String>> expected = Arrays.asList(expectedInserts);
+		final List<List<String>> actual = new ArrayList<>();
+		if (expected.isEmpty())
+		{
+			// @formatter:off
+			new Verifications()
+			{{
+				SessionDAO.insertChangeLogs((List<Object[]>)any, anyString);
+				times = 0;
+			}};
+			// @formatter:on
+		}
+		else
+		{
+			final List<List<Object[]>> inserts = new ArrayList<>();
+			// @formatter:off
+			new Verifications()
+			{{
+				SessionDAO.insertChangeLogs(withCapture(inserts), withEqual(trx.getTrxName()));
+			}};
+			// @formatter:on
+			for (final List<Object[]> insert : inserts)
+			{
+				final List<String> ids = new ArrayList<>();
+				for (final Object[] row : insert)
+				{
+					ids.add((String)row[0]);
+				}
+				actual.add(ids);
+			}
+		}
+
+		Assert.assertEquals("Inserted change logs", expected, actual);
+	}
+}
@@ -0,0 +1,127 @@
+package org.adempiere.ad.session.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.ad.session.ChangeLogRecord;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.model.X_AD_ChangeLog;
+import org.compiere.util.DB;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Manual test: measures the overhead of AD_ChangeLog writing for a bulk update, with change logging off and on.
+ * <p>
+ * Needs a database (configured like for the swing client). Everything runs in one transaction which is rolled back at the end.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ChangeLogsOverheadManualTest
+{
+	public static void main(final String[] args)
+	{
+		final int recordsCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+		Adempiere.startupEnvironment(false);
+
+		final ChangeLogsOverheadManualTest test = new ChangeLogsOverheadManualTest(recordsCount);
+		test.run(false); // warm up
+		final long millisOff = test.run(false);
+		final long millisOn = test.run(true);
+
+		System.out.println("Updated " + recordsCount + " records: change logs off: " + millisOff + "ms, change logs on: " + millisOn + "ms"
+				+ " (overhead " + (millisOn - millisOff) * 100 / Math.max(millisOff, 1) + "%)");
+	}
+
+	private static final int COLUMNS_PER_RECORD = 5;
+
+	private final int recordsCount;
+	private final SessionDAO sessionDAO = new SessionDAO();
+	private final int adTableId;
+
+	private ChangeLogsOverheadManualTest(final int recordsCount)
+	{
+		super();
+		this.recordsCount = recordsCount;
+		adTableId = sessionDAO.retrieveChangeLogAllowedTableIds().get(0);
+	}
+
+	/**
+	 * Simulates a bulk update of {@link #recordsCount} records, optionally with their change logs, and rolls it back.
+	 *
+	 * @return duration in millis
+	 */
+	private long run(final boolean withChangeLogs)
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName("ChangeLogsOverhead", true);
+		final ITrx trx = trxManager.get(trxName, false);
+		try
+		{
+			final long startNanos = System.nanoTime();
+			for (int i = 1; i <= recordsCount; i++)
+			{
+				DB.executeUpdateEx("UPDATE AD_Table SET Updated=Updated WHERE AD_Table_ID=?", new Object[] { adTableId }, trxName);
+
+				if (withChangeLogs)
+				{
+					sessionDAO.saveChangeLogs(createChangeLogRecords(trxName, i));
+				}
+			}
+
+			// the change logs are written before commit; take that into account too
+			trx.getTrxListenerManager().fireBeforeCommit(trx);
+
+			return (System.nanoTime() - startNanos) / 1000000;
+		}
+		finally
+		{
+			trx.rollback();
+			trx.close();
+		}
+	}
+
+	private List<ChangeLogRecord> createChangeLogRecords(final String trxName, final int recordId)
+	{
+		final List<ChangeLogRecord> records = new ArrayList<>(COLUMNS_PER_RECORD);
+		for (int columnNo = 1; columnNo <= COLUMNS_PER_RECORD; columnNo++)
+		{
+			records.add(ChangeLogRecord.builder()
+					.setTrxName(trxName)
+					.setAD_Table_ID(adTableId)
+					.setAD_Column_ID(columnNo)
+					.setRecord_ID(recordId)
+					.setOldValue("old" + columnNo)
+					.setNewValue("new" + columnNo)
+					.setEventType(X_AD_ChangeLog.EVENTCHANGELOG_Update)
+					.setAD_User_ID(100)
+					.build());
+		}
+		return records;
+	}
+}
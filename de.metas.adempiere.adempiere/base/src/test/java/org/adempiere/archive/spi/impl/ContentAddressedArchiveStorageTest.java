@@ -0,0 +1,327 @@
+package org.adempiere.archive.spi.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.modelvalidator.IModelInterceptorRegistry;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.archive.model.interceptor.AD_Archive;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.model.I_AD_Client;
+import org.compiere.util.Env;
+import org.compiere.util.Ini;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.BaseEncoding;
+
+public class ContentAddressedArchiveStorageTest
+{
+	@BeforeClass
+	public static void staticInit()
+	{
+		AdempiereTestHelper.get().staticInit();
+	}
+
+	@Rule
+	public TemporaryFolder storageFolder = new TemporaryFolder();
+	private ContentAddressedArchiveStorage storage;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		Ini.setClient(false);
+
+		final Properties ctx = Env.getCtx();
+		final I_AD_Client client = InterfaceWrapperHelper.create(ctx, I_AD_Client.class, ITrx.TRXNAME_None);
+		client.setWindowsArchivePath(storageFolder.getRoot().getAbsolutePath());
+		client.setUnixArchivePath(client.getWindowsArchivePath());
+		client.setStoreArchiveOnFileSystem(true);
+		InterfaceWrapperHelper.save(client);
+
+		Env.setContext(ctx, "#AD_Client_ID", client.getAD_Client_ID());
+
+		storage = new ContentAddressedArchiveStorage();
+		storage.init(ctx, client.getAD_Client_ID());
+
+		Services.get(IModelInterceptorRegistry.class).addModelInterceptor(new AD_Archive());
+	}
+
+	@Test
+	public void test_set_getBinaryData()
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive = createArchive(data);
+
+		Assert.assertEquals("Invalid IsFileSystem flag", true, archive.isFileSystem());
+		Assert.assertTrue("Content addressed reference expected", ContentAddressedArchiveStorage.isContentAddressedReference(archive.getBinaryData()));
+
+		final byte[] dataActual = storage.getBinaryData(archive);
+		Assert.assertArrayEquals("Invalid data", data, dataActual);
+	}
+
+	@Test
+	public void test_SameData_IsStoredOnce()
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive1 = createArchive(data);
+		final I_AD_Archive archive2 = createArchive(data.clone());
+
+		Assert.assertArrayEquals("Same reference expected", archive1.getBinaryData(), archive2.getBinaryData());
+		Assert.assertEquals("Only one blob file expected", 1, countBlobFiles(storageFolder.getRoot()));
+
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive1));
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive2));
+	}
+
+	@Test
+	public void test_ReplacedData_ReleasesUnreferencedBlob()
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive1 = createArchive(data);
+		final I_AD_Archive archive2 = createArchive(data.clone());
+
+		// the blob is still referenced by archive2
+		final byte[] data1New = createTestDataBytes();
+		storage.setBinaryData(archive1, data1New);
+		InterfaceWrapperHelper.save(archive1);
+		Assert.assertEquals(2, countBlobFiles(storageFolder.getRoot()));
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive2));
+
+		// the blob is not referenced anymore
+		final byte[] data2New = createTestDataBytes();
+		storage.setBinaryData(archive2, data2New);
+		InterfaceWrapperHelper.save(archive2);
+		Assert.assertEquals(2, countBlobFiles(storageFolder.getRoot()));
+
+		Assert.assertArrayEquals("Invalid data", data1New, storage.getBinaryData(archive1));
+		Assert.assertArrayEquals("Invalid data", data2New, storage.getBinaryData(archive2));
+	}
+
+	@Test
+	public void test_DeletedArchive_ReleasesUnreferencedBlob()
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive1 = createArchive(data);
+		final I_AD_Archive archive2 = createArchive(data.clone());
+
+		// the blob is still referenced by archive2
+		InterfaceWrapperHelper.delete(archive1);
+		Assert.assertEquals(1, countBlobFiles(storageFolder.getRoot()));
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive2));
+
+		// the blob is not referenced anymore
+		InterfaceWrapperHelper.delete(archive2);
+		Assert.assertEquals(0, countBlobFiles(storageFolder.getRoot()));
+	}
+
+	@Test
+	public void test_ReplacedData_ReleasesPreviousBlobOnlyAfterCommit() throws Exception
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive = createArchive(data);
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName("test", true);
+		final ITrx trx = trxManager.get(trxName, false);
+		InterfaceWrapperHelper.setTrxName(archive, trxName);
+
+		final byte[] dataNew = createTestDataBytes();
+		storage.setBinaryData(archive, dataNew);
+		InterfaceWrapperHelper.save(archive);
+		Assert.assertEquals("Previous blob shall be kept until commit", 2, countBlobFiles(storageFolder.getRoot()));
+
+		trx.commit(true);
+		trx.close();
+		Assert.assertEquals(1, countBlobFiles(storageFolder.getRoot()));
+		Assert.assertArrayEquals("Invalid data", dataNew, storage.getBinaryData(archive));
+	}
+
+	@Test
+	public void test_ReplacedData_Rollback_KeepsPreviousBlob()
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive = createArchive(data);
+		final byte[] binaryDataOld = archive.getBinaryData();
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName("test", true);
+		final ITrx trx = trxManager.get(trxName, false);
+		InterfaceWrapperHelper.setTrxName(archive, trxName);
+
+		storage.setBinaryData(archive, createTestDataBytes());
+		InterfaceWrapperHelper.save(archive);
+
+		trx.rollback();
+		trx.close();
+
+		// the new blob was released, the previous one is kept
+		Assert.assertEquals(1, countBlobFiles(storageFolder.getRoot()));
+		archive.setBinaryData(binaryDataOld);
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive));
+	}
+
+	/**
+	 * Stores different blobs of the same shard folder from many threads at the same time.
+	 * They are sharing the shard folder's file lock, so they shall wait for each other and not fail with an OverlappingFileLockException.
+	 */
+	@Test
+	public void test_ConcurrentStore_SameShardFolder() throws Exception
+	{
+		final List<byte[]> datas = createTestDataBytesOfSameShard(8);
+		final int threadsCount = datas.size() * 2; // store each data twice
+
+		final List<I_AD_Archive> archives = new ArrayList<>();
+		final List<Callable<Void>> storeCalls = new ArrayList<>();
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		for (int i = 0; i < threadsCount; i++)
+		{
+			final I_AD_Archive archive = InterfaceWrapperHelper.create(Env.getCtx(), I_AD_Archive.class, ITrx.TRXNAME_None);
+			archive.setAD_Org_ID(0);
+			archives.add(archive);
+
+			final byte[] data = datas.get(i % datas.size());
+			storeCalls.add(() -> {
+				startLatch.await();
+				storage.setBinaryData(archive, data);
+				return null;
+			});
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+		try
+		{
+			final List<Future<Void>> futures = new ArrayList<>();
+			for (final Callable<Void> storeCall : storeCalls)
+			{
+				futures.add(executor.submit(storeCall));
+			}
+			startLatch.countDown();
+			for (final Future<Void> future : futures)
+			{
+				future.get(30, TimeUnit.SECONDS); // fails if the store failed
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals("One blob file per data expected", datas.size(), countBlobFiles(storageFolder.getRoot()));
+		for (int i = 0; i < threadsCount; i++)
+		{
+			final I_AD_Archive archive = archives.get(i);
+			InterfaceWrapperHelper.save(archive);
+			Assert.assertArrayEquals("Invalid data", datas.get(i % datas.size()), storage.getBinaryData(archive));
+		}
+
+		// each blob is referenced twice, so it's deleted only together with its second archive
+		for (int i = 0; i < threadsCount; i++)
+		{
+			InterfaceWrapperHelper.delete(archives.get(i));
+			final int blobsExpected = i < datas.size() ? datas.size() : threadsCount - i - 1;
+			Assert.assertEquals("Invalid blobs count after deleting archive " + i, blobsExpected, countBlobFiles(storageFolder.getRoot()));
+		}
+	}
+
+	private I_AD_Archive createArchive(final byte[] data)
+	{
+		final I_AD_Archive archive = InterfaceWrapperHelper.create(Env.getCtx(), I_AD_Archive.class, ITrx.TRXNAME_None);
+		archive.setAD_Org_ID(0);
+		storage.setBinaryData(archive, data);
+		InterfaceWrapperHelper.save(archive);
+		return archive;
+	}
+
+	private static int countBlobFiles(final File folder)
+	{
+		int count = 0;
+		for (final File file : folder.listFiles())
+		{
+			if (file.isDirectory())
+			{
+				count += countBlobFiles(file);
+			}
+			else if (!file.getName().endsWith(".refs") && !file.getName().equals(".lock"))
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private final Random random = new Random();
+
+	private byte[] createTestDataBytes()
+	{
+		final byte[] data = new byte[4096];
+		random.nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * @return different data whose SHA-256 hashes are starting with the same 4 characters, i.e. which are stored in the same shard folder
+	 */
+	private List<byte[]> createTestDataBytesOfSameShard(final int count) throws Exception
+	{
+		final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		final List<byte[]> datas = new ArrayList<>();
+		String shard = null;
+		while (datas.size() < count)
+		{
+			final byte[] data = new byte[16];
+			random.nextBytes(data);
+			final String dataShard = BaseEncoding.base16().lowerCase().encode(digest.digest(data)).substring(0, 4);
+			if (shard == null)
+			{
+				shard = dataShard;
+			}
+			if (shard.equals(dataShard))
+			{
+				datas.add(data);
+			}
+		}
+		return datas;
+	}
+}
@@ -0,0 +1,214 @@
+package org.adempiere.bpartner.model.interceptor;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import org.adempiere.ad.modelvalidator.IModelInterceptorRegistry;
+import org.adempiere.bpartner.service.IBPartnerStatsDAO;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.I_C_AllocationHdr;
+import org.compiere.model.I_C_AllocationLine;
+import org.compiere.model.I_C_Invoice;
+import org.compiere.model.I_C_Payment;
+import org.compiere.model.X_C_AllocationHdr;
+import org.compiere.model.X_C_Invoice;
+import org.compiere.model.X_C_Payment;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.metas.allocation.api.IAllocationDAO;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+
+/**
+ * Tests that the {@link C_Invoice}, {@link C_Payment} and {@link C_AllocationHdr} interceptors update the open items of the documents whose open amount changed, and only of those.
+ * <p>
+ * The open item ledger itself is maintained by the database function behind {@link IBPartnerStatsDAO#updateOpenItem(String, int, String)}, which is mocked here.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class BPartnerOpenItemInterceptorsTest
+{
+	@Mocked
+	IBPartnerStatsDAO bpStatsDAO;
+
+	@Mocked
+	IAllocationDAO allocationDAO;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		Services.registerService(IBPartnerStatsDAO.class, bpStatsDAO);
+		Services.registerService(IAllocationDAO.class, allocationDAO);
+
+		final IModelInterceptorRegistry modelInterceptorRegistry = Services.get(IModelInterceptorRegistry.class);
+		modelInterceptorRegistry.addModelInterceptor(new C_Invoice());
+		modelInterceptorRegistry.addModelInterceptor(new C_Payment());
+		modelInterceptorRegistry.addModelInterceptor(new C_AllocationHdr());
+	}
+
+	@Test
+	public void test_Invoice_CompleteAndReverse()
+	{
+		final I_C_Invoice invoice = createInvoice(); // 1st update
+
+		invoice.setDocStatus(X_C_Invoice.DOCSTATUS_Completed);
+		InterfaceWrapperHelper.save(invoice); // 2nd update
+
+		invoice.setDescription("not relevant for the open item");
+		InterfaceWrapperHelper.save(invoice);
+
+		invoice.setDocStatus(X_C_Invoice.DOCSTATUS_Reversed);
+		InterfaceWrapperHelper.save(invoice); // 3rd update
+
+		assertOpenItemUpdated(I_C_Invoice.Table_Name, invoice.getC_Invoice_ID(), 3);
+		assertOpenItemUpdated(I_C_Payment.Table_Name, 0);
+	}
+
+	@Test
+	public void test_Invoice_Paid()
+	{
+		final I_C_Invoice invoice = createInvoice(); // 1st update
+		invoice.setDocStatus(X_C_Invoice.DOCSTATUS_Completed);
+		InterfaceWrapperHelper.save(invoice); // 2nd update
+
+		invoice.setIsPaid(true);
+		InterfaceWrapperHelper.save(invoice); // 3rd update
+
+		assertOpenItemUpdated(I_C_Invoice.Table_Name, invoice.getC_Invoice_ID(), 3);
+	}
+
+	@Test
+	public void test_Payment_CompleteAllocateAndUnallocate()
+	{
+		final I_C_Payment payment = createPayment(); // 1st update
+		payment.setDocStatus(X_C_Payment.DOCSTATUS_Completed);
+		InterfaceWrapperHelper.save(payment); // 2nd update
+
+		payment.setIsAllocated(true);
+		InterfaceWrapperHelper.save(payment); // 3rd update
+
+		payment.setIsAllocated(false);
+		InterfaceWrapperHelper.save(payment); // 4th update
+
+		payment.setDescription("not relevant for the open item");
+		InterfaceWrapperHelper.save(payment);
+
+		assertOpenItemUpdated(I_C_Payment.Table_Name, payment.getC_Payment_ID(), 4);
+		assertOpenItemUpdated(I_C_Invoice.Table_Name, 0);
+	}
+
+	/**
+	 * A partial allocation doesn't change the invoice's or payment's <code>IsPaid</code> or <code>IsAllocated</code> flags, but changes their open amounts.
+	 */
+	@Test
+	public void test_AllocationHdr_PartialAllocation_CompleteAndReverse()
+	{
+		final I_C_Invoice invoice1 = createInvoice();
+		final I_C_Invoice invoice2 = createInvoice();
+		final I_C_Payment payment = createPayment();
+
+		final I_C_AllocationHdr allocationHdr = InterfaceWrapperHelper.newInstance(I_C_AllocationHdr.class);
+		allocationHdr.setDocStatus(X_C_AllocationHdr.DOCSTATUS_Drafted);
+		InterfaceWrapperHelper.save(allocationHdr);
+
+		final I_C_AllocationLine line1 = createAllocationLine(allocationHdr, invoice1.getC_Invoice_ID(), payment.getC_Payment_ID());
+		final I_C_AllocationLine line2 = createAllocationLine(allocationHdr, invoice2.getC_Invoice_ID(), -1);
+		// @formatter:off
+		new Expectations()
+		{{
+			allocationDAO.retrieveAllLines(allocationHdr);
+			result = Arrays.asList(line1, line2);
+		}};
+		// @formatter:on
+
+		allocationHdr.setDocStatus(X_C_AllocationHdr.DOCSTATUS_Completed);
+		InterfaceWrapperHelper.save(allocationHdr);
+
+		allocationHdr.setDescription("not relevant for the open items");
+		InterfaceWrapperHelper.save(allocationHdr);
+
+		allocationHdr.setDocStatus(X_C_AllocationHdr.DOCSTATUS_Reversed);
+		InterfaceWrapperHelper.save(allocationHdr);
+
+		// +1 because of the creation of the invoices and of the payment
+		assertOpenItemUpdated(I_C_Invoice.Table_Name, invoice1.getC_Invoice_ID(), 1 + 2);
+		assertOpenItemUpdated(I_C_Invoice.Table_Name, invoice2.getC_Invoice_ID(), 1 + 2);
+		assertOpenItemUpdated(I_C_Payment.Table_Name, payment.getC_Payment_ID(), 1 + 2);
+	}
+
+	private I_C_Invoice createInvoice()
+	{
+		final I_C_Invoice invoice = InterfaceWrapperHelper.newInstance(I_C_Invoice.class);
+		invoice.setDocStatus(X_C_Invoice.DOCSTATUS_Drafted);
+		InterfaceWrapperHelper.save(invoice);
+		return invoice;
+	}
+
+	private I_C_Payment createPayment()
+	{
+		final I_C_Payment payment = InterfaceWrapperHelper.newInstance(I_C_Payment.class);
+		payment.setDocStatus(X_C_Payment.DOCSTATUS_Drafted);
+		InterfaceWrapperHelper.save(payment);
+		return payment;
+	}
+
+	private I_C_AllocationLine createAllocationLine(final I_C_AllocationHdr allocationHdr, final int invoiceId, final int paymentId)
+	{
+		final I_C_AllocationLine line = InterfaceWrapperHelper.newInstance(I_C_AllocationLine.class, allocationHdr);
+		line.setC_AllocationHdr_ID(allocationHdr.getC_AllocationHdr_ID());
+		line.setC_Invoice_ID(invoiceId);
+		line.setC_Payment_ID(paymentId);
+		InterfaceWrapperHelper.save(line);
+		return line;
+	}
+
+	private void assertOpenItemUpdated(final String tableName, final int recordId, final int expectedTimes)
+	{
+		// @formatter:off
+		new Verifications()
+		{{
+			bpStatsDAO.updateOpenItem(withEqual(tableName), withEqual(recordId), anyString);
+			times = expectedTimes;
+		}};
+		// @formatter:on
+	}
+
+	private void assertOpenItemUpdated(final String tableName, final int expectedTimes)
+	{
+		// @formatter:off
+		new Verifications()
+		{{
+			bpStatsDAO.updateOpenItem(withEqual(tableName), anyInt, anyString);
+			times = expectedTimes;
+		}};
+		// @formatter:on
+	}
+}
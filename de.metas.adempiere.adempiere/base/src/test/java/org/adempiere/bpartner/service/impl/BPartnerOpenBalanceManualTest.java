@@ -0,0 +1,125 @@
+package org.adempiere.bpartner.service.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.DBException;
+import org.compiere.Adempiere;
+import org.compiere.util.DB;
+
+/**
+ * Manual test: compares the legacy total open balance SQL (which sums up all open invoices and payments of a partner)
+ * with reading the incrementally maintained <code>C_BPartner_Stats.TotalOpenBalance</code>, by duration and result.
+ * <p>
+ * Uses the partners with the most open items. Needs a database (configured like for the swing client).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class BPartnerOpenBalanceManualTest
+{
+	private static final String SQL_Legacy = "SELECT "
+			+ "COALESCE((SELECT SUM(currencyBase(invoiceOpen(i.C_Invoice_ID,i.C_InvoicePaySchedule_ID),i.C_Currency_ID,i.DateInvoiced, i.AD_Client_ID,i.AD_Org_ID)*i.MultiplierAP) FROM C_Invoice_v i "
+			+ "WHERE i.C_BPartner_ID=bp.C_BPartner_ID AND i.IsPaid='N' AND i.DocStatus IN ('CO','CL')),0) - "
+			+ "COALESCE((SELECT SUM(currencyBase(Paymentavailable(p.C_Payment_ID),p.C_Currency_ID,p.DateTrx,p.AD_Client_ID,p.AD_Org_ID)) FROM C_Payment_v p "
+			+ "WHERE p.C_BPartner_ID=bp.C_BPartner_ID AND p.IsAllocated='N'"
+			+ " AND p.C_Charge_ID IS NULL AND p.DocStatus IN ('CO','CL')),0) "
+			+ "FROM C_BPartner bp WHERE C_BPartner_ID=?";
+
+	private static final String SQL_Stats = "SELECT TotalOpenBalance FROM C_BPartner_Stats WHERE C_BPartner_ID=?";
+
+	public static void main(final String[] args)
+	{
+		final int bpartnersCount = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+
+		Adempiere.startupEnvironment(false);
+
+		final List<Integer> bpartnerIds = retrieveBPartnerIdsWithMostOpenItems(bpartnersCount);
+
+		for (int round = 1; round <= 3; round++) // first round(s) are warming up
+		{
+			run("legacy SQL", SQL_Legacy, bpartnerIds);
+			run("C_BPartner_Stats", SQL_Stats, bpartnerIds);
+		}
+
+		int countMismatches = 0;
+		for (final int bpartnerId : bpartnerIds)
+		{
+			final BigDecimal legacyBalance = DB.getSQLValueBDEx(ITrx.TRXNAME_None, SQL_Legacy, bpartnerId);
+			final BigDecimal statsBalance = DB.getSQLValueBDEx(ITrx.TRXNAME_None, SQL_Stats, bpartnerId);
+			if (statsBalance == null || legacyBalance.compareTo(statsBalance) != 0)
+			{
+				System.out.println("Mismatch for C_BPartner_ID=" + bpartnerId + ": legacy=" + legacyBalance + ", stats=" + statsBalance);
+				countMismatches++;
+			}
+		}
+		System.out.println(countMismatches + " mismatches for " + bpartnerIds.size() + " partners");
+	}
+
+	private static List<Integer> retrieveBPartnerIdsWithMostOpenItems(final int limit)
+	{
+		final String sql = "SELECT C_BPartner_ID FROM C_BPartner_OpenItem GROUP BY C_BPartner_ID ORDER BY COUNT(1) DESC LIMIT ?";
+		final List<Integer> bpartnerIds = new ArrayList<>();
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			pstmt.setInt(1, limit);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				bpartnerIds.add(rs.getInt(1));
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+		return bpartnerIds;
+	}
+
+	private static void run(final String name, final String sql, final List<Integer> bpartnerIds)
+	{
+		final long startNanos = System.nanoTime();
+
+		for (final int bpartnerId : bpartnerIds)
+		{
+			DB.getSQLValueBDEx(ITrx.TRXNAME_None, sql, bpartnerId);
+		}
+
+		final long durationMicros = (System.nanoTime() - startNanos) / 1000;
+		System.out.println(name + ": " + bpartnerIds.size() + " partners in " + durationMicros / 1000 + "ms, " + durationMicros / Math.max(1, bpartnerIds.size()) + "us/partner");
+	}
+}
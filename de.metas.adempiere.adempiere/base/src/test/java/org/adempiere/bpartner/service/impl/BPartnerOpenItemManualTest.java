@@ -0,0 +1,173 @@
+package org.adempiere.bpartner.service.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.bpartner.service.IBPartnerStatsDAO;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.model.I_C_Invoice;
+import org.compiere.model.I_C_Payment;
+import org.compiere.util.DB;
+import org.junit.Assert;
+
+/**
+ * Manual test: checks the deltas which {@link IBPartnerStatsDAO#updateOpenItem(String, int, String)} applies to <code>C_BPartner_OpenItem</code> and <code>C_BPartner_Stats</code>
+ * when an open invoice or payment is completed, reversed, paid or (un)allocated.
+ * <p>
+ * Uses an existing open invoice and payment and changes them directly in a transaction which is rolled back at the end.
+ * Needs a database (configured like for the swing client).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class BPartnerOpenItemManualTest
+{
+	public static void main(final String[] args)
+	{
+		Adempiere.startupEnvironment(false);
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName("BPartnerOpenItemManualTest", true);
+		try
+		{
+			final BPartnerOpenItemManualTest test = new BPartnerOpenItemManualTest(trxName);
+			test.test_Invoice();
+			test.test_Payment();
+			System.out.println("OK");
+		}
+		finally
+		{
+			final ITrx trx = trxManager.get(trxName, OnTrxMissingPolicy.ReturnTrxNone);
+			trx.rollback();
+			trx.close();
+		}
+	}
+
+	private final String trxName;
+	private final IBPartnerStatsDAO bpStatsDAO = Services.get(IBPartnerStatsDAO.class);
+
+	private BPartnerOpenItemManualTest(final String trxName)
+	{
+		super();
+		this.trxName = trxName;
+	}
+
+	private void test_Invoice()
+	{
+		final int invoiceId = DB.getSQLValueEx(trxName, "SELECT Record_ID FROM C_BPartner_OpenItem WHERE AD_Table_ID=318 AND OpenBalance<>0 ORDER BY Record_ID LIMIT 1");
+		Assert.assertTrue("No open invoice found", invoiceId > 0);
+		final OpenItemChecker checker = new OpenItemChecker(I_C_Invoice.Table_Name, 318, invoiceId);
+
+		// nothing changed
+		checker.updateAndAssertOpen(true);
+
+		executeUpdate("UPDATE C_Invoice SET IsPaid='Y' WHERE C_Invoice_ID=?", invoiceId);
+		checker.updateAndAssertOpen(false);
+
+		executeUpdate("UPDATE C_Invoice SET IsPaid='N' WHERE C_Invoice_ID=?", invoiceId);
+		checker.updateAndAssertOpen(true);
+
+		executeUpdate("UPDATE C_Invoice SET DocStatus='RE' WHERE C_Invoice_ID=?", invoiceId);
+		checker.updateAndAssertOpen(false);
+
+		executeUpdate("UPDATE C_Invoice SET DocStatus='CO' WHERE C_Invoice_ID=?", invoiceId);
+		checker.updateAndAssertOpen(true);
+	}
+
+	private void test_Payment()
+	{
+		final int paymentId = DB.getSQLValueEx(trxName, "SELECT Record_ID FROM C_BPartner_OpenItem WHERE AD_Table_ID=335 AND OpenBalance<>0 ORDER BY Record_ID LIMIT 1");
+		Assert.assertTrue("No open payment found", paymentId > 0);
+		final OpenItemChecker checker = new OpenItemChecker(I_C_Payment.Table_Name, 335, paymentId);
+
+		checker.updateAndAssertOpen(true);
+
+		executeUpdate("UPDATE C_Payment SET IsAllocated='Y' WHERE C_Payment_ID=?", paymentId);
+		checker.updateAndAssertOpen(false);
+
+		executeUpdate("UPDATE C_Payment SET IsAllocated='N' WHERE C_Payment_ID=?", paymentId);
+		checker.updateAndAssertOpen(true);
+
+		executeUpdate("UPDATE C_Payment SET DocStatus='RE' WHERE C_Payment_ID=?", paymentId);
+		checker.updateAndAssertOpen(false);
+
+		executeUpdate("UPDATE C_Payment SET DocStatus='CO' WHERE C_Payment_ID=?", paymentId);
+		checker.updateAndAssertOpen(true);
+	}
+
+	private void executeUpdate(final String sql, final int recordId)
+	{
+		DB.executeUpdateEx(sql, new Object[] { recordId }, trxName);
+	}
+
+	/**
+	 * Remembers the open item of one document and its partner's balance, so the balance can be checked after each update.
+	 */
+	private final class OpenItemChecker
+	{
+		private final String tableName;
+		private final int adTableId;
+		private final int recordId;
+		private final int bpartnerId;
+		private final BigDecimal openBalance;
+		private final BigDecimal soCreditUsed;
+		private final BigDecimal totalOpenBalanceWithItem;
+		private final BigDecimal soCreditUsedWithItem;
+
+		private OpenItemChecker(final String tableName, final int adTableId, final int recordId)
+		{
+			super();
+			this.tableName = tableName;
+			this.adTableId = adTableId;
+			this.recordId = recordId;
+			bpartnerId = DB.getSQLValueEx(trxName, "SELECT C_BPartner_ID FROM C_BPartner_OpenItem WHERE AD_Table_ID=? AND Record_ID=?", adTableId, recordId);
+			openBalance = DB.getSQLValueBDEx(trxName, "SELECT OpenBalance FROM C_BPartner_OpenItem WHERE AD_Table_ID=? AND Record_ID=?", adTableId, recordId);
+			soCreditUsed = DB.getSQLValueBDEx(trxName, "SELECT SO_CreditUsed FROM C_BPartner_OpenItem WHERE AD_Table_ID=? AND Record_ID=?", adTableId, recordId);
+			totalOpenBalanceWithItem = retrieveStatsValue("TotalOpenBalance");
+			soCreditUsedWithItem = retrieveStatsValue("SO_CreditUsed");
+		}
+
+		private void updateAndAssertOpen(final boolean expectedOpen)
+		{
+			bpStatsDAO.updateOpenItem(tableName, recordId, trxName);
+
+			final int openItemsCount = DB.getSQLValueEx(trxName, "SELECT COUNT(1) FROM C_BPartner_OpenItem WHERE AD_Table_ID=? AND Record_ID=?", adTableId, recordId);
+			Assert.assertEquals(tableName + "/" + recordId + " open item count", expectedOpen ? 1 : 0, openItemsCount);
+
+			final BigDecimal totalOpenBalanceExpected = expectedOpen ? totalOpenBalanceWithItem : totalOpenBalanceWithItem.subtract(openBalance);
+			final BigDecimal soCreditUsedExpected = expectedOpen ? soCreditUsedWithItem : soCreditUsedWithItem.subtract(soCreditUsed);
+			Assert.assertEquals(tableName + "/" + recordId + " TotalOpenBalance", 0, totalOpenBalanceExpected.compareTo(retrieveStatsValue("TotalOpenBalance")));
+			Assert.assertEquals(tableName + "/" + recordId + " SO_CreditUsed", 0, soCreditUsedExpected.compareTo(retrieveStatsValue("SO_CreditUsed")));
+		}
+
+		private BigDecimal retrieveStatsValue(final String columnName)
+		{
+			return DB.getSQLValueBDEx(trxName, "SELECT COALESCE(" + columnName + ",0) FROM C_BPartner_Stats WHERE C_BPartner_ID=?", bpartnerId);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package org.adempiere.process.rpl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Tests that {@link XMLHelper}'s XPath methods can be called concurrently.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class XMLHelperTest
+{
+	private static final int THREADS = 8;
+	private static final int DOCUMENTS_PER_THREAD = 200;
+
+	@Test
+	public void test_XPath() throws Exception
+	{
+		final Document document = createOrderDocument(1, 3);
+
+		Assert.assertEquals("Order-1", XMLHelper.getString("/Order/DocumentNo", document));
+		Assert.assertEquals(3, XMLHelper.getNodeList("/Order/Line", document).getLength());
+		Assert.assertEquals(6, XMLHelper.getNumber("sum(/Order/Line/Qty)", document), 0);
+		Assert.assertTrue(XMLHelper.getBoolean("/Order/@Version='1'", document));
+		Assert.assertNotNull(XMLHelper.getElement("/Order/Line[2]", document));
+		Assert.assertNull(XMLHelper.getNode("/Order/Missing", document));
+	}
+
+	@Test
+	public void test_XPath_Concurrent() throws Exception
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try
+		{
+			final List<Future<Integer>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++)
+			{
+				final int threadNo = thread;
+				futures.add(executor.submit(new Callable<Integer>()
+				{
+					@Override
+					public Integer call() throws Exception
+					{
+						int documentsChecked = 0;
+						for (int i = 0; i < DOCUMENTS_PER_THREAD; i++)
+						{
+							final int orderNo = threadNo * DOCUMENTS_PER_THREAD + i;
+							final int linesCount = 1 + i % 5;
+							final Document document = createOrderDocument(orderNo, linesCount);
+
+							Assert.assertEquals("Order-" + orderNo, XMLHelper.getString("/Order/DocumentNo", document));
+							Assert.assertEquals(linesCount, XMLHelper.getNodeList("/Order/Line", document).getLength());
+							Assert.assertEquals(linesCount * (linesCount + 1) / 2, XMLHelper.getNumber("sum(/Order/Line/Qty)", document), 0);
+							documentsChecked++;
+						}
+						return documentsChecked;
+					}
+				}));
+			}
+
+			for (final Future<Integer> future : futures)
+			{
+				Assert.assertEquals(DOCUMENTS_PER_THREAD, (int)future.get(60, TimeUnit.SECONDS));
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private static Document createOrderDocument(final int orderNo, final int linesCount) throws Exception
+	{
+		final StringBuilder xml = new StringBuilder();
+		xml.append("<Order Version=\"1\"><DocumentNo>Order-").append(orderNo).append("</DocumentNo>");
+		for (int line = 1; line <= linesCount; line++)
+		{
+			xml.append("<Line><Line>").append(line).append("</Line><Qty>").append(line).append("</Qty></Line>");
+		}
+		xml.append("</Order>");
+		return XMLHelper.createDocumentFromString(xml.toString());
+	}
+}
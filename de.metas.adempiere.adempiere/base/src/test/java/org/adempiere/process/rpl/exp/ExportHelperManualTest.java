@@ -0,0 +1,136 @@
+package org.adempiere.process.rpl.exp;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.process.rpl.api.IReplicationAccessContext;
+import org.compiere.Adempiere;
+import org.compiere.model.MEXPFormat;
+import org.compiere.model.MReplicationStrategy;
+import org.compiere.model.ModelValidator;
+import org.compiere.model.X_AD_ReplicationTable;
+import org.compiere.util.Env;
+
+/**
+ * Manual test: exports all records of an EXP_Format, once the old way ({@link ExportHelper#exportRecord(MEXPFormat, String, Integer, String, Integer, IReplicationAccessContext)},
+ * which loads all records at once and queries the embedded records per master record) and once streamed to a file
+ * ({@link ExportHelper#exportRecords(MEXPFormat, String, Integer, String, Integer, IReplicationAccessContext, java.io.OutputStream)}), and prints the duration and the peak heap usage of both.
+ * <p>
+ * Needs a database (configured like for the swing client). Arguments: EXP_Format_ID, output file and optionally a where clause.
+ * Run it with a small heap (e.g. <code>-Xmx256m</code>) to see the difference.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ExportHelperManualTest
+{
+	public static void main(final String[] args) throws Exception
+	{
+		final int exportFormatId = Integer.parseInt(args[0]);
+		final String fileName = args[1];
+		final String where = args.length > 2 ? args[2] : null;
+
+		Adempiere.startupEnvironment(false);
+
+		final ExportHelper exportHelper = new ExportHelper(Env.getCtx(), Env.getAD_Client_ID(Env.getCtx()));
+		final MEXPFormat exportFormat = new MEXPFormat(Env.getCtx(), exportFormatId, null);
+		final IReplicationAccessContext racCtx = exportHelper.getDefaultIReplicationAccessContext();
+
+		for (int round = 1; round <= 3; round++) // first round(s) are warming up
+		{
+			measure("DOM      ", new Callable<Object>()
+			{
+				@Override
+				public Object call() throws Exception
+				{
+					return exportHelper.exportRecord(exportFormat, where, MReplicationStrategy.REPLICATION_TABLE, X_AD_ReplicationTable.REPLICATIONTYPE_Merge, ModelValidator.TYPE_AFTER_CHANGE, racCtx);
+				}
+			});
+			measure("Streaming", new Callable<Object>()
+			{
+				@Override
+				public Object call() throws Exception
+				{
+					try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName)))
+					{
+						return exportHelper.exportRecords(exportFormat, where, MReplicationStrategy.REPLICATION_TABLE, X_AD_ReplicationTable.REPLICATIONTYPE_Merge, ModelValidator.TYPE_AFTER_CHANGE, racCtx, out)
+								+ " records";
+					}
+				}
+			});
+		}
+	}
+
+	private static void measure(final String name, final Callable<Object> callable) throws Exception
+	{
+		System.gc();
+		final Runtime runtime = Runtime.getRuntime();
+		final long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+
+		// sample the used heap while running, to get its peak
+		final AtomicLong usedPeak = new AtomicLong(usedBefore);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final Thread sampler = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				while (running.get())
+				{
+					usedPeak.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+					try
+					{
+						Thread.sleep(5);
+					}
+					catch (final InterruptedException e)
+					{
+						return;
+					}
+				}
+			}
+		});
+		sampler.setDaemon(true);
+		sampler.start();
+
+		final long startNanos = System.nanoTime();
+		final Object result;
+		try
+		{
+			result = callable.call();
+		}
+		finally
+		{
+			running.set(false);
+			sampler.join();
+		}
+		final long durationMillis = (System.nanoTime() - startNanos) / 1000000;
+
+		System.out.println(name + ": " + durationMillis + "ms, peak heap +" + (usedPeak.get() - usedBefore) / 1024 / 1024 + "MB, result: " + (result instanceof String ? result : "DOM of the last record"));
+	}
+}
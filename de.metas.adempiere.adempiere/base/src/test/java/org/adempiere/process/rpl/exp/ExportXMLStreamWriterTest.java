@@ -0,0 +1,114 @@
+package org.adempiere.process.rpl.exp;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Tests {@link ExportXMLStreamWriter}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ExportXMLStreamWriterTest
+{
+	private DocumentBuilder documentBuilder;
+
+	@Before
+	public void init() throws Exception
+	{
+		documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+	}
+
+	@Test
+	public void test_writeRecords() throws Exception
+	{
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final ExportXMLStreamWriter xmlWriter = new ExportXMLStreamWriter(out)
+				.writeStartDocument("ExportedRecords");
+		for (int i = 1; i <= 3; i++)
+		{
+			xmlWriter.writeRecord(createRecordElement(i));
+		}
+		xmlWriter.writeEndDocument();
+		Assert.assertEquals(3, xmlWriter.getRecordsCount());
+
+		final Document document = documentBuilder.parse(new ByteArrayInputStream(out.toByteArray()));
+		final Element rootElement = document.getDocumentElement();
+		Assert.assertEquals("ExportedRecords", rootElement.getNodeName());
+		Assert.assertEquals(3, rootElement.getElementsByTagName("C_BPartner").getLength());
+
+		final Element recordElement = (Element)rootElement.getElementsByTagName("C_BPartner").item(1);
+		Assert.assertEquals("2", recordElement.getAttribute("Version"));
+		Assert.assertEquals("Partner <2> & Co", recordElement.getElementsByTagName("Name").item(0).getTextContent());
+		Assert.assertEquals("<b>2</b>", recordElement.getElementsByTagName("Description").item(0).getTextContent());
+		Assert.assertEquals("2-1", ((Element)recordElement.getElementsByTagName("C_BPartner_Location").item(0)).getAttribute("Value"));
+	}
+
+	@Test
+	public void test_noRecords() throws Exception
+	{
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final ExportXMLStreamWriter xmlWriter = new ExportXMLStreamWriter(out)
+				.writeStartDocument("ExportedRecords");
+		xmlWriter.writeEndDocument();
+		Assert.assertEquals(0, xmlWriter.getRecordsCount());
+
+		final Document document = documentBuilder.parse(new ByteArrayInputStream(out.toByteArray()));
+		Assert.assertEquals("ExportedRecords", document.getDocumentElement().getNodeName());
+		Assert.assertEquals(0, document.getDocumentElement().getElementsByTagName("*").getLength());
+	}
+
+	private Element createRecordElement(final int i)
+	{
+		final Document document = documentBuilder.newDocument();
+		final Element recordElement = document.createElement("C_BPartner");
+		recordElement.setAttribute("Version", String.valueOf(i));
+		document.appendChild(recordElement);
+		recordElement.appendChild(document.createComment("record " + i));
+
+		final Element nameElement = document.createElement("Name");
+		nameElement.setTextContent("Partner <" + i + "> & Co");
+		recordElement.appendChild(nameElement);
+
+		final Element descriptionElement = document.createElement("Description");
+		descriptionElement.appendChild(document.createCDATASection("<b>" + i + "</b>"));
+		recordElement.appendChild(descriptionElement);
+
+		final Element locationElement = document.createElement("C_BPartner_Location");
+		locationElement.setAttribute("Value", i + "-1");
+		recordElement.appendChild(locationElement);
+
+		return recordElement;
+	}
+}
@@ -0,0 +1,147 @@
+package org.adempiere.server.rpl.api.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.process.rpl.XMLHelper;
+import org.adempiere.server.rpl.api.IIMPProcessorBL;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.util.Env;
+import org.w3c.dom.Document;
+
+/**
+ * Manual test: imports the same XML message (e.g. an EDI order) many times with 1 and with N parallel consumers, and prints the throughput.
+ * <p>
+ * Every message is imported in its own transaction, which is rolled back, so nothing is actually stored.
+ * Each consumer parses the message itself, because DOM documents are not thread-safe.
+ * <p>
+ * Needs a database (configured like for the swing client) which has the message's EXP_Format. Arguments: XML file, consumers (default 4) and messages (default 200).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ImportHelperManualTest
+{
+	public static void main(final String[] args) throws Exception
+	{
+		final String xml = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+		final int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		final int messages = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+		Adempiere.startupEnvironment(false);
+
+		final ImportHelperManualTest test = new ImportHelperManualTest(xml, messages);
+		for (int round = 1; round <= 3; round++) // first round(s) are warming up
+		{
+			test.run(1);
+			test.run(consumers);
+		}
+	}
+
+	private final Properties ctx = Env.getCtx();
+	private final String xml;
+	private final int messages;
+
+	private ImportHelperManualTest(final String xml, final int messages)
+	{
+		super();
+		this.xml = xml;
+		this.messages = messages;
+	}
+
+	private void run(final int consumers) throws Exception
+	{
+		final AtomicInteger messagesToImport = new AtomicInteger(messages);
+		final ExecutorService executor = Executors.newFixedThreadPool(consumers);
+		try
+		{
+			final long startNanos = System.nanoTime();
+
+			final List<Future<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < consumers; i++)
+			{
+				futures.add(executor.submit(new Callable<Integer>()
+				{
+					@Override
+					public Integer call() throws Exception
+					{
+						int imported = 0;
+						while (messagesToImport.getAndDecrement() > 0)
+						{
+							importAndRollback();
+							imported++;
+						}
+						return imported;
+					}
+				}));
+			}
+
+			int imported = 0;
+			for (final Future<Integer> future : futures)
+			{
+				imported += future.get();
+			}
+
+			final long durationMillis = Math.max(1, (System.nanoTime() - startNanos) / 1000000);
+			System.out.println(consumers + " consumer(s): imported " + imported + " messages in " + durationMillis + "ms (" + imported * 1000 / durationMillis + " messages/s)");
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private void importAndRollback() throws Exception
+	{
+		final Document document = XMLHelper.createDocumentFromString(xml);
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName(ImportHelperManualTest.class.getSimpleName(), true);
+		final ITrx trx = trxManager.get(trxName, false);
+		try
+		{
+			final StringBuilder result = new StringBuilder();
+			Services.get(IIMPProcessorBL.class).createImportHelper(Env.deriveCtx(ctx)).importXMLDocument(result, document, trxName);
+		}
+		finally
+		{
+			trx.rollback();
+			trx.close();
+		}
+	}
+}
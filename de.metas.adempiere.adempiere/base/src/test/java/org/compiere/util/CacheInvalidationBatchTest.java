@@ -0,0 +1,102 @@
+package org.compiere.util;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class CacheInvalidationBatchTest
+{
+	@Test
+	public void add_deduplicates()
+	{
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		batch.add("Table1", 3);
+		batch.add("Table1", 1);
+		batch.add("Table1", 3);
+		batch.add("Table2", 5);
+
+		Assert.assertEquals(3, batch.size());
+		Assert.assertEquals("Table1=1,3;Table2=5", batch.toEventString());
+	}
+
+	@Test
+	public void add_tableWideResetWins()
+	{
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		batch.add("Table1", 1);
+		batch.add("Table1", CacheMgt.RECORD_ID_ALL);
+		batch.add("Table1", 2);
+
+		Assert.assertEquals(ImmutableSet.of(CacheMgt.RECORD_ID_ALL), batch.getRecordIdsByTableName().get("Table1"));
+	}
+
+	@Test
+	public void collapseToTableResetAbove()
+	{
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		for (int recordId = 1; recordId <= 11; recordId++)
+		{
+			batch.add("Table1", recordId);
+		}
+		batch.add("Table2", 1);
+		batch.add("Table2", 2);
+
+		batch.collapseToTableResetAbove(10);
+
+		final Map<String, Set<Integer>> recordIdsByTableName = batch.getRecordIdsByTableName();
+		Assert.assertEquals(ImmutableSet.of(CacheMgt.RECORD_ID_ALL), recordIdsByTableName.get("Table1"));
+		Assert.assertEquals(ImmutableSet.of(1, 2), recordIdsByTableName.get("Table2"));
+	}
+
+	@Test
+	public void eventString_roundtrip()
+	{
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		batch.add("Table1", 10);
+		batch.add("Table1", 20);
+		batch.add("Table2", CacheMgt.RECORD_ID_ALL);
+
+		final CacheInvalidationBatch batchParsed = CacheInvalidationBatch.fromEventString(batch.toEventString());
+		Assert.assertEquals(batch.getRecordIdsByTableName(), batchParsed.getRecordIdsByTableName());
+	}
+
+	@Test
+	public void retainTableNames_and_drain()
+	{
+		final CacheInvalidationBatch batch = new CacheInvalidationBatch();
+		batch.add("Table1", 1);
+		batch.add("Table2", 2);
+
+		Assert.assertEquals("Table2=2", batch.retainTableNames(ImmutableSet.of("Table2", "Table3")).toEventString());
+
+		final CacheInvalidationBatch drained = batch.drain();
+		Assert.assertTrue(batch.isEmpty());
+		Assert.assertEquals("Table1=1;Table2=2", drained.toEventString());
+	}
+}
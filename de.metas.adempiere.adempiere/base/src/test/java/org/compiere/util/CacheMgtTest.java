@@ -1,11 +1,21 @@
 package org.compiere.util;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import de.metas.event.Event;
+import de.metas.event.IEventBusFactory;
+import de.metas.event.Topic;
+import de.metas.event.Type;
+
 /*
  * #%L
  * de.metas.adempiere.adempiere.base
@@ -66,6 +76,45 @@ public class CacheMgtTest
 		cache.assertResetForRecordIdWasCalled();
 	}
 
+	/**
+	 * Nodes which were not updated yet only understand the TableName/Record_ID event properties, so we expect one event per table which has them set too.
+	 */
+	@Test
+	public void broadcastOnTrxCommit_oneEventPerTable_withLegacyProperties()
+	{
+		final List<Event> events = new ArrayList<>();
+		Services.get(IEventBusFactory.class)
+				.getEventBus(Topic.of("org.compiere.util.CacheMgt.CacheInvalidation", Type.REMOTE))
+				.subscribe((eventBus, event) -> events.add(event));
+		CacheMgt.get().enableRemoteCacheInvalidationForTableName("Table1");
+		CacheMgt.get().enableRemoteCacheInvalidationForTableName("Table2");
+
+		Services.get(ITrxManager.class).run(new TrxRunnable()
+		{
+			@Override
+			public void run(final String localTrxName) throws Exception
+			{
+				CacheMgt.get().resetOnTrxCommit(localTrxName, "Table1", 10);
+				CacheMgt.get().resetOnTrxCommit(localTrxName, "Table2", 20);
+				CacheMgt.get().resetOnTrxCommit(localTrxName, "Table2", 21);
+				CacheMgt.get().resetOnTrxCommit(localTrxName, "Table1", 10);
+			}
+		});
+
+		Assert.assertEquals(2, events.size());
+
+		final Event eventTable1 = events.get(0);
+		Assert.assertEquals("Table1=10", eventTable1.getProperty("Records"));
+		Assert.assertEquals("Table1", eventTable1.getProperty("TableName"));
+		Assert.assertEquals((Integer)10, eventTable1.getProperty("Record_ID"));
+
+		// more than one record: old nodes shall reset the whole table
+		final Event eventTable2 = events.get(1);
+		Assert.assertEquals("Table2=20,21", eventTable2.getProperty("Records"));
+		Assert.assertEquals("Table2", eventTable2.getProperty("TableName"));
+		Assert.assertEquals((Integer)CacheMgt.RECORD_ID_ALL, eventTable2.getProperty("Record_ID"));
+	}
+
 	private static class AssertTableName implements ITableAwareCacheInterface
 	{
 		private final String tableName;
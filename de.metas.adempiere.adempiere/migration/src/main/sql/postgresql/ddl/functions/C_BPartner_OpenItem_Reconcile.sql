@@ -0,0 +1,77 @@
+drop function if exists C_BPartner_OpenItem_Reconcile
+(
+	/* p_C_BPartner_ID */ numeric
+);
+
+create or replace function C_BPartner_OpenItem_Reconcile
+(
+	p_C_BPartner_ID numeric = null
+)
+returns integer
+as
+$BODY$
+/**
+ * Rebuilds the C_BPartner_OpenItem rows of given partner (or of all partners if p_C_BPartner_ID is null)
+ * and corrects the C_BPartner_Stats.TotalOpenBalance and SO_CreditUsed which drifted from them.
+ *
+ * Returns the number of corrected C_BPartner_Stats records.
+ * Note: while running for all partners, concurrent C_BPartner_OpenItem_Update() calls might fail, so better run it when the system is quiet.
+ */
+declare
+	v_correctedCount integer;
+begin
+	delete from C_BPartner_OpenItem oi
+	where p_C_BPartner_ID is null or oi.C_BPartner_ID = p_C_BPartner_ID;
+
+	--
+	-- Open invoices
+	insert into C_BPartner_OpenItem (AD_Table_ID, Record_ID, AD_Client_ID, AD_Org_ID, C_BPartner_ID, SO_CreditUsed, OpenBalance, Updated)
+	select 318, i.C_Invoice_ID, i.AD_Client_ID, i.AD_Org_ID, i.C_BPartner_ID
+		, COALESCE(SUM(case when i.IsSOTrx = 'Y' then i.OpenAmt else 0 end), 0)
+		, COALESCE(SUM(i.OpenAmt * i.MultiplierAP), 0)
+		, now()
+	from (
+		select i.C_Invoice_ID, i.AD_Client_ID, i.AD_Org_ID, i.C_BPartner_ID, i.IsSOTrx, i.MultiplierAP
+			, currencyBase(invoiceOpen(i.C_Invoice_ID, i.C_InvoicePaySchedule_ID), i.C_Currency_ID, i.DateInvoiced, i.AD_Client_ID, i.AD_Org_ID) as OpenAmt
+		from C_Invoice_v i
+		where (p_C_BPartner_ID is null or i.C_BPartner_ID = p_C_BPartner_ID)
+			and i.IsPaid = 'N' and i.DocStatus in ('CO', 'CL')
+	) i
+	group by i.C_Invoice_ID, i.AD_Client_ID, i.AD_Org_ID, i.C_BPartner_ID;
+
+	--
+	-- Not allocated payments
+	insert into C_BPartner_OpenItem (AD_Table_ID, Record_ID, AD_Client_ID, AD_Org_ID, C_BPartner_ID, SO_CreditUsed, OpenBalance, Updated)
+	select 335, p.C_Payment_ID, p.AD_Client_ID, p.AD_Org_ID, p.C_BPartner_ID
+		, 0
+		, -COALESCE(currencyBase(Paymentavailable(p.C_Payment_ID), p.C_Currency_ID, p.DateTrx, p.AD_Client_ID, p.AD_Org_ID), 0)
+		, now()
+	from C_Payment_v p
+	where (p_C_BPartner_ID is null or p.C_BPartner_ID = p_C_BPartner_ID)
+		and p.IsAllocated = 'N' and p.C_Charge_ID is null and p.DocStatus in ('CO', 'CL');
+
+	--
+	-- Correct the statistics
+	update C_BPartner_Stats bs set
+		TotalOpenBalance = t.TotalOpenBalance
+		, SO_CreditUsed = t.SO_CreditUsed
+		, Updated = now()
+	from (
+		select bs.C_BPartner_Stats_ID
+			, COALESCE(SUM(oi.OpenBalance), 0) as TotalOpenBalance
+			, COALESCE(SUM(oi.SO_CreditUsed), 0) as SO_CreditUsed
+		from C_BPartner_Stats bs
+		left outer join C_BPartner_OpenItem oi on oi.C_BPartner_ID = bs.C_BPartner_ID
+		where p_C_BPartner_ID is null or bs.C_BPartner_ID = p_C_BPartner_ID
+		group by bs.C_BPartner_Stats_ID
+	) t
+	where bs.C_BPartner_Stats_ID = t.C_BPartner_Stats_ID
+		and (bs.TotalOpenBalance is distinct from t.TotalOpenBalance or bs.SO_CreditUsed is distinct from t.SO_CreditUsed);
+	GET DIAGNOSTICS v_correctedCount = ROW_COUNT;
+
+	return v_correctedCount;
+end;
+$BODY$
+language plpgsql volatile;
+
+comment on function C_BPartner_OpenItem_Reconcile(numeric) is 'Rebuilds the C_BPartner_OpenItem rows of given partner (all partners if null) and corrects the drifted C_BPartner_Stats. Returns the number of corrected C_BPartner_Stats.';
@@ -0,0 +1,100 @@
+drop function if exists C_BPartner_OpenItem_Update
+(
+	/* p_AD_Table_ID */ numeric
+	, /* p_Record_ID */ numeric
+);
+
+create or replace function C_BPartner_OpenItem_Update
+(
+	p_AD_Table_ID numeric
+	, p_Record_ID numeric
+)
+returns void
+as
+$BODY$
+/**
+ * Recomputes the C_BPartner_OpenItem row of given invoice (AD_Table_ID=318) or payment (AD_Table_ID=335)
+ * and applies the difference to C_BPartner_Stats.TotalOpenBalance and SO_CreditUsed.
+ *
+ * The amounts are computed like the legacy credit check SQL did:
+ * open invoices with invoiceOpen()*MultiplierAP, not allocated payments (without charge) with -Paymentavailable(), all in base currency.
+ */
+declare
+	v_old record;
+	v_oldFound boolean;
+	v_new record;
+	v_newFound boolean;
+begin
+	-- make sure there is only one transaction updating given record's open item.
+	-- The lock key is in an own namespace, so it doesn't collide with the (AD_Table_ID, Record_ID) record locks of the lock framework.
+	perform pg_advisory_xact_lock(hashtext('C_BPartner_OpenItem#' || p_AD_Table_ID), p_Record_ID::integer);
+
+	select * into v_old
+	from C_BPartner_OpenItem oi
+	where oi.AD_Table_ID = p_AD_Table_ID and oi.Record_ID = p_Record_ID;
+	v_oldFound := FOUND;
+
+	if p_AD_Table_ID = 318 /* C_Invoice */ then
+		select i.AD_Client_ID, i.AD_Org_ID, i.C_BPartner_ID
+			, COALESCE(SUM(case when i.IsSOTrx = 'Y' then i.OpenAmt else 0 end), 0) as SO_CreditUsed
+			, COALESCE(SUM(i.OpenAmt * i.MultiplierAP), 0) as OpenBalance
+		into v_new
+		from (
+			select i.AD_Client_ID, i.AD_Org_ID, i.C_BPartner_ID, i.IsSOTrx, i.MultiplierAP
+				, currencyBase(invoiceOpen(i.C_Invoice_ID, i.C_InvoicePaySchedule_ID), i.C_Currency_ID, i.DateInvoiced, i.AD_Client_ID, i.AD_Org_ID) as OpenAmt
+			from C_Invoice_v i
+			where i.C_Invoice_ID = p_Record_ID and i.IsPaid = 'N' and i.DocStatus in ('CO', 'CL')
+		) i
+		group by i.AD_Client_ID, i.AD_Org_ID, i.C_BPartner_ID;
+		v_newFound := FOUND;
+	elsif p_AD_Table_ID = 335 /* C_Payment */ then
+		select p.AD_Client_ID, p.AD_Org_ID, p.C_BPartner_ID
+			, 0 as SO_CreditUsed
+			, -COALESCE(currencyBase(Paymentavailable(p.C_Payment_ID), p.C_Currency_ID, p.DateTrx, p.AD_Client_ID, p.AD_Org_ID), 0) as OpenBalance
+		into v_new
+		from C_Payment_v p
+		where p.C_Payment_ID = p_Record_ID and p.IsAllocated = 'N' and p.C_Charge_ID is null and p.DocStatus in ('CO', 'CL');
+		v_newFound := FOUND;
+	else
+		raise exception 'C_BPartner_OpenItem_Update: AD_Table_ID=% is not supported', p_AD_Table_ID;
+	end if;
+
+	--
+	-- Nothing changed
+	if v_oldFound and v_newFound
+		and v_old.C_BPartner_ID = v_new.C_BPartner_ID
+		and v_old.SO_CreditUsed = v_new.SO_CreditUsed
+		and v_old.OpenBalance = v_new.OpenBalance
+	then
+		return;
+	end if;
+
+	--
+	-- Remove the old open item
+	if v_oldFound then
+		delete from C_BPartner_OpenItem oi where oi.AD_Table_ID = p_AD_Table_ID and oi.Record_ID = p_Record_ID;
+
+		update C_BPartner_Stats bs set
+			TotalOpenBalance = COALESCE(bs.TotalOpenBalance, 0) - v_old.OpenBalance
+			, SO_CreditUsed = COALESCE(bs.SO_CreditUsed, 0) - v_old.SO_CreditUsed
+			, Updated = now()
+		where bs.C_BPartner_ID = v_old.C_BPartner_ID;
+	end if;
+
+	--
+	-- Add the new open item
+	if v_newFound then
+		insert into C_BPartner_OpenItem (AD_Table_ID, Record_ID, AD_Client_ID, AD_Org_ID, C_BPartner_ID, SO_CreditUsed, OpenBalance, Updated)
+		values (p_AD_Table_ID, p_Record_ID, v_new.AD_Client_ID, v_new.AD_Org_ID, v_new.C_BPartner_ID, v_new.SO_CreditUsed, v_new.OpenBalance, now());
+
+		update C_BPartner_Stats bs set
+			TotalOpenBalance = COALESCE(bs.TotalOpenBalance, 0) + v_new.OpenBalance
+			, SO_CreditUsed = COALESCE(bs.SO_CreditUsed, 0) + v_new.SO_CreditUsed
+			, Updated = now()
+		where bs.C_BPartner_ID = v_new.C_BPartner_ID;
+	end if;
+end;
+$BODY$
+language plpgsql volatile;
+
+comment on function C_BPartner_OpenItem_Update(numeric, numeric) is 'Incrementally updates the C_BPartner_OpenItem row of given C_Invoice (318) or C_Payment (335) and the C_BPartner_Stats of its partner.';
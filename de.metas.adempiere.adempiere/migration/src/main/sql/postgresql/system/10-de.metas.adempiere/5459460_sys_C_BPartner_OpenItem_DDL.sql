@@ -0,0 +1,25 @@
+--
+-- Open item ledger used for the bpartner credit checks:
+-- one row per open invoice or not allocated payment, with its amounts already converted to the base currency.
+-- C_BPartner_Stats.TotalOpenBalance and SO_CreditUsed are the sums of these rows; both are maintained incrementally by C_BPartner_OpenItem_Update().
+-- This is a technical table, without application dictionary.
+--
+CREATE TABLE C_BPartner_OpenItem
+(
+	AD_Table_ID numeric(10,0) NOT NULL,
+	Record_ID numeric(10,0) NOT NULL,
+	AD_Client_ID numeric(10,0) NOT NULL,
+	AD_Org_ID numeric(10,0) NOT NULL,
+	C_BPartner_ID numeric(10,0) NOT NULL,
+	SO_CreditUsed numeric NOT NULL DEFAULT 0,
+	OpenBalance numeric NOT NULL DEFAULT 0,
+	Updated timestamp with time zone NOT NULL DEFAULT now(),
+	CONSTRAINT C_BPartner_OpenItem_Key PRIMARY KEY (AD_Table_ID, Record_ID)
+)
+;
+
+CREATE INDEX C_BPartner_OpenItem_C_BPartner_ID ON C_BPartner_OpenItem (C_BPartner_ID)
+;
+
+COMMENT ON TABLE C_BPartner_OpenItem IS 'Open invoices and not allocated payments, in base currency. C_BPartner_Stats.TotalOpenBalance and SO_CreditUsed are the sums of this table. Maintained by C_BPartner_OpenItem_Update(); can be rebuilt using C_BPartner_OpenItem_Reconcile().'
+;
@@ -0,0 +1,14 @@
+-- 20.10.2016 09:12
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process (AccessLevel,AD_Client_ID,AD_Org_ID,AD_Process_ID,AllowProcessReRun,Classname,CopyFromProcess,Created,CreatedBy,Description,EntityType,IsActive,IsApplySecuritySettings,IsBetaFunctionality,IsDirectPrint,IsOneInstanceOnly,IsReport,IsServerProcess,IsUseBPartnerLanguage,LockWaitTimeout,Name,RefreshAllAfterExecution,ShowHelp,Type,Updated,UpdatedBy,Value) VALUES ('6',0,0,540768,'Y','org.adempiere.archive.process.AD_Archive_MigrateToContentAddressedStorage','N',TO_TIMESTAMP('2016-10-20 09:12:31','YYYY-MM-DD HH24:MI:SS'),100,'Moves the archives of the current client to the content addressed file system storage. Already migrated archives are skipped, so it can be run again.','D','Y','N','N','N','Y','N','Y','Y',0,'Archive - Migrate to content addressed storage','N','Y','Java',TO_TIMESTAMP('2016-10-20 09:12:31','YYYY-MM-DD HH24:MI:SS'),100,'AD_Archive_MigrateToContentAddressedStorage')
+;
+
+-- 20.10.2016 09:12
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process_Trl (AD_Language,AD_Process_ID, Description,Help,Name, IsTranslated,AD_Client_ID,AD_Org_ID,Created,Createdby,Updated,UpdatedBy) SELECT l.AD_Language,t.AD_Process_ID, t.Description,t.Help,t.Name, 'N',t.AD_Client_ID,t.AD_Org_ID,t.Created,t.Createdby,t.Updated,t.UpdatedBy FROM AD_Language l, AD_Process t WHERE l.IsActive='Y' AND l.IsSystemLanguage='Y' AND l.IsBaseLanguage='N' AND t.AD_Process_ID=540768 AND NOT EXISTS (SELECT * FROM AD_Process_Trl tt WHERE tt.AD_Language=l.AD_Language AND tt.AD_Process_ID=t.AD_Process_ID)
+;
+
+-- 20.10.2016 09:13
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Table_Process (AD_Client_ID,AD_Org_ID,AD_Process_ID,AD_Table_ID,Created,CreatedBy,EntityType,IsActive,Updated,UpdatedBy) VALUES (0,0,540768,754,TO_TIMESTAMP('2016-10-20 09:13:05','YYYY-MM-DD HH24:MI:SS'),100,'D','Y',TO_TIMESTAMP('2016-10-20 09:13:05','YYYY-MM-DD HH24:MI:SS'),100)
+;
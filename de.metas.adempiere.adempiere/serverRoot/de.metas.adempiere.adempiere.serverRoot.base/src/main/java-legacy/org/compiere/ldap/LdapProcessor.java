@@ -109,6 +109,15 @@ public class LdapProcessor extends AdempiereServer
 	}	//	doWork
 
 	
+	/**
+	 * 	The processor is listening on its port until it's interrupted, so it gets an own thread.
+	 */
+	@Override
+	protected boolean isRunOnDedicatedThread()
+	{
+		return true;
+	}
+
 	/**
 	 * 	Get Server Info
 	 *	@return info
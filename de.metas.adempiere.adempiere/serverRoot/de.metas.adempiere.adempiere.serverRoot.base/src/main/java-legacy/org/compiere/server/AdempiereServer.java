@@ -18,6 +18,8 @@ package org.compiere.server;
 
 import java.sql.Timestamp;
 import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.service.IClientDAO;
@@ -41,15 +43,20 @@ import org.compiere.util.Env;
 import org.compiere.util.TimeUtil;
 import org.compiere.wf.MWorkflowProcessor;
 import org.slf4j.Logger;
+
 import de.metas.logging.LogManager;
+import it.sauronsoftware.cron4j.Predictor;
+import it.sauronsoftware.cron4j.SchedulingPattern;
 
 /**
- *	Adempiere Server Base
+ *	Adempiere Server Base.
+ *	<p>
+ *	Servers are not threads: all started servers are running on the shared {@link AdempiereServerScheduler}.
  *
  *  @author Jorg Janke
  *  @version $Id: AdempiereServer.java,v 1.3 2006/10/09 00:23:26 jjanke Exp $
  */
-public abstract class AdempiereServer extends Thread
+public abstract class AdempiereServer
 {
 	/**
 	 * 	Create New Server Thead
@@ -86,13 +93,9 @@ public abstract class AdempiereServer extends Thread
 	 */
 	public AdempiereServer (final AdempiereProcessor model, final int initialNapSecs)
 	{
-		super(
-				AdempiereServerGroup.get(), // ThreadGroup
-				null, // Runnable
-				model.getClass().getSimpleName() + "-" + model.getName(), // Thread Name
-				0 // stackSize (0=this parameter is to be ignored)
-		);
+		super();
 		p_model = model;
+		m_name = model.getClass().getSimpleName() + "-" + model.getName();
 		m_ctx = Env.deriveCtx(model.getCtx());
 		p_client = Services.get(IClientDAO.class).retriveClient(m_ctx);
 		Env.setContext(m_ctx, Env.CTXNAME_AD_Client_ID, p_client.getAD_Client_ID());
@@ -101,25 +104,43 @@ public abstract class AdempiereServer extends Thread
 
 	/**	The Processor Model						*/
 	private final AdempiereProcessor p_model;
+	/** Server Name					*/
+	private final String		m_name;
 	/** Initial nap is seconds		*/
 	private int m_initialNapSecs = 0;
 
 	/**	Miliseconds to sleep - 10 Min default	*/
 	private long				m_sleepMS = 600000;
-	/** Sleeping					*/
-	private volatile boolean	m_sleeping = false;
+	/** Started and not stopped yet	*/
+	private volatile boolean	m_alive = false;
+	/** Stop requested				*/
+	private volatile boolean	m_interrupted = false;
+	/** Working right now; makes sure that runs of this server never overlap	*/
+	private final AtomicBoolean	m_working = new AtomicBoolean(false);
+	/** Next run, scheduled on the shared {@link AdempiereServerScheduler}	*/
+	private ScheduledFuture<?>	m_scheduledRun = null;
+	/** Own thread, if {@link #isRunOnDedicatedThread()}	*/
+	private Thread				m_dedicatedThread = null;
 	/** Server start time					*/
-	private long				m_start = 0;
+	private volatile long		m_start = 0;
 	/** Number of Work executions	*/
 	protected int 				p_runCount = 0;
 	/** Tine start of work				*/
 	protected long				p_startWork = 0;
 	/** Number MS of last Run		*/
 	private long 				m_runLastMS = 0;
+	/** Number MS of longest Run	*/
+	private long 				m_runMaxMS = 0;
 	/** Number of MS total			*/
 	private long 				m_runTotalMS = 0;
+	/** Number MS between planned and actual start of last scheduled Run	*/
+	private long 				m_lateLastMS = 0;
+	/** Number MS between planned and actual start, max	*/
+	private long 				m_lateMaxMS = 0;
+	/** Number of scheduled Runs skipped because the server was still working	*/
+	private int 				m_skippedCount = 0;
 	/** When to run next			*/
-	private long 				m_nextWork = 0;
+	private volatile long		m_nextWork = 0;
 
 	/**	Logger						*/
 	protected Logger	log = LogManager.getLogger(getClass());
@@ -137,6 +158,15 @@ public abstract class AdempiereServer extends Thread
 		return m_ctx;
 	}	//	getCtx
 
+	/**
+	 * 	Get Server Name
+	 *	@return name
+	 */
+	public final String getName()
+	{
+		return m_name;
+	}	//	getName
+
 	/**
 	 * @return Returns the sleepMS.
 	 */
@@ -145,39 +175,122 @@ public abstract class AdempiereServer extends Thread
 		return m_sleepMS;
 	}	//	getSleepMS
 
+	/**
+	 * 	Start the server: schedule its runs on the shared {@link AdempiereServerScheduler}, or on an own thread if {@link #isRunOnDedicatedThread()}.
+	 * 	<p>
+	 * 	The first run is after the initial nap plus a random jitter, or at the next time matching the {@link #getCronPattern()}.
+	 */
+	public final synchronized void start()
+	{
+		if (m_alive)
+		{
+			log.warn("{}: already started", getName());
+			return;
+		}
+
+		m_alive = true;
+		m_interrupted = false;
+		m_start = System.currentTimeMillis();
+
+		final AdempiereServerScheduler scheduler = AdempiereServerScheduler.get();
+		scheduler.onServerStarted(this);
+
+		final long firstRunMillis = calculateFirstRun(scheduler.getStartJitterMillis());
+		if (isRunOnDedicatedThread())
+		{
+			m_dedicatedThread = new Thread(AdempiereServerGroup.get(), () -> runOnDedicatedThread(firstRunMillis), getName());
+			m_dedicatedThread.setDaemon(true);
+			m_dedicatedThread.setPriority(Thread.NORM_PRIORITY - 1);
+			m_dedicatedThread.start();
+		}
+		else
+		{
+			scheduleRun(firstRunMillis);
+		}
+		log.info("{}: started; first run at {}", getName(), new Timestamp(firstRunMillis));
+	}	//	start
 
 	/**
-	 * 	Sleep for set time
-	 *	@return true if not interrupted
+	 * 	Stop the server. A run which is in progress is not aborted, but no new run is started.
 	 */
-	public final boolean sleep()
+	public final synchronized void interrupt()
 	{
-		if (isInterrupted())
+		m_interrupted = true;
+		if (!m_alive)
 		{
-			log.info(getName() + ": interrupted");
-			return false;
+			return;
 		}
-		log.debug(getName() + ": sleeping " + TimeUtil.formatElapsed(m_sleepMS));
-		m_sleeping = true;
-		try
+
+		if (m_scheduledRun != null)
 		{
-			sleep (m_sleepMS);
+			m_scheduledRun.cancel(false);
+			m_scheduledRun = null;
 		}
-		catch (InterruptedException e)
+
+		if (m_dedicatedThread != null)
 		{
-			log.info(getName() + ": interrupted");
-			m_sleeping = false;
-			return false;
+			m_dedicatedThread.interrupt(); // the thread will call onStopped when it ends
 		}
-		m_sleeping = false;
-		return true;
-	}	//	sleep
+		else if (!m_working.get())
+		{
+			onStopped();
+		}
+	}	//	interrupt
+
+	/**
+	 * 	@return true if the server was asked to stop
+	 */
+	public final boolean isInterrupted()
+	{
+		return m_interrupted;
+	}	//	isInterrupted
+
+	/**
+	 * 	@return true if the server was started and is not stopped yet (it might still finish its last run after it was interrupted)
+	 */
+	public final boolean isAlive()
+	{
+		return m_alive;
+	}	//	isAlive
+
+	private synchronized void onStopped()
+	{
+		if (!m_alive)
+		{
+			return;
+		}
+		m_alive = false;
+		m_start = 0;
+		m_dedicatedThread = null;
+		AdempiereServerScheduler.get().onServerStopped(this);
+		log.info("{}: stopped", getName());
+	}	//	onStopped
+
+	/**
+	 * 	Called when a {@link #runNow()} is finished and the server was interrupted meanwhile.
+	 * 	Because {@link #interrupt()} did not stop the working server and the scheduled run was canceled, we have to stop it here.
+	 * 	A dedicated thread stops its server by itself when it ends.
+	 */
+	private synchronized void onRunNowFinishedAfterInterrupt()
+	{
+		if (m_dedicatedThread != null)
+		{
+			return;
+		}
+		onStopped();
+	}	//	onRunNowFinishedAfterInterrupt
 
 	/**
 	 * 	Run Now
 	 */
 	public final void runNow()
 	{
+		if (!m_working.compareAndSet(false, true))
+		{
+			log.warn("{}: not running now because it's already working", getName());
+			return;
+		}
+
 		DB.saveConstraints();
 		try
 		{
@@ -188,6 +301,12 @@ public abstract class AdempiereServer extends Thread
 		finally
 		{
 			DB.restoreConstraints();
+			m_working.set(false);
+
+			if (isInterrupted())
+			{
+				onRunNowFinishedAfterInterrupt();
+			}
 		}
 	}
 	private final void runNow0()
@@ -198,9 +317,7 @@ public abstract class AdempiereServer extends Thread
 		long now = System.currentTimeMillis();
 		//	---------------
 
-		p_runCount++;
-		m_runLastMS = now - p_startWork;
-		m_runTotalMS += m_runLastMS;
+		updateRunStatistics(now - p_startWork);
 		//
 		p_model.setDateLastRun(new Timestamp(now));
 		p_model.save();
@@ -208,120 +325,162 @@ public abstract class AdempiereServer extends Thread
 		log.debug(getName() + ": " + getStatistics());
 	}	//	runNow
 
-	/**************************************************************************
-	 * 	Run async
+	/**
+	 * 	@return when the first run shall be (millis)
 	 */
-	@Override
-	public void run ()
+	private long calculateFirstRun(final long startJitterMillis)
 	{
-		try
+		final String cronPattern = getCronPattern();
+		if (cronPattern != null)
 		{
-			log.debug(getName() + ": pre-nap - " + m_initialNapSecs);
-			sleep (m_initialNapSecs * 1000);
+			m_nextWork = new Predictor(cronPattern).nextMatchingTime();
+			setDateNextRun(new Timestamp(m_nextWork));
+			return m_nextWork;
 		}
-		catch (InterruptedException e)
+
+		final long napEnd = System.currentTimeMillis() + m_initialNapSecs * 1000L + startJitterMillis;
+		log.debug(getName() + ": pre-nap - " + TimeUtil.formatElapsed(napEnd - System.currentTimeMillis()));
+
+		final Timestamp dateNextRun = getDateNextRun(true);
+		m_nextWork = dateNextRun == null ? 0 : dateNextRun.getTime();
+		return Math.max(napEnd, m_nextWork);
+	}	//	calculateFirstRun
+
+	private synchronized void scheduleRun(final long runMillis)
+	{
+		if (!m_alive || m_interrupted)
 		{
-			log.error(getName() + ": pre-nap interrupted", e);
 			return;
 		}
+		m_scheduledRun = AdempiereServerScheduler.get().schedule(() -> runScheduledAndReschedule(runMillis), runMillis - System.currentTimeMillis());
+	}	//	scheduleRun
 
-		m_start = System.currentTimeMillis();
-		while (true)
+	private void runScheduledAndReschedule(final long plannedMillis)
+	{
+		final long nextRunMillis = runScheduled(plannedMillis);
+		if (isInterrupted())
 		{
-			// 03034: do the actual work in a try-catch block to make sure that the server thread doesn't just end
-			// if an unexpected (and maybe temporary) problem arises in the thread
-			DB.saveConstraints();
-			try
+			onStopped();
+		}
+		else
+		{
+			scheduleRun(nextRunMillis);
+		}
+	}	//	runScheduledAndReschedule
+
+	private void runOnDedicatedThread(final long firstRunMillis)
+	{
+		long nextRunMillis = firstRunMillis;
+		try
+		{
+			while (!isInterrupted())
 			{
-				DB.getConstraints().addAllowedTrxNamePrefix(ITrx.TRXNAME_PREFIX_LOCAL);
-				
-				final boolean doBreak = run0();
-				if (doBreak)
+				final long sleepMillis = nextRunMillis - System.currentTimeMillis();
+				if (sleepMillis > 0)
 				{
-					break;
+					log.debug(getName() + ": sleeping " + TimeUtil.formatElapsed(sleepMillis));
+					Thread.sleep(sleepMillis);
 				}
-			}
-			catch (Exception e)
-			{
-				final ServerThreadException serverThreadEx = new ServerThreadException(p_model.getName(), e);
-				log.error(serverThreadEx.getLocalizedMessage(), serverThreadEx);
-			}
-			finally
-			{
-				DB.restoreConstraints();
-			}
-			// me_03034 end
-			
-			if (!sleep())
-			{
-				break;
+				nextRunMillis = runScheduled(nextRunMillis);
 			}
 		}
-		m_start = 0;
-	}	//	run
+		catch (InterruptedException e)
+		{
+			log.info(getName() + ": interrupted");
+		}
+		finally
+		{
+			onStopped();
+		}
+	}	//	runOnDedicatedThread
 
 	/**
-	 * This method does the actual work of the {@link #run()} method.
-	 * 
-	 * @return <code>true</code> if the calling {@link #run()} should break out of its <code>while(true)</code> block.
-	 * 
-	 * @see http://dewiki908/mediawiki/index.php/03034:_ADempiere_ServerProcesses_can_die_%282012072510000033%29
+	 * 	Execute a scheduled run.
+	 * 	@param plannedMillis when the run was planned to start
+	 * 	@return when to run next (millis)
 	 */
-	private final boolean run0() throws Exception
+	private long runScheduled(final long plannedMillis)
 	{
-		// note that this is basically the original code that has formerly been part of the run() method.
-		if (m_nextWork == 0)
+		if (isInterrupted())
 		{
-			Timestamp dateNextRun = getDateNextRun(true);
-			if (dateNextRun != null)
-				m_nextWork = dateNextRun.getTime();
+			log.info(getName() + ": interrupted");
+			return plannedMillis;
 		}
-		long now = System.currentTimeMillis();
-		if (m_nextWork > now)
+
+		if (!m_working.compareAndSet(false, true))
 		{
-			m_sleepMS = m_nextWork - now;
-			if (!sleep ())
-				return true;
+			log.info("{}: skipped scheduled run because it's still working", getName());
+			synchronized (this)
+			{
+				m_skippedCount++;
+			}
+			return calculateNextRunAfterFailure();
 		}
-		if (isInterrupted())
+
+		// 03034: do the actual work in a try-catch block to make sure that the server doesn't just stop
+		// if an unexpected (and maybe temporary) problem arises
+		DB.saveConstraints();
+		try
 		{
-			log.info(getName() + ": interrupted");
-			return true;
+			updateLatenessStatistics(System.currentTimeMillis() - plannedMillis);
+			DB.getConstraints().addAllowedTrxNamePrefix(ITrx.TRXNAME_PREFIX_LOCAL);
+
+			return run0();
+		}
+		catch (Exception e)
+		{
+			final ServerThreadException serverThreadEx = new ServerThreadException(p_model.getName(), e);
+			log.error(serverThreadEx.getLocalizedMessage(), serverThreadEx);
+			return calculateNextRunAfterFailure();
+		}
+		finally
+		{
+			DB.restoreConstraints();
+			m_working.set(false);
 		}
+		// me_03034 end
+	}	//	runScheduled
 
+	/**
+	 * This method does the actual work of a scheduled run.
+	 * 
+	 * @return when to run next (millis)
+	 * 
+	 * @see http://dewiki908/mediawiki/index.php/03034:_ADempiere_ServerProcesses_can_die_%282012072510000033%29
+	 */
+	private final long run0() throws Exception
+	{
 		//	---------------
 		p_startWork = System.currentTimeMillis();
 		doWork();
-		now = System.currentTimeMillis();
+		final long now = System.currentTimeMillis();
 		//	---------------
 
-		p_runCount++;
-		m_runLastMS = now - p_startWork;
-		m_runTotalMS += m_runLastMS;
+		updateRunStatistics(now - p_startWork);
 		//
-		m_sleepMS = calculateSleep();
 		Timestamp lastRun = new Timestamp(now);
-		if (p_model instanceof AdempiereProcessor2)
+		final String cronPattern = getCronPattern();
+		if (cronPattern != null)
 		{
-			AdempiereProcessor2 ap = (AdempiereProcessor2) p_model;
-			if (ap.isIgnoreProcessingTime())
-			{
-				lastRun = new Timestamp(p_startWork);
-				if (m_nextWork <= 0)
-					m_nextWork = p_startWork;
-				m_nextWork = m_nextWork + m_sleepMS;
-				while (m_nextWork < now)
-				{
-					m_nextWork = m_nextWork + m_sleepMS;
-				}
-			}
-			else
+			m_nextWork = new Predictor(cronPattern).nextMatchingTime();
+		}
+		else if (p_model instanceof AdempiereProcessor2 && ((AdempiereProcessor2)p_model).isIgnoreProcessingTime())
+		{
+			m_sleepMS = calculateSleep();
+			lastRun = new Timestamp(p_startWork);
+			long nextWork = m_nextWork;
+			if (nextWork <= 0)
+				nextWork = p_startWork;
+			nextWork = nextWork + m_sleepMS;
+			while (nextWork < now)
 			{
-				m_nextWork = now + m_sleepMS;
+				nextWork = nextWork + m_sleepMS;
 			}
+			m_nextWork = nextWork;
 		}
 		else
 		{
+			m_sleepMS = calculateSleep();
 			m_nextWork = now + m_sleepMS;
 		}
 		//
@@ -331,21 +490,64 @@ public abstract class AdempiereServer extends Thread
 		
 		log.debug(getName() + ": " + getStatistics());
 		
-		return false;
+		return m_nextWork;
 	}
+
+	/**
+	 * 	@return when to run next if the scheduled run failed or was skipped (millis)
+	 */
+	private long calculateNextRunAfterFailure()
+	{
+		final String cronPattern = getCronPattern();
+		if (cronPattern != null)
+		{
+			m_nextWork = new Predictor(cronPattern).nextMatchingTime();
+		}
+		else
+		{
+			m_nextWork = System.currentTimeMillis() + m_sleepMS;
+		}
+		return m_nextWork;
+	}	//	calculateNextRunAfterFailure
+
+	private synchronized void updateRunStatistics(final long runMS)
+	{
+		p_runCount++;
+		m_runLastMS = runMS;
+		m_runMaxMS = Math.max(m_runMaxMS, runMS);
+		m_runTotalMS += runMS;
+	}	//	updateRunStatistics
+
+	private synchronized void updateLatenessStatistics(final long lateMS)
+	{
+		m_lateLastMS = Math.max(lateMS, 0);
+		m_lateMaxMS = Math.max(m_lateMaxMS, m_lateLastMS);
+	}	//	updateLatenessStatistics
 	
 	/**
 	 * 	Get Run Statistics
 	 *	@return Statistic info
 	 */
-	public final String getStatistics()
+	public final synchronized String getStatistics()
 	{
 		return "Run #" + p_runCount
 			+ " - Last=" + TimeUtil.formatElapsed(m_runLastMS)
+			+ " - Avg=" + TimeUtil.formatElapsed(p_runCount > 0 ? m_runTotalMS / p_runCount : 0)
+			+ " - Max=" + TimeUtil.formatElapsed(m_runMaxMS)
 			+ " - Total=" + TimeUtil.formatElapsed(m_runTotalMS)
+			+ " - Late=" + TimeUtil.formatElapsed(m_lateLastMS) + " (Max=" + TimeUtil.formatElapsed(m_lateMaxMS) + ")"
+			+ " - Skipped=" + m_skippedCount
 			+ " - Next " + TimeUtil.formatElapsed(m_nextWork - System.currentTimeMillis());
 	}	//	getStatistics
 
+	/**
+	 * 	@return milliseconds between planned and actual start of the last scheduled run
+	 */
+	public final synchronized long getLastLatenessMillis()
+	{
+		return m_lateLastMS;
+	}	//	getLastLatenessMillis
+
 	/**
 	 * 	Do the actual Work
 	 */
@@ -357,6 +559,27 @@ public abstract class AdempiereServer extends Thread
 	 */
 	public abstract String getServerInfo();
 
+	/**
+	 * Cron pattern (see {@link SchedulingPattern}) to be used instead of the model's frequency.
+	 * 
+	 * @return cron pattern or <code>null</code> if the server shall run with the model's frequency
+	 */
+	protected String getCronPattern()
+	{
+		return null;
+	}
+
+	/**
+	 * Servers whose work does not end (e.g. because they are listening on a socket) shall return <code>true</code>,
+	 * so that they get an own thread instead of blocking a thread of the shared {@link AdempiereServerScheduler}.
+	 * 
+	 * @return true if the server shall run on its own thread
+	 */
+	protected boolean isRunOnDedicatedThread()
+	{
+		return false;
+	}
+
 	/**
 	 * 	Get Unique ID
 	 *	@return Unique ID
@@ -450,7 +673,7 @@ public abstract class AdempiereServer extends Thread
 	 */
 	public final boolean isSleeping()
 	{
-		return m_sleeping;
+		return m_alive && !m_working.get();
 	}	//	isSleeping
 
 	/**
@@ -461,12 +684,11 @@ public abstract class AdempiereServer extends Thread
 	public final String toString ()
 	{
 		StringBuffer sb = new StringBuffer (getName())
-			.append (",Prio=").append(getPriority())
-			.append (",").append (getThreadGroup())
 			.append (",Alive=").append(isAlive())
-			.append (",Sleeping=").append(m_sleeping)
+			.append (",Interrupted=").append(isInterrupted())
+			.append (",Sleeping=").append(isSleeping())
 			.append (",Last=").append(getDateLastRun());
-		if (m_sleeping)
+		if (isSleeping())
 			sb.append (",Next=").append(getDateNextRun(false));
 		return sb.toString ();
 	}	//	toString
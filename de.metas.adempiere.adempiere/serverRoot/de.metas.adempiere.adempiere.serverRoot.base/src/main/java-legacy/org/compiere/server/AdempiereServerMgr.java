@@ -41,7 +41,9 @@ import org.slf4j.Logger;
 import de.metas.logging.LogManager;
 
 /**
- * Adempiere Server Manager
+ * Adempiere Server Manager.
+ * <p>
+ * The managed servers are not running on own threads, but on the shared {@link AdempiereServerScheduler}.
  *
  * @author Jorg Janke
  * @version $Id: AdempiereServerMgr.java,v 1.4 2006/10/09 00:23:26 jjanke Exp $
@@ -128,7 +130,6 @@ public final class AdempiereServerMgr
 			MAcctProcessor pModel = acctModels[i];
 			AdempiereServer server = AdempiereServer.create(pModel);
 			server.start();
-			server.setPriority(Thread.NORM_PRIORITY - 2);
 			m_servers.add(server);
 		}
 		// Request
@@ -138,7 +139,6 @@ public final class AdempiereServerMgr
 			MRequestProcessor pModel = requestModels[i];
 			AdempiereServer server = AdempiereServer.create(pModel);
 			server.start();
-			server.setPriority(Thread.NORM_PRIORITY - 2);
 			m_servers.add(server);
 		}
 		// Workflow
@@ -148,7 +148,6 @@ public final class AdempiereServerMgr
 			MWorkflowProcessor pModel = workflowModels[i];
 			AdempiereServer server = AdempiereServer.create(pModel);
 			server.start();
-			server.setPriority(Thread.NORM_PRIORITY - 2);
 			m_servers.add(server);
 		}
 		// Alert
@@ -158,7 +157,6 @@ public final class AdempiereServerMgr
 			MAlertProcessor pModel = alertModels[i];
 			AdempiereServer server = AdempiereServer.create(pModel);
 			server.start();
-			server.setPriority(Thread.NORM_PRIORITY - 2);
 			m_servers.add(server);
 		}
 		// Scheduler
@@ -168,7 +166,6 @@ public final class AdempiereServerMgr
 			MScheduler pModel = schedulerModels[i];
 			AdempiereServer server = AdempiereServer.create(pModel);
 			server.start();
-			server.setPriority(Thread.NORM_PRIORITY - 2);
 			m_servers.add(server);
 		}
 		// LDAP
@@ -178,7 +175,6 @@ public final class AdempiereServerMgr
 			MLdapProcessor lp = ldapModels[i];
 			AdempiereServer server = AdempiereServer.create(lp);
 			server.start();
-			server.setPriority(Thread.NORM_PRIORITY - 1);
 			m_servers.add(server);
 		}
 		// ImportProcessor - @Trifon
@@ -188,7 +184,6 @@ public final class AdempiereServerMgr
 			final AdempiereProcessor adempiereProcessor = Services.get(IIMPProcessorBL.class).asAdempiereProcessor(importModel);
 			AdempiereServer server = AdempiereServer.create(adempiereProcessor);
 			server.start();
-			server.setPriority(Thread.NORM_PRIORITY - 1);
 			m_servers.add(server);
 		}
 
@@ -216,7 +211,6 @@ public final class AdempiereServerMgr
 		}
 		final AdempiereServer server = AdempiereServer.create(pModel);
 		server.start();
-		server.setPriority(Thread.NORM_PRIORITY - 2);
 		m_servers.add(server);
 	}
 
@@ -272,7 +266,6 @@ public final class AdempiereServerMgr
 					else
 						m_servers.set(i, server);
 					server.start();
-					server.setPriority(Thread.NORM_PRIORITY - 2);
 				}
 			}
 			catch (Exception e)
@@ -335,7 +328,6 @@ public final class AdempiereServerMgr
 			else
 				m_servers.set(index, server);
 			server.start();
-			server.setPriority(Thread.NORM_PRIORITY - 2);
 			Thread.yield();
 		}
 		catch (Exception e)
@@ -365,7 +357,6 @@ public final class AdempiereServerMgr
 			{
 				if (server.isAlive() && !server.isInterrupted())
 				{
-					server.setPriority(Thread.MAX_PRIORITY - 1);
 					server.interrupt();
 				}
 			}
@@ -0,0 +1,184 @@
+package org.compiere.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Services;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
+import org.slf4j.Logger;
+
+import com.google.common.base.MoreObjects;
+
+import de.metas.logging.LogManager;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.serverRoot.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Shared, bounded scheduled executor on which all started {@link AdempiereServer}s are running.
+ * <p>
+ * Each server schedules its next run only after the current one is finished, so the runs of one server never overlap.
+ * The pool size limits how many servers are working at the same time, no matter how many servers are configured.
+ * <p>
+ * Run statistics of all started servers are published via JMX (see {@link JMXAdempiereServerScheduler}).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class AdempiereServerScheduler
+{
+	public static AdempiereServerScheduler get()
+	{
+		if (instance == null)
+		{
+			synchronized (AdempiereServerScheduler.class)
+			{
+				if (instance == null)
+				{
+					instance = new AdempiereServerScheduler();
+				}
+			}
+		}
+		return instance;
+	}
+
+	private static volatile AdempiereServerScheduler instance = null;
+
+	static final String JMX_BASE_NAME = "org.compiere.server";
+
+	private static final String SYSCONFIG_PoolSize = "org.compiere.server.AdempiereServerScheduler.PoolSize";
+	private static final int DEFAULT_PoolSize = 10;
+
+	/** Max. number of seconds which are randomly added to each server's initial nap, so that servers started together don't run together */
+	private static final String SYSCONFIG_StartJitterSeconds = "org.compiere.server.AdempiereServerScheduler.StartJitterSeconds";
+	private static final int DEFAULT_StartJitterSeconds = 60;
+
+	private static final Logger logger = LogManager.getLogger(AdempiereServerScheduler.class);
+
+	private final ScheduledThreadPoolExecutor executor;
+	private final int startJitterSeconds;
+	private final Set<AdempiereServer> startedServers = ConcurrentHashMap.newKeySet();
+
+	private AdempiereServerScheduler()
+	{
+		super();
+
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int poolSize = Math.max(sysConfigBL.getIntValue(SYSCONFIG_PoolSize, DEFAULT_PoolSize), 1);
+		startJitterSeconds = Math.max(sysConfigBL.getIntValue(SYSCONFIG_StartJitterSeconds, DEFAULT_StartJitterSeconds), 0);
+
+		final CustomizableThreadFactory threadFactory = CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(AdempiereServerScheduler.class.getSimpleName())
+				.setDaemon(true)
+				.build();
+		executor = new ScheduledThreadPoolExecutor(poolSize, threadFactory);
+		executor.setRemoveOnCancelPolicy(true);
+
+		JMXRegistry.get().registerJMX(new JMXAdempiereServerScheduler(), OnJMXAlreadyExistsPolicy.Replace);
+
+		logger.info("Created {}", this);
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("poolSize", executor.getCorePoolSize())
+				.add("activeThreads", executor.getActiveCount())
+				.add("scheduledRuns", executor.getQueue().size())
+				.add("startedServers", startedServers.size())
+				.add("startJitterSeconds", startJitterSeconds)
+				.toString();
+	}
+
+	/**
+	 * Schedules the given run of a server.
+	 *
+	 * @param delayMillis delay; if negative, the run is executed as soon as a pool thread is free
+	 */
+	public ScheduledFuture<?> schedule(final Runnable serverRun, final long delayMillis)
+	{
+		return executor.schedule(serverRun, Math.max(delayMillis, 0), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return random number of milliseconds to be added to a server's initial nap
+	 */
+	public long getStartJitterMillis()
+	{
+		if (startJitterSeconds <= 0)
+		{
+			return 0;
+		}
+		return ThreadLocalRandom.current().nextLong(startJitterSeconds * 1000L);
+	}
+
+	/* package */void onServerStarted(final AdempiereServer server)
+	{
+		startedServers.add(server);
+	}
+
+	/* package */void onServerStopped(final AdempiereServer server)
+	{
+		startedServers.remove(server);
+	}
+
+	public int getPoolSize()
+	{
+		return executor.getCorePoolSize();
+	}
+
+	public void setPoolSize(final int poolSize)
+	{
+		executor.setCorePoolSize(Math.max(poolSize, 1));
+		logger.info("Changed pool size: {}", this);
+	}
+
+	public int getActiveThreadsCount()
+	{
+		return executor.getActiveCount();
+	}
+
+	public int getScheduledRunsCount()
+	{
+		return executor.getQueue().size();
+	}
+
+	public long getCompletedRunsCount()
+	{
+		return executor.getCompletedTaskCount();
+	}
+
+	public List<AdempiereServer> getStartedServers()
+	{
+		return new ArrayList<>(startedServers);
+	}
+}
@@ -0,0 +1,111 @@
+package org.compiere.server;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.adempiere.util.jmx.IJMXNameAware;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.serverRoot.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class JMXAdempiereServerScheduler implements JMXAdempiereServerSchedulerMBean, IJMXNameAware
+{
+	private final String jmxName;
+
+	JMXAdempiereServerScheduler()
+	{
+		super();
+		this.jmxName = AdempiereServerScheduler.JMX_BASE_NAME + ":type=AdempiereServerScheduler";
+	}
+
+	@Override
+	public String getJMXName()
+	{
+		return jmxName;
+	}
+
+	private final AdempiereServerScheduler getScheduler()
+	{
+		return AdempiereServerScheduler.get();
+	}
+
+	@Override
+	public int getPoolSize()
+	{
+		return getScheduler().getPoolSize();
+	}
+
+	@Override
+	public void setPoolSize(final int poolSize)
+	{
+		getScheduler().setPoolSize(poolSize);
+	}
+
+	@Override
+	public int getActiveThreadsCount()
+	{
+		return getScheduler().getActiveThreadsCount();
+	}
+
+	@Override
+	public int getScheduledRunsCount()
+	{
+		return getScheduler().getScheduledRunsCount();
+	}
+
+	@Override
+	public long getCompletedRunsCount()
+	{
+		return getScheduler().getCompletedRunsCount();
+	}
+
+	@Override
+	public int getStartedServersCount()
+	{
+		return getScheduler().getStartedServers().size();
+	}
+
+	@Override
+	public String[] getServerStatistics()
+	{
+		final List<AdempiereServer> servers = getScheduler().getStartedServers();
+		servers.sort(Comparator.comparing(AdempiereServer::getName));
+
+		final String[] statistics = new String[servers.size()];
+		for (int i = 0; i < servers.size(); i++)
+		{
+			final AdempiereServer server = servers.get(i);
+			statistics[i] = server.getName() + ": " + server.getStatistics();
+		}
+		return statistics;
+	}
+
+	@Override
+	public long getMaxLastLatenessMillis()
+	{
+		return getScheduler().getStartedServers()
+				.stream()
+				.mapToLong(AdempiereServer::getLastLatenessMillis)
+				.max()
+				.orElse(0);
+	}
+}
@@ -73,7 +73,6 @@ import de.metas.process.ProcessExecutionResult;
 import de.metas.process.ProcessExecutor;
 import de.metas.process.ProcessInfo;
 import de.metas.process.ProcessInfoParameter;
-import it.sauronsoftware.cron4j.Predictor;
 import it.sauronsoftware.cron4j.SchedulingPattern;
 
 /**
@@ -122,11 +121,6 @@ public class Scheduler extends AdempiereServer
 	/** last outcome; stored in the scheduler log. */
 	private boolean m_success = false;
 
-	//
-	// Cron4J scheduling
-	private it.sauronsoftware.cron4j.Scheduler cronScheduler;
-	private Predictor predictor;
-
 	private static final int AD_PInstance_ID_None = -1;
 
 	/**
@@ -700,52 +694,22 @@ public class Scheduler extends AdempiereServer
 	}
 
 	/**
-	 * This implementation evaluated a cron pattern to do the scheduling. If the model's scheduling type is not "cron",
-	 * then the super classe's scheduling is used instead.
+	 * If the model's scheduling type is "cron", the model's cron pattern is used.
+	 * Otherwise the super class's scheduling is used instead.
 	 */
 	@Override
-	public void run()
+	protected String getCronPattern()
 	{
 		if (!X_AD_Scheduler.SCHEDULETYPE_CronSchedulingPattern.equals(m_model.getScheduleType()))
 		{
-			super.run();
-			return;
+			return null;
 		}
 
 		final String cronPattern = m_model.getCronPattern();
 		if (cronPattern != null && cronPattern.trim().length() > 0 && SchedulingPattern.validate(cronPattern))
 		{
-			cronScheduler = new it.sauronsoftware.cron4j.Scheduler();
-			cronScheduler.schedule(cronPattern, new Runnable()
-			{
-				@Override
-				public void run()
-				{
-					runNow();
-					final long next = predictor.nextMatchingTime();
-					setDateNextRun(new Timestamp(next));
-				}
-			});
-			predictor = new Predictor(cronPattern);
-			final long next = predictor.nextMatchingTime();
-			setDateNextRun(new Timestamp(next));
-			cronScheduler.start();
-			while (true)
-			{
-				if (!sleep())
-				{
-					cronScheduler.stop();
-					break;
-				}
-				else if (!cronScheduler.isStarted())
-				{
-					break;
-				}
-			}
-		}
-		else
-		{
-			super.run();
+			return cronPattern;
 		}
+		return null;
 	}
 }	// Scheduler
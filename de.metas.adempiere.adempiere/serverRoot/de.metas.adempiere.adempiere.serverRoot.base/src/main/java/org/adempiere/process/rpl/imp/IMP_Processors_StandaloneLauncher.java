@@ -80,15 +80,14 @@ public class IMP_Processors_StandaloneLauncher
 	private void start(final I_IMP_Processor processorDef)
 	{
 		final AdempiereProcessor adempiereProcessorDef = Services.get(IIMPProcessorBL.class).asAdempiereProcessor(processorDef);
-		final ReplicationProcessor processorThread = new ReplicationProcessor(
+		final ReplicationProcessor processor = new ReplicationProcessor(
 				adempiereProcessorDef,
 				0 // initialNap=0sec
 		);
 
-		processorThread.setDaemon(true);
-		processorThread.start();
+		processor.start();
 
-		System.out.println("Started " + processorThread);
+		System.out.println("Started " + processor);
 	}
 
 	private List<I_IMP_Processor> retrieveProcessors()
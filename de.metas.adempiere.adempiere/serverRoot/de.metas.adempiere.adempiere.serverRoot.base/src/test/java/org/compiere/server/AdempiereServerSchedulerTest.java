@@ -0,0 +1,290 @@
+package org.compiere.server;
+
+import java.sql.Timestamp;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.Services;
+import org.compiere.model.AdempiereProcessor;
+import org.compiere.model.AdempiereProcessorLog;
+import org.compiere.model.X_R_RequestProcessor;
+import org.compiere.util.Env;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.serverRoot.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Tests starting, running and stopping {@link AdempiereServer}s on the {@link AdempiereServerScheduler}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class AdempiereServerSchedulerTest
+{
+	private static final long TIMEOUT_MILLIS = 10000;
+
+	private TestServer server;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		AdempiereTestHelper.get().setupContext_AD_Client_IfNotSet();
+
+		// NOTE: the scheduler is created only once, so this is relevant only if it was not created yet
+		Services.get(ISysConfigBL.class).setValue("org.compiere.server.AdempiereServerScheduler.StartJitterSeconds", 0, 0);
+	}
+
+	@After
+	public void stopServer()
+	{
+		if (server != null)
+		{
+			server.continueWork.release(100);
+			server.interrupt();
+		}
+	}
+
+	@Test
+	public void test_start_runAndInterrupt()
+	{
+		server = new TestServer(0);
+		server.start();
+		Assert.assertTrue("alive", server.isAlive());
+		Assert.assertTrue("registered to scheduler", AdempiereServerScheduler.get().getStartedServers().contains(server));
+
+		server.awaitWorkStarted();
+		Assert.assertFalse("sleeping while working", server.isSleeping());
+
+		server.continueWork.release();
+		awaitTrue("sleeping after the run", server::isSleeping);
+		Assert.assertEquals("runs", 1, server.p_runCount);
+
+		// not working right now => stopped right away
+		server.interrupt();
+		Assert.assertTrue("interrupted", server.isInterrupted());
+		Assert.assertFalse("alive", server.isAlive());
+		Assert.assertFalse("registered to scheduler", AdempiereServerScheduler.get().getStartedServers().contains(server));
+	}
+
+	@Test
+	public void test_interruptWhileScheduledRunIsWorking()
+	{
+		server = new TestServer(0);
+		server.start();
+		server.awaitWorkStarted();
+
+		// a manual run shall be skipped while the scheduled run is working
+		server.runNow();
+		Assert.assertEquals("work started count", 1, server.workStartedCount);
+
+		server.interrupt();
+		Assert.assertTrue("still alive while working", server.isAlive());
+
+		server.continueWork.release();
+		awaitTrue("stopped after the run", () -> !server.isAlive());
+		Assert.assertFalse("registered to scheduler", AdempiereServerScheduler.get().getStartedServers().contains(server));
+		Assert.assertEquals("runs", 1, server.p_runCount);
+	}
+
+	@Test
+	public void test_interruptWhileRunNowIsWorking() throws InterruptedException
+	{
+		server = new TestServer(3600); // make sure there is no scheduled run meanwhile
+		server.start();
+
+		final Thread runNowThread = new Thread(server::runNow, "runNow");
+		runNowThread.start();
+		server.awaitWorkStarted();
+
+		server.interrupt();
+		Assert.assertTrue("still alive while working", server.isAlive());
+
+		server.continueWork.release();
+		runNowThread.join(TIMEOUT_MILLIS);
+		Assert.assertFalse("runNow finished", runNowThread.isAlive());
+
+		Assert.assertFalse("alive", server.isAlive());
+		Assert.assertFalse("registered to scheduler", AdempiereServerScheduler.get().getStartedServers().contains(server));
+		Assert.assertEquals("runs", 1, server.p_runCount);
+	}
+
+	private static void awaitTrue(final String message, final BooleanSupplier condition)
+	{
+		final long timeout = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.getAsBoolean())
+		{
+			if (System.currentTimeMillis() > timeout)
+			{
+				Assert.fail("Timeout: " + message);
+			}
+			try
+			{
+				Thread.sleep(10);
+			}
+			catch (final InterruptedException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Server whose work blocks until {@link #continueWork} is released.
+	 */
+	private static final class TestServer extends AdempiereServer
+	{
+		private final Semaphore workStarted = new Semaphore(0);
+		private final Semaphore continueWork = new Semaphore(0);
+		private volatile int workStartedCount = 0;
+
+		public TestServer(final int initialNapSecs)
+		{
+			super(new TestProcessor(), initialNapSecs);
+		}
+
+		@Override
+		protected void doWork()
+		{
+			workStartedCount++;
+			workStarted.release();
+			continueWork.acquireUninterruptibly();
+		}
+
+		@Override
+		public String getServerInfo()
+		{
+			return "test";
+		}
+
+		public void awaitWorkStarted()
+		{
+			try
+			{
+				Assert.assertTrue("work started", workStarted.tryAcquire(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+			}
+			catch (final InterruptedException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static final class TestProcessor implements AdempiereProcessor
+	{
+		private final Properties ctx = Env.getCtx();
+		private Timestamp dateNextRun;
+		private Timestamp dateLastRun;
+
+		@Override
+		public int getAD_Client_ID()
+		{
+			return Env.getAD_Client_ID(ctx);
+		}
+
+		@Override
+		public String getName()
+		{
+			return "Test";
+		}
+
+		@Override
+		public String getDescription()
+		{
+			return null;
+		}
+
+		@Override
+		public Properties getCtx()
+		{
+			return ctx;
+		}
+
+		@Override
+		public String getFrequencyType()
+		{
+			return X_R_RequestProcessor.FREQUENCYTYPE_Hour;
+		}
+
+		@Override
+		public int getFrequency()
+		{
+			return 1;
+		}
+
+		@Override
+		public String getServerID()
+		{
+			return "Test";
+		}
+
+		@Override
+		public Timestamp getDateNextRun(final boolean requery)
+		{
+			return dateNextRun;
+		}
+
+		@Override
+		public void setDateNextRun(final Timestamp dateNextWork)
+		{
+			dateNextRun = dateNextWork;
+		}
+
+		@Override
+		public Timestamp getDateLastRun()
+		{
+			return dateLastRun;
+		}
+
+		@Override
+		public void setDateLastRun(final Timestamp dateLastRun)
+		{
+			this.dateLastRun = dateLastRun;
+		}
+
+		@Override
+		public boolean save()
+		{
+			return true;
+		}
+
+		@Override
+		public AdempiereProcessorLog[] getLogs()
+		{
+			return new AdempiereProcessorLog[] {};
+		}
+
+		@Override
+		public String get_TableName()
+		{
+			return "Test";
+		}
+	}
+}
@@ -26,6 +26,7 @@ import java.sql.Timestamp;
 import java.util.Properties;
 
 import org.adempiere.ad.dao.IQueryBuilder;
+import org.adempiere.ad.dao.SqlProfilerContext;
 import org.adempiere.ad.service.IDeveloperModeBL;
 import org.adempiere.ad.service.IErrorManager;
 import org.adempiere.ad.trx.api.ITrx;
@@ -138,7 +139,8 @@ import de.metas.notification.INotificationBL;
 		boolean finallyReleaseElementLockIfAny = true; // task 08999: only release the lock if there is no skip request.
 
 		try (final IAutoCloseable contextRestorer = Env.switchContext(processingCtx);
-				final IAutoCloseable loggableRestorer = Loggables.temporarySetLoggable(loggable))
+				final IAutoCloseable loggableRestorer = Loggables.temporarySetLoggable(loggable);
+				final IAutoCloseable profilerContextRestorer = SqlProfilerContext.temporarySet(SqlProfilerContext.TYPE_WorkPackage, workPackageProcessorOriginal.getClass().getName()))
 		{
 			final IMutable<Result> resultRef = new Mutable<>(null);
 
@@ -151,10 +151,12 @@ public abstract class AbstractLockDatabase implements ILockDatabase
 	/**
 	 * Lock all records specified by {@link LockCommand#getRecordsToLockIterator()}.
 	 *
+	 * Locks the records one by one. Lock databases which are able to lock a set of records at once may override it.
+	 *
 	 * @param lockCommand
 	 * @return how many records were locked
 	 */
-	private final int lockByIterator(final ILockCommand lockCommand)
+	protected int lockByIterator(final ILockCommand lockCommand)
 	{
 		final Iterator<ITableRecordReference> records = lockCommand.getRecordsToLockIterator();
 		Check.assumeNotNull(records, "records not null");
@@ -25,8 +25,14 @@ package de.metas.lock.api.impl;
 
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.IQueryFilter;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
+import org.adempiere.util.Services;
 import org.compiere.model.IQuery;
+import org.slf4j.Logger;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 
 import de.metas.lock.api.ILock;
 import de.metas.lock.api.ILockCommand;
@@ -34,14 +40,47 @@ import de.metas.lock.api.ILockManager;
 import de.metas.lock.api.IUnlockCommand;
 import de.metas.lock.api.LockOwner;
 import de.metas.lock.spi.ILockDatabase;
+import de.metas.lock.spi.impl.AdvisoryLockDatabase;
 import de.metas.lock.spi.impl.SqlLockDatabase;
+import de.metas.logging.LogManager;
 
 public class LockManager implements ILockManager
 {
-	private final ILockDatabase lockDatabase = new SqlLockDatabase();
+	private static final Logger logger = LogManager.getLogger(LockManager.class);
+
+	/**
+	 * Which {@link ILockDatabase} to use: {@value #LOCKDATABASE_SQL} (default, locks are stored in T_Lock) or {@value #LOCKDATABASE_AdvisoryLock}.
+	 * Read once, on first use.
+	 */
+	private static final String SYSCONFIG_LockDatabase = "de.metas.lock.LockDatabase";
+	private static final String LOCKDATABASE_SQL = "SQL";
+	private static final String LOCKDATABASE_AdvisoryLock = "AdvisoryLock";
+
+	private final Supplier<ILockDatabase> lockDatabaseSupplier = Suppliers.memoize(() -> createLockDatabase());
 
 	public ILockDatabase getLockDatabase()
 	{
+		return lockDatabaseSupplier.get();
+	}
+
+	private static final ILockDatabase createLockDatabase()
+	{
+		final String lockDatabaseType = Services.get(ISysConfigBL.class).getValue(SYSCONFIG_LockDatabase, LOCKDATABASE_SQL);
+		final ILockDatabase lockDatabase;
+		if (LOCKDATABASE_AdvisoryLock.equalsIgnoreCase(lockDatabaseType))
+		{
+			lockDatabase = new AdvisoryLockDatabase();
+		}
+		else
+		{
+			if (!LOCKDATABASE_SQL.equalsIgnoreCase(lockDatabaseType))
+			{
+				logger.warn("Unknown {}={}. Using {}", SYSCONFIG_LockDatabase, lockDatabaseType, LOCKDATABASE_SQL);
+			}
+			lockDatabase = new SqlLockDatabase();
+		}
+
+		logger.info("Using {}", lockDatabase.getClass().getSimpleName());
 		return lockDatabase;
 	}
 
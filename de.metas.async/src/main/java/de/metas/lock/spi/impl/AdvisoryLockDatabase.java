@@ -0,0 +1,1332 @@
+package de.metas.lock.spi.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.dao.IQueryFilter;
+import org.adempiere.ad.dao.ISqlQueryFilter;
+import org.adempiere.ad.dao.impl.TypedSqlQuery;
+import org.adempiere.ad.dao.impl.TypedSqlQueryFilter;
+import org.adempiere.ad.table.api.IADTableDAO;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Check;
+import org.adempiere.util.Services;
+import org.adempiere.util.concurrent.CloseableReentrantLock;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.ITableRecordReference;
+import org.adempiere.util.lang.ObjectUtils;
+import org.compiere.db.CConnection;
+import org.compiere.model.IQuery;
+import org.compiere.util.DB;
+import org.compiere.util.Util.ArrayKey;
+
+import com.google.common.base.Joiner;
+
+import de.metas.lock.api.ILock;
+import de.metas.lock.api.ILockCommand;
+import de.metas.lock.api.IUnlockCommand;
+import de.metas.lock.api.LockOwner;
+import de.metas.lock.api.impl.AbstractLockDatabase;
+import de.metas.lock.exceptions.LockFailedException;
+import de.metas.lock.exceptions.UnlockFailedException;
+import de.metas.lock.model.I_T_Lock;
+import de.metas.lock.spi.ILockDatabase;
+
+/**
+ * {@link ILockDatabase} implementation which locks the records using PostgreSQL session level advisory locks, keyed on (AD_Table_ID, Record_ID).
+ * Compared to {@link SqlLockDatabase}, no <code>T_Lock</code> records are inserted and deleted for the auto-cleanup locks.
+ * <p>
+ * How it works:
+ * <ul>
+ * <li>auto-cleanup locks are advisory locks; all of them are acquired on one dedicated database connection, so they don't depend on the transactions of the caller.
+ * That connection is not taken from the connection pool (the pool could close it while it's idle) and it's checked periodically, see {@link #keepAlive()}
+ * <li>a whole set of records (selection, filters or list of records) is locked in one SQL statement
+ * <li>the owners of the auto-cleanup locks are kept in memory; the database only knows that a record is locked
+ * <li>other processes see the records which are advisory locked via <code>pg_locks</code>, see {@link #getNotLockedWhereClause(String, String)}
+ * <li>non auto-cleanup locks (also the ones which were changed from auto-cleanup locks, e.g. the elements of an enqueued workpackage) are stored in <code>T_Lock</code>,
+ * like {@link SqlLockDatabase} does. So they survive a restart and their owners can be retrieved and unlocked by any process.
+ * While they are inserted, the advisory locks of the records are acquired at transaction level, so the two kinds of locks are excluding each other.
+ * </ul>
+ * Limitations:
+ * <ul>
+ * <li>the auto-cleanup locks are released when the connection is closed, i.e. they don't survive a restart
+ * <li>the owners of the auto-cleanup locks are known only by the process which acquired them (e.g. {@link #retrieveLockForOwner(LockOwner)}
+ * or {@link #getLockedWhereClause(Class, String, ILock)} for an owner of another process won't find them)
+ * <li>a record can have multiple owners only within the same process and the same kind of lock
+ * <li>if the dedicated connection is lost anyway, the database releases all our auto-cleanup locks. We can't get them back, because other processes could have locked the records meanwhile.
+ * Instead, the next unlock, change or lock of an affected owner fails with an {@link UnlockFailedException} or {@link LockFailedException}, so the lock holder learns that it was not protected anymore
+ * </ul>
+ * Concurrency: all operations which are using the dedicated connection or the in-memory bookkeeping are serialized by one lock ({@link #mainLock}).
+ * That's required anyway, because a JDBC connection can't run statements concurrently and a session level advisory lock can only be released by the session which is holding it.
+ * It's not a bottleneck in practice: each lock or unlock operation is one set-based SQL statement (plus one for <code>T_Lock</code>), no matter how many records are involved.
+ * Checking if a record is locked by another process ({@link #isLocked(int, int, ILock)}, {@link #getNotLockedWhereClause(String, String)}) queries <code>pg_locks</code> on other connections, without holding that lock.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class AdvisoryLockDatabase extends AbstractLockDatabase
+{
+	/** Selects the Record_IDs which are locked in given AD_Table_ID, by any database session */
+	private static final String SQL_SelectAdvisoryLockedRecordIds = "SELECT zz.objid::integer FROM pg_locks zz"
+			+ " WHERE zz.locktype='advisory' AND zz.objsubid=2 AND zz.granted"
+			+ " AND zz.database=(SELECT oid FROM pg_database WHERE datname=current_database())"
+			+ " AND zz.classid=";
+
+	/** How often the dedicated connection is checked, see {@link #keepAlive()} */
+	private static final int KEEP_ALIVE_INTERVAL_SEC = 60;
+	/** How long to wait for the database to confirm that the dedicated connection is valid */
+	private static final int KEEP_ALIVE_TIMEOUT_SEC = 10;
+
+	private final CloseableReentrantLock mainLock = new CloseableReentrantLock();
+	/** Dedicated connection which is holding all our advisory locks */
+	private Connection _connection;
+	/** Periodically runs {@link #keepAlive()}; started together with the first connection */
+	private ScheduledExecutorService keepAliveExecutor;
+	/** Owners which lost their auto-cleanup locks together with the connection and were not told about it yet */
+	private final Set<LockOwner> lockOwnersLost = new HashSet<>();
+	/** (AD_Table_ID, Record_ID) to record lock */
+	private final Map<ArrayKey, RecordLock> recordLocks = new HashMap<>();
+	/** Lock owner to (AD_Table_ID, Record_ID) keys */
+	private final Map<LockOwner, Set<ArrayKey>> recordKeysByOwner = new HashMap<>();
+	/** Non auto-cleanup locks, stored in T_Lock */
+	private final SqlLockDatabase persistentLocks = new SqlLockDatabase();
+
+	private static final ArrayKey createKey(final int adTableId, final int recordId)
+	{
+		return new ArrayKey(adTableId, recordId);
+	}
+
+	/**
+	 * @return the connection which is holding our advisory locks; if the previous connection was lost, a new one is created
+	 */
+	private final Connection getConnection()
+	{
+		Check.assume(mainLock.isHeldByCurrentThread(), "main lock is held by current thread");
+
+		if (_connection != null)
+		{
+			boolean closed;
+			try
+			{
+				closed = _connection.isClosed();
+			}
+			catch (final SQLException e)
+			{
+				logger.warn("Failed checking the advisory locks connection", e);
+				closed = true;
+			}
+
+			if (!closed)
+			{
+				return _connection;
+			}
+			onConnectionLost();
+		}
+
+		_connection = createConnection();
+		startKeepAlive();
+		return _connection;
+	}
+
+	/**
+	 * @return new connection, directly from the JDBC driver (i.e. not pooled), in auto-commit mode
+	 */
+	private static final Connection createConnection()
+	{
+		final CConnection cc = CConnection.get();
+		Connection connection = null;
+		try
+		{
+			connection = cc.getDatabase().getDriverConnection(cc.getConnectionURL(), cc.getDbUid(), cc.getDbPwd());
+			connection.setAutoCommit(true);
+			connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+			return connection;
+		}
+		catch (final SQLException e)
+		{
+			DB.close(connection);
+			throw new DBException("Failed creating the advisory locks connection", e);
+		}
+	}
+
+	private final void startKeepAlive()
+	{
+		if (keepAliveExecutor != null)
+		{
+			return;
+		}
+
+		keepAliveExecutor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(AdvisoryLockDatabase.class.getSimpleName() + "-keepAlive")
+				.setDaemon(true)
+				.build());
+		keepAliveExecutor.scheduleWithFixedDelay(() -> {
+			try
+			{
+				keepAlive();
+			}
+			catch (final Throwable e)
+			{
+				// don't stop the periodic checks
+				logger.warn("Failed checking the advisory locks connection", e);
+			}
+		}, KEEP_ALIVE_INTERVAL_SEC, KEEP_ALIVE_INTERVAL_SEC, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Pings the dedicated connection which is holding our advisory locks, so it's not dropped as idle (e.g. by a firewall).
+	 * If the connection is not valid anymore, the lost locks are forgotten and their owners will fail on their next lock operation.
+	 * <p>
+	 * Called periodically, but it can also be called directly.
+	 */
+	public void keepAlive()
+	{
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			if (_connection == null)
+			{
+				return;
+			}
+
+			boolean valid;
+			try
+			{
+				valid = _connection.isValid(KEEP_ALIVE_TIMEOUT_SEC);
+			}
+			catch (final SQLException e)
+			{
+				logger.warn("Failed checking the advisory locks connection", e);
+				valid = false;
+			}
+
+			if (!valid)
+			{
+				onConnectionLost();
+			}
+		}
+	}
+
+	/**
+	 * The database released all our advisory locks when the connection was lost.
+	 * Forgets them and remembers their owners, so they fail on their next lock operation (see {@link #assertLockOwnerNotLost(ILockCommand, LockOwner)}, {@link #removeLockOwnerLost(LockOwner)}).
+	 */
+	private final void onConnectionLost()
+	{
+		logger.error("Advisory locks connection was lost. The database released the auto-cleanup locks of {} records, owned by {}", recordLocks.size(), recordKeysByOwner.keySet());
+
+		lockOwnersLost.addAll(recordKeysByOwner.keySet());
+		recordLocks.clear();
+		recordKeysByOwner.clear();
+
+		DB.close(_connection);
+		_connection = null;
+	}
+
+	private final void assertLockOwnerNotLost(final ILockCommand lockCommand, final LockOwner lockOwner)
+	{
+		if (lockOwnersLost.contains(lockOwner))
+		{
+			throw new LockFailedException("The auto-cleanup locks of " + lockOwner + " were released, because the advisory locks connection was lost")
+					.setLockCommand(lockCommand);
+		}
+	}
+
+	/**
+	 * Forgets that given owner lost its auto-cleanup locks, because it's told now, while unlocking.
+	 *
+	 * @return true if given owner lost its auto-cleanup locks together with the connection
+	 */
+	private final boolean removeLockOwnerLost(final LockOwner lockOwner)
+	{
+		return lockOwnersLost.remove(lockOwner);
+	}
+
+	private static final UnlockFailedException newLockOwnerLostException(final IUnlockCommand unlockCommand)
+	{
+		return new UnlockFailedException("The auto-cleanup locks of " + unlockCommand.getOwner() + " were already released, because the advisory locks connection was lost")
+				.setUnlockCommand(unlockCommand);
+	}
+
+	private static final String getAdvisoryLockedRecordIdsSql(final int adTableId)
+	{
+		Check.assume(adTableId > 0, "adTableId > 0");
+		return SQL_SelectAdvisoryLockedRecordIds + adTableId + "::oid";
+	}
+
+	private static final String toSqlArrayOfIntegers(final Collection<Integer> recordIds)
+	{
+		return "ARRAY[" + Joiner.on(",").join(recordIds) + "]::integer[]";
+	}
+
+	@Override
+	public boolean isLocked(final int adTableId, final int recordId, final ILock lockedBy)
+	{
+		Check.assume(adTableId > 0, "asTableId > 0");
+
+		if (recordId < 0)
+		{
+			return false;
+		}
+
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			if (recordLocks.containsKey(createKey(adTableId, recordId))
+					&& (lockedBy == ILock.NULL || !getOwnerLocks(adTableId, recordId, lockedBy.getOwner()).isEmpty()))
+			{
+				return true;
+			}
+		}
+
+		// Not locked by us, but it could be advisory locked by another process. That process' lock owners are not known to us.
+		if (lockedBy == ILock.NULL || lockedBy.getOwner().isAnyOwner())
+		{
+			final String sql = "SELECT count(1) FROM (" + getAdvisoryLockedRecordIdsSql(adTableId) + ") r(Record_ID) WHERE r.Record_ID=?";
+			final int countLocked = DB.getSQLValueEx(ITrx.TRXNAME_None, sql, recordId);
+			if (countLocked > 0)
+			{
+				return true;
+			}
+		}
+
+		return persistentLocks.isLocked(adTableId, recordId, lockedBy);
+	}
+
+	@Override
+	protected int lockByFilters(final ILockCommand lockCommand)
+	{
+		final IQueryFilter<?> selectionToLockFilters = lockCommand.getSelectionToLock_Filters();
+		if (!(selectionToLockFilters instanceof ISqlQueryFilter))
+		{
+			Check.errorIf(true, "Currently we just support ISqlQueryFilters. This filter is not supported: {}", selectionToLockFilters);
+			return -1; // not reached
+		}
+
+		final int adTableId = lockCommand.getSelectionToLock_AD_Table_ID();
+		final String tableName = Services.get(IADTableDAO.class).retrieveTableName(adTableId);
+		final ISqlQueryFilter sqlFilter = (ISqlQueryFilter)selectionToLockFilters;
+
+		final String recordIdsSql = "SELECT " + tableName + "_ID FROM " + tableName + " WHERE (" + sqlFilter.getSql() + ")";
+		final List<Object> recordIdsSqlParams = sqlFilter.getSqlParams(null);
+
+		final int countLocked = lockRecordIds(lockCommand, adTableId, recordIdsSql, recordIdsSqlParams);
+		if (countLocked <= 0 && lockCommand.isFailIfNothingLocked())
+		{
+			throw new LockFailedException("Nothing locked for selection");
+		}
+		return countLocked;
+	}
+
+	@Override
+	protected int lockBySelection(final ILockCommand lockCommand)
+	{
+		final int adTableId = lockCommand.getSelectionToLock_AD_Table_ID();
+		Check.assume(adTableId > 0, "adTableId > 0");
+
+		final int adPInstanceId = lockCommand.getSelectionToLock_AD_PInstance_ID();
+		Check.assume(adPInstanceId > 0, "adPInstanceId > 0");
+
+		final String recordIdsSql = "SELECT T_Selection_ID FROM T_Selection WHERE AD_PInstance_ID=?";
+		final List<Object> recordIdsSqlParams = new ArrayList<>();
+		recordIdsSqlParams.add(adPInstanceId);
+
+		final int countLocked = lockRecordIds(lockCommand, adTableId, recordIdsSql, recordIdsSqlParams);
+		if (countLocked <= 0 && lockCommand.isFailIfNothingLocked())
+		{
+			throw new LockFailedException("Nothing locked for selection");
+		}
+		return countLocked;
+	}
+
+	/**
+	 * Locks all records of the iterator, one SQL statement per AD_Table_ID.
+	 */
+	@Override
+	protected int lockByIterator(final ILockCommand lockCommand)
+	{
+		// Changing the lock is done record by record, see changeLockRecord
+		if (lockCommand.getParentLock() != null)
+		{
+			return super.lockByIterator(lockCommand);
+		}
+
+		final Map<Integer, Set<Integer>> recordIdsByTableId = new LinkedHashMap<>();
+		for (final Iterator<ITableRecordReference> records = lockCommand.getRecordsToLockIterator(); records.hasNext();)
+		{
+			final ITableRecordReference record = records.next();
+			final int adTableId = record.getAD_Table_ID();
+			Check.assume(adTableId > 0, "adTableId > 0");
+
+			final int recordId = record.getRecord_ID();
+			if (recordId < 0)
+			{
+				continue;
+			}
+
+			recordIdsByTableId.computeIfAbsent(adTableId, k -> new LinkedHashSet<>()).add(recordId);
+		}
+
+		int countLocked = 0;
+		for (final Map.Entry<Integer, Set<Integer>> e : recordIdsByTableId.entrySet())
+		{
+			final int adTableId = e.getKey();
+			final String recordIdsSql = "SELECT unnest(" + toSqlArrayOfIntegers(e.getValue()) + ")";
+			countLocked += lockRecordIds(lockCommand, adTableId, recordIdsSql, new ArrayList<>());
+		}
+		return countLocked;
+	}
+
+	@Override
+	protected boolean lockRecord(final ILockCommand lockCommand, final ITableRecordReference record)
+	{
+		Check.assumeNotNull(record, "record not null");
+
+		final int adTableId = record.getAD_Table_ID();
+		Check.assume(adTableId > 0, "adTableId > 0");
+
+		final int recordId = record.getRecord_ID();
+		if (recordId < 0)
+		{
+			return false;
+		}
+
+		final List<Object> recordIdsSqlParams = new ArrayList<>();
+		recordIdsSqlParams.add(recordId);
+		final int countLocked = lockRecordIds(lockCommand, adTableId, "SELECT ?::integer", recordIdsSqlParams);
+		return countLocked > 0;
+	}
+
+	/**
+	 * Locks all records returned by given SQL: auto-cleanup locks are advisory locks, the other ones are stored in <code>T_Lock</code>.
+	 *
+	 * @param recordIdsSql SQL which is selecting the Record_IDs to be locked
+	 * @return how many records were locked
+	 */
+	private final int lockRecordIds(final ILockCommand lockCommand, final int adTableId, final String recordIdsSql, final List<Object> recordIdsSqlParams)
+	{
+		if (lockCommand.isAutoCleanup())
+		{
+			return acquireAdvisoryLocks(lockCommand, adTableId, recordIdsSql, recordIdsSqlParams);
+		}
+		else
+		{
+			final boolean changingOwnLocks = false;
+			return insertPersistentLocks(lockCommand, adTableId, recordIdsSql, recordIdsSqlParams, changingOwnLocks);
+		}
+	}
+
+	/**
+	 * Tries to acquire the advisory locks of all records returned by given SQL, in one SQL statement.
+	 * <p>
+	 * If some of the records are already locked and {@link ILockCommand#isFailIfAlreadyLocked()}, the locks which were acquired by this call are released again and an exception is thrown.
+	 *
+	 * @param recordIdsSql SQL which is selecting the Record_IDs to be locked
+	 * @return how many records were locked
+	 */
+	private final int acquireAdvisoryLocks(final ILockCommand lockCommand, final int adTableId, final String recordIdsSql, final List<Object> recordIdsSqlParams)
+	{
+		final LockOwner lockOwner = lockCommand.getOwner();
+		assertValidLockOwner(lockOwner);
+
+		final List<Object> sqlParams = new ArrayList<>();
+		sqlParams.add(adTableId);
+		sqlParams.addAll(recordIdsSqlParams);
+		final String sql = "SELECT r.Record_ID::integer, pg_try_advisory_lock(?::integer, r.Record_ID::integer)"
+				+ " FROM (" + recordIdsSql + ") r(Record_ID)";
+
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			assertLockOwnerNotLost(lockCommand, lockOwner);
+
+			final List<OwnerLock> ownerLocksAdded = new ArrayList<>();
+			final List<Integer> recordIdsAlreadyLocked = new ArrayList<>();
+			// advisory locks are reentrant: records which we were already holding were locked one more time, so we need to release them once
+			final List<Integer> recordIdsLockedTwice = new ArrayList<>();
+			// records which we were not holding before; they could have a T_Lock record
+			final List<Integer> recordIdsLockedFirstTime = new ArrayList<>();
+
+			PreparedStatement pstmt = null;
+			ResultSet rs = null;
+			try
+			{
+				pstmt = getConnection().prepareStatement(sql);
+				DB.setParameters(pstmt, sqlParams);
+				rs = pstmt.executeQuery();
+				while (rs.next())
+				{
+					final int recordId = rs.getInt(1);
+					final boolean locked = rs.getBoolean(2);
+					if (!locked)
+					{
+						// locked by another process
+						recordIdsAlreadyLocked.add(recordId);
+						continue;
+					}
+
+					final ArrayKey recordKey = createKey(adTableId, recordId);
+					RecordLock recordLock = recordLocks.get(recordKey);
+					if (recordLock == null)
+					{
+						recordLock = new RecordLock(adTableId, recordId);
+						recordLocks.put(recordKey, recordLock);
+						recordIdsLockedFirstTime.add(recordId);
+					}
+					else
+					{
+						recordIdsLockedTwice.add(recordId);
+					}
+
+					final OwnerLock ownerLock = recordLock.addOwnerLock(lockCommand);
+					if (ownerLock == null)
+					{
+						// locked by us, for another owner
+						recordIdsAlreadyLocked.add(recordId);
+						continue;
+					}
+
+					recordKeysByOwner.computeIfAbsent(lockOwner, k -> new LinkedHashSet<>()).add(recordKey);
+					ownerLocksAdded.add(ownerLock);
+				}
+			}
+			catch (final SQLException e)
+			{
+				throw new LockFailedException("Failed locking records of AD_Table_ID=" + adTableId, e)
+						.setLockCommand(lockCommand)
+						.setSql(sql, sqlParams.toArray());
+			}
+			finally
+			{
+				DB.close(rs, pstmt);
+				rs = null;
+				pstmt = null;
+
+				releaseAdvisoryLocks(adTableId, recordIdsLockedTwice);
+			}
+
+			//
+			// Give up the records which are locked in T_Lock.
+			// NOTE: we check it only after we got the advisory locks, because the T_Lock records are inserted while holding the advisory locks (see insertPersistentLocks).
+			final Set<Integer> recordIdsPersistentLocked = retrievePersistentLockedRecordIds(adTableId, recordIdsLockedFirstTime);
+			if (!recordIdsPersistentLocked.isEmpty())
+			{
+				final List<OwnerLock> ownerLocksToRemove = new ArrayList<>();
+				for (final OwnerLock ownerLock : ownerLocksAdded)
+				{
+					if (recordIdsPersistentLocked.contains(ownerLock.getRecordId()))
+					{
+						ownerLocksToRemove.add(ownerLock);
+						recordIdsAlreadyLocked.add(ownerLock.getRecordId());
+					}
+				}
+				ownerLocksAdded.removeAll(ownerLocksToRemove);
+				unlockOwnerLocks(ownerLocksToRemove);
+			}
+
+			if (!recordIdsAlreadyLocked.isEmpty() && lockCommand.isFailIfAlreadyLocked())
+			{
+				// Rollback what we locked so far
+				unlockOwnerLocks(ownerLocksAdded);
+
+				throw new LockFailedException("Some of the records were already locked: AD_Table_ID=" + adTableId + ", Record_IDs=" + recordIdsAlreadyLocked)
+						.setLockCommand(lockCommand)
+						.setSql(sql, sqlParams.toArray());
+			}
+
+			return ownerLocksAdded.size();
+		}
+	}
+
+	/**
+	 * @return those of given records which are locked in <code>T_Lock</code>
+	 */
+	private final Set<Integer> retrievePersistentLockedRecordIds(final int adTableId, final Collection<Integer> recordIds)
+	{
+		final Set<Integer> recordIdsLocked = new HashSet<>();
+		if (recordIds.isEmpty())
+		{
+			return recordIdsLocked;
+		}
+
+		final String sql = "SELECT DISTINCT " + I_T_Lock.COLUMNNAME_Record_ID + " FROM " + I_T_Lock.Table_Name
+				+ " WHERE " + I_T_Lock.COLUMNNAME_AD_Table_ID + "=" + adTableId
+				+ " AND " + I_T_Lock.COLUMNNAME_Record_ID + "=ANY(" + toSqlArrayOfIntegers(recordIds) + ")";
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = getConnection().prepareStatement(sql);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				recordIdsLocked.add(rs.getInt(1));
+			}
+			return recordIdsLocked;
+		}
+		catch (final SQLException e)
+		{
+			throw new LockFailedException("Failed checking the T_Lock records of AD_Table_ID=" + adTableId, e)
+					.setSql(sql, null);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	/**
+	 * Inserts the <code>T_Lock</code> records of all records returned by given SQL, in one transaction on our connection.
+	 * <p>
+	 * While inserting, the advisory locks of the records are acquired at transaction level, so no other process can acquire an auto-cleanup lock for them in meantime.
+	 * Records which have an advisory lock of another process are considered already locked.
+	 * Partial locking is not supported: if the records can't be inserted (e.g. one of them was already locked in <code>T_Lock</code>) nothing is locked.
+	 *
+	 * @param recordIdsSql SQL which is selecting the Record_IDs to be locked
+	 * @param changingOwnLocks true if we are converting our own advisory locks of these records (see {@link #changeLockRecord(ILockCommand, ITableRecordReference)});
+	 *            if false, the records which have one of our advisory locks are considered already locked
+	 * @return how many records were locked
+	 */
+	private final int insertPersistentLocks(final ILockCommand lockCommand,
+			final int adTableId,
+			final String recordIdsSql,
+			final List<Object> recordIdsSqlParams,
+			final boolean changingOwnLocks)
+	{
+		final LockOwner lockOwner = lockCommand.getOwner();
+		assertValidLockOwner(lockOwner);
+
+		final List<Object> sqlParams = new ArrayList<>();
+		sqlParams.add(adTableId);
+		sqlParams.addAll(recordIdsSqlParams);
+		final String sql = "SELECT r.Record_ID::integer, pg_try_advisory_xact_lock(?::integer, r.Record_ID::integer)"
+				+ " FROM (" + recordIdsSql + ") r(Record_ID)";
+
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			final Connection connection = getConnection();
+			String sqlCurrent = sql;
+			List<Object> sqlParamsCurrent = sqlParams;
+			PreparedStatement pstmt = null;
+			ResultSet rs = null;
+			boolean committed = false;
+			try
+			{
+				connection.setAutoCommit(false);
+
+				//
+				// Acquire the transaction level advisory locks
+				final List<Integer> recordIdsToLock = new ArrayList<>();
+				final List<Integer> recordIdsAlreadyLocked = new ArrayList<>();
+				pstmt = connection.prepareStatement(sql);
+				DB.setParameters(pstmt, sqlParams);
+				rs = pstmt.executeQuery();
+				while (rs.next())
+				{
+					final int recordId = rs.getInt(1);
+					final boolean locked = rs.getBoolean(2);
+					// NOTE: the advisory locks of our own session are reentrant, so we need to check our auto-cleanup locks ourselves
+					if (!locked || !changingOwnLocks && recordLocks.containsKey(createKey(adTableId, recordId)))
+					{
+						recordIdsAlreadyLocked.add(recordId);
+					}
+					else
+					{
+						recordIdsToLock.add(recordId);
+					}
+				}
+				DB.close(rs, pstmt);
+				rs = null;
+				pstmt = null;
+
+				if (!recordIdsAlreadyLocked.isEmpty() && lockCommand.isFailIfAlreadyLocked())
+				{
+					throw new LockFailedException("Some of the records were already locked: AD_Table_ID=" + adTableId + ", Record_IDs=" + recordIdsAlreadyLocked)
+							.setLockCommand(lockCommand)
+							.setSql(sql, sqlParams.toArray());
+				}
+
+				//
+				// Insert the T_Lock records
+				int countLocked = 0;
+				if (!recordIdsToLock.isEmpty())
+				{
+					sqlCurrent = "INSERT INTO " + I_T_Lock.Table_Name + " ("
+							+ I_T_Lock.COLUMNNAME_AD_Table_ID
+							+ ", " + I_T_Lock.COLUMNNAME_Record_ID
+							+ ", " + I_T_Lock.COLUMNNAME_Owner
+							+ ", " + I_T_Lock.COLUMNNAME_IsAutoCleanup
+							+ ", " + I_T_Lock.COLUMNNAME_IsAllowMultipleOwners
+							+ ")"
+							+ " SELECT ?, r.Record_ID, ?, ?, ?"
+							+ " FROM unnest(" + toSqlArrayOfIntegers(recordIdsToLock) + ") r(Record_ID)";
+					sqlParamsCurrent = new ArrayList<>();
+					sqlParamsCurrent.add(adTableId);
+					sqlParamsCurrent.add(lockOwner.getOwnerName());
+					sqlParamsCurrent.add(lockCommand.isAutoCleanup());
+					sqlParamsCurrent.add(isAllowMultipleOwners(lockCommand.getAllowAdditionalLocks()));
+
+					pstmt = connection.prepareStatement(sqlCurrent);
+					DB.setParameters(pstmt, sqlParamsCurrent);
+					countLocked = pstmt.executeUpdate();
+					DB.close(pstmt);
+					pstmt = null;
+				}
+
+				if (countLocked <= 0 && lockCommand.isFailIfNothingLocked())
+				{
+					throw new LockFailedException("Nothing locked for selection")
+							.setLockCommand(lockCommand);
+				}
+
+				connection.commit();
+				committed = true;
+				return countLocked;
+			}
+			catch (final SQLException e)
+			{
+				if (DBException.isUniqueContraintError(e) && !lockCommand.isFailIfAlreadyLocked())
+				{
+					return 0;
+				}
+
+				final String message = DBException.isUniqueContraintError(e) ? "Some of the records were already locked" : "Failed locking records of AD_Table_ID=" + adTableId;
+				throw new LockFailedException(message, e)
+						.setLockCommand(lockCommand)
+						.setSql(sqlCurrent, sqlParamsCurrent.toArray());
+			}
+			finally
+			{
+				DB.close(rs, pstmt);
+				endPersistentLocksTrx(connection, committed);
+			}
+		}
+	}
+
+	/**
+	 * Rolls back the transaction if it was not committed and switches our connection back to auto-commit. The transaction level advisory locks are released in both cases.
+	 */
+	private final void endPersistentLocksTrx(final Connection connection, final boolean committed)
+	{
+		try
+		{
+			if (!committed)
+			{
+				connection.rollback();
+			}
+			connection.setAutoCommit(true);
+		}
+		catch (final SQLException e)
+		{
+			// our session level advisory locks are still held, so we don't close the connection
+			logger.warn("Failed ending the T_Lock transaction of our advisory locks connection", e);
+		}
+	}
+
+	/**
+	 * Removes given owner lock from bookkeeping.
+	 *
+	 * @return true if the record is not locked by any other owner, i.e. the advisory lock shall be released
+	 */
+	private final boolean removeOwnerLock(final OwnerLock ownerLock)
+	{
+		final RecordLock recordLock = ownerLock.getRecordLock();
+		final ArrayKey recordKey = recordLock.getKey();
+		recordLock.removeOwnerLock(ownerLock);
+
+		final Set<ArrayKey> ownerRecordKeys = recordKeysByOwner.get(ownerLock.getLockOwner());
+		if (ownerRecordKeys != null)
+		{
+			ownerRecordKeys.remove(recordKey);
+			if (ownerRecordKeys.isEmpty())
+			{
+				recordKeysByOwner.remove(ownerLock.getLockOwner());
+			}
+		}
+
+		if (recordLock.isEmpty())
+		{
+			recordLocks.remove(recordKey);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Releases the advisory locks of given records, in one SQL statement.
+	 */
+	private final void releaseAdvisoryLocks(final int adTableId, final Collection<Integer> recordIds)
+	{
+		if (recordIds.isEmpty())
+		{
+			return;
+		}
+
+		final String sql = "SELECT pg_advisory_unlock(" + adTableId + ", r.Record_ID) FROM unnest(" + toSqlArrayOfIntegers(recordIds) + ") r(Record_ID)";
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = getConnection().prepareStatement(sql);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				if (!rs.getBoolean(1))
+				{
+					logger.warn("Advisory lock was not held: AD_Table_ID={}, Record_IDs={}", adTableId, recordIds);
+				}
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new UnlockFailedException("Failed releasing advisory locks of AD_Table_ID=" + adTableId, e)
+					.setSql(sql, null);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	/**
+	 * Removes given owner locks and releases the advisory locks of the records which are not locked anymore.
+	 *
+	 * @return how many owner locks were removed
+	 */
+	private final int unlockOwnerLocks(final Collection<OwnerLock> ownerLocks)
+	{
+		final Map<Integer, List<Integer>> recordIdsToReleaseByTableId = new HashMap<>();
+		for (final OwnerLock ownerLock : ownerLocks)
+		{
+			if (removeOwnerLock(ownerLock))
+			{
+				recordIdsToReleaseByTableId.computeIfAbsent(ownerLock.getAD_Table_ID(), k -> new ArrayList<>()).add(ownerLock.getRecordId());
+			}
+		}
+
+		for (final Map.Entry<Integer, List<Integer>> e : recordIdsToReleaseByTableId.entrySet())
+		{
+			releaseAdvisoryLocks(e.getKey(), e.getValue());
+		}
+
+		return ownerLocks.size();
+	}
+
+	/**
+	 * @return owner locks of given record which are matching the required owner
+	 */
+	private final List<OwnerLock> getOwnerLocks(final int adTableId, final int recordId, final LockOwner ownerRequired)
+	{
+		final RecordLock recordLock = recordLocks.get(createKey(adTableId, recordId));
+		if (recordLock == null)
+		{
+			return new ArrayList<>();
+		}
+
+		final List<OwnerLock> ownerLocks = new ArrayList<>();
+		for (final OwnerLock ownerLock : recordLock.getOwnerLocks())
+		{
+			if (isLockOwnerMatch(ownerRequired, ownerLock.getLockOwner()))
+			{
+				ownerLocks.add(ownerLock);
+			}
+		}
+		return ownerLocks;
+	}
+
+	@Override
+	protected boolean changeLockRecord(final ILockCommand lockCommand, final ITableRecordReference record)
+	{
+		final LockOwner ownerNew = lockCommand.getOwner();
+		assertValidLockOwner(ownerNew);
+		final LockOwner ownerCurrent = lockCommand.getParentLock().getOwner();
+
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			assertLockOwnerNotLost(lockCommand, ownerCurrent);
+
+			final List<OwnerLock> ownerLocks = getOwnerLocks(record.getAD_Table_ID(), record.getRecord_ID(), ownerCurrent);
+			if (ownerLocks.isEmpty())
+			{
+				// not one of our auto-cleanup locks
+				return persistentLocks.changeLockRecord(lockCommand, record);
+			}
+
+			//
+			// Our auto-cleanup lock becomes a non auto-cleanup lock: store it in T_Lock and release the advisory lock
+			if (!lockCommand.isAutoCleanup())
+			{
+				final List<Object> recordIdsSqlParams = new ArrayList<>();
+				recordIdsSqlParams.add(record.getRecord_ID());
+				final boolean changingOwnLocks = true;
+				if (insertPersistentLocks(lockCommand, record.getAD_Table_ID(), "SELECT ?::integer", recordIdsSqlParams, changingOwnLocks) <= 0)
+				{
+					return false;
+				}
+
+				unlockOwnerLocks(ownerLocks);
+				return true;
+			}
+
+			for (final OwnerLock ownerLock : ownerLocks)
+			{
+				final ArrayKey recordKey = ownerLock.getRecordLock().getKey();
+				final Set<ArrayKey> ownerRecordKeys = recordKeysByOwner.get(ownerLock.getLockOwner());
+				if (ownerRecordKeys != null)
+				{
+					ownerRecordKeys.remove(recordKey);
+					if (ownerRecordKeys.isEmpty())
+					{
+						recordKeysByOwner.remove(ownerLock.getLockOwner());
+					}
+				}
+
+				ownerLock.setLockOwner(ownerNew);
+				ownerLock.setAutoCleanup(lockCommand.isAutoCleanup());
+				ownerLock.setAllowMultipleOwners(isAllowMultipleOwners(lockCommand.getAllowAdditionalLocks()));
+				recordKeysByOwner.computeIfAbsent(ownerNew, k -> new LinkedHashSet<>()).add(recordKey);
+			}
+			return true;
+		}
+	}
+
+	@Override
+	protected int unlockBySelection(final IUnlockCommand unlockCommand)
+	{
+		final int adTableId = unlockCommand.getSelectionToUnlock_AD_Table_ID();
+		Check.assume(adTableId > 0, "adTableId > 0");
+
+		final int adPInstanceId = unlockCommand.getSelectionToUnlock_AD_PInstance_ID();
+		Check.assume(adPInstanceId > 0, "adPInstanceId > 0");
+
+		final LockOwner ownerRequired = unlockCommand.getOwner();
+		final String sql = "SELECT T_Selection_ID FROM T_Selection WHERE AD_PInstance_ID=?";
+
+		final boolean lockOwnerLost;
+		final int countUnlocked;
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			lockOwnerLost = removeLockOwnerLost(ownerRequired);
+			final List<OwnerLock> ownerLocksToUnlock = new ArrayList<>();
+
+			PreparedStatement pstmt = null;
+			ResultSet rs = null;
+			try
+			{
+				pstmt = getConnection().prepareStatement(sql);
+				DB.setParameters(pstmt, new Object[] { adPInstanceId });
+				rs = pstmt.executeQuery();
+				while (rs.next())
+				{
+					final int recordId = rs.getInt(1);
+					ownerLocksToUnlock.addAll(getOwnerLocks(adTableId, recordId, ownerRequired));
+				}
+			}
+			catch (final SQLException e)
+			{
+				throw new UnlockFailedException("Failed unlocking selection", e)
+						.setUnlockCommand(unlockCommand)
+						.setSql(sql, new Object[] { adPInstanceId });
+			}
+			finally
+			{
+				DB.close(rs, pstmt);
+			}
+
+			countUnlocked = unlockOwnerLocks(ownerLocksToUnlock) + persistentLocks.unlockBySelection(unlockCommand);
+		}
+
+		if (lockOwnerLost)
+		{
+			throw newLockOwnerLostException(unlockCommand);
+		}
+		return countUnlocked;
+	}
+
+	@Override
+	protected boolean unlockRecord(final IUnlockCommand unlockCommand, final ITableRecordReference record)
+	{
+		final boolean lockOwnerLost;
+		final boolean unlocked;
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			lockOwnerLost = removeLockOwnerLost(unlockCommand.getOwner());
+			final List<OwnerLock> ownerLocks = getOwnerLocks(record.getAD_Table_ID(), record.getRecord_ID(), unlockCommand.getOwner());
+			unlocked = unlockOwnerLocks(ownerLocks) > 0;
+		}
+
+		// an owner has either an auto-cleanup lock or a T_Lock record for a given record, so there is nothing else to unlock
+		final boolean unlockedPersistent = (!unlocked || unlockCommand.getOwner().isAnyOwner()) && persistentLocks.unlockRecord(unlockCommand, record);
+
+		if (lockOwnerLost)
+		{
+			throw newLockOwnerLostException(unlockCommand);
+		}
+		return unlocked || unlockedPersistent;
+	}
+
+	@Override
+	protected int unlockByOwner(final IUnlockCommand unlockCommand)
+	{
+		final LockOwner lockOwner = unlockCommand.getOwner();
+		assertValidLockOwner(lockOwner);
+
+		final boolean lockOwnerLost;
+		final int countUnlockedAutoCleanup;
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			lockOwnerLost = removeLockOwnerLost(lockOwner);
+
+			final List<OwnerLock> ownerLocksToUnlock = new ArrayList<>();
+			final Set<ArrayKey> recordKeys = recordKeysByOwner.get(lockOwner);
+			if (recordKeys != null)
+			{
+				for (final ArrayKey recordKey : recordKeys)
+				{
+					final OwnerLock ownerLock = recordLocks.get(recordKey).getOwnerLock(lockOwner);
+					if (ownerLock != null)
+					{
+						ownerLocksToUnlock.add(ownerLock);
+					}
+				}
+			}
+			countUnlockedAutoCleanup = unlockOwnerLocks(ownerLocksToUnlock);
+		}
+
+		// the same owner can also have T_Lock records (non auto-cleanup locks), so we always unlock both kinds
+		final int countUnlockedPersistent = persistentLocks.unlockByOwner(unlockCommand);
+
+		if (lockOwnerLost)
+		{
+			throw newLockOwnerLostException(unlockCommand);
+		}
+		return countUnlockedAutoCleanup + countUnlockedPersistent;
+	}
+
+	@Override
+	protected <T> IQuery<T> retrieveNotLockedQuery(final IQuery<T> query)
+	{
+		final TypedSqlQuery<T> sqlQuery = TypedSqlQuery.cast(query);
+
+		final String tableName = sqlQuery.getTableName();
+		final String keyColumnName = sqlQuery.getKeyColumnName();
+		final String keyColumnNameFQ = tableName + "." + keyColumnName;
+
+		return sqlQuery.addWhereClause(true, getNotLockedWhereClause(tableName, keyColumnNameFQ));
+	}
+
+	@Override
+	public final String getNotLockedWhereClause(final String tableName, final String joinColumnNameFQ)
+	{
+		Check.assumeNotEmpty(tableName, "tableName not empty");
+		final int adTableId = Services.get(IADTableDAO.class).retrieveTableId(tableName);
+		Check.assume(adTableId > 0, "Table {} exists", tableName);
+
+		Check.assumeNotEmpty(joinColumnNameFQ, "joinColumnNameFQ not empty");
+
+		return joinColumnNameFQ + " NOT IN (" + getAdvisoryLockedRecordIdsSql(adTableId) + ")"
+				+ " AND " + persistentLocks.getNotLockedWhereClause(tableName, joinColumnNameFQ);
+	}
+
+	@Override
+	public <T> IQueryFilter<T> getNotLockedFilter(final Class<T> modelClass)
+	{
+		final String tableName = InterfaceWrapperHelper.getTableName(modelClass);
+		final String keyColumnName = InterfaceWrapperHelper.getKeyColumnName(tableName);
+		final String joinColumnNameFQ = tableName + "." + keyColumnName;
+		return new TypedSqlQueryFilter<T>(getNotLockedWhereClause(tableName, joinColumnNameFQ));
+	}
+
+	@Override
+	public final <T> IQueryFilter<T> getLockedByFilter(final Class<T> modelClass, final ILock lock)
+	{
+		final String tableName = InterfaceWrapperHelper.getTableName(modelClass);
+		final String keyColumnName = InterfaceWrapperHelper.getKeyColumnName(tableName);
+		final String joinColumnNameFQ = tableName + "." + keyColumnName;
+		return new TypedSqlQueryFilter<T>(getLockedWhereClause(modelClass, joinColumnNameFQ, lock));
+	}
+
+	@Override
+	protected String getLockedWhereClauseAllowNullLock(final Class<?> modelClass, final String joinColumnNameFQ, final ILock lock)
+	{
+		Check.assumeNotNull(modelClass, "modelClass not null");
+		final int adTableId = InterfaceWrapperHelper.getTableId(modelClass);
+		Check.assume(adTableId > 0, "Table {} exists", modelClass);
+
+		Check.assumeNotEmpty(joinColumnNameFQ, "joinColumnNameFQ not empty");
+
+		final String persistentLockedWhereClause = persistentLocks.getLockedWhereClauseAllowNullLock(modelClass, joinColumnNameFQ, lock);
+
+		//
+		// Locked by anybody
+		if (lock == null || lock.getOwner().isAnyOwner())
+		{
+			return "(" + joinColumnNameFQ + " IN (" + getAdvisoryLockedRecordIdsSql(adTableId) + ") OR " + persistentLockedWhereClause + ")";
+		}
+
+		//
+		// Locked by given owner (only the owners of the auto-cleanup locks of this process are known)
+		final LockOwner lockOwner = lock.getOwner();
+		final List<Integer> recordIds = new ArrayList<>();
+		try (final CloseableReentrantLock mainLockAcquired = mainLock.open())
+		{
+			final Set<ArrayKey> recordKeys = recordKeysByOwner.get(lockOwner);
+			if (recordKeys != null)
+			{
+				for (final ArrayKey recordKey : recordKeys)
+				{
+					final RecordLock recordLock = recordLocks.get(recordKey);
+					if (recordLock.getAD_Table_ID() == adTableId)
+					{
+						recordIds.add(recordLock.getRecordId());
+					}
+				}
+			}
+		}
+
+		if (recordIds.isEmpty())
+		{
+			return persistentLockedWhereClause;
+		}
+		return "(" + joinColumnNameFQ + " IN (" + Joiner.on(",").join(recordIds) + ") OR " + persistentLockedWhereClause + ")";
+	}
+
+	@Override
+	public final ILock retrieveLockForOwner(final LockOwner lockOwner)
+	{
+		Check.assumeNotNull(lockOwner, "Lock owner shall not be null");
+		Check.assumeNotNull(lockOwner.isRealOwner(), "Lock owner shall be real owner but it was {}", lockOwner);
+
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			assertLockOwnerNotLost(null, lockOwner);
+
+			final Set<ArrayKey> recordKeys = recordKeysByOwner.get(lockOwner);
+			if (recordKeys != null && !recordKeys.isEmpty())
+			{
+				final ArrayKey firstRecordKey = recordKeys.iterator().next();
+				final boolean autoCleanup = recordLocks.get(firstRecordKey).getOwnerLock(lockOwner).isAutoCleanup();
+				return newLock(lockOwner, autoCleanup, recordKeys.size());
+			}
+		}
+
+		// Not one of our auto-cleanup locks => it's stored in T_Lock (fails if it's not there either).
+		// NOTE: we are creating our own lock, else it would be changed and unlocked by the SQL lock database only.
+		final ILock persistentLock = persistentLocks.retrieveLockForOwner(lockOwner);
+		return newLock(lockOwner, persistentLock.isAutoCleanup(), persistentLock.getCountLocked());
+	}
+
+	/**
+	 * @return how many records are advisory locked by this process (i.e. auto-cleanup locks)
+	 */
+	public int getLocksCount()
+	{
+		try (final CloseableReentrantLock lock = mainLock.open())
+		{
+			return recordLocks.size();
+		}
+	}
+
+	/**
+	 * A record which is locked by this process, for one or more owners.
+	 */
+	private static final class RecordLock
+	{
+		private final ArrayKey key;
+		private final int adTableId;
+		private final int recordId;
+		private final List<OwnerLock> ownerLocks = new ArrayList<>();
+
+		public RecordLock(final int adTableId, final int recordId)
+		{
+			super();
+			this.key = createKey(adTableId, recordId);
+			this.adTableId = adTableId;
+			this.recordId = recordId;
+		}
+
+		@Override
+		public String toString()
+		{
+			return ObjectUtils.toString(this);
+		}
+
+		public ArrayKey getKey()
+		{
+			return key;
+		}
+
+		public int getAD_Table_ID()
+		{
+			return adTableId;
+		}
+
+		public int getRecordId()
+		{
+			return recordId;
+		}
+
+		public List<OwnerLock> getOwnerLocks()
+		{
+			return ownerLocks;
+		}
+
+		public OwnerLock getOwnerLock(final LockOwner lockOwner)
+		{
+			for (final OwnerLock ownerLock : ownerLocks)
+			{
+				if (ownerLock.getLockOwner().equals(lockOwner))
+				{
+					return ownerLock;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Adds an owner lock, if allowed. Same rules as for <code>T_Lock</code>: a record can have multiple owners only if all of them are allowing it.
+		 *
+		 * @return owner lock or null if the record is already locked by an owner which does not allow it
+		 */
+		public OwnerLock addOwnerLock(final ILockCommand lockCommand)
+		{
+			final LockOwner lockOwner = lockCommand.getOwner();
+			final boolean allowMultipleOwners = lockCommand.getAllowAdditionalLocks() == ILockCommand.AllowAdditionalLocks.FOR_DIFFERENT_OWNERS;
+			if (!ownerLocks.isEmpty())
+			{
+				if (!allowMultipleOwners || getOwnerLock(lockOwner) != null)
+				{
+					return null;
+				}
+				for (final OwnerLock ownerLock : ownerLocks)
+				{
+					if (!ownerLock.isAllowMultipleOwners())
+					{
+						return null;
+					}
+				}
+			}
+
+			final OwnerLock ownerLock = new OwnerLock(this, lockOwner, lockCommand.isAutoCleanup(), allowMultipleOwners);
+			ownerLocks.add(ownerLock);
+			return ownerLock;
+		}
+
+		public void removeOwnerLock(final OwnerLock ownerLock)
+		{
+			ownerLocks.remove(ownerLock);
+		}
+
+		public boolean isEmpty()
+		{
+			return ownerLocks.isEmpty();
+		}
+	}
+
+	/**
+	 * The lock of one owner on a {@link RecordLock}.
+	 */
+	private static final class OwnerLock
+	{
+		private final RecordLock recordLock;
+		private LockOwner lockOwner;
+		private boolean autoCleanup;
+		private boolean allowMultipleOwners;
+
+		public OwnerLock(final RecordLock recordLock, final LockOwner lockOwner, final boolean autoCleanup, final boolean allowMultipleOwners)
+		{
+			super();
+			this.recordLock = recordLock;
+			this.lockOwner = lockOwner;
+			this.autoCleanup = autoCleanup;
+			this.allowMultipleOwners = allowMultipleOwners;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "OwnerLock[" + lockOwner + ", autoCleanup=" + autoCleanup + ", allowMultipleOwners=" + allowMultipleOwners + "]";
+		}
+
+		public RecordLock getRecordLock()
+		{
+			return recordLock;
+		}
+
+		public int getAD_Table_ID()
+		{
+			return recordLock.getAD_Table_ID();
+		}
+
+		public int getRecordId()
+		{
+			return recordLock.getRecordId();
+		}
+
+		public LockOwner getLockOwner()
+		{
+			return lockOwner;
+		}
+
+		public void setLockOwner(final LockOwner lockOwner)
+		{
+			this.lockOwner = lockOwner;
+		}
+
+		public boolean isAutoCleanup()
+		{
+			return autoCleanup;
+		}
+
+		public void setAutoCleanup(final boolean autoCleanup)
+		{
+			this.autoCleanup = autoCleanup;
+		}
+
+		public boolean isAllowMultipleOwners()
+		{
+			return allowMultipleOwners;
+		}
+
+		public void setAllowMultipleOwners(final boolean allowMultipleOwners)
+		{
+			this.allowMultipleOwners = allowMultipleOwners;
+		}
+	}
+}
@@ -150,13 +150,11 @@ public class SqlLockDatabase extends AbstractLockDatabase
 	{
 		Check.assume(adTableId > 0, "adTableId > 0");
 		sql.append(" AND ").append(I_T_Lock.COLUMNNAME_AD_Table_ID).append("=").append(toSqlParam(adTableId, sqlParams));
-		sqlParams.add(adTableId);
 
 		// Record_ID shall be in our selection
 		Check.assume(adPInstanceId > 0, "adPInstanceId > 0");
 		sql.append(" AND ").append(I_T_Lock.COLUMNNAME_Record_ID)
 				.append(" IN (SELECT T_Selection_ID FROM T_Selection WHERE AD_PInstance_ID=").append(toSqlParam(adPInstanceId, sqlParams)).append(")");
-		sqlParams.add(adPInstanceId);
 	}
 
 	@Override
@@ -0,0 +1,112 @@
+package de.metas.lock.api.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.util.lang.impl.TableRecordReference;
+import org.compiere.util.DB;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metas.lock.api.ILock;
+import de.metas.lock.api.LockOwner;
+import de.metas.lock.exceptions.LockFailedException;
+import de.metas.lock.exceptions.UnlockFailedException;
+import de.metas.lock.spi.ILockDatabase;
+import de.metas.lock.spi.impl.AdvisoryLockDatabase;
+
+/**
+ * Runs the {@link LockDatabaseTestBase} scenarios against {@link AdvisoryLockDatabase}, plus what happens if its dedicated connection is lost.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class AdvisoryLockDatabaseTest extends LockDatabaseTestBase
+{
+	@Override
+	protected ILockDatabase createLockDatabase()
+	{
+		return new AdvisoryLockDatabase();
+	}
+
+	/**
+	 * The connection which is holding the advisory locks is terminated: the lock holder shall be told, instead of silently losing its locks.
+	 */
+	@Test
+	public void test_ConnectionLost_LockOwnerFails()
+	{
+		final AdvisoryLockDatabase advisoryDb1 = (AdvisoryLockDatabase)db1;
+		final int recordId1 = recordIds.get(0);
+		final int recordId2 = recordIds.get(1);
+
+		final LockOwner ownerA = newOwner("A");
+		newLockCommand(db1, ownerA, true)
+				.addRecord(TableRecordReference.of(adTableId, recordId1))
+				.acquire();
+		Assert.assertEquals(1, advisoryDb1.getLocksCount());
+
+		// terminate the database session which is holding the advisory lock
+		final int countTerminated = DB.getSQLValueEx(ITrx.TRXNAME_None,
+				"SELECT count(pg_terminate_backend(pid)) FROM pg_locks"
+						+ " WHERE locktype='advisory' AND classid=?::oid AND objid=?::oid AND objsubid=2 AND granted",
+				adTableId, recordId1);
+		Assert.assertEquals(1, countTerminated);
+
+		advisoryDb1.keepAlive();
+		Assert.assertEquals(0, advisoryDb1.getLocksCount());
+		Assert.assertFalse(db2.isLocked(adTableId, recordId1, ILock.NULL));
+
+		// the owner cannot continue as if it still had its records locked
+		try
+		{
+			newLockCommand(db1, ownerA, true)
+					.addRecord(TableRecordReference.of(adTableId, recordId2))
+					.acquire();
+			Assert.fail("Lock owner shall fail, because its locks were lost");
+		}
+		catch (final LockFailedException e)
+		{
+			// expected
+		}
+		try
+		{
+			unlock(db1, ownerA);
+			Assert.fail("Lock owner shall fail, because its locks were lost");
+		}
+		catch (final UnlockFailedException e)
+		{
+			// expected
+		}
+
+		// it's told only once
+		Assert.assertEquals(0, unlock(db1, ownerA));
+
+		// other owners are using a new connection
+		final LockOwner ownerB = newOwner("B");
+		newLockCommand(db1, ownerB, true)
+				.addRecord(TableRecordReference.of(adTableId, recordId1))
+				.acquire();
+		Assert.assertTrue(db2.isLocked(adTableId, recordId1, ILock.NULL));
+		Assert.assertEquals(1, unlock(db1, ownerB));
+	}
+}
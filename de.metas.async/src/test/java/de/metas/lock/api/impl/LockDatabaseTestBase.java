@@ -0,0 +1,281 @@
+package de.metas.lock.api.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.ad.table.api.IADTableDAO;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.util.Services;
+import org.adempiere.util.lang.impl.TableRecordReference;
+import org.compiere.Adempiere;
+import org.compiere.model.I_AD_Table;
+import org.compiere.util.DB;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.metas.lock.api.ILock;
+import de.metas.lock.api.LockOwner;
+import de.metas.lock.exceptions.LockFailedException;
+import de.metas.lock.spi.ILockDatabase;
+import de.metas.lock.spi.impl.AdvisoryLockDatabase;
+import de.metas.lock.spi.impl.SqlLockDatabase;
+
+/**
+ * Lock scenarios which are run against each {@link ILockDatabase} implementation, see {@link SqlLockDatabaseTest} and {@link AdvisoryLockDatabaseTest}.
+ * <p>
+ * Each test uses two lock database instances. For {@link AdvisoryLockDatabase} they have different connections and lock owner bookkeeping, so the second instance behaves like another process.
+ * The locked records are <code>AD_Table</code> records.
+ * <p>
+ * Needs a PostgreSQL database (configured like for the server); if there is none, the tests are skipped.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public abstract class LockDatabaseTestBase
+{
+	@BeforeClass
+	public static void startupDatabase()
+	{
+		boolean databaseAvailable;
+		try
+		{
+			databaseAvailable = Adempiere.startupEnvironment(false);
+		}
+		catch (final Exception e)
+		{
+			databaseAvailable = false;
+		}
+		Assume.assumeTrue("Skip because there is no database", databaseAvailable);
+	}
+
+	protected int adTableId;
+	protected List<Integer> recordIds;
+	protected ILockDatabase db1;
+	protected ILockDatabase db2;
+	/** owners used by current test; unlocked after the test, so a failed test does not leave locks behind */
+	private final List<LockOwner> owners = new ArrayList<>();
+
+	/**
+	 * @return new lock database instance, which behaves like it's used by another process
+	 */
+	protected abstract ILockDatabase createLockDatabase();
+
+	@Before
+	public final void init()
+	{
+		adTableId = Services.get(IADTableDAO.class).retrieveTableId(I_AD_Table.Table_Name);
+		recordIds = new ArrayList<>();
+		for (int offset = 0; offset < 3; offset++)
+		{
+			recordIds.add(DB.getSQLValueEx(ITrx.TRXNAME_None, "SELECT AD_Table_ID FROM AD_Table ORDER BY AD_Table_ID LIMIT 1 OFFSET ?", offset));
+		}
+
+		db1 = createLockDatabase();
+		db2 = createLockDatabase();
+	}
+
+	@After
+	public final void unlockAll()
+	{
+		for (final LockOwner owner : owners)
+		{
+			for (final ILockDatabase lockDatabase : new ILockDatabase[] { db1, db2 })
+			{
+				try
+				{
+					unlock(lockDatabase, owner);
+				}
+				catch (final Exception e)
+				{
+					// already reported by the test
+				}
+			}
+		}
+		owners.clear();
+	}
+
+	protected final LockOwner newOwner(final String ownerName)
+	{
+		final LockOwner owner = LockOwner.newOwner(ownerName);
+		owners.add(owner);
+		return owner;
+	}
+
+	@Test
+	public void test_AutoCleanupLock_ExcludesOtherProcess()
+	{
+		final int recordId1 = recordIds.get(0);
+		final int recordId2 = recordIds.get(1);
+
+		final LockOwner ownerA = newOwner("A");
+		final ILock lockA = newLockCommand(db1, ownerA, true)
+				.addRecord(TableRecordReference.of(adTableId, recordId1))
+				.addRecord(TableRecordReference.of(adTableId, recordId2))
+				.acquire();
+		Assert.assertEquals(2, lockA.getCountLocked());
+
+		Assert.assertTrue(db1.isLocked(adTableId, recordId1, lockA));
+		Assert.assertTrue(db2.isLocked(adTableId, recordId1, ILock.NULL));
+		Assert.assertEquals(0, countNotLocked(db2, recordId1, recordId2));
+
+		try
+		{
+			newLockCommand(db2, newOwner("B"), true)
+					.addRecord(TableRecordReference.of(adTableId, recordId1))
+					.acquire();
+			Assert.fail("Record shall be already locked");
+		}
+		catch (final LockFailedException e)
+		{
+			// expected
+		}
+
+		Assert.assertEquals(2, unlock(db1, ownerA));
+		Assert.assertFalse(db2.isLocked(adTableId, recordId1, ILock.NULL));
+		Assert.assertEquals(2, countNotLocked(db2, recordId1, recordId2));
+	}
+
+	@Test
+	public void test_SplitToNonAutoCleanupLock_UsableByOtherProcess()
+	{
+		final int recordId1 = recordIds.get(0);
+		final int recordId2 = recordIds.get(1);
+
+		final LockOwner ownerA = newOwner("A");
+		final ILock lockA = newLockCommand(db1, ownerA, true)
+				.addRecord(TableRecordReference.of(adTableId, recordId1))
+				.addRecord(TableRecordReference.of(adTableId, recordId2))
+				.acquire();
+
+		// e.g. the elements of an enqueued workpackage
+		final LockOwner ownerC = newOwner("C");
+		final ILock lockC = lockA.split()
+				.setOwner(ownerC)
+				.setAutoCleanup(false)
+				.addRecord(TableRecordReference.of(adTableId, recordId1))
+				.acquire();
+		Assert.assertEquals(1, lockC.getCountLocked());
+		Assert.assertEquals(1, lockA.getCountLocked());
+
+		// e.g. the workpackage is processed by another process
+		final ILock lockC2 = db2.retrieveLockForOwner(ownerC);
+		Assert.assertEquals(1, lockC2.getCountLocked());
+		Assert.assertFalse(lockC2.isAutoCleanup());
+		Assert.assertTrue(db2.isLocked(adTableId, recordId1, lockC2));
+		Assert.assertFalse(db2.isLocked(adTableId, recordId2, lockC2));
+		Assert.assertEquals(1, DB.getSQLValueEx(ITrx.TRXNAME_None,
+				"SELECT count(1) FROM AD_Table WHERE " + db2.getLockedWhereClause(I_AD_Table.class, "AD_Table.AD_Table_ID", lockC2)));
+		Assert.assertEquals(0, countNotLocked(db2, recordId1, recordId2));
+
+		Assert.assertEquals(1, unlock(db2, ownerC));
+		Assert.assertFalse(db1.isLocked(adTableId, recordId1, ILock.NULL));
+		Assert.assertTrue(db1.isLocked(adTableId, recordId2, lockA));
+
+		Assert.assertEquals(1, unlock(db1, ownerA));
+		Assert.assertEquals(2, countNotLocked(db2, recordId1, recordId2));
+	}
+
+	@Test
+	public void test_NonAutoCleanupLock_ExcludesAutoCleanupLock()
+	{
+		final int recordId3 = recordIds.get(2);
+
+		final LockOwner ownerD = newOwner("D");
+		newLockCommand(db1, ownerD, false)
+				.addRecord(TableRecordReference.of(adTableId, recordId3))
+				.acquire();
+
+		Assert.assertTrue(db2.isLocked(adTableId, recordId3, ILock.NULL));
+		try
+		{
+			newLockCommand(db2, newOwner("E"), true)
+					.addRecord(TableRecordReference.of(adTableId, recordId3))
+					.acquire();
+			Assert.fail("Record shall be already locked");
+		}
+		catch (final LockFailedException e)
+		{
+			// expected
+		}
+
+		Assert.assertEquals(1, unlock(db2, ownerD));
+		Assert.assertFalse(db1.isLocked(adTableId, recordId3, ILock.NULL));
+	}
+
+	/**
+	 * An owner which has both kinds of locks: unlocking by owner releases all of them.
+	 */
+	@Test
+	public void test_UnlockByOwner_AutoCleanupAndNonAutoCleanupLocks()
+	{
+		final int recordId1 = recordIds.get(0);
+		final int recordId2 = recordIds.get(1);
+
+		final LockOwner ownerF = newOwner("F");
+		newLockCommand(db1, ownerF, true)
+				.addRecord(TableRecordReference.of(adTableId, recordId1))
+				.acquire();
+		newLockCommand(db1, ownerF, false)
+				.addRecord(TableRecordReference.of(adTableId, recordId2))
+				.acquire();
+		Assert.assertEquals(0, countNotLocked(db2, recordId1, recordId2));
+
+		Assert.assertEquals(2, unlock(db1, ownerF));
+		Assert.assertFalse(db2.isLocked(adTableId, recordId1, ILock.NULL));
+		Assert.assertFalse(db2.isLocked(adTableId, recordId2, ILock.NULL));
+		Assert.assertEquals(2, countNotLocked(db2, recordId1, recordId2));
+	}
+
+	protected static final LockCommand newLockCommand(final ILockDatabase lockDatabase, final LockOwner owner, final boolean autoCleanup)
+	{
+		final LockCommand lockCommand = new LockCommand(lockDatabase);
+		lockCommand.setOwner(owner)
+				.setAutoCleanup(autoCleanup)
+				.setFailIfAlreadyLocked(true);
+		return lockCommand;
+	}
+
+	protected static final int unlock(final ILockDatabase lockDatabase, final LockOwner owner)
+	{
+		return new UnlockCommand(lockDatabase)
+				.setOwner(owner)
+				.release();
+	}
+
+	protected final int countNotLocked(final ILockDatabase lockDatabase, final int... recordIds)
+	{
+		final StringBuilder sql = new StringBuilder("SELECT count(1) FROM AD_Table WHERE AD_Table_ID IN (");
+		for (int i = 0; i < recordIds.length; i++)
+		{
+			sql.append(i > 0 ? "," : "").append(recordIds[i]);
+		}
+		sql.append(") AND ").append(lockDatabase.getNotLockedWhereClause(I_AD_Table.Table_Name, "AD_Table.AD_Table_ID"));
+		return DB.getSQLValueEx(ITrx.TRXNAME_None, sql.toString());
+	}
+}
@@ -23,6 +23,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PipedReader;
 import java.io.PipedWriter;
+import java.io.PushbackReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import org.slf4j.Logger;
 import de.metas.logging.LogManager;
@@ -43,8 +46,8 @@ public final class OFX1ToXML extends InputStream implements Runnable
 	private PipedReader m_reader = new PipedReader();
 	/**	Writer object					*/
 	private BufferedWriter m_writer;
-	/**	Temp String					*/
-	private String m_ofx = "";
+	/**	SGML body which is still to be converted	*/
+	private PushbackReader m_ofx;
 
 	/**	Logger			*/
 	private Logger	log = LogManager.getLogger(getClass());
@@ -72,6 +75,9 @@ public final class OFX1ToXML extends InputStream implements Runnable
 	
 	/**
 	 * Method init
+	 * Converts the OFX header synchronously. The SGML body is converted by a
+	 * separate thread while it is being read, so the OFX data is never
+	 * buffered as a whole.
 	 * @param br BufferedReader
 	 * @throws IOException
 	 */
@@ -82,7 +88,7 @@ public final class OFX1ToXML extends InputStream implements Runnable
 
 		write("<?xml version=\"1.0\"?>\n");
 		write("<?OFX ");
-		while(line.indexOf('<') != 0)
+		while(line != null && line.indexOf('<') != 0)
 		{
 			if (line.length() > 0) 
 			{
@@ -92,75 +98,107 @@ public final class OFX1ToXML extends InputStream implements Runnable
 		}
 		write("?>\n");
 
-		while(line != null)
+		if (line == null)
 		{
-			m_ofx += line + "\n";
-			line = br.readLine();
+			m_ofx = new PushbackReader(br);
+		}
+		else
+		{
+			// push back the first body line, so that run() can read the body as one stream
+			final String firstLine = line + "\n";
+			m_ofx = new PushbackReader(br, firstLine.length());
+			m_ofx.unread(firstLine.toCharArray());
 		}
-		br.close();
 
-		new Thread(this).start();
-	}	//i	nit
+		final Thread converter = new Thread(this, "OFX1ToXML");
+		converter.setDaemon(true);
+		converter.start();
+	}	//	init
 
 	/**
 	 * Method run
+	 * Reads the SGML body tag by tag and writes XML.
+	 * OFX 1 aggregates are always closed explicitly, while elements (tags followed by data) usually are not.
+	 * So an element is closed right after its data; closing an aggregate also closes any element
+	 * without data which is still open in it.
+	 * NOTE: OFX 1 does not allow elements without data. The old converter closed such an element
+	 * right away, if its close tag did not appear anywhere in the rest of the body. Here it is closed
+	 * together with its aggregate, because we don't look ahead.
 	 * @see java.lang.Runnable#run()
 	 */
 	public void run()
 	{
-		boolean addCloseTag;
-		int tag2Start;
-		int tagStart;
-		int tagEnd;
-		String tag;
-		String line = "";
+		final Deque<String> openTags = new ArrayDeque<>();
+		final StringBuilder text = new StringBuilder();
+		final StringBuilder tagBuffer = new StringBuilder();
+		String lastTag = null;
+		String closedElement = null;
 
 		try
 		{
-			while(!m_ofx.equals(""))
+			int c;
+			int lastChar = -1;
+			while ((c = readChar()) != -1)
 			{
-				addCloseTag = false;
-				tagStart = m_ofx.indexOf('<');
-				if (tagStart == -1) 
+				lastChar = c;
+				if (c != '<')
 				{
-					break;
+					text.append((char)c);
+					continue;
 				}
-				tagEnd = m_ofx.indexOf('>');
-				if (tagEnd <= tagStart + 1) 
+
+				//	Text between the previous tag and this one
+				closedElement = writeText(text, lastTag, openTags);
+				text.setLength(0);
+				lastTag = null;
+
+				tagBuffer.setLength(0);
+				while ((c = readChar()) != -1 && c != '>')
 				{
-					throw new IOException("PARSE ERROR: Invalid tag");
+					tagBuffer.append((char)c);
 				}
-				tag = m_ofx.substring(tagStart + 1, tagEnd);
-				if (tag.indexOf(' ') != -1) 
+				final String tag = tagBuffer.toString();
+				if (c == -1 || tag.isEmpty() || tag.indexOf(' ') != -1)
 				{
 					throw new IOException("PARSE ERROR: Invalid tag");
 				}
-				if (!tag.startsWith("/")) 
-				{
-					addCloseTag = (m_ofx.indexOf("</"+tag+">") == -1);
-				}
-				tag2Start = m_ofx.indexOf("<", tagEnd);
-				if (m_ofx.indexOf("\n", tagEnd) < tag2Start) 
-				{
-					tag2Start = m_ofx.indexOf("\n", tagEnd);
-				}
-				if (tag2Start == -1) 
+
+				if (!tag.startsWith("/"))
 				{
-					tag2Start = m_ofx.length();
+					lastTag = tag;
 				}
-				
-				String data=m_ofx.substring(tagEnd+1, tag2Start);
-				line = m_ofx.substring(0, tagEnd+1)+xmlEncodeTextAsPCDATA(data);
-				
-				m_ofx = m_ofx.substring(tag2Start);
-				if (addCloseTag) 
+				else
 				{
-					line += "</" + tag + ">";
+					final String name = tag.substring(1);
+					if (name.equals(closedElement))
+					{
+						//	element was already closed after its data
+						continue;
+					}
+					if (openTags.contains(name))
+					{
+						String openTag;
+						while (!(openTag = openTags.pop()).equals(name))
+						{
+							write("</" + openTag + ">");
+						}
+					}
 				}
-				write(line);
+				write("<" + tag + ">");
+			}
+
+			if (lastChar != '\n')
+			{
+				//	the body was read line by line, so it always ended with a line break
+				text.append('\n');
+			}
+			writeText(text, lastTag, openTags);
+			while (!openTags.isEmpty())
+			{
+				write("</" + openTags.pop() + ">");
 			}
-			write(m_ofx);
 			m_writer.close();
+			m_ofx.close();
 		}
 		catch (IOException e)
 		{
@@ -168,6 +206,61 @@ public final class OFX1ToXML extends InputStream implements Runnable
 		}
 	}	//	run
 
+	/**
+	 * Reads the next character of the SGML body. Line breaks (<code>\r\n</code>, <code>\r</code> or <code>\n</code>) are returned as <code>\n</code>,
+	 * like the body was read line by line before.
+	 * @return character or -1 at the end of the body
+	 * @throws IOException
+	 */
+	private int readChar() throws IOException
+	{
+		final int c = m_ofx.read();
+		if (c != '\r')
+		{
+			return c;
+		}
+
+		final int next = m_ofx.read();
+		if (next != '\n' && next != -1)
+		{
+			m_ofx.unread(next);
+		}
+		return '\n';
+	}	//	readChar
+
+	/**
+	 * Writes the text that followed a tag.
+	 * The part up to the first line break is the data of the preceding opening tag (if any).
+	 * @param text text between two tags
+	 * @param lastTag opening tag preceding the text or <code>null</code>
+	 * @param openTags aggregates (and elements without data) which are currently open
+	 * @return name of the element which was closed after its data or <code>null</code>
+	 * @throws IOException
+	 */
+	private String writeText(final StringBuilder text, final String lastTag, final Deque<String> openTags) throws IOException
+	{
+		final int lineEnd = text.indexOf("\n");
+		final String data = lineEnd == -1 ? text.toString() : text.substring(0, lineEnd);
+		final String rest = lineEnd == -1 ? "" : text.substring(lineEnd);
+
+		String closedElement = null;
+		write(xmlEncodeTextAsPCDATA(data));
+		if (lastTag != null)
+		{
+			if (data.trim().isEmpty())
+			{
+				openTags.push(lastTag);
+			}
+			else
+			{
+				write("</" + lastTag + ">");
+				closedElement = lastTag;
+			}
+		}
+		write(xmlEncodeTextAsPCDATA(rest));
+		return closedElement;
+	}	//	writeText
+
 	/**
 	 * Method write
 	 * @param str String
@@ -16,10 +16,22 @@
  *****************************************************************************/
 package org.compiere.model;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Services;
 import org.compiere.impexp.BankStatementLoaderInterface;
+import org.compiere.util.DB;
+
+import com.google.common.base.Joiner;
  
  
 /**
@@ -70,6 +82,19 @@ import org.compiere.impexp.BankStatementLoaderInterface;
 	/**	File name from process parameter							*/
 	private String localFileName = null;
 
+	/**
+	 * Number of statement lines which are inserted into I_BankStatement with one JDBC batch.
+	 * A value of 1 or less saves each line on its own, as I_BankStatement model.
+	 */
+	public static final String SYSCONFIG_SaveLineBatchSize = "org.compiere.model.MBankStatementLoader.SaveLineBatchSize";
+	private static final int DEFAULT_SaveLineBatchSize = 500;
+
+	/**	Configured batch size; loaded on first use					*/
+	private Integer saveLineBatchSize = null;
+
+	/**	Statement lines which are not yet inserted	*/
+	private final transient List<X_I_BankStatement> pendingLines = new ArrayList<>();
+
 	
 	
 	/**
@@ -182,6 +207,11 @@ import org.compiere.impexp.BankStatementLoaderInterface;
 			errorDescription = m_loader.getLastErrorDescription();
 			return result;
 		}
+		//	Insert the lines of the last, incomplete batch
+		if (!savePendingLines())
+		{
+			return result;
+		}
 		result = true;
 		return result;
 	}	//	loadLines
@@ -191,73 +221,85 @@ import org.compiere.impexp.BankStatementLoaderInterface;
 	 *	@return Statement line was loaded successfully
 	 *	This method is called by the BankStatementLoadere whenever a complete 
 	 *	statement line has been read.
+	 *	Unless the batch size is configured to 1 or less, the line is only inserted
+	 *	together with the next lines (see {@link #SYSCONFIG_SaveLineBatchSize}).
 	 */
 	public boolean saveLine()
 	{
-		log.info( "MBankStatementLoader.importLine");
-		boolean result = false;
-		X_I_BankStatement imp = new X_I_BankStatement(getCtx(), 0, get_TrxName());
 		if (m_loader == null)
 		{
 			errorMessage = "LoadError";
-			return result;
+			return false;
+		}
+
+		final X_I_BankStatement imp = createLine();
+		log.debug("MBankStatementLoader.importLine {}", imp);
+
+		if (getSaveLineBatchSize() <= 1)
+		{
+			return saveLine(imp);
 		}
+
+		pendingLines.add(imp);
+		if (pendingLines.size() >= getSaveLineBatchSize())
+		{
+			return savePendingLines();
+		}
+		return true;
+	}	//	importLine
+
+	/**
+	 * @return new (not saved) I_BankStatement with the loader's current statement line
+	 */
+	private X_I_BankStatement createLine()
+	{
+		final X_I_BankStatement imp = new X_I_BankStatement(getCtx(), 0, get_TrxName());
+
 		//	Bank Account fields
-		log.info( "MBankStatementLoader.importLine Bank Account=" + m_loader.getBankAccountNo());
 		imp.setBankAccountNo(m_loader.getBankAccountNo());
-		log.info( "MBankStatementLoader.importLine Routing No=" + m_loader.getRoutingNo());
 		imp.setRoutingNo(m_loader.getRoutingNo());
-		
+
 		//	Statement fields
-		log.info( "MBankStatementLoader.importLine EFT Statement Reference No=" + m_loader.getStatementReference());
 		imp.setEftStatementReference(m_loader.getStatementReference());
-		log.info( "MBankStatementLoader.importLine EFT Statement Date=" + m_loader.getStatementDate());
 		imp.setEftStatementDate(m_loader.getStatementDate());
-        log.info( "MBankStatementLoader.importLine Statement Date=" + m_loader.getStatementDate());
-        imp.setStatementDate(m_loader.getStatementDate());
-		
+		imp.setStatementDate(m_loader.getStatementDate());
+
 		//	Statement Line fields
-		log.info( "MBankStatementLoader.importLine EFT Transaction ID=" + m_loader.getTrxID());
 		imp.setEftTrxID(m_loader.getTrxID());
-		log.info( "MBankStatementLoader.importLine Statement Line Date=" + m_loader.getStatementLineDate());
-		imp.setStatementLineDate(m_loader.getStatementLineDate());
 		imp.setStatementLineDate(m_loader.getStatementLineDate());
 		imp.setEftStatementLineDate(m_loader.getStatementLineDate());
-		log.info( "MBankStatementLoader.importLine Valuta Date=" + m_loader.getValutaDate());
 		imp.setValutaDate(m_loader.getValutaDate());
 		imp.setEftValutaDate(m_loader.getValutaDate());
-		log.info( "MBankStatementLoader.importLine Statement Amount=" + m_loader.getStmtAmt());
 		imp.setStmtAmt(m_loader.getStmtAmt());
 		imp.setEftAmt(m_loader.getStmtAmt());
-		log.info( "MBankStatementLoader.importLine Transaction Amount=" + m_loader.getTrxAmt());
 		imp.setTrxAmt(m_loader.getTrxAmt());
-		log.info( "MBankStatementLoader.importLine Interest Amount=" + m_loader.getInterestAmt());
 		imp.setInterestAmt(m_loader.getInterestAmt());
-		log.info( "MBankStatementLoader.importLine Reference No=" + m_loader.getReference());
 		imp.setReferenceNo(m_loader.getReference());
 		imp.setEftReference(m_loader.getReference());
-		log.info( "MBankStatementLoader.importLine Check No=" + m_loader.getCheckNo());
 		imp.setEftCheckNo(m_loader.getCheckNo());
-		log.info( "MBankStatementLoader.importLine Memo=" + m_loader.getMemo());
 		imp.setMemo(m_loader.getMemo());
 		imp.setEftMemo(m_loader.getMemo());
-		log.info( "MBankStatementLoader.importLine Payee Name=" + m_loader.getPayeeName());
 		imp.setEftPayee(m_loader.getPayeeName());
-		log.info( "MBankStatementLoader.importLine Payee Account No=" + m_loader.getPayeeAccountNo());
 		imp.setEftPayeeAccount(m_loader.getPayeeAccountNo());
-		log.info( "MBankStatementLoader.importLine EFT Transaction Type=" + m_loader.getTrxType());
 		imp.setEftTrxType(m_loader.getTrxType());
-		log.info( "MBankStatementLoader.importLine Currency=" + m_loader.getCurrency());
 		imp.setEftCurrency(m_loader.getCurrency());
 		imp.setISO_Code(m_loader.getCurrency());
-		log.info( "MBankStatementLoader.importLine Charge Name=" + m_loader.getChargeName());
 		imp.setChargeName(m_loader.getChargeName());
-		log.info( "MBankStatementLoader.importLine Charge Amount=" + m_loader.getChargeAmt());
 		imp.setChargeAmt(m_loader.getChargeAmt());
 		imp.setProcessed(false);
 		imp.setI_IsImported(false);
-		
-		result = imp.save();
+
+		return imp;
+	}	//	createLine
+
+	/**
+	 * 	Save one statement line
+	 *	@param imp statement line
+	 *	@return true if saved
+	 */
+	private boolean saveLine(final X_I_BankStatement imp)
+	{
+		final boolean result = imp.save();
 		if (result)
 		{
 			importCount ++;
@@ -266,9 +308,121 @@ import org.compiere.impexp.BankStatementLoaderInterface;
 		{
 			errorMessage = "LoadError";
 		}
-		imp = null;
 		return result;
-	}	//	importLine
+	}	//	saveLine
+
+	/**
+	 * 	Insert all pending statement lines with JDBC batches.
+	 *	The lines are created as models, so they have the same standard values (client, org, created/updated, active) as when they are saved,
+	 *	and they are inserted like PO.saveNew() does, i.e. without their <code>null</code> columns, so that the database defaults apply.
+	 *	Lines with the same not null columns are inserted with the same statement.
+	 *	NOTE: unlike when saving them, no model validators are fired.
+	 *	@return true if all lines were inserted
+	 */
+	private boolean savePendingLines()
+	{
+		if (pendingLines.isEmpty())
+		{
+			return true;
+		}
+
+		final POInfo poInfo = POInfo.getPOInfo(I_I_BankStatement.Table_Name);
+		final Map<List<String>, List<X_I_BankStatement>> linesByColumnNames = new LinkedHashMap<>();
+		for (final X_I_BankStatement imp : pendingLines)
+		{
+			imp.set_ValueNoCheck(I_I_BankStatement.COLUMNNAME_I_BankStatement_ID, DB.getNextID(imp.getAD_Client_ID(), I_I_BankStatement.Table_Name, get_TrxName()));
+
+			final List<String> columnNames = new ArrayList<>();
+			for (int i = 0; i < poInfo.getColumnCount(); i++)
+			{
+				if (!poInfo.isVirtualColumn(i) && getInsertValue(imp, i) != null)
+				{
+					columnNames.add(poInfo.getColumnName(i));
+				}
+			}
+
+			List<X_I_BankStatement> lines = linesByColumnNames.get(columnNames);
+			if (lines == null)
+			{
+				lines = new ArrayList<>();
+				linesByColumnNames.put(columnNames, lines);
+			}
+			lines.add(imp);
+		}
+
+		String sql = null;
+		try
+		{
+			for (final Map.Entry<List<String>, List<X_I_BankStatement>> columnNamesAndLines : linesByColumnNames.entrySet())
+			{
+				final List<String> columnNames = columnNamesAndLines.getKey();
+				sql = "INSERT INTO " + I_I_BankStatement.Table_Name + " (" + Joiner.on(", ").join(columnNames) + ")"
+						+ " VALUES (" + Joiner.on(", ").join(Collections.nCopies(columnNames.size(), "?")) + ")";
+				insertLines(sql, columnNames, columnNamesAndLines.getValue());
+			}
+
+			importCount += pendingLines.size();
+			pendingLines.clear();
+			return true;
+		}
+		catch (final SQLException e)
+		{
+			log.error(sql, e);
+			errorMessage = "LoadError";
+			errorDescription = e.getLocalizedMessage();
+			return false;
+		}
+	}	//	savePendingLines
+
+	/**
+	 * 	Insert the given statement lines with one JDBC batch
+	 */
+	private void insertLines(final String sql, final List<String> columnNames, final List<X_I_BankStatement> lines) throws SQLException
+	{
+		PreparedStatement pstmt = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, get_TrxName());
+			for (final X_I_BankStatement imp : lines)
+			{
+				final List<Object> sqlParams = new ArrayList<>(columnNames.size());
+				for (final String columnName : columnNames)
+				{
+					sqlParams.add(getInsertValue(imp, imp.get_ColumnIndex(columnName)));
+				}
+
+				DB.setParameters(pstmt, sqlParams);
+				pstmt.addBatch();
+			}
+			pstmt.executeBatch();
+		}
+		finally
+		{
+			DB.close(pstmt);
+			pstmt = null;
+		}
+	}	//	insertLines
+
+	/**
+	 * 	@return the value to insert or <code>null</code> if the column shall not be inserted
+	 */
+	private static Object getInsertValue(final X_I_BankStatement imp, final int index)
+	{
+		final Object value = imp.get_Value(index);
+		return Null.NULL.equals(value) ? null : value;
+	}	//	getInsertValue
+
+	/**
+	 * 	@return number of statement lines to insert with one JDBC batch
+	 */
+	private int getSaveLineBatchSize()
+	{
+		if (saveLineBatchSize == null)
+		{
+			saveLineBatchSize = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_SaveLineBatchSize, DEFAULT_SaveLineBatchSize, getAD_Client_ID(), getAD_Org_ID());
+		}
+		return saveLineBatchSize;
+	}	//	getSaveLineBatchSize
 
 	/**
 	 * 	Return the most recent error
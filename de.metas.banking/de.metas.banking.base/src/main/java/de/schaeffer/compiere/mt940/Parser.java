@@ -23,146 +23,228 @@ package de.schaeffer.compiere.mt940;
  */
 
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Date;
-import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 
 public class Parser {
 
+	/** Pattern of a MT940 field tag, e.g. <code>:20:</code> or <code>:28C:</code> */
+	private static final Pattern TAG = Pattern.compile(":[0-9][0-9][A-Z]?:");
+
+	/**
+	 * Longest possible tag minus one; a tag starting that close to the end of the read data might still be incomplete.
+	 */
+	private static final int MAX_INCOMPLETE_TAG_LENGTH = 4;
+
 	public static Bankstatement parseMT940String(String mt940) {
-		
-		Bankstatement statement = new Bankstatement();
-		
-		String[] mt940lines = mt940.replaceAll("\n","").replaceAll(":[0-9][0-9][A-Z]?:","\n$0").split("\n");
-		
-		for (String line : mt940lines) {
-			if (line.startsWith(":20:")) {
-				statement.setAuftragsreferenzNr(line.substring(4));
-			} else if (line.startsWith(":21:")) {
-				statement.setBezugsrefernznr(line.substring(4));
-			} else if (line.startsWith(":25:")) {
-				statement.setBlz(new BigInteger(line.substring(4).split("/")[0]));
-				statement.setKtoNr(new BigInteger(line.substring(4).split("/")[1]));
-			} else if (line.startsWith(":28C:")) {
-				if (line.split("/").length == 2) {
-					statement.setAuszugsNr(new BigInteger(line.split("/")[1]));
-				} else {
-					statement.setAuszugsNr(new BigInteger(line.substring(5)));
-				}
-			} else if (line.startsWith(":60F:")) {
-				statement.setAnfangsSaldo(new Saldo(
-						line.substring(5,6), 
-						new Date(Integer.valueOf(line.substring(6,8))+100, Integer.valueOf(line.substring(8,10))-1, Integer.valueOf(line.substring(10,12))),
-						line.substring(12,15), 
-						new BigDecimal(line.substring(15).replaceAll(",",".").replaceAll("-",""))
-				));
-			} else if (line.startsWith(":62F:")) {
-				statement.setSchlussSaldo(new Saldo(
-						line.substring(5,6), 
-						new Date(Integer.valueOf(line.substring(6,8))+100, Integer.valueOf(line.substring(8,10))-1, Integer.valueOf(line.substring(10,12))),
-						line.substring(12,15), 
-						new BigDecimal(line.substring(15).replaceAll(",",".").replaceAll("-",""))
-				));
-			} else if (line.startsWith(":64:")) {
-				statement.setAktuellValutenSaldo(new Saldo(
-						line.substring(5,6), 
-						new Date(Integer.valueOf(line.substring(6,8))+100, Integer.valueOf(line.substring(8,10))-1, Integer.valueOf(line.substring(10,12))),
-						line.substring(12,15), 
-						new BigDecimal(line.substring(15).replaceAll(",",".").replaceAll("-",""))
-				));
-			} else if (line.startsWith(":65:")) {
-				statement.setZukunftValutenSaldo(new Saldo(
-						line.substring(5,6), 
-						new Date(Integer.valueOf(line.substring(6,8))+100, Integer.valueOf(line.substring(8,10))-1, Integer.valueOf(line.substring(10,12))),
-						line.substring(12,15), 
-						new BigDecimal(line.substring(15).replaceAll(",",".").replaceAll("-",""))
-				));
-			} else if (line.startsWith(":61:")) {
-				int index = 10;
-				BankstatementLine sLine = new BankstatementLine();
-				sLine.setValuta(new Date(Integer.valueOf(line.substring(4,6))+100, Integer.valueOf(line.substring(6,8))-1, Integer.valueOf(line.substring(8,10))));
-				if (line.substring(10,14).replaceAll("\\D","").length() == 4) {
-					sLine.setBuchungsdatum(new Date(Integer.valueOf(line.substring(4,6))+100, Integer.valueOf(line.substring(10,12))-1, Integer.valueOf(line.substring(12,14))));
-					index = 14;
-				}
-				if ("C".equals(line.substring(index, index+1)) || "D".equals(line.substring(index, index+1))) {
-					sLine.setSollHabenKennung(line.substring(index, index+1));
-					index = 15;
-				} else {
-					sLine.setSollHabenKennung(line.substring(index, index+2));
-					index = 16;
-				}
-				if (line.substring(index, index+1).matches("[A-Z]")) {
-					sLine.setWaehrung(line.substring(index, index+1));
-					index++;
+		try {
+			return parseMT940(new StringReader(mt940.replaceAll("\n", "")));
+		} catch (IOException e) {
+			// can't happen when reading from a string
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Parses the given MT940 data. The statement lines are added to the returned statement.
+	 */
+	public static Bankstatement parseMT940(Reader mt940) throws IOException {
+		final Bankstatement statement = new Bankstatement();
+		parseMT940(mt940, statement, statement.getLines()::add);
+		return statement;
+	}
+
+	/**
+	 * Parses the given MT940 data while reading it, without buffering the whole statement.
+	 * Each statement line is passed to the given consumer as soon as it is complete; it is <b>not</b> added to the returned statement.
+	 * 
+	 * @return the statement header data (references, account, balances)
+	 */
+	public static Bankstatement parseMT940(Reader mt940, Consumer<BankstatementLine> lineConsumer) throws IOException {
+		final Bankstatement statement = new Bankstatement();
+		parseMT940(mt940, statement, lineConsumer);
+		return statement;
+	}
+
+	private static void parseMT940(Reader mt940, Bankstatement statement, Consumer<BankstatementLine> lineConsumer) throws IOException {
+		final BufferedReader reader = mt940 instanceof BufferedReader ? (BufferedReader) mt940 : new BufferedReader(mt940);
+
+		// Line breaks are not significant in MT940: the data is joined and split into fields by their tags, like parseMT940String always did.
+		// Only the current field is kept in memory.
+		final StringBuilder field = new StringBuilder();
+		int searchFrom = 0;
+		BankstatementLine currentLine = null;
+
+		for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+			field.append(text);
+
+			// start of the current field within the buffer; the buffer is only compacted once per read line
+			int fieldStart = 0;
+			final Matcher matcher = TAG.matcher(field);
+			while (matcher.find(searchFrom)) {
+				final int tagStart = matcher.start();
+				if (tagStart > fieldStart) {
+					currentLine = parseField(field.substring(fieldStart, tagStart), statement, currentLine, lineConsumer);
 				}
-				for (int i = 1; i < 1001; i++) {
-					if (i == 1000) {
+				fieldStart = tagStart;
+				searchFrom = matcher.end(); // look for the next tag after this one
+			}
+			field.delete(0, fieldStart);
+			searchFrom = Math.max(searchFrom - fieldStart, field.length() - MAX_INCOMPLETE_TAG_LENGTH);
+		}
+
+		if (field.length() > 0) {
+			currentLine = parseField(field.toString(), statement, currentLine, lineConsumer);
+		}
+		if (currentLine != null) {
+			lineConsumer.accept(currentLine);
+		}
+	}
+
+	/**
+	 * Parses one field (tag and value).
+	 * 
+	 * @param currentLine the statement line that was started by the last <code>:61:</code> field and is not yet passed to the consumer
+	 * @return the (possibly new) current statement line
+	 */
+	private static BankstatementLine parseField(String line, Bankstatement statement, BankstatementLine currentLine, Consumer<BankstatementLine> lineConsumer) {
+		if (line.startsWith(":20:")) {
+			statement.setAuftragsreferenzNr(line.substring(4));
+		} else if (line.startsWith(":21:")) {
+			statement.setBezugsrefernznr(line.substring(4));
+		} else if (line.startsWith(":25:")) {
+			statement.setBlz(new BigInteger(line.substring(4).split("/")[0]));
+			statement.setKtoNr(new BigInteger(line.substring(4).split("/")[1]));
+		} else if (line.startsWith(":28C:")) {
+			if (line.split("/").length == 2) {
+				statement.setAuszugsNr(new BigInteger(line.split("/")[1]));
+			} else {
+				statement.setAuszugsNr(new BigInteger(line.substring(5)));
+			}
+		} else if (line.startsWith(":60F:")) {
+			statement.setAnfangsSaldo(new Saldo(
+					line.substring(5,6), 
+					new Date(Integer.valueOf(line.substring(6,8))+100, Integer.valueOf(line.substring(8,10))-1, Integer.valueOf(line.substring(10,12))),
+					line.substring(12,15), 
+					new BigDecimal(line.substring(15).replaceAll(",",".").replaceAll("-",""))
+			));
+		} else if (line.startsWith(":62F:")) {
+			statement.setSchlussSaldo(new Saldo(
+					line.substring(5,6), 
+					new Date(Integer.valueOf(line.substring(6,8))+100, Integer.valueOf(line.substring(8,10))-1, Integer.valueOf(line.substring(10,12))),
+					line.substring(12,15), 
+					new BigDecimal(line.substring(15).replaceAll(",",".").replaceAll("-",""))
+			));
+		} else if (line.startsWith(":64:")) {
+			statement.setAktuellValutenSaldo(new Saldo(
+					line.substring(5,6), 
+					new Date(Integer.valueOf(line.substring(6,8))+100, Integer.valueOf(line.substring(8,10))-1, Integer.valueOf(line.substring(10,12))),
+					line.substring(12,15), 
+					new BigDecimal(line.substring(15).replaceAll(",",".").replaceAll("-",""))
+			));
+		} else if (line.startsWith(":65:")) {
+			statement.setZukunftValutenSaldo(new Saldo(
+					line.substring(5,6), 
+					new Date(Integer.valueOf(line.substring(6,8))+100, Integer.valueOf(line.substring(8,10))-1, Integer.valueOf(line.substring(10,12))),
+					line.substring(12,15), 
+					new BigDecimal(line.substring(15).replaceAll(",",".").replaceAll("-",""))
+			));
+		} else if (line.startsWith(":61:")) {
+			int index = 10;
+			BankstatementLine sLine = new BankstatementLine();
+			sLine.setValuta(new Date(Integer.valueOf(line.substring(4,6))+100, Integer.valueOf(line.substring(6,8))-1, Integer.valueOf(line.substring(8,10))));
+			if (line.substring(10,14).replaceAll("\\D","").length() == 4) {
+				sLine.setBuchungsdatum(new Date(Integer.valueOf(line.substring(4,6))+100, Integer.valueOf(line.substring(10,12))-1, Integer.valueOf(line.substring(12,14))));
+				index = 14;
+			}
+			if ("C".equals(line.substring(index, index+1)) || "D".equals(line.substring(index, index+1))) {
+				sLine.setSollHabenKennung(line.substring(index, index+1));
+				index = 15;
+			} else {
+				sLine.setSollHabenKennung(line.substring(index, index+2));
+				index = 16;
+			}
+			if (line.substring(index, index+1).matches("[A-Z]")) {
+				sLine.setWaehrung(line.substring(index, index+1));
+				index++;
+			}
+			for (int i = 1; i < 1001; i++) {
+				if (i == 1000) {
 //						throw new ParseException;
-					} else if (line.substring(index, index+i).endsWith("N")) {
-						sLine.setBetrag(new BigDecimal(line.substring(index, index + i - 1).replaceAll(",",".")));
-						index = index + i - 1;
-						break;
-					}
+				} else if (line.substring(index, index+i).endsWith("N")) {
+					sLine.setBetrag(new BigDecimal(line.substring(index, index + i - 1).replaceAll(",",".")));
+					index = index + i - 1;
+					break;
 				}
-				sLine.setBuchungsschluessel(line.substring(index, index + 4));
-				index = index + 4;
-				if (line.substring(index).replaceAll("//","").length() == line.substring(index).length()) {
-					sLine.setReferenz(line.substring(index));
+			}
+			sLine.setBuchungsschluessel(line.substring(index, index + 4));
+			index = index + 4;
+			if (line.substring(index).replaceAll("//","").length() == line.substring(index).length()) {
+				sLine.setReferenz(line.substring(index));
+			} else {
+				sLine.setReferenz(line.substring(index).split("//")[0]);
+				if (line.substring(index).replaceAll("/OCMT/","").length() == line.substring(index).length() && line.substring(index).replaceAll("/CHGS/","").length() == line.substring(index).length()) {
+					sLine.setBankReferenz(line.substring(index));
 				} else {
-					sLine.setReferenz(line.substring(index).split("//")[0]);
-					if (line.substring(index).replaceAll("/OCMT/","").length() == line.substring(index).length() && line.substring(index).replaceAll("/CHGS/","").length() == line.substring(index).length()) {
-						sLine.setBankReferenz(line.substring(index));
-					} else {
-						
-						if (line.substring(index).replaceAll("/OCMT/", "").length() != line.substring(index).length()) {
-							sLine.setBankReferenz(line.substring(index).split("/OCMT/")[0].split("//")[1]);
-							sLine.setUrsprungsbetrag(new BigDecimal(line.substring(index).split("/OCMT/")[1].substring(3).replaceAll(",", ".")));
-							sLine.setUrsprungsbetragWaehrung(line.substring(index).split("/OCMT/")[1].substring(0, 3));
-						}
-						if (line.substring(index).replaceAll("/CHGS/", "").length() != line.substring(index).length()) {
-							sLine.setBankReferenz(line.substring(index).split("/CHGS/")[0].split("//")[1]);
-							sLine.setUrsprungsbetrag(new BigDecimal(line.substring(index).split("/CHGS/")[1].substring(3).replaceAll(",", ".")));
-							sLine.setUrsprungsbetragWaehrung(line.substring(index).split("/CHGS/")[1].substring(0,3));
-						}
+					
+					if (line.substring(index).replaceAll("/OCMT/", "").length() != line.substring(index).length()) {
+						sLine.setBankReferenz(line.substring(index).split("/OCMT/")[0].split("//")[1]);
+						sLine.setUrsprungsbetrag(new BigDecimal(line.substring(index).split("/OCMT/")[1].substring(3).replaceAll(",", ".")));
+						sLine.setUrsprungsbetragWaehrung(line.substring(index).split("/OCMT/")[1].substring(0, 3));
+					}
+					if (line.substring(index).replaceAll("/CHGS/", "").length() != line.substring(index).length()) {
+						sLine.setBankReferenz(line.substring(index).split("/CHGS/")[0].split("//")[1]);
+						sLine.setUrsprungsbetrag(new BigDecimal(line.substring(index).split("/CHGS/")[1].substring(3).replaceAll(",", ".")));
+						sLine.setUrsprungsbetragWaehrung(line.substring(index).split("/CHGS/")[1].substring(0,3));
 					}
 				}
-				statement.getLines().add(sLine);
-				
-			} else if (line.startsWith(":86:")) {
-				List<BankstatementLine> lines = statement.getLines();
-				String[] feld = line.substring(4).split("\\?");
-				lines.get(lines.size()-1).setGeschaeftsvorfallCode(new BigInteger(feld[0]));
-				for (int i = 1; i < feld.length; i++) {
-					try {
-						if (feld[i].length() >= 2) {
-							if (Integer.valueOf(feld[i].substring(0, 2)) == 0) {
-								lines.get(lines.size() - 1).setBuchungstext(feld[i].substring(2));
-							} else if (Integer.valueOf(feld[i].substring(0, 2)) == 10) {
-								lines.get(lines.size() - 1).setPrimanotennummer(feld[i].substring(2));
-							} else if ((Integer.valueOf(feld[i].substring(0, 2)) >= 20 && Integer.valueOf(feld[i].substring(0, 2)) < 30) || (Integer.valueOf(feld[i].substring(0, 2)) >= 60 && Integer.valueOf(feld[i].substring(0, 2)) < 64)) {
-								if (lines.get(lines.size() - 1).getVerwendungszweck() == null) {
-									lines.get(lines.size() - 1).setVerwendungszweck("");
-								}
-								lines.get(lines.size() - 1).setVerwendungszweck(lines.get(lines.size() - 1).getVerwendungszweck() + feld[i].substring(2) + " ");
-							} else if (Integer.valueOf(feld[i].substring(0, 2)) == 30) {
-								lines.get(lines.size() - 1).setPartnerBlz(feld[i].substring(2));
-							} else if (Integer.valueOf(feld[i].substring(0, 2)) == 31) {
-								lines.get(lines.size() - 1).setPartnerKtoNr(feld[i].substring(2));
-							} else if (Integer.valueOf(feld[i].substring(0, 2)) == 32 || Integer.valueOf(feld[i].substring(0, 2)) == 33) {
-								lines.get(lines.size() - 1).setPartnerName(feld[i].substring(2));
-							} else if (Integer.valueOf(feld[i].substring(0, 2)) == 34) {
-								lines.get(lines.size() - 1).setTextschluessel(feld[i].substring(2));
+			}
+			if (currentLine != null) {
+				lineConsumer.accept(currentLine);
+			}
+			currentLine = sLine;
+		} else if (line.startsWith(":86:")) {
+			if (currentLine == null) {
+				throw new IllegalArgumentException("MT940 field :86: without preceding :61: - " + line);
+			}
+			String[] feld = line.substring(4).split("\\?");
+			currentLine.setGeschaeftsvorfallCode(new BigInteger(feld[0]));
+			for (int i = 1; i < feld.length; i++) {
+				try {
+					if (feld[i].length() >= 2) {
+						if (Integer.valueOf(feld[i].substring(0, 2)) == 0) {
+							currentLine.setBuchungstext(feld[i].substring(2));
+						} else if (Integer.valueOf(feld[i].substring(0, 2)) == 10) {
+							currentLine.setPrimanotennummer(feld[i].substring(2));
+						} else if ((Integer.valueOf(feld[i].substring(0, 2)) >= 20 && Integer.valueOf(feld[i].substring(0, 2)) < 30) || (Integer.valueOf(feld[i].substring(0, 2)) >= 60 && Integer.valueOf(feld[i].substring(0, 2)) < 64)) {
+							if (currentLine.getVerwendungszweck() == null) {
+								currentLine.setVerwendungszweck("");
 							}
+							currentLine.setVerwendungszweck(currentLine.getVerwendungszweck() + feld[i].substring(2) + " ");
+						} else if (Integer.valueOf(feld[i].substring(0, 2)) == 30) {
+							currentLine.setPartnerBlz(feld[i].substring(2));
+						} else if (Integer.valueOf(feld[i].substring(0, 2)) == 31) {
+							currentLine.setPartnerKtoNr(feld[i].substring(2));
+						} else if (Integer.valueOf(feld[i].substring(0, 2)) == 32 || Integer.valueOf(feld[i].substring(0, 2)) == 33) {
+							currentLine.setPartnerName(feld[i].substring(2));
+						} else if (Integer.valueOf(feld[i].substring(0, 2)) == 34) {
+							currentLine.setTextschluessel(feld[i].substring(2));
 						}
-					} catch (Exception e) {
-						e.printStackTrace();
 					}
+				} catch (Exception e) {
+					e.printStackTrace();
 				}
-			}	
+			}
 		}
-		return statement;
+		return currentLine;
 	}
 }
@@ -0,0 +1,143 @@
+package de.schaeffer.compiere.mt940;
+
+/*
+ * #%L
+ * de.metas.banking.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link Parser} against <code>statement_expected.txt</code>, which was created with the parser version that joined the whole file in one string and split it by tags.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ParserTest
+{
+	@Test
+	public void test_parseMT940() throws Exception
+	{
+		final String mt940 = readResource("statement.sta");
+
+		final Bankstatement statement = Parser.parseMT940(new StringReader(mt940));
+
+		Assert.assertEquals(readResource("statement_expected.txt"), toText(statement, ""));
+	}
+
+	@Test
+	public void test_parseMT940_WindowsLineBreaks() throws Exception
+	{
+		final String mt940 = readResource("statement.sta").replace("\n", "\r\n");
+
+		final Bankstatement statement = Parser.parseMT940(new StringReader(mt940));
+
+		Assert.assertEquals(readResource("statement_expected.txt"), toText(statement, ""));
+	}
+
+	@Test
+	public void test_parseMT940_LineConsumer() throws Exception
+	{
+		final String mt940 = readResource("statement.sta");
+
+		final List<BankstatementLine> lines = new ArrayList<>();
+		final Bankstatement statement = Parser.parseMT940(new StringReader(mt940), lines::add);
+		Assert.assertTrue("The lines shall not be added to the statement", statement.getLines().isEmpty());
+
+		// same result as when the lines are added to the statement
+		statement.getLines().addAll(lines);
+		Assert.assertEquals(readResource("statement_expected.txt"), toText(statement, ""));
+	}
+
+	@Test
+	public void test_parseMT940String() throws Exception
+	{
+		final String mt940 = readResource("statement.sta");
+
+		final Bankstatement statement = Parser.parseMT940String(mt940);
+
+		Assert.assertEquals(readResource("statement_expected.txt"), toText(statement, ""));
+	}
+
+	private String readResource(final String name) throws IOException
+	{
+		try (final InputStream in = getClass().getResourceAsStream(name))
+		{
+			Assert.assertNotNull("resource " + name + " exists", in);
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			for (int len = in.read(buffer); len > 0; len = in.read(buffer))
+			{
+				out.write(buffer, 0, len);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * @return the values of all getters of the given statement (or line or saldo), sorted by getter name, one per line
+	 */
+	private static String toText(final Object object, final String indent) throws Exception
+	{
+		final StringBuilder text = new StringBuilder();
+
+		final Method[] methods = object.getClass().getMethods();
+		Arrays.sort(methods, Comparator.comparing(Method::getName));
+		for (final Method method : methods)
+		{
+			if (!method.getName().startsWith("get") || method.getParameterCount() > 0 || "getClass".equals(method.getName()))
+			{
+				continue;
+			}
+
+			final Object value = method.invoke(object);
+			if (value instanceof List)
+			{
+				int index = 0;
+				for (final Object item : (List<?>)value)
+				{
+					text.append(indent).append(method.getName()).append("[").append(index++).append("]\n").append(toText(item, indent + "  "));
+				}
+			}
+			else if (value instanceof Saldo)
+			{
+				text.append(indent).append(method.getName()).append("\n").append(toText(value, indent + "  "));
+			}
+			else
+			{
+				text.append(indent).append(method.getName()).append("=").append(value).append("\n");
+			}
+		}
+		return text.toString();
+	}
+}
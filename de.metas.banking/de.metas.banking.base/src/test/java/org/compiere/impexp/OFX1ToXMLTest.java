@@ -0,0 +1,94 @@
+package org.compiere.impexp;
+
+/*
+ * #%L
+ * de.metas.banking.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link OFX1ToXML} against <code>statement_expected.xml</code>, which was created with the converter version that buffered the whole SGML body.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class OFX1ToXMLTest
+{
+	@Test
+	public void test_Convert() throws Exception
+	{
+		final String ofx = readResource("statement.ofx");
+
+		Assert.assertEquals(readResource("statement_expected.xml"), convert(ofx));
+	}
+
+	@Test
+	public void test_Convert_WindowsLineBreaks() throws Exception
+	{
+		final String ofx = readResource("statement.ofx").replace("\n", "\r\n");
+
+		Assert.assertEquals(readResource("statement_expected.xml"), convert(ofx));
+	}
+
+	@Test
+	public void test_Convert_NoLineBreakAtEnd() throws Exception
+	{
+		final String ofx = readResource("statement.ofx").trim();
+
+		Assert.assertEquals(readResource("statement_expected.xml"), convert(ofx));
+	}
+
+	private static String convert(final String ofx) throws IOException
+	{
+		try (final InputStream xml = new OFX1ToXML(new ByteArrayInputStream(ofx.getBytes(StandardCharsets.UTF_8))))
+		{
+			final StringBuilder result = new StringBuilder();
+			for (int c = xml.read(); c != -1; c = xml.read())
+			{
+				result.append((char)c);
+			}
+			return result.toString();
+		}
+	}
+
+	private String readResource(final String name) throws IOException
+	{
+		try (final InputStream in = getClass().getResourceAsStream(name))
+		{
+			Assert.assertNotNull("resource " + name + " exists", in);
+
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			for (int len = in.read(buffer); len > 0; len = in.read(buffer))
+			{
+				out.write(buffer, 0, len);
+			}
+			return new String(out.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -31,6 +31,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
@@ -54,6 +56,7 @@ import org.compiere.util.Util;
 import de.metas.adempiere.model.I_C_Order;
 import de.schaeffer.compiere.mt940.Bankstatement;
 import de.schaeffer.compiere.mt940.BankstatementLine;
+import de.schaeffer.compiere.mt940.Parser;
 
 public class ImportBankstatementCtrl {
 
@@ -61,17 +64,26 @@ public class ImportBankstatementCtrl {
 	// private Logger logger =
 	// CLogMgt.getLogger(ImportBankstatementCtrl.class);
 
-	public ImportBankstatementCtrl(final Bankstatement statement,
-			final List<MInvoice> invoiceList, final List<MOrder> orderList) {
+	/**
+	 * Parses the given MT940 data and shows its lines together with the invoices and orders that seem to fit.
+	 * 
+	 * @param mt940 the statement lines are matched while reading it, so they are not buffered in the statement first
+	 */
+	public ImportBankstatementCtrl(final Reader mt940,
+			final List<MInvoice> invoiceList, final List<MOrder> orderList) throws IOException {
 
-		final ImportBankStatementModel model = new ImportBankStatementModel(
-				statement);
+		final List<MatchablePO> allMatchablePOs = createMatchablePOs(
+				invoiceList, orderList);
 
 		// Erzeugen einer Liste aus Object[2]
 		// --> [0] = Line aus Ueberweisung / [1] = List<Invoices> die passen
 		// koennten
-		final List<Object[]> objectList = findFittingLines(statement,
-				invoiceList, orderList);
+		final List<Object[]> objectList = new ArrayList<Object[]>();
+		final Bankstatement statement = Parser.parseMT940(mt940,
+				line -> objectList.add(findFittingLine(line, allMatchablePOs)));
+
+		final ImportBankStatementModel model = new ImportBankStatementModel(
+				statement);
 		model.setObjectList(objectList);
 
 		model.getTableModel().addTableModelListener(new TableModelListener() {
@@ -117,17 +129,9 @@ public class ImportBankstatementCtrl {
 		view.setVisible(true);
 	}
 
-	/**
-	 * Creates List of objectarrays[2]: object[0] = MT940-Bankstatementline
-	 * object[1] = Invoices, that seem to fit for object[0]
-	 * 
-	 * @return
-	 */
-	private List<Object[]> findFittingLines(final Bankstatement statement,
+	private List<MatchablePO> createMatchablePOs(
 			final List<MInvoice> invoiceList, final List<MOrder> orderList) {
 
-		final List<Object[]> fittingInvoicesList = new ArrayList<Object[]>();
-
 		final List<MatchablePO> allMatchablePOs = new ArrayList<MatchablePO>();
 
 		for (final PO po : invoiceList) {
@@ -136,127 +140,136 @@ public class ImportBankstatementCtrl {
 		for (final PO po : orderList) {
 			allMatchablePOs.add(new MatchablePO(po));
 		}
+		return allMatchablePOs;
+	}
 
-		for (final BankstatementLine line : statement.getLines()) {
-
-			final Object[] objectArray = new Object[2];
-			objectArray[0] = line;
-
-			final List<MatchablePO> matchingPOs = new ArrayList<MatchablePO>();
-
-			for (final MatchablePO poToMatch : allMatchablePOs) {
+	/**
+	 * Creates an objectarray[2]: object[0] = MT940-Bankstatementline
+	 * object[1] = Invoices, that seem to fit for object[0]
+	 * 
+	 * NOTE: the given matchable POs are updated, so the lines shall be passed in the statement's order.
+	 * 
+	 * @return
+	 */
+	private Object[] findFittingLine(final BankstatementLine line,
+			final List<MatchablePO> allMatchablePOs) {
 
-				if (!lineMatchesInv(line, poToMatch)) {
-					continue;
-				}
+		final Object[] objectArray = new Object[2];
+		objectArray[0] = line;
 
-				matchingPOs.add(poToMatch);
+		final List<MatchablePO> matchingPOs = new ArrayList<MatchablePO>();
 
-				// create an InvoiceExtended for this invoice and add it to
-				// the list for this line.
+		for (final MatchablePO poToMatch : allMatchablePOs) {
 
-				final BigDecimal paymentAmount = poToMatch.getOpenAmt();
+			if (!lineMatchesInv(line, poToMatch)) {
+				continue;
+			}
 
-				final BigDecimal invoiceDiscount = getInvoiceDiscount(poToMatch);
+			matchingPOs.add(poToMatch);
 
-				final BigDecimal paymentAmountSkonto = (paymentAmount
-						.subtract(paymentAmount.multiply((invoiceDiscount))))
-						.setScale(2, BigDecimal.ROUND_HALF_UP);
+			// create an InvoiceExtended for this invoice and add it to
+			// the list for this line.
 
-				// Stimmt der Betrag �berein?
-				final long discountMillis = mkDiscountMillis(poToMatch);
+			final BigDecimal paymentAmount = poToMatch.getOpenAmt();
 
-				final boolean withinDiscountTime = line.getBuchungsdatum()
-						.getTime()
-						- poToMatch.getDateDoc().getTime() < discountMillis;
+			final BigDecimal invoiceDiscount = getInvoiceDiscount(poToMatch);
 
-				if (line.getBetrag().compareTo(paymentAmount) == 0
-						|| (line.getBetrag().compareTo(paymentAmountSkonto) == 0 && withinDiscountTime)) {
+			final BigDecimal paymentAmountSkonto = (paymentAmount
+					.subtract(paymentAmount.multiply((invoiceDiscount))))
+					.setScale(2, BigDecimal.ROUND_HALF_UP);
 
-					// Rechnungsnummer, Betrag stimmen
-					poToMatch.setFittingLevel(1);
-					if (line.getBetrag().compareTo(paymentAmount) == 0) {
-						poToMatch.setPAmt(paymentAmount);
-					} else {
-						poToMatch.setPAmt(paymentAmountSkonto);
-						poToMatch.setDAmt(paymentAmount
-								.subtract(paymentAmountSkonto));
-					}
+			// Stimmt der Betrag �berein?
+			final long discountMillis = mkDiscountMillis(poToMatch);
 
-				} else if (line.getBetrag().compareTo(paymentAmountSkonto) == 0) {
+			final boolean withinDiscountTime = line.getBuchungsdatum()
+					.getTime()
+					- poToMatch.getDateDoc().getTime() < discountMillis;
 
-					// Rechnungsnummer stimmt, aber Skonto trotz Verzug
-					if (paymentAmount.subtract(paymentAmountSkonto).compareTo(
-							new BigDecimal("5")) < 0) {
-						poToMatch.setFittingLevel(1);
-					} else {
-						poToMatch.setFittingLevel(2);
-					}
+			if (line.getBetrag().compareTo(paymentAmount) == 0
+					|| (line.getBetrag().compareTo(paymentAmountSkonto) == 0 && withinDiscountTime)) {
 
+				// Rechnungsnummer, Betrag stimmen
+				poToMatch.setFittingLevel(1);
+				if (line.getBetrag().compareTo(paymentAmount) == 0) {
+					poToMatch.setPAmt(paymentAmount);
+				} else {
 					poToMatch.setPAmt(paymentAmountSkonto);
 					poToMatch.setDAmt(paymentAmount
 							.subtract(paymentAmountSkonto));
+				}
 
+			} else if (line.getBetrag().compareTo(paymentAmountSkonto) == 0) {
+
+				// Rechnungsnummer stimmt, aber Skonto trotz Verzug
+				if (paymentAmount.subtract(paymentAmountSkonto).compareTo(
+						new BigDecimal("5")) < 0) {
+					poToMatch.setFittingLevel(1);
 				} else {
-					// Rechnungsnummer stimmt
-					poToMatch.setFittingLevel(3);
-					poToMatch.setPAmt(line.getBetrag());
+					poToMatch.setFittingLevel(2);
 				}
 
-				break;
+				poToMatch.setPAmt(paymentAmountSkonto);
+				poToMatch.setDAmt(paymentAmount
+						.subtract(paymentAmountSkonto));
+
+			} else {
+				// Rechnungsnummer stimmt
+				poToMatch.setFittingLevel(3);
+				poToMatch.setPAmt(line.getBetrag());
 			}
 
-			BigDecimal fullPayment = Env.ZERO;
+			break;
+		}
+
+		BigDecimal fullPayment = Env.ZERO;
 
-			// find out if the invoices for the current line together match the
-			// line amount
-			for (final MatchablePO iE : allMatchablePOs) {
+		// find out if the invoices for the current line together match the
+		// line amount
+		for (final MatchablePO iE : allMatchablePOs) {
 
-				final BigDecimal paymentAmount = iE.getOpenAmt();
-				final BigDecimal invoiceDiscount = getInvoiceDiscount(iE);
+			final BigDecimal paymentAmount = iE.getOpenAmt();
+			final BigDecimal invoiceDiscount = getInvoiceDiscount(iE);
 
-				final BigDecimal paymentAmountSkonto = paymentAmount.subtract(
-						paymentAmount.multiply(invoiceDiscount)).setScale(2,
-						BigDecimal.ROUND_HALF_UP);
+			final BigDecimal paymentAmountSkonto = paymentAmount.subtract(
+					paymentAmount.multiply(invoiceDiscount)).setScale(2,
+					BigDecimal.ROUND_HALF_UP);
 
-				if (line.getBuchungsdatum().getTime()
-						- iE.getDateDoc().getTime() < mkDiscountMillis(iE)) {
+			if (line.getBuchungsdatum().getTime()
+					- iE.getDateDoc().getTime() < mkDiscountMillis(iE)) {
 
-					fullPayment = fullPayment.add(paymentAmountSkonto);
-					iE.setPAmt(paymentAmountSkonto);
-					iE.setDAmt(paymentAmount.subtract(paymentAmountSkonto));
+				fullPayment = fullPayment.add(paymentAmountSkonto);
+				iE.setPAmt(paymentAmountSkonto);
+				iE.setDAmt(paymentAmount.subtract(paymentAmountSkonto));
 
-				} else {
-					fullPayment = fullPayment.add(paymentAmount);
-					iE.setPAmt(paymentAmount);
-				}
+			} else {
+				fullPayment = fullPayment.add(paymentAmount);
+				iE.setPAmt(paymentAmount);
 			}
-			if (fullPayment.compareTo(line.getBetrag()) == 0) {
-				for (final MatchablePO iE : allMatchablePOs) {
-					iE.setFittingLevel(1);
-					matchingPOs.add(iE);
-				}
+		}
+		if (fullPayment.compareTo(line.getBetrag()) == 0) {
+			for (final MatchablePO iE : allMatchablePOs) {
+				iE.setFittingLevel(1);
+				matchingPOs.add(iE);
 			}
+		}
 
-			for (final MatchablePO ie : allMatchablePOs) {
+		for (final MatchablePO ie : allMatchablePOs) {
 
-				final BigDecimal invoiceDiscount = getInvoiceDiscount(ie);
+			final BigDecimal invoiceDiscount = getInvoiceDiscount(ie);
 
-				if (line.getBuchungsdatum().getTime()
-						- ie.getDateDoc().getTime() < mkDiscountMillis(ie)) {
-					ie.setIpAmt(ie.getOpenAmt().subtract(
-							ie.getOpenAmt().multiply((invoiceDiscount)))
-							.setScale(2, BigDecimal.ROUND_HALF_UP));
-				} else {
-					ie.setIpAmt(ie.getOpenAmt());
-				}
+			if (line.getBuchungsdatum().getTime()
+					- ie.getDateDoc().getTime() < mkDiscountMillis(ie)) {
+				ie.setIpAmt(ie.getOpenAmt().subtract(
+						ie.getOpenAmt().multiply((invoiceDiscount)))
+						.setScale(2, BigDecimal.ROUND_HALF_UP));
+			} else {
+				ie.setIpAmt(ie.getOpenAmt());
 			}
-
-			Collections.sort(matchingPOs);
-			objectArray[1] = matchingPOs;
-			fittingInvoicesList.add(objectArray);
 		}
-		return fittingInvoicesList;
+
+		Collections.sort(matchingPOs);
+		objectArray[1] = matchingPOs;
+		return objectArray;
 	}
 
 	private long mkDiscountMillis(final MatchablePO ie) {
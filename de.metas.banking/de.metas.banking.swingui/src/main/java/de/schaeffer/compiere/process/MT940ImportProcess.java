@@ -28,6 +28,7 @@ import java.awt.Frame;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.List;
 
 import org.compiere.model.I_C_Invoice;
@@ -42,8 +43,6 @@ import org.compiere.util.Env;
 
 import de.metas.adempiere.model.I_C_Order;
 import de.metas.banking.misc.ImportBankstatementCtrl;
-import de.schaeffer.compiere.mt940.Bankstatement;
-import de.schaeffer.compiere.mt940.Parser;
 
 public class MT940ImportProcess extends JavaProcess {
 
@@ -61,36 +60,6 @@ public class MT940ImportProcess extends JavaProcess {
 
 		log.info("Open Bankstatement: " + fc.getDirectory() + fc.getFile());
 
-		String buf = "";
-
-		if (fc.getFile() != null) {
-			log.debug("returnVal == JFileChooser.APPROVE_OPTION");
-			String filePath = fc.getDirectory();
-			String fileName = fc.getFile();
-			log.debug("Filestuff loaded");
-			try {
-
-				FileInputStream fis = new FileInputStream(filePath + fileName);
-				InputStreamReader isr = new InputStreamReader(fis,
-						"windows-1252");
-				BufferedReader input = new BufferedReader(isr);
-
-				while (input.ready()) {
-					buf += input.readLine();
-				}
-				input.close();
-				isr.close();
-				fis.close();
-
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-			log.debug("File loaded");
-		}
-
-		final Bankstatement statement = Parser.parseMT940String(buf);
-		log.debug("file parsed");
-
 		final String whereClauseInvoice = Env.getUserRolePermissions().getOrgWhere(false)
 				+ " AND ( paymentrule not in ('B','K','') AND ispaid = 'N' )";
 
@@ -105,7 +74,24 @@ public class MT940ImportProcess extends JavaProcess {
 				I_C_Order.Table_Name, whereClauseOrder, get_TrxName())
 				.setOnlyActiveRecords(true).setClient_ID().list();
 
-		new ImportBankstatementCtrl(statement, invoiceList, orderList);
+		if (fc.getFile() == null) {
+			new ImportBankstatementCtrl(new StringReader(""), invoiceList, orderList);
+			return null;
+		}
+
+		log.debug("returnVal == JFileChooser.APPROVE_OPTION");
+		String filePath = fc.getDirectory();
+		String fileName = fc.getFile();
+		log.debug("Filestuff loaded");
+		// parse while reading and match each statement line as soon as it's parsed;
+		// neither the file nor the statement lines are buffered before
+		try (final BufferedReader input = new BufferedReader(new InputStreamReader(
+				new FileInputStream(filePath + fileName), "windows-1252"))) {
+
+			new ImportBankstatementCtrl(input, invoiceList, orderList);
+
+		}
+		log.debug("file parsed");
 		return null;
 
 	}
@@ -84,6 +84,7 @@ public class ProductScalePrice extends AbstractPriceListBasedRule
 				.setM_Product_ID(pricingCtx.getM_Product_ID())
 				.noAttributePricing()
 				.onlyScalePrices()
+				.usingProductPricesIndex()
 				.firstMatching();
 		if (productPrice == null)
 		{
@@ -252,6 +252,7 @@ public class AttributePricing extends PricingRuleAdapter
 				.setM_Product_ID(pricingCtx.getM_Product_ID())
 				.matching(_defaultMatchers)
 				.matchingAttributes(attributeSetInstance)
+				.usingProductPricesIndex()
 				.firstMatching();
 
 		if (productPrice == null)
@@ -165,6 +165,13 @@ public final class AdempiereBaseValidator extends AbstractModuleInterceptor
 		//
 		// BPartner
 		engine.addModelValidator(new org.adempiere.bpartner.model.interceptor.C_BPartner(), client);
+		engine.addModelValidator(new org.adempiere.bpartner.model.interceptor.C_Invoice(), client); // open items for credit checks
+		engine.addModelValidator(new org.adempiere.bpartner.model.interceptor.C_Payment(), client); // open items for credit checks
+		engine.addModelValidator(new org.adempiere.bpartner.model.interceptor.C_AllocationHdr(), client); // open items for credit checks
+
+		//
+		// Archive
+		engine.addModelValidator(new org.adempiere.archive.model.interceptor.AD_Archive(), client); // release unreferenced content addressed blobs
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package org.adempiere.pricing.api;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -7,13 +8,18 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.IQueryFilter;
 import org.adempiere.ad.dao.IQueryOrderBy.Direction;
 import org.adempiere.ad.dao.IQueryOrderBy.Nulls;
+import org.adempiere.ad.dao.impl.EqualsQueryFilter;
 import org.adempiere.mm.attributes.api.IAttributeDAO;
+import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.model.PlainContextAware;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
@@ -98,6 +104,19 @@ public class ProductPriceQuery
 		return Optional.ofNullable(productPrice);
 	}
 
+	/**
+	 * Same as {@link #retrieveMainProductPriceIfExists(I_M_PriceList_Version, int)} but the product price is looked up in the {@link ProductPricesIndex}.
+	 * <p>
+	 * To be used by pricing rules. The returned product price is shared, so it shall not be changed.
+	 */
+	public static final Optional<I_M_ProductPrice> retrieveMainProductPriceFromIndexIfExists(final I_M_PriceList_Version plv, final int productId)
+	{
+		final I_M_ProductPrice productPrice = newMainProductPriceQuery(plv, productId)
+				.usingProductPricesIndex()
+				.firstOnly(I_M_ProductPrice.class);
+		return Optional.ofNullable(productPrice);
+	}
+
 	private static final ProductPriceQuery newMainProductPriceQuery(final I_M_PriceList_Version plv, final int productId)
 	{
 		return newInstance(plv)
@@ -136,6 +155,8 @@ public class ProductPriceQuery
 
 	private Map<String, IProductPriceQueryMatcher> _additionalMatchers = null;
 
+	private boolean _useProductPricesIndex = false;
+
 	private ProductPriceQuery()
 	{
 		super();
@@ -155,6 +176,7 @@ public class ProductPriceQuery
 				.add("scalePrice", _scalePrice)
 				//
 				.add("additionalMatchers", _additionalMatchers == null || _additionalMatchers.isEmpty() ? null : _additionalMatchers)
+				.add("useProductPricesIndex", _useProductPricesIndex ? Boolean.TRUE : null)
 				.toString();
 	}
 
@@ -167,6 +189,15 @@ public class ProductPriceQuery
 	/** @return first matching product price or null */
 	public <T extends I_M_ProductPrice> T firstMatching(final Class<T> type)
 	{
+		if (isUseProductPricesIndex())
+		{
+			// the index is already ordered by MatchSeqNo, M_ProductPrice_ID
+			final I_M_ProductPrice productPrice = streamFromProductPricesIndex()
+					.findFirst()
+					.orElse(null);
+			return InterfaceWrapperHelper.create(productPrice, type);
+		}
+
 		final IQueryBuilder<I_M_ProductPrice> queryBuilder = toQueryBuilder();
 
 		queryBuilder.orderBy()
@@ -181,9 +212,30 @@ public class ProductPriceQuery
 	/** @return true if there is at least one product price that matches */
 	public boolean matches()
 	{
+		if (isUseProductPricesIndex())
+		{
+			return streamFromProductPricesIndex().findAny().isPresent();
+		}
 		return toQuery().match();
 	}
 
+	/** @return the only matching product price or null; if there is more than one, an exception is thrown */
+	private <T extends I_M_ProductPrice> T firstOnly(final Class<T> type)
+	{
+		if (isUseProductPricesIndex())
+		{
+			final List<I_M_ProductPrice> productPrices = streamFromProductPricesIndex()
+					.limit(2)
+					.collect(Collectors.toList());
+			if (productPrices.size() <= 1)
+			{
+				return productPrices.isEmpty() ? null : InterfaceWrapperHelper.create(productPrices.get(0), type);
+			}
+			// more than one match: let the database query fail the usual way
+		}
+		return toQuery().firstOnly(type);
+	}
+
 	public I_M_ProductPrice retrieveDefault(final boolean strictDefault)
 	{
 		return retrieveDefault(strictDefault, I_M_ProductPrice.class);
@@ -250,6 +302,44 @@ public class ProductPriceQuery
 				.addEqualsFilter(I_M_ProductPrice.COLUMNNAME_M_Product_ID, getM_Product_ID())
 				.addOnlyActiveRecordsFilter();
 
+		final IAttributeDAO attributeDAO = Services.get(IAttributeDAO.class);
+		createFilters(productPrice -> retrieveProductPriceAttributes(attributeDAO, productPrice))
+				.forEach(queryBuilder::filter);
+
+		//
+		// Ordering
+		// NOTE: we don't know the best ordering at this point!
+		// queryBuilder.orderBy()
+		// .addColumn(I_M_ProductPrice.COLUMN_IsAttributeDependant, Direction.Ascending, Nulls.Last)
+		// .addColumn(I_M_ProductPrice.COLUMN_MatchSeqNo, Direction.Ascending, Nulls.Last)
+		// .addColumn(I_M_ProductPrice.COLUMN_M_ProductPrice_ID, Direction.Ascending, Nulls.Last);
+
+		return queryBuilder;
+	}
+
+	/**
+	 * @return active product prices of our price list version and product which are matching, ordered by MatchSeqNo, M_ProductPrice_ID
+	 */
+	private Stream<I_M_ProductPrice> streamFromProductPricesIndex()
+	{
+		final ProductPricesIndex productPricesIndex = ProductPricesIndex.forPriceListVersionId(getM_PriceList_Version_ID());
+		final List<IQueryFilter<I_M_ProductPrice>> filters = createFilters(productPricesIndex::getAttributeInstances);
+
+		return productPricesIndex.getProductPrices(getM_Product_ID())
+				.stream()
+				.filter(productPrice -> filters.stream().allMatch(filter -> filter.accept(productPrice)));
+	}
+
+	/**
+	 * Creates the filters which are applied on top of M_PriceList_Version_ID, M_Product_ID and IsActive.
+	 * They are used both in the database query and when matching the product prices from {@link ProductPricesIndex}.
+	 *
+	 * @param productPriceAttributesProvider provides the attribute instances of a product price's ASI
+	 */
+	private List<IQueryFilter<I_M_ProductPrice>> createFilters(final Function<I_M_ProductPrice, List<I_M_AttributeInstance>> productPriceAttributesProvider)
+	{
+		final List<IQueryFilter<I_M_ProductPrice>> filters = new ArrayList<>();
+
 		//
 		// Attribute pricing records
 		final Boolean attributePricing = getAttributePricing();
@@ -258,18 +348,18 @@ public class ProductPriceQuery
 			// Attributes matching enabled => match given ASI (if any)
 			if (attributePricing)
 			{
-				queryBuilder.addEqualsFilter(I_M_ProductPrice.COLUMN_IsAttributeDependant, true);
+				filters.add(EqualsQueryFilter.of(I_M_ProductPrice.COLUMN_IsAttributeDependant, true));
 
 				final I_M_AttributeSetInstance attributePricingASIToMatch = getAttributePricingASIToMatch();
 				if (attributePricingASIToMatch != null)
 				{
-					queryBuilder.filter(ASIProductPriceAttributesFilter.of(attributePricingASIToMatch));
+					filters.add(ASIProductPriceAttributesFilter.of(attributePricingASIToMatch, productPriceAttributesProvider));
 				}
 			}
 			// Attributes matching disabled => match only those product prices which are not attribute dependent
 			else
 			{
-				queryBuilder.addEqualsFilter(I_M_ProductPrice.COLUMN_IsAttributeDependant, false);
+				filters.add(EqualsQueryFilter.of(I_M_ProductPrice.COLUMN_IsAttributeDependant, false));
 			}
 		}
 
@@ -278,26 +368,42 @@ public class ProductPriceQuery
 		final Boolean scalePrice = getScalePrice();
 		if (scalePrice != null)
 		{
-			queryBuilder.addEqualsFilter(I_M_ProductPrice.COLUMN_UseScalePrice, scalePrice);
+			filters.add(EqualsQueryFilter.of(I_M_ProductPrice.COLUMN_UseScalePrice, scalePrice));
 		}
 
 		//
 		// Additional filters
-		final Collection<IProductPriceQueryMatcher> additionalMatchers = getAdditionalMatchers();
-		if (!additionalMatchers.isEmpty())
+		getAdditionalMatchers().forEach(matcher -> filters.add(matcher.getQueryFilter()));
+
+		return filters;
+	}
+
+	private static List<I_M_AttributeInstance> retrieveProductPriceAttributes(final IAttributeDAO attributeDAO, final I_M_ProductPrice productPrice)
+	{
+		final I_M_AttributeSetInstance productPriceASI = productPrice.getM_AttributeSetInstance();
+		if (productPriceASI == null || productPriceASI.getM_AttributeSetInstance_ID() <= 0)
 		{
-			additionalMatchers.forEach(matcher -> queryBuilder.filter(matcher.getQueryFilter()));
+			return ImmutableList.of();
 		}
 
-		//
-		// Ordering
-		// NOTE: we don't know the best ordering at this point!
-		// queryBuilder.orderBy()
-		// .addColumn(I_M_ProductPrice.COLUMN_IsAttributeDependant, Direction.Ascending, Nulls.Last)
-		// .addColumn(I_M_ProductPrice.COLUMN_MatchSeqNo, Direction.Ascending, Nulls.Last)
-		// .addColumn(I_M_ProductPrice.COLUMN_M_ProductPrice_ID, Direction.Ascending, Nulls.Last);
+		return attributeDAO.retrieveAttributeInstances(productPriceASI);
+	}
 
-		return queryBuilder;
+	/**
+	 * Match the product prices from {@link ProductPricesIndex} instead of querying the database.
+	 * <p>
+	 * NOTE: the index does not see product prices which are not committed yet and the returned product prices are shared, so they shall not be changed.
+	 * Also, {@link #retrieveDefault(boolean)} is always querying the database.
+	 */
+	public ProductPriceQuery usingProductPricesIndex()
+	{
+		_useProductPricesIndex = true;
+		return this;
+	}
+
+	private boolean isUseProductPricesIndex()
+	{
+		return _useProductPricesIndex;
 	}
 
 	public ProductPriceQuery setContextProvider(final Object contextProvider)
@@ -511,20 +617,23 @@ public class ProductPriceQuery
 
 	private static final class ASIProductPriceAttributesFilter implements IQueryFilter<I_M_ProductPrice>
 	{
-		public static final ASIProductPriceAttributesFilter of(final I_M_AttributeSetInstance asi)
+		public static final ASIProductPriceAttributesFilter of(final I_M_AttributeSetInstance asi, final Function<I_M_ProductPrice, List<I_M_AttributeInstance>> productPriceAttributesProvider)
 		{
-			return new ASIProductPriceAttributesFilter(asi);
+			return new ASIProductPriceAttributesFilter(asi, productPriceAttributesProvider);
 		}
 
 		private final transient IAttributeDAO attributeDAO = Services.get(IAttributeDAO.class);
 
 		private final I_M_AttributeSetInstance _asi;
 		private transient Map<Integer, I_M_AttributeInstance> _asiAttributes;
+		private final transient Function<I_M_ProductPrice, List<I_M_AttributeInstance>> productPriceAttributesProvider;
 
-		private ASIProductPriceAttributesFilter(final I_M_AttributeSetInstance asi)
+		private ASIProductPriceAttributesFilter(final I_M_AttributeSetInstance asi, final Function<I_M_ProductPrice, List<I_M_AttributeInstance>> productPriceAttributesProvider)
 		{
 			Check.assumeNotNull(asi, "Parameter asi is not null");
+			Check.assumeNotNull(productPriceAttributesProvider, "Parameter productPriceAttributesProvider is not null");
 			_asi = asi;
+			this.productPriceAttributesProvider = productPriceAttributesProvider;
 		}
 
 		@Override
@@ -557,7 +666,7 @@ public class ProductPriceQuery
 
 			// If there are no expected attributes (in product price),
 			// consider it as matching
-			final List<I_M_AttributeInstance> expectedAttributes = extractProductPriceAttributes(productPrice);
+			final List<I_M_AttributeInstance> expectedAttributes = productPriceAttributesProvider.apply(productPrice);
 			if (expectedAttributes.isEmpty())
 			{
 				return true;
@@ -607,17 +716,5 @@ public class ProductPriceQuery
 			}
 			return _asiAttributes;
 		}
-
-		private final List<I_M_AttributeInstance> extractProductPriceAttributes(final I_M_ProductPrice productPrice)
-		{
-			final I_M_AttributeSetInstance productPriceASI = productPrice.getM_AttributeSetInstance();
-			if (productPriceASI == null || productPriceASI.getM_AttributeSetInstance_ID() <= 0)
-			{
-				return ImmutableList.of();
-			}
-
-			final List<I_M_AttributeInstance> productPriceAttributes = attributeDAO.retrieveAttributeInstances(productPriceASI);
-			return productPriceAttributes;
-		}
 	}
 }
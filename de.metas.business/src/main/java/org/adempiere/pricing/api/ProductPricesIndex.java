@@ -0,0 +1,141 @@
+package org.adempiere.pricing.api;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.util.GuavaCollectors;
+import org.adempiere.util.Services;
+import org.compiere.model.I_M_AttributeInstance;
+import org.compiere.model.I_M_ProductPrice;
+import org.compiere.util.CCache;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimaps;
+
+import de.metas.logging.LogManager;
+
+/*
+ * #%L
+ * de.metas.business
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Immutable in-memory index of all active {@link I_M_ProductPrice}s of one price list version, including the attribute instances of attribute dependent product prices.
+ * <p>
+ * The index is built on first use (two queries) and is cached until an M_ProductPrice is changed.
+ * It is used by {@link ProductPriceQuery} so that pricing rules don't run a database query for each pricing call.
+ * <p>
+ * NOTE: like other cached master data, the index is loaded out of transaction, so it does not see uncommitted product prices.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class ProductPricesIndex
+{
+	public static final ProductPricesIndex forPriceListVersionId(final int priceListVersionId)
+	{
+		return cache.get(priceListVersionId, () -> load(Env.getCtx(), priceListVersionId));
+	}
+
+	private static final Logger logger = LogManager.getLogger(ProductPricesIndex.class);
+
+	private static final CCache<Integer, ProductPricesIndex> cache = CCache.newLRUCache(I_M_ProductPrice.Table_Name + "#by#" + I_M_ProductPrice.COLUMNNAME_M_PriceList_Version_ID, 20, 0);
+
+	/** Same order as {@link ProductPriceQuery#firstMatching()} uses */
+	private static final Comparator<I_M_ProductPrice> ORDER_MatchSeqNo = Comparator.<I_M_ProductPrice> comparingInt(I_M_ProductPrice::getMatchSeqNo)
+			.thenComparingInt(I_M_ProductPrice::getM_ProductPrice_ID);
+
+	private static final ProductPricesIndex load(final Properties ctx, final int priceListVersionId)
+	{
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+
+		final List<I_M_ProductPrice> productPrices = queryBL.createQueryBuilder(I_M_ProductPrice.class, ctx, ITrx.TRXNAME_None)
+				.addEqualsFilter(I_M_ProductPrice.COLUMNNAME_M_PriceList_Version_ID, priceListVersionId)
+				.addOnlyActiveRecordsFilter()
+				.create()
+				.list(I_M_ProductPrice.class);
+
+		//
+		// Attribute instances of all attribute dependent product prices, with one query
+		final Set<Integer> asiIds = productPrices.stream()
+				.filter(I_M_ProductPrice::isAttributeDependant)
+				.map(I_M_ProductPrice::getM_AttributeSetInstance_ID)
+				.filter(asiId -> asiId > 0)
+				.collect(GuavaCollectors.toImmutableSet());
+		final List<I_M_AttributeInstance> attributeInstances = asiIds.isEmpty() ? ImmutableList.of() : queryBL.createQueryBuilder(I_M_AttributeInstance.class, ctx, ITrx.TRXNAME_None)
+				.addInArrayFilter(I_M_AttributeInstance.COLUMNNAME_M_AttributeSetInstance_ID, asiIds)
+				.orderBy()
+				.addColumn(I_M_AttributeInstance.COLUMNNAME_M_Attribute_ID) // same order as IAttributeDAO.retrieveAttributeInstances
+				.endOrderBy()
+				.create()
+				.list(I_M_AttributeInstance.class);
+
+		final ProductPricesIndex index = new ProductPricesIndex(priceListVersionId, productPrices, attributeInstances);
+		logger.debug("Loaded {}", index);
+		return index;
+	}
+
+	private final int priceListVersionId;
+	private final ImmutableListMultimap<Integer, I_M_ProductPrice> productPricesByProductId;
+	private final ImmutableListMultimap<Integer, I_M_AttributeInstance> attributeInstancesByASIId;
+
+	private ProductPricesIndex(final int priceListVersionId, final List<I_M_ProductPrice> productPrices, final List<I_M_AttributeInstance> attributeInstances)
+	{
+		super();
+		this.priceListVersionId = priceListVersionId;
+		productPricesByProductId = Multimaps.index(ImmutableList.sortedCopyOf(ORDER_MatchSeqNo, productPrices), I_M_ProductPrice::getM_Product_ID);
+		attributeInstancesByASIId = Multimaps.index(attributeInstances, I_M_AttributeInstance::getM_AttributeSetInstance_ID);
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("priceListVersionId", priceListVersionId)
+				.add("products", productPricesByProductId.keySet().size())
+				.add("productPrices", productPricesByProductId.size())
+				.add("attributeInstances", attributeInstancesByASIId.size())
+				.toString();
+	}
+
+	/**
+	 * @return active product prices of given product, ordered by MatchSeqNo and M_ProductPrice_ID; never <code>null</code>
+	 */
+	public List<I_M_ProductPrice> getProductPrices(final int productId)
+	{
+		return productPricesByProductId.get(productId);
+	}
+
+	/**
+	 * @return attribute instances of the product price's ASI, ordered by M_Attribute_ID; never <code>null</code>
+	 */
+	public List<I_M_AttributeInstance> getAttributeInstances(final I_M_ProductPrice productPrice)
+	{
+		return attributeInstancesByASIId.get(productPrice.getM_AttributeSetInstance_ID());
+	}
+}
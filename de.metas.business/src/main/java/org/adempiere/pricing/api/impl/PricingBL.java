@@ -311,7 +311,7 @@ public class PricingBL implements IPricingBL
 		final I_M_PriceList_Version plv = pricingCtx.getM_PriceList_Version();
 		if (plv != null)
 		{
-			final I_M_ProductPrice productPrice = ProductPriceQuery.retrieveMainProductPriceIfExists(plv, product.getM_Product_ID())
+			final I_M_ProductPrice productPrice = ProductPriceQuery.retrieveMainProductPriceFromIndexIfExists(plv, product.getM_Product_ID())
 					.orElse(null);
 			if (productPrice == null)
 			{
@@ -0,0 +1,250 @@
+package org.adempiere.pricing.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.pricing.api.ProductPriceQuery.ProductPriceQueryMatcher;
+import org.adempiere.pricing.api.impl.ASIBuilder;
+import org.adempiere.pricing.api.impl.PricingTestHelper;
+import org.adempiere.pricing.api.impl.ProductPriceBuilder;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.test.AdempiereTestWatcher;
+import org.compiere.model.I_M_AttributeSetInstance;
+import org.compiere.model.I_M_PriceList_Version;
+import org.compiere.model.I_M_Product;
+import org.compiere.model.I_M_ProductPrice;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/*
+ * #%L
+ * de.metas.business
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Tests {@link ProductPriceQuery}, mainly that {@link ProductPriceQuery#usingProductPricesIndex()} matches the same product prices as the database query
+ * and that the {@link ProductPricesIndex} is invalidated when a product price is changed.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ProductPriceQueryTest
+{
+	@Rule
+	public AdempiereTestWatcher testWatcher = new AdempiereTestWatcher();
+
+	private PricingTestHelper helper;
+	private I_M_PriceList_Version plv;
+	private I_M_Product product;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		helper = new PricingTestHelper();
+		plv = helper.defaultPriceListVerion;
+		product = helper.defaultProduct;
+	}
+
+	@Test
+	public void test_MainProductPrice()
+	{
+		helper.newProductPriceBuilder()
+				.setASI(ASIBuilder.newInstance()
+						.setAttribute(helper.attr_Label, helper.attr_Label_Bio)
+						.build())
+				.setPrice(3)
+				.build();
+		final I_M_ProductPrice mainProductPrice = helper.newProductPriceBuilder()
+				.setPrice(2)
+				.build();
+
+		assertSameProductPrice(mainProductPrice, ProductPriceQuery.retrieveMainProductPriceIfExists(plv, product.getM_Product_ID()).orElse(null));
+		assertSameProductPrice(mainProductPrice, ProductPriceQuery.retrieveMainProductPriceFromIndexIfExists(plv, product.getM_Product_ID()).orElse(null));
+
+		final I_M_Product productWithoutPrice = helper.createProduct("ProductWithoutPrice");
+		Assert.assertFalse(ProductPriceQuery.retrieveMainProductPriceFromIndexIfExists(plv, productWithoutPrice.getM_Product_ID()).isPresent());
+		Assert.assertFalse(ProductPriceQuery.mainProductPriceExists(plv, productWithoutPrice.getM_Product_ID()));
+	}
+
+	@Test
+	public void test_AttributePricing()
+	{
+		final I_M_ProductPrice productPrice_CH_Bio = helper.newProductPriceBuilder()
+				.setASI(ASIBuilder.newInstance()
+						.setAttribute(helper.attr_Country, helper.attr_Country_CH)
+						.setAttribute(helper.attr_Label, helper.attr_Label_Bio)
+						.build())
+				.setPrice(3)
+				.build();
+		final I_M_ProductPrice productPrice_CH = helper.newProductPriceBuilder()
+				.setASI(ASIBuilder.newInstance()
+						.setAttribute(helper.attr_Country, helper.attr_Country_CH)
+						.setAttribute(helper.attr_Label, helper.attr_Label_NULL)
+						.build())
+				.setPrice(2)
+				.build();
+		final I_M_ProductPrice mainProductPrice = helper.newProductPriceBuilder()
+				.setPrice(1)
+				.build();
+
+		final I_M_AttributeSetInstance asi_CH_Bio = ASIBuilder.newInstance()
+				.setAttribute(helper.attr_Country, helper.attr_Country_CH)
+				.setAttribute(helper.attr_Label, helper.attr_Label_Bio)
+				.build();
+		assertFirstMatching(productPrice_CH_Bio, () -> newQuery().matchingAttributes(asi_CH_Bio));
+
+		final I_M_AttributeSetInstance asi_CH = ASIBuilder.newInstance()
+				.setAttribute(helper.attr_Country, helper.attr_Country_CH)
+				.build();
+		assertFirstMatching(productPrice_CH, () -> newQuery().matchingAttributes(asi_CH));
+
+		final I_M_AttributeSetInstance asi_DE = ASIBuilder.newInstance()
+				.setAttribute(helper.attr_Country, helper.attr_Country_DE)
+				.build();
+		assertFirstMatching(null, () -> newQuery().matchingAttributes(asi_DE));
+
+		// lowest MatchSeqNo first
+		assertFirstMatching(productPrice_CH_Bio, () -> newQuery().onlyAttributePricing());
+		assertFirstMatching(mainProductPrice, () -> newQuery().noAttributePricing());
+		assertFirstMatching(productPrice_CH_Bio, () -> newQuery().dontMatchAttributes());
+	}
+
+	@Test
+	public void test_ScalePricesAndMatchers()
+	{
+		final I_M_ProductPrice productPrice1 = helper.newProductPriceBuilder()
+				.setPrice(1)
+				.build();
+		final I_M_ProductPrice productPrice5 = helper.newProductPriceBuilder()
+				.setPrice(5)
+				.build();
+		productPrice5.setUseScalePrice(true);
+		InterfaceWrapperHelper.save(productPrice5);
+
+		assertFirstMatching(productPrice1, () -> newQuery());
+		assertFirstMatching(productPrice5, () -> newQuery().onlyScalePrices());
+
+		final ProductPriceQueryMatcher matcherPriceStdAtLeast3 = ProductPriceQueryMatcher.of("PriceStdAtLeast3", productPrice -> productPrice.getPriceStd().compareTo(BigDecimal.valueOf(3)) >= 0);
+		assertFirstMatching(productPrice5, () -> newQuery().matching(matcherPriceStdAtLeast3));
+
+		final ProductPriceQueryMatcher matcherPriceStdAtLeast10 = ProductPriceQueryMatcher.of("PriceStdAtLeast10", productPrice -> productPrice.getPriceStd().compareTo(BigDecimal.valueOf(10)) >= 0);
+		assertFirstMatching(null, () -> newQuery().matching(matcherPriceStdAtLeast10));
+	}
+
+	@Test
+	public void test_ProductPricesIndex_OrderAndActiveOnly()
+	{
+		final I_M_ProductPrice productPrice1 = helper.newProductPriceBuilder()
+				.setPrice(1)
+				.build();
+		productPrice1.setMatchSeqNo(20);
+		InterfaceWrapperHelper.save(productPrice1);
+
+		final I_M_ProductPrice productPrice2 = helper.newProductPriceBuilder()
+				.setPrice(2)
+				.build();
+		productPrice2.setMatchSeqNo(10);
+		InterfaceWrapperHelper.save(productPrice2);
+
+		final I_M_ProductPrice productPriceInactive = helper.newProductPriceBuilder()
+				.setPrice(3)
+				.build();
+		productPriceInactive.setMatchSeqNo(5);
+		productPriceInactive.setIsActive(false);
+		InterfaceWrapperHelper.save(productPriceInactive);
+
+		final List<I_M_ProductPrice> productPrices = ProductPricesIndex.forPriceListVersionId(plv.getM_PriceList_Version_ID()).getProductPrices(product.getM_Product_ID());
+		Assert.assertEquals(2, productPrices.size());
+		assertSameProductPrice(productPrice2, productPrices.get(0));
+		assertSameProductPrice(productPrice1, productPrices.get(1));
+
+		final I_M_Product productWithoutPrice = helper.createProduct("ProductWithoutPrice");
+		Assert.assertTrue(ProductPricesIndex.forPriceListVersionId(plv.getM_PriceList_Version_ID()).getProductPrices(productWithoutPrice.getM_Product_ID()).isEmpty());
+	}
+
+	@Test
+	public void test_ProductPricesIndex_InvalidatedOnProductPriceChange()
+	{
+		final int plvId = plv.getM_PriceList_Version_ID();
+		final I_M_ProductPrice productPrice = helper.newProductPriceBuilder()
+				.setPrice(2)
+				.build();
+
+		assertMainPriceStdFromIndex(2);
+		final ProductPricesIndex index = ProductPricesIndex.forPriceListVersionId(plvId);
+		Assert.assertSame("index shall be reused while nothing changed", index, ProductPricesIndex.forPriceListVersionId(plvId));
+
+		// change the price
+		productPrice.setPriceStd(BigDecimal.valueOf(5));
+		InterfaceWrapperHelper.save(productPrice);
+		Assert.assertNotSame("index shall be reloaded after a product price was changed", index, ProductPricesIndex.forPriceListVersionId(plvId));
+		assertMainPriceStdFromIndex(5);
+
+		// deactivate the price
+		productPrice.setIsActive(false);
+		InterfaceWrapperHelper.save(productPrice);
+		Assert.assertFalse(ProductPriceQuery.retrieveMainProductPriceFromIndexIfExists(plv, product.getM_Product_ID()).isPresent());
+
+		// add a new price
+		new ProductPriceBuilder(plv, product)
+				.setPrice(7)
+				.build();
+		assertMainPriceStdFromIndex(7);
+	}
+
+	private ProductPriceQuery newQuery()
+	{
+		return ProductPriceQuery.newInstance(plv)
+				.setM_Product_ID(product);
+	}
+
+	/**
+	 * Asserts that both the database query and the {@link ProductPricesIndex} are matching the expected product price.
+	 */
+	private void assertFirstMatching(final I_M_ProductPrice expected, final Supplier<ProductPriceQuery> querySupplier)
+	{
+		final ProductPriceQuery query = querySupplier.get();
+		assertSameProductPrice(expected, query.firstMatching());
+		Assert.assertEquals("matches: " + query, expected != null, query.matches());
+
+		final ProductPriceQuery queryUsingIndex = querySupplier.get().usingProductPricesIndex();
+		assertSameProductPrice(expected, queryUsingIndex.firstMatching());
+		Assert.assertEquals("matches: " + queryUsingIndex, expected != null, queryUsingIndex.matches());
+	}
+
+	private void assertMainPriceStdFromIndex(final int expectedPriceStd)
+	{
+		final I_M_ProductPrice productPrice = ProductPriceQuery.retrieveMainProductPriceFromIndexIfExists(plv, product.getM_Product_ID()).orElse(null);
+		Assert.assertNotNull("main product price", productPrice);
+		Assert.assertEquals(expectedPriceStd, productPrice.getPriceStd().intValueExact());
+	}
+
+	private static void assertSameProductPrice(final I_M_ProductPrice expected, final I_M_ProductPrice actual)
+	{
+		final int expectedId = expected == null ? -1 : expected.getM_ProductPrice_ID();
+		final int actualId = actual == null ? -1 : actual.getM_ProductPrice_ID();
+		Assert.assertEquals("M_ProductPrice_ID", expectedId, actualId);
+	}
+}
@@ -0,0 +1,81 @@
+package org.adempiere.pricing.api.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.pricing.api.IEditablePricingContext;
+import org.adempiere.pricing.api.IPricingResult;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_M_Product;
+
+/*
+ * #%L
+ * de.metas.business
+ * %%
+ * Copyright (C) 2017 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Manual test: calculates the prices of many products in a row, like when pricing a big order,
+ * and prints the throughput so it can be compared before/after changing the pricing rules.
+ * <p>
+ * No database is needed, it runs on the in-memory (POJO) persistence of the unit tests.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class PricingThroughputManualTest
+{
+	public static void main(final String[] args)
+	{
+		final int productsCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		final int pricingCallsCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+		AdempiereTestHelper.get().init();
+		final PricingTestHelper helper = new PricingTestHelper();
+
+		final List<I_M_Product> products = new ArrayList<>();
+		for (int i = 1; i <= productsCount; i++)
+		{
+			final I_M_Product product = helper.createProduct("Product_" + i);
+			new ProductPriceBuilder(helper.defaultPriceListVerion, product)
+					.setPrice(i)
+					.build();
+			products.add(product);
+		}
+
+		final long startNanos = System.nanoTime();
+		for (int i = 0; i < pricingCallsCount; i++)
+		{
+			final I_M_Product product = products.get(i % productsCount);
+			final IEditablePricingContext pricingCtx = helper.createPricingContext();
+			pricingCtx.setM_Product_ID(product.getM_Product_ID());
+
+			final IPricingResult result = helper.calculatePrice(pricingCtx);
+			if (result.getPriceStd().compareTo(BigDecimal.valueOf(i % productsCount + 1)) != 0)
+			{
+				throw new IllegalStateException("Invalid PriceStd for " + product.getName() + ": " + result);
+			}
+		}
+		final long durationMillis = (System.nanoTime() - startNanos) / 1000000;
+
+		System.out.println("Calculated " + pricingCallsCount + " prices for " + productsCount + " products in " + durationMillis + "ms"
+				+ " (" + (pricingCallsCount * 1000L / Math.max(durationMillis, 1)) + " prices/sec)");
+	}
+}
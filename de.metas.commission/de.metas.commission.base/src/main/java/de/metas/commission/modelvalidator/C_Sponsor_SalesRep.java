@@ -52,6 +52,15 @@ public class C_Sponsor_SalesRep
 	{
 		Services.get(ISponsorDAO.class).validate(sponsorSalesRep);
 	}
+
+	/**
+	 * Makes sure that the in-memory sponsor hierarchy does not miss changed links.
+	 */
+	@ModelChange(timings = { ModelValidator.TYPE_AFTER_NEW, ModelValidator.TYPE_AFTER_CHANGE, ModelValidator.TYPE_AFTER_DELETE })
+	public void invalidateSponsorHierarchy(final I_C_Sponsor_SalesRep sponsorSalesRep)
+	{
+		Services.get(ISponsorDAO.class).invalidateSponsorHierarchy(sponsorSalesRep);
+	}
 	
 	@ModelChange(
 			timings = {ModelValidator.TYPE_AFTER_NEW}, 
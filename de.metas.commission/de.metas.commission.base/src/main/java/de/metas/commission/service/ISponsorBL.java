@@ -151,6 +151,14 @@ public interface ISponsorBL extends ISingletonService
 
 	I_C_Sponsor retrieveRoot(Properties ctx, I_C_Sponsor sponsor, Timestamp date, String trxName);
 
+	/**
+	 * Retrieves the given sponsor's parent, grand parent etc up to the root sponsor at the given date, using the in-memory {@link SponsorHierarchy} and one query for all
+	 * the sponsor records.
+	 * 
+	 * @return ancestors, ordered from the parent to the root; empty list if the given sponsor is a root
+	 */
+	List<I_C_Sponsor> retrieveAncestors(Properties ctx, I_C_Sponsor sponsor, Timestamp date, String trxName);
+
 	/**
 	 * Returns the contract for the given sponsor at the given date.
 	 * 
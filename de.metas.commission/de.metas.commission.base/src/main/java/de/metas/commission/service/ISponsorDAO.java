@@ -170,6 +170,22 @@ public interface ISponsorDAO extends ISingletonService
 	 */
 	List<I_C_Sponsor_SalesRep> retrieveParentLinks(Properties ctx, int sponsorID, Timestamp validFrom, Timestamp validTo, String trxName);
 
+	/**
+	 * Retrieves the in-memory index of all active {@link X_C_Sponsor_SalesRep#SPONSORSALESREPTYPE_Hierarchie} links of the context's client.
+	 * <p>
+	 * The index is loaded once and then shared until a link is changed (see {@link #invalidateSponsorHierarchy(I_C_Sponsor_SalesRep)}).
+	 * If links were changed in the given transaction and that transaction is not committed yet, an index which also contains the uncommitted changes is loaded for that
+	 * transaction.
+	 */
+	SponsorHierarchy retrieveSponsorHierarchy(Properties ctx, String trxName);
+
+	/**
+	 * Invalidates the {@link SponsorHierarchy} because given link was created, changed or deleted.
+	 * <p>
+	 * The shared index is reset when the link's transaction is committed; until then, the link's transaction is using its own index.
+	 */
+	void invalidateSponsorHierarchy(I_C_Sponsor_SalesRep ssr);
+
 	List<I_C_Sponsor_SalesRep> retrieveSalesRepsForConditionSet(Properties ctx, Set<Integer> conditionIDs, String trxName);
 
 	List<I_C_Sponsor_SalesRep> retrieveSponsorSalesRepsForCondition(Properties ctx, I_C_AdvCommissionCondition condition, String trxName);
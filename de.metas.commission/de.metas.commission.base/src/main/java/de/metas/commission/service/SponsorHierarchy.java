@@ -0,0 +1,236 @@
+package de.metas.commission.service;
+
+/*
+ * #%L
+ * de.metas.commission.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.adempiere.util.Check;
+
+import de.metas.commission.model.I_C_Sponsor_SalesRep;
+import de.metas.commission.model.X_C_Sponsor_SalesRep;
+
+/**
+ * Immutable in-memory index of the {@link X_C_Sponsor_SalesRep#SPONSORSALESREPTYPE_Hierarchie} {@link I_C_Sponsor_SalesRep} links, i.e. of the sponsor tree over time.
+ * <p>
+ * It answers "who is the parent/root of this sponsor at this date" without database round trips, so that commission runs can climb deep hierarchies once per fact without one query
+ * per level. The date semantics are the same as in {@link ISponsorDAO#retrieveParentLinks(java.util.Properties, int, java.sql.Timestamp, java.sql.Timestamp, String)}: a link is valid
+ * at a given date if <code>ValidFrom <= date <= ValidTo</code>.
+ * <p>
+ * Use {@link ISponsorDAO#retrieveSponsorHierarchy(java.util.Properties, String)} to get the current instance.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class SponsorHierarchy
+{
+	public static final Builder builder()
+	{
+		return new Builder();
+	}
+
+	private static final Link[] NO_LINKS = new Link[0];
+
+	/** C_Sponsor_ID => parent links, ordered by ValidFrom */
+	private final Map<Integer, Link[]> sponsorId2parentLinks;
+	private final int linksCount;
+
+	private SponsorHierarchy(final Builder builder)
+	{
+		super();
+
+		final Map<Integer, Link[]> sponsorId2parentLinks = new HashMap<>(builder.sponsorId2parentLinks.size());
+		for (final Map.Entry<Integer, List<Link>> e : builder.sponsorId2parentLinks.entrySet())
+		{
+			final Link[] parentLinks = e.getValue().toArray(new Link[e.getValue().size()]);
+			Arrays.sort(parentLinks, Link.ORDER_BY_ValidFrom);
+			sponsorId2parentLinks.put(e.getKey(), parentLinks);
+		}
+		this.sponsorId2parentLinks = sponsorId2parentLinks;
+		linksCount = builder.linksCount;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SponsorHierarchy[sponsors=" + sponsorId2parentLinks.size() + ", links=" + linksCount + "]";
+	}
+
+	/**
+	 * @return how many links are indexed
+	 */
+	public int getLinksCount()
+	{
+		return linksCount;
+	}
+
+	/**
+	 * @return C_Sponsor_ID of the given sponsor's parent at the given date or <code>-1</code> if the sponsor is a root at that date
+	 * @throws org.adempiere.exceptions.AdempiereException if the sponsor has more than one parent at the given date
+	 */
+	public int getParentSponsorId(final int sponsorId, final Date date)
+	{
+		Check.assumeNotNull(date, "date not null");
+		final long time = date.getTime();
+
+		Link parentLink = null;
+		for (final Link link : getParentLinks(sponsorId))
+		{
+			if (link.validFrom > time)
+			{
+				break; // the links are ordered by ValidFrom, so all the following links are not valid yet
+			}
+			if (link.validTo < time)
+			{
+				continue;
+			}
+
+			Check.errorIf(parentLink != null, "C_Sponsor_ID={} has more than one parent: {}, {} at {}", sponsorId, parentLink, link, date);
+			parentLink = link;
+		}
+
+		if (parentLink == null || parentLink.parentSponsorId <= 0)
+		{
+			return -1;
+		}
+		return parentLink.parentSponsorId;
+	}
+
+	/**
+	 * @return the C_Sponsor_IDs of the given sponsor's parent, grand parent etc up to the root sponsor at the given date; empty list if the given sponsor is a root
+	 * @throws org.adempiere.exceptions.AdempiereException if the hierarchy has a cycle at the given date
+	 */
+	public List<Integer> getAncestorSponsorIds(final int sponsorId, final Date date)
+	{
+		final List<Integer> ancestorIds = new ArrayList<>();
+		final Set<Integer> seenSponsorIds = new HashSet<>();
+		seenSponsorIds.add(sponsorId);
+
+		int parentSponsorId = getParentSponsorId(sponsorId, date);
+		while (parentSponsorId > 0)
+		{
+			Check.errorIf(!seenSponsorIds.add(parentSponsorId), "The sponsor hierarchy of C_Sponsor_ID={} has a cycle at {}: {}", sponsorId, date, ancestorIds);
+			ancestorIds.add(parentSponsorId);
+
+			parentSponsorId = getParentSponsorId(parentSponsorId, date);
+		}
+
+		return ancestorIds;
+	}
+
+	/**
+	 * @return C_Sponsor_ID of the given sponsor's root at the given date; the given sponsor ID if it is a root itself
+	 */
+	public int getRootSponsorId(final int sponsorId, final Date date)
+	{
+		final List<Integer> ancestorIds = getAncestorSponsorIds(sponsorId, date);
+		if (ancestorIds.isEmpty())
+		{
+			return sponsorId;
+		}
+		return ancestorIds.get(ancestorIds.size() - 1);
+	}
+
+	private Link[] getParentLinks(final int sponsorId)
+	{
+		final Link[] parentLinks = sponsorId2parentLinks.get(sponsorId);
+		return parentLinks == null ? NO_LINKS : parentLinks;
+	}
+
+	private static final class Link
+	{
+		private static final Comparator<Link> ORDER_BY_ValidFrom = new Comparator<Link>()
+		{
+			@Override
+			public int compare(final Link link1, final Link link2)
+			{
+				return Long.compare(link1.validFrom, link2.validFrom);
+			}
+		};
+
+		private final int parentSponsorId;
+		private final long validFrom;
+		private final long validTo;
+
+		private Link(final int parentSponsorId, final Date validFrom, final Date validTo)
+		{
+			super();
+			this.parentSponsorId = parentSponsorId;
+			this.validFrom = validFrom == null ? Long.MIN_VALUE : validFrom.getTime();
+			this.validTo = validTo == null ? Long.MAX_VALUE : validTo.getTime();
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Link[C_Sponsor_Parent_ID=" + parentSponsorId + ", ValidFrom=" + new Date(validFrom) + ", ValidTo=" + new Date(validTo) + "]";
+		}
+	}
+
+	public static final class Builder
+	{
+		private final Map<Integer, List<Link>> sponsorId2parentLinks = new HashMap<>();
+		private int linksCount = 0;
+
+		private Builder()
+		{
+			super();
+		}
+
+		public SponsorHierarchy build()
+		{
+			return new SponsorHierarchy(this);
+		}
+
+		/**
+		 * Adds a hierarchy link.
+		 *
+		 * @param sponsorId C_Sponsor_ID
+		 * @param parentSponsorId C_Sponsor_Parent_ID; <code><= 0</code> means that the sponsor is a root in the given interval
+		 * @param validFrom ValidFrom; <code>null</code> means no lower bound
+		 * @param validTo ValidTo; <code>null</code> means no upper bound
+		 */
+		public Builder addLink(final int sponsorId, final int parentSponsorId, final Date validFrom, final Date validTo)
+		{
+			Check.assume(sponsorId > 0, "sponsorId > 0");
+
+			List<Link> parentLinks = sponsorId2parentLinks.get(sponsorId);
+			if (parentLinks == null)
+			{
+				parentLinks = new ArrayList<>();
+				sponsorId2parentLinks.put(sponsorId, parentLinks);
+			}
+			parentLinks.add(new Link(parentSponsorId, validFrom, validTo));
+			linksCount++;
+			return this;
+		}
+	}
+}
@@ -29,6 +29,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
@@ -36,14 +37,21 @@ import org.adempiere.ad.dao.IQueryFilter;
 import org.adempiere.ad.dao.impl.ActiveRecordQueryFilter;
 import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
 import org.adempiere.ad.dao.impl.InArrayQueryFilter;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.exceptions.FillMandatoryException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
+import org.adempiere.util.lang.Mutable;
 import org.adempiere.util.proxy.Cached;
 import org.compiere.model.PO;
 import org.compiere.model.Query;
+import org.compiere.util.CCache;
+import org.compiere.util.CacheMgt;
+import org.compiere.util.Env;
 import org.slf4j.Logger;
 import de.metas.logging.LogManager;
 
@@ -56,6 +64,7 @@ import de.metas.commission.model.I_C_Sponsor_SalesRep;
 import de.metas.commission.model.X_C_Sponsor_SalesRep;
 import de.metas.commission.service.ISponsorBL;
 import de.metas.commission.service.ISponsorDAO;
+import de.metas.commission.service.SponsorHierarchy;
 import de.metas.commission.util.CommissionConstants;
 import de.metas.commission.util.Messages;
 
@@ -63,6 +72,11 @@ public abstract class AbstractSponsorDAO implements ISponsorDAO
 {
 	protected final transient Logger logger = LogManager.getLogger(getClass());
 
+	private static final String TRXPROPERTY_SponsorHierarchy = SponsorHierarchy.class.getName();
+
+	/** AD_Client_ID => committed sponsor hierarchy; reset when a {@link I_C_Sponsor_SalesRep} is changed, see {@link #invalidateSponsorHierarchy(I_C_Sponsor_SalesRep)} */
+	private final CCache<Integer, SponsorHierarchy> sponsorHierarchyCache = new CCache<>(I_C_Sponsor_SalesRep.Table_Name + "#SponsorHierarchy", 1, 0);
+
 	@Cached
 	@Override
 	public I_C_Sponsor retrieveForBPartner(
@@ -667,4 +681,77 @@ public abstract class AbstractSponsorDAO implements ISponsorDAO
 				.create()
 				.list(I_C_Sponsor_SalesRep.class);
 	}
+
+	@Override
+	public SponsorHierarchy retrieveSponsorHierarchy(final Properties ctx, final String trxName)
+	{
+		//
+		// If the links were changed in this transaction, use (and keep) an index which also contains the uncommitted changes
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.get(trxName, OnTrxMissingPolicy.ReturnTrxNone);
+		if (!trxManager.isNull(trx) && trx.getProperty(TRXPROPERTY_SponsorHierarchy) != null)
+		{
+			final Mutable<SponsorHierarchy> trxSponsorHierarchy = trx.getProperty(TRXPROPERTY_SponsorHierarchy);
+			if (trxSponsorHierarchy.getValue() == null)
+			{
+				trxSponsorHierarchy.setValue(loadSponsorHierarchy(ctx, trxName));
+			}
+			return trxSponsorHierarchy.getValue();
+		}
+
+		final int adClientId = Env.getAD_Client_ID(ctx);
+		return sponsorHierarchyCache.getOrLoad(adClientId, new Callable<SponsorHierarchy>()
+		{
+			@Override
+			public SponsorHierarchy call()
+			{
+				return loadSponsorHierarchy(ctx, ITrx.TRXNAME_None);
+			}
+		});
+	}
+
+	@Override
+	public void invalidateSponsorHierarchy(final I_C_Sponsor_SalesRep ssr)
+	{
+		final String trxName = InterfaceWrapperHelper.getTrxName(ssr);
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.get(trxName, OnTrxMissingPolicy.ReturnTrxNone);
+		if (!trxManager.isNull(trx))
+		{
+			// an empty mutable means: (re)load the index in this transaction on next retrieveSponsorHierarchy() call
+			trx.setProperty(TRXPROPERTY_SponsorHierarchy, new Mutable<SponsorHierarchy>());
+		}
+
+		CacheMgt.get().resetOnTrxCommit(trxName, I_C_Sponsor_SalesRep.Table_Name, CacheMgt.RECORD_ID_ALL);
+	}
+
+	/**
+	 * Loads the active {@link X_C_Sponsor_SalesRep#SPONSORSALESREPTYPE_Hierarchie} links of the context's client with one query, selecting only the columns which are indexed.
+	 */
+	protected final SponsorHierarchy loadSponsorHierarchy(final Properties ctx, final String trxName)
+	{
+		final List<Object[]> rows = Services.get(IQueryBL.class).createQueryBuilder(I_C_Sponsor_SalesRep.class, ctx, trxName)
+				.addOnlyActiveRecordsFilter()
+				.addOnlyContextClient()
+				.addEqualsFilter(I_C_Sponsor_SalesRep.COLUMNNAME_SponsorSalesRepType, X_C_Sponsor_SalesRep.SPONSORSALESREPTYPE_Hierarchie)
+				.create()
+				.selectColumns()
+				.addColumn(I_C_Sponsor_SalesRep.COLUMNNAME_C_Sponsor_ID)
+				.addColumn(I_C_Sponsor_SalesRep.COLUMNNAME_C_Sponsor_Parent_ID)
+				.addColumn(I_C_Sponsor_SalesRep.COLUMNNAME_ValidFrom)
+				.addColumn(I_C_Sponsor_SalesRep.COLUMNNAME_ValidTo)
+				.listArrays();
+
+		final SponsorHierarchy.Builder builder = SponsorHierarchy.builder();
+		for (final Object[] row : rows)
+		{
+			final int parentSponsorId = row[1] == null ? -1 : ((Number)row[1]).intValue();
+			builder.addLink(((Number)row[0]).intValue(), parentSponsorId, (Timestamp)row[2], (Timestamp)row[3]);
+		}
+
+		final SponsorHierarchy sponsorHierarchy = builder.build();
+		logger.debug("Loaded {}", sponsorHierarchy);
+		return sponsorHierarchy;
+	}
 }
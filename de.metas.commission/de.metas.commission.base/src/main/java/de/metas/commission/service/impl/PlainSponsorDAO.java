@@ -39,6 +39,7 @@ import org.adempiere.util.Services;
 import de.metas.commission.model.I_C_Sponsor;
 import de.metas.commission.model.I_C_Sponsor_SalesRep;
 import de.metas.commission.model.X_C_Sponsor_SalesRep;
+import de.metas.commission.service.SponsorHierarchy;
 
 public class PlainSponsorDAO extends AbstractSponsorDAO
 {
@@ -81,4 +82,13 @@ public class PlainSponsorDAO extends AbstractSponsorDAO
 				.create()
 				.list(I_C_Sponsor_SalesRep.class);
 	}
+
+	/**
+	 * Loads the hierarchy on each call, because in unit tests the links are saved without the model interceptors which would invalidate the cached one.
+	 */
+	@Override
+	public SponsorHierarchy retrieveSponsorHierarchy(final Properties ctx, final String trxName)
+	{
+		return loadSponsorHierarchy(ctx, trxName);
+	}
 }
@@ -34,6 +34,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -42,6 +43,7 @@ import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
@@ -90,6 +92,7 @@ import de.metas.commission.service.ICommissionTypeBL;
 import de.metas.commission.service.ISalesRepFactBL;
 import de.metas.commission.service.ISponsorBL;
 import de.metas.commission.service.ISponsorDAO;
+import de.metas.commission.service.SponsorHierarchy;
 import de.metas.commission.util.CommissionConstants;
 import de.metas.commission.util.CommissionTools;
 import de.metas.commission.util.Messages;
@@ -883,38 +886,57 @@ public class SponsorBL implements ISponsorBL
 	@Override
 	public I_C_Sponsor retrieveParent(final Properties ctx, final I_C_Sponsor sponsor, final Timestamp ts, final String trxName)
 	{
-		final List<I_C_Sponsor_SalesRep> parents = Services.get(ISponsorDAO.class).retrieveParentLinks(ctx, sponsor.getC_Sponsor_ID(), ts, ts, trxName);
+		final SponsorHierarchy sponsorHierarchy = Services.get(ISponsorDAO.class).retrieveSponsorHierarchy(ctx, trxName);
 
-		Check.errorIf(parents.size() > 1, "{} has more than one parent: {} at {}", sponsor, parents, ts);
-
-		if (parents.isEmpty())
+		final int parentSponsorId = sponsorHierarchy.getParentSponsorId(sponsor.getC_Sponsor_ID(), ts);
+		if (parentSponsorId <= 0)
 		{
 			return null;
 		}
-		return parents.get(0).getC_Sponsor_Parent();
+		return InterfaceWrapperHelper.create(ctx, parentSponsorId, I_C_Sponsor.class, trxName);
 	}
 
 	@Override
 	public I_C_Sponsor retrieveRoot(final Properties ctx, final I_C_Sponsor sponsor, final Timestamp date, final String trxName)
 	{
-		I_C_Sponsor parent = retrieveParent(ctx, sponsor, date, trxName);
-		if (parent == null)
+		final SponsorHierarchy sponsorHierarchy = Services.get(ISponsorDAO.class).retrieveSponsorHierarchy(ctx, trxName);
+
+		final int rootSponsorId = sponsorHierarchy.getRootSponsorId(sponsor.getC_Sponsor_ID(), date);
+		if (rootSponsorId == sponsor.getC_Sponsor_ID())
 		{
 			return sponsor;
 		}
+		return InterfaceWrapperHelper.create(ctx, rootSponsorId, I_C_Sponsor.class, trxName);
+	}
 
-		I_C_Sponsor current = sponsor;
+	@Override
+	public List<I_C_Sponsor> retrieveAncestors(final Properties ctx, final I_C_Sponsor sponsor, final Timestamp date, final String trxName)
+	{
+		final SponsorHierarchy sponsorHierarchy = Services.get(ISponsorDAO.class).retrieveSponsorHierarchy(ctx, trxName);
 
-		while (parent != null)
+		final List<Integer> ancestorIds = sponsorHierarchy.getAncestorSponsorIds(sponsor.getC_Sponsor_ID(), date);
+		if (ancestorIds.isEmpty())
 		{
-			parent = retrieveParent(ctx, current, date, trxName);
-			if (parent != null)
-			{
-				current = parent;
-			}
+			return Collections.emptyList();
+		}
+
+		final Map<Integer, I_C_Sponsor> ancestorsById = new HashMap<Integer, I_C_Sponsor>(ancestorIds.size());
+		for (final I_C_Sponsor ancestor : Services.get(IQueryBL.class).createQueryBuilder(I_C_Sponsor.class, ctx, trxName)
+				.addInArrayFilter(I_C_Sponsor.COLUMNNAME_C_Sponsor_ID, ancestorIds)
+				.create()
+				.list(I_C_Sponsor.class))
+		{
+			ancestorsById.put(ancestor.getC_Sponsor_ID(), ancestor);
+		}
+
+		final List<I_C_Sponsor> ancestors = new ArrayList<I_C_Sponsor>(ancestorIds.size());
+		for (final Integer ancestorId : ancestorIds)
+		{
+			final I_C_Sponsor ancestor = ancestorsById.get(ancestorId);
+			Check.errorIf(ancestor == null, "Missing C_Sponsor_ID={} which is an ancestor of {} at {}", ancestorId, sponsor, date);
+			ancestors.add(ancestor);
 		}
-		assert current != null;
-		return current;
+		return ancestors;
 	}
 
 	@Override
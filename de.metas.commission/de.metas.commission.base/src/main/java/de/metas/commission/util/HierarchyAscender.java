@@ -26,6 +26,7 @@ package de.metas.commission.util;
 import java.sql.Timestamp;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -59,6 +60,14 @@ public abstract class HierarchyAscender extends HierarchyClimber
 
 		final Map<String, Object> contextInfo = new HashMap<String, Object>();
 
+		// load the whole upline at once, instead of querying the parent of each level
+		final ISponsorBL sponsorBL = Services.get(ISponsorBL.class);
+		final Iterator<I_C_Sponsor> ancestors = sponsorBL.retrieveAncestors(
+				InterfaceWrapperHelper.getCtx(sponsor),
+				sponsor, date,
+				InterfaceWrapperHelper.getTrxName(sponsor))
+				.iterator();
+
 		I_C_Sponsor sponsorCurrentLevel = sponsor;
 
 		int logicalLevel = 0;
@@ -96,16 +105,11 @@ public abstract class HierarchyAscender extends HierarchyClimber
 				break;
 			}
 
-			final ISponsorBL sponsorBL = Services.get(ISponsorBL.class);
-			sponsorCurrentLevel = sponsorBL.retrieveParent(
-					InterfaceWrapperHelper.getCtx(sponsor),
-					sponsorCurrentLevel, date,
-					InterfaceWrapperHelper.getTrxName(sponsor));
-
-			if (sponsorCurrentLevel == null)
+			if (!ancestors.hasNext())
 			{
 				break;
 			}
+			sponsorCurrentLevel = ancestors.next();
 			sponsorSeen(sponsorCurrentLevel);
 		}
 	}
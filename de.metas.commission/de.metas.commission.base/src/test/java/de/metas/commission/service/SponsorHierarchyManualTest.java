@@ -0,0 +1,207 @@
+package de.metas.commission.service;
+
+/*
+ * #%L
+ * de.metas.commission.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.util.Env;
+import org.compiere.util.TimeUtil;
+
+import de.metas.commission.model.I_C_AdvComSystem;
+import de.metas.commission.model.I_C_Sponsor;
+import de.metas.commission.model.I_C_Sponsor_SalesRep;
+import de.metas.commission.model.X_C_Sponsor_SalesRep;
+
+/**
+ * Manual test: creates a synthetic sponsor tree with {@value #LEVELS} levels and compares climbing it from every leaf (once per simulated commission fact)
+ * <ul>
+ * <li>with one {@link ISponsorDAO#retrieveParentLinks(Properties, int, Timestamp, Timestamp, String)} query per level, like it was done before
+ * <li>with the in-memory {@link SponsorHierarchy}
+ * </ul>
+ * The tree is created in a transaction which is rolled back at the end.
+ * <p>
+ * Needs a database (configured like for the swing client). Arguments: fan out (default 2) and facts per leaf (default 5).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class SponsorHierarchyManualTest
+{
+	private static final int LEVELS = 10;
+
+	public static void main(final String[] args)
+	{
+		final int fanOut = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		final int factsPerLeaf = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Adempiere.startupEnvironment(false);
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName(SponsorHierarchyManualTest.class.getSimpleName(), true);
+		final ITrx trx = trxManager.get(trxName, false);
+		try
+		{
+			final SponsorHierarchyManualTest test = new SponsorHierarchyManualTest(trxName, factsPerLeaf);
+			test.createTree(fanOut);
+			for (int round = 1; round <= 3; round++) // first round(s) are warming up
+			{
+				test.runPerLevelQueries();
+				test.runSponsorHierarchy();
+			}
+		}
+		finally
+		{
+			trx.rollback();
+			trx.close();
+		}
+	}
+
+	private final Properties ctx = Env.getCtx();
+	private final String trxName;
+	private final int factsPerLeaf;
+
+	private final Timestamp validFrom = TimeUtil.getDay(2016, 1, 1);
+	private final Timestamp validTo = TimeUtil.getDay(2016, 12, 31);
+	private final List<Integer> leafSponsorIds = new ArrayList<>();
+
+	private SponsorHierarchyManualTest(final String trxName, final int factsPerLeaf)
+	{
+		super();
+		this.trxName = trxName;
+		this.factsPerLeaf = factsPerLeaf;
+	}
+
+	private void createTree(final int fanOut)
+	{
+		final int comSystemId = Services.get(IQueryBL.class).createQueryBuilder(I_C_AdvComSystem.class, ctx, trxName)
+				.addOnlyActiveRecordsFilter()
+				.create()
+				.firstId();
+
+		final long startNanos = System.nanoTime();
+		List<Integer> levelSponsorIds = new ArrayList<>();
+		levelSponsorIds.add(createSponsor("root"));
+		int sponsorsCount = 1;
+
+		for (int level = 1; level < LEVELS; level++)
+		{
+			final List<Integer> nextLevelSponsorIds = new ArrayList<>();
+			for (final int parentSponsorId : levelSponsorIds)
+			{
+				for (int i = 0; i < fanOut; i++)
+				{
+					final int sponsorId = createSponsor(level + "-" + nextLevelSponsorIds.size());
+					createLink(sponsorId, parentSponsorId, comSystemId);
+					nextLevelSponsorIds.add(sponsorId);
+				}
+			}
+			sponsorsCount += nextLevelSponsorIds.size();
+			levelSponsorIds = nextLevelSponsorIds;
+		}
+
+		leafSponsorIds.addAll(levelSponsorIds);
+		System.out.println("Created " + sponsorsCount + " sponsors (" + leafSponsorIds.size() + " leafs) in " + (System.nanoTime() - startNanos) / 1000000 + "ms");
+	}
+
+	private int createSponsor(final String name)
+	{
+		final I_C_Sponsor sponsor = InterfaceWrapperHelper.create(ctx, I_C_Sponsor.class, trxName);
+		sponsor.setSponsorNo(SponsorHierarchyManualTest.class.getSimpleName() + "-" + name);
+		InterfaceWrapperHelper.save(sponsor);
+		return sponsor.getC_Sponsor_ID();
+	}
+
+	private void createLink(final int sponsorId, final int parentSponsorId, final int comSystemId)
+	{
+		final I_C_Sponsor_SalesRep ssr = InterfaceWrapperHelper.create(ctx, I_C_Sponsor_SalesRep.class, trxName);
+		ssr.setC_AdvComSystem_ID(comSystemId);
+		ssr.setSponsorSalesRepType(X_C_Sponsor_SalesRep.SPONSORSALESREPTYPE_Hierarchie);
+		ssr.setC_Sponsor_ID(sponsorId);
+		ssr.setC_Sponsor_Parent_ID(parentSponsorId);
+		ssr.setValidFrom(validFrom);
+		ssr.setValidTo(validTo);
+		InterfaceWrapperHelper.save(ssr);
+	}
+
+	private Timestamp getFactDate(final int fact)
+	{
+		return TimeUtil.addDays(validFrom, fact * 365 / factsPerLeaf);
+	}
+
+	private void runPerLevelQueries()
+	{
+		final ISponsorDAO sponsorDAO = Services.get(ISponsorDAO.class);
+
+		final long startNanos = System.nanoTime();
+		int levelsCount = 0;
+		for (final int leafSponsorId : leafSponsorIds)
+		{
+			for (int fact = 0; fact < factsPerLeaf; fact++)
+			{
+				final Timestamp date = getFactDate(fact);
+				int sponsorId = leafSponsorId;
+				while (sponsorId > 0)
+				{
+					final List<I_C_Sponsor_SalesRep> parentLinks = sponsorDAO.retrieveParentLinks(ctx, sponsorId, date, date, trxName);
+					sponsorId = parentLinks.isEmpty() ? -1 : parentLinks.get(0).getC_Sponsor_Parent_ID();
+					levelsCount++;
+				}
+			}
+		}
+		print("per level queries", levelsCount, startNanos);
+	}
+
+	private void runSponsorHierarchy()
+	{
+		final ISponsorDAO sponsorDAO = Services.get(ISponsorDAO.class);
+
+		final long startNanos = System.nanoTime();
+		int levelsCount = 0;
+		for (final int leafSponsorId : leafSponsorIds)
+		{
+			for (int fact = 0; fact < factsPerLeaf; fact++)
+			{
+				final SponsorHierarchy sponsorHierarchy = sponsorDAO.retrieveSponsorHierarchy(ctx, trxName);
+				levelsCount += sponsorHierarchy.getAncestorSponsorIds(leafSponsorId, getFactDate(fact)).size() + 1;
+			}
+		}
+		print("sponsor hierarchy", levelsCount, startNanos);
+	}
+
+	private void print(final String name, final int levelsCount, final long startNanos)
+	{
+		final long durationMillis = (System.nanoTime() - startNanos) / 1000000;
+		final int factsCount = leafSponsorIds.size() * factsPerLeaf;
+		System.out.println(name + ": " + factsCount + " facts, " + levelsCount + " levels in " + durationMillis + "ms");
+	}
+}
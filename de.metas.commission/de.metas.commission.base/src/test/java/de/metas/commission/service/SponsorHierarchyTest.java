@@ -0,0 +1,153 @@
+package de.metas.commission.service;
+
+/*
+ * #%L
+ * de.metas.commission.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link SponsorHierarchy}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class SponsorHierarchyTest
+{
+	private static final Timestamp JAN_01 = day("2016-01-01");
+	private static final Timestamp JAN_31 = day("2016-01-31");
+	private static final Timestamp FEB_01 = day("2016-02-01");
+	private static final Timestamp FEB_15 = day("2016-02-15");
+	private static final Timestamp DEC_31 = day("2016-12-31");
+
+	private static Timestamp day(final String date)
+	{
+		return Timestamp.valueOf(date + " 00:00:00");
+	}
+
+	@Test
+	public void test_getParentSponsorId_ValidFromValidTo()
+	{
+		final SponsorHierarchy sponsorHierarchy = SponsorHierarchy.builder()
+				.addLink(3, 1, JAN_01, JAN_31)
+				.addLink(3, 2, FEB_01, DEC_31)
+				.build();
+
+		Assert.assertEquals(1, sponsorHierarchy.getParentSponsorId(3, JAN_01));
+		Assert.assertEquals(1, sponsorHierarchy.getParentSponsorId(3, JAN_31));
+		Assert.assertEquals(2, sponsorHierarchy.getParentSponsorId(3, FEB_01));
+		Assert.assertEquals(2, sponsorHierarchy.getParentSponsorId(3, DEC_31));
+		Assert.assertEquals(-1, sponsorHierarchy.getParentSponsorId(3, day("2015-12-31")));
+		Assert.assertEquals(-1, sponsorHierarchy.getParentSponsorId(3, day("2017-01-01")));
+
+		// unknown sponsor and sponsor without parent
+		Assert.assertEquals(-1, sponsorHierarchy.getParentSponsorId(1, FEB_15));
+		Assert.assertEquals(-1, sponsorHierarchy.getParentSponsorId(4711, FEB_15));
+	}
+
+	@Test
+	public void test_getAncestorSponsorIds()
+	{
+		final SponsorHierarchy sponsorHierarchy = SponsorHierarchy.builder()
+				.addLink(4, 3, JAN_01, DEC_31)
+				.addLink(3, 2, JAN_01, JAN_31)
+				.addLink(3, 1, FEB_01, DEC_31)
+				.addLink(2, 1, JAN_01, DEC_31)
+				.build();
+
+		Assert.assertEquals(Arrays.asList(3, 2, 1), sponsorHierarchy.getAncestorSponsorIds(4, JAN_31));
+		Assert.assertEquals(Arrays.asList(3, 1), sponsorHierarchy.getAncestorSponsorIds(4, FEB_15));
+		Assert.assertEquals(Collections.emptyList(), sponsorHierarchy.getAncestorSponsorIds(1, FEB_15));
+
+		Assert.assertEquals(1, sponsorHierarchy.getRootSponsorId(4, JAN_31));
+		Assert.assertEquals(1, sponsorHierarchy.getRootSponsorId(1, JAN_31));
+		Assert.assertEquals(4, sponsorHierarchy.getRootSponsorId(4, day("2017-01-01")));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void test_getParentSponsorId_MoreThanOneParent()
+	{
+		final SponsorHierarchy sponsorHierarchy = SponsorHierarchy.builder()
+				.addLink(3, 1, JAN_01, FEB_15)
+				.addLink(3, 2, FEB_01, DEC_31)
+				.build();
+
+		Assert.assertEquals(1, sponsorHierarchy.getParentSponsorId(3, JAN_31));
+		sponsorHierarchy.getParentSponsorId(3, FEB_01);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void test_getAncestorSponsorIds_Cycle()
+	{
+		final SponsorHierarchy sponsorHierarchy = SponsorHierarchy.builder()
+				.addLink(3, 2, JAN_01, DEC_31)
+				.addLink(2, 1, JAN_01, DEC_31)
+				.addLink(1, 3, JAN_01, DEC_31)
+				.build();
+
+		sponsorHierarchy.getAncestorSponsorIds(3, JAN_31);
+	}
+
+	/**
+	 * Synthetic tree with 10 levels and a fan out of 3, like the one used in {@link SponsorHierarchyManualTest}.
+	 */
+	@Test
+	public void test_TenLevels()
+	{
+		final int levels = 10;
+		final int fanOut = 3;
+
+		final SponsorHierarchy.Builder builder = SponsorHierarchy.builder();
+		int lastSponsorId = 1; // root
+		int levelFirstSponsorId = 1;
+		int levelSponsorsCount = 1;
+		for (int level = 1; level < levels; level++)
+		{
+			final int nextLevelFirstSponsorId = lastSponsorId + 1;
+			for (int parentSponsorId = levelFirstSponsorId; parentSponsorId < levelFirstSponsorId + levelSponsorsCount; parentSponsorId++)
+			{
+				for (int i = 0; i < fanOut; i++)
+				{
+					lastSponsorId++;
+					builder.addLink(lastSponsorId, parentSponsorId, JAN_01, DEC_31);
+				}
+			}
+			levelFirstSponsorId = nextLevelFirstSponsorId;
+			levelSponsorsCount *= fanOut;
+		}
+		final SponsorHierarchy sponsorHierarchy = builder.build();
+		Assert.assertEquals(lastSponsorId - 1, sponsorHierarchy.getLinksCount());
+
+		for (int leafSponsorId = levelFirstSponsorId; leafSponsorId <= lastSponsorId; leafSponsorId++)
+		{
+			final List<Integer> ancestorIds = sponsorHierarchy.getAncestorSponsorIds(leafSponsorId, FEB_15);
+			Assert.assertEquals(levels - 1, ancestorIds.size());
+			Assert.assertEquals(Integer.valueOf(1), ancestorIds.get(levels - 2));
+		}
+	}
+}
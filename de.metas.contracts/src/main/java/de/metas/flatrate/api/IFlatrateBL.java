@@ -102,6 +102,14 @@ public interface IFlatrateBL extends ISingletonService
 	 */
 	void extendContract(I_C_Flatrate_Term term, boolean forceExtend, Boolean completeNewTerm, final Timestamp nextTermStartDate, I_C_OrderLine ol);
 
+	/**
+	 * Same as {@link #extendContract(I_C_Flatrate_Term, boolean, Boolean, Timestamp, I_C_OrderLine)}, but the new term is created in the given transaction
+	 * instead of a new one, so the caller can commit or roll it back together with its own changes (see {@link de.metas.flatrate.async.FlatrateTermsExtender}).
+	 *
+	 * @param trxName transaction to use; not null
+	 */
+	void extendContract(I_C_Flatrate_Term term, boolean forceExtend, Boolean completeNewTerm, final Timestamp nextTermStartDate, I_C_OrderLine ol, String trxName);
+
 	/**
 	 * Updates the <code>NoticeDate</code> and <code>EndDate</code> dates of the given term, using the term's values such as <code>StartDate</code>, as well as the {@link I_C_Flatrate_Transition}
 	 * associated with the term.
@@ -27,8 +27,10 @@ import java.math.RoundingMode;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import org.adempiere.ad.table.api.IADTableDAO;
 import org.adempiere.ad.trx.api.ITrxManager;
@@ -72,6 +74,8 @@ import org.compiere.process.DocAction;
 import org.compiere.util.Env;
 import org.compiere.util.TimeUtil;
 import org.compiere.util.TrxRunnable;
+import org.compiere.util.Util;
+import org.compiere.util.Util.ArrayKey;
 import org.slf4j.Logger;
 
 import ch.qos.logback.classic.Level;
@@ -834,6 +838,20 @@ public class FlatrateBL implements IFlatrateBL
 		}
 	}
 
+	/**
+	 * Retrieves the C_Period_ID/C_UOM_ID keys of the given term's existing {@link X_C_Flatrate_DataEntry#TYPE_Invoicing_PeriodBased} entries with one query,
+	 * instead of checking each period and UOM with {@link IFlatrateDAO#retrieveDataEntryOrNull(I_C_Flatrate_Term, I_C_Period, String, I_C_UOM)}.
+	 */
+	private Set<ArrayKey> retrieveInvoicingPeriodBasedEntryKeys(final I_C_Flatrate_Term flatrateTerm)
+	{
+		final Set<ArrayKey> entryKeys = new HashSet<>();
+		for (final I_C_Flatrate_DataEntry entry : flatrateDB.retrieveDataEntries(flatrateTerm, X_C_Flatrate_DataEntry.TYPE_Invoicing_PeriodBased, null))
+		{
+			entryKeys.add(Util.mkKey(entry.getC_Period_ID(), entry.getC_UOM_ID()));
+		}
+		return entryKeys;
+	}
+
 	private void createEntriesForHoldingFee(
 			final Properties ctx,
 			final I_C_Flatrate_Term flatrateTerm,
@@ -850,15 +868,15 @@ public class FlatrateBL implements IFlatrateBL
 		final List<I_C_Period> periods =
 				calendarDAO.retrievePeriods(
 				ctx, flatrateTerm.getC_Flatrate_Conditions().getC_Flatrate_Transition().getC_Calendar_Contract(), flatrateTerm.getStartDate(), flatrateTerm.getEndDate(), trxName);
+		final Set<ArrayKey> existingEntryKeys = retrieveInvoicingPeriodBasedEntryKeys(flatrateTerm);
 		for (final I_C_Period period : periods)
 		{
 			for (final I_M_Product product : products)
 			{
 				final I_C_UOM uom = product.getC_UOM();
-				final I_C_Flatrate_DataEntry existingEntry = flatrateDB.retrieveDataEntryOrNull(flatrateTerm, period, X_C_Flatrate_DataEntry.TYPE_Invoicing_PeriodBased, uom);
-				if (existingEntry != null)
+				if (!existingEntryKeys.add(Util.mkKey(period.getC_Period_ID(), uom.getC_UOM_ID())))
 				{
-					continue;
+					continue; // entry already exists
 				}
 
 				final I_C_Flatrate_DataEntry newDataEntry = InterfaceWrapperHelper.create(ctx, I_C_Flatrate_DataEntry.class, trxName);
@@ -899,15 +917,14 @@ public class FlatrateBL implements IFlatrateBL
 		final List<I_C_Period> periods =
 				calendarDAO.retrievePeriods(
 						ctx, flatrateTerm.getC_Flatrate_Conditions().getC_Flatrate_Transition().getC_Calendar_Contract(), flatrateTerm.getStartDate(), flatrateTerm.getEndDate(), trxName);
+		final Set<ArrayKey> existingEntryKeys = retrieveInvoicingPeriodBasedEntryKeys(flatrateTerm);
 		for (final I_C_Period period : periods)
 		{
 			for (final I_C_UOM uom : uoms)
 			{
-				final I_C_Flatrate_DataEntry existingEntry =
-						flatrateDB.retrieveDataEntryOrNull(flatrateTerm, period, X_C_Flatrate_DataEntry.TYPE_Invoicing_PeriodBased, uom);
-				if (existingEntry != null)
+				if (!existingEntryKeys.add(Util.mkKey(period.getC_Period_ID(), uom.getC_UOM_ID())))
 				{
-					continue;
+					continue; // entry already exists
 				}
 
 				final I_C_Flatrate_DataEntry newDataEntry = InterfaceWrapperHelper.create(ctx, I_C_Flatrate_DataEntry.class, trxName);
@@ -1164,6 +1181,19 @@ public class FlatrateBL implements IFlatrateBL
 				});
 	}
 
+	@Override
+	public void extendContract(
+			final I_C_Flatrate_Term currentTerm,
+			final boolean forceExtend,
+			final Boolean forceComplete,
+			final Timestamp nextTermStartDate,
+			final I_C_OrderLine ol,
+			final String trxName)
+	{
+		Services.get(ITrxManager.class).assertTrxNameNotNull(trxName);
+		extendContract0(currentTerm, forceExtend, forceComplete, nextTermStartDate, ol, trxName);
+	}
+
 	private void extendContract0(
 			final I_C_Flatrate_Term currentTerm,
 			final boolean forceExtend,
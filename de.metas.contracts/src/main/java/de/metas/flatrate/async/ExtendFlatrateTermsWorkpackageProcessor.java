@@ -0,0 +1,142 @@
+package de.metas.flatrate.async;
+
+/*
+ * #%L
+ * de.metas.contracts
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Check;
+import org.adempiere.util.Loggables;
+import org.adempiere.util.Services;
+import org.adempiere.util.StringUtils;
+import org.adempiere.util.api.IParams;
+import org.adempiere.util.lang.impl.TableRecordReference;
+
+import com.google.common.collect.Iterables;
+
+import de.metas.async.api.IWorkPackageBlockBuilder;
+import de.metas.async.api.IWorkPackageBuilder;
+import de.metas.async.api.IWorkPackageParamsBuilder;
+import de.metas.async.model.I_C_Queue_WorkPackage;
+import de.metas.async.processor.IWorkPackageQueueFactory;
+import de.metas.async.spi.WorkpackageProcessorAdapter;
+import de.metas.flatrate.model.I_C_Flatrate_Term;
+import de.metas.flatrate.model.I_C_Flatrate_Transition;
+
+/**
+ * Extends the flatrate terms which were enqueued as workpackage elements, using {@link FlatrateTermsExtender}.
+ * <p>
+ * The terms are enqueued grouped by their bill partner, i.e. all terms of a partner are in the same workpackage.
+ * A failing term does not fail the workpackage; it's logged in the workpackage log, together with the summary of the workpackage.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ExtendFlatrateTermsWorkpackageProcessor extends WorkpackageProcessorAdapter
+{
+	private static final String PARAM_StartDate = I_C_Flatrate_Term.COLUMNNAME_StartDate;
+	private static final String PARAM_AD_PInstance_EndOfTerm_ID = I_C_Flatrate_Term.COLUMNNAME_AD_PInstance_EndOfTerm_ID;
+
+	/**
+	 * Enqueues one workpackage for each chunk of <code>bpartnersPerWorkpackage</code> partners. All workpackages are in the same block.
+	 *
+	 * @param bpartnerId2termIds <code>Bill_BPartner_ID</code> => <code>C_Flatrate_Term_ID</code>s of the terms to extend
+	 * @param forceComplete optional, see {@link FlatrateTermsExtender#setForceComplete(Boolean)}
+	 * @param nextTermStartDate optional
+	 * @param adPInstanceId <code>AD_PInstance_ID</code> of the process which enqueued the workpackages; will be set as the terms' <code>AD_PInstance_EndOfTerm_ID</code>
+	 * @return how many workpackages were enqueued
+	 */
+	public static int enqueue(final Properties ctx,
+			final Map<Integer, ? extends Collection<Integer>> bpartnerId2termIds,
+			final int bpartnersPerWorkpackage,
+			final Boolean forceComplete,
+			final Timestamp nextTermStartDate,
+			final int adPInstanceId)
+	{
+		Check.assume(bpartnersPerWorkpackage > 0, "bpartnersPerWorkpackage > 0");
+		if (bpartnerId2termIds.isEmpty())
+		{
+			return 0;
+		}
+
+		final IWorkPackageBlockBuilder blockBuilder = Services.get(IWorkPackageQueueFactory.class)
+				.getQueueForEnqueuing(ctx, ExtendFlatrateTermsWorkpackageProcessor.class)
+				.newBlock()
+				.setContext(ctx);
+		if (adPInstanceId > 0)
+		{
+			blockBuilder.setAD_PInstance_Creator_ID(adPInstanceId);
+		}
+
+		int countWorkpackages = 0;
+		for (final List<Integer> bpartnerIdsChunk : Iterables.partition(bpartnerId2termIds.keySet(), bpartnersPerWorkpackage))
+		{
+			final IWorkPackageBuilder workpackageBuilder = blockBuilder.newWorkpackage();
+
+			final IWorkPackageParamsBuilder parameters = workpackageBuilder.parameters()
+					.setParameter(PARAM_AD_PInstance_EndOfTerm_ID, adPInstanceId);
+			if (forceComplete != null)
+			{
+				parameters.setParameter(I_C_Flatrate_Transition.COLUMNNAME_IsAutoCompleteNewTerm, forceComplete ? "Y" : "N");
+			}
+			if (nextTermStartDate != null)
+			{
+				parameters.setParameter(PARAM_StartDate, nextTermStartDate);
+			}
+			parameters.end();
+
+			for (final Integer bpartnerId : bpartnerIdsChunk)
+			{
+				for (final Integer termId : bpartnerId2termIds.get(bpartnerId))
+				{
+					workpackageBuilder.addElement(new TableRecordReference(I_C_Flatrate_Term.Table_Name, termId));
+				}
+			}
+
+			workpackageBuilder.build();
+			countWorkpackages++;
+		}
+
+		return countWorkpackages;
+	}
+
+	@Override
+	public Result processWorkPackage(final I_C_Queue_WorkPackage workpackage, final String localTrxName)
+	{
+		final IParams params = getParameters();
+		final FlatrateTermsExtender extender = new FlatrateTermsExtender()
+				.setForceComplete(StringUtils.toBooleanOrNull(params.getParameterAsString(I_C_Flatrate_Transition.COLUMNNAME_IsAutoCompleteNewTerm)))
+				.setNextTermStartDate(params.getParameterAsTimestamp(PARAM_StartDate))
+				.setAD_PInstance_EndOfTerm_ID(params.getParameterAsInt(PARAM_AD_PInstance_EndOfTerm_ID));
+
+		extender.extendAll(retrieveItems(I_C_Flatrate_Term.class));
+		Loggables.get().addLog(extender.getSummary());
+
+		return Result.SUCCESS;
+	}
+}
@@ -0,0 +1,182 @@
+package de.metas.flatrate.async;
+
+/*
+ * #%L
+ * de.metas.contracts
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Loggables;
+import org.adempiere.util.Services;
+import org.compiere.util.TrxRunnableAdapter;
+import org.slf4j.Logger;
+
+import com.google.common.base.Stopwatch;
+
+import de.metas.flatrate.api.IFlatrateBL;
+import de.metas.flatrate.model.I_C_Flatrate_Term;
+import de.metas.logging.LogManager;
+
+/**
+ * Extends many flatrate terms, like {@link de.metas.flatrate.process.C_Flatrate_Term_Extend} does when it's not called for one particular term.
+ * <p>
+ * Each term is extended in its own nested transaction (i.e. savepoint), so if one term fails, it's logged and the other terms are extended anyway.
+ * A term which was processed gets the given <code>AD_PInstance_EndOfTerm_ID</code>; terms which already have one are skipped.
+ * <p>
+ * Use {@link #getSummary()} to get how many terms were extended or failed and the throughput.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public final class FlatrateTermsExtender
+{
+	private static final transient Logger logger = LogManager.getLogger(FlatrateTermsExtender.class);
+
+	// services
+	private final transient ITrxManager trxManager = Services.get(ITrxManager.class);
+	private final transient IFlatrateBL flatrateBL = Services.get(IFlatrateBL.class);
+
+	// parameters
+	private Boolean forceComplete = null;
+	private Timestamp nextTermStartDate = null;
+	private int adPInstanceId = -1;
+
+	// status
+	private final Stopwatch stopwatch = Stopwatch.createUnstarted();
+	private int countExtended = 0;
+	private int countNotExtended = 0;
+	private int countSkipped = 0;
+	private int countFailed = 0;
+
+	/**
+	 * @param forceComplete see {@link IFlatrateBL#extendContract(I_C_Flatrate_Term, boolean, Boolean, Timestamp, de.metas.contracts.subscription.model.I_C_OrderLine)}
+	 */
+	public FlatrateTermsExtender setForceComplete(final Boolean forceComplete)
+	{
+		this.forceComplete = forceComplete;
+		return this;
+	}
+
+	public FlatrateTermsExtender setNextTermStartDate(final Timestamp nextTermStartDate)
+	{
+		this.nextTermStartDate = nextTermStartDate;
+		return this;
+	}
+
+	/**
+	 * @param adPInstanceId the <code>AD_PInstance_EndOfTerm_ID</code> to set to each processed term
+	 */
+	public FlatrateTermsExtender setAD_PInstance_EndOfTerm_ID(final int adPInstanceId)
+	{
+		this.adPInstanceId = adPInstanceId;
+		return this;
+	}
+
+	/**
+	 * Extends the given terms. The terms are expected to be in the thread inherited transaction.
+	 */
+	public FlatrateTermsExtender extendAll(final Iterable<I_C_Flatrate_Term> terms)
+	{
+		stopwatch.start();
+		try
+		{
+			for (final I_C_Flatrate_Term term : terms)
+			{
+				extend(term);
+			}
+		}
+		finally
+		{
+			stopwatch.stop();
+		}
+		return this;
+	}
+
+	private void extend(final I_C_Flatrate_Term term)
+	{
+		if (term.getAD_PInstance_EndOfTerm_ID() > 0)
+		{
+			// already processed, e.g. because it was enqueued twice
+			countSkipped++;
+			return;
+		}
+
+		trxManager.run(ITrx.TRXNAME_ThreadInherited, new TrxRunnableAdapter()
+		{
+			@Override
+			public void run(final String localTrxName)
+			{
+				flatrateBL.extendContract(term,
+						false, // forceExtend
+						forceComplete,
+						nextTermStartDate,
+						null, // ol
+						localTrxName);
+				term.setAD_PInstance_EndOfTerm_ID(adPInstanceId);
+				InterfaceWrapperHelper.save(term);
+
+				if (term.getC_FlatrateTerm_Next_ID() > 0)
+				{
+					countExtended++;
+				}
+				else
+				{
+					countNotExtended++;
+				}
+			}
+
+			@Override
+			public boolean doCatch(final Throwable ex)
+			{
+				countFailed++;
+				logger.warn("Failed extending {}", term, ex);
+				Loggables.get().addLog("@Error@ @C_Flatrate_Term_ID@ {}: {}", term.getC_Flatrate_Term_ID(), ex.getLocalizedMessage());
+				return true; // rollback this term's changes
+			}
+		});
+	}
+
+	public int getCountExtended()
+	{
+		return countExtended;
+	}
+
+	public int getCountFailed()
+	{
+		return countFailed;
+	}
+
+	/**
+	 * @return human readable summary of how many terms were extended, not extended (not auto renew), skipped and failed, and of the throughput
+	 */
+	public String getSummary()
+	{
+		final int countAll = countExtended + countNotExtended + countSkipped + countFailed;
+		final long durationMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+		final long termsPerSecond = durationMillis > 0 ? countAll * 1000L / durationMillis : countAll;
+		return "Extended " + countExtended + " of " + countAll + " terms (" + countNotExtended + " not renewed, " + countSkipped + " skipped, " + countFailed + " failed)"
+				+ " in " + durationMillis + "ms (" + termsPerSecond + " terms/s)";
+	}
+}
@@ -24,22 +24,36 @@ import java.sql.Timestamp;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Services;
 import org.adempiere.util.StringUtils;
 import org.adempiere.util.time.SystemTime;
+import org.apache.commons.collections4.IteratorUtils;
 import org.compiere.model.Query;
 import org.compiere.util.DB;
 
 import de.metas.flatrate.api.IFlatrateBL;
+import de.metas.flatrate.async.ExtendFlatrateTermsWorkpackageProcessor;
+import de.metas.flatrate.async.FlatrateTermsExtender;
 import de.metas.flatrate.model.I_C_Flatrate_Term;
 import de.metas.flatrate.model.I_C_Flatrate_Transition;
 import de.metas.flatrate.model.X_C_Flatrate_Term;
 import de.metas.process.JavaProcess;
 import de.metas.process.Param;
 
+/**
+ * Extends the given term or, if not called from a term, all terms which are due for extension.
+ * <p>
+ * Unless the sysconfig {@value #SYSCONFIG_BPartnersPerWorkpackage} is set to zero, the due terms are extended asynchronously by {@link ExtendFlatrateTermsWorkpackageProcessor},
+ * one workpackage per chunk of bill partners.
+ */
 public class C_Flatrate_Term_Extend
 		extends JavaProcess
 {
@@ -49,6 +63,12 @@ public class C_Flatrate_Term_Extend
 	@Param(parameterName = I_C_Flatrate_Term.COLUMNNAME_StartDate, mandatory = false)
 	private Timestamp p_startDate;
 
+	/**
+	 * How many partners' terms are extended in one workpackage. If zero, the terms are extended on the process thread.
+	 */
+	private static final String SYSCONFIG_BPartnersPerWorkpackage = "de.metas.flatrate.process.C_Flatrate_Term_Extend.BPartnersPerWorkpackage";
+	private static final int DEFAULT_BPartnersPerWorkpackage = 100;
+
 	@Override
 	protected String doIt() throws Exception
 	{
@@ -80,33 +100,75 @@ public class C_Flatrate_Term_Extend
 					// 04432 don't extend canceled contracts
 					+ "COALESCE (" + I_C_Flatrate_Term.COLUMNNAME_ContractStatus + ",'') != " + DB.TO_STRING(X_C_Flatrate_Term.CONTRACTSTATUS_Gekuendigt);
 
-			final Iterator<I_C_Flatrate_Term> termsToExtend = new Query(getCtx(), I_C_Flatrate_Term.Table_Name, wc, get_TrxName())
-					.setParameters(SystemTime.asTimestamp())
-					.setClient_ID() // .setApplyAccessRules requires a more sophisticated role access setup which we urrently don't have to the user "system" () and this is not a "user"
-					// process
-					.setOnlyActiveRecords(true)
-					.setOrderBy(I_C_Flatrate_Term.COLUMNNAME_C_Flatrate_Term_ID)
-					.iterate(
-							I_C_Flatrate_Term.class,
-							true); // guaranteed = true, because the term extension changes AD_PInstance_EndOfTerm_ID
-			int counter = 0;
-			while (termsToExtend.hasNext())
+			final int bpartnersPerWorkpackage = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_BPartnersPerWorkpackage, DEFAULT_BPartnersPerWorkpackage, getAD_Client_ID());
+			if (bpartnersPerWorkpackage > 0)
 			{
-				final I_C_Flatrate_Term termToExtend = termsToExtend.next();
-				flatrateBL.extendContract(termToExtend,
-						false,   // forceExtend
-						forceComplete,   //
-						p_startDate,
-						null); // ol
-				termToExtend.setAD_PInstance_EndOfTerm_ID(getAD_PInstance_ID());
-				if (termToExtend.getC_FlatrateTerm_Next_ID() > 0)
-				{
-					counter++;
-				}
-				InterfaceWrapperHelper.save(termToExtend);
+				enqueueTermsToExtend(wc, forceComplete, bpartnersPerWorkpackage);
+			}
+			else
+			{
+				extendTermsNow(wc, forceComplete);
 			}
-			addLog("Extended " + counter + " terms");
 		}
 		return "@Success@";
 	}
+
+	private Query createTermsToExtendQuery(final String whereClause)
+	{
+		return new Query(getCtx(), I_C_Flatrate_Term.Table_Name, whereClause, get_TrxName())
+				.setParameters(SystemTime.asTimestamp())
+				.setClient_ID() // .setApplyAccessRules requires a more sophisticated role access setup which we urrently don't have to the user "system" () and this is not a "user"
+				// process
+				.setOnlyActiveRecords(true);
+	}
+
+	/**
+	 * Enqueues the due terms to {@link ExtendFlatrateTermsWorkpackageProcessor}, grouped by their bill partner.
+	 */
+	private void enqueueTermsToExtend(final String whereClause, final Boolean forceComplete, final int bpartnersPerWorkpackage)
+	{
+		final Map<Integer, List<Integer>> bpartnerId2termIds = new LinkedHashMap<>();
+		int countTerms = 0;
+		for (final Object[] row : createTermsToExtendQuery(whereClause)
+				.setOrderBy(I_C_Flatrate_Term.COLUMNNAME_Bill_BPartner_ID + "," + I_C_Flatrate_Term.COLUMNNAME_C_Flatrate_Term_ID)
+				.selectColumns()
+				.addColumn(I_C_Flatrate_Term.COLUMNNAME_C_Flatrate_Term_ID)
+				.addColumn(I_C_Flatrate_Term.COLUMNNAME_Bill_BPartner_ID)
+				.listArrays())
+		{
+			final int termId = ((Number)row[0]).intValue();
+			final int bpartnerId = row[1] == null ? 0 : ((Number)row[1]).intValue();
+
+			List<Integer> termIds = bpartnerId2termIds.get(bpartnerId);
+			if (termIds == null)
+			{
+				termIds = new ArrayList<>();
+				bpartnerId2termIds.put(bpartnerId, termIds);
+			}
+			termIds.add(termId);
+			countTerms++;
+		}
+
+		final int countWorkpackages = ExtendFlatrateTermsWorkpackageProcessor.enqueue(getCtx(), bpartnerId2termIds, bpartnersPerWorkpackage, forceComplete, p_startDate, getAD_PInstance_ID());
+		addLog("Enqueued {} terms of {} partners in {} workpackages", countTerms, bpartnerId2termIds.size(), countWorkpackages);
+	}
+
+	/**
+	 * Extends the due terms on the process thread.
+	 */
+	private void extendTermsNow(final String whereClause, final Boolean forceComplete)
+	{
+		final Iterator<I_C_Flatrate_Term> termsToExtend = createTermsToExtendQuery(whereClause)
+				.setOrderBy(I_C_Flatrate_Term.COLUMNNAME_C_Flatrate_Term_ID)
+				.iterate(
+						I_C_Flatrate_Term.class,
+						true); // guaranteed = true, because the term extension changes AD_PInstance_EndOfTerm_ID
+
+		final FlatrateTermsExtender extender = new FlatrateTermsExtender()
+				.setForceComplete(forceComplete)
+				.setNextTermStartDate(p_startDate)
+				.setAD_PInstance_EndOfTerm_ID(getAD_PInstance_ID())
+				.extendAll(IteratorUtils.asIterable(termsToExtend));
+		addLog(extender.getSummary());
+	}
 }
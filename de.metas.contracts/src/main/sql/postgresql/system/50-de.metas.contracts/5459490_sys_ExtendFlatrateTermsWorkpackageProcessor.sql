@@ -0,0 +1,14 @@
+-- 19.10.2016 14:37
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO C_Queue_PackageProcessor (AD_Client_ID,AD_Org_ID,Classname,C_Queue_PackageProcessor_ID,Created,CreatedBy,Description,EntityType,InternalName,IsActive,Updated,UpdatedBy) VALUES (0,0,'de.metas.flatrate.async.ExtendFlatrateTermsWorkpackageProcessor',540053,TO_TIMESTAMP('2016-10-19 14:37:04','YYYY-MM-DD HH24:MI:SS'),100,'Extends the enqueued flatrate terms, grouped by partner','de.metas.contracts','ExtendFlatrateTermsWorkpackageProcessor','Y',TO_TIMESTAMP('2016-10-19 14:37:04','YYYY-MM-DD HH24:MI:SS'),100)
+;
+
+-- 19.10.2016 14:37
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO C_Queue_Processor (AD_Client_ID,AD_Org_ID,C_Queue_Processor_ID,Created,CreatedBy,IsActive,KeepAliveTimeMillis,Name,PoolSize,Updated,UpdatedBy) VALUES (0,0,540046,TO_TIMESTAMP('2016-10-19 14:37:31','YYYY-MM-DD HH24:MI:SS'),100,'Y',0,'ExtendFlatrateTermsWorkpackageProcessor',4,TO_TIMESTAMP('2016-10-19 14:37:31','YYYY-MM-DD HH24:MI:SS'),100)
+;
+
+-- 19.10.2016 14:37
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO C_Queue_Processor_Assign (AD_Client_ID,AD_Org_ID,C_Queue_PackageProcessor_ID,C_Queue_Processor_Assign_ID,C_Queue_Processor_ID,Created,CreatedBy,IsActive,Updated,UpdatedBy) VALUES (0,0,540053,540076,540046,TO_TIMESTAMP('2016-10-19 14:37:48','YYYY-MM-DD HH24:MI:SS'),100,'Y',TO_TIMESTAMP('2016-10-19 14:37:48','YYYY-MM-DD HH24:MI:SS'),100)
+;
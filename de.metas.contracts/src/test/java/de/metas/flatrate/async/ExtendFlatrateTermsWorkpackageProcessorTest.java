@@ -0,0 +1,181 @@
+package de.metas.flatrate.async;
+
+/*
+ * #%L
+ * de.metas.contracts
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Loggables;
+import org.adempiere.util.Services;
+import org.adempiere.util.api.IParamsBL;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.TimeUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metas.async.model.I_C_Queue_Element;
+import de.metas.async.model.I_C_Queue_WorkPackage;
+import de.metas.async.spi.IWorkpackageProcessor.Result;
+import de.metas.flatrate.ContractsTestBase;
+import de.metas.flatrate.api.IFlatrateBL;
+import de.metas.flatrate.async.FlatrateTermsExtenderTest.MockedFlatrateBL;
+import de.metas.flatrate.model.I_C_Flatrate_Term;
+import de.metas.flatrate.model.I_C_Flatrate_Transition;
+
+/**
+ * Tests {@link ExtendFlatrateTermsWorkpackageProcessor#processWorkPackage(I_C_Queue_WorkPackage, String)}.
+ * The actual extending is simulated by {@link MockedFlatrateBL}.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ExtendFlatrateTermsWorkpackageProcessorTest extends ContractsTestBase
+{
+	private static final int AD_PInstance_ID = 123;
+
+	private ITrxManager trxManager;
+	private String trxName;
+	private MockedFlatrateBL flatrateBL;
+
+	private final List<String> loggedMessages = new ArrayList<>();
+	private IAutoCloseable loggableRestorer;
+
+	@Override
+	protected void init()
+	{
+		trxManager = Services.get(ITrxManager.class);
+		trxName = trxManager.createTrxName("ExtendFlatrateTermsWorkpackageProcessorTest", true);
+		trxManager.setThreadInheritedTrxName(trxName);
+
+		flatrateBL = new MockedFlatrateBL();
+		Services.registerService(IFlatrateBL.class, flatrateBL);
+
+		loggableRestorer = Loggables.temporarySetLoggable((msg, msgParameters) -> loggedMessages.add(msg));
+	}
+
+	@After
+	public void after()
+	{
+		loggableRestorer.close();
+		trxManager.setThreadInheritedTrxName(null);
+	}
+
+	@Test
+	public void test_processWorkPackage()
+	{
+		final I_C_Flatrate_Term termToExtend = createTerm(true);
+		final I_C_Flatrate_Term termAlreadyProcessed = createTerm(true);
+		termAlreadyProcessed.setAD_PInstance_EndOfTerm_ID(99);
+		InterfaceWrapperHelper.save(termAlreadyProcessed);
+		final I_C_Flatrate_Term termFailing = createTerm(true);
+		flatrateBL.failingTermIds.add(termFailing.getC_Flatrate_Term_ID());
+
+		final I_C_Queue_WorkPackage workpackage = createWorkpackage(termToExtend, termAlreadyProcessed, termFailing);
+
+		final Timestamp nextTermStartDate = TimeUtil.getDay(2017, 1, 1);
+		final Map<String, Object> params = new HashMap<>();
+		params.put(I_C_Flatrate_Term.COLUMNNAME_AD_PInstance_EndOfTerm_ID, AD_PInstance_ID);
+		params.put(I_C_Flatrate_Transition.COLUMNNAME_IsAutoCompleteNewTerm, "N");
+		params.put(I_C_Flatrate_Term.COLUMNNAME_StartDate, nextTermStartDate);
+
+		final ExtendFlatrateTermsWorkpackageProcessor processor = new ExtendFlatrateTermsWorkpackageProcessor();
+		processor.setParameters(Services.get(IParamsBL.class).createParams(params));
+		processor.setC_Queue_WorkPackage(workpackage);
+		final Result result = processor.processWorkPackage(workpackage, trxName);
+
+		// a failing term does not fail the workpackage
+		Assert.assertEquals(Result.SUCCESS, result);
+
+		Assert.assertEquals(Arrays.asList(termToExtend.getC_Flatrate_Term_ID(), termFailing.getC_Flatrate_Term_ID()), flatrateBL.extendedTermIds);
+		Assert.assertEquals(Boolean.FALSE, flatrateBL.lastForceComplete);
+		Assert.assertEquals(nextTermStartDate, flatrateBL.lastNextTermStartDate);
+
+		InterfaceWrapperHelper.refresh(termToExtend);
+		InterfaceWrapperHelper.refresh(termAlreadyProcessed);
+		InterfaceWrapperHelper.refresh(termFailing);
+		Assert.assertEquals(AD_PInstance_ID, termToExtend.getAD_PInstance_EndOfTerm_ID());
+		Assert.assertTrue(termToExtend.getC_FlatrateTerm_Next_ID() > 0);
+		Assert.assertEquals(99, termAlreadyProcessed.getAD_PInstance_EndOfTerm_ID());
+		Assert.assertEquals(0, termFailing.getAD_PInstance_EndOfTerm_ID());
+
+		// the failing term and the summary are in the workpackage log
+		Assert.assertEquals(2, loggedMessages.size());
+		Assert.assertEquals("@Error@ @C_Flatrate_Term_ID@ {}: {}", loggedMessages.get(0));
+		Assert.assertTrue(loggedMessages.get(1), loggedMessages.get(1).startsWith("Extended 1 of 3 terms (0 not renewed, 1 skipped, 1 failed) in "));
+	}
+
+	@Test
+	public void test_processWorkPackage_NoOptionalParameters()
+	{
+		final I_C_Flatrate_Term term = createTerm(false);
+		final I_C_Queue_WorkPackage workpackage = createWorkpackage(term);
+
+		final Map<String, Object> params = new HashMap<>();
+		params.put(I_C_Flatrate_Term.COLUMNNAME_AD_PInstance_EndOfTerm_ID, AD_PInstance_ID);
+
+		final ExtendFlatrateTermsWorkpackageProcessor processor = new ExtendFlatrateTermsWorkpackageProcessor();
+		processor.setParameters(Services.get(IParamsBL.class).createParams(params));
+		processor.setC_Queue_WorkPackage(workpackage);
+		Assert.assertEquals(Result.SUCCESS, processor.processWorkPackage(workpackage, trxName));
+
+		Assert.assertNull(flatrateBL.lastForceComplete);
+		Assert.assertNull(flatrateBL.lastNextTermStartDate);
+
+		InterfaceWrapperHelper.refresh(term);
+		Assert.assertEquals(AD_PInstance_ID, term.getAD_PInstance_EndOfTerm_ID());
+		Assert.assertEquals(0, term.getC_FlatrateTerm_Next_ID());
+		Assert.assertEquals(1, loggedMessages.size());
+		Assert.assertTrue(loggedMessages.get(0), loggedMessages.get(0).startsWith("Extended 0 of 1 terms (1 not renewed, 0 skipped, 0 failed) in "));
+	}
+
+	private I_C_Flatrate_Term createTerm(final boolean autoRenew)
+	{
+		final I_C_Flatrate_Term term = InterfaceWrapperHelper.newInstance(I_C_Flatrate_Term.class, getContext());
+		term.setIsAutoRenew(autoRenew);
+		InterfaceWrapperHelper.save(term);
+		return term;
+	}
+
+	private I_C_Queue_WorkPackage createWorkpackage(final I_C_Flatrate_Term... terms)
+	{
+		final I_C_Queue_WorkPackage workpackage = InterfaceWrapperHelper.newInstance(I_C_Queue_WorkPackage.class, getContext());
+		InterfaceWrapperHelper.save(workpackage);
+
+		for (final I_C_Flatrate_Term term : terms)
+		{
+			final I_C_Queue_Element element = InterfaceWrapperHelper.newInstance(I_C_Queue_Element.class, getContext());
+			element.setC_Queue_WorkPackage_ID(workpackage.getC_Queue_WorkPackage_ID());
+			element.setAD_Table_ID(InterfaceWrapperHelper.getTableId(I_C_Flatrate_Term.class));
+			element.setRecord_ID(term.getC_Flatrate_Term_ID());
+			InterfaceWrapperHelper.save(element);
+		}
+		return workpackage;
+	}
+}
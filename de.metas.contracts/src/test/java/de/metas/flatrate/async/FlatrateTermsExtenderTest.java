@@ -0,0 +1,216 @@
+package de.metas.flatrate.async;
+
+/*
+ * #%L
+ * de.metas.contracts
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.spi.TrxListenerAdapter;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Loggables;
+import org.adempiere.util.Services;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.TimeUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metas.contracts.subscription.model.I_C_OrderLine;
+import de.metas.flatrate.ContractsTestBase;
+import de.metas.flatrate.api.IFlatrateBL;
+import de.metas.flatrate.api.impl.FlatrateBL;
+import de.metas.flatrate.model.I_C_Flatrate_Term;
+
+/**
+ * Tests {@link FlatrateTermsExtender}. The actual extending ({@link IFlatrateBL#extendContract(I_C_Flatrate_Term, boolean, Boolean, Timestamp, I_C_OrderLine, String)}) is simulated.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class FlatrateTermsExtenderTest extends ContractsTestBase
+{
+	private static final int AD_PInstance_ID = 123;
+
+	private ITrxManager trxManager;
+	private ITrx trx;
+	private MockedFlatrateBL flatrateBL;
+
+	/** messages which were logged to {@link Loggables} */
+	private final List<String> loggedMessages = new ArrayList<>();
+	private IAutoCloseable loggableRestorer;
+
+	@Override
+	protected void init()
+	{
+		trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName("FlatrateTermsExtenderTest", true);
+		trx = trxManager.get(trxName, false);
+		trxManager.setThreadInheritedTrxName(trxName);
+
+		flatrateBL = new MockedFlatrateBL();
+		Services.registerService(IFlatrateBL.class, flatrateBL);
+
+		loggableRestorer = Loggables.temporarySetLoggable((msg, msgParameters) -> loggedMessages.add(msg));
+	}
+
+	@After
+	public void after()
+	{
+		loggableRestorer.close();
+		trxManager.setThreadInheritedTrxName(null);
+	}
+
+	@Test
+	public void test_extendAll()
+	{
+		final I_C_Flatrate_Term termToExtend = createTerm(true);
+		final I_C_Flatrate_Term termNotAutoRenew = createTerm(false);
+		final I_C_Flatrate_Term termAlreadyProcessed = createTerm(true);
+		termAlreadyProcessed.setAD_PInstance_EndOfTerm_ID(99);
+		InterfaceWrapperHelper.save(termAlreadyProcessed);
+		final I_C_Flatrate_Term termFailing = createTerm(true);
+		flatrateBL.failingTermIds.add(termFailing.getC_Flatrate_Term_ID());
+		final I_C_Flatrate_Term termAfterFailing = createTerm(true);
+
+		final RollbackToSavepointCounter rollbackCounter = new RollbackToSavepointCounter();
+		trx.getTrxListenerManager().registerListener(rollbackCounter);
+
+		final Timestamp nextTermStartDate = TimeUtil.getDay(2017, 1, 1);
+		final FlatrateTermsExtender extender = new FlatrateTermsExtender()
+				.setForceComplete(true)
+				.setNextTermStartDate(nextTermStartDate)
+				.setAD_PInstance_EndOfTerm_ID(AD_PInstance_ID)
+				.extendAll(Arrays.asList(termToExtend, termNotAutoRenew, termAlreadyProcessed, termFailing, termAfterFailing));
+
+		// already processed term was skipped
+		Assert.assertEquals(
+				Arrays.asList(termToExtend.getC_Flatrate_Term_ID(), termNotAutoRenew.getC_Flatrate_Term_ID(), termFailing.getC_Flatrate_Term_ID(), termAfterFailing.getC_Flatrate_Term_ID()),
+				flatrateBL.extendedTermIds);
+		Assert.assertEquals(99, termAlreadyProcessed.getAD_PInstance_EndOfTerm_ID());
+
+		// each term was extended in the thread inherited transaction, with the extender's parameters
+		Assert.assertEquals(Arrays.asList(trx.getTrxName()), new ArrayList<>(new HashSet<>(flatrateBL.trxNames)));
+		Assert.assertEquals(Boolean.TRUE, flatrateBL.lastForceComplete);
+		Assert.assertEquals(nextTermStartDate, flatrateBL.lastNextTermStartDate);
+
+		// processed terms are marked; the failing one is not, so it's extended again next time
+		Assert.assertEquals(AD_PInstance_ID, termToExtend.getAD_PInstance_EndOfTerm_ID());
+		Assert.assertTrue(termToExtend.getC_FlatrateTerm_Next_ID() > 0);
+		Assert.assertEquals(AD_PInstance_ID, termNotAutoRenew.getAD_PInstance_EndOfTerm_ID());
+		Assert.assertEquals(0, termNotAutoRenew.getC_FlatrateTerm_Next_ID());
+		Assert.assertEquals(0, termFailing.getAD_PInstance_EndOfTerm_ID());
+		Assert.assertEquals(AD_PInstance_ID, termAfterFailing.getAD_PInstance_EndOfTerm_ID());
+
+		// only the failing term's changes were rolled back, to its own savepoint
+		Assert.assertEquals(1, rollbackCounter.count);
+		Assert.assertTrue("trx still active", trx.isActive());
+		Assert.assertEquals(Arrays.asList("@Error@ @C_Flatrate_Term_ID@ {}: {}"), loggedMessages);
+
+		// counters and summary
+		Assert.assertEquals(2, extender.getCountExtended());
+		Assert.assertEquals(1, extender.getCountFailed());
+		final String summary = extender.getSummary();
+		Assert.assertTrue(summary, summary.startsWith("Extended 2 of 5 terms (1 not renewed, 1 skipped, 1 failed) in "));
+		Assert.assertTrue(summary, summary.endsWith(" terms/s)"));
+	}
+
+	@Test
+	public void test_extendAll_NoTerms()
+	{
+		final FlatrateTermsExtender extender = new FlatrateTermsExtender()
+				.setAD_PInstance_EndOfTerm_ID(AD_PInstance_ID)
+				.extendAll(new ArrayList<I_C_Flatrate_Term>());
+
+		Assert.assertEquals(0, extender.getCountExtended());
+		Assert.assertEquals(0, extender.getCountFailed());
+		Assert.assertTrue(extender.getSummary(), extender.getSummary().startsWith("Extended 0 of 0 terms (0 not renewed, 0 skipped, 0 failed) in "));
+	}
+
+	private I_C_Flatrate_Term createTerm(final boolean autoRenew)
+	{
+		final I_C_Flatrate_Term term = InterfaceWrapperHelper.newInstance(I_C_Flatrate_Term.class, getContext());
+		term.setIsAutoRenew(autoRenew);
+		InterfaceWrapperHelper.save(term);
+		return term;
+	}
+
+	/**
+	 * Simulates {@link FlatrateBL#extendContract(I_C_Flatrate_Term, boolean, Boolean, Timestamp, I_C_OrderLine, String)}:
+	 * creates the next term for auto renew terms and fails for the terms in {@link #failingTermIds}.
+	 */
+	/* package */static class MockedFlatrateBL extends FlatrateBL
+	{
+		final Set<Integer> failingTermIds = new HashSet<>();
+		final List<Integer> extendedTermIds = new ArrayList<>();
+		final List<String> trxNames = new ArrayList<>();
+		Boolean lastForceComplete;
+		Timestamp lastNextTermStartDate;
+
+		@Override
+		public void extendContract(
+				final I_C_Flatrate_Term currentTerm,
+				final boolean forceExtend,
+				final Boolean forceComplete,
+				final Timestamp nextTermStartDate,
+				final I_C_OrderLine ol,
+				final String trxName)
+		{
+			extendedTermIds.add(currentTerm.getC_Flatrate_Term_ID());
+			trxNames.add(trxName);
+			lastForceComplete = forceComplete;
+			lastNextTermStartDate = nextTermStartDate;
+
+			if (failingTermIds.contains(currentTerm.getC_Flatrate_Term_ID()))
+			{
+				throw new AdempiereException("Simulated failure for " + currentTerm);
+			}
+			if (!forceExtend && !currentTerm.isAutoRenew())
+			{
+				return;
+			}
+
+			final I_C_Flatrate_Term nextTerm = InterfaceWrapperHelper.newInstance(I_C_Flatrate_Term.class, currentTerm);
+			nextTerm.setStartDate(nextTermStartDate);
+			InterfaceWrapperHelper.save(nextTerm, trxName);
+			currentTerm.setC_FlatrateTerm_Next_ID(nextTerm.getC_Flatrate_Term_ID());
+		}
+	}
+
+	private static final class RollbackToSavepointCounter extends TrxListenerAdapter
+	{
+		private int count = 0;
+
+		@Override
+		public void afterRollbackToSavepoint(final ITrx trx)
+		{
+			count++;
+		}
+	}
+}
@@ -29,6 +29,7 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import de.metas.logging.LogManager;
@@ -40,8 +41,12 @@ import org.adempiere.ad.trx.api.ITrxRunConfig.OnRunnableSuccess;
 import org.adempiere.ad.trx.api.ITrxRunConfig.TrxPropagation;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
+import org.adempiere.util.Loggables;
 import org.adempiere.util.Services;
 import org.adempiere.util.collections.IteratorUtils;
+
+import com.google.common.base.Stopwatch;
+
 import de.metas.dunning.api.IDunnableDoc;
 import de.metas.dunning.api.IDunnableSourceFactory;
 import de.metas.dunning.api.IDunningBL;
@@ -174,6 +179,7 @@ public class DunningBL implements IDunningBL
 
 		int countAll = 0;
 		int countCreated = 0;
+		final Stopwatch stopwatch = Stopwatch.createStarted();
 
 		final List<IDunnableSource> sources = sourceFactory.getSources(context);
 		if (sources.isEmpty())
@@ -206,7 +212,13 @@ public class DunningBL implements IDunningBL
 			}
 		}
 
-		logger.info("Created {} from {} records evaluated", new Object[] { countCreated, countAll });
+		//
+		// Report progress and throughput of this dunning level
+		final long durationMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+		final long docsPerSecond = durationMillis > 0 ? countAll * 1000L / durationMillis : countAll;
+		logger.info("Created {} from {} records evaluated in {}ms ({} records/s)", countCreated, countAll, durationMillis, docsPerSecond);
+		Loggables.get().addLog("@C_DunningLevel@ {}: {} candidate(s) created/updated from {} document(s) evaluated in {}ms ({} documents/s)",
+				context.getC_DunningLevel().getName(), countCreated, countAll, durationMillis, docsPerSecond);
 
 		return countCreated;
 	}
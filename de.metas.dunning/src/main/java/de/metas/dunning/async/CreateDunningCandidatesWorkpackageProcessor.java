@@ -0,0 +1,161 @@
+package de.metas.dunning.async;
+
+/*
+ * #%L
+ * de.metas.dunning
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.ITrxRunConfig;
+import org.adempiere.ad.trx.api.ITrxRunConfig.OnRunnableFail;
+import org.adempiere.ad.trx.api.ITrxRunConfig.OnRunnableSuccess;
+import org.adempiere.ad.trx.api.ITrxRunConfig.TrxPropagation;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Check;
+import org.adempiere.util.Services;
+import org.adempiere.util.api.IParams;
+import org.adempiere.util.lang.impl.TableRecordReference;
+import org.compiere.model.I_C_BPartner;
+
+import com.google.common.collect.Iterables;
+
+import de.metas.async.api.IWorkPackageBlockBuilder;
+import de.metas.async.api.IWorkPackageBuilder;
+import de.metas.async.model.I_C_Queue_Element;
+import de.metas.async.model.I_C_Queue_WorkPackage;
+import de.metas.async.processor.IWorkPackageQueueFactory;
+import de.metas.async.spi.WorkpackageProcessorAdapter;
+import de.metas.dunning.api.IDunningBL;
+import de.metas.dunning.api.IDunningCandidateProducer;
+import de.metas.dunning.api.IDunningContext;
+import de.metas.dunning.api.IDunningDAO;
+import de.metas.dunning.interfaces.I_C_Dunning;
+import de.metas.dunning.interfaces.I_C_DunningLevel;
+import de.metas.dunning.spi.IDunnableSource;
+
+/**
+ * Creates the dunning candidates of the partners which were enqueued as workpackage elements, on all dunning levels.
+ * <p>
+ * The levels are processed in the same order as {@link de.metas.dunning.process.C_Dunning_Candidate_Create} does, so sequential dunning levels behave the same.
+ * All candidates of a workpackage are saved in the workpackage's transaction (and not each one in its own transaction).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class CreateDunningCandidatesWorkpackageProcessor extends WorkpackageProcessorAdapter
+{
+	private static final String PARAM_DunningDate = "DunningDate";
+	private static final String PARAM_IsFullUpdate = "IsFullUpdate";
+
+	/**
+	 * Enqueues one workpackage for each chunk of <code>bpartnersPerWorkpackage</code> partners. All workpackages are in the same block.
+	 *
+	 * @param adPInstanceId <code>AD_PInstance_ID</code> of the process which enqueued the workpackages. Optional, can be less or equal 0
+	 * @return how many workpackages were enqueued
+	 */
+	public static int enqueue(final Properties ctx,
+			final Collection<Integer> bpartnerIds,
+			final int bpartnersPerWorkpackage,
+			final Timestamp dunningDate,
+			final boolean isFullUpdate,
+			final int adPInstanceId)
+	{
+		Check.assume(bpartnersPerWorkpackage > 0, "bpartnersPerWorkpackage > 0");
+		if (bpartnerIds.isEmpty())
+		{
+			return 0;
+		}
+
+		final IWorkPackageBlockBuilder blockBuilder = Services.get(IWorkPackageQueueFactory.class)
+				.getQueueForEnqueuing(ctx, CreateDunningCandidatesWorkpackageProcessor.class)
+				.newBlock()
+				.setContext(ctx);
+		if (adPInstanceId > 0)
+		{
+			blockBuilder.setAD_PInstance_Creator_ID(adPInstanceId);
+		}
+
+		int countWorkpackages = 0;
+		for (final List<Integer> bpartnerIdsChunk : Iterables.partition(bpartnerIds, bpartnersPerWorkpackage))
+		{
+			final IWorkPackageBuilder workpackageBuilder = blockBuilder.newWorkpackage()
+					.parameters()
+					.setParameter(PARAM_DunningDate, dunningDate)
+					.setParameter(PARAM_IsFullUpdate, isFullUpdate)
+					.end();
+
+			for (final Integer bpartnerId : bpartnerIdsChunk)
+			{
+				workpackageBuilder.addElement(new TableRecordReference(I_C_BPartner.Table_Name, bpartnerId));
+			}
+
+			workpackageBuilder.build();
+			countWorkpackages++;
+		}
+
+		return countWorkpackages;
+	}
+
+	@Override
+	public Result processWorkPackage(final I_C_Queue_WorkPackage workpackage, final String localTrxName)
+	{
+		final IDunningDAO dunningDAO = Services.get(IDunningDAO.class);
+		final IDunningBL dunningBL = Services.get(IDunningBL.class);
+
+		final Properties ctx = InterfaceWrapperHelper.getCtx(workpackage);
+		final IParams params = getParameters();
+		final Timestamp dunningDate = params.getParameterAsTimestamp(PARAM_DunningDate);
+		final boolean isFullUpdate = params.getParameterAsBool(PARAM_IsFullUpdate);
+
+		final List<Integer> bpartnerIds = new ArrayList<>();
+		for (final I_C_Queue_Element element : retrieveQueueElements(false))
+		{
+			bpartnerIds.add(element.getRecord_ID());
+		}
+		if (bpartnerIds.isEmpty())
+		{
+			return Result.SUCCESS;
+		}
+
+		// all candidates are created in the workpackage transaction; if one fails, the whole workpackage fails
+		final ITrxRunConfig trxRunConfig = Services.get(ITrxManager.class).createTrxRunConfig(TrxPropagation.NESTED, OnRunnableSuccess.DONT_COMMIT, OnRunnableFail.DONT_ROLLBACK);
+
+		for (final I_C_Dunning dunning : dunningDAO.retrieveDunnings(ctx))
+		{
+			for (final I_C_DunningLevel dunningLevel : dunningDAO.retrieveDunningLevels(dunning))
+			{
+				final IDunningContext context = dunningBL.createDunningContext(ctx, dunningLevel, dunningDate, trxRunConfig, localTrxName);
+				context.setProperty(IDunningCandidateProducer.CONTEXT_FullUpdate, isFullUpdate);
+				context.setProperty(IDunnableSource.CONTEXT_C_BPartner_IDs, bpartnerIds);
+
+				// NOTE: progress and throughput are reported to the workpackage log
+				dunningBL.createDunningCandidates(context);
+			}
+		}
+
+		return Result.SUCCESS;
+	}
+}
@@ -24,14 +24,18 @@ package de.metas.dunning.invoice.api;
 
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.adempiere.util.ISingletonService;
 import org.compiere.model.I_C_Invoice;
 
 import de.metas.dunning.api.IDunningContext;
 import de.metas.dunning.model.I_C_Dunning_Candidate_Invoice_v1;
+import de.metas.dunning.spi.IDunnableSource;
 
 /**
  * DAO methods related to {@link I_C_Invoice}s
@@ -47,5 +51,33 @@ public interface IInvoiceSourceDAO extends ISingletonService
 
 	int retrieveDueDays(int C_PaymentTerm_ID, Date dateInvoiced, Date date);
 
+	/**
+	 * Set based version of {@link #retrieveDueDays(I_C_Invoice, Date)}: retrieves the due days of all given invoices with one SQL.
+	 * 
+	 * @param invoiceIds
+	 * @param date
+	 * @return C_Invoice_ID to due days
+	 */
+	Map<Integer, Integer> retrieveDueDays(Collection<Integer> invoiceIds, Date date);
+
+	/**
+	 * @param invoiceIds
+	 * @return C_Invoice_ID to DocumentNo
+	 */
+	Map<Integer, String> retrieveDocumentNos(Collection<Integer> invoiceIds);
+
+	/**
+	 * Retrieves the invoices to be dunned on context's dunning level.
+	 * If the context has the property {@link IDunnableSource#CONTEXT_C_BPartner_IDs} set, only the invoices of those partners are retrieved.
+	 * 
+	 * @param context
+	 * @return
+	 */
 	Iterator<I_C_Dunning_Candidate_Invoice_v1> retrieveDunningCandidateInvoices(IDunningContext context);
+
+	/**
+	 * @param context
+	 * @return the IDs of the partners which have invoices to be dunned on context's dunning level, ordered by ID
+	 */
+	List<Integer> retrieveDunningCandidateBPartnerIds(IDunningContext context);
 }
@@ -23,14 +23,21 @@ package de.metas.dunning.invoice.api.impl;
  */
 
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.DBException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
 import org.compiere.model.Query;
@@ -42,6 +49,7 @@ import de.metas.dunning.api.IDunningContext;
 import de.metas.dunning.interfaces.I_C_DunningLevel;
 import de.metas.dunning.invoice.api.IInvoiceSourceDAO;
 import de.metas.dunning.model.I_C_Dunning_Candidate_Invoice_v1;
+import de.metas.dunning.spi.IDunnableSource;
 
 public class InvoiceSourceDAO implements IInvoiceSourceDAO
 {
@@ -65,11 +73,135 @@ public class InvoiceSourceDAO implements IInvoiceSourceDAO
 		return DB.getSQLValueEx(ITrx.TRXNAME_None, "SELECT paymentTermDueDays(?,?,?)", paymentTermId, dateInvoiced, date);
 	}
 
+	@Override
+	public Map<Integer, Integer> retrieveDueDays(final Collection<Integer> invoiceIds, final Date date)
+	{
+		final Map<Integer, Integer> invoiceId2dueDays = new HashMap<>(invoiceIds.size());
+		if (invoiceIds.isEmpty())
+		{
+			return invoiceId2dueDays;
+		}
+
+		final List<Object> sqlParams = new ArrayList<>();
+		sqlParams.add(date);
+		final String sql = "SELECT i.C_Invoice_ID, paymentTermDueDays(i.C_PaymentTerm_ID, i.DateInvoiced, ?)"
+				+ " FROM C_Invoice i"
+				+ " WHERE i.C_Invoice_ID IN " + DB.buildSqlList(invoiceIds, sqlParams);
+
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				invoiceId2dueDays.put(rs.getInt(1), rs.getInt(2));
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql, sqlParams);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+
+		return invoiceId2dueDays;
+	}
+
+	@Override
+	public Map<Integer, String> retrieveDocumentNos(final Collection<Integer> invoiceIds)
+	{
+		final Map<Integer, String> invoiceId2documentNo = new HashMap<>(invoiceIds.size());
+		if (invoiceIds.isEmpty())
+		{
+			return invoiceId2documentNo;
+		}
+
+		final List<Object> sqlParams = new ArrayList<>();
+		final String sql = "SELECT i.C_Invoice_ID, i.DocumentNo"
+				+ " FROM C_Invoice i"
+				+ " WHERE i.C_Invoice_ID IN " + DB.buildSqlList(invoiceIds, sqlParams);
+
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_ThreadInherited);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				invoiceId2documentNo.put(rs.getInt(1), rs.getString(2));
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql, sqlParams);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+
+		return invoiceId2documentNo;
+	}
+
 	@Override
 	public Iterator<I_C_Dunning_Candidate_Invoice_v1> retrieveDunningCandidateInvoices(final IDunningContext context)
+	{
+		final List<Object> params = new ArrayList<Object>();
+		final String whereClause = buildDunningCandidateInvoicesWhereClause(context, params);
+
+		return new Query(context.getCtx(), I_C_Dunning_Candidate_Invoice_v1.Table_Name, whereClause, context.getTrxName())
+				.setParameters(params)
+				.setOrderBy(I_C_Dunning_Candidate_Invoice_v1.COLUMNNAME_C_Invoice_ID
+						+ ", " + I_C_Dunning_Candidate_Invoice_v1.COLUMNNAME_C_InvoicePaySchedule_ID)
+				.setOption(Query.OPTION_IteratorBufferSize, 1000) // iterator shall load 1000 records at a time
+				.iterate(I_C_Dunning_Candidate_Invoice_v1.class, false); // guaranteed=false
+	}
+
+	@Override
+	public List<Integer> retrieveDunningCandidateBPartnerIds(final IDunningContext context)
+	{
+		final List<Object> params = new ArrayList<Object>();
+		final String whereClause = buildDunningCandidateInvoicesWhereClause(context, params);
+
+		final String sql = "SELECT DISTINCT C_BPartner_ID FROM " + I_C_Dunning_Candidate_Invoice_v1.Table_Name
+				+ " WHERE " + whereClause
+				+ " ORDER BY C_BPartner_ID";
+
+		final List<Integer> bpartnerIds = new ArrayList<>();
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, context.getTrxName());
+			DB.setParameters(pstmt, params);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				bpartnerIds.add(rs.getInt(1));
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql, params);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+
+		return bpartnerIds;
+	}
+
+	private String buildDunningCandidateInvoicesWhereClause(final IDunningContext context, final List<Object> params)
 	{
 		final Properties ctx = context.getCtx();
-		final String trxName = context.getTrxName();
 
 		final int adClientId = Env.getAD_Client_ID(ctx);
 
@@ -79,7 +211,6 @@ public class InvoiceSourceDAO implements IInvoiceSourceDAO
 		final I_C_DunningLevel dunningLevel = context.getC_DunningLevel();
 		Check.assumeNotNull(dunningLevel, "Context shall have DuningLevel set: {}", context);
 
-		final List<Object> params = new ArrayList<Object>();
 		final StringBuilder whereClause = new StringBuilder();
 
 		// Only for current tenant
@@ -96,11 +227,13 @@ public class InvoiceSourceDAO implements IInvoiceSourceDAO
 		whereClause.append(" AND EXISTS (SELECT 1 FROM C_DunningLevel dl WHERE dl.C_DunningLevel_ID = ? AND dl.C_Dunning_ID = " + I_C_Dunning_Candidate_Invoice_v1.Table_Name + "." + "C_Dunning_ID) ");
 		params.add(dunningLevel.getC_DunningLevel_ID());
 
-		return new Query(ctx, I_C_Dunning_Candidate_Invoice_v1.Table_Name, whereClause.toString(), trxName)
-				.setParameters(params)
-				.setOrderBy(I_C_Dunning_Candidate_Invoice_v1.COLUMNNAME_C_Invoice_ID
-						+ ", " + I_C_Dunning_Candidate_Invoice_v1.COLUMNNAME_C_InvoicePaySchedule_ID)
-				.setOption(Query.OPTION_IteratorBufferSize, 1000) // iterator shall load 1000 records at a time
-				.iterate(I_C_Dunning_Candidate_Invoice_v1.class, false); // guaranteed=false
+		// Only for given partners (if restricted)
+		final Collection<Integer> bpartnerIds = context.getProperty(IDunnableSource.CONTEXT_C_BPartner_IDs);
+		if (bpartnerIds != null && !bpartnerIds.isEmpty())
+		{
+			whereClause.append(" AND C_BPartner_ID IN ").append(DB.buildSqlList(bpartnerIds, params));
+		}
+
+		return whereClause.toString();
 	}
 }
@@ -24,13 +24,16 @@ package de.metas.dunning.invoice.spi.impl;
 
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import org.adempiere.ad.trx.api.ITrx;
-import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Services;
-import org.adempiere.util.collections.ConvertIteratorWrapper;
+import org.adempiere.util.collections.BatchConvertIteratorWrapper;
 import org.adempiere.util.collections.Converter;
 import org.compiere.model.I_C_InvoicePaySchedule;
 import org.compiere.util.TimeUtil;
@@ -45,23 +48,55 @@ import de.metas.dunning.spi.impl.AbstractDunnableSource;
 
 public class InvoiceSource extends AbstractDunnableSource
 {
+	/**
+	 * How many invoices are converted to {@link IDunnableDoc}s at once. The due days and document numbers are loaded with one SQL for each batch.
+	 */
+	private static final int BatchSize = 500;
+
 	@Override
 	protected Iterator<IDunnableDoc> createRawSourceIterator(final IDunningContext context)
 	{
 		final Iterator<I_C_Dunning_Candidate_Invoice_v1> it = Services.get(IInvoiceSourceDAO.class).retrieveDunningCandidateInvoices(context);
 
-		return new ConvertIteratorWrapper<IDunnableDoc, I_C_Dunning_Candidate_Invoice_v1>(it, new Converter<IDunnableDoc, I_C_Dunning_Candidate_Invoice_v1>()
+		return new BatchConvertIteratorWrapper<IDunnableDoc, I_C_Dunning_Candidate_Invoice_v1>(it, BatchSize, new Converter<List<IDunnableDoc>, List<I_C_Dunning_Candidate_Invoice_v1>>()
 		{
 
 			@Override
-			public IDunnableDoc convert(I_C_Dunning_Candidate_Invoice_v1 value)
+			public List<IDunnableDoc> convert(final List<I_C_Dunning_Candidate_Invoice_v1> values)
 			{
-				return createDunnableDoc(context, value);
+				return createDunnableDocs(context, values);
 			}
 		});
 	}
 
-	private IDunnableDoc createDunnableDoc(final IDunningContext context, final I_C_Dunning_Candidate_Invoice_v1 candidate)
+	private List<IDunnableDoc> createDunnableDocs(final IDunningContext context, final List<I_C_Dunning_Candidate_Invoice_v1> candidates)
+	{
+		//
+		// Load the due days and document numbers of the invoices without pay schedule, for the whole batch at once
+		final Set<Integer> invoiceIds = new HashSet<>();
+		for (final I_C_Dunning_Candidate_Invoice_v1 candidate : candidates)
+		{
+			if (candidate.getC_InvoicePaySchedule_ID() <= 0)
+			{
+				invoiceIds.add(candidate.getC_Invoice_ID());
+			}
+		}
+
+		final IInvoiceSourceDAO invoiceSourceDAO = Services.get(IInvoiceSourceDAO.class);
+		final Map<Integer, Integer> invoiceId2dueDays = invoiceSourceDAO.retrieveDueDays(invoiceIds, context.getDunningDate());
+		final Map<Integer, String> invoiceId2documentNo = invoiceSourceDAO.retrieveDocumentNos(invoiceIds);
+
+		final List<IDunnableDoc> dunnableDocs = new ArrayList<>(candidates.size());
+		for (final I_C_Dunning_Candidate_Invoice_v1 candidate : candidates)
+		{
+			dunnableDocs.add(createDunnableDoc(context, candidate, invoiceId2dueDays, invoiceId2documentNo));
+		}
+		return dunnableDocs;
+	}
+
+	private IDunnableDoc createDunnableDoc(final IDunningContext context, final I_C_Dunning_Candidate_Invoice_v1 candidate,
+			final Map<Integer, Integer> invoiceId2dueDays,
+			final Map<Integer, String> invoiceId2documentNo)
 	{
 		final int invoiceId = candidate.getC_Invoice_ID();
 		final int invoicePayScheduleId = candidate.getC_InvoicePaySchedule_ID();
@@ -97,19 +132,8 @@ public class InvoiceSource extends AbstractDunnableSource
 			tableName = I_C_Invoice.Table_Name;
 			recordId = invoiceId;
 			
-			final I_C_Invoice invoice  = InterfaceWrapperHelper.create(context.getCtx(), invoiceId, I_C_Invoice.class, ITrx.TRXNAME_ThreadInherited);
-			
-			if(invoice == null)
-			{
-				// shall not happen
-				// in case of no referenced record the documentNo is null.
-				
-				documentNo = null;
-			}
-			else
-			{
-				documentNo = invoice.getDocumentNo();
-			}
+			// in case of no referenced record the documentNo is null.
+			documentNo = invoiceId2documentNo.get(invoiceId);
 		}
 
 		final int daysDue;
@@ -117,8 +141,13 @@ public class InvoiceSource extends AbstractDunnableSource
 		{
 			daysDue = TimeUtil.getDaysBetween(dueDate, context.getDunningDate());
 		}
+		else if (invoiceId2dueDays.containsKey(invoiceId))
+		{
+			daysDue = invoiceId2dueDays.get(invoiceId);
+		}
 		else
 		{
+			// shall not happen
 			daysDue = Services.get(IInvoiceSourceDAO.class).retrieveDueDays(paymentTermId, dateInvoiced, context.getDunningDate());
 		}
 
@@ -23,30 +23,46 @@ package de.metas.dunning.process;
  */
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Services;
 import org.compiere.util.Env;
 import org.compiere.util.TrxRunnableAdapter;
 
 import de.metas.dunning.api.IDunningBL;
+import de.metas.dunning.async.CreateDunningCandidatesWorkpackageProcessor;
 import de.metas.dunning.api.IDunningCandidateProducer;
 import de.metas.dunning.api.IDunningContext;
 import de.metas.dunning.api.IDunningDAO;
 import de.metas.dunning.interfaces.I_C_Dunning;
 import de.metas.dunning.interfaces.I_C_DunningLevel;
+import de.metas.dunning.invoice.api.IInvoiceSourceDAO;
 import de.metas.dunning.spi.IDunnableSource;
 import de.metas.process.ProcessInfoParameter;
 import de.metas.process.JavaProcess;
 
 /**
  * Process responsible for generating dunning candidates for all configured {@link IDunnableSource}s
+ * <p>
+ * Unless the sysconfig {@value #SYSCONFIG_BPartnersPerWorkpackage} is set to zero, the candidates are generated asynchronously by {@link CreateDunningCandidatesWorkpackageProcessor},
+ * for chunks of partners. In that case only the partners with open invoices (see {@link IInvoiceSourceDAO#retrieveDunningCandidateBPartnerIds(IDunningContext)}) are enqueued.
  * 
  * @author tsa
  * 
  */
 public class C_Dunning_Candidate_Create extends JavaProcess
 {
+	/**
+	 * How many partners are evaluated in one workpackage. If less or equal zero, the candidates are generated synchronously, in this process.
+	 */
+	private static final String SYSCONFIG_BPartnersPerWorkpackage = "de.metas.dunning.process.C_Dunning_Candidate_Create.BPartnersPerWorkpackage";
+	private static final int DEFAULT_BPartnersPerWorkpackage = 100;
+
 	private static final String PARAM_DunningDate = "DunningDate";
 	private Timestamp p_DunningDate = null;
 
@@ -87,19 +103,72 @@ public class C_Dunning_Candidate_Create extends JavaProcess
 	{
 		final IDunningDAO dunningDAO = Services.get(IDunningDAO.class);
 
+		final int bpartnersPerWorkpackage = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_BPartnersPerWorkpackage, DEFAULT_BPartnersPerWorkpackage, getAD_Client_ID());
+		final boolean async = bpartnersPerWorkpackage > 0;
+		final Set<Integer> bpartnerIdsToEnqueue = new TreeSet<>();
+
 		//
 		// Generate dunning candidates
 		for (final I_C_Dunning dunning : dunningDAO.retrieveDunnings(getCtx()))
 		{
 			for (final I_C_DunningLevel dunningLevel : dunningDAO.retrieveDunningLevels(dunning))
 			{
-				generateCandidates(dunningLevel);
+				if (async)
+				{
+					bpartnerIdsToEnqueue.addAll(prepareCandidatesAsync(dunningLevel));
+				}
+				else
+				{
+					generateCandidates(dunningLevel);
+				}
 			}
 		}
 
+		//
+		// Enqueue the partners; each workpackage generates the candidates of its partners on all levels
+		if (async)
+		{
+			final int countWorkpackages = CreateDunningCandidatesWorkpackageProcessor.enqueue(getCtx(),
+					bpartnerIdsToEnqueue,
+					bpartnersPerWorkpackage,
+					p_DunningDate,
+					p_IsFullUpdate,
+					getAD_PInstance_ID());
+			addLog("{} partner(s) enqueued in {} workpackage(s)", bpartnerIdsToEnqueue.size(), countWorkpackages);
+		}
+
 		return "OK";
 	}
 
+	/**
+	 * Deletes the not processed candidates of given level.
+	 *
+	 * @return IDs of the partners which have documents to be dunned on given level
+	 */
+	private List<Integer> prepareCandidatesAsync(final I_C_DunningLevel dunningLevel)
+	{
+		final IDunningBL dunningBL = Services.get(IDunningBL.class);
+
+		final List<Integer> bpartnerIds = new ArrayList<>();
+		trxManager.run(new TrxRunnableAdapter()
+		{
+
+			@Override
+			public void run(String localTrxName) throws Exception
+			{
+				final IDunningContext context = dunningBL.createDunningContext(getCtx(), dunningLevel, p_DunningDate, get_TrxName());
+
+				final int countDelete = Services.get(IDunningDAO.class).deleteNotProcessedCandidates(context, dunningLevel);
+				addLog("@C_DunningLevel@ " + dunningLevel.getName() + ": " + countDelete + " record(s) deleted");
+
+				bpartnerIds.addAll(Services.get(IInvoiceSourceDAO.class).retrieveDunningCandidateBPartnerIds(context));
+				addLog("@C_DunningLevel@ " + dunningLevel.getName() + ": " + bpartnerIds.size() + " partner(s) to be evaluated");
+			}
+		});
+
+		return bpartnerIds;
+	}
+
 	private void generateCandidates(final I_C_DunningLevel dunningLevel)
 	{
 		final IDunningBL dunningBL = Services.get(IDunningBL.class);
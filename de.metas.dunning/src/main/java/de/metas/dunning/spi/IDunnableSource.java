@@ -39,6 +39,11 @@ import de.metas.dunning.api.IDunningContext;
  */
 public interface IDunnableSource
 {
+	/**
+	 * Context property: {@link java.util.Collection} of C_BPartner_IDs. If set, the sources shall only return the documents of those partners.
+	 */
+	String CONTEXT_C_BPartner_IDs = IDunnableSource.class.getName() + "#" + "C_BPartner_IDs";
+
 	/**
 	 * Returns an iterator over a set of source documents.
 	 * 
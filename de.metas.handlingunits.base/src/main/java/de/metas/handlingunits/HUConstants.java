@@ -111,6 +111,19 @@ public final class HUConstants
 				DEFAULT_AttributeStorageFailOnDisposed);
 	}
 
+	public static final String SYSCONFIG_AttributePropagationSessionEnabled = "de.metas.handlingunits.attribute.storage.IAttributeStorage.PropagationSessionEnabled";
+	private static final boolean DEFAULT_AttributePropagationSessionEnabled = true;
+
+	/**
+	 * @return true if attribute values shall be propagated in a session, i.e. the HU structure is read once and the changed attributes are saved once, when the propagation is done
+	 */
+	public static final boolean isAttributePropagationSessionEnabled()
+	{
+		return Services.get(ISysConfigBL.class).getBooleanValue(
+				SYSCONFIG_AttributePropagationSessionEnabled,
+				DEFAULT_AttributePropagationSessionEnabled);
+	}
+
 	public static final String DIM_PP_Order_ProductAttribute_To_Transfer = "PP_Order_ProductAttribute_Transfer";
 	
 	public static final String DIM_Barcode_Attributes = "DIM_Barcode_Attributes";
@@ -42,6 +42,7 @@ import org.adempiere.mm.attributes.spi.IAttributeValueCallout;
 import org.adempiere.mm.attributes.spi.IAttributeValueContext;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
+import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.ObjectUtils;
 import org.compiere.model.I_M_Attribute;
 import org.compiere.model.I_M_AttributeValue;
@@ -620,6 +621,20 @@ public abstract class AbstractAttributeStorage implements IAttributeStorage
 		setValue(propagationContext, value);
 	}
 
+	/**
+	 * Sets the value and propagates it. The whole propagation runs in one {@link HUAttributePropagationSession}, so the changed attributes are saved once, when the propagation is done.
+	 */
+	@Override
+	public final void setValue(final I_M_Attribute attribute, final Object value)
+	{
+		assertNotDisposed();
+
+		try (final IAutoCloseable propagationSession = HUAttributePropagationSession.openIfNeeded(getHUAttributesDAO()))
+		{
+			setValueAndPropagate(attribute, value);
+		}
+	}
+
 	/**
 	 * Note: Order of setting values is important here:
 	 * <ol>
@@ -627,11 +642,8 @@ public abstract class AbstractAttributeStorage implements IAttributeStorage
 	 * <li>Afterwards, propagate in opposite direction if possible without re-setting the internal value.</li>
 	 * </ol>
 	 */
-	@Override
-	public final void setValue(final I_M_Attribute attribute, final Object value)
+	private final void setValueAndPropagate(final I_M_Attribute attribute, final Object value)
 	{
-		assertNotDisposed();
-
 		final IHUAttributePropagator attributePropagator = huAttributePropagatorFactory.getPropagator(this, attribute);
 		final IHUAttributePropagationContext propagationContext = createPropagationContext(attribute, attributePropagator);
 
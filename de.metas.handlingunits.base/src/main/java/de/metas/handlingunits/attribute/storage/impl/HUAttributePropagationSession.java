@@ -0,0 +1,164 @@
+package de.metas.handlingunits.attribute.storage.impl;
+
+/*
+ * #%L
+ * de.metas.handlingunits.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.adempiere.util.lang.IAutoCloseable;
+import org.adempiere.util.lang.NullAutoCloseable;
+
+import de.metas.handlingunits.HUConstants;
+import de.metas.handlingunits.attribute.IHUAttributesDAO;
+import de.metas.handlingunits.attribute.storage.IAttributeStorage;
+
+/**
+ * Collects the work of one attribute value propagation (i.e. one external {@link IAttributeStorage#setValue(org.compiere.model.I_M_Attribute, Object)}) across the whole HU tree:
+ * <ul>
+ * <li>the parent of each attribute storage is retrieved only once, instead of on each propagation hop (the HU structure is not changed while attributes are propagated)
+ * <li>the changed {@link HUAttributeValue}s which shall be saved on change are saved only once, when the propagation is done; the autoflush of the {@link IHUAttributesDAO} is disabled meanwhile,
+ * so the <code>M_HU_Attribute</code>s are written in one go
+ * </ul>
+ * The values themselves are still propagated hop by hop, in the same order as without a session, because the attribute callouts (e.g. the weight callouts) depend on the propagation context.
+ * <p>
+ * The session is bound to the current thread. If a session is already running, the inner invocations are joining it.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ * @see HUConstants#isAttributePropagationSessionEnabled()
+ */
+/* package */final class HUAttributePropagationSession implements IAutoCloseable
+{
+	private static final ThreadLocal<HUAttributePropagationSession> currentSessionRef = new ThreadLocal<>();
+
+	/**
+	 * Starts a new session for the current thread, unless there is already one running or sessions are disabled.
+	 *
+	 * @param huAttributesDAO DAO whose autoflush shall be disabled while the session is running
+	 * @return the session, which shall be closed when the propagation is done, or {@link NullAutoCloseable} if no new session was started
+	 */
+	public static IAutoCloseable openIfNeeded(final IHUAttributesDAO huAttributesDAO)
+	{
+		if (currentSessionRef.get() != null)
+		{
+			return NullAutoCloseable.instance;
+		}
+		if (!HUConstants.isAttributePropagationSessionEnabled())
+		{
+			return NullAutoCloseable.instance;
+		}
+
+		final HUAttributePropagationSession session = new HUAttributePropagationSession(huAttributesDAO.temporaryDisableAutoflush());
+		currentSessionRef.set(session);
+		return session;
+	}
+
+	/**
+	 * @return session of current thread or <code>null</code>
+	 */
+	public static HUAttributePropagationSession getCurrentOrNull()
+	{
+		return currentSessionRef.get();
+	}
+
+	private final IAutoCloseable autoflushDisabler;
+	private final Map<IAttributeStorage, IAttributeStorage> parentAttributeStorages = new IdentityHashMap<>();
+	/** Attribute values to be saved on close; we use the map as an identity based linked set */
+	private final Map<HUAttributeValue, Boolean> attributeValuesToSave = new LinkedHashMap<>();
+	private boolean closed = false;
+
+	private HUAttributePropagationSession(final IAutoCloseable autoflushDisabler)
+	{
+		super();
+		this.autoflushDisabler = autoflushDisabler;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "HUAttributePropagationSession[parents=" + parentAttributeStorages.size()
+				+ ", attributeValuesToSave=" + attributeValuesToSave.size()
+				+ ", closed=" + closed
+				+ "]";
+	}
+
+	/**
+	 * @param parentAttributeStorageLoader used to retrieve the parent if it was not retrieved yet in this session
+	 * @return parent of given attribute storage
+	 */
+	public IAttributeStorage getParentAttributeStorage(final IAttributeStorage attributeStorage, final Supplier<IAttributeStorage> parentAttributeStorageLoader)
+	{
+		IAttributeStorage parentAttributeStorage = parentAttributeStorages.get(attributeStorage);
+		if (parentAttributeStorage == null)
+		{
+			parentAttributeStorage = parentAttributeStorageLoader.get();
+			parentAttributeStorages.put(attributeStorage, parentAttributeStorage);
+		}
+		return parentAttributeStorage;
+	}
+
+	/**
+	 * Enqueues given attribute value to be saved when the session is closed. Enqueuing the same value more than once has no effect.
+	 */
+	public void saveOnClose(final HUAttributeValue attributeValue)
+	{
+		attributeValuesToSave.put(attributeValue, Boolean.TRUE);
+	}
+
+	/**
+	 * Saves the enqueued attribute values (each of them once) and enables back the autoflush, which writes them to database.
+	 */
+	@Override
+	public void close()
+	{
+		if (closed)
+		{
+			return;
+		}
+		closed = true;
+
+		// Unbind first, so that the values are actually saved now
+		if (currentSessionRef.get() == this)
+		{
+			currentSessionRef.remove();
+		}
+		parentAttributeStorages.clear();
+
+		try
+		{
+			final List<HUAttributeValue> attributeValues = new ArrayList<>(attributeValuesToSave.keySet());
+			attributeValuesToSave.clear();
+			for (final HUAttributeValue attributeValue : attributeValues)
+			{
+				attributeValue.saveIfNotDisposed();
+			}
+		}
+		finally
+		{
+			autoflushDisabler.close();
+		}
+	}
+}
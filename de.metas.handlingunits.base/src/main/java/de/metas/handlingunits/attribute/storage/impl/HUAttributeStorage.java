@@ -82,6 +82,19 @@ import de.metas.handlingunits.model.I_M_HU_Item;
 
 	@Override
 	public IAttributeStorage getParentAttributeStorage()
+	{
+		//
+		// While propagating, the HU structure is not changed, so retrieve the parent only once per session and not on each propagation hop
+		final HUAttributePropagationSession propagationSession = HUAttributePropagationSession.getCurrentOrNull();
+		if (propagationSession != null)
+		{
+			return propagationSession.getParentAttributeStorage(this, this::retrieveParentAttributeStorage);
+		}
+
+		return retrieveParentAttributeStorage();
+	}
+
+	private IAttributeStorage retrieveParentAttributeStorage()
 	{
 		final I_M_HU hu = getM_HU();
 		if (hu == null)
@@ -172,6 +172,29 @@ final class HUAttributeValue extends AbstractHUAttributeValue
 			return;
 		}
 
+		//
+		// While propagating, save the value only once, when the propagation is done
+		final HUAttributePropagationSession propagationSession = HUAttributePropagationSession.getCurrentOrNull();
+		if (propagationSession != null)
+		{
+			propagationSession.saveOnClose(this);
+			return;
+		}
+
+		save();
+	}
+
+	/**
+	 * Save to database, unless the attribute storage was disposed in meantime. Called by {@link HUAttributePropagationSession} when the propagation is done.
+	 */
+	final void saveIfNotDisposed()
+	{
+		// Don't save the values of a disposed storage, because this could override newer values (same as in saveChangesIfNeeded).
+		if (!assertNotDisposed())
+		{
+			return;
+		}
+
 		save();
 	}
 
@@ -77,7 +77,8 @@ public class HUPricing extends AttributePricing
 
 		final ProductPriceQuery productPriceQuery = ProductPriceQuery.newInstance(plv)
 				.setM_Product_ID(pricingCtx.getM_Product_ID())
-				.matching(createHUPIItemProductMatcher(huPIItemProductId));
+				.matching(createHUPIItemProductMatcher(huPIItemProductId))
+				.usingProductPricesIndex();
 
 		// Match attributes if we have attributes.
 		if (attributeSetInstance == null || attributeSetInstance.getM_AttributeSetInstance_ID() <= 0)
@@ -0,0 +1,57 @@
+package de.metas.handlingunits.attribute.storage.impl;
+
+/*
+ * #%L
+ * de.metas.handlingunits.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import de.metas.handlingunits.AbstractHUTest;
+
+/**
+ * Manual test: prints how long the attribute propagation on a large pallet takes, with and without {@link HUAttributePropagationSession}.
+ * <p>
+ * Runs the scenario of {@link HUAttributePropagationSessionTest}. No database is needed, it runs on the in-memory (POJO) persistence of the unit tests.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class HUAttributePropagationSessionManualTest
+{
+	public static void main(final String[] args)
+	{
+		final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+
+		AbstractHUTest.staticInit();
+		final HUAttributePropagationSessionTest test = new HUAttributePropagationSessionTest();
+		test.init();
+
+		for (int round = 1; round <= rounds; round++) // first round(s) are warming up
+		{
+			for (final boolean sessionEnabled : new boolean[] { false, true })
+			{
+				final long startNanos = System.nanoTime();
+				test.runScenario(sessionEnabled);
+				final long durationMillis = (System.nanoTime() - startNanos) / 1000000;
+
+				System.out.println("Round " + round + ", sessionEnabled=" + sessionEnabled + ": " + durationMillis + "ms, " + test.getSaveCount() + " M_HU_Attribute saves");
+			}
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package de.metas.handlingunits.attribute.storage.impl;
+
+/*
+ * #%L
+ * de.metas.handlingunits.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Services;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.model.I_M_Attribute;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metas.handlingunits.HUConstants;
+import de.metas.handlingunits.attribute.IAttributeValue;
+import de.metas.handlingunits.attribute.IHUAttributesDAO;
+import de.metas.handlingunits.attribute.storage.IAttributeStorage;
+import de.metas.handlingunits.attributes.impl.AbstractWeightAttributeTest;
+import de.metas.handlingunits.model.I_M_HU;
+import de.metas.handlingunits.model.I_M_HU_Attribute;
+
+/**
+ * Tests that propagating attribute values in a {@link HUAttributePropagationSession} gives the same results as propagating them without a session,
+ * while each changed <code>M_HU_Attribute</code> is saved only once.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class HUAttributePropagationSessionTest extends AbstractWeightAttributeTest
+{
+	/** 85 TUs on one LU */
+	private static final BigDecimal CU_QTY_850 = BigDecimal.valueOf(850);
+
+	private CountingHUAttributesDAO huAttributesDAO;
+	/** Max number of saves of one HU attribute during one propagation, see {@link #runScenario(boolean)} */
+	private int maxSaveCountPerHUAttribute;
+
+	@Override
+	protected void afterInitialize()
+	{
+		super.afterInitialize();
+
+		huAttributesDAO = new CountingHUAttributesDAO(attributeStorageFactory.getHUAttributesDAO());
+		attributeStorageFactory.setHUAttributesDAO(huAttributesDAO);
+	}
+
+	@Test
+	public void test_SameResultsAsWithoutSession()
+	{
+		final Map<String, String> valuesWithoutSession = runScenario(false);
+		final int savesWithoutSession = huAttributesDAO.getSaveCount();
+
+		final Map<String, String> valuesWithSession = runScenario(true);
+		final int savesWithSession = huAttributesDAO.getSaveCount();
+
+		Assert.assertEquals(valuesWithoutSession, valuesWithSession);
+		Assert.assertTrue("savesWithSession=" + savesWithSession + " shall be less than savesWithoutSession=" + savesWithoutSession, savesWithSession < savesWithoutSession);
+		Assert.assertEquals("Each HU attribute shall be saved at most once per propagation", 1, maxSaveCountPerHUAttribute);
+	}
+
+	@Test
+	public void test_NestedSessionsAreJoined()
+	{
+		setSessionEnabled(true);
+
+		try (final IAutoCloseable session = HUAttributePropagationSession.openIfNeeded(huAttributesDAO))
+		{
+			Assert.assertSame(session, HUAttributePropagationSession.getCurrentOrNull());
+			try (final IAutoCloseable nestedSession = HUAttributePropagationSession.openIfNeeded(huAttributesDAO))
+			{
+				Assert.assertNotSame(session, nestedSession);
+				Assert.assertSame(session, HUAttributePropagationSession.getCurrentOrNull());
+			}
+			Assert.assertSame(session, HUAttributePropagationSession.getCurrentOrNull());
+		}
+		Assert.assertNull(HUAttributePropagationSession.getCurrentOrNull());
+	}
+
+	/**
+	 * Creates an LU with 85 TUs and changes the weights on LU and TU level.
+	 *
+	 * @return the resulting attribute values of the whole HU tree
+	 */
+	/* package */Map<String, String> runScenario(final boolean sessionEnabled)
+	{
+		setSessionEnabled(sessionEnabled);
+
+		final I_M_HU loadingUnit = createIncomingLoadingUnit(huItemIFCO_10, materialItemProductTomato_10, CU_QTY_850, new BigDecimal("1000"));
+		final IAttributeStorage luAttributeStorage = attributeStorageFactory.getAttributeStorage(loadingUnit);
+		luAttributeStorage.setSaveOnChange(true);
+
+		huAttributesDAO.resetCounters();
+		maxSaveCountPerHUAttribute = 0;
+
+		// Top-down: distribute a new gross weight on all TUs
+		luAttributeStorage.setValue(attr_WeightGross, new BigDecimal("1234.567"));
+		maxSaveCountPerHUAttribute = Math.max(maxSaveCountPerHUAttribute, huAttributesDAO.getMaxSaveCountPerHUAttributeAndReset());
+
+		// Bottom-up: change the gross weight of one TU
+		final List<IAttributeStorage> tuAttributeStorages = new ArrayList<>(luAttributeStorage.getChildAttributeStorages(true));
+		Assert.assertEquals("TUs on LU", 85, tuAttributeStorages.size());
+		tuAttributeStorages.get(42).setValue(attr_WeightGross, new BigDecimal("20"));
+		maxSaveCountPerHUAttribute = Math.max(maxSaveCountPerHUAttribute, huAttributesDAO.getMaxSaveCountPerHUAttributeAndReset());
+
+		final Map<String, String> values = new LinkedHashMap<>();
+		collectValues(values, "LU", luAttributeStorage);
+		return values;
+	}
+
+	/**
+	 * @return how many <code>M_HU_Attribute</code>s were saved during the last {@link #runScenario(boolean)}
+	 */
+	/* package */int getSaveCount()
+	{
+		return huAttributesDAO.getSaveCount();
+	}
+
+	private static void collectValues(final Map<String, String> values, final String path, final IAttributeStorage attributeStorage)
+	{
+		for (final IAttributeValue attributeValue : attributeStorage.getAttributeValues())
+		{
+			final I_M_Attribute attribute = attributeValue.getM_Attribute();
+			values.put(path + "/" + attribute.getValue(), String.valueOf(attributeValue.getValue()));
+		}
+
+		int childIndex = 0;
+		for (final IAttributeStorage childAttributeStorage : attributeStorage.getChildAttributeStorages(true))
+		{
+			collectValues(values, path + "/" + childIndex, childAttributeStorage);
+			childIndex++;
+		}
+	}
+
+	private static void setSessionEnabled(final boolean sessionEnabled)
+	{
+		final int adOrgId = 0;
+		Services.get(ISysConfigBL.class).setValue(HUConstants.SYSCONFIG_AttributePropagationSessionEnabled, sessionEnabled, adOrgId);
+	}
+
+	/**
+	 * Delegates to the actual DAO and counts the saves.
+	 */
+	private static final class CountingHUAttributesDAO implements IHUAttributesDAO
+	{
+		private final IHUAttributesDAO delegate;
+		private final Map<I_M_HU_Attribute, Integer> saveCounts = new IdentityHashMap<>();
+		private int saveCount = 0;
+
+		public CountingHUAttributesDAO(final IHUAttributesDAO delegate)
+		{
+			super();
+			this.delegate = delegate;
+		}
+
+		public void resetCounters()
+		{
+			saveCounts.clear();
+			saveCount = 0;
+		}
+
+		public int getSaveCount()
+		{
+			return saveCount;
+		}
+
+		public int getMaxSaveCountPerHUAttributeAndReset()
+		{
+			int max = 0;
+			for (final Integer count : saveCounts.values())
+			{
+				max = Math.max(max, count);
+			}
+			saveCounts.clear();
+			return max;
+		}
+
+		@Override
+		public I_M_HU_Attribute newHUAttribute(final Object contextProvider)
+		{
+			return delegate.newHUAttribute(contextProvider);
+		}
+
+		@Override
+		public void save(final I_M_HU_Attribute huAttribute)
+		{
+			saveCount++;
+			final Integer count = saveCounts.get(huAttribute);
+			saveCounts.put(huAttribute, count == null ? 1 : count + 1);
+
+			delegate.save(huAttribute);
+		}
+
+		@Override
+		public void delete(final I_M_HU_Attribute huAttribute)
+		{
+			delegate.delete(huAttribute);
+		}
+
+		@Override
+		public void initHUAttributes(final I_M_HU hu)
+		{
+			delegate.initHUAttributes(hu);
+		}
+
+		@Override
+		public List<I_M_HU_Attribute> retrieveAttributesOrdered(final I_M_HU hu)
+		{
+			return delegate.retrieveAttributesOrdered(hu);
+		}
+
+		@Override
+		public I_M_HU_Attribute retrieveAttribute(final I_M_HU hu, final I_M_Attribute attribute)
+		{
+			return delegate.retrieveAttribute(hu, attribute);
+		}
+
+		@Override
+		public IAutoCloseable temporaryDisableAutoflush()
+		{
+			return delegate.temporaryDisableAutoflush();
+		}
+
+		@Override
+		public void flushAndClearCache()
+		{
+			delegate.flushAndClearCache();
+		}
+	}
+}
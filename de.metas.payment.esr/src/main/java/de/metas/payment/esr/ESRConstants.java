@@ -74,6 +74,14 @@ public final class ESRConstants
 	 */
 	public static final String SYSCONFIG_EAGER_PAYMENT_ALLOCATION = "de.metas.payment.esr.AlwaysAutoAllocateAvailablePayAmount";
 
+	/**
+	 * Integer parameter. Number of file lines that are created and matched in one transaction and whose reference numbers are resolved with one query when an ESR file is loaded.
+	 * Default is {@value #DEFAULT_LoadESRImportFileBatchSize}.
+	 */
+	public static final String SYSCONFIG_LoadESRImportFileBatchSize = "de.metas.payment.esr.LoadESRImportFile.BatchSize";
+
+	public static final int DEFAULT_LoadESRImportFileBatchSize = 500;
+
 	public static final String ASK_PreventDuplicateImportFiles = "de.metas.payment.esr.PreventDuplicatesWarning";
 
 	public static final String WARN_PreventDuplicateImportFilesEntirely = "de.metas.payment.esr.PreventDuplicatesEtirely";
@@ -22,8 +22,10 @@ package de.metas.payment.esr.api;
  * #L%
  */
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.adempiere.util.ISingletonService;
@@ -82,6 +84,17 @@ public interface IESRImportDAO extends ISingletonService
 	 */
 	I_C_ReferenceNo_Doc retrieveESRInvoiceReferenceNumberDocument(Properties ctx, String esrReferenceNumber);
 
+	/**
+	 * Set based variant of {@link #retrieveESRInvoiceReferenceNumberDocument(Properties, String)}, used to resolve the reference numbers of a whole batch of import lines with a few queries.
+	 *
+	 * @param ctx
+	 * @param esrReferenceNumbers
+	 * @return map of <code>esrReferenceNumber</code> to the invoice's reference number document, or to <code>null</code> if there is no such document.<br>
+	 *         Reference numbers that could not be resolved unambiguously are <b>not</b> contained in the map; callers shall fall back to
+	 *         {@link #retrieveESRInvoiceReferenceNumberDocument(Properties, String)} for them.
+	 */
+	Map<String, I_C_ReferenceNo_Doc> retrieveESRInvoiceReferenceNumberDocuments(Properties ctx, Collection<String> esrReferenceNumbers);
+
 	/**
 	 * Retrieve the existing esr imports of the organization given as parameter (through ID)
 	 *
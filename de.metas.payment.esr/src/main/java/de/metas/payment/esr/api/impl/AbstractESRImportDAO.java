@@ -24,12 +24,18 @@ package de.metas.payment.esr.api.impl;
 
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.table.api.IADTableDAO;
+import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Services;
@@ -134,9 +140,89 @@ public abstract class AbstractESRImportDAO implements IESRImportDAO
 			return null;
 		}
 
+		final List<I_C_ReferenceNo_Doc> docs = Services.get(IReferenceNoDAO.class).retrieveAllDocAssignments(referenceNo);
+		final List<I_C_ReferenceNo_Doc> invoiceDocs = filterInvoiceDocs(ctx, docs);
+		if (invoiceDocs.isEmpty())
+		{
+			return null;
+		}
+		else if (invoiceDocs.size() > 1)
+		{
+			throw new AdempiereException("More then one assigned invoice found for " + esrReferenceNumber + " (" + referenceNo + ")");
+		}
+
+		return invoiceDocs.get(0);
+	}
+
+	@Override
+	public Map<String, I_C_ReferenceNo_Doc> retrieveESRInvoiceReferenceNumberDocuments(final Properties ctx, final Collection<String> esrReferenceNumbers)
+	{
+		final Map<String, I_C_ReferenceNo_Doc> result = new HashMap<>();
+		if (esrReferenceNumbers == null || esrReferenceNumbers.isEmpty())
+		{
+			return result;
+		}
+
+		final Map<String, I_C_ReferenceNo> esrReferenceNumber2referenceNo = fetchESRInvoiceReferenceNumbers(ctx, esrReferenceNumbers);
+
+		//
+		// Load the document assignments of all found reference numbers with one query
+		final Map<Integer, List<I_C_ReferenceNo_Doc>> referenceNoId2docs = new HashMap<>();
+		if (!esrReferenceNumber2referenceNo.isEmpty())
+		{
+			final Set<Integer> referenceNoIds = new HashSet<>();
+			for (final I_C_ReferenceNo referenceNo : esrReferenceNumber2referenceNo.values())
+			{
+				referenceNoIds.add(referenceNo.getC_ReferenceNo_ID());
+			}
+
+			final List<I_C_ReferenceNo_Doc> docs = Services.get(IQueryBL.class).createQueryBuilder(I_C_ReferenceNo_Doc.class, ctx, ITrx.TRXNAME_None)
+					.addInArrayFilter(I_C_ReferenceNo_Doc.COLUMNNAME_C_ReferenceNo_ID, referenceNoIds)
+					.create()
+					.list(I_C_ReferenceNo_Doc.class);
+			for (final I_C_ReferenceNo_Doc doc : docs)
+			{
+				List<I_C_ReferenceNo_Doc> referenceNoDocs = referenceNoId2docs.get(doc.getC_ReferenceNo_ID());
+				if (referenceNoDocs == null)
+				{
+					referenceNoDocs = new ArrayList<>();
+					referenceNoId2docs.put(doc.getC_ReferenceNo_ID(), referenceNoDocs);
+				}
+				referenceNoDocs.add(doc);
+			}
+		}
+
+		for (final String esrReferenceNumber : esrReferenceNumbers)
+		{
+			final I_C_ReferenceNo referenceNo = esrReferenceNumber2referenceNo.get(esrReferenceNumber);
+			if (referenceNo == null)
+			{
+				result.put(esrReferenceNumber, null);
+				continue;
+			}
+
+			final List<I_C_ReferenceNo_Doc> docs = referenceNoId2docs.get(referenceNo.getC_ReferenceNo_ID());
+			final List<I_C_ReferenceNo_Doc> invoiceDocs = filterInvoiceDocs(ctx, docs == null ? Collections.<I_C_ReferenceNo_Doc> emptyList() : docs);
+			if (invoiceDocs.isEmpty())
+			{
+				result.put(esrReferenceNumber, null);
+			}
+			else if (invoiceDocs.size() == 1)
+			{
+				result.put(esrReferenceNumber, invoiceDocs.get(0));
+			}
+			// else: ambiguous; leave it out, so that the caller gets the proper error from retrieveESRInvoiceReferenceNumberDocument()
+		}
+		return result;
+	}
+
+	/**
+	 * @return those of the given <code>docs</code> that reference an invoice and that belong to the ctx's AD_Client_ID/AD_Org_ID (or to <code>*</code>)
+	 */
+	private List<I_C_ReferenceNo_Doc> filterInvoiceDocs(final Properties ctx, final List<I_C_ReferenceNo_Doc> docs)
+	{
 		final int invoiceTableID = Services.get(IADTableDAO.class).retrieveTableId(I_C_Invoice.Table_Name);
 
-		final List<I_C_ReferenceNo_Doc> docs = Services.get(IReferenceNoDAO.class).retrieveAllDocAssignments(referenceNo);
 		final List<I_C_ReferenceNo_Doc> invoiceDocs = new ArrayList<I_C_ReferenceNo_Doc>();
 		for (final I_C_ReferenceNo_Doc doc : docs)
 		{
@@ -159,17 +245,28 @@ public abstract class AbstractESRImportDAO implements IESRImportDAO
 
 			invoiceDocs.add(doc);
 		}
+		return invoiceDocs;
+	}
 
-		if (invoiceDocs.isEmpty())
-		{
-			return null;
-		}
-		else if (invoiceDocs.size() > 1)
+	/**
+	 * Fetches the reference numbers for the given <code>esrReferenceNumbers</code>.
+	 * <p>
+	 * This default implementation invokes {@link #fetchESRInvoiceReferenceNumber(Properties, String)} for each of them. Implementors are encouraged to do it with one query.
+	 *
+	 * @return map of <code>esrReferenceNumber</code> to reference number; numbers that were not found are not contained
+	 */
+	protected Map<String, I_C_ReferenceNo> fetchESRInvoiceReferenceNumbers(final Properties ctx, final Collection<String> esrReferenceNumbers)
+	{
+		final Map<String, I_C_ReferenceNo> result = new HashMap<>();
+		for (final String esrReferenceNumber : esrReferenceNumbers)
 		{
-			throw new AdempiereException("More then one assigned invoice found for " + esrReferenceNumber + " (" + referenceNo + ")");
+			final I_C_ReferenceNo referenceNo = fetchESRInvoiceReferenceNumber(ctx, esrReferenceNumber);
+			if (referenceNo != null)
+			{
+				result.put(esrReferenceNumber, referenceNo);
+			}
 		}
-
-		return invoiceDocs.get(0);
+		return result;
 	}
 
 	protected abstract I_C_ReferenceNo fetchESRInvoiceReferenceNumber(@CacheCtx final Properties ctx, final String esrReferenceNumber);
@@ -54,8 +54,10 @@ import org.adempiere.service.IAttachmentBL;
 import org.adempiere.service.IOrgDAO;
 import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.Check;
+import org.adempiere.util.Loggables;
 import org.adempiere.util.Services;
 import org.adempiere.util.api.IMsgBL;
+import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.IMutable;
 import org.adempiere.util.lang.Mutable;
 import org.compiere.model.I_AD_Attachment;
@@ -196,42 +198,53 @@ public class ESRImportBL implements IESRImportBL
 			return;
 		}
 
-		final ByteArrayInputStream in = new ByteArrayInputStream(data);
+		final int batchSize = Services.get(ISysConfigBL.class).getIntValue(ESRConstants.SYSCONFIG_LoadESRImportFileBatchSize, ESRConstants.DEFAULT_LoadESRImportFileBatchSize, esrImport.getAD_Client_ID());
 
 		BufferedReader reader = null;
 		try
 		{
-			reader = new BufferedReader(new InputStreamReader(in));
+			reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data)));
 
 			BigDecimal importAmt = BigDecimal.ZERO;
 			int trxQty = 0;
 			int lineNo = 0;
-			while (reader.ready())
+
+			// Parse the file into batches; each batch is created and matched in one go, see createAndMatchESRImportLines()
+			final List<String> batchLineTexts = new ArrayList<String>();
+			String currentTextLine;
+			do
 			{
-				final String currentTextLine = reader.readLine();
+				currentTextLine = reader.readLine();
 
 				// task 06281: skipping empty lines
-				if (Check.isEmpty(currentTextLine))
+				if (!Check.isEmpty(currentTextLine))
 				{
-					continue;
+					batchLineTexts.add(currentTextLine);
 				}
 
-				// for row number
-				lineNo++;
-
-				final I_ESR_ImportLine line = createESRImportLine(esrImport, currentTextLine, lineNo, trxRunConfig);
-
-				if (isControlLine(line))
+				final boolean endOfFile = currentTextLine == null;
+				if (batchLineTexts.isEmpty() || !endOfFile && batchLineTexts.size() < batchSize)
 				{
-					// The control lines do not contain relevant information about the bank account
 					continue;
 				}
-				else
+
+				final List<I_ESR_ImportLine> lines = createAndMatchESRImportLines(esrImport, batchLineTexts, lineNo, trxRunConfig);
+				lineNo += lines.size();
+				batchLineTexts.clear();
+
+				for (final I_ESR_ImportLine line : lines)
 				{
+					if (isControlLine(line))
+					{
+						// The control lines do not contain relevant information about the bank account
+						continue;
+					}
 					importAmt = importAmt.add(line.getAmount());
 					trxQty++;
 				}
+				Loggables.get().addLog("{}: created and matched {} lines", esrImport, lineNo);
 			}
+			while (currentTextLine != null);
 
 			final boolean hasLines = lineNo > 0;
 
@@ -414,43 +427,120 @@ public class ESRImportBL implements IESRImportBL
 			@Override
 			public void run(String localTrxName) throws Exception
 			{
-				try
-				{
-					esrLineMatcher.match(esrImportLine);
-				}
-				catch (Exception e)
-				{
-					logger.info(e.getLocalizedMessage(), e);
+				matchESRImportLine0(esrImportLine);
+			}
+		});
+	}
 
-					esrImportLine.setIsValid(false);
-					esrImportLine.setProcessed(false);
-					addErrorMsg(esrImportLine, e.getLocalizedMessage());
-				}
+	private void matchESRImportLine0(final I_ESR_ImportLine esrImportLine)
+	{
+		matchESRImportLineNoSave(esrImportLine);
 
-				try
+		try
+		{
+			InterfaceWrapperHelper.save(esrImportLine);
+		}
+		catch (Exception e)
+		{
+			// if there is an an assumption error, catch it to add a message and the release it
+			final I_ESR_Import esrImport = esrImportLine.getESR_Import();
+			esrImport.setDescription(esrImport.getDescription() + " > " + e.getLocalizedMessage());
+			InterfaceWrapperHelper.save(esrImport, ITrx.TRXNAME_None); // out of transaction: we want to not be rollback
+			throw new AdempiereException(e);
+		}
+	}
+
+	/**
+	 * Creates and matches one {@link I_ESR_ImportLine} for each of the given file lines.
+	 * <p>
+	 * The whole batch is handled within one TrxRunner (04582: so that, depending on the trxRunConfig, it will be committed and thus release its locks),
+	 * and the reference numbers of all its lines are loaded with one query.
+	 * <p>
+	 * If the batch fails (e.g. one of its lines can't be saved), it is rolled back and its lines are created again, each one within its own TrxRunner, like before the batches were introduced.
+	 * That way, the lines before the failing one are still kept and the failing line reports its error as before.
+	 *
+	 * @param esrImport
+	 * @param esrImportLineTexts the (non-empty) file lines of this batch
+	 * @param lastRowNumber the row number of the last line of the previous batch, or <code>0</code>
+	 * @param trxRunConfig
+	 * @return the created lines
+	 */
+	private List<I_ESR_ImportLine> createAndMatchESRImportLines(
+			final I_ESR_Import esrImport,
+			final List<String> esrImportLineTexts,
+			final int lastRowNumber,
+			final ITrxRunConfig trxRunConfig)
+	{
+		final String trxName = InterfaceWrapperHelper.getTrxName(esrImport);
+
+		final List<I_ESR_ImportLine> importLines = new ArrayList<I_ESR_ImportLine>(esrImportLineTexts.size());
+
+		final Set<String> esrReferenceNumbers = new HashSet<String>();
+		for (final String esrImportLineText : esrImportLineTexts)
+		{
+			final String esrReferenceNumber = extractESRReferenceNumberToMatch(esrImportLineText);
+			if (esrReferenceNumber != null)
+			{
+				esrReferenceNumbers.add(esrReferenceNumber);
+			}
+		}
+
+		try
+		{
+			Services.get(ITrxManager.class).run(trxName, trxRunConfig, new TrxRunnable()
+			{
+				@Override
+				public void run(String localTrxName) throws Exception
 				{
-					InterfaceWrapperHelper.save(esrImportLine);
+					importLines.clear(); // in case we are retried
+
+					int rowNumber = lastRowNumber;
+					for (final String esrImportLineText : esrImportLineTexts)
+					{
+						rowNumber++;
+						importLines.add(createESRImportLine0(esrImport, esrImportLineText, rowNumber));
+					}
+
+					// Match and save the lines
+					try (final IAutoCloseable prefetch = ESRReferenceNumberDocumentsPrefetch.start(InterfaceWrapperHelper.getCtx(esrImport, true), esrReferenceNumbers))
+					{
+						for (final I_ESR_ImportLine importLine : importLines)
+						{
+							matchESRImportLineNoSave(importLine);
+							InterfaceWrapperHelper.save(importLine);
+						}
+					}
 				}
-				catch (Exception e)
+			});
+		}
+		catch (final Exception e)
+		{
+			logger.warn("{}: failed to create the lines {} to {} in one batch; creating them one by one", esrImport, lastRowNumber + 1, lastRowNumber + esrImportLineTexts.size(), e);
+
+			importLines.clear();
+			try (final IAutoCloseable prefetch = ESRReferenceNumberDocumentsPrefetch.start(InterfaceWrapperHelper.getCtx(esrImport, true), esrReferenceNumbers))
+			{
+				int rowNumber = lastRowNumber;
+				for (final String esrImportLineText : esrImportLineTexts)
 				{
-					// if there is an an assumption error, catch it to add a message and the release it
-					final I_ESR_Import esrImport = esrImportLine.getESR_Import();
-					esrImport.setDescription(esrImport.getDescription() + " > " + e.getLocalizedMessage());
-					InterfaceWrapperHelper.save(esrImport, ITrx.TRXNAME_None); // out of transaction: we want to not be rollback
-					throw new AdempiereException(e);
+					rowNumber++;
+					importLines.add(createAndMatchESRImportLine(esrImport, esrImportLineText, rowNumber, trxRunConfig));
 				}
-
 			}
-		});
+		}
+
+		return importLines;
 	}
 
-	private I_ESR_ImportLine createESRImportLine(
+	/**
+	 * Creates, matches and saves one {@link I_ESR_ImportLine}.
+	 */
+	private I_ESR_ImportLine createAndMatchESRImportLine(
 			final I_ESR_Import esrImport,
 			final String esrImportLineText,
 			final int rowNumber,
 			final ITrxRunConfig trxRunConfig)
 	{
-		final Properties ctx = InterfaceWrapperHelper.getCtx(esrImport);
 		final String trxName = InterfaceWrapperHelper.getTrxName(esrImport);
 
 		final I_ESR_ImportLine[] importLine = new I_ESR_ImportLine[1];
@@ -461,22 +551,70 @@ public class ESRImportBL implements IESRImportBL
 			@Override
 			public void run(String localTrxName) throws Exception
 			{
-				importLine[0] = InterfaceWrapperHelper.create(ctx, I_ESR_ImportLine.class, trxName);
-				importLine[0].setAD_Org_ID(esrImport.getAD_Org_ID());
-				importLine[0].setESR_Import(esrImport);
-				importLine[0].setLineNo(rowNumber);
-				importLine[0].setESRLineText(esrImportLineText); // the whole line text
-
-				// all lines of one esrImport have the same C_BP_BankAccount_ID, so in future these two column can be remove from the line
-				importLine[0].setC_BP_BankAccount(esrImport.getC_BP_BankAccount());
-				importLine[0].setAccountNo(esrImport.getC_BP_BankAccount().getAccountNo());
+				importLine[0] = createESRImportLine0(esrImport, esrImportLineText, rowNumber);
+				matchESRImportLine0(importLine[0]);
 			}
 		});
 
-		matchESRImportLine(importLine[0], trxRunConfig);
 		return importLine[0];
 	}
 
+	/**
+	 * @return a new (not saved) line
+	 */
+	private I_ESR_ImportLine createESRImportLine0(final I_ESR_Import esrImport, final String esrImportLineText, final int rowNumber)
+	{
+		final Properties ctx = InterfaceWrapperHelper.getCtx(esrImport);
+		final String trxName = InterfaceWrapperHelper.getTrxName(esrImport);
+
+		final I_ESR_ImportLine importLine = InterfaceWrapperHelper.create(ctx, I_ESR_ImportLine.class, trxName);
+		importLine.setAD_Org_ID(esrImport.getAD_Org_ID());
+		importLine.setESR_Import(esrImport);
+		importLine.setLineNo(rowNumber);
+		importLine.setESRLineText(esrImportLineText); // the whole line text
+
+		// all lines of one esrImport have the same C_BP_BankAccount_ID, so in future these two column can be remove from the line
+		final org.compiere.model.I_C_BP_BankAccount bankAccount = esrImport.getC_BP_BankAccount();
+		importLine.setC_BP_BankAccount(bankAccount);
+		importLine.setAccountNo(bankAccount.getAccountNo());
+
+		return importLine;
+	}
+
+	/**
+	 * Matches the given line. If the matching fails, the line is flagged as invalid and the error is added to it.
+	 */
+	private void matchESRImportLineNoSave(final I_ESR_ImportLine esrImportLine)
+	{
+		try
+		{
+			esrLineMatcher.match(esrImportLine);
+		}
+		catch (Exception e)
+		{
+			logger.info(e.getLocalizedMessage(), e);
+
+			esrImportLine.setIsValid(false);
+			esrImportLine.setProcessed(false);
+			addErrorMsg(esrImportLine, e.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * @return the part of the given regular line's reference number which is used for matching (see {@link ESRRegularLineMatcher}), or <code>null</code> if the given line is not a regular line.
+	 */
+	private static String extractESRReferenceNumberToMatch(final String esrImportLineText)
+	{
+		final String lineText = esrImportLineText.trim();
+		if (lineText.length() != 100)
+		{
+			return null; // not a regular line, or an invalid one; the matcher will complain
+		}
+
+		// the reference number is at 12-39; when matching, the first 7 digits (bank account no) and the last digit (check digit) are ignored
+		return lineText.substring(12 + 7, 12 + 26);
+	}
+
 	@Override
 	public void enqueESRImport(final I_ESR_Import esrImport, final I_C_Async_Batch asyncBatch)
 	{
@@ -528,38 +666,55 @@ public class ESRImportBL implements IESRImportBL
 				throw new AdempiereException("@NoLines@");
 			}
 
+			// load the reference numbers of the lines we might need to re-match with one query
+			final Set<String> esrReferenceNumbers = new HashSet<String>();
 			for (final I_ESR_ImportLine line : allLines)
 			{
-				// skip the control line
-				if (isControlLine(line))
+				if (!line.isProcessed() && !line.isValid())
 				{
-					line.setESR_Payment_Action(X_ESR_ImportLine.ESR_PAYMENT_ACTION_Control_Line);
-					InterfaceWrapperHelper.save(line);
-					continue;
-				}
-				// Skip already processed lines
-				if (line.isProcessed())
-				{
-					continue;
-				}
-				// skip lines that have a payment, but are not are not yet processed (because a user needs to select an action)
-				// 08500: skip the lines with payments
-				InterfaceWrapperHelper.refresh(line);
-				if (line.getC_Payment_ID() > 0)
-				{
-					continue;
-				}
-				// Check/Validate
-				if (!line.isValid())
-				{
-					matchESRImportLine(line, trxRunConfig);
+					final String esrReferenceNumber = extractESRReferenceNumberToMatch(line.getESRLineText());
+					if (esrReferenceNumber != null)
+					{
+						esrReferenceNumbers.add(esrReferenceNumber);
+					}
 				}
-				// finally, skip lines that have no bpartner set
-				if (line.getC_BPartner_ID() <= 0)
+			}
+
+			try (final IAutoCloseable prefetch = ESRReferenceNumberDocumentsPrefetch.start(InterfaceWrapperHelper.getCtx(esrImport, true), esrReferenceNumbers))
+			{
+				for (final I_ESR_ImportLine line : allLines)
 				{
-					continue;
+					// skip the control line
+					if (isControlLine(line))
+					{
+						line.setESR_Payment_Action(X_ESR_ImportLine.ESR_PAYMENT_ACTION_Control_Line);
+						InterfaceWrapperHelper.save(line);
+						continue;
+					}
+					// Skip already processed lines
+					if (line.isProcessed())
+					{
+						continue;
+					}
+					// skip lines that have a payment, but are not are not yet processed (because a user needs to select an action)
+					// 08500: skip the lines with payments
+					InterfaceWrapperHelper.refresh(line);
+					if (line.getC_Payment_ID() > 0)
+					{
+						continue;
+					}
+					// Check/Validate
+					if (!line.isValid())
+					{
+						matchESRImportLine(line, trxRunConfig);
+					}
+					// finally, skip lines that have no bpartner set
+					if (line.getC_BPartner_ID() <= 0)
+					{
+						continue;
+					}
+					linesToProcess.add(line);
 				}
-				linesToProcess.add(line);
 			}
 
 			final Map<ArrayKey, List<I_ESR_ImportLine>> invoiceKey2Line = groupLines(linesToProcess);
@@ -24,8 +24,11 @@ package de.metas.payment.esr.api.impl;
 
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.adempiere.ad.trx.api.ITrx;
@@ -118,6 +121,53 @@ public class ESRImportDAO extends AbstractESRImportDAO
 		return referenceNo;
 	}
 
+	/**
+	 * Fetches the reference numbers with one query, using the same matching rules as {@link #fetchESRInvoiceReferenceNumber(Properties, String)}.
+	 * <p>
+	 * Note that the single-number variant's <code>LIKE '_______&lt;number&gt;_'</code> can't use an index anyways, so one query per batch is much cheaper than one query per line.
+	 */
+	@Override
+	protected Map<String, I_C_ReferenceNo> fetchESRInvoiceReferenceNumbers(final Properties ctx, final Collection<String> esrReferenceNumbers)
+	{
+		final Map<String, I_C_ReferenceNo> result = new HashMap<>();
+		if (esrReferenceNumbers.isEmpty())
+		{
+			return result;
+		}
+
+		final String trxName = ITrx.TRXNAME_None;
+
+		final IReferenceNoDAO refNoDAO = Services.get(IReferenceNoDAO.class);
+		final I_C_ReferenceNo_Type refNoType = refNoDAO.retrieveRefNoTypeByName(ctx, ESRConstants.DOCUMENT_REFID_ReferenceNo_Type_InvoiceReferenceNumber);
+
+		// Same as the single variant's wild cards: ignore the first 7 digits (bank account no) and the last one (check digit)
+		final List<Object> params = new ArrayList<Object>();
+		final StringBuilder whereClause = new StringBuilder();
+		whereClause.append("LENGTH(").append(I_C_ReferenceNo.COLUMNNAME_ReferenceNo).append(")=27");
+		whereClause.append(" AND SUBSTR(").append(I_C_ReferenceNo.COLUMNNAME_ReferenceNo).append(", 8, 19) IN ").append(DB.buildSqlList(esrReferenceNumbers, params));
+		whereClause.append(" AND ").append(I_C_ReferenceNo.COLUMNNAME_C_ReferenceNo_Type_ID).append("=?");
+		params.add(refNoType.getC_ReferenceNo_Type_ID());
+		whereClause.append(" AND ").append(I_C_ReferenceNo_Type.COLUMNNAME_AD_Client_ID).append(" IN (0,?)");
+		params.add(Env.getAD_Client_ID(ctx));
+		whereClause.append(" AND ").append(I_C_ReferenceNo_Type.COLUMNNAME_AD_Org_ID).append(" IN (0,?)"); // see fetchESRInvoiceReferenceNumber() about why we filter by AD_Org_ID
+		params.add(Env.getAD_Org_ID(ctx));
+
+		final List<I_C_ReferenceNo> referenceNos = new Query(ctx, I_C_ReferenceNo.Table_Name, whereClause.toString(), trxName)
+				.setParameters(params)
+				.setOnlyActiveRecords(true)
+				.setOrderBy(I_C_ReferenceNo.COLUMNNAME_C_ReferenceNo_ID)
+				.list(I_C_ReferenceNo.class);
+		for (final I_C_ReferenceNo referenceNo : referenceNos)
+		{
+			final String esrReferenceNumber = referenceNo.getReferenceNo().substring(7, 26);
+			if (!result.containsKey(esrReferenceNumber)) // same as firstOnly() in the single variant
+			{
+				result.put(esrReferenceNumber, referenceNo);
+			}
+		}
+		return result;
+	}
+
 	@Override
 	public Iterator<I_ESR_Import> retrieveESRImports(final Properties ctx, final int orgID)
 	{
@@ -0,0 +1,115 @@
+package de.metas.payment.esr.api.impl;
+
+/*
+ * #%L
+ * de.metas.payment.esr
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+
+import org.adempiere.util.Services;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+
+import de.metas.document.refid.model.I_C_ReferenceNo_Doc;
+import de.metas.payment.esr.api.IESRImportDAO;
+
+/**
+ * Holds the invoice reference number documents which were loaded in one go for a batch of {@link de.metas.payment.esr.model.I_ESR_ImportLine}s,
+ * so that {@link ESRRegularLineMatcher} does not need to run one query per line.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * try (final IAutoCloseable prefetch = ESRReferenceNumberDocumentsPrefetch.start(ctx, esrReferenceNumbers))
+ * {
+ * 	// match the lines
+ * }
+ * </pre>
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class ESRReferenceNumberDocumentsPrefetch
+{
+	private static final ThreadLocal<ESRReferenceNumberDocumentsPrefetch> currentPrefetch = new ThreadLocal<>();
+
+	/**
+	 * Loads the documents for the given ESR reference numbers and makes them available to {@link #retrieveESRInvoiceReferenceNumberDocument(Properties, String)} until the returned instance is closed.
+	 */
+	public static IAutoCloseable start(final Properties ctx, final Collection<String> esrReferenceNumbers)
+	{
+		final Map<String, I_C_ReferenceNo_Doc> esrReferenceNumber2doc = Services.get(IESRImportDAO.class).retrieveESRInvoiceReferenceNumberDocuments(ctx, esrReferenceNumbers);
+
+		final ESRReferenceNumberDocumentsPrefetch previousPrefetch = currentPrefetch.get();
+		currentPrefetch.set(new ESRReferenceNumberDocumentsPrefetch(ctx, esrReferenceNumber2doc));
+
+		return new IAutoCloseable()
+		{
+			@Override
+			public void close()
+			{
+				if (previousPrefetch == null)
+				{
+					currentPrefetch.remove();
+				}
+				else
+				{
+					currentPrefetch.set(previousPrefetch);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Gets the document from the current prefetch. If there is no prefetch or the number was not prefetched, it falls back to {@link IESRImportDAO#retrieveESRInvoiceReferenceNumberDocument(Properties, String)}.
+	 */
+	public static I_C_ReferenceNo_Doc retrieveESRInvoiceReferenceNumberDocument(final Properties ctx, final String esrReferenceNumber)
+	{
+		final ESRReferenceNumberDocumentsPrefetch prefetch = currentPrefetch.get();
+		if (prefetch != null && prefetch.isMatching(ctx) && prefetch.esrReferenceNumber2doc.containsKey(esrReferenceNumber))
+		{
+			return prefetch.esrReferenceNumber2doc.get(esrReferenceNumber);
+		}
+
+		return Services.get(IESRImportDAO.class).retrieveESRInvoiceReferenceNumberDocument(ctx, esrReferenceNumber);
+	}
+
+	// the lookup's result depends on the ctx's AD_Client_ID and AD_Org_ID
+	private final int adClientId;
+	private final int adOrgId;
+	private final Map<String, I_C_ReferenceNo_Doc> esrReferenceNumber2doc;
+
+	private ESRReferenceNumberDocumentsPrefetch(final Properties ctx, final Map<String, I_C_ReferenceNo_Doc> esrReferenceNumber2doc)
+	{
+		adClientId = Env.getAD_Client_ID(ctx);
+		adOrgId = Env.getAD_Org_ID(ctx);
+		this.esrReferenceNumber2doc = esrReferenceNumber2doc;
+	}
+
+	private boolean isMatching(final Properties ctx)
+	{
+		return adClientId == Env.getAD_Client_ID(ctx)
+				&& adOrgId == Env.getAD_Org_ID(ctx);
+	}
+}
@@ -51,7 +51,6 @@ import de.metas.document.refid.model.I_C_ReferenceNo;
 import de.metas.document.refid.model.I_C_ReferenceNo_Doc;
 import de.metas.payment.esr.ESRConstants;
 import de.metas.payment.esr.api.IESRImportBL;
-import de.metas.payment.esr.api.IESRImportDAO;
 import de.metas.payment.esr.exception.ESRParserException;
 import de.metas.payment.esr.model.I_C_BP_BankAccount;
 import de.metas.payment.esr.model.I_ESR_ImportLine;
@@ -177,8 +176,8 @@ class ESRRegularLineMatcher extends AbstractESRLineMatcher
 			// When matching, we will ignore the first 7 digits (the bank account no), and the last digit (check digit)
 			final String esrReferenceNumberToMatch = completeEsrReferenceNumberStr.substring(7, 26);
 
-			final IESRImportDAO esrImportPA = Services.get(IESRImportDAO.class);
-			final I_C_ReferenceNo_Doc esrReferenceNumberDocument = esrImportPA.retrieveESRInvoiceReferenceNumberDocument(localCtx, esrReferenceNumberToMatch);
+			// note: when importing a file, the documents of a whole batch of lines were already loaded with one query
+			final I_C_ReferenceNo_Doc esrReferenceNumberDocument = ESRReferenceNumberDocumentsPrefetch.retrieveESRInvoiceReferenceNumberDocument(localCtx, esrReferenceNumberToMatch);
 
 			if (esrReferenceNumberDocument == null)
 			{
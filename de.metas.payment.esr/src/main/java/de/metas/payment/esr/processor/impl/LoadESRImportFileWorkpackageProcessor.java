@@ -33,8 +33,11 @@ import org.adempiere.ad.trx.api.ITrxRunConfig;
 import org.adempiere.ad.trx.api.ITrxRunConfig.OnRunnableFail;
 import org.adempiere.ad.trx.api.ITrxRunConfig.OnRunnableSuccess;
 import org.adempiere.ad.trx.api.ITrxRunConfig.TrxPropagation;
+import org.adempiere.util.Loggables;
 import org.adempiere.util.Services;
 
+import com.google.common.base.Stopwatch;
+
 import de.metas.async.api.IQueueDAO;
 import de.metas.async.model.I_C_Queue_WorkPackage;
 import de.metas.async.spi.IWorkpackageProcessor;
@@ -64,11 +67,15 @@ public class LoadESRImportFileWorkpackageProcessor implements IWorkpackageProces
 				continue;
 			}
 
-			//
+			// note: loading the file also reports its progress (batch by batch) to the workpackage's log
+			final Stopwatch stopwatch = Stopwatch.createStarted();
 			loadESRImportFile(esr);
+			Loggables.get().addLog("{}: file loaded in {}", esr, stopwatch);
 
 			// import is done, so we can process and create payments
-			processESRImportFile(esr);
+			stopwatch.reset().start();
+			final int processedLinesCount = processESRImportFile(esr);
+			Loggables.get().addLog("{}: processed {} lines in {}", esr, processedLinesCount, stopwatch);
 
 		}
 
@@ -82,11 +89,10 @@ public class LoadESRImportFileWorkpackageProcessor implements IWorkpackageProces
 		Services.get(IESRImportBL.class).loadESRImportFile(esrImport, trxRunConfig);
 	}
 
-	private void processESRImportFile(final I_ESR_Import esrImport)
+	private int processESRImportFile(final I_ESR_Import esrImport)
 	{
 		final ITrxRunConfig trxRunConfig = Services.get(ITrxManager.class).createTrxRunConfig(TrxPropagation.NESTED, OnRunnableSuccess.COMMIT, OnRunnableFail.ASK_RUNNABLE);
 
-		Services.get(IESRImportBL.class).process(esrImport, trxRunConfig);
-
+		return Services.get(IESRImportBL.class).process(esrImport, trxRunConfig);
 	}
 }
@@ -23,6 +23,7 @@ package de.metas.payment.sepa.api;
  */
 
 
+import java.math.BigDecimal;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
@@ -53,6 +54,22 @@ public interface ISEPADocumentDAO extends ISingletonService
 	 */
 	Iterator<I_SEPA_Export_Line> retrieveLines(I_SEPA_Export doc);
 
+	/**
+	 * Count the lines of the given <code>doc</code> which are exported to the XML file, i.e. which are active and have no error.
+	 * 
+	 * @param doc
+	 * @return number of lines
+	 */
+	int countExportableLines(I_SEPA_Export doc);
+
+	/**
+	 * Sum up the amounts of the lines which are counted by {@link #countExportableLines(I_SEPA_Export)}, without loading them.
+	 * 
+	 * @param doc
+	 * @return control sum; never <code>null</code>
+	 */
+	BigDecimal sumExportableLinesAmt(I_SEPA_Export doc);
+
 	/**
 	 * Vs82 05761
 	 * Retrieve all SEPA export lines with IsDebitTrxFailed = 'Y' and action Partner-Zahlungsweise zu "auf Rechnung" ändern (change payment rule to from direct debit to invoice) 
@@ -23,6 +23,7 @@ package de.metas.payment.sepa.api.impl;
  */
 
 
+import java.math.BigDecimal;
 import java.util.Iterator;
 
 import org.adempiere.ad.wrapper.IPOJOFilter;
@@ -51,4 +52,34 @@ public class PlainSEPADocumentDAO extends SEPADocumentDAO
 		})
 				.iterator();
 	}
+
+	@Override
+	public int countExportableLines(final I_SEPA_Export doc)
+	{
+		int count = 0;
+		for (final Iterator<I_SEPA_Export_Line> it = retrieveLines(doc); it.hasNext();)
+		{
+			final I_SEPA_Export_Line line = it.next();
+			if (line.isActive() && !line.isError())
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public BigDecimal sumExportableLinesAmt(final I_SEPA_Export doc)
+	{
+		BigDecimal sum = BigDecimal.ZERO;
+		for (final Iterator<I_SEPA_Export_Line> it = retrieveLines(doc); it.hasNext();)
+		{
+			final I_SEPA_Export_Line line = it.next();
+			if (line.isActive() && !line.isError())
+			{
+				sum = sum.add(line.getAmt());
+			}
+		}
+		return sum;
+	}
 }
@@ -23,6 +23,7 @@ package de.metas.payment.sepa.api.impl;
  */
 
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -71,6 +72,30 @@ public class SEPADocumentDAO implements ISEPADocumentDAO
 				.iterate(I_SEPA_Export_Line.class);
 	}
 
+	@Override
+	public int countExportableLines(final I_SEPA_Export doc)
+	{
+		return createExportableLinesQuery(doc).count();
+	}
+
+	@Override
+	public BigDecimal sumExportableLinesAmt(final I_SEPA_Export doc)
+	{
+		final BigDecimal sum = createExportableLinesQuery(doc).sum(I_SEPA_Export_Line.COLUMNNAME_Amt);
+		return sum == null ? BigDecimal.ZERO : sum;
+	}
+
+	private Query createExportableLinesQuery(final I_SEPA_Export doc)
+	{
+		final Properties ctx = InterfaceWrapperHelper.getCtx(doc);
+		final String trxName = InterfaceWrapperHelper.getTrxName(doc);
+		final String whereClause = I_SEPA_Export_Line.COLUMNNAME_SEPA_Export_ID + "=? AND "
+				+ I_SEPA_Export_Line.COLUMNNAME_IsError + "='N'";
+		return new Query(ctx, I_SEPA_Export_Line.Table_Name, whereClause, trxName)
+				.setParameters(doc.getSEPA_Export_ID())
+				.setOnlyActiveRecords(true);
+	}
+
 	@Override
 	public List<I_SEPA_Export_Line> retrieveLinesChangeRule(Properties ctx, String trxName)
 	{
@@ -0,0 +1,198 @@
+package de.metas.payment.sepa.spi.impl;
+
+/*
+ * #%L
+ * de.metas.payment.sepa
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.Check;
+
+/**
+ * Writes a <b>pa</b>yment <b>in</b>itiation XML document element by element, so that the marshalers don't need to keep the whole JAXB object graph of large payment runs in memory.
+ * <p>
+ * The document's skeleton (<code>Document</code> and its one child element) is written with StAX. The repeating elements in there (e.g. <code>GrpHdr</code>, <code>PmtInf</code>) are marshaled as
+ * JAXB fragments one by one, using one {@link JAXBContext} per JAXB package which is shared by all instances.
+ * <p>
+ * Instances are not thread-safe; use one instance per document.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class PainXMLStreamWriter
+{
+	private static final String ENCODING = "UTF-8";
+
+	private static final Map<String, JAXBContext> jaxbContexts = new ConcurrentHashMap<>();
+
+	/**
+	 * @param objectFactoryClass the <code>ObjectFactory</code> class (or any other class) of the JAXB package
+	 * @return the shared context for the given class' package. Note that {@link JAXBContext} is thread-safe, while {@link Marshaller} is not.
+	 */
+	public static JAXBContext getJAXBContext(final Class<?> objectFactoryClass)
+	{
+		final String jaxbContextPath = objectFactoryClass.getPackage().getName();
+		JAXBContext jaxbContext = jaxbContexts.get(jaxbContextPath);
+		if (jaxbContext == null)
+		{
+			try
+			{
+				jaxbContext = JAXBContext.newInstance(jaxbContextPath);
+			}
+			catch (final JAXBException e)
+			{
+				throw new AdempiereException("Could not create the JAXB context for " + jaxbContextPath, e);
+			}
+			final JAXBContext jaxbContextOld = jaxbContexts.putIfAbsent(jaxbContextPath, jaxbContext);
+			if (jaxbContextOld != null)
+			{
+				jaxbContext = jaxbContextOld;
+			}
+		}
+		return jaxbContext;
+	}
+
+	private final String namespaceURI;
+	private final XMLStreamWriter xmlWriter;
+	private final Marshaller fragmentMarshaller;
+
+	private int openElementsCount = 0;
+
+	public PainXMLStreamWriter(final Class<?> objectFactoryClass, final String namespaceURI, final OutputStream out)
+	{
+		Check.assumeNotEmpty(namespaceURI, "namespaceURI not empty");
+		Check.assumeNotNull(out, "out not null");
+
+		this.namespaceURI = namespaceURI;
+		try
+		{
+			xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+
+			fragmentMarshaller = getJAXBContext(objectFactoryClass).createMarshaller();
+			fragmentMarshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+		}
+		catch (final XMLStreamException | JAXBException e)
+		{
+			throw new AdempiereException("Could not create the XML writer", e);
+		}
+	}
+
+	/**
+	 * Writes the XML declaration and the root <code>Document</code> element, including its namespace and schema location.
+	 */
+	public PainXMLStreamWriter writeStartDocument(final String schemaLocation)
+	{
+		try
+		{
+			xmlWriter.writeStartDocument(ENCODING, "1.0");
+			xmlWriter.setDefaultNamespace(namespaceURI);
+			xmlWriter.setPrefix("xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+
+			writeNewLine();
+			xmlWriter.writeStartElement(namespaceURI, "Document");
+			xmlWriter.writeDefaultNamespace(namespaceURI);
+			xmlWriter.writeNamespace("xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+			xmlWriter.writeAttribute(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "schemaLocation", schemaLocation);
+			openElementsCount++;
+		}
+		catch (final XMLStreamException e)
+		{
+			throw new AdempiereException("Could not write the document start", e);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the start tag of a (non-repeating) element which contains further elements.
+	 */
+	public PainXMLStreamWriter writeStartElement(final String localName)
+	{
+		try
+		{
+			writeNewLine();
+			xmlWriter.writeStartElement(namespaceURI, localName);
+			openElementsCount++;
+		}
+		catch (final XMLStreamException e)
+		{
+			throw new AdempiereException("Could not write the start of " + localName, e);
+		}
+		return this;
+	}
+
+	/**
+	 * Marshals the given JAXB object as one element with the given name.
+	 */
+	public <T> PainXMLStreamWriter writeElement(final String localName, final Class<T> declaredType, final T value)
+	{
+		final JAXBElement<T> jaxbElement = new JAXBElement<>(new QName(namespaceURI, localName), declaredType, value);
+		try
+		{
+			writeNewLine();
+			fragmentMarshaller.marshal(jaxbElement, xmlWriter);
+		}
+		catch (final XMLStreamException | JAXBException e)
+		{
+			throw new AdempiereException("Could not write " + localName, e);
+		}
+		return this;
+	}
+
+	/**
+	 * Closes all elements which are still open and flushes the output. Note that the underlying stream is not closed.
+	 */
+	public void writeEndDocument()
+	{
+		try
+		{
+			while (openElementsCount > 0)
+			{
+				writeNewLine();
+				xmlWriter.writeEndElement();
+				openElementsCount--;
+			}
+			xmlWriter.writeEndDocument();
+			xmlWriter.flush();
+		}
+		catch (final XMLStreamException e)
+		{
+			throw new AdempiereException("Could not write the document end", e);
+		}
+	}
+
+	private void writeNewLine() throws XMLStreamException
+	{
+		xmlWriter.writeCharacters("\n");
+	}
+}
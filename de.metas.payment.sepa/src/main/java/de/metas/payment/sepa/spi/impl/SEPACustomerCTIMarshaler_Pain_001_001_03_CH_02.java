@@ -23,9 +23,6 @@ package de.metas.payment.sepa.spi.impl;
  */
 
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
-import java.io.Writer;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
@@ -36,10 +33,6 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
@@ -51,7 +44,6 @@ import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
 import org.adempiere.util.api.IMsgBL;
-import org.adempiere.util.jaxb.DynamicObjectFactory;
 import org.adempiere.util.time.SystemTime;
 import org.compiere.model.I_C_Location;
 
@@ -71,8 +63,6 @@ import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.ClearingSystemIdenti
 import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.ClearingSystemMemberIdentification2;
 import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.CreditTransferTransactionInformation10CH;
 import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.CreditorReferenceInformation2;
-import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.CustomerCreditTransferInitiationV03CH;
-import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.Document;
 import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.FinancialInstitutionIdentification7CH;
 import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.FinancialInstitutionIdentification7CHBicOrClrId;
 import de.metas.payment.sepa.jaxb.sct.pain_001_001_03_ch_02.GenericAccountIdentification1CH;
@@ -126,6 +116,9 @@ public class SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02 implements ISEPAMars
 	 */
 	private static final String PAIN_001_001_03_CH_02 = "pain.001.001.03.ch.02";
 
+	private static final String NAMESPACE_URI = "http://www.six-interbank-clearing.com/de/pain.001.001.03.ch.02.xsd";
+	private static final String SCHEMA_LOCATION = "urn:sepade:xsd:" + PAIN_001_001_03_CH_02 + " " + PAIN_001_001_03_CH_02 + ".xsd";
+
 	private static final String ZAHLUNGS_ART_1 = "ZAHLUNGS_ART_1";
 	private static final String ZAHLUNGS_ART_2_1 = "ZAHLUNGS_ART_2_1";
 	private static final String ZAHLUNGS_ART_2_2 = "ZAHLUNGS_ART_2_2";
@@ -137,7 +130,6 @@ public class SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02 implements ISEPAMars
 	private static final String ZAHLUNGS_ART_8 = "ZAHLUNGS_ART_8";
 
 	private final DatatypeFactory datatypeFactory;
-	private final String encoding = "UTF-8";
 
 	public SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02()
 	{
@@ -151,42 +143,6 @@ public class SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02 implements ISEPAMars
 		}
 	}
 
-	private void marshal(final Document xmlDocument, final OutputStream out)
-	{
-		Check.assumeNotNull(xmlDocument, "xmlDocument not null");
-		Check.assumeNotNull(out, "out not null");
-
-		Writer xmlWriter;
-
-		//
-		// We force UTF-8 encoding.
-		try
-		{
-			xmlWriter = new OutputStreamWriter(out, encoding);
-		}
-		catch (UnsupportedEncodingException e)
-		{
-			throw new AdempiereException("Could not use encoding " + encoding + ": " + e.getLocalizedMessage());
-		}
-
-		try
-		{
-			final JAXBElement<Document> jaxbDocument = new DynamicObjectFactory(new ObjectFactory()).createJAXBElement(xmlDocument);
-
-			final String jaxbContextPath = Document.class.getPackage().getName();
-			final JAXBContext jaxbContext = JAXBContext.newInstance(jaxbContextPath);
-
-			final Marshaller marshaller = jaxbContext.createMarshaller();
-			marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
-			marshaller.setProperty("jaxb.schemaLocation", "urn:sepade:xsd:" + PAIN_001_001_03_CH_02 + " " + PAIN_001_001_03_CH_02 + ".xsd");
-			marshaller.marshal(jaxbDocument, xmlWriter);
-		}
-		catch (final JAXBException e)
-		{
-			throw new AdempiereException("Marshalling error", e.getCause());
-		}
-	}
-
 	@Override
 	public void marshal(final I_SEPA_Export sepaDocument, final OutputStream out)
 	{
@@ -195,8 +151,7 @@ public class SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02 implements ISEPAMars
 
 		try
 		{
-			final Document xmlDocument = createDocument(sepaDocument);
-			marshal(xmlDocument, out);
+			writeDocument(sepaDocument, out);
 		}
 		catch (final Exception e)
 		{
@@ -204,47 +159,36 @@ public class SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02 implements ISEPAMars
 		}
 	}
 
-	private Document createDocument(final I_SEPA_Export sepaDocument)
+	/**
+	 * Streams the pain document for the given <code>sepaDocument</code> to the given <code>out</code>, one <code>PmtInf</code> element per line, so that we don't have the whole document in memory.
+	 */
+	private void writeDocument(final I_SEPA_Export sepaDocument, final OutputStream out)
 	{
-		final Document document = new Document();
+		final ISEPADocumentDAO sepaDocumentDAO = Services.get(ISEPADocumentDAO.class);
 
-		final CustomerCreditTransferInitiationV03CH creditTransferInitiation = new CustomerCreditTransferInitiationV03CH();
-		document.setCstmrCdtTrfInitn(creditTransferInitiation);
 		//
 		// Group Header
-		{
-			final GroupHeader32CH groupHeaderSCT = new GroupHeader32CH();
-			creditTransferInitiation.setGrpHdr(groupHeaderSCT);
+		// NOTE: the number of transactions and the control sum come before the payment informations, so we let the database compute them upfront.
+		final GroupHeader32CH groupHeaderSCT = createGroupHeader(sepaDocument);
+		final int nbOfTxs = sepaDocumentDAO.countExportableLines(sepaDocument);
+		groupHeaderSCT.setNbOfTxs(String.valueOf(nbOfTxs));
+		groupHeaderSCT.setCtrlSum(sepaDocumentDAO.sumExportableLinesAmt(sepaDocument));
 
-			// MessageIdentification
-			groupHeaderSCT.setMsgId(sepaDocument.getDocumentNo()); // unique identifier in our system
-
-			// CreationDateTime: The system-generated date and time stamp at the time of formatting of the message.
-			groupHeaderSCT.setCreDtTm(datatypeFactory.newXMLGregorianCalendar(SystemTime.asGregorianCalendar()));
-
-			// Number of transactions: The total number of direct debit transaction blocks in the message.
-			// NOTE: You can have only one direct debit transaction by payment information.
-			// NOTE: it will be set later, after we know the number of lines
-			groupHeaderSCT.setNbOfTxs(null);
-
-			// Control Sum: This is the total amount of the collection.
-			// NOTE: it will be set later, after each payment information
-			groupHeaderSCT.setCtrlSum(BigDecimal.ZERO);
-
-			final PartyIdentification32CHNameAndId initgPty = new PartyIdentification32CHNameAndId();
-			initgPty.setNm(sepaDocument.getSEPA_CreditorIdentifier());
-			groupHeaderSCT.setInitgPty(initgPty);
-
-		}
-
-		//
-		// Payment Informations: create one PaymentInstructionInformationSDD for each line
-		final Iterator<I_SEPA_Export_Line> sepaDocumentLines = Services.get(ISEPADocumentDAO.class).retrieveLines(sepaDocument);
+		final Iterator<I_SEPA_Export_Line> sepaDocumentLines = sepaDocumentDAO.retrieveLines(sepaDocument);
 		if (!sepaDocumentLines.hasNext())
 		{
 			throw new AdempiereException("@NoLines@: " + sepaDocument);
 		}
 
+		final PainXMLStreamWriter xmlWriter = new PainXMLStreamWriter(ObjectFactory.class, NAMESPACE_URI, out)
+				.writeStartDocument(SCHEMA_LOCATION)
+				.writeStartElement("CstmrCdtTrfInitn")
+				.writeElement("GrpHdr", GroupHeader32CH.class, groupHeaderSCT);
+
+		//
+		// Payment Informations: create and write one PaymentInstructionInformationSDD for each line
+		int pmtInfCount = 0;
+		BigDecimal ctrlSum = BigDecimal.ZERO;
 		while (sepaDocumentLines.hasNext())
 		{
 			final I_SEPA_Export_Line line = sepaDocumentLines.next();
@@ -255,30 +199,56 @@ public class SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02 implements ISEPAMars
 				continue;
 			}
 
-			final PaymentInstructionInformation3CH payInsInf = createPaymentInstructionInformation(creditTransferInitiation, sepaDocument, line);
+			pmtInfCount++;
+			final PaymentInstructionInformation3CH payInsInf = createPaymentInstructionInformation(groupHeaderSCT, pmtInfCount, sepaDocument, line);
 			Check.assumeNotNull(payInsInf, "Payment instruction not null");
 
-			creditTransferInitiation.getPmtInf().add(payInsInf);
+			xmlWriter.writeElement("PmtInf", PaymentInstructionInformation3CH.class, payInsInf);
+			ctrlSum = ctrlSum.add(payInsInf.getCtrlSum());
+		}
+		xmlWriter.writeEndDocument();
 
-			// Update GroupHeader's control amount
-			final BigDecimal groupHeaderCtrlAmt = creditTransferInitiation.getGrpHdr().getCtrlSum();
-			final BigDecimal groupHeaderCtrlAmtNew = groupHeaderCtrlAmt.add(payInsInf.getCtrlSum());
-			creditTransferInitiation.getGrpHdr().setCtrlSum(groupHeaderCtrlAmtNew);
+		// guard against lines that were changed while we were writing
+		Check.errorUnless(pmtInfCount == nbOfTxs && ctrlSum.compareTo(groupHeaderSCT.getCtrlSum()) == 0, SepaMarshallerException.class,
+				"The lines of {} changed while marshaling; expected {} lines with a sum of {}, but got {} lines with a sum of {}",
+				sepaDocument, nbOfTxs, groupHeaderSCT.getCtrlSum(), pmtInfCount, ctrlSum);
+
+		sepaDocument.setProcessed(pmtInfCount > 0);
+		InterfaceWrapperHelper.save(sepaDocument);
+	}
+
+	private GroupHeader32CH createGroupHeader(final I_SEPA_Export sepaDocument)
+	{
+		final GroupHeader32CH groupHeaderSCT = new GroupHeader32CH();
+
+		// MessageIdentification
+		groupHeaderSCT.setMsgId(sepaDocument.getDocumentNo()); // unique identifier in our system
+
+		// CreationDateTime: The system-generated date and time stamp at the time of formatting of the message.
+		groupHeaderSCT.setCreDtTm(datatypeFactory.newXMLGregorianCalendar(SystemTime.asGregorianCalendar()));
 
-		}
-		//
 		// Number of transactions: The total number of direct debit transaction blocks in the message.
 		// NOTE: You can have only one direct debit transaction by payment information.
-		creditTransferInitiation.getGrpHdr().setNbOfTxs(String.valueOf(creditTransferInitiation.getPmtInf().size()));
+		// NOTE: it will be set later, after we know the number of lines
+		groupHeaderSCT.setNbOfTxs(null);
 
-		sepaDocument.setProcessed(creditTransferInitiation.getPmtInf().size() > 0);
-		InterfaceWrapperHelper.save(sepaDocument);
-		return document;
+		// Control Sum: This is the total amount of the collection.
+		// NOTE: it will be set later, after each payment information
+		groupHeaderSCT.setCtrlSum(BigDecimal.ZERO);
 
+		final PartyIdentification32CHNameAndId initgPty = new PartyIdentification32CHNameAndId();
+		initgPty.setNm(sepaDocument.getSEPA_CreditorIdentifier());
+		groupHeaderSCT.setInitgPty(initgPty);
+
+		return groupHeaderSCT;
 	}
 
+	/**
+	 * @param currentIndex 1-based index of this payment instruction information within the document
+	 */
 	private PaymentInstructionInformation3CH createPaymentInstructionInformation(
-			final CustomerCreditTransferInitiationV03CH customerCreditTransferInitiation,
+			final GroupHeader32CH groupHeader,
+			final int currentIndex,
 			final I_SEPA_Export sepaHdr,
 			final I_SEPA_Export_Line line)
 	{
@@ -286,9 +256,7 @@ public class SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02 implements ISEPAMars
 
 		// PaymentInformationIdentification: A system-generated internal code.
 		{
-			// Current index of this payment instruction information
-			final int currentIndex = customerCreditTransferInitiation.getPmtInf().size() + 1;
-			final String pmtInfId = customerCreditTransferInitiation.getGrpHdr().getMsgId() + "-" + currentIndex;
+			final String pmtInfId = groupHeader.getMsgId() + "-" + currentIndex;
 			pmtInf.setPmtInfId(pmtInfId);
 		}
 
@@ -351,8 +319,7 @@ public class SEPACustomerCTIMarshaler_Pain_001_001_03_CH_02 implements ISEPAMars
 
 		//
 		// debitor
-		pmtInf.setDbtr(copyPartyIdentificationSEPA2(
-				customerCreditTransferInitiation.getGrpHdr().getInitgPty()));
+		pmtInf.setDbtr(copyPartyIdentificationSEPA2(groupHeader.getInitgPty()));
 
 		//
 		// debitor Account
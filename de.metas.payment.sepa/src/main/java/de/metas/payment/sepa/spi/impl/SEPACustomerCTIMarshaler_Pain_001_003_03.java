@@ -51,6 +51,7 @@ import org.adempiere.util.time.SystemTime;
 
 import de.metas.payment.sepa.api.ISEPADocumentBL;
 import de.metas.payment.sepa.api.ISEPADocumentDAO;
+import de.metas.payment.sepa.api.SepaMarshallerException;
 import de.metas.payment.sepa.jaxb.sct.pain_001_003_03.ObjectFactory;
 import de.metas.payment.sepa.jaxb.sct.pain_001_003_03.AccountIdentificationSEPA;
 import de.metas.payment.sepa.jaxb.sct.pain_001_003_03.ActiveOrHistoricCurrencyAndAmountSEPA;
@@ -92,6 +93,9 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 {
 	private static final String PAIN_001_003_03 = "pain.001.003.03";
 
+	private static final String NAMESPACE_URI = "urn:iso:std:iso:20022:tech:xsd:pain.001.003.03";
+	private static final String SCHEMA_LOCATION = "urn:sepade:xsd:" + PAIN_001_003_03 + " " + PAIN_001_003_03 + ".xsd";
+
 	private final DatatypeFactory datatypeFactory;
 	private final String encoding = "UTF-8";
 
@@ -129,12 +133,11 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 		{
 			final JAXBElement<Document> jaxbDocument = new DynamicObjectFactory(new ObjectFactory()).createJAXBElement(xmlDocument);
 
-			final String jaxbContextPath = Document.class.getPackage().getName();
-			final JAXBContext jaxbContext = JAXBContext.newInstance(jaxbContextPath);
+			final JAXBContext jaxbContext = PainXMLStreamWriter.getJAXBContext(ObjectFactory.class);
 
 			final Marshaller marshaller = jaxbContext.createMarshaller();
 			marshaller.setProperty("jaxb.formatted.output", Boolean.TRUE);
-			marshaller.setProperty("jaxb.schemaLocation", "urn:sepade:xsd:" + PAIN_001_003_03 + " " + PAIN_001_003_03 + ".xsd");
+			marshaller.setProperty("jaxb.schemaLocation", SCHEMA_LOCATION);
 			marshaller.marshal(jaxbDocument, xmlWriter);
 		}
 		catch (final JAXBException e)
@@ -150,8 +153,7 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 
 		try
 		{
-			final Document xmlDocument = createDocument(sepaDocument);
-			marshal(xmlDocument, out);
+			writeDocument(sepaDocument, out);
 		}
 		catch (final Exception e)
 		{
@@ -159,38 +161,76 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 		}
 	}
 
-	public Document createDocument(final I_SEPA_Export sepaDocument)
+	/**
+	 * Streams the pain document for the given <code>sepaDocument</code> to the given <code>out</code>, one <code>PmtInf</code> element per line, so that we don't have the whole document in memory.
+	 */
+	private void writeDocument(final I_SEPA_Export sepaDocument, final OutputStream out)
 	{
-		final Document document = new Document();
+		final ISEPADocumentDAO sepaDocumentDAO = Services.get(ISEPADocumentDAO.class);
 
-		final CustomerCreditTransferInitiationV03 creditTransferInitiation = new CustomerCreditTransferInitiationV03();
-		document.setCstmrCdtTrfInitn(creditTransferInitiation);
 		//
 		// Group Header
-		{
-			final GroupHeaderSCT groupHeaderSCT = new GroupHeaderSCT();
-			creditTransferInitiation.setGrpHdr(groupHeaderSCT);
+		// NOTE: the number of transactions and the control sum come before the payment informations, so we let the database compute them upfront.
+		final GroupHeaderSCT groupHeaderSCT = createGroupHeader(sepaDocument);
+		final int nbOfTxs = sepaDocumentDAO.countExportableLines(sepaDocument);
+		groupHeaderSCT.setNbOfTxs(String.valueOf(nbOfTxs));
+		groupHeaderSCT.setCtrlSum(sepaDocumentDAO.sumExportableLinesAmt(sepaDocument));
 
-			// MessageIdentification
-			groupHeaderSCT.setMsgId(sepaDocument.getDocumentNo()); // unique identifier in our system
+		final Iterator<I_SEPA_Export_Line> sepaDocumentLines = sepaDocumentDAO.retrieveLines(sepaDocument);
+		if (!sepaDocumentLines.hasNext())
+		{
+			throw new AdempiereException("@NoLines@: " + sepaDocument);
+		}
 
-			// CreationDateTime: The system-generated date and time stamp at the time of formatting of the message.
-			groupHeaderSCT.setCreDtTm(datatypeFactory.newXMLGregorianCalendar(SystemTime.asGregorianCalendar()));
+		final PainXMLStreamWriter xmlWriter = new PainXMLStreamWriter(ObjectFactory.class, NAMESPACE_URI, out)
+				.writeStartDocument(SCHEMA_LOCATION)
+				.writeStartElement("CstmrCdtTrfInitn")
+				.writeElement("GrpHdr", GroupHeaderSCT.class, groupHeaderSCT);
 
-			// Number of transactions: The total number of direct debit transaction blocks in the message.
-			// NOTE: You can have only one direct debit transaction by payment information.
-			// NOTE: it will be set later, after we know the number of lines
-			groupHeaderSCT.setNbOfTxs(null);
+		//
+		// Payment Informations: create and write one PaymentInstructionInformationSDD for each line
+		int pmtInfCount = 0;
+		BigDecimal ctrlSum = BigDecimal.ZERO;
+		while (sepaDocumentLines.hasNext())
+		{
+			final I_SEPA_Export_Line line = sepaDocumentLines.next();
 
-			// Control Sum: This is the total amount of the collection.
-			// NOTE: it will be set later, after each payment information
-			groupHeaderSCT.setCtrlSum(BigDecimal.ZERO);
+			if (!line.isActive() || line.isError())
+			{
+				// Error on line. Don't create payment instruction information.
+				continue;
+			}
 
-			final PartyIdentificationSEPA1 initgPty = new PartyIdentificationSEPA1();
-			initgPty.setNm(sepaDocument.getSEPA_CreditorIdentifier());
-			groupHeaderSCT.setInitgPty(initgPty);
+			pmtInfCount++;
+			final PaymentInstructionInformationSCT payInsInf = createPaymentInstructionInformation(groupHeaderSCT, pmtInfCount, sepaDocument, line);
+			Check.assumeNotNull(payInsInf, "Payment instruction not null");
 
+			xmlWriter.writeElement("PmtInf", PaymentInstructionInformationSCT.class, payInsInf);
+			ctrlSum = ctrlSum.add(payInsInf.getCtrlSum());
 		}
+		xmlWriter.writeEndDocument();
+
+		// guard against lines that were changed while we were writing
+		Check.errorUnless(pmtInfCount == nbOfTxs && ctrlSum.compareTo(groupHeaderSCT.getCtrlSum()) == 0, SepaMarshallerException.class,
+				"The lines of {} changed while marshaling; expected {} lines with a sum of {}, but got {} lines with a sum of {}",
+				sepaDocument, nbOfTxs, groupHeaderSCT.getCtrlSum(), pmtInfCount, ctrlSum);
+
+		sepaDocument.setProcessed(pmtInfCount > 0);
+		InterfaceWrapperHelper.save(sepaDocument);
+	}
+
+	/**
+	 * Creates the whole document in memory. Note that {@link #marshal(I_SEPA_Export, OutputStream)} streams the document instead.
+	 */
+	public Document createDocument(final I_SEPA_Export sepaDocument)
+	{
+		final Document document = new Document();
+
+		final CustomerCreditTransferInitiationV03 creditTransferInitiation = new CustomerCreditTransferInitiationV03();
+		document.setCstmrCdtTrfInitn(creditTransferInitiation);
+
+		final GroupHeaderSCT groupHeaderSCT = createGroupHeader(sepaDocument);
+		creditTransferInitiation.setGrpHdr(groupHeaderSCT);
 
 		//
 		// Payment Informations: create one PaymentInstructionInformationSDD for each line
@@ -210,7 +250,8 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 				continue;
 			}
 
-			final PaymentInstructionInformationSCT payInsInf = createPaymentInstructionInformation(creditTransferInitiation, sepaDocument, line);
+			final int currentIndex = creditTransferInitiation.getPmtInf().size() + 1;
+			final PaymentInstructionInformationSCT payInsInf = createPaymentInstructionInformation(groupHeaderSCT, currentIndex, sepaDocument, line);
 			Check.assumeNotNull(payInsInf, "Payment instruction not null");
 
 			creditTransferInitiation.getPmtInf().add(payInsInf);
@@ -232,8 +273,38 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 
 	}
 
+	private GroupHeaderSCT createGroupHeader(final I_SEPA_Export sepaDocument)
+	{
+		final GroupHeaderSCT groupHeaderSCT = new GroupHeaderSCT();
+
+		// MessageIdentification
+		groupHeaderSCT.setMsgId(sepaDocument.getDocumentNo()); // unique identifier in our system
+
+		// CreationDateTime: The system-generated date and time stamp at the time of formatting of the message.
+		groupHeaderSCT.setCreDtTm(datatypeFactory.newXMLGregorianCalendar(SystemTime.asGregorianCalendar()));
+
+		// Number of transactions: The total number of direct debit transaction blocks in the message.
+		// NOTE: You can have only one direct debit transaction by payment information.
+		// NOTE: it will be set later, after we know the number of lines
+		groupHeaderSCT.setNbOfTxs(null);
+
+		// Control Sum: This is the total amount of the collection.
+		// NOTE: it will be set later, after each payment information
+		groupHeaderSCT.setCtrlSum(BigDecimal.ZERO);
+
+		final PartyIdentificationSEPA1 initgPty = new PartyIdentificationSEPA1();
+		initgPty.setNm(sepaDocument.getSEPA_CreditorIdentifier());
+		groupHeaderSCT.setInitgPty(initgPty);
+
+		return groupHeaderSCT;
+	}
+
+	/**
+	 * @param currentIndex 1-based index of this payment instruction information within the document
+	 */
 	private PaymentInstructionInformationSCT createPaymentInstructionInformation(
-			final CustomerCreditTransferInitiationV03 customerCreditTransferInitiation,
+			final GroupHeaderSCT groupHeader,
+			final int currentIndex,
 			final I_SEPA_Export sepaHdr,
 			final I_SEPA_Export_Line line)
 	{
@@ -241,9 +312,7 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 
 		// PaymentInformationIdentification: A system-generated internal code.
 		{
-			// Current index of this payment instruction information
-			final int currentIndex = customerCreditTransferInitiation.getPmtInf().size() + 1;
-			final String pmtInfId = customerCreditTransferInitiation.getGrpHdr().getMsgId() + "-" + currentIndex;
+			final String pmtInfId = groupHeader.getMsgId() + "-" + currentIndex;
 			paymentInstruction.setPmtInfId(pmtInfId);
 		}
 
@@ -279,7 +348,7 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 		id.setIBAN(sepaHdr.getIBAN());
 		dbtrAcct.setId(id);
 
-		paymentInstruction.setDbtr(convertPartyIdentificationSEPA2(customerCreditTransferInitiation.getGrpHdr().getInitgPty()));
+		paymentInstruction.setDbtr(convertPartyIdentificationSEPA2(groupHeader.getInitgPty()));
 
 		//
 		// Creditor Agent (i.e. Bank)
@@ -336,7 +405,7 @@ public class SEPACustomerCTIMarshaler_Pain_001_003_03 implements ISEPAMarshaller
 			activeAmt.setCcy(ActiveOrHistoricCurrencyCodeEUR.EUR);
 
 			final BigDecimal amount = line.getAmt();
-			Check.errorIf(amount != null && amount.signum() > 0, "Invalid amount '{}' for {}'", amount, line);
+			Check.errorUnless(amount != null && amount.signum() > 0, "Invalid amount '{}' for {}'", amount, line);
 			activeAmt.setValue(amount);
 
 			instdAmount.setInstdAmt(activeAmt);
@@ -0,0 +1,77 @@
+package de.metas.payment.sepa.spi.impl;
+
+/*
+ * #%L
+ * de.metas.payment.sepa
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+
+import de.metas.payment.sepa.jaxb.sct.pain_001_003_03.Document;
+import de.metas.payment.sepa.model.I_SEPA_Export;
+
+/**
+ * Manual test: marshals a large payment run and prints the retained heap of the streaming marshaler next to the one of the in-memory JAXB document.
+ * <p>
+ * No database is needed. Run it with a fixed heap (e.g. <code>-Xmx2g</code>) to have comparable results.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class SEPACustomerCTIMarshaler_Pain_001_003_03ManualTest
+{
+	public static void main(final String[] args) throws Exception
+	{
+		final int linesCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+		final SEPACustomerCTIMarshaler_Pain_001_003_03Test test = new SEPACustomerCTIMarshaler_Pain_001_003_03Test();
+		test.init();
+		final I_SEPA_Export sepaExport = test.createSEPAExport(linesCount);
+
+		final SEPACustomerCTIMarshaler_Pain_001_003_03 marshaler = new SEPACustomerCTIMarshaler_Pain_001_003_03();
+
+		final long usedHeapBeforeStreaming = usedHeap();
+		final long startStreaming = System.currentTimeMillis();
+		final ByteArrayOutputStream streamedOut = new ByteArrayOutputStream();
+		marshaler.marshal(sepaExport, streamedOut);
+		final long millisStreaming = System.currentTimeMillis() - startStreaming;
+		final long usedHeapStreaming = usedHeap() - usedHeapBeforeStreaming - streamedOut.size();
+
+		final long usedHeapBeforeInMemory = usedHeap();
+		final long startInMemory = System.currentTimeMillis();
+		final Document xmlDocument = marshaler.createDocument(sepaExport);
+		final long millisInMemory = System.currentTimeMillis() - startInMemory;
+		final long usedHeapInMemory = usedHeap() - usedHeapBeforeInMemory;
+
+		System.out.println("Lines: " + linesCount
+				+ "; streaming: " + streamedOut.size() / 1024 + "KB written in " + millisStreaming + "ms, retained heap " + usedHeapStreaming / 1024 + "KB"
+				+ "; in-memory: " + xmlDocument.getCstmrCdtTrfInitn().getPmtInf().size() + " PmtInf created in " + millisInMemory + "ms, retained heap " + usedHeapInMemory / 1024 + "KB");
+	}
+
+	private static long usedHeap()
+	{
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++)
+		{
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,216 @@
+package de.metas.payment.sepa.spi.impl;
+
+/*
+ * #%L
+ * de.metas.payment.sepa
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.time.FixedTimeSource;
+import org.adempiere.util.time.SystemTime;
+import org.compiere.model.I_C_Currency;
+import org.compiere.util.Env;
+import org.compiere.util.TimeUtil;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import de.metas.payment.sepa.jaxb.sct.pain_001_003_03.Document;
+import de.metas.payment.sepa.model.I_SEPA_Export;
+import de.metas.payment.sepa.model.I_SEPA_Export_Line;
+
+/**
+ * Verifies that the streaming {@link SEPACustomerCTIMarshaler_Pain_001_003_03#marshal(I_SEPA_Export, OutputStream)} produces the same document as the in-memory JAXB graph.
+ */
+public class SEPACustomerCTIMarshaler_Pain_001_003_03Test
+{
+	private Properties ctx;
+	private String trxName;
+	private I_C_Currency currencyEUR;
+
+	private SEPACustomerCTIMarshaler_Pain_001_003_03 marshaler;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		ctx = Env.getCtx();
+		trxName = ITrx.TRXNAME_None;
+
+		SystemTime.setTimeSource(new FixedTimeSource(2016, 5, 9, 10, 30, 0));
+
+		currencyEUR = InterfaceWrapperHelper.create(ctx, I_C_Currency.class, trxName);
+		currencyEUR.setISO_Code("EUR");
+		InterfaceWrapperHelper.save(currencyEUR);
+
+		marshaler = new SEPACustomerCTIMarshaler_Pain_001_003_03();
+	}
+
+	@Test
+	public void testStreamingOutputEqualsInMemoryOutput() throws Exception
+	{
+		final I_SEPA_Export sepaExport = createSEPAExport(100);
+
+		final ByteArrayOutputStream streamedOut = new ByteArrayOutputStream();
+		marshaler.marshal(sepaExport, streamedOut);
+
+		final ByteArrayOutputStream inMemoryOut = new ByteArrayOutputStream();
+		final Document xmlDocument = marshaler.createDocument(sepaExport);
+		marshaler.marshal(xmlDocument, inMemoryOut);
+
+		assertValid(streamedOut.toByteArray());
+
+		final org.w3c.dom.Document streamedDOM = parse(streamedOut.toByteArray());
+		final org.w3c.dom.Document inMemoryDOM = parse(inMemoryOut.toByteArray());
+		assertEquals(inMemoryDOM.getDocumentElement(), streamedDOM.getDocumentElement());
+
+		Assert.assertTrue(sepaExport.isProcessed());
+	}
+
+	/* package */ I_SEPA_Export createSEPAExport(final int linesCount)
+	{
+		final I_SEPA_Export sepaExport = InterfaceWrapperHelper.create(ctx, I_SEPA_Export.class, trxName);
+		sepaExport.setDocumentNo("12345");
+		sepaExport.setSEPA_CreditorIdentifier("org");
+		sepaExport.setIBAN("DE89370400440532013000");
+		sepaExport.setSwiftCode("COBADEFFXXX");
+		sepaExport.setPaymentDate(TimeUtil.getDay(2016, 5, 10));
+		InterfaceWrapperHelper.save(sepaExport);
+
+		for (int i = 1; i <= linesCount; i++)
+		{
+			final I_SEPA_Export_Line line = InterfaceWrapperHelper.newInstance(I_SEPA_Export_Line.class, sepaExport);
+			line.setSEPA_Export(sepaExport);
+			line.setC_Currency_ID(currencyEUR.getC_Currency_ID());
+			line.setIBAN("NL31INGB0000000044");
+			line.setSwiftCode("INGBNL2A");
+			line.setAmt(new BigDecimal(i % 1000 + 1).movePointLeft(2).add(BigDecimal.TEN));
+			line.setSEPA_MandateRefNo("Creditor " + i);
+			line.setDescription("Invoice " + i);
+			InterfaceWrapperHelper.save(line);
+		}
+
+		return sepaExport;
+	}
+
+	private void assertValid(final byte[] xml) throws Exception
+	{
+		SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+				.newSchema(new File("src/main/xsd/pain.001.003.03.xsd"))
+				.newValidator()
+				.validate(new StreamSource(new ByteArrayInputStream(xml)));
+	}
+
+	/**
+	 * Parses the given XML and removes what may legally differ between the two outputs, i.e. whitespace between elements and (redundant) namespace declarations.
+	 */
+	private org.w3c.dom.Document parse(final byte[] xml) throws Exception
+	{
+		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		final org.w3c.dom.Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+		clean(document.getDocumentElement());
+		document.normalizeDocument();
+		return document;
+	}
+
+	/**
+	 * Compares by namespace URI and local name; namespace prefixes may legally differ.
+	 */
+	private void assertEquals(final Element expected, final Element actual)
+	{
+		final String path = expected.getLocalName();
+		Assert.assertEquals("namespace of " + path, expected.getNamespaceURI(), actual.getNamespaceURI());
+		Assert.assertEquals("name of " + path, expected.getLocalName(), actual.getLocalName());
+
+		final NamedNodeMap expectedAttributes = expected.getAttributes();
+		Assert.assertEquals("attributes of " + path, expectedAttributes.getLength(), actual.getAttributes().getLength());
+		for (int i = 0; i < expectedAttributes.getLength(); i++)
+		{
+			final Node expectedAttribute = expectedAttributes.item(i);
+			Assert.assertEquals("attribute " + expectedAttribute.getLocalName() + " of " + path,
+					expectedAttribute.getNodeValue(),
+					actual.getAttributeNS(expectedAttribute.getNamespaceURI(), expectedAttribute.getLocalName()));
+		}
+
+		final NodeList expectedChildren = expected.getChildNodes();
+		final NodeList actualChildren = actual.getChildNodes();
+		Assert.assertEquals("children of " + path, expectedChildren.getLength(), actualChildren.getLength());
+		for (int i = 0; i < expectedChildren.getLength(); i++)
+		{
+			final Node expectedChild = expectedChildren.item(i);
+			final Node actualChild = actualChildren.item(i);
+			Assert.assertEquals("child node type in " + path, expectedChild.getNodeType(), actualChild.getNodeType());
+			if (expectedChild.getNodeType() == Node.ELEMENT_NODE)
+			{
+				assertEquals((Element)expectedChild, (Element)actualChild);
+			}
+			else
+			{
+				Assert.assertEquals("text of " + path, expectedChild.getTextContent(), actualChild.getTextContent());
+			}
+		}
+	}
+
+	private void clean(final Element element)
+	{
+		final NamedNodeMap attributes = element.getAttributes();
+		for (int i = attributes.getLength() - 1; i >= 0; i--)
+		{
+			final Node attribute = attributes.item(i);
+			if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI()))
+			{
+				element.removeAttributeNode((org.w3c.dom.Attr)attribute);
+			}
+		}
+
+		final NodeList children = element.getChildNodes();
+		for (int i = children.getLength() - 1; i >= 0; i--)
+		{
+			final Node child = children.item(i);
+			if (child.getNodeType() == Node.TEXT_NODE && child.getTextContent().trim().isEmpty())
+			{
+				element.removeChild(child);
+			}
+			else if (child.getNodeType() == Node.ELEMENT_NODE)
+			{
+				clean((Element)child);
+			}
+		}
+	}
+}
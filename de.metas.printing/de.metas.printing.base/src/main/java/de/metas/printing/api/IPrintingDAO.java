@@ -22,6 +22,7 @@ package de.metas.printing.api;
  * #L%
  */
 
+import java.io.File;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
@@ -45,6 +46,7 @@ import de.metas.printing.model.I_AD_PrinterTray_Matching;
 import de.metas.printing.model.I_AD_Printer_Config;
 import de.metas.printing.model.I_AD_Printer_Matching;
 import de.metas.printing.model.I_AD_Printer_Tray;
+import de.metas.printing.model.I_C_PrintPackageData;
 import de.metas.printing.model.I_C_Print_Job;
 import de.metas.printing.model.I_C_Print_Job_Detail;
 import de.metas.printing.model.I_C_Print_Job_Instructions;
@@ -261,4 +263,14 @@ public interface IPrintingDAO extends ISingletonService
 	I_AD_Printer_Matching retrievePrinterMatchingOrNull(String hostKey, I_AD_Printer printer);
 
 	I_AD_Print_Clients retrievePrintClientsEntry(Properties ctx, String hostKey);
+
+	/**
+	 * Saves the given print package data, taking the print data from the given file.
+	 * <p>
+	 * Depending on the implementation, the data is streamed to the database, without loading the whole file into memory.
+	 *
+	 * @param printPackageData
+	 * @param printDataFile file containing the print data (i.e. the collated PDF)
+	 */
+	void savePrintPackageData(I_C_PrintPackageData printPackageData, File printDataFile);
 }
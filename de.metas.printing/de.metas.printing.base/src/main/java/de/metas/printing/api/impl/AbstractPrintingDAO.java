@@ -22,6 +22,9 @@ package de.metas.printing.api.impl;
  * #L%
  */
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -51,6 +54,7 @@ import de.metas.printing.model.I_AD_PrinterRouting;
 import de.metas.printing.model.I_AD_PrinterTray_Matching;
 import de.metas.printing.model.I_AD_Printer_Config;
 import de.metas.printing.model.I_AD_Printer_Matching;
+import de.metas.printing.model.I_C_PrintPackageData;
 import de.metas.printing.model.I_C_Print_Job;
 import de.metas.printing.model.I_C_Print_Job_Detail;
 import de.metas.printing.model.I_C_Print_Job_Instructions;
@@ -337,4 +341,24 @@ public abstract class AbstractPrintingDAO implements IPrintingDAO
 				hwPrinter.getName());
 		return result;
 	}
+
+	/**
+	 * Loads the whole file into memory and saves it. Database implementations shall stream the data instead.
+	 */
+	@Override
+	public void savePrintPackageData(final I_C_PrintPackageData printPackageData, final File printDataFile)
+	{
+		final byte[] printData;
+		try
+		{
+			printData = Files.readAllBytes(printDataFile.toPath());
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed reading print data from " + printDataFile, e);
+		}
+
+		printPackageData.setPrintData(printData);
+		InterfaceWrapperHelper.save(printPackageData);
+	}
 }
@@ -23,8 +23,11 @@ package de.metas.printing.api.impl;
  */
 
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.IdentityHashMap;
@@ -45,16 +48,20 @@ import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
 import org.adempiere.util.Pair;
 import org.adempiere.util.Services;
+import org.adempiere.util.StreamUtils;
 import org.adempiere.util.lang.Mutable;
 import org.adempiere.util.lang.ObjectUtils;
 import org.compiere.model.I_AD_Archive;
 import org.compiere.util.Util.ArrayKey;
 
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
 import com.lowagie.text.Document;
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.pdf.BadPdfFormatException;
 import com.lowagie.text.pdf.PdfCopy;
 import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
 
 import de.metas.printing.api.IPrintJobBL;
 import de.metas.printing.api.IPrintJobLinesAggregator;
@@ -97,6 +104,9 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 	// NOTE: we shall use IdentityHashMap instead of HashMap because key content (I_C_Print_PackageInfo) is changing
 	private final Map<I_C_Print_PackageInfo, List<ArchivePart>> mapArchiveParts = new IdentityHashMap<I_C_Print_PackageInfo, List<ArchivePart>>();
 
+	/** All archive data created by this aggregator; their temporary files are deleted when the print package was created or the aggregation failed */
+	private final List<ArchiveData> archiveDatas = new ArrayList<>();
+
 	/**
 	 * True if aggregator was already executed
 	 */
@@ -156,6 +166,8 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		}
 		catch (final Exception e)
 		{
+			// the aggregation is aborted, so we don't need the archives' data anymore
+			disposeArchiveDatas();
 			throw new PrintingQueueAggregationException(jobLine.getC_Printing_Queue_ID(), e);
 		}
 	}
@@ -176,6 +188,7 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		// Create ArchiveData from Print Job Line
 		final I_AD_Archive archive = jobLine.getC_Printing_Queue().getAD_Archive();
 		final ArchiveData archiveData = new ArchiveData(jobLine, archive);
+		archiveDatas.add(archiveData);
 		if (!archiveData.hasData())
 		{
 			logger.info("Print Job Line's Archive has no data: {}. Skipping it", archiveData);
@@ -371,15 +384,57 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 	@Override
 	public I_C_Print_Package createPrintPackage()
 	{
-		final ByteArrayOutputStream pdfBuf = new ByteArrayOutputStream();
-		final int pages = createPDFData(pdfBuf); // create the PDS data, and update the print package infos' pageFrom and pageto values
+		//
+		// Collate the PDF data to a temporary file, in order to not have the whole print package data in memory
+		final File pdfFile = createPDFTempFile();
+		try
+		{
+			return createPrintPackage(pdfFile);
+		}
+		finally
+		{
+			if (!pdfFile.delete())
+			{
+				logger.warn("Failed deleting temporary print package file {}", pdfFile);
+			}
+			disposeArchiveDatas();
+		}
+	}
+
+	private void disposeArchiveDatas()
+	{
+		for (final ArchiveData archiveData : archiveDatas)
+		{
+			archiveData.dispose();
+		}
+		archiveDatas.clear();
+	}
+
+	private I_C_Print_Package createPrintPackage(final File pdfFile)
+	{
+		final int pages;
+		OutputStream pdfOut = null;
+		try
+		{
+			pdfOut = new BufferedOutputStream(new FileOutputStream(pdfFile));
+			pages = createPDFData(pdfOut); // create the PDS data, and update the print package infos' pageFrom and pageto values
+			pdfOut.close();
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed writing the print package data to " + pdfFile, e);
+		}
+		finally
+		{
+			StreamUtils.close(pdfOut);
+		}
+
 		if (pages <= 0)
 		{
 			throw new AdempiereException("No PDF pages found. No package created."); // TRL
 		}
 
-		final byte[] data = pdfBuf.toByteArray();
-		if (data == null || data.length == 0)
+		if (pdfFile.length() <= 0)
 		{
 			throw new AdempiereException("No PDF data found. No package created."); // TRL
 		}
@@ -411,8 +466,7 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		final I_C_PrintPackageData printPackageData = InterfaceWrapperHelper.create(ctx, I_C_PrintPackageData.class, trxName);
 		printPackageData.setC_Print_Package(printPackage);
 		printPackageData.setAD_Org_ID(printPackage.getAD_Org_ID());
-		printPackageData.setPrintData(data);
-		InterfaceWrapperHelper.save(printPackageData);
+		dao.savePrintPackageData(printPackageData, pdfFile);
 
 		// Mark processed print jobs
 		updatePrintJob();
@@ -423,6 +477,18 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		return printPackage;
 	}
 
+	private static File createPDFTempFile()
+	{
+		try
+		{
+			return File.createTempFile("PrintPackage", ".pdf");
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed creating the temporary print package file", e);
+		}
+	}
+
 	private void updatePrintJobLines(final I_C_Print_PackageInfo printPackageInfo, final I_C_Print_Package printPackage)
 	{
 		// for (I_C_Print_PackageInfo i : mapArchiveParts.keySet()) System.out.println("-> "+i.hashCode());
@@ -721,9 +787,12 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		private final I_AD_Archive archive;
 
 		// Arhive's Data
-		private boolean dataLoaded;
-		private transient byte[] data;
-		private Integer numberOfPages = null;
+		// NOTE: we are not keeping the archive's binary data in memory, because a print job can have thousands of lines.
+		// The data is loaded only once and spooled to a temporary file, which is then read partially, both to count the pages and while collating the PDF.
+		private boolean dataChecked;
+		private boolean hasData;
+		private int numberOfPages = 0;
+		private File dataFile;
 
 		public ArchiveData(final I_C_Print_Job_Line printJobLine, final I_AD_Archive archive)
 		{
@@ -743,73 +812,120 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 			return printJobLine;
 		}
 
-		private final byte[] getData()
+		private final void checkData()
 		{
-			if (dataLoaded)
+			if (dataChecked)
 			{
-				return data;
+				return;
 			}
 
-			data = archiveBL.getBinaryData(archive);
-			dataLoaded = true;
-			if (data == null || data.length == 0)
+			PdfReader reader = null;
+			try
 			{
-				logger.info("Archive {} does not contain any data. Skip", archive);
-				data = null;
+				dataFile = spoolDataToFileOrNull();
+				if (dataFile != null)
+				{
+					reader = createPdfReader();
+					numberOfPages = reader.getNumberOfPages();
+				}
+				hasData = dataFile != null;
+			}
+			catch (final IOException e)
+			{
+				throw new AdempiereException("Cannot get number of pages for archive " + archive, e);
+			}
+			finally
+			{
+				if (reader != null)
+				{
+					try
+					{
+						reader.close();
+					}
+					catch (final Exception e)
+					{
+					}
+					reader = null;
+				}
 			}
 
-			return data;
+			dataChecked = true;
+			if (!hasData)
+			{
+				logger.info("Archive {} does not contain any data. Skip", archive);
+			}
 		}
 
 		public boolean hasData()
 		{
-			return getData() != null;
+			checkData();
+			return hasData;
 		}
 
+		/**
+		 * @return a reader which reads the pages from the spooled data file only when they are needed
+		 */
 		public PdfReader createPdfReader() throws IOException
 		{
-			final PdfReader reader = new PdfReader(getData());
-			return reader;
-		}
-
-		public int getNumberOfPages()
-		{
-			if (numberOfPages != null)
+			if (dataFile == null)
 			{
-				return numberOfPages;
+				throw new AdempiereException("Archive " + archive + " does not contain any data");
 			}
+			return new PdfReader(new RandomAccessFileOrArray(dataFile.getAbsolutePath(), false, true), null);
+		}
 
-			if (!hasData())
+		/**
+		 * Copies the archive's data to a temporary file.
+		 *
+		 * @return file or <code>null</code> if the archive has no data
+		 */
+		private File spoolDataToFileOrNull() throws IOException
+		{
+			final InputStream data = archiveBL.getBinaryDataAsStream(archive);
+			if (data == null)
 			{
-				return 0;
+				return null;
 			}
 
-			PdfReader reader = null;
+			final File file = File.createTempFile("PrintPackageArchive", ".pdf");
+			OutputStream out = null;
+			boolean ok = false;
 			try
 			{
-				reader = createPdfReader();
-				numberOfPages = reader.getNumberOfPages();
-				return numberOfPages;
-			}
-			catch (final IOException e)
-			{
-				throw new AdempiereException("Cannot get number of pages for archive " + archive, e);
+				out = new BufferedOutputStream(new FileOutputStream(file));
+				final long size = ByteStreams.copy(data, out);
+				out.close();
+				ok = size > 0; // make sure we are not getting empty data
+				return ok ? file : null;
 			}
 			finally
 			{
-				if (reader != null)
+				Closeables.closeQuietly(data);
+				StreamUtils.close(out);
+				if (!ok && !file.delete())
 				{
-					try
-					{
-						reader.close();
-					}
-					catch (final Exception e)
-					{
-					}
-					reader = null;
+					logger.warn("Failed deleting temporary archive file {}", file);
 				}
 			}
 		}
+
+		/**
+		 * Deletes the spooled data file, if any.
+		 */
+		public void dispose()
+		{
+			if (dataFile != null && !dataFile.delete())
+			{
+				logger.warn("Failed deleting temporary archive file {}", dataFile);
+			}
+			dataFile = null;
+		}
+
+		public int getNumberOfPages()
+		{
+			checkData();
+			return numberOfPages;
+		}
 	}
 
 	/**
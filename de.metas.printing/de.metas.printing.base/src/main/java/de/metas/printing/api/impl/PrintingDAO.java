@@ -23,6 +23,13 @@ package de.metas.printing.api.impl;
  */
 
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -33,6 +40,8 @@ import org.adempiere.ad.dao.impl.TypedSqlQuery;
 import org.adempiere.ad.session.ISessionBL;
 import org.adempiere.ad.session.MFSession;
 import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
 import org.adempiere.util.Services;
@@ -44,6 +53,8 @@ import org.compiere.util.DB;
 import org.compiere.util.Env;
 import org.compiere.util.Util;
 
+import com.google.common.io.Closeables;
+
 import de.metas.lock.api.ILockManager;
 import de.metas.printing.api.IPrintPackageBL;
 import de.metas.printing.api.IPrintingQueueQuery;
@@ -55,6 +66,7 @@ import de.metas.printing.model.I_AD_PrinterHW_MediaTray;
 import de.metas.printing.model.I_AD_PrinterTray_Matching;
 import de.metas.printing.model.I_AD_Printer_Matching;
 import de.metas.printing.model.I_AD_Printer_Tray;
+import de.metas.printing.model.I_C_PrintPackageData;
 import de.metas.printing.model.I_C_Print_Job;
 import de.metas.printing.model.I_C_Print_Job_Instructions;
 import de.metas.printing.model.I_C_Print_Job_Line;
@@ -496,4 +508,47 @@ public class PrintingDAO extends AbstractPrintingDAO
 				.setClient_ID()
 				.list(I_AD_Printer_Tray.class);
 	}
+
+	/**
+	 * Saves the record with an empty print data and afterwards streams the file's content directly to the database,
+	 * in order to avoid having the whole print data in memory.
+	 */
+	@Override
+	public void savePrintPackageData(final I_C_PrintPackageData printPackageData, final File printDataFile)
+	{
+		printPackageData.setPrintData(new byte[] {});
+		InterfaceWrapperHelper.save(printPackageData);
+
+		final String sql = "UPDATE " + I_C_PrintPackageData.Table_Name
+				+ " SET " + I_C_PrintPackageData.COLUMNNAME_PrintData + "=?"
+				+ " WHERE " + I_C_PrintPackageData.COLUMNNAME_C_PrintPackageData_ID + "=?";
+		final String trxName = InterfaceWrapperHelper.getTrxName(printPackageData);
+
+		InputStream printDataIn = null;
+		PreparedStatement pstmt = null;
+		try
+		{
+			// NOTE: we are using the int length version, because the long one (JDBC 4) is not implemented by the postgresql driver
+			final long length = printDataFile.length();
+			if (length > Integer.MAX_VALUE)
+			{
+				throw new AdempiereException("Print data file " + printDataFile + " is too big: " + length + " bytes");
+			}
+			printDataIn = new BufferedInputStream(new FileInputStream(printDataFile));
+
+			pstmt = DB.prepareStatement(sql, trxName);
+			pstmt.setBinaryStream(1, printDataIn, (int)length);
+			pstmt.setInt(2, printPackageData.getC_PrintPackageData_ID());
+			pstmt.executeUpdate();
+		}
+		catch (final SQLException | IOException e)
+		{
+			throw new DBException(e, sql);
+		}
+		finally
+		{
+			DB.close(pstmt);
+			Closeables.closeQuietly(printDataIn);
+		}
+	}
 }
@@ -0,0 +1,215 @@
+package de.metas.printing.api.impl;
+
+/*
+ * #%L
+ * de.metas.printing.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.util.Services;
+import org.adempiere.util.lang.Mutable;
+import org.apache.commons.collections4.IteratorUtils;
+import org.compiere.util.Util.ArrayKey;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.PdfWriter;
+
+import de.metas.printing.api.IPrintPackageBL;
+import de.metas.printing.api.IPrintPackageCtx;
+import de.metas.printing.model.I_AD_PrinterRouting;
+import de.metas.printing.model.I_C_Print_Job;
+import de.metas.printing.model.I_C_Print_Job_Instructions;
+import de.metas.printing.model.I_C_Print_Job_Line;
+import de.metas.printing.model.I_C_Print_Package;
+
+/**
+ * Manual test: measures heap usage and throughput of {@link PrintJobLinesAggregator} when it collates a print job with many lines into one print package.
+ * <p>
+ * No database is needed, it runs on the in-memory (POJO) persistence of the unit tests. Note that there the archives' data is kept in memory anyway
+ * and that the created print package data is loaded into memory once it's saved (see {@link AbstractPrintingDAO#savePrintPackageData(de.metas.printing.model.I_C_PrintPackageData, java.io.File)}),
+ * so the printed peak heap contains the package size once.
+ * Run it with a fixed heap (e.g. <code>-Xmx1g</code>) to have comparable results.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class PrintJobLinesAggregatorHeapManualTest extends AbstractPrintingTest
+{
+	public static void main(final String[] args) throws Exception
+	{
+		final int linesCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		final int pagesPerArchive = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		staticInit();
+		final PrintJobLinesAggregatorHeapManualTest test = new PrintJobLinesAggregatorHeapManualTest(pagesPerArchive);
+		test.setup();
+		test.createPrintJob(linesCount);
+
+		for (int round = 1; round <= rounds; round++) // first round(s) are warming up
+		{
+			test.run(round);
+		}
+	}
+
+	private final int pagesPerArchive;
+	private I_C_Print_Job_Instructions printJobInstructions;
+	private int linesCount;
+
+	private PrintJobLinesAggregatorHeapManualTest(final int pagesPerArchive)
+	{
+		super();
+		this.pagesPerArchive = pagesPerArchive;
+	}
+
+	private void createPrintJob(final int linesCount) throws DocumentException
+	{
+		final String printerName = "printer01";
+		final String trayName = "tray01";
+		helper.getCreatePrinterTrayHW(printerName + "-HW", trayName + "-HW");
+		final I_AD_PrinterRouting routing = helper.createPrinterRouting(printerName, trayName, -1, 1, pagesPerArchive);
+		final List<I_AD_PrinterRouting> routings = Collections.singletonList(routing);
+
+		final I_C_Print_Job printJob = helper.createPrintJob();
+		long totalBytes = 0;
+		for (int lineNo = 1; lineNo <= linesCount; lineNo++)
+		{
+			final byte[] pdfData = createArchivePdf(lineNo);
+			totalBytes += pdfData.length;
+			helper.createPrintJobLine(printJob, routings, pdfData);
+		}
+		printJobInstructions = helper.createPrintJobInstructions(printJob);
+		this.linesCount = linesCount;
+
+		System.out.println("Created a print job with " + linesCount + " lines, each archive with " + pagesPerArchive + " pages, " + totalBytes / 1024 / 1024 + "MB in total");
+	}
+
+	private byte[] createArchivePdf(final int archiveNo) throws DocumentException
+	{
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 200; i++)
+		{
+			text.append("Invoice line ").append(i).append(": some product description which makes the page a bit bigger. ");
+		}
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final Document document = new Document();
+		PdfWriter.getInstance(document, out);
+		document.open();
+		for (int pageNo = 1; pageNo <= pagesPerArchive; pageNo++)
+		{
+			if (pageNo > 1)
+			{
+				document.newPage();
+			}
+			document.add(new Paragraph("Archive " + archiveNo + ", page " + pageNo));
+			document.add(new Paragraph(text.toString()));
+		}
+		document.close();
+		return out.toByteArray();
+	}
+
+	private void run(final int round)
+	{
+		final IPrintPackageCtx printCtx = Services.get(IPrintPackageBL.class).createInitialCtx(helper.getCtx());
+
+		System.gc();
+		final HeapSampler heapSampler = new HeapSampler();
+		heapSampler.start();
+		final long startNanos = System.nanoTime();
+
+		final PrintJobLinesAggregator aggregator = new PrintJobLinesAggregator(printCtx, printJobInstructions);
+		final Mutable<ArrayKey> lastKey = new Mutable<>();
+		for (final I_C_Print_Job_Line jobLine : IteratorUtils.asIterable(helper.getDAO().retrievePrintJobLines(printJobInstructions)))
+		{
+			aggregator.add(jobLine, lastKey);
+		}
+		final I_C_Print_Package printPackage = aggregator.createPrintPackage();
+
+		final long millis = (System.nanoTime() - startNanos) / 1000000;
+		final long peakHeapBytes = heapSampler.stop();
+
+		final int pages = printPackage.getPageCount();
+		final int packageBytes = helper.getDAO().getPrintPackageData(printPackage).getPrintData().length;
+		System.out.println("Round " + round + ": " + linesCount + " lines, " + pages + " pages"
+				+ ", package " + packageBytes / 1024 / 1024 + "MB"
+				+ ", peak heap above baseline " + peakHeapBytes / 1024 / 1024 + "MB"
+				+ ", " + millis + "ms"
+				+ " (" + pages * 1000L / Math.max(millis, 1) + " pages/sec)");
+	}
+
+	/**
+	 * Samples the used heap in background and remembers the biggest value above the heap which was used when started.
+	 */
+	private static final class HeapSampler
+	{
+		private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+		private final AtomicBoolean running = new AtomicBoolean(false);
+		private final AtomicLong peakHeapBytes = new AtomicLong(0);
+		private long baselineHeapBytes;
+		private Thread thread;
+
+		public void start()
+		{
+			baselineHeapBytes = memoryMXBean.getHeapMemoryUsage().getUsed();
+			running.set(true);
+			thread = new Thread(() -> {
+				while (running.get())
+				{
+					peakHeapBytes.accumulateAndGet(memoryMXBean.getHeapMemoryUsage().getUsed(), Math::max);
+					try
+					{
+						Thread.sleep(5);
+					}
+					catch (final InterruptedException e)
+					{
+						return;
+					}
+				}
+			}, "HeapSampler");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		public long stop()
+		{
+			peakHeapBytes.accumulateAndGet(memoryMXBean.getHeapMemoryUsage().getUsed(), Math::max);
+			running.set(false);
+			try
+			{
+				thread.join();
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return Math.max(0, peakHeapBytes.get() - baselineHeapBytes);
+		}
+	}
+}
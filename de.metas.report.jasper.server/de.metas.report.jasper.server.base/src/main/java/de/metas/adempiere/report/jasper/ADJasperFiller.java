@@ -24,10 +24,23 @@ package de.metas.adempiere.report.jasper;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.Services;
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
 import org.slf4j.Logger;
+
+import com.google.common.base.Stopwatch;
+
 import de.metas.logging.LogManager;
 
 import net.sf.jasperreports.engine.JRException;
@@ -38,6 +51,9 @@ import net.sf.jasperreports.engine.JasperReport;
 
 /**
  * Helper class used to fill a {@link JasperReport} and produce {@link JasperPrint}.
+ * <p>
+ * The number of reports which are filled in parallel can be limited by {@value #SYSCONFIG_MaxConcurrentFills}.
+ * Fill durations are collected per report and can be inspected via {@link JMXJasperServerMBean}.
  */
 /* package */final class ADJasperFiller
 {
@@ -50,9 +66,24 @@ import net.sf.jasperreports.engine.JasperReport;
 		return instance;
 	}
 
+	/**
+	 * Maximum number of reports which are filled in parallel. Zero or negative means unlimited.
+	 * <p>
+	 * NOTE: the value is fetched on first fill, so changing it requires a server restart.
+	 */
+	private static final String SYSCONFIG_MaxConcurrentFills = "de.metas.report.jasper.server.MaxConcurrentFills";
+	private static final int DEFAULT_MaxConcurrentFills = 0;
+
+	private volatile Semaphore fillsLimiter;
+	private volatile int maxConcurrentFills = -1;
+
+	private final Map<String, JasperFillStatistics> fillStatisticsByReportName = new ConcurrentHashMap<>();
+
 	private ADJasperFiller()
 	{
 		super();
+
+		JMXRegistry.get().registerJMX(new JMXJasperServer(this), OnJMXAlreadyExistsPolicy.Replace);
 	}
 
 	public JasperPrint fillReport(
@@ -64,6 +95,15 @@ import net.sf.jasperreports.engine.JasperReport;
 		final Map<String, Object> paramsFixed = new HashMap<String, Object>(parameters);
 		fixParameterTypes(jasperReport, paramsFixed);
 
+		final JasperFillStatistics fillStatistics = getFillStatistics(jasperReport);
+		final Semaphore fillsLimiter = getFillsLimiter();
+		final Stopwatch waitDuration = Stopwatch.createStarted();
+		if (fillsLimiter != null)
+		{
+			acquire(fillsLimiter);
+		}
+		final long waitMillis = waitDuration.elapsed(TimeUnit.MILLISECONDS);
+
 		final Thread currentThread = Thread.currentThread();
 		final ClassLoader classLoaderOld = currentThread.getContextClassLoader();
 		
@@ -73,18 +113,98 @@ import net.sf.jasperreports.engine.JasperReport;
 		// More, that method is executed a separate thread for sub-reports, so fetching resource bundles will fail.
 		currentThread.setContextClassLoader(jasperLoader);
 		
+		final Stopwatch fillDuration = Stopwatch.createStarted();
+		boolean success = false;
 		try
 		{
 			final JasperPrint jasperPrint = JasperFillManager.fillReport(jasperReport, paramsFixed, connection);
+			fillStatistics.recordFill(waitMillis, fillDuration.elapsed(TimeUnit.MILLISECONDS), jasperPrint.getPages().size());
+			success = true;
 			return jasperPrint;
 		}
 		finally
 		{
+			if (!success)
+			{
+				fillStatistics.recordError(waitMillis, fillDuration.elapsed(TimeUnit.MILLISECONDS));
+			}
+			if (fillsLimiter != null)
+			{
+				fillsLimiter.release();
+			}
+
 			// restore the original class loader
 			currentThread.setContextClassLoader(classLoaderOld);
 		}
 	}
 
+	private static void acquire(final Semaphore fillsLimiter)
+	{
+		try
+		{
+			fillsLimiter.acquire();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new AdempiereException("Interrupted while waiting for a free report fill slot", e);
+		}
+	}
+
+	/**
+	 * @return fills limiter or <code>null</code> if the number of concurrent fills is not limited
+	 */
+	private Semaphore getFillsLimiter()
+	{
+		if (maxConcurrentFills < 0)
+		{
+			synchronized (this)
+			{
+				if (maxConcurrentFills < 0)
+				{
+					final int maxConcurrentFills = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_MaxConcurrentFills, DEFAULT_MaxConcurrentFills);
+					fillsLimiter = maxConcurrentFills > 0 ? new Semaphore(maxConcurrentFills, true) : null;
+					this.maxConcurrentFills = maxConcurrentFills > 0 ? maxConcurrentFills : 0;
+					log.info("Max concurrent report fills: {}", this.maxConcurrentFills > 0 ? this.maxConcurrentFills : "unlimited");
+				}
+			}
+		}
+		return fillsLimiter;
+	}
+
+	/* package */int getMaxConcurrentFills()
+	{
+		return maxConcurrentFills;
+	}
+
+	/* package */int getRunningFills()
+	{
+		final Semaphore fillsLimiter = this.fillsLimiter;
+		return fillsLimiter == null ? 0 : maxConcurrentFills - fillsLimiter.availablePermits();
+	}
+
+	/* package */int getWaitingFills()
+	{
+		final Semaphore fillsLimiter = this.fillsLimiter;
+		return fillsLimiter == null ? 0 : fillsLimiter.getQueueLength();
+	}
+
+	private JasperFillStatistics getFillStatistics(final JasperReport jasperReport)
+	{
+		final String reportName = jasperReport.getName();
+		return fillStatisticsByReportName.computeIfAbsent(reportName, JasperFillStatistics::new);
+	}
+
+	/* package */Collection<JasperFillStatistics> getFillStatistics()
+	{
+		return new ArrayList<>(fillStatisticsByReportName.values());
+	}
+
+	/* package */void resetFillStatistics()
+	{
+		fillStatisticsByReportName.clear();
+	}
+
 	protected void fixParameterTypes(final JasperReport jasperReport, final Map<String, Object> params)
 	{
 		final JRParameter[] jrParameters = jasperReport.getParameters();
@@ -0,0 +1,89 @@
+package de.metas.adempiere.report.jasper;
+
+/*
+ * #%L
+ * de.metas.report.jasper.server.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import org.adempiere.util.jmx.IJMXNameAware;
+
+public final class JMXJasperServer implements JMXJasperServerMBean, IJMXNameAware
+{
+	private final ADJasperFiller filler;
+	private final String jmxName;
+
+	/* package */ JMXJasperServer(final ADJasperFiller filler)
+	{
+		super();
+		this.filler = filler;
+		this.jmxName = JasperEngine.class.getName() + ":type=" + JMXJasperServer.class.getSimpleName();
+	}
+
+	@Override
+	public String getJMXName()
+	{
+		return jmxName;
+	}
+
+	@Override
+	public int getCompiledReportsCacheSize()
+	{
+		return JasperCompiledReportsCache.getInstance().size();
+	}
+
+	@Override
+	public void resetCompiledReportsCache()
+	{
+		JasperCompiledReportsCache.getInstance().reset();
+	}
+
+	@Override
+	public int getMaxConcurrentFills()
+	{
+		return filler.getMaxConcurrentFills();
+	}
+
+	@Override
+	public int getRunningFills()
+	{
+		return filler.getRunningFills();
+	}
+
+	@Override
+	public int getWaitingFills()
+	{
+		return filler.getWaitingFills();
+	}
+
+	@Override
+	public String[] getFillStatistics()
+	{
+		return filler.getFillStatistics()
+				.stream()
+				.map(JasperFillStatistics::toString)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public void resetFillStatistics()
+	{
+		filler.resetFillStatistics();
+	}
+}
@@ -0,0 +1,166 @@
+package de.metas.adempiere.report.jasper;
+
+/*
+ * #%L
+ * de.metas.report.jasper.server.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.InputStream;
+import java.net.URL;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.compiere.util.CCache;
+import org.slf4j.Logger;
+
+import com.google.common.io.Closeables;
+
+import de.metas.logging.LogManager;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+/**
+ * Cache of loaded {@link JasperReport}s.
+ * <p>
+ * Reports are cached by report path, resolved resource URL and the resource's last modification time,
+ * so a report which was re-deployed on the report server is loaded again on the next request.
+ * If the last modification time can't be determined (e.g. jar-in-jar resources or HTTP servers which are not sending it),
+ * the report is cached until the next cache reset (see {@link org.compiere.util.CacheMgt}).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class JasperCompiledReportsCache
+{
+	private static final transient Logger logger = LogManager.getLogger(JasperCompiledReportsCache.class);
+
+	private static final JasperCompiledReportsCache instance = new JasperCompiledReportsCache();
+
+	public static JasperCompiledReportsCache getInstance()
+	{
+		return instance;
+	}
+
+	private static final int CACHE_MaxSize = 500;
+
+	private final CCache<String, JasperReport> jasperReportsByKey = CCache.newLRUCache(JasperCompiledReportsCache.class.getSimpleName(), CACHE_MaxSize, CCache.EXPIREMINUTES_Never);
+
+	private JasperCompiledReportsCache()
+	{
+		super();
+	}
+
+	/**
+	 * Gets the loaded {@link JasperReport} for given resource name, either from cache or by loading it using given <code>jasperLoader</code>.
+	 *
+	 * @param reportPath report path, as configured in <code>AD_Process</code>; it will be set as <code>reportPathPropertyName</code> property of the loaded report
+	 * @param resourceName resource name to be fetched from <code>jasperLoader</code>
+	 * @param jasperLoader
+	 * @param reportPathPropertyName
+	 * @return jasper report or <code>null</code> if the resource was not found
+	 */
+	public JasperReport getJasperReport(final String reportPath, final String resourceName, final ClassLoader jasperLoader, final String reportPathPropertyName) throws JRException
+	{
+		final URL resourceURL = jasperLoader.getResource(resourceName);
+		if (resourceURL == null)
+		{
+			// resource not available as URL; load it directly, without caching
+			return loadJasperReport(reportPath, resourceName, jasperLoader, reportPathPropertyName);
+		}
+
+		final long lastModified = getLastModified(resourceURL);
+		final String cacheKey = reportPath + "|" + resourceURL + "|" + lastModified;
+
+		return jasperReportsByKey.getOrLoad(cacheKey, () -> {
+			logger.info("Loading jasper report {} (lastModified={})", resourceURL, lastModified);
+			return loadJasperReport(reportPath, resourceName, jasperLoader, reportPathPropertyName);
+		});
+	}
+
+	private static JasperReport loadJasperReport(final String reportPath, final String resourceName, final ClassLoader jasperLoader, final String reportPathPropertyName) throws JRException
+	{
+		final InputStream jasperInputStream = jasperLoader.getResourceAsStream(resourceName);
+		if (jasperInputStream == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			final JasperReport jasperReport = (JasperReport)JRLoader.loadObject(jasperInputStream);
+
+			// NOTE: we set the property here, before sharing the report instance, because JasperReport's properties map is not thread safe
+			jasperReport.setProperty(reportPathPropertyName, reportPath);
+			return jasperReport;
+		}
+		finally
+		{
+			Closeables.closeQuietly(jasperInputStream);
+		}
+	}
+
+	/**
+	 * @return the resource's last modification timestamp or <code>0</code> if it's not known
+	 */
+	private static long getLastModified(final URL resourceURL)
+	{
+		if (JasperClassLoader.isJarInJarURL(resourceURL))
+		{
+			return 0; // our VFS can't handle those; anyways, they don't change while the server runs
+		}
+
+		FileObject file = null;
+		try
+		{
+			file = VFS.getManager().resolveFile(resourceURL.toString());
+			return file.getContent().getLastModifiedTime();
+		}
+		catch (final Exception e)
+		{
+			logger.debug("Failed fetching the last modified time of {}. Assuming it's not known.", resourceURL, e);
+			return 0;
+		}
+		finally
+		{
+			if (file != null)
+			{
+				try
+				{
+					file.close();
+				}
+				catch (final Exception e)
+				{
+					logger.debug("Failed closing {}", file, e);
+				}
+			}
+		}
+	}
+
+	public int size()
+	{
+		return jasperReportsByKey.size();
+	}
+
+	public void reset()
+	{
+		jasperReportsByKey.reset();
+	}
+}
@@ -25,7 +25,6 @@ import java.io.IOException;
  * #L%
  */
 
-import java.io.InputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.sql.Connection;
@@ -63,7 +62,8 @@ import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.JasperReport;
 import net.sf.jasperreports.engine.export.JRXlsAbstractExporterParameter;
-import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
 import net.sf.jasperreports.export.XlsReportConfiguration;
 
 public class JasperEngine extends AbstractReportEngine
@@ -87,24 +87,62 @@ public class JasperEngine extends AbstractReportEngine
 	 */
 	private static final String PARAM_OUTPUTTYPE = "OUTPUTTYPE";
 
+	/**
+	 * Number of report pages which are kept in memory while filling. If the report has more pages, the others are swapped to disk.
+	 * Zero or negative means that all pages are kept in memory.
+	 */
+	private static final String SYSCONFIG_SwapFileVirtualizer_MaxPagesInMemory = "de.metas.report.jasper.server.SwapFileVirtualizer.MaxPagesInMemory";
+	private static final int DEFAULT_SwapFileVirtualizer_MaxPagesInMemory = 0;
+	/** Directory where the swap files are created. If not set, the system's temporary directory is used */
+	private static final String SYSCONFIG_SwapFileVirtualizer_Directory = "de.metas.report.jasper.server.SwapFileVirtualizer.Directory";
+	private static final int SwapFile_BlockSize = 4096;
+	private static final int SwapFile_MinGrowCount = 100;
+
 	// services
 	private final transient Logger log = LogManager.getLogger(getClass());
 
 	@Override
 	public void report(final ReportContext reportContext, final OutputStream out)
 	{
+		final JRSwapFileVirtualizer virtualizer = createVirtualizerOrNull();
 		try
 		{
-			final JasperPrint jasperPrint = createJasperPrint(reportContext);
+			final JasperPrint jasperPrint = createJasperPrint(reportContext, virtualizer);
 			createOutput(out, jasperPrint, reportContext.getOutputType());
 		}
 		catch (Exception e)
 		{
 			throw AdempiereException.wrapIfNeeded(e);
 		}
+		finally
+		{
+			if (virtualizer != null)
+			{
+				// delete the swap file
+				virtualizer.cleanup();
+			}
+		}
 
 	}
 
+	/**
+	 * @return swap file virtualizer or <code>null</code> if all report pages shall be kept in memory
+	 * @see #SYSCONFIG_SwapFileVirtualizer_MaxPagesInMemory
+	 */
+	private final JRSwapFileVirtualizer createVirtualizerOrNull()
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int maxPagesInMemory = sysConfigBL.getIntValue(SYSCONFIG_SwapFileVirtualizer_MaxPagesInMemory, DEFAULT_SwapFileVirtualizer_MaxPagesInMemory);
+		if (maxPagesInMemory <= 0)
+		{
+			return null;
+		}
+
+		final String swapDirectory = sysConfigBL.getValue(SYSCONFIG_SwapFileVirtualizer_Directory, System.getProperty("java.io.tmpdir"));
+		final JRSwapFile swapFile = new JRSwapFile(swapDirectory, SwapFile_BlockSize, SwapFile_MinGrowCount);
+		return new JRSwapFileVirtualizer(maxPagesInMemory, swapFile, true); // swapOwner=true => the swap file is disposed on cleanup
+	}
+
 	/**
 	 * Retrieves the server's direct database connection.
 	 *
@@ -115,7 +153,7 @@ public class JasperEngine extends AbstractReportEngine
 		return DB.getConnectionRW();
 	}
 
-	private JasperPrint createJasperPrint(final ReportContext reportContext) throws JRException
+	private JasperPrint createJasperPrint(final ReportContext reportContext, final JRSwapFileVirtualizer virtualizer) throws JRException
 	{
 		log.info("{}", reportContext);
 
@@ -126,6 +164,10 @@ public class JasperEngine extends AbstractReportEngine
 		final ClassLoader jasperLoader = createReportClassLoader(reportContext);
 
 		final Map<String, Object> jrParameters = createJRParameters(reportContext);
+		if (virtualizer != null)
+		{
+			jrParameters.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+		}
 		final JasperReport jasperReport = createJasperReport(ctx, reportContext.getAD_Process_ID(), jrParameters, jasperLoader);
 
 		Connection conn = null;
@@ -154,6 +196,11 @@ public class JasperEngine extends AbstractReportEngine
 			//
 			// Fill the report
 			final JasperPrint jasperPrint = ADJasperFiller.getInstance().fillReport(jasperReport, jrParameters, jasperConn, jasperLoader);
+			if (virtualizer != null)
+			{
+				// no more changes to the swapped pages; they are only read from now on, while exporting
+				virtualizer.setReadOnly(true);
+			}
 			return jasperPrint;
 		}
 		finally
@@ -166,33 +213,31 @@ public class JasperEngine extends AbstractReportEngine
 	private final JasperReport createJasperReport(final Properties ctx, final int adProcessId, final Map<String, Object> jrParameters, final ClassLoader jasperLoader) throws JRException
 	{
 		final String reportPath = getReportPath(adProcessId, jrParameters);
-		final InputStream jasperInputStream;
+		final String resourceName;
 		if (reportPath.startsWith("resource:"))
 		{
 			// load the jasper file(s) using an ordinary class loader.
-			final String name = reportPath.substring("resource:".length()).trim();
+			resourceName = reportPath.substring("resource:".length()).trim();
 			log.info("reportPath = " + reportPath);
-			log.info("getting resource from = " + jasperLoader.getResource(name));
-
-			jasperInputStream = jasperLoader.getResourceAsStream(name);
+			log.info("getting resource from = " + jasperLoader.getResource(resourceName));
 		}
 		else
 		{
-			jasperInputStream = jasperLoader.getResourceAsStream(reportPath);
+			resourceName = reportPath;
 			jrParameters.put(JRParameter.REPORT_CLASS_LOADER, jasperLoader);
 		}
 
-		// Make sure the jasper input stream is not null
-		if (jasperInputStream == null)
+		//
+		// Get the jasper report from cache or load it from stream
+		final JasperReport jasperReport = JasperCompiledReportsCache.getInstance().getJasperReport(reportPath, resourceName, jasperLoader, JRPROPERTY_ReportPath);
+
+		// Make sure the jasper report was found
+		if (jasperReport == null)
 		{
 			// TODO ->A AD_Message
 			throw new AdempiereException("Berichtsdatei '" + reportPath + "' konnte nicht geöffnet werden");
 		}
 
-		//
-		// Load the jasper report from stream
-		final JasperReport jasperReport = (JasperReport)JRLoader.loadObject(jasperInputStream);
-
 		//
 		// Load report's resource bundles, if any.
 		// NOTE: we need to load them here because jasper engine is not using our "jasperLoader" to load the bundles, but the thread context one.
@@ -203,8 +248,6 @@ public class JasperEngine extends AbstractReportEngine
 			loadJasperReportResourceBundle(resourceBundleName, jrParameters, jasperLoader);
 		}
 
-		jasperReport.setProperty(JRPROPERTY_ReportPath, reportPath);
-
 		return jasperReport;
 	}
 
@@ -0,0 +1,88 @@
+package de.metas.adempiere.report.jasper;
+
+/*
+ * #%L
+ * de.metas.report.jasper.server.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Fill statistics of one jasper report.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+/* package */final class JasperFillStatistics
+{
+	private final String reportName;
+
+	private final AtomicLong fillCount = new AtomicLong();
+	private final AtomicLong errorCount = new AtomicLong();
+	private final AtomicLong pagesCount = new AtomicLong();
+	private final AtomicLong fillMillisTotal = new AtomicLong();
+	private final AtomicLong fillMillisMax = new AtomicLong();
+	private final AtomicLong waitMillisTotal = new AtomicLong();
+
+	public JasperFillStatistics(final String reportName)
+	{
+		super();
+		this.reportName = reportName;
+	}
+
+	@Override
+	public String toString()
+	{
+		final long fillCount = this.fillCount.get();
+		return MoreObjects.toStringHelper(this)
+				.add("reportName", reportName)
+				.add("fillCount", fillCount)
+				.add("errorCount", errorCount.get())
+				.add("pages", pagesCount.get())
+				.add("fillMillisAvg", fillCount > 0 ? fillMillisTotal.get() / fillCount : 0)
+				.add("fillMillisMax", fillMillisMax.get())
+				.add("waitMillisAvg", fillCount > 0 ? waitMillisTotal.get() / fillCount : 0)
+				.toString();
+	}
+
+	public String getReportName()
+	{
+		return reportName;
+	}
+
+	public void recordFill(final long waitMillis, final long fillMillis, final int pages)
+	{
+		fillCount.incrementAndGet();
+		pagesCount.addAndGet(pages);
+		waitMillisTotal.addAndGet(waitMillis);
+		fillMillisTotal.addAndGet(fillMillis);
+		fillMillisMax.accumulateAndGet(fillMillis, Math::max);
+	}
+
+	public void recordError(final long waitMillis, final long fillMillis)
+	{
+		fillCount.incrementAndGet();
+		errorCount.incrementAndGet();
+		waitMillisTotal.addAndGet(waitMillis);
+		fillMillisTotal.addAndGet(fillMillis);
+	}
+}
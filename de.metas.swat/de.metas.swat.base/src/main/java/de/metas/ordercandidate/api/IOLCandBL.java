@@ -24,6 +24,7 @@ package de.metas.ordercandidate.api;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.util.List;
 import java.util.Properties;
 
 import org.adempiere.pricing.api.IPricingResult;
@@ -48,6 +49,9 @@ public interface IOLCandBL extends ISingletonService
 
 	/**
 	 * Creates and updates orders.
+	 * <p>
+	 * The processor's candidates are grouped by the order they will end up in. Unless disabled by sysconfig, each group is then enqueued to its own workpackage,
+	 * so that the orders are created in parallel, after the given transaction was committed. See {@link #processOrderGroup(Properties, I_C_OLCandProcessor, List, String)}.
 	 *
 	 * @param ctx
 	 * @param processor
@@ -56,6 +60,19 @@ public interface IOLCandBL extends ISingletonService
 	 */
 	void process(Properties ctx, I_C_OLCandProcessor processor, ILoggable process, String trxName);
 
+	/**
+	 * Creates and completes one order from the given candidates. The candidates are supposed to end up in the same order, like the candidates which are enqueued by
+	 * {@link #process(Properties, I_C_OLCandProcessor, ILoggable, String)}.
+	 * <p>
+	 * Candidates which were processed or flagged with an error in the meantime are skipped.
+	 *
+	 * @param ctx
+	 * @param processor
+	 * @param candidates
+	 * @param trxName
+	 */
+	void processOrderGroup(Properties ctx, I_C_OLCandProcessor processor, List<I_C_OLCand> candidates, String trxName);
+
 	String mkRelationTypeInternalName(I_C_OLCandProcessor processor);
 
 	/**
@@ -23,6 +23,7 @@ package de.metas.ordercandidate.api;
  */
 
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 
@@ -84,4 +85,13 @@ public interface IOLCandDAO extends ISingletonService
 	List<I_C_OLCandGenerator> retrieveOlCandCreatorForOrg(Properties ctx, int adOrgId);
 
 	List<I_C_OLCandAggAndOrder> retrieveOLCandAggAndOrderForProcessor(Properties ctx, I_C_OLCandProcessor processor, String trxName);
+
+	/**
+	 * Sets <code>Processed='Y'</code> for the given order candidates, using one SQL update.
+	 * <p>
+	 * Note that no model interceptors are fired.
+	 *
+	 * @return how many candidates were updated
+	 */
+	int markProcessed(Properties ctx, Collection<Integer> olCandIds, String trxName);
 }
@@ -26,14 +26,14 @@ import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
@@ -52,6 +52,7 @@ import org.adempiere.pricing.api.IEditablePricingContext;
 import org.adempiere.pricing.api.IPricingBL;
 import org.adempiere.pricing.api.IPricingResult;
 import org.adempiere.pricing.exceptions.ProductNotOnPriceListException;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.user.api.IUserDAO;
 import org.adempiere.util.Check;
 import org.adempiere.util.ILoggable;
@@ -87,11 +88,13 @@ import de.metas.currency.ICurrencyDAO;
 import de.metas.impex.api.IInputDataSourceDAO;
 import de.metas.impex.model.I_AD_InputDataSource;
 import de.metas.interfaces.I_C_OrderLine;
+import de.metas.lock.api.ILockManager;
 import de.metas.logging.LogManager;
 import de.metas.ordercandidate.OrderCandidate_Constants;
 import de.metas.ordercandidate.api.IOLCandBL;
 import de.metas.ordercandidate.api.IOLCandDAO;
 import de.metas.ordercandidate.api.IOLCandEffectiveValuesBL;
+import de.metas.ordercandidate.async.ProcessOLCandsWorkpackageProcessor;
 import de.metas.ordercandidate.model.I_C_OLCand;
 import de.metas.ordercandidate.model.I_C_OLCandAggAndOrder;
 import de.metas.ordercandidate.model.I_C_OLCandGenerator;
@@ -116,6 +119,12 @@ public class OLCandBL implements IOLCandBL
 	private static final String MSG_OL_CAND_PROCESSOR_ORDER_COMPLETION_FAILED_2P = "OLCandProcessor.Order_Completion_Failed";
 	private static final String MSG_OL_CAND_PROCESSOR_PROCESSING_ERROR_DESC_1P = "OLCandProcessor.ProcessingError_Desc";
 
+	/**
+	 * If <code>true</code>, {@link #process(Properties, I_C_OLCandProcessor, ILoggable, String)} enqueues one {@link ProcessOLCandsWorkpackageProcessor} workpackage per order,
+	 * so that the orders are created in parallel. Else the orders are created one after the other, by the caller.
+	 */
+	private static final String SYSCONFIG_ProcessOrderGroupsAsync = "de.metas.ordercandidate.api.impl.OLCandBL.ProcessOrderGroupsAsync";
+
 	private final List<IOLCandListener> olCandListeners = new ArrayList<IOLCandListener>();
 
 	private final List<IOLCandGroupingProvider> groupingValuesProviders = new ArrayList<IOLCandGroupingProvider>();
@@ -154,38 +163,81 @@ public class OLCandBL implements IOLCandBL
 			return;
 		}
 
-		final List<I_C_OLCand> candidates = filterProcessedAndError(orderCandidates);
+		final List<I_C_OLCand> candidates = filterLocked(processor, filterProcessedAndError(orderCandidates));
 
 		if (candidates.isEmpty())
 		{
-			loggable.addLog("Found no unprocessed and valid candidates; nothing to do");
+			loggable.addLog("Found no unprocessed, valid and not enqueued candidates; nothing to do");
 			return;
 		}
 
 		loggable.addLog("Processing {} order line candidates", candidates.size());
 
 		//
-		// 2. Order the candidates
+		// 2. Order the candidates and group them by the order they will end up in
 		final List<I_C_OLCandAggAndOrder> aggAndOrderList = Services.get(IOLCandDAO.class).retrieveOLCandAggAndOrderForProcessor(ctx, processor, trxName);
 		Collections.sort(candidates, mkComparator(processor, aggAndOrderList));
 
+		final Collection<List<I_C_OLCand>> orderGroups = groupByOrder(processor, candidates, aggAndOrderList).values();
+
 		//
-		// 3. compute a grouping key for each candidate and group them according to their key
-		final Map<Integer, ArrayKey> toProcess = new HashMap<Integer, ArrayKey>();
-		final Map<ArrayKey, List<I_C_OLCand>> grouping = new HashMap<ArrayKey, List<I_C_OLCand>>();
+		// 3. create orders and order lines, either in parallel workpackages or right here
+		if (Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_ProcessOrderGroupsAsync, true, processor.getAD_Client_ID()))
+		{
+			final int countWorkpackages = ProcessOLCandsWorkpackageProcessor.enqueue(ctx, processor, orderGroups, trxName);
+			loggable.addLog("Enqueued {} candidates in {} workpackages, one for each order", candidates.size(), countWorkpackages);
+			return;
+		}
 
-		for (final I_C_OLCand candidate : candidates)
+		for (final List<I_C_OLCand> orderGroup : orderGroups)
 		{
-			if (candidate.isProcessed())
-			{
-				continue; // ts: I don't see a need for this check, but let's keep it until we covered this by ait
-			}
+			processOrderGroup(ctx, processor, orderGroup, aggAndOrderList, process, trxName);
+		}
+	}
+
+	@Override
+	public void processOrderGroup(
+			final Properties ctx,
+			final I_C_OLCandProcessor processor,
+			final List<I_C_OLCand> candidates,
+			final String trxName)
+	{
+		final List<I_C_OLCand> candidatesToProcess = filterProcessedAndError(candidates);
+		if (candidatesToProcess.isEmpty())
+		{
+			Loggables.get().addLog("Found no unprocessed and valid candidates among {}; nothing to do", candidates);
+			return;
+		}
+
+		final List<I_C_OLCandAggAndOrder> aggAndOrderList = Services.get(IOLCandDAO.class).retrieveOLCandAggAndOrderForProcessor(ctx, processor, trxName);
+		Collections.sort(candidatesToProcess, mkComparator(processor, aggAndOrderList));
 
-			//
-			// Register grouping key
-			final int olCandId = candidate.getC_OLCand_ID();
+		processOrderGroup(ctx, processor, candidatesToProcess, aggAndOrderList, Loggables.get(), trxName);
+	}
+
+	/**
+	 * Creates and completes one order from the given (sorted) candidates, which are all in the same order group (see {@link #mkOrderGroupingKey(I_C_OLCandProcessor, I_C_OLCand, List)}).
+	 * <p>
+	 * The order lines and their <code>C_Order_Line_Alloc</code>s are saved as models, because there are model interceptors and listeners for them.
+	 * The candidates however are flagged as processed with one SQL update (see {@link IOLCandDAO#markProcessed(Properties, Collection, String)}), so the <code>C_OLCand</code> model interceptors are not fired for this change.
+	 * The given candidate instances are flagged as processed too, but they are not saved.
+	 * <p>
+	 * Package-private and split into package-private steps for testing.
+	 */
+	/* package */void processOrderGroup(
+			final Properties ctx,
+			final I_C_OLCandProcessor processor,
+			final List<I_C_OLCand> candidates,
+			final List<I_C_OLCandAggAndOrder> aggAndOrderList,
+			final ILoggable process,
+			final String trxName)
+	{
+		//
+		// compute a grouping key for each candidate and group them according to their key, i.e. by order line
+		final Map<ArrayKey, List<I_C_OLCand>> grouping = new LinkedHashMap<>();
+		for (final I_C_OLCand candidate : candidates)
+		{
 			final ArrayKey groupingKey = mkGroupingKey(processor, candidate, aggAndOrderList);
-			toProcess.put(olCandId, groupingKey);
 
 			List<I_C_OLCand> groupingVal = grouping.get(groupingKey);
 			if (groupingVal == null)
@@ -197,97 +249,84 @@ public class OLCandBL implements IOLCandBL
 		}
 
 		//
-		// 4. create orders and order lines.
-
-		// 'processedIds' contains the candidates that have already been processed
-		final Set<Integer> processedIds = new HashSet<Integer>();
-
-		MOrder order = null;
-		MOrderLine orderLine = null;
-		final List<MOrderLine> createdOrderLines = new ArrayList<MOrderLine>();
+		// create the order and its order lines
+		final MOrder order = mkNewOrder(ctx, processor, candidates.get(0), trxName);
 
-		// This variable is used to decide if the current candidate differs from the previous one in a way that requires
-		// a new order.
-		I_C_OLCand previousCand = null;
+		final List<I_C_OLCand> processedCandidates = new ArrayList<>();
+		final List<MOrderLine> createdOrderLines = new ArrayList<>(); // same size as 'processedCandidates'
 
-		for (final I_C_OLCand candidate : candidates)
+		for (final List<I_C_OLCand> candidatesOfGroup : grouping.values())
 		{
-			final int olCandId = candidate.getC_OLCand_ID();
-			if (processedIds.contains(olCandId) || candidate.isProcessed())
-			{
-				// 'candidate' has already been processed
-				continue;
-			}
-
-			// get the group of the current unprocessed candidate
-			final ArrayKey groupingKey = toProcess.get(olCandId);
-			for (final I_C_OLCand candOfGroup : grouping.get(groupingKey))
+			MOrderLine orderLine = null;
+			for (final I_C_OLCand candOfGroup : candidatesOfGroup)
 			{
-				if (order == null || isOrderSplit(ctx, candOfGroup, previousCand, aggAndOrderList, processor, trxName))
-				{
-					// complete 'order' if not null and if there have been some order lines created
-					completeOrDeleteOrder(ctx, order, processor, candidates, createdOrderLines, process, trxName);
-
-					// create a new order to work with from this point on
-					order = mkNewOrder(ctx, processor, candOfGroup, trxName);
-					createdOrderLines.clear();
-
-				}
-
 				// 02384
 				try
 				{
-					orderLine = processOLCand(ctx, grouping, order, orderLine, candOfGroup, trxName);
-
-					// 03472: establishing a "real" link with FK-constraints between order candidate and order line
-					createOla(
-							InterfaceWrapperHelper.create(candOfGroup, I_C_OLCand.class),
-							InterfaceWrapperHelper.create(orderLine, I_C_OrderLine.class), processor, candOfGroup.getQty());
+					orderLine = processOLCand(order, orderLine, candOfGroup);
 
+					processedCandidates.add(candOfGroup);
 					createdOrderLines.add(orderLine);
 				}
 				catch (final AdempiereException e)
 				{
-					final String msg = "Caught exception while processing {}; message={}; exception={}";
-					Loggables.get().addLog(msg, candOfGroup, e.getLocalizedMessage(), e);
-					logger.warn(StringUtils.formatMessage(msg, candOfGroup, e.getLocalizedMessage(), e), e);
+					markAsError(ctx, processor, candOfGroup, e);
+				}
+				// 02384 end
+			}
+		}
 
-					final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
-					final IUserDAO userDAO = Services.get(IUserDAO.class);
+		//
+		// 03472: establishing a "real" link with FK-constraints between order candidate and order line.
+		// Note that we do that after all order lines were created, so that the allocations' model interceptors don't interfere with the order lines we are still working on.
+		final List<Integer> processedCandidateIds = new ArrayList<>(processedCandidates.size());
+		for (int i = 0; i < processedCandidates.size(); i++)
+		{
+			final I_C_OLCand processedCandidate = processedCandidates.get(i);
+			createOla(processedCandidate, InterfaceWrapperHelper.create(createdOrderLines.get(i), I_C_OrderLine.class), processor, processedCandidate.getQty());
+			processedCandidateIds.add(processedCandidate.getC_OLCand_ID());
+		}
+		Services.get(IOLCandDAO.class).markProcessed(ctx, processedCandidateIds, trxName);
+		for (final I_C_OLCand processedCandidate : processedCandidates)
+		{
+			// keep the instances in sync with the database, in case they are saved later (e.g. if the order can't be completed)
+			processedCandidate.setProcessed(true);
+		}
 
-					// storing the error-info out of trx, i hope this solves the bug that the info just wasn't there
-					final int userInChargeId = processor.getAD_User_InCharge_ID();
-					final MNote note = new MNote(ctx, IOLCandBL.MSG_OL_CAND_PROCESSOR_PROCESSING_ERROR_0P, userInChargeId, ITrx.TRXNAME_None);
-					note.setRecord(adTableDAO.retrieveTableId(I_C_OLCand.Table_Name), candOfGroup.getC_OLCand_ID());
+		completeOrDeleteOrder(ctx, order, processor, candidates, createdOrderLines, process, trxName);
+	}
 
-					final I_AD_User user = userDAO.retrieveUser(ctx, userInChargeId);
-					note.setClientOrg(user.getAD_Client_ID(), user.getAD_Org_ID());
+	/**
+	 * Flags the given candidate with the given error and creates an <code>AD_Note</code> for the processor's user in charge.
+	 * Both are saved out of transaction, so that they are not lost if the transaction is rolled back.
+	 */
+	/* package */void markAsError(final Properties ctx, final I_C_OLCandProcessor processor, final I_C_OLCand candidate, final AdempiereException e)
+	{
+		final String msg = "Caught exception while processing {}; message={}; exception={}";
+		Loggables.get().addLog(msg, candidate, e.getLocalizedMessage(), e);
+		logger.warn(StringUtils.formatMessage(msg, candidate, e.getLocalizedMessage(), e), e);
 
-					note.setTextMsg(e.getLocalizedMessage());
-					note.saveEx();
+		final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
+		final IUserDAO userDAO = Services.get(IUserDAO.class);
 
-					candOfGroup.setIsError(true);
-					candOfGroup.setErrorMsg(e.getLocalizedMessage());
-					candOfGroup.setAD_Note_ID(note.getAD_Note_ID());
-					InterfaceWrapperHelper.save(candOfGroup, ITrx.TRXNAME_None);
-				}
-				// 02384 end
+		// storing the error-info out of trx, i hope this solves the bug that the info just wasn't there
+		final int userInChargeId = processor.getAD_User_InCharge_ID();
+		final MNote note = new MNote(ctx, IOLCandBL.MSG_OL_CAND_PROCESSOR_PROCESSING_ERROR_0P, userInChargeId, ITrx.TRXNAME_None);
+		note.setRecord(adTableDAO.retrieveTableId(I_C_OLCand.Table_Name), candidate.getC_OLCand_ID());
 
-				Check.assume(candOfGroup == candidate || !processedIds.contains(candOfGroup.getC_OLCand_ID()),
-						candOfGroup + " of grouping " + grouping + " is not processed twice");
-				Check.assume(processedIds.add(candOfGroup.getC_OLCand_ID()),
-						candOfGroup + " of grouping " + grouping + " is not processed twice");
+		final I_AD_User user = userDAO.retrieveUser(ctx, userInChargeId);
+		note.setClientOrg(user.getAD_Client_ID(), user.getAD_Org_ID());
 
-				previousCand = candOfGroup;
-			}
-			orderLine = null;
-		}
+		note.setTextMsg(e.getLocalizedMessage());
+		note.saveEx();
 
-		completeOrDeleteOrder(ctx, order, processor, candidates, createdOrderLines, process, trxName);
-		Check.assume(processedIds.size() == candidates.size(), "All candidates have been processed");
+		candidate.setIsError(true);
+		candidate.setErrorMsg(e.getLocalizedMessage());
+		candidate.setAD_Note_ID(note.getAD_Note_ID());
+		InterfaceWrapperHelper.save(candidate, ITrx.TRXNAME_None);
 	}
 
-	private void completeOrDeleteOrder(
+	/* package */void completeOrDeleteOrder(
 			final Properties ctx,
 			final MOrder order,
 			final I_C_OLCandProcessor processor,
@@ -365,24 +404,20 @@ public class OLCandBL implements IOLCandBL
 		}
 	}
 
-	private MOrderLine processOLCand(
-			final Properties ctx,
-			final Map<ArrayKey, List<I_C_OLCand>> grouping,
+	/**
+	 * Adds the given candidate to the given order line, or to a new order line if <code>currentOrderLine</code> is <code>null</code>, and saves the order line.
+	 * <p>
+	 * Note that the candidate itself is not changed; the caller has to flag it as processed.
+	 */
+	/* package */MOrderLine processOLCand(
 			final MOrder order,
 			final MOrderLine currentOrderLine,
-			final I_C_OLCand candToProcess,
-			final String trxName)
+			final I_C_OLCand candToProcess)
 	{
 		final MOrderLine resultOrderLinePO;
 
-		if (currentOrderLine == null || currentOrderLine.getC_Order_ID() != order.get_ID())
+		if (currentOrderLine == null)
 		{
-			// 'orderLine' belongs to an "old" order - see isOrderSplit(). Create a new one.
-			if (currentOrderLine != null)
-			{
-				currentOrderLine.saveEx();
-			}
-
 			resultOrderLinePO = new MOrderLine(order);
 
 			if (candToProcess.getC_Charge_ID() > 0)
@@ -458,9 +493,6 @@ public class OLCandBL implements IOLCandBL
 
 		InterfaceWrapperHelper.save(resultOrderLine);
 
-		candToProcess.setProcessed(true);
-		InterfaceWrapperHelper.save(candToProcess);
-
 		return resultOrderLinePO;
 	}
 
@@ -485,7 +517,7 @@ public class OLCandBL implements IOLCandBL
 		}
 	}
 
-	private MOrder mkNewOrder(
+	/* package */MOrder mkNewOrder(
 			final Properties ctx,
 			final I_C_OLCandProcessor processor,
 			final I_C_OLCand olCand,
@@ -601,51 +633,67 @@ public class OLCandBL implements IOLCandBL
 	}
 
 	/**
-	 * Decides if there needs to be a new order for 'candidate'.
-	 *
-	 * @param candidate
-	 * @param previousCandidate
-	 * @param aggAndOrderList
-	 * @return <code>true</code> if either
-	 *         <ul>
-	 *         <li>'candidate' and 'previousCandidate' differ in one of C_BPartnert_ID, C_BPartner_Location_ID, AD_User_ID, AD_Org_ID or any other value that is set to the C_Order record</li>
-	 *         <li>if the pricing system used for 'candidate' and 'previousCandidate' differ, see {@link #getPricingSystemId(Properties, I_C_OLCand, I_C_OLCandProcessor, String)}</li>
-	 *         <li>'aggAndOrderList' contains a record with isSplitOrder='Y' and 'candidate' differs from 'previousCandidate' in the particular value specified by AD_Column_OLCand_ID.</li>
-	 *         </ul>
+	 * Groups the given candidates by the order they will end up in (see {@link #mkOrderGroupingKey(I_C_OLCandProcessor, I_C_OLCand, List)}).
+	 * Each group's candidates and the groups themselves are in the same sequence as the given candidates.
 	 */
-	private boolean isOrderSplit(
-			final Properties ctx,
-			final I_C_OLCand candidate,
-			final I_C_OLCand previousCandidate,
-			final List<I_C_OLCandAggAndOrder> aggAndOrderList,
+	/* package */Map<ArrayKey, List<I_C_OLCand>> groupByOrder(
 			final I_C_OLCandProcessor processor,
-			final String trxName)
+			final List<I_C_OLCand> candidates,
+			final List<I_C_OLCandAggAndOrder> aggAndOrderList)
 	{
-		Check.assumeNotNull(previousCandidate, "Param 'previousCandidate' != null");
+		final Map<ArrayKey, List<I_C_OLCand>> orderGroups = new LinkedHashMap<>();
+		for (final I_C_OLCand candidate : candidates)
+		{
+			final ArrayKey orderGroupingKey = mkOrderGroupingKey(processor, candidate, aggAndOrderList);
+
+			List<I_C_OLCand> orderGroup = orderGroups.get(orderGroupingKey);
+			if (orderGroup == null)
+			{
+				orderGroup = new ArrayList<>();
+				orderGroups.put(orderGroupingKey, orderGroup);
+			}
+			orderGroup.add(candidate);
+		}
+		return orderGroups;
+	}
 
+	/**
+	 * Computes the key of the order which the given candidate will end up in. Two candidates end up in different orders if
+	 * <ul>
+	 * <li>they differ in one of C_BPartnert_ID, C_BPartner_Location_ID, AD_User_ID, AD_Org_ID or any other value that is set to the C_Order record</li>
+	 * <li>the pricing systems used for them differ, see {@link #getPricingSystemId(Properties, I_C_OLCand, I_C_OLCandProcessor, String)}</li>
+	 * <li>'aggAndOrderList' contains a record with isSplitOrder='Y' and they differ in the particular value specified by AD_Column_OLCand_ID.</li>
+	 * </ul>
+	 */
+	private ArrayKey mkOrderGroupingKey(
+			final I_C_OLCandProcessor processor,
+			final I_C_OLCand candidate,
+			final List<I_C_OLCandAggAndOrder> aggAndOrderList)
+	{
 		final IOLCandEffectiveValuesBL effectiveValuesBL = Services.get(IOLCandEffectiveValuesBL.class);
 
+		final Properties ctx = InterfaceWrapperHelper.getCtx(candidate);
+		final String trxName = InterfaceWrapperHelper.getTrxName(candidate);
+
 		// We keep this block for the time being because as of now we did not make sure that the aggAndOrderList is complete to ensure that all
 		// C_OLCands with different C_Order-"header"-columns will be split into different orders (think of e.g. C_OLCands with different currencies).
-		if (previousCandidate.getAD_Org_ID() != candidate.getAD_Org_ID()
-				|| !Objects.equals(previousCandidate.getPOReference(), candidate.getPOReference())
-				|| previousCandidate.getC_Currency_ID() != candidate.getC_Currency_ID()
-				|| effectiveValuesBL.getC_BPartner_Effective_ID(previousCandidate) != effectiveValuesBL.getC_BPartner_Effective_ID(candidate)
-				|| effectiveValuesBL.getC_BP_Location_Effective_ID(previousCandidate) != effectiveValuesBL.getC_BP_Location_Effective_ID(candidate)
-				|| effectiveValuesBL.getAD_User_Effective_ID(previousCandidate) != effectiveValuesBL.getAD_User_Effective_ID(candidate)
-				|| effectiveValuesBL.getBill_BPartner_Effective_ID(previousCandidate) != effectiveValuesBL.getBill_BPartner_Effective_ID(candidate)
-				|| effectiveValuesBL.getBill_Location_Effective_ID(previousCandidate) != effectiveValuesBL.getBill_Location_Effective_ID(candidate)
-				|| effectiveValuesBL.getBill_User_Effective_ID(previousCandidate) != effectiveValuesBL.getBill_User_Effective_ID(candidate)
-				// task 06269: note that for now we set DatePromised only in the header, so different DatePromised values result in different orders, and all ols have the same DatePromised
-				|| !Objects.equals(effectiveValuesBL.getDatePromised_Effective(previousCandidate), effectiveValuesBL.getDatePromised_Effective(candidate))
-				|| !Objects.equals(effectiveValuesBL.getHandOver_Partner_Effective_ID(previousCandidate), effectiveValuesBL.getHandOver_Partner_Effective_ID(candidate))
-				|| !Objects.equals(effectiveValuesBL.getHandOver_Location_Effective_ID(previousCandidate), effectiveValuesBL.getHandOver_Location_Effective_ID(candidate))
-				|| !Objects.equals(effectiveValuesBL.getDropShip_BPartner_Effective_ID(previousCandidate), effectiveValuesBL.getDropShip_BPartner_Effective_ID(candidate))
-				|| !Objects.equals(effectiveValuesBL.getDropShip_Location_Effective_ID(previousCandidate), effectiveValuesBL.getDropShip_Location_Effective_ID(candidate))
-				|| getPricingSystemId(ctx, previousCandidate, processor, trxName) != getPricingSystemId(ctx, candidate, processor, trxName))
-		{
-			return true;
-		}
+		final List<Object> groupingValues = new ArrayList<>();
+		groupingValues.add(candidate.getAD_Org_ID());
+		groupingValues.add(candidate.getPOReference());
+		groupingValues.add(candidate.getC_Currency_ID());
+		groupingValues.add(effectiveValuesBL.getC_BPartner_Effective_ID(candidate));
+		groupingValues.add(effectiveValuesBL.getC_BP_Location_Effective_ID(candidate));
+		groupingValues.add(effectiveValuesBL.getAD_User_Effective_ID(candidate));
+		groupingValues.add(effectiveValuesBL.getBill_BPartner_Effective_ID(candidate));
+		groupingValues.add(effectiveValuesBL.getBill_Location_Effective_ID(candidate));
+		groupingValues.add(effectiveValuesBL.getBill_User_Effective_ID(candidate));
+		// task 06269: note that for now we set DatePromised only in the header, so different DatePromised values result in different orders, and all ols have the same DatePromised
+		groupingValues.add(effectiveValuesBL.getDatePromised_Effective(candidate));
+		groupingValues.add(effectiveValuesBL.getHandOver_Partner_Effective_ID(candidate));
+		groupingValues.add(effectiveValuesBL.getHandOver_Location_Effective_ID(candidate));
+		groupingValues.add(effectiveValuesBL.getDropShip_BPartner_Effective_ID(candidate));
+		groupingValues.add(effectiveValuesBL.getDropShip_Location_Effective_ID(candidate));
+		groupingValues.add(getPricingSystemId(ctx, candidate, processor, trxName));
 
 		for (final I_C_OLCandAggAndOrder aggAndOrder : aggAndOrderList)
 		{
@@ -653,17 +701,10 @@ public class OLCandBL implements IOLCandBL
 			{
 				continue;
 			}
-
-			final Object value = getValueByColumnId(processor, candidate, aggAndOrder);
-			final Object previousValue = getValueByColumnId(processor, previousCandidate, aggAndOrder);
-			if (!Objects.equals(value, previousValue))
-			{
-				return true;
-			}
+			groupingValues.add(getValueByColumnId(processor, candidate, aggAndOrder));
 		}
 
-		// between 'candidate' and 'previousCandidate' there are no differences that require a new order to be created
-		return false;
+		return Util.mkKey(groupingValues.toArray());
 	}
 
 	/**
@@ -927,6 +968,33 @@ public class OLCandBL implements IOLCandBL
 		return result;
 	}
 
+	/**
+	 * Returns a list containing only those input candidates which are not locked, i.e. which are not already enqueued for processing.
+	 */
+	private List<I_C_OLCand> filterLocked(final I_C_OLCandProcessor processor, final List<I_C_OLCand> all)
+	{
+		final Set<Integer> lockedIds = new HashSet<>(Services.get(ILockManager.class)
+				.getLockedRecordsQueryBuilder(I_C_OLCand.class, processor)
+				.create()
+				.listIds());
+		if (lockedIds.isEmpty())
+		{
+			return all;
+		}
+
+		final List<I_C_OLCand> result = new ArrayList<I_C_OLCand>();
+		for (final I_C_OLCand cand : all)
+		{
+			if (lockedIds.contains(cand.getC_OLCand_ID()))
+			{
+				logger.debug("Skipping C_OLCand which is locked; cand={}", cand);
+				continue;
+			}
+			result.add(cand);
+		}
+		return result;
+	}
+
 	/**
 	 * Returns a list containing only those input candidates which have no error and {@link I_C_OLCand#COLUMNNAME_AD_DataDestination_ID} pointing to {@link OrderCandidate_Constants#DATA_DESTINATION_INTERNAL_NAME}.
 	 *
@@ -1210,7 +1278,7 @@ public class OLCandBL implements IOLCandBL
 	// Between C_OL_Cand and C_OrderLine I think we have an explicit AD_Relation. It should be replaced with a table
 	// similar to C_Invoice_Line_Alloc, so that it is more transparent and we can define decent FK constraints. (and in
 	// future we can have m:n if we want to)
-	private void createOla(
+	/* package */void createOla(
 			final I_C_OLCand orderCand,
 			final I_C_OrderLine orderLine,
 			final I_C_OLCandProcessor processor,
@@ -23,9 +23,11 @@ package de.metas.ordercandidate.api.impl;
  */
 
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 
+import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.table.api.IADTableDAO;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.Check;
@@ -163,4 +165,20 @@ public class OLCandDAO extends AbstractOLCandDAO
 				.setOrderBy(I_C_OLCandAggAndOrder.COLUMNNAME_OrderBySeqNo)
 				.list(I_C_OLCandAggAndOrder.class);
 	}
+
+	@Override
+	public int markProcessed(final Properties ctx, final Collection<Integer> olCandIds, final String trxName)
+	{
+		if (olCandIds.isEmpty())
+		{
+			return 0;
+		}
+
+		return Services.get(IQueryBL.class).createQueryBuilder(I_C_OLCand.class, ctx, trxName)
+				.addInArrayFilter(I_C_OLCand.COLUMNNAME_C_OLCand_ID, olCandIds)
+				.create()
+				.updateDirectly()
+				.addSetColumnValue(I_C_OLCand.COLUMNNAME_Processed, true)
+				.execute();
+	}
 }
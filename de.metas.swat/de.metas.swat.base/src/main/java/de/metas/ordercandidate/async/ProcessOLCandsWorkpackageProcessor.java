@@ -0,0 +1,113 @@
+package de.metas.ordercandidate.async;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+
+import de.metas.async.api.IWorkPackageBlockBuilder;
+import de.metas.async.model.I_C_Queue_WorkPackage;
+import de.metas.async.processor.IWorkPackageQueueFactory;
+import de.metas.async.spi.WorkpackageProcessorAdapter;
+import de.metas.lock.api.ILockManager;
+import de.metas.lock.api.LockOwner;
+import de.metas.ordercandidate.api.IOLCandBL;
+import de.metas.ordercandidate.model.I_C_OLCand;
+import de.metas.ordercandidate.model.I_C_OLCandProcessor;
+
+/**
+ * Creates one order from the order candidates which were enqueued as workpackage elements, using {@link IOLCandBL#processOrderGroup(Properties, I_C_OLCandProcessor, List, String)}.
+ * <p>
+ * There is one workpackage per order, so the orders of a big candidate set are created in parallel. The enqueued candidates stay locked until their workpackage is processed,
+ * so they are not enqueued again by the next {@link IOLCandBL#process(Properties, I_C_OLCandProcessor, org.adempiere.util.ILoggable, String)} run.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class ProcessOLCandsWorkpackageProcessor extends WorkpackageProcessorAdapter
+{
+	private static final String PARAM_C_OLCandProcessor_ID = I_C_OLCandProcessor.COLUMNNAME_C_OLCandProcessor_ID;
+
+	/**
+	 * Enqueues one workpackage for each of the given order groups. All workpackages are in the same block.
+	 *
+	 * @param orderGroups the candidates of each order, see {@link IOLCandBL#processOrderGroup(Properties, I_C_OLCandProcessor, List, String)}
+	 * @param trxName the workpackages will be ready for processing when this transaction is committed
+	 * @return how many workpackages were enqueued
+	 */
+	public static int enqueue(final Properties ctx,
+			final I_C_OLCandProcessor processor,
+			final Collection<List<I_C_OLCand>> orderGroups,
+			final String trxName)
+	{
+		if (orderGroups.isEmpty())
+		{
+			return 0;
+		}
+
+		final IWorkPackageBlockBuilder blockBuilder = Services.get(IWorkPackageQueueFactory.class)
+				.getQueueForEnqueuing(ctx, ProcessOLCandsWorkpackageProcessor.class)
+				.newBlock()
+				.setContext(ctx);
+
+		final ILockManager lockManager = Services.get(ILockManager.class);
+
+		int countWorkpackages = 0;
+		for (final List<I_C_OLCand> orderGroup : orderGroups)
+		{
+			// one lock owner per workpackage, because each workpackage releases its own lock when it's processed
+			final LockOwner lockOwner = LockOwner.newOwner(ProcessOLCandsWorkpackageProcessor.class.getSimpleName());
+
+			blockBuilder.newWorkpackage()
+					.bindToTrxName(trxName)
+					.setElementsLocker(lockManager.lock()
+							.setOwner(lockOwner)
+							.setAutoCleanup(false))
+					.parameters()
+					.setParameter(PARAM_C_OLCandProcessor_ID, processor.getC_OLCandProcessor_ID())
+					.end()
+					.addElements(orderGroup)
+					.build();
+			countWorkpackages++;
+		}
+
+		return countWorkpackages;
+	}
+
+	@Override
+	public Result processWorkPackage(final I_C_Queue_WorkPackage workpackage, final String localTrxName)
+	{
+		final Properties ctx = InterfaceWrapperHelper.getCtx(workpackage);
+		final int olCandProcessorId = getParameters().getParameterAsInt(PARAM_C_OLCandProcessor_ID);
+		final I_C_OLCandProcessor processor = InterfaceWrapperHelper.create(ctx, olCandProcessorId, I_C_OLCandProcessor.class, localTrxName);
+
+		final List<I_C_OLCand> candidates = retrieveItems(I_C_OLCand.class);
+		Services.get(IOLCandBL.class).processOrderGroup(ctx, processor, candidates, localTrxName);
+
+		return Result.SUCCESS;
+	}
+}
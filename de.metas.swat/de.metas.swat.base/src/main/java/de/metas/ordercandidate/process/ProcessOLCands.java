@@ -17,7 +17,8 @@ import de.metas.process.JavaProcess;
 /**
  * Processes {@link I_C_OLCand}s into {@link I_C_Order}s. Currently, this process is mostly run from <code>AD_Scheduler</code>.
  * <p>
- * The actual work is done by {@link IOLCandBL#process(java.util.Properties, I_C_OLCandProcessor, org.adempiere.util.ILoggable, String)}
+ * The actual work is done by {@link IOLCandBL#process(java.util.Properties, I_C_OLCandProcessor, org.adempiere.util.ILoggable, String)}.
+ * Note that by default, it only enqueues the candidates, and the orders are created asynchronously, after this process committed.
  *
  * @author metas-dev <dev@metasfresh.com>
  *
@@ -0,0 +1,14 @@
+-- 19.10.2016 16:12
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO C_Queue_PackageProcessor (AD_Client_ID,AD_Org_ID,Classname,C_Queue_PackageProcessor_ID,Created,CreatedBy,Description,EntityType,InternalName,IsActive,Updated,UpdatedBy) VALUES (0,0,'de.metas.ordercandidate.async.ProcessOLCandsWorkpackageProcessor',540054,TO_TIMESTAMP('2016-10-19 16:12:09','YYYY-MM-DD HH24:MI:SS'),100,'Creates one order from the enqueued order candidates','de.metas.ordercandidate','ProcessOLCandsWorkpackageProcessor','Y',TO_TIMESTAMP('2016-10-19 16:12:09','YYYY-MM-DD HH24:MI:SS'),100)
+;
+
+-- 19.10.2016 16:12
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO C_Queue_Processor (AD_Client_ID,AD_Org_ID,C_Queue_Processor_ID,Created,CreatedBy,IsActive,KeepAliveTimeMillis,Name,PoolSize,Updated,UpdatedBy) VALUES (0,0,540047,TO_TIMESTAMP('2016-10-19 16:12:35','YYYY-MM-DD HH24:MI:SS'),100,'Y',0,'ProcessOLCandsWorkpackageProcessor',4,TO_TIMESTAMP('2016-10-19 16:12:35','YYYY-MM-DD HH24:MI:SS'),100)
+;
+
+-- 19.10.2016 16:12
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO C_Queue_Processor_Assign (AD_Client_ID,AD_Org_ID,C_Queue_PackageProcessor_ID,C_Queue_Processor_Assign_ID,C_Queue_Processor_ID,Created,CreatedBy,IsActive,Updated,UpdatedBy) VALUES (0,0,540054,540077,540047,TO_TIMESTAMP('2016-10-19 16:12:51','YYYY-MM-DD HH24:MI:SS'),100,'Y',TO_TIMESTAMP('2016-10-19 16:12:51','YYYY-MM-DD HH24:MI:SS'),100)
+;
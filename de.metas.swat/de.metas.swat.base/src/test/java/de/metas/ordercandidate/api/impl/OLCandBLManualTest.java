@@ -0,0 +1,185 @@
+package de.metas.ordercandidate.api.impl;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.Services;
+import org.compiere.Adempiere;
+import org.compiere.util.Env;
+import org.compiere.util.Util.ArrayKey;
+
+import de.metas.ordercandidate.api.IOLCandBL;
+import de.metas.ordercandidate.api.IOLCandDAO;
+import de.metas.ordercandidate.model.I_C_OLCand;
+import de.metas.ordercandidate.model.I_C_OLCandAggAndOrder;
+import de.metas.ordercandidate.model.I_C_OLCandProcessor;
+
+/**
+ * Manual test: creates a synthetic set of order candidates (copies of a template candidate, with a different <code>POReference</code> for each N candidates, so N candidates end up in one order),
+ * groups them by order and creates the orders, with 1 and with M parallel workers (like the order groups' workpackages), and prints the throughput.
+ * <p>
+ * Each worker creates and processes its share of the candidates in its own transaction, which is rolled back, so nothing is actually stored (except the <code>AD_Note</code>s of failed candidates).
+ * <p>
+ * Needs a database (configured like for the swing client). Arguments: C_OLCandProcessor_ID, template C_OLCand_ID, candidates (default 2000), candidates per order (default 20) and workers (default 4).
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class OLCandBLManualTest
+{
+	public static void main(final String[] args) throws Exception
+	{
+		final int olCandProcessorId = Integer.parseInt(args[0]);
+		final int templateOLCandId = Integer.parseInt(args[1]);
+		final int candidates = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+		final int candidatesPerOrder = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+		final int workers = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+
+		Adempiere.startupEnvironment(false);
+
+		final OLCandBLManualTest test = new OLCandBLManualTest(olCandProcessorId, templateOLCandId, candidates, candidatesPerOrder);
+		for (int round = 1; round <= 2; round++) // first round is warming up
+		{
+			test.run(1);
+			test.run(workers);
+		}
+	}
+
+	private final Properties ctx = Env.getCtx();
+	private final OLCandBL olCandBL = (OLCandBL)Services.get(IOLCandBL.class);
+	private final int olCandProcessorId;
+	private final int templateOLCandId;
+	private final int candidates;
+	private final int candidatesPerOrder;
+
+	private OLCandBLManualTest(final int olCandProcessorId, final int templateOLCandId, final int candidates, final int candidatesPerOrder)
+	{
+		super();
+		this.olCandProcessorId = olCandProcessorId;
+		this.templateOLCandId = templateOLCandId;
+		this.candidates = candidates;
+		this.candidatesPerOrder = candidatesPerOrder;
+	}
+
+	private void run(final int workers) throws Exception
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try
+		{
+			final List<Future<long[]>> futures = new ArrayList<>();
+			for (int i = 0; i < workers; i++)
+			{
+				futures.add(executor.submit(new Callable<long[]>()
+				{
+					@Override
+					public long[] call() throws Exception
+					{
+						return createAndProcessAndRollback(candidates / workers);
+					}
+				}));
+			}
+
+			// the workers run in parallel, so the slowest one determines the duration
+			long groupingNanos = 0;
+			long processingNanos = 0;
+			for (final Future<long[]> future : futures)
+			{
+				final long[] nanos = future.get();
+				groupingNanos = Math.max(groupingNanos, nanos[0]);
+				processingNanos = Math.max(processingNanos, nanos[1]);
+			}
+
+			final int processed = candidates / workers * workers;
+			final long processingMillis = Math.max(1, processingNanos / 1000000);
+			System.out.println(workers + " worker(s): grouped " + processed + " candidates in " + groupingNanos / 1000000 + "ms"
+					+ ", created " + processed / candidatesPerOrder + " orders in " + processingMillis + "ms"
+					+ " (" + processed * 1000 / processingMillis + " candidates/s)");
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return nanos needed to group and to process the candidates
+	 */
+	private long[] createAndProcessAndRollback(final int count)
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final String trxName = trxManager.createTrxName(OLCandBLManualTest.class.getSimpleName(), true);
+		final ITrx trx = trxManager.get(trxName, false);
+		try
+		{
+			final Properties ctx = Env.deriveCtx(this.ctx);
+			final I_C_OLCandProcessor processor = InterfaceWrapperHelper.create(ctx, olCandProcessorId, I_C_OLCandProcessor.class, trxName);
+			final List<I_C_OLCand> candidates = createCandidates(ctx, count, trxName);
+
+			final long startNanos = System.nanoTime();
+			final List<I_C_OLCandAggAndOrder> aggAndOrderList = Services.get(IOLCandDAO.class).retrieveOLCandAggAndOrderForProcessor(ctx, processor, trxName);
+			final Map<ArrayKey, List<I_C_OLCand>> orderGroups = olCandBL.groupByOrder(processor, candidates, aggAndOrderList);
+			final long groupedNanos = System.nanoTime();
+
+			for (final List<I_C_OLCand> orderGroup : orderGroups.values())
+			{
+				olCandBL.processOrderGroup(ctx, processor, orderGroup, trxName);
+			}
+
+			return new long[] { groupedNanos - startNanos, System.nanoTime() - groupedNanos };
+		}
+		finally
+		{
+			trx.rollback();
+			trx.close();
+		}
+	}
+
+	private List<I_C_OLCand> createCandidates(final Properties ctx, final int count, final String trxName)
+	{
+		final I_C_OLCand template = InterfaceWrapperHelper.create(ctx, templateOLCandId, I_C_OLCand.class, trxName);
+
+		final List<I_C_OLCand> candidates = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			final I_C_OLCand candidate = InterfaceWrapperHelper.create(ctx, I_C_OLCand.class, trxName);
+			InterfaceWrapperHelper.copyValues(template, candidate);
+			candidate.setPOReference(OLCandBLManualTest.class.getSimpleName() + "-" + i / candidatesPerOrder);
+			candidate.setProcessed(false);
+			candidate.setIsError(false);
+			InterfaceWrapperHelper.save(candidate);
+			candidates.add(candidate);
+		}
+		return candidates;
+	}
+}
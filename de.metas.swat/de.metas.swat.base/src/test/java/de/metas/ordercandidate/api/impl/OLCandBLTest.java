@@ -0,0 +1,297 @@
+package de.metas.ordercandidate.api.impl;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.IContextAware;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.model.PlainContextAware;
+import org.adempiere.util.ILoggable;
+import org.adempiere.util.Loggables;
+import org.compiere.model.I_AD_Column;
+import org.compiere.model.I_C_BPartner;
+import org.compiere.model.MOrder;
+import org.compiere.model.MOrderLine;
+import org.compiere.util.Env;
+import org.compiere.util.TimeUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.metas.interfaces.I_C_OrderLine;
+import de.metas.ordercandidate.AbstractOLCandTestSupport;
+import de.metas.ordercandidate.model.I_C_OLCand;
+import de.metas.ordercandidate.model.I_C_OLCandAggAndOrder;
+import de.metas.ordercandidate.model.I_C_OLCandProcessor;
+
+/**
+ * Tests how {@link OLCandBL} groups the candidates by order and how it processes one such order group.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ */
+public class OLCandBLTest extends AbstractOLCandTestSupport
+{
+	private static final int PRICING_SYSTEM_ID = 10;
+	private static final Timestamp DATE_PROMISED = TimeUtil.getDay(2016, 10, 1);
+
+	private IContextAware context;
+
+	private I_C_OLCandProcessor processor;
+	private I_C_BPartner bpartner1;
+	private I_C_BPartner bpartner2;
+
+	@Override
+	protected void initModelValidators()
+	{
+		// nothing to do: the candidates are set up completely by the tests
+	}
+
+	@Override
+	protected void initDB()
+	{
+		context = new PlainContextAware(Env.getCtx(), ITrx.TRXNAME_None);
+
+		processor = InterfaceWrapperHelper.newInstance(I_C_OLCandProcessor.class, context);
+		processor.setM_PricingSystem_ID(PRICING_SYSTEM_ID);
+		InterfaceWrapperHelper.save(processor);
+
+		bpartner1 = bpartner("G001");
+		bpartner2 = bpartner("G002");
+	}
+
+	@Test
+	public void test_groupByOrder_NotAdjacentCandidates()
+	{
+		final I_C_OLCand cand1 = olCand(bpartner1);
+		final I_C_OLCand cand2 = olCand(bpartner2);
+		final I_C_OLCand cand3 = olCand(bpartner1);
+
+		final List<List<I_C_OLCand>> orderGroups = groupByOrder(Collections.<I_C_OLCandAggAndOrder> emptyList(), cand1, cand2, cand3);
+
+		Assert.assertEquals(2, orderGroups.size());
+		assertSameCandidates(orderGroups.get(0), cand1, cand3);
+		assertSameCandidates(orderGroups.get(1), cand2);
+	}
+
+	@Test
+	public void test_groupByOrder_SplitByHeaderValues()
+	{
+		final I_C_OLCand cand1 = olCand(bpartner1);
+
+		final I_C_OLCand cand2 = olCand(bpartner1);
+		cand2.setPOReference("other POReference");
+		InterfaceWrapperHelper.save(cand2);
+
+		final I_C_OLCand cand3 = olCand(bpartner1);
+		cand3.setDatePromised(TimeUtil.addDays(DATE_PROMISED, 1));
+		InterfaceWrapperHelper.save(cand3);
+
+		final I_C_OLCand cand4 = olCand(bpartner1);
+		cand4.setC_BPartner_Override_ID(bpartner2.getC_BPartner_ID());
+		InterfaceWrapperHelper.save(cand4);
+
+		final I_C_OLCand cand5 = olCand(bpartner1);
+
+		final List<List<I_C_OLCand>> orderGroups = groupByOrder(Collections.<I_C_OLCandAggAndOrder> emptyList(), cand1, cand2, cand3, cand4, cand5);
+
+		Assert.assertEquals(4, orderGroups.size());
+		assertSameCandidates(orderGroups.get(0), cand1, cand5);
+		assertSameCandidates(orderGroups.get(1), cand2);
+		assertSameCandidates(orderGroups.get(2), cand3);
+		assertSameCandidates(orderGroups.get(3), cand4);
+	}
+
+	@Test
+	public void test_groupByOrder_SplitByPricingSystem()
+	{
+		final I_C_OLCand cand1 = olCand(bpartner1); // falls back to the processor's pricing system
+
+		final I_C_OLCand cand2 = olCand(bpartner1);
+		cand2.setM_PricingSystem_ID(PRICING_SYSTEM_ID + 1);
+		InterfaceWrapperHelper.save(cand2);
+
+		final I_C_OLCand cand3 = olCand(bpartner1);
+		cand3.setM_PricingSystem_ID(PRICING_SYSTEM_ID);
+		InterfaceWrapperHelper.save(cand3);
+
+		final List<List<I_C_OLCand>> orderGroups = groupByOrder(Collections.<I_C_OLCandAggAndOrder> emptyList(), cand1, cand2, cand3);
+
+		Assert.assertEquals(2, orderGroups.size());
+		assertSameCandidates(orderGroups.get(0), cand1, cand3);
+		assertSameCandidates(orderGroups.get(1), cand2);
+	}
+
+	@Test
+	public void test_groupByOrder_SplitByAggAndOrder()
+	{
+		final I_C_OLCand cand1 = olCand(bpartner1);
+		cand1.setM_Warehouse_Dest_ID(1);
+		InterfaceWrapperHelper.save(cand1);
+
+		final I_C_OLCand cand2 = olCand(bpartner1);
+		cand2.setM_Warehouse_Dest_ID(2);
+		InterfaceWrapperHelper.save(cand2);
+
+		final I_C_OLCand cand3 = olCand(bpartner1);
+		cand3.setM_Warehouse_Dest_ID(1);
+		InterfaceWrapperHelper.save(cand3);
+
+		// M_Warehouse_Dest_ID is not an order header value
+		final List<List<I_C_OLCand>> orderGroupsNoSplit = groupByOrder(Arrays.asList(aggAndOrder(I_C_OLCand.COLUMNNAME_M_Warehouse_Dest_ID, false)), cand1, cand2, cand3);
+		Assert.assertEquals(1, orderGroupsNoSplit.size());
+		assertSameCandidates(orderGroupsNoSplit.get(0), cand1, cand2, cand3);
+
+		final List<List<I_C_OLCand>> orderGroupsSplit = groupByOrder(Arrays.asList(aggAndOrder(I_C_OLCand.COLUMNNAME_M_Warehouse_Dest_ID, true)), cand1, cand2, cand3);
+		Assert.assertEquals(2, orderGroupsSplit.size());
+		assertSameCandidates(orderGroupsSplit.get(0), cand1, cand3);
+		assertSameCandidates(orderGroupsSplit.get(1), cand2);
+	}
+
+	/**
+	 * If one candidate can't be added to the order, only this candidate shall be flagged as erroneous, and the others shall still end up in the order.
+	 */
+	@Test
+	public void test_processOrderGroup_CandidateErrorIsIsolated()
+	{
+		final I_C_OLCand cand1 = olCand(bpartner1);
+		final I_C_OLCand cand2 = olCand(bpartner1);
+		final I_C_OLCand cand3 = olCand(bpartner1);
+
+		final OLCandBLWithoutOrders olCandBL = new OLCandBLWithoutOrders(cand2.getC_OLCand_ID());
+		olCandBL.processOrderGroup(context.getCtx(), processor, Arrays.asList(cand1, cand2, cand3), Collections.<I_C_OLCandAggAndOrder> emptyList(), Loggables.getNullLoggable(), ITrx.TRXNAME_None);
+
+		Assert.assertEquals(Arrays.asList(cand2.getC_OLCand_ID()), olCandBL.erroneousCandidateIds);
+		Assert.assertEquals(Arrays.asList(cand1.getC_OLCand_ID(), cand3.getC_OLCand_ID()), olCandBL.olaCandidateIds);
+		Assert.assertEquals("order lines to complete", 2, olCandBL.completedOrderLinesCount);
+
+		// the processed flags are updated in the database and also in the given instances
+		assertProcessed(cand1, true);
+		assertProcessed(cand2, false);
+		assertProcessed(cand3, true);
+	}
+
+	private I_C_OLCand olCand(final I_C_BPartner bpartner)
+	{
+		final I_C_OLCand olCand = olCand(context, I_C_OLCand.class, false);
+		olCand.setC_BPartner_ID(bpartner.getC_BPartner_ID());
+		olCand.setDatePromised(DATE_PROMISED);
+		olCand.setQty(BigDecimal.ONE);
+		InterfaceWrapperHelper.save(olCand);
+		return olCand;
+	}
+
+	private I_C_OLCandAggAndOrder aggAndOrder(final String olCandColumnName, final boolean splitOrder)
+	{
+		final I_AD_Column column = InterfaceWrapperHelper.newInstance(I_AD_Column.class, context);
+		column.setColumnName(olCandColumnName);
+		InterfaceWrapperHelper.save(column);
+
+		final I_C_OLCandAggAndOrder aggAndOrder = InterfaceWrapperHelper.newInstance(I_C_OLCandAggAndOrder.class, context);
+		aggAndOrder.setC_OLCandProcessor_ID(processor.getC_OLCandProcessor_ID());
+		aggAndOrder.setAD_Column_OLCand_ID(column.getAD_Column_ID());
+		aggAndOrder.setSplitOrder(splitOrder);
+		InterfaceWrapperHelper.save(aggAndOrder);
+		return aggAndOrder;
+	}
+
+	private List<List<I_C_OLCand>> groupByOrder(final List<I_C_OLCandAggAndOrder> aggAndOrderList, final I_C_OLCand... candidates)
+	{
+		return new ArrayList<>(new OLCandBL().groupByOrder(processor, Arrays.asList(candidates), aggAndOrderList).values());
+	}
+
+	private static void assertSameCandidates(final List<I_C_OLCand> actual, final I_C_OLCand... expected)
+	{
+		Assert.assertEquals(Arrays.asList(expected), actual);
+	}
+
+	private void assertProcessed(final I_C_OLCand candidate, final boolean expectedProcessed)
+	{
+		Assert.assertEquals("instance of " + candidate, expectedProcessed, candidate.isProcessed());
+
+		final I_C_OLCand candidateReloaded = InterfaceWrapperHelper.create(context.getCtx(), candidate.getC_OLCand_ID(), I_C_OLCand.class, ITrx.TRXNAME_None);
+		Assert.assertEquals("database record of " + candidate, expectedProcessed, candidateReloaded.isProcessed());
+	}
+
+	/**
+	 * Records what {@link OLCandBL} does with an order group instead of creating and completing an actual order.
+	 */
+	private static final class OLCandBLWithoutOrders extends OLCandBL
+	{
+		private final Set<Integer> failingCandidateIds;
+
+		private final List<Integer> erroneousCandidateIds = new ArrayList<>();
+		private final List<Integer> olaCandidateIds = new ArrayList<>();
+		private int completedOrderLinesCount = -1;
+
+		private OLCandBLWithoutOrders(final Integer... failingCandidateIds)
+		{
+			super();
+			this.failingCandidateIds = new HashSet<>(Arrays.asList(failingCandidateIds));
+		}
+
+		@Override
+		MOrder mkNewOrder(final Properties ctx, final I_C_OLCandProcessor processor, final I_C_OLCand olCand, final String trxName)
+		{
+			return null;
+		}
+
+		@Override
+		MOrderLine processOLCand(final MOrder order, final MOrderLine currentOrderLine, final I_C_OLCand candToProcess)
+		{
+			if (failingCandidateIds.contains(candToProcess.getC_OLCand_ID()))
+			{
+				throw new AdempiereException("Failing on purpose for " + candToProcess);
+			}
+			return null;
+		}
+
+		@Override
+		void markAsError(final Properties ctx, final I_C_OLCandProcessor processor, final I_C_OLCand candidate, final AdempiereException e)
+		{
+			erroneousCandidateIds.add(candidate.getC_OLCand_ID());
+		}
+
+		@Override
+		void createOla(final I_C_OLCand orderCand, final I_C_OrderLine orderLine, final I_C_OLCandProcessor processor, final BigDecimal qtyOrdered)
+		{
+			olaCandidateIds.add(orderCand.getC_OLCand_ID());
+		}
+
+		@Override
+		void completeOrDeleteOrder(final Properties ctx, final MOrder order, final I_C_OLCandProcessor processor, final List<I_C_OLCand> candidates, final List<MOrderLine> createdOrderLines, final ILoggable process, final String trxName)
+		{
+			completedOrderLinesCount = createdOrderLines.size();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package org.adempiere.util.collections;
+
+/*
+ * #%L
+ * de.metas.util
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.adempiere.util.Check;
+
+/**
+ * Like {@link ConvertIteratorWrapper}, but the underlying values are converted in batches of a given size.
+ * <p>
+ * Use it when the conversion needs some additional data which is more efficiently loaded for a whole batch (e.g. with one SQL) than for each value.
+ *
+ * @author metas-dev <dev@metasfresh.com>
+ *
+ * @param <OT> output type
+ * @param <IT> input type
+ */
+public class BatchConvertIteratorWrapper<OT, IT> implements Iterator<OT>, IteratorWrapper<IT>
+{
+	private final Iterator<IT> iterator;
+	private final int batchSize;
+	private final Converter<List<OT>, List<IT>> batchConverter;
+
+	private Iterator<OT> currentBatch = null;
+
+	/**
+	 * @param iterator
+	 * @param batchSize how many values to convert at once
+	 * @param batchConverter converts a list of input values to a list of output values. The output list can have less (or more) elements than the input list.
+	 */
+	public BatchConvertIteratorWrapper(final Iterator<IT> iterator, final int batchSize, final Converter<List<OT>, List<IT>> batchConverter)
+	{
+		super();
+
+		Check.assumeNotNull(iterator, "iterator not null");
+		Check.assume(batchSize > 0, "batchSize > 0");
+		Check.assumeNotNull(batchConverter, "batchConverter not null");
+
+		this.iterator = iterator;
+		this.batchSize = batchSize;
+		this.batchConverter = batchConverter;
+	}
+
+	@Override
+	public Iterator<IT> getParentIterator()
+	{
+		return iterator;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		while (currentBatch == null || !currentBatch.hasNext())
+		{
+			if (!iterator.hasNext())
+			{
+				return false;
+			}
+
+			final List<IT> valuesIn = new ArrayList<>(batchSize);
+			while (valuesIn.size() < batchSize && iterator.hasNext())
+			{
+				valuesIn.add(iterator.next());
+			}
+
+			final List<OT> valuesOut = batchConverter.convert(valuesIn);
+			currentBatch = valuesOut == null ? null : valuesOut.iterator();
+		}
+
+		return true;
+	}
+
+	@Override
+	public OT next()
+	{
+		if (!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		return currentBatch.next();
+	}
+
+	@Override
+	public void remove()
+	{
+		throw new UnsupportedOperationException();
+	}
+}
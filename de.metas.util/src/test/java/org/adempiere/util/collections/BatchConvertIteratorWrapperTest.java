@@ -0,0 +1,73 @@
+package org.adempiere.util.collections;
+
+/*
+ * #%L
+ * de.metas.util
+ * %%
+ * Copyright (C) 2016 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchConvertIteratorWrapperTest
+{
+	@Test
+	public void commonScenario()
+	{
+		final List<List<Integer>> batches = new ArrayList<>();
+		final BatchConvertIteratorWrapper<String, Integer> it = new BatchConvertIteratorWrapper<>(Arrays.asList(1, 2, 3, 4, 5).iterator(), 2, new Converter<List<String>, List<Integer>>()
+		{
+			@Override
+			public List<String> convert(final List<Integer> values)
+			{
+				batches.add(values);
+
+				final List<String> result = new ArrayList<>();
+				for (final Integer value : values)
+				{
+					result.add("item" + value);
+				}
+				return result;
+			}
+		});
+
+		Assert.assertEquals(Arrays.asList("item1", "item2", "item3", "item4", "item5"), IteratorUtils.asList(it));
+		Assert.assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)), batches);
+	}
+
+	@Test
+	public void emptyBatchesAreSkipped()
+	{
+		final BatchConvertIteratorWrapper<Integer, Integer> it = new BatchConvertIteratorWrapper<>(Arrays.asList(1, 2, 3, 4, 5).iterator(), 2, new Converter<List<Integer>, List<Integer>>()
+		{
+			@Override
+			public List<Integer> convert(final List<Integer> values)
+			{
+				return values.contains(5) ? values : Collections.<Integer> emptyList();
+			}
+		});
+
+		Assert.assertEquals(Arrays.asList(5), IteratorUtils.asList(it));
+	}
+}